@@ -36,7 +36,6 @@ package org.deegree.filter.comparison;
 
 import org.deegree.commons.tom.TypedObjectNode;
 import org.deegree.commons.tom.primitive.PrimitiveValue;
-import org.deegree.commons.utils.Pair;
 import org.deegree.filter.Expression;
 import org.deegree.filter.FilterEvaluationException;
 import org.deegree.filter.MatchAction;
@@ -75,10 +74,17 @@ public abstract class BinaryComparisonOperator extends ComparisonOperator {
 
 	@Override
 	public <T> boolean evaluate(T obj, XPathEvaluator<T> xpathEvaluator) throws FilterEvaluationException {
+		return evaluate(param1.evaluate(obj, xpathEvaluator), param2.evaluate(obj, xpathEvaluator));
+	}
 
-		TypedObjectNode[] param1Values = param1.evaluate(obj, xpathEvaluator);
-		TypedObjectNode[] param2Values = param2.evaluate(obj, xpathEvaluator);
-
+	/**
+	 * Evaluates the operator on the given (already evaluated) parameter values, taking
+	 * the {@link MatchAction} into account.
+	 * @param param1Values values of the first parameter, never <code>null</code>
+	 * @param param2Values values of the second parameter, never <code>null</code>
+	 * @return true, if the values match the condition, false otherwise
+	 */
+	public boolean evaluate(TypedObjectNode[] param1Values, TypedObjectNode[] param2Values) {
 		MatchAction ma = matchAction != null ? matchAction : MatchAction.ANY;
 		switch (ma) {
 			case ANY: {
@@ -87,8 +93,7 @@ public abstract class BinaryComparisonOperator extends ComparisonOperator {
 					if (value1 != null) {
 						for (TypedObjectNode value2 : param2Values) {
 							if (value2 != null) {
-								Pair<PrimitiveValue, PrimitiveValue> primitivePair = getPrimitiveValues(value1, value2);
-								if (compare(primitivePair.first, primitivePair.second)) {
+								if (compare(getPrimitiveValue(value1), getPrimitiveValue(value2))) {
 									return true;
 								}
 							}
@@ -107,8 +112,7 @@ public abstract class BinaryComparisonOperator extends ComparisonOperator {
 						boolean foundMatch = false;
 						for (TypedObjectNode value2 : param2Values) {
 							if (value2 != null) {
-								Pair<PrimitiveValue, PrimitiveValue> primitivePair = getPrimitiveValues(value1, value2);
-								if (compare(primitivePair.first, primitivePair.second)) {
+								if (compare(getPrimitiveValue(value1), getPrimitiveValue(value2))) {
 									foundMatch = true;
 								}
 							}
@@ -131,8 +135,7 @@ public abstract class BinaryComparisonOperator extends ComparisonOperator {
 					if (value1 != null) {
 						for (TypedObjectNode value2 : param2Values) {
 							if (value2 != null) {
-								Pair<PrimitiveValue, PrimitiveValue> primitivePair = getPrimitiveValues(value1, value2);
-								if (compare(primitivePair.first, primitivePair.second)) {
+								if (compare(getPrimitiveValue(value1), getPrimitiveValue(value2))) {
 									if (foundMatch) {
 										// found a second match
 										return false;
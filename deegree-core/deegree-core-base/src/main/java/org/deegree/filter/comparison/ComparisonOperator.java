@@ -117,7 +117,13 @@ public abstract class ComparisonOperator implements Operator {
 		return new Pair<PrimitiveValue, PrimitiveValue>(primitive1, primitive2);
 	}
 
-	private PrimitiveValue getPrimitiveValue(TypedObjectNode node) {
+	/**
+	 * Converts the given {@link TypedObjectNode} into the {@link PrimitiveValue} used for
+	 * comparisons.
+	 * @param node node, can be <code>null</code>
+	 * @return primitive value, never <code>null</code>
+	 */
+	public static PrimitiveValue getPrimitiveValue(TypedObjectNode node) {
 		if (node == null) {
 			return new PrimitiveValue("null");
 		}
@@ -0,0 +1,158 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.filter.comparison;
+
+import org.deegree.filter.FilterEvaluationException;
+
+/**
+ * Pre-parsed pattern of a {@link PropertyIsLike} operator.
+ * <p>
+ * The pattern is a sequence of standard characters, wildcard characters (like * in most
+ * shells) and single characters (like ? in most shells). Standard characters may be
+ * escaped using the escape character. Parsing happens once on construction, so a
+ * {@link LikePattern} can be matched against any number of values without parsing the
+ * pattern again. Instances are immutable and thread-safe.
+ * </p>
+ */
+public class LikePattern {
+
+	private static final byte CHAR = 0;
+
+	private static final byte WILDCARD = 1;
+
+	private static final byte SINGLE_CHAR = 2;
+
+	private final byte[] types;
+
+	private final char[] chars;
+
+	private final boolean matchCase;
+
+	/**
+	 * Creates a new {@link LikePattern} instance.
+	 * @param pattern the pattern, must not be <code>null</code>
+	 * @param wildCard the wildcard character, must be exactly one character
+	 * @param singleChar the single character, must be exactly one character
+	 * @param escapeChar the escape character, must be exactly one character
+	 * @param matchCase true, if matching is case sensitive
+	 * @throws FilterEvaluationException if wildCard, singleChar or escapeChar are not
+	 * exactly one character
+	 */
+	public LikePattern(String pattern, String wildCard, String singleChar, String escapeChar, boolean matchCase)
+			throws FilterEvaluationException {
+		if (wildCard == null || singleChar == null || escapeChar == null || wildCard.length() != 1
+				|| singleChar.length() != 1 || escapeChar.length() != 1) {
+			String msg = "At the moment, wildCard, singleChar and escapeChar must each be exactly one character.";
+			throw new FilterEvaluationException(msg);
+		}
+		this.matchCase = matchCase;
+		String p = matchCase ? pattern : pattern.toLowerCase();
+		char wild = wildCard.charAt(0);
+		char single = singleChar.charAt(0);
+		char escape = escapeChar.charAt(0);
+
+		byte[] types = new byte[p.length()];
+		char[] chars = new char[p.length()];
+		int length = 0;
+		boolean escapeMode = false;
+		for (int i = 0; i < p.length(); i++) {
+			char c = p.charAt(i);
+			if (escapeMode) {
+				types[length] = CHAR;
+				chars[length++] = c;
+				escapeMode = false;
+			}
+			else if (c == escape) {
+				escapeMode = true;
+			}
+			else if (c == wild) {
+				// consecutive wildcards are equivalent to a single one
+				if (length == 0 || types[length - 1] != WILDCARD) {
+					types[length++] = WILDCARD;
+				}
+			}
+			else if (c == single) {
+				types[length++] = SINGLE_CHAR;
+			}
+			else {
+				types[length] = CHAR;
+				chars[length++] = c;
+			}
+		}
+		this.types = new byte[length];
+		this.chars = new char[length];
+		System.arraycopy(types, 0, this.types, 0, length);
+		System.arraycopy(chars, 0, this.chars, 0, length);
+	}
+
+	/**
+	 * Checks if the given value matches the pattern.
+	 * @param value value to test, must not be <code>null</code>
+	 * @return true, if the value matches the pattern
+	 */
+	public boolean matches(String value) {
+		String s = matchCase ? value : value.toLowerCase();
+		int length = s.length();
+		int i = 0;
+		int p = 0;
+		// position of the last wildcard in the pattern and the corresponding value
+		// position, used for backtracking
+		int wildcardPos = -1;
+		int wildcardMatch = 0;
+		while (i < length) {
+			if (p < types.length && (types[p] == SINGLE_CHAR || (types[p] == CHAR && chars[p] == s.charAt(i)))) {
+				p++;
+				i++;
+			}
+			else if (p < types.length && types[p] == WILDCARD) {
+				wildcardPos = p++;
+				wildcardMatch = i;
+			}
+			else if (wildcardPos != -1) {
+				// let the last wildcard consume one more character
+				p = wildcardPos + 1;
+				i = ++wildcardMatch;
+			}
+			else {
+				return false;
+			}
+		}
+		while (p < types.length && types[p] == WILDCARD) {
+			p++;
+		}
+		return p == types.length;
+	}
+
+}
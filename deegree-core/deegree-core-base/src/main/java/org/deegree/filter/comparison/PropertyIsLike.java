@@ -35,8 +35,6 @@
 package org.deegree.filter.comparison;
 
 import org.deegree.commons.tom.TypedObjectNode;
-import org.deegree.commons.tom.primitive.PrimitiveValue;
-import org.deegree.commons.utils.Pair;
 import org.deegree.filter.Expression;
 import org.deegree.filter.FilterEvaluationException;
 import org.deegree.filter.MatchAction;
@@ -122,14 +120,9 @@ public class PropertyIsLike extends ComparisonOperator {
 					return true;
 				}
 				if (value1 != null && value2 != null) {
-					Pair<PrimitiveValue, PrimitiveValue> primitivePair = getPrimitiveValues(value1, value2);
-					String s1 = primitivePair.first.toString();
-					String s2 = primitivePair.second.toString();
-					if (!matchCase) {
-						s1 = s1.toLowerCase();
-						s2 = s2.toLowerCase();
-					}
-					if (matches(s2, s1)) {
+					String s1 = getPrimitiveValue(value1).toString();
+					String s2 = getPrimitiveValue(value2).toString();
+					if (compilePattern(s2).matches(s1)) {
 						return true;
 					}
 				}
@@ -139,100 +132,15 @@ public class PropertyIsLike extends ComparisonOperator {
 	}
 
 	/**
-	 * Checks if a given <code>String</code> matches a pattern that is a sequence of:
-	 * <ul>
-	 * <li>standard characters</li>
-	 * <li>wildcard characters (like * in most shells)</li>
-	 * <li>singlechar characters (like ? in most shells)</li>
-	 * </ul>
-	 * @param pattern the pattern to compare to
-	 * @param buffer the <code>String</code> to test
-	 * @return true, if the <code>String</code> matches the pattern
-	 * @throws FilterEvaluationException
+	 * Parses the given pattern using the wildcard, single and escape characters and the
+	 * case sensitivity of this operator.
+	 * @param pattern the pattern, must not be <code>null</code>
+	 * @return the parsed pattern, never <code>null</code>
+	 * @throws FilterEvaluationException if wildCard, singleChar or escapeChar are not
+	 * exactly one character
 	 */
-	private boolean matches(String pattern, String buffer) throws FilterEvaluationException {
-
-		// match must be successful if both the pattern and the buffer are empty
-		if (pattern.length() == 0 && buffer.length() == 0) {
-			return true;
-		}
-
-		// build the prefix that has to match the beginning of the buffer
-		// prefix ends at the first (unescaped!) wildcard / singlechar character
-		StringBuffer sb = new StringBuffer();
-		boolean escapeMode = false;
-		int length = pattern.length();
-		char specialChar = '\0';
-
-		if (wildCard.length() != 1 || singleChar.length() != 1 || escapeChar.length() != 1) {
-			String msg = "At the moment, wildCard, singleChar and escapeChar must each be exactly one character.";
-			throw new FilterEvaluationException(msg);
-		}
-		char escapeChar = this.escapeChar.charAt(0);
-		char singleChar = this.singleChar.charAt(0);
-		char wildCard = this.wildCard.charAt(0);
-
-		for (int i = 0; i < length; i++) {
-			char c = pattern.charAt(i);
-
-			if (escapeMode) {
-				// just append every character (except the escape character)
-				if (c != escapeChar) {
-					sb.append(c);
-				}
-				escapeMode = false;
-			}
-			else {
-				// escapeChar means: switch to escapeMode
-				if (c == escapeChar) {
-					escapeMode = true;
-				}
-				// wildCard / singleChar means: prefix ends here
-				else if (c == wildCard || c == singleChar) {
-					specialChar = c;
-					break;
-				}
-				else {
-					sb.append(c);
-				}
-			}
-		}
-		String prefix = sb.toString();
-		int skip = prefix.length();
-
-		// the buffer must begin with the prefix or else there is no match
-		if (!buffer.startsWith(prefix))
-			return false;
-
-		if (specialChar == wildCard) {
-			// the prefix is terminated by a wildcard-character
-			pattern = pattern.substring(skip + 1, pattern.length());
-			// try to find a match for the rest of the pattern
-			for (int i = skip; i <= buffer.length(); i++) {
-				String rest = buffer.substring(i, buffer.length());
-				if (matches(pattern, rest)) {
-					return true;
-				}
-			}
-		}
-		else if (specialChar == singleChar) {
-			// the prefix is terminated by a singlechar-character
-			pattern = pattern.substring(skip + 1, pattern.length());
-			if (skip + 1 > buffer.length()) {
-				return false;
-			}
-			String rest = buffer.substring(skip + 1, buffer.length());
-			if (matches(pattern, rest)) {
-				return true;
-			}
-		}
-		else if (specialChar == '\0') {
-			// the prefix is terminated by the end of the pattern
-			if (buffer.length() == prefix.length()) {
-				return true;
-			}
-		}
-		return false;
+	public LikePattern compilePattern(String pattern) throws FilterEvaluationException {
+		return new LikePattern(pattern, wildCard, singleChar, escapeChar, matchCase);
 	}
 
 	@Override
@@ -36,11 +36,8 @@ package org.deegree.filter.comparison;
 
 import org.deegree.commons.tom.TypedObjectNode;
 import org.deegree.commons.tom.primitive.PrimitiveValue;
-import org.deegree.commons.utils.Pair;
 import org.deegree.filter.Expression;
-import org.deegree.filter.FilterEvaluationException;
 import org.deegree.filter.MatchAction;
-import org.deegree.filter.XPathEvaluator;
 
 /**
  * TODO add documentation here
@@ -59,11 +56,7 @@ public class PropertyIsNotEqualTo extends BinaryComparisonOperator {
 	}
 
 	@Override
-	public <T> boolean evaluate(T obj, XPathEvaluator<T> xpathEvaluator) throws FilterEvaluationException {
-
-		TypedObjectNode[] param1Values = param1.evaluate(obj, xpathEvaluator);
-		TypedObjectNode[] param2Values = param2.evaluate(obj, xpathEvaluator);
-
+	public boolean evaluate(TypedObjectNode[] param1Values, TypedObjectNode[] param2Values) {
 		// evaluate to true if at least one pair of values matches the condition
 		for (TypedObjectNode value1 : param1Values) {
 			for (TypedObjectNode value2 : param2Values) {
@@ -71,16 +64,8 @@ public class PropertyIsNotEqualTo extends BinaryComparisonOperator {
 					return true;
 				}
 				if (value1 != null && value2 != null) {
-					Pair<PrimitiveValue, PrimitiveValue> comparablePair = getPrimitiveValues(value1, value2);
-					if (!matchCase) {
-						if (!comparablePair.first.toString().equalsIgnoreCase(comparablePair.second.toString())) {
-							return true;
-						}
-					}
-					else {
-						if (!comparablePair.first.equals(comparablePair.second)) {
-							return true;
-						}
+					if (compare(getPrimitiveValue(value1), getPrimitiveValue(value2))) {
+						return true;
 					}
 				}
 			}
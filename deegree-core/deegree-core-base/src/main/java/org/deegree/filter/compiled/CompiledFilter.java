@@ -0,0 +1,67 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.filter.compiled;
+
+import org.deegree.filter.FilterEvaluationException;
+import org.deegree.filter.Operator;
+import org.deegree.filter.OperatorFilter;
+import org.deegree.filter.XPathEvaluator;
+
+/**
+ * {@link OperatorFilter} that is evaluated using a tree of pre-bound evaluators instead
+ * of interpreting the operator tree.
+ * <p>
+ * The original operators are still available via {@link #getOperator()}, so a
+ * {@link CompiledFilter} can be used wherever an {@link OperatorFilter} is expected, e.g.
+ * for mapping it to SQL.
+ * </p>
+ *
+ * @see FilterCompiler
+ */
+public class CompiledFilter extends OperatorFilter {
+
+	private final CompiledOperator compiledOperator;
+
+	CompiledFilter(Operator rootOperator, CompiledOperator compiledOperator) {
+		super(rootOperator);
+		this.compiledOperator = compiledOperator;
+	}
+
+	@Override
+	public <T> boolean evaluate(T obj, XPathEvaluator<T> xpathEvaluator) throws FilterEvaluationException {
+		return compiledOperator.evaluate(obj, xpathEvaluator);
+	}
+
+}
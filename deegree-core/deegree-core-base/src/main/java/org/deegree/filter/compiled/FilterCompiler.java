@@ -0,0 +1,358 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.filter.compiled;
+
+import static org.deegree.filter.comparison.ComparisonOperator.getPrimitiveValue;
+
+import java.util.List;
+
+import javax.xml.namespace.QName;
+
+import org.deegree.commons.tom.TypedObjectNode;
+import org.deegree.commons.tom.gml.property.Property;
+import org.deegree.cs.coordinatesystems.ICRS;
+import org.deegree.feature.Feature;
+import org.deegree.filter.Expression;
+import org.deegree.filter.Filter;
+import org.deegree.filter.FilterEvaluationException;
+import org.deegree.filter.Operator;
+import org.deegree.filter.OperatorFilter;
+import org.deegree.filter.XPathEvaluator;
+import org.deegree.filter.comparison.BinaryComparisonOperator;
+import org.deegree.filter.comparison.LikePattern;
+import org.deegree.filter.comparison.PropertyIsLike;
+import org.deegree.filter.expression.Literal;
+import org.deegree.filter.expression.ValueReference;
+import org.deegree.filter.logical.And;
+import org.deegree.filter.logical.Not;
+import org.deegree.filter.logical.Or;
+import org.deegree.filter.spatial.SpatialOperator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Turns {@link Filter}s into {@link CompiledFilter}s for repeated in-memory evaluation.
+ * <p>
+ * Evaluating an {@link OperatorFilter} interprets the operator tree for every object. The
+ * compiler does the work that does not depend on the evaluated object once:
+ * <ul>
+ * <li>literals are converted into the primitive values used for comparisons</li>
+ * <li>patterns of {@link PropertyIsLike} operators are parsed</li>
+ * <li>geometry literals of spatial operators are transformed into the crs of the
+ * evaluated geometries (if known)</li>
+ * <li>simple, qualified {@link ValueReference}s are resolved by direct property access on
+ * {@link Feature}s</li>
+ * </ul>
+ * Operators that are not handled specifically are evaluated as before.
+ * </p>
+ */
+public class FilterCompiler {
+
+	private static final Logger LOG = LoggerFactory.getLogger(FilterCompiler.class);
+
+	private FilterCompiler() {
+		// avoid instantiation
+	}
+
+	/**
+	 * Compiles the given filter.
+	 * @param filter filter to compile, may be <code>null</code>
+	 * @return compiled filter, <code>null</code> if the given filter is <code>null</code>
+	 * (non-operator filters are returned unchanged)
+	 */
+	public static Filter compile(Filter filter) {
+		return compile(filter, null);
+	}
+
+	/**
+	 * Compiles the given filter.
+	 * @param filter filter to compile, may be <code>null</code>
+	 * @param crs crs of the geometries the filter will be evaluated on, may be
+	 * <code>null</code> (unknown)
+	 * @return compiled filter, <code>null</code> if the given filter is <code>null</code>
+	 * (non-operator filters are returned unchanged)
+	 */
+	public static Filter compile(Filter filter, ICRS crs) {
+		if (!(filter instanceof OperatorFilter) || filter instanceof CompiledFilter) {
+			return filter;
+		}
+		Operator root = ((OperatorFilter) filter).getOperator();
+		return new CompiledFilter(root, compile(root, crs));
+	}
+
+	private static CompiledOperator compile(Operator operator, ICRS crs) {
+		if (operator instanceof And) {
+			return new AndEvaluator(compile(((And) operator).getParams(), crs));
+		}
+		if (operator instanceof Or) {
+			return new OrEvaluator(compile(((Or) operator).getParams(), crs));
+		}
+		if (operator instanceof Not) {
+			return new NotEvaluator(compile(((Not) operator).getParameter(), crs));
+		}
+		if (operator instanceof BinaryComparisonOperator) {
+			BinaryComparisonOperator comparison = (BinaryComparisonOperator) operator;
+			return new ComparisonEvaluator(comparison, compile(comparison.getParameter1()),
+					compile(comparison.getParameter2()));
+		}
+		if (operator instanceof PropertyIsLike) {
+			return compileLike((PropertyIsLike) operator);
+		}
+		if (operator instanceof SpatialOperator) {
+			try {
+				((SpatialOperator) operator).prepareGeometryLiteral(crs);
+			}
+			catch (FilterEvaluationException e) {
+				// will fail again (and be reported) on evaluation
+				LOG.debug("Could not transform geometry literal: {}", e.getMessage());
+			}
+		}
+		return new OperatorEvaluator(operator);
+	}
+
+	private static CompiledOperator[] compile(Operator[] operators, ICRS crs) {
+		CompiledOperator[] compiled = new CompiledOperator[operators.length];
+		for (int i = 0; i < operators.length; i++) {
+			compiled[i] = compile(operators[i], crs);
+		}
+		return compiled;
+	}
+
+	private static CompiledOperator compileLike(PropertyIsLike operator) {
+		Expression pattern = operator.getPattern();
+		if (pattern instanceof Literal<?> && ((Literal<?>) pattern).getValue() != null) {
+			String s = getPrimitiveValue(((Literal<?>) pattern).getValue()).toString();
+			try {
+				return new LikeEvaluator(compile(operator.getExpression()), operator.compilePattern(s));
+			}
+			catch (FilterEvaluationException e) {
+				// will fail again (and be reported) on evaluation
+				LOG.debug("Could not compile like pattern: {}", e.getMessage());
+			}
+		}
+		return new OperatorEvaluator(operator);
+	}
+
+	private static CompiledExpression compile(Expression expression) {
+		if (expression instanceof Literal<?>) {
+			TypedObjectNode value = ((Literal<?>) expression).getValue();
+			return new ConstantValues(value != null ? getPrimitiveValue(value) : null);
+		}
+		if (expression instanceof ValueReference) {
+			QName name = ((ValueReference) expression).getAsQName();
+			// unqualified names may be subject to namespace repairing by the evaluator
+			if (name != null && !name.getNamespaceURI().isEmpty()) {
+				return new PropertyAccessor((ValueReference) expression, name);
+			}
+		}
+		return new ExpressionEvaluator(expression);
+	}
+
+	private interface CompiledExpression {
+
+		<T> TypedObjectNode[] evaluate(T obj, XPathEvaluator<T> xpathEvaluator) throws FilterEvaluationException;
+
+	}
+
+	private static class ConstantValues implements CompiledExpression {
+
+		private final TypedObjectNode[] values;
+
+		ConstantValues(TypedObjectNode value) {
+			this.values = new TypedObjectNode[] { value };
+		}
+
+		@Override
+		public <T> TypedObjectNode[] evaluate(T obj, XPathEvaluator<T> xpathEvaluator) {
+			return values;
+		}
+
+	}
+
+	private static class PropertyAccessor implements CompiledExpression {
+
+		private final ValueReference valueReference;
+
+		private final QName name;
+
+		PropertyAccessor(ValueReference valueReference, QName name) {
+			this.valueReference = valueReference;
+			this.name = name;
+		}
+
+		@Override
+		public <T> TypedObjectNode[] evaluate(T obj, XPathEvaluator<T> xpathEvaluator)
+				throws FilterEvaluationException {
+			if (obj instanceof Feature) {
+				List<Property> props = ((Feature) obj).getProperties(name);
+				return props.toArray(new TypedObjectNode[props.size()]);
+			}
+			return xpathEvaluator.eval(obj, valueReference);
+		}
+
+	}
+
+	private static class ExpressionEvaluator implements CompiledExpression {
+
+		private final Expression expression;
+
+		ExpressionEvaluator(Expression expression) {
+			this.expression = expression;
+		}
+
+		@Override
+		public <T> TypedObjectNode[] evaluate(T obj, XPathEvaluator<T> xpathEvaluator)
+				throws FilterEvaluationException {
+			return expression.evaluate(obj, xpathEvaluator);
+		}
+
+	}
+
+	private static class AndEvaluator implements CompiledOperator {
+
+		private final CompiledOperator[] params;
+
+		AndEvaluator(CompiledOperator[] params) {
+			this.params = params;
+		}
+
+		@Override
+		public <T> boolean evaluate(T obj, XPathEvaluator<T> xpathEvaluator) throws FilterEvaluationException {
+			for (CompiledOperator param : params) {
+				if (!param.evaluate(obj, xpathEvaluator)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+	}
+
+	private static class OrEvaluator implements CompiledOperator {
+
+		private final CompiledOperator[] params;
+
+		OrEvaluator(CompiledOperator[] params) {
+			this.params = params;
+		}
+
+		@Override
+		public <T> boolean evaluate(T obj, XPathEvaluator<T> xpathEvaluator) throws FilterEvaluationException {
+			for (CompiledOperator param : params) {
+				if (param.evaluate(obj, xpathEvaluator)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+	}
+
+	private static class NotEvaluator implements CompiledOperator {
+
+		private final CompiledOperator param;
+
+		NotEvaluator(CompiledOperator param) {
+			this.param = param;
+		}
+
+		@Override
+		public <T> boolean evaluate(T obj, XPathEvaluator<T> xpathEvaluator) throws FilterEvaluationException {
+			return !param.evaluate(obj, xpathEvaluator);
+		}
+
+	}
+
+	private static class ComparisonEvaluator implements CompiledOperator {
+
+		private final BinaryComparisonOperator operator;
+
+		private final CompiledExpression param1;
+
+		private final CompiledExpression param2;
+
+		ComparisonEvaluator(BinaryComparisonOperator operator, CompiledExpression param1,
+				CompiledExpression param2) {
+			this.operator = operator;
+			this.param1 = param1;
+			this.param2 = param2;
+		}
+
+		@Override
+		public <T> boolean evaluate(T obj, XPathEvaluator<T> xpathEvaluator) throws FilterEvaluationException {
+			return operator.evaluate(param1.evaluate(obj, xpathEvaluator), param2.evaluate(obj, xpathEvaluator));
+		}
+
+	}
+
+	private static class LikeEvaluator implements CompiledOperator {
+
+		private final CompiledExpression param;
+
+		private final LikePattern pattern;
+
+		LikeEvaluator(CompiledExpression param, LikePattern pattern) {
+			this.param = param;
+			this.pattern = pattern;
+		}
+
+		@Override
+		public <T> boolean evaluate(T obj, XPathEvaluator<T> xpathEvaluator) throws FilterEvaluationException {
+			for (TypedObjectNode value : param.evaluate(obj, xpathEvaluator)) {
+				if (value != null && pattern.matches(getPrimitiveValue(value).toString())) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+	}
+
+	private static class OperatorEvaluator implements CompiledOperator {
+
+		private final Operator operator;
+
+		OperatorEvaluator(Operator operator) {
+			this.operator = operator;
+		}
+
+		@Override
+		public <T> boolean evaluate(T obj, XPathEvaluator<T> xpathEvaluator) throws FilterEvaluationException {
+			return operator.evaluate(obj, xpathEvaluator);
+		}
+
+	}
+
+}
@@ -34,8 +34,8 @@
  ----------------------------------------------------------------------------*/
 package org.deegree.filter.spatial;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.deegree.commons.tom.TypedObjectNode;
 import org.deegree.commons.tom.genericxml.GenericXMLElement;
@@ -61,7 +61,7 @@ public abstract class SpatialOperator implements Operator {
 
 	private static final Logger LOG = LoggerFactory.getLogger(SpatialOperator.class);
 
-	private final Map<String, Geometry> srsNameToTransformedGeometry = new HashMap<String, Geometry>();
+	private final Map<String, Geometry> srsNameToTransformedGeometry = new ConcurrentHashMap<String, Geometry>();
 
 	protected final Expression param1;
 
@@ -245,8 +245,24 @@ public abstract class SpatialOperator implements Operator {
 	 * @throws FilterEvaluationException if the transformation failed
 	 */
 	protected Geometry getCompatibleGeometry(Geometry param, Geometry literal) throws FilterEvaluationException {
+		return getCompatibleGeometry(param.getCoordinateSystem(), literal);
+	}
+
+	/**
+	 * Transforms the geometry literal of this operator into the given crs in advance, so
+	 * evaluating the operator on geometries in this crs does not have to transform it.
+	 * @param crs crs of the geometries the operator will be evaluated on, may be
+	 * <code>null</code> (nothing is done)
+	 * @throws FilterEvaluationException if the transformation failed
+	 */
+	public void prepareGeometryLiteral(ICRS crs) throws FilterEvaluationException {
+		if (crs != null && param2AsGeometry != null) {
+			getCompatibleGeometry(crs, param2AsGeometry);
+		}
+	}
+
+	private Geometry getCompatibleGeometry(ICRS paramCRS, Geometry literal) throws FilterEvaluationException {
 		Geometry transformedLiteral = literal;
-		ICRS paramCRS = param.getCoordinateSystem();
 		ICRS literalCRS = literal.getCoordinateSystem();
 		if (literalCRS != null && !(paramCRS.equals(literalCRS))) {
 			LOG.debug("Need transformed literal geometry for evaluation: {} -> {}", literalCRS.getAlias(),
@@ -0,0 +1,94 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.filter.comparison;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.deegree.filter.FilterEvaluationException;
+import org.junit.Test;
+
+/**
+ * Tests for {@link LikePattern}.
+ */
+public class LikePatternTest {
+
+	@Test
+	public void testPrefix() throws FilterEvaluationException {
+		LikePattern pattern = new LikePattern("Karl*", "*", "#", "!", true);
+		assertTrue(pattern.matches("Karl"));
+		assertTrue(pattern.matches("Karl Marx"));
+		assertFalse(pattern.matches("karl Marx"));
+		assertFalse(pattern.matches("Kar"));
+	}
+
+	@Test
+	public void testWildcards() throws FilterEvaluationException {
+		LikePattern pattern = new LikePattern("*a*b#", "*", "#", "!", true);
+		assertTrue(pattern.matches("abc"));
+		assertTrue(pattern.matches("xxaxxbx"));
+		assertTrue(pattern.matches("abab!"));
+		assertFalse(pattern.matches("ab"));
+		assertFalse(pattern.matches("ba"));
+	}
+
+	@Test
+	public void testEscape() throws FilterEvaluationException {
+		LikePattern pattern = new LikePattern("100!*!#", "*", "#", "!", true);
+		assertTrue(pattern.matches("100*#"));
+		assertFalse(pattern.matches("1000#"));
+	}
+
+	@Test
+	public void testIgnoreCase() throws FilterEvaluationException {
+		LikePattern pattern = new LikePattern("KARL*", "*", "#", "!", false);
+		assertTrue(pattern.matches("karl marx"));
+		assertTrue(pattern.matches("Karl Marx"));
+	}
+
+	@Test
+	public void testEmpty() throws FilterEvaluationException {
+		LikePattern pattern = new LikePattern("", "*", "#", "!", true);
+		assertTrue(pattern.matches(""));
+		assertFalse(pattern.matches("a"));
+		assertTrue(new LikePattern("*", "*", "#", "!", true).matches(""));
+	}
+
+	@Test(expected = FilterEvaluationException.class)
+	public void testInvalidWildcard() throws FilterEvaluationException {
+		new LikePattern("a", "**", "#", "!", true);
+	}
+
+}
@@ -0,0 +1,132 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.filter.compiled;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamReader;
+
+import org.deegree.feature.Feature;
+import org.deegree.feature.FeatureCollection;
+import org.deegree.feature.types.AppSchema;
+import org.deegree.feature.xpath.TypedObjectNodeXPathEvaluator;
+import org.deegree.filter.Filter;
+import org.deegree.filter.FilterEvaluationTest;
+import org.deegree.filter.IdFilter;
+import org.deegree.filter.function.FunctionManager;
+import org.deegree.filter.xml.Filter110XMLDecoder;
+import org.deegree.gml.GMLInputFactory;
+import org.deegree.gml.GMLStreamReader;
+import org.deegree.gml.GMLVersion;
+import org.deegree.gml.schema.GMLAppSchemaReader;
+import org.deegree.workspace.Workspace;
+import org.deegree.workspace.standard.DefaultWorkspace;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that {@link CompiledFilter}s select the same features as the filters they have
+ * been compiled from.
+ */
+public class FilterCompilerTest {
+
+	private static final String[] FILTERS = { "testfilter1.xml", "testfilter2.xml", "testfilter3.xml",
+			"testfilter4.xml", "testfilter5.xml", "testfilter6.xml", "testfilter7.xml", "testfilter8.xml",
+			"testfilter9.xml", "testfilter11.xml", "testfilter12.xml", "testfilter13.xml", "testfilter14.xml",
+			"testfilter25.xml", "testfilter26.xml", "testfilter27.xml", "testfilter28.xml" };
+
+	private FeatureCollection fc;
+
+	@Before
+	public void setUp() throws Exception {
+		Workspace workspace = new DefaultWorkspace(new File("nix"));
+		workspace.initAll();
+
+		String schemaURL = FilterEvaluationTest.class.getResource("../gml/misc/schema/Philosopher.xsd").toString();
+		GMLAppSchemaReader xsdAdapter = new GMLAppSchemaReader(GMLVersion.GML_31, null, schemaURL);
+		AppSchema schema = xsdAdapter.extractAppSchema();
+
+		URL docURL = FilterEvaluationTest.class.getResource("../gml/misc/feature/Philosopher_FeatureCollection.xml");
+		GMLStreamReader gmlStream = GMLInputFactory.createGMLStreamReader(GMLVersion.GML_31, docURL);
+		gmlStream.setApplicationSchema(schema);
+		fc = (FeatureCollection) gmlStream.readFeature();
+		gmlStream.getIdContext().resolveLocalRefs();
+		new FunctionManager().init(workspace);
+	}
+
+	@Test
+	public void testCompiledFiltersSelectSameFeatures() throws Exception {
+		for (String resourceName : FILTERS) {
+			Filter filter = parseFilter110(resourceName);
+			Filter compiled = FilterCompiler.compile(filter);
+			assertTrue(resourceName, compiled instanceof CompiledFilter);
+			assertEquals(resourceName, getIds(fc.getMembers(filter, new TypedObjectNodeXPathEvaluator())),
+					getIds(fc.getMembers(compiled, new TypedObjectNodeXPathEvaluator())));
+		}
+	}
+
+	@Test
+	public void testNonOperatorFilters() throws Exception {
+		assertEquals(null, FilterCompiler.compile(null));
+		Filter idFilter = new IdFilter("PHILOSOPHER_1");
+		assertTrue(idFilter == FilterCompiler.compile(idFilter));
+		Filter compiled = FilterCompiler.compile(parseFilter110("testfilter1.xml"));
+		assertTrue(compiled == FilterCompiler.compile(compiled));
+	}
+
+	private Set<String> getIds(FeatureCollection fc) {
+		Set<String> ids = new HashSet<String>();
+		for (Feature feature : fc) {
+			ids.add(feature.getId());
+		}
+		return ids;
+	}
+
+	private Filter parseFilter110(String resourceName) throws Exception {
+		InputStream is = FilterEvaluationTest.class.getResourceAsStream("xml/v110/" + resourceName);
+		XMLStreamReader xmlStream = XMLInputFactory.newInstance().createXMLStreamReader(is);
+		xmlStream.nextTag();
+		return Filter110XMLDecoder.parse(xmlStream);
+	}
+
+}
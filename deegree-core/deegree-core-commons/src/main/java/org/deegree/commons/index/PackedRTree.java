@@ -0,0 +1,585 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.commons.index;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.FloatBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.deegree.commons.utils.Pair;
+import org.slf4j.Logger;
+
+/**
+ * Static, packed R-tree that keeps all node boxes and values in flat primitive arrays.
+ * <p>
+ * The tree is bulk loaded by sorting the objects along the Hilbert curve (of the centers
+ * of their envelopes) and packing them into nodes of fixed size, level by level. Nodes
+ * are stored consecutively starting with the leaves, the children of a node are always
+ * contiguous, so no child pointers are needed. Compared to {@link RTree}, the memory
+ * footprint is a small fraction and queries allocate nothing per result when using
+ * {@link #query(float[], Visitor)} or {@link #query(float[], LongVisitor)}.
+ * </p>
+ * <p>
+ * Trees with {@link Long} values (e.g. shape file record offsets) can be written to disk
+ * and are memory-mapped when loaded, so the index does not occupy heap space at all.
+ * Single objects cannot be inserted or removed, the tree has to be rebuilt instead.
+ * </p>
+ *
+ * @param <T> of objects the tree will hold
+ */
+public class PackedRTree<T> extends SpatialIndex<T> {
+
+	private static final Logger LOG = getLogger(PackedRTree.class);
+
+	/**
+	 * Default maximum number of entries per node.
+	 */
+	public static final int DEFAULT_NODE_SIZE = 16;
+
+	private static final int MAGIC = 0x50525449;
+
+	private static final int VERSION = 1;
+
+	private static final int HEADER_SIZE = 5 * 4;
+
+	private static final int HILBERT_MAX = (1 << 16) - 1;
+
+	private final int nodeSize;
+
+	private int numItems;
+
+	// end index (exclusive) of the nodes of each level, leaves first
+	private int[] levelBounds;
+
+	// minx, miny, maxx, maxy of every node
+	private FloatBuffer boxes;
+
+	// values of the leaves if all values are longs, null otherwise
+	private LongBuffer longValues;
+
+	// values of the leaves if not all values are longs, null otherwise
+	private Object[] values;
+
+	private boolean extraFlag;
+
+	/**
+	 * Visits the objects found by a query.
+	 *
+	 * @param <T> of objects
+	 */
+	public interface Visitor<T> {
+
+		/**
+		 * @param object intersecting object
+		 * @return false, if the query should be aborted
+		 */
+		boolean visit(T object);
+
+	}
+
+	/**
+	 * Visits the values found by a query on a tree with {@link Long} values.
+	 */
+	public interface LongVisitor {
+
+		/**
+		 * @param value value of an intersecting object
+		 * @return false, if the query should be aborted
+		 */
+		boolean visit(long value);
+
+	}
+
+	/**
+	 * Creates an empty tree with {@link #DEFAULT_NODE_SIZE} entries per node.
+	 */
+	public PackedRTree() {
+		this(DEFAULT_NODE_SIZE);
+	}
+
+	/**
+	 * Creates an empty tree.
+	 * @param nodeSize maximum number of entries per node, must be at least 2
+	 */
+	public PackedRTree(int nodeSize) {
+		if (nodeSize < 2) {
+			throw new IllegalArgumentException("The node size must be at least 2, but is " + nodeSize);
+		}
+		this.nodeSize = nodeSize;
+		clear();
+	}
+
+	@Override
+	public void insertBulk(List<Pair<float[], T>> listOfObjects) {
+		List<Pair<float[], T>> items = new ArrayList<Pair<float[], T>>(listOfObjects.size());
+		boolean allLongs = true;
+		for (Pair<float[], T> p : listOfObjects) {
+			if (p.first != null) {
+				items.add(p);
+				allLongs = allLongs && p.second instanceof Long;
+			}
+		}
+		clear();
+		int n = items.size();
+		if (n == 0) {
+			return;
+		}
+
+		long[] keys = sortByHilbertValue(items);
+
+		levelBounds = calcLevelBounds(n, nodeSize);
+		int numNodes = levelBounds[levelBounds.length - 1];
+		float[] nodeBoxes = new float[numNodes * 4];
+		long[] longs = allLongs ? new long[n] : null;
+		Object[] objects = allLongs ? null : new Object[n];
+		for (int i = 0; i < n; i++) {
+			Pair<float[], T> item = items.get((int) (keys[i] & Integer.MAX_VALUE));
+			System.arraycopy(item.first, 0, nodeBoxes, i * 4, 4);
+			if (allLongs) {
+				longs[i] = (Long) item.second;
+			}
+			else {
+				objects[i] = item.second;
+			}
+		}
+
+		int child = 0;
+		for (int level = 1; level < levelBounds.length; level++) {
+			int childEnd = levelBounds[level - 1];
+			for (int node = levelBounds[level - 1]; node < levelBounds[level]; node++) {
+				int end = Math.min(child + nodeSize, childEnd);
+				unionBoxes(nodeBoxes, child, end, node);
+				child = end;
+			}
+		}
+
+		numItems = n;
+		boxes = FloatBuffer.wrap(nodeBoxes);
+		longValues = longs != null ? LongBuffer.wrap(longs) : null;
+		values = objects;
+	}
+
+	/**
+	 * @return keys of the items, sorted by the hilbert value of the centers, the lower 31
+	 * bits contain the index of the item
+	 */
+	private static long[] sortByHilbertValue(final List<? extends Pair<float[], ?>> items) {
+		float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE;
+		float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+		for (Pair<float[], ?> p : items) {
+			minX = Math.min(minX, p.first[0]);
+			minY = Math.min(minY, p.first[1]);
+			maxX = Math.max(maxX, p.first[2]);
+			maxY = Math.max(maxY, p.first[3]);
+		}
+		final float x0 = minX;
+		final float y0 = minY;
+		final float scaleX = maxX > minX ? HILBERT_MAX / (maxX - minX) : 0;
+		final float scaleY = maxY > minY ? HILBERT_MAX / (maxY - minY) : 0;
+
+		long[] keys = new long[items.size()];
+		IntStream.range(0, keys.length).parallel().forEach(i -> {
+			float[] env = items.get(i).first;
+			int x = (int) (scaleX * ((env[0] + env[2]) / 2 - x0));
+			int y = (int) (scaleY * ((env[1] + env[3]) / 2 - y0));
+			keys[i] = (hilbert(x, y) & 0xFFFFFFFFL) << 31 | i;
+		});
+		Arrays.parallelSort(keys);
+		return keys;
+	}
+
+	private static int[] calcLevelBounds(int n, int nodeSize) {
+		List<Integer> bounds = new ArrayList<Integer>();
+		int count = n;
+		int numNodes = n;
+		bounds.add(numNodes);
+		do {
+			count = (count + nodeSize - 1) / nodeSize;
+			numNodes += count;
+			bounds.add(numNodes);
+		}
+		while (count != 1);
+		int[] result = new int[bounds.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = bounds.get(i);
+		}
+		return result;
+	}
+
+	private static void unionBoxes(float[] nodeBoxes, int start, int end, int target) {
+		float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE;
+		float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+		for (int i = start; i < end; i++) {
+			minX = Math.min(minX, nodeBoxes[i * 4]);
+			minY = Math.min(minY, nodeBoxes[i * 4 + 1]);
+			maxX = Math.max(maxX, nodeBoxes[i * 4 + 2]);
+			maxY = Math.max(maxY, nodeBoxes[i * 4 + 3]);
+		}
+		nodeBoxes[target * 4] = minX;
+		nodeBoxes[target * 4 + 1] = minY;
+		nodeBoxes[target * 4 + 2] = maxX;
+		nodeBoxes[target * 4 + 3] = maxY;
+	}
+
+	/**
+	 * Calculates the position of a point on the Hilbert curve of order 16, see
+	 * https://github.com/rawrunprotected/hilbert_curves (public domain).
+	 */
+	private static int hilbert(int x, int y) {
+		int a = x ^ y;
+		int b = 0xFFFF ^ a;
+		int c = 0xFFFF ^ (x | y);
+		int d = x & (y ^ 0xFFFF);
+
+		int A = a | (b >>> 1);
+		int B = (a >>> 1) ^ a;
+		int C = ((c >>> 1) ^ (b & (d >>> 1))) ^ c;
+		int D = ((a & (c >>> 1)) ^ (d >>> 1)) ^ d;
+
+		a = A;
+		b = B;
+		c = C;
+		d = D;
+		A = (a & (a >>> 2)) ^ (b & (b >>> 2));
+		B = (a & (b >>> 2)) ^ (b & ((a ^ b) >>> 2));
+		C ^= (a & (c >>> 2)) ^ (b & (d >>> 2));
+		D ^= (b & (c >>> 2)) ^ ((a ^ b) & (d >>> 2));
+
+		a = A;
+		b = B;
+		c = C;
+		d = D;
+		A = (a & (a >>> 4)) ^ (b & (b >>> 4));
+		B = (a & (b >>> 4)) ^ (b & ((a ^ b) >>> 4));
+		C ^= (a & (c >>> 4)) ^ (b & (d >>> 4));
+		D ^= (b & (c >>> 4)) ^ ((a ^ b) & (d >>> 4));
+
+		a = A;
+		b = B;
+		c = C;
+		d = D;
+		C ^= (a & (c >>> 8)) ^ (b & (d >>> 8));
+		D ^= (b & (c >>> 8)) ^ ((a ^ b) & (d >>> 8));
+
+		a = C ^ (C >>> 1);
+		b = D ^ (D >>> 1);
+
+		int i0 = x ^ y;
+		int i1 = b | (0xFFFF ^ (i0 | a));
+
+		i0 = (i0 | (i0 << 8)) & 0x00FF00FF;
+		i0 = (i0 | (i0 << 4)) & 0x0F0F0F0F;
+		i0 = (i0 | (i0 << 2)) & 0x33333333;
+		i0 = (i0 | (i0 << 1)) & 0x55555555;
+
+		i1 = (i1 | (i1 << 8)) & 0x00FF00FF;
+		i1 = (i1 | (i1 << 4)) & 0x0F0F0F0F;
+		i1 = (i1 | (i1 << 2)) & 0x33333333;
+		i1 = (i1 | (i1 << 1)) & 0x55555555;
+
+		return (i1 << 1) | i0;
+	}
+
+	/**
+	 * @param envelope to intersect, <code>null</code> matches all objects
+	 * @return a list of objects intersecting the given boundingbox
+	 */
+	@Override
+	public List<T> query(float[] envelope) {
+		final List<T> result = new ArrayList<T>();
+		query(envelope, new Visitor<T>() {
+			@Override
+			public boolean visit(T object) {
+				result.add(object);
+				return true;
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Passes all objects intersecting the given envelope to the visitor.
+	 * @param envelope to intersect, <code>null</code> matches all objects
+	 * @param visitor never <code>null</code>
+	 */
+	@SuppressWarnings("unchecked")
+	public void query(float[] envelope, Visitor<? super T> visitor) {
+		if (values == null) {
+			LongVisitor longVisitor = new LongVisitor() {
+				@Override
+				public boolean visit(long value) {
+					return visitor.visit((T) Long.valueOf(value));
+				}
+			};
+			query(envelope, longVisitor, null);
+		}
+		else {
+			query(envelope, null, visitor);
+		}
+	}
+
+	/**
+	 * Passes the values of all objects intersecting the given envelope to the visitor.
+	 * @param envelope to intersect, <code>null</code> matches all objects
+	 * @param visitor never <code>null</code>
+	 * @throws UnsupportedOperationException if the values of the tree are not
+	 * {@link Long}s
+	 */
+	public void query(float[] envelope, LongVisitor visitor) {
+		if (values != null) {
+			throw new UnsupportedOperationException("The values of this tree are not of type Long.");
+		}
+		query(envelope, visitor, null);
+	}
+
+	/**
+	 * @param envelope to intersect, <code>null</code> matches all objects
+	 * @return the values of all objects intersecting the given envelope, in tree order
+	 * @throws UnsupportedOperationException if the values of the tree are not
+	 * {@link Long}s
+	 */
+	public long[] queryLongs(float[] envelope) {
+		final long[][] result = new long[][] { new long[64] };
+		final int[] size = new int[1];
+		query(envelope, new LongVisitor() {
+			@Override
+			public boolean visit(long value) {
+				if (size[0] == result[0].length) {
+					result[0] = Arrays.copyOf(result[0], size[0] * 2);
+				}
+				result[0][size[0]++] = value;
+				return true;
+			}
+		});
+		return Arrays.copyOf(result[0], size[0]);
+	}
+
+	@SuppressWarnings("unchecked")
+	private void query(float[] env, LongVisitor longVisitor, Visitor<? super T> visitor) {
+		if (numItems == 0) {
+			return;
+		}
+		int[] nodes = new int[levelBounds.length * nodeSize];
+		int[] levels = new int[nodes.length];
+		int top = 0;
+		int root = levelBounds[levelBounds.length - 1] - 1;
+		if (intersects(env, root)) {
+			nodes[top] = root;
+			levels[top++] = levelBounds.length - 1;
+		}
+		while (top > 0) {
+			int node = nodes[--top];
+			int level = levels[top];
+			if (level == 0) {
+				boolean goOn = longVisitor != null ? longVisitor.visit(longValues.get(node))
+						: visitor.visit((T) values[node]);
+				if (!goOn) {
+					return;
+				}
+				continue;
+			}
+			int levelStart = level > 1 ? levelBounds[level - 2] : 0;
+			int childStart = levelStart + (node - levelBounds[level - 1]) * nodeSize;
+			int childEnd = Math.min(childStart + nodeSize, levelBounds[level - 1]);
+			// push in reverse order, so children are visited in tree order
+			for (int child = childEnd - 1; child >= childStart; child--) {
+				if (intersects(env, child)) {
+					nodes[top] = child;
+					levels[top++] = level - 1;
+				}
+			}
+		}
+	}
+
+	private boolean intersects(float[] env, int node) {
+		if (env == null) {
+			return true;
+		}
+		int i = node * 4;
+		return env[0] <= boxes.get(i + 2) && env[1] <= boxes.get(i + 3) && boxes.get(i) <= env[2]
+				&& boxes.get(i + 1) <= env[3];
+	}
+
+	/**
+	 * @return the number of objects in the tree
+	 */
+	public int size() {
+		return numItems;
+	}
+
+	/**
+	 * @return the envelope of all objects, <code>null</code> if the tree is empty
+	 */
+	public float[] getEnvelope() {
+		if (numItems == 0) {
+			return null;
+		}
+		int root = (levelBounds[levelBounds.length - 1] - 1) * 4;
+		return new float[] { boxes.get(root), boxes.get(root + 1), boxes.get(root + 2), boxes.get(root + 3) };
+	}
+
+	@Override
+	public void clear() {
+		numItems = 0;
+		levelBounds = new int[] { 0 };
+		boxes = FloatBuffer.allocate(0);
+		longValues = null;
+		values = null;
+	}
+
+	/**
+	 * Not supported, the tree has to be rebuilt using {@link #insertBulk(List)}.
+	 */
+	@Override
+	public boolean insert(float[] envelope, T object) {
+		throw new UnsupportedOperationException("Inserting single objects into a packed r-tree is not supported.");
+	}
+
+	/**
+	 * Not supported, the tree has to be rebuilt using {@link #insertBulk(List)}.
+	 */
+	@Override
+	public boolean remove(T object) {
+		throw new UnsupportedOperationException("Removing objects from a packed r-tree is not supported.");
+	}
+
+	/**
+	 * @return extra flag stored along with the tree (used for hacking around buggy shp
+	 * files)
+	 */
+	public boolean getExtraFlag() {
+		return extraFlag;
+	}
+
+	/**
+	 * @param extraFlag extra flag to store along with the tree
+	 */
+	public void setExtraFlag(boolean extraFlag) {
+		this.extraFlag = extraFlag;
+	}
+
+	/**
+	 * Persists the tree to the given location.
+	 * @param storagePath absolute path to the file
+	 * @throws IOException
+	 * @throws UnsupportedOperationException if the values of the tree are not
+	 * {@link Long}s
+	 */
+	public void writeTreeToDisk(String storagePath) throws IOException {
+		if (values != null) {
+			throw new UnsupportedOperationException("Only trees with values of type Long can be persisted.");
+		}
+		DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(new File(storagePath)), 64 * 1024));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(nodeSize);
+			out.writeInt(numItems);
+			out.writeInt(extraFlag ? 1 : 0);
+			if (numItems > 0) {
+				int numNodes = levelBounds[levelBounds.length - 1];
+				for (int i = 0; i < numNodes * 4; i++) {
+					out.writeFloat(boxes.get(i));
+				}
+				for (int i = 0; i < numItems; i++) {
+					out.writeLong(longValues.get(i));
+				}
+			}
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Loads a tree that has been written by {@link #writeTreeToDisk(String)}. The file is
+	 * memory-mapped, it must not be modified while the tree is in use.
+	 * @param <T>
+	 * @param storagePath absolute path to the file
+	 * @return a new instance
+	 * @throws IOException if the file could not be read or is not a packed r-tree
+	 */
+	public static <T> PackedRTree<T> loadFromDisk(String storagePath) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(storagePath, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			// the header is not mapped, so other files are not locked (on some platforms)
+			if (channel.size() < HEADER_SIZE || raf.readInt() != MAGIC) {
+				throw new IOException("File '" + storagePath + "' is not a packed r-tree.");
+			}
+			int version = raf.readInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported packed r-tree version " + version + " in '" + storagePath + "'.");
+			}
+			PackedRTree<T> tree = new PackedRTree<T>(raf.readInt());
+			int n = raf.readInt();
+			tree.extraFlag = raf.readInt() != 0;
+			if (n == 0) {
+				return tree;
+			}
+			int[] levelBounds = calcLevelBounds(n, tree.nodeSize);
+			long boxesSize = levelBounds[levelBounds.length - 1] * 16L;
+			long valuesSize = n * 8L;
+			if (channel.size() != HEADER_SIZE + boxesSize + valuesSize) {
+				throw new IOException("File '" + storagePath + "' is truncated or corrupt.");
+			}
+			tree.boxes = channel.map(READ_ONLY, HEADER_SIZE, boxesSize).asFloatBuffer();
+			tree.longValues = channel.map(READ_ONLY, HEADER_SIZE + boxesSize, valuesSize).asLongBuffer();
+			tree.levelBounds = levelBounds;
+			tree.numItems = n;
+			LOG.debug("Mapped packed r-tree with {} objects from '{}'.", n, storagePath);
+			return tree;
+		}
+		finally {
+			// mappings stay valid after closing the channel
+			raf.close();
+		}
+	}
+
+}
@@ -35,7 +35,7 @@
 package org.deegree.commons.utils.net;
 
 import static java.util.Collections.synchronizedMap;
-import static org.deegree.commons.utils.net.HttpUtils.STREAM;
+import static org.deegree.commons.utils.net.HttpUtils.BUFFERED_STREAM;
 import static org.deegree.commons.utils.net.HttpUtils.get;
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -130,6 +130,8 @@ public class DURL {
 	}
 
 	/**
+	 * Opens a stream from the URL. Remote content is read completely, so the HTTP
+	 * connection is released even if the stream is not closed.
 	 * @return an input stream from the URL
 	 * @throws IOException
 	 */
@@ -139,7 +141,7 @@ public class DURL {
 			return url.openStream();
 		}
 
-		return get(STREAM, url.toExternalForm(), null);
+		return get(BUFFERED_STREAM, url.toExternalForm(), null);
 	}
 
 }
@@ -0,0 +1,337 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.commons.utils.net;
+
+import static org.deegree.commons.xml.jaxb.JAXBUtils.unmarshall;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.params.ClientPNames;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.impl.conn.SchemeRegistryFactory;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+import org.deegree.commons.config.DeegreeWorkspace;
+import org.deegree.commons.utils.net.jaxb.HttpClientConfiguration;
+import org.deegree.commons.utils.net.jaxb.HttpClientConfiguration.Host;
+import org.deegree.workspace.Initializable;
+import org.deegree.workspace.ResourceInitException;
+import org.deegree.workspace.Workspace;
+import org.deegree.workspace.standard.DefaultWorkspace;
+import org.slf4j.Logger;
+
+/**
+ * Provides the pool of HTTP connections that is shared by all outgoing HTTP requests of
+ * deegree (e.g. {@link HttpUtils} and the OWS clients).
+ * <p>
+ * Connections are kept alive and reused for subsequent requests against the same host, so
+ * frequently accessed remote services (e.g. a remote WMS that backs a tile store) do not
+ * require a new TCP/TLS handshake for every request. The limits and timeouts of the pool
+ * are read from the file <code>http.xml</code> in the workspace (or in the workspace
+ * root), defaults are used if there is none.
+ * </p>
+ * <p>
+ * NOTE: Connections are returned to the pool once the content stream of the response has
+ * been consumed or closed, or the client has been closed. Callers that access the
+ * response stream directly <b>must</b> close it eventually.
+ * </p>
+ */
+public final class HttpConnectionPool implements Initializable {
+
+	private static final Logger LOG = getLogger(HttpConnectionPool.class);
+
+	private static final String CONFIG_JAXB_PACKAGE = "org.deegree.commons.utils.net.jaxb";
+
+	private static final URL CONFIG_SCHEMA = HttpConnectionPool.class.getResource("/META-INF/schemas/http/http.xsd");
+
+	private static final String CONFIG_FILE = "http.xml";
+
+	private static final int DEFAULT_MAX_CONNECTIONS = 200;
+
+	private static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 20;
+
+	private static final int DEFAULT_CONN_TIMEOUT = 10 * 1000;
+
+	private static final int DEFAULT_READ_TIMEOUT = 0;
+
+	private static final int DEFAULT_CONN_REQUEST_TIMEOUT = 30 * 1000;
+
+	private static final int DEFAULT_IDLE_TIMEOUT = 60 * 1000;
+
+	private static final long EVICTION_INTERVAL = 5 * 1000;
+
+	private static final AtomicLong lastEviction = new AtomicLong();
+
+	private static PoolingClientConnectionManager connManager;
+
+	private static int connTimeout = DEFAULT_CONN_TIMEOUT;
+
+	private static int readTimeout = DEFAULT_READ_TIMEOUT;
+
+	private static int connRequestTimeout = DEFAULT_CONN_REQUEST_TIMEOUT;
+
+	private static int idleTimeout = DEFAULT_IDLE_TIMEOUT;
+
+	/**
+	 * (Re-)configures the connection pool.
+	 * @param workspace http.xml located in the workspace is used in case the workspace
+	 * root has no http.xml, never <code>null</code>
+	 */
+	@Override
+	public void init(Workspace workspace) {
+		File globalConfig = new File(DeegreeWorkspace.getWorkspaceRoot(), CONFIG_FILE);
+		File configFile = new File(((DefaultWorkspace) workspace).getLocation(), CONFIG_FILE);
+		if (configFile.exists()) {
+			LOG.info("Using '{}' from workspace.", CONFIG_FILE);
+		}
+		else if (globalConfig.exists()) {
+			LOG.info("Using global '{}'.", CONFIG_FILE);
+			configFile = globalConfig;
+		}
+		else {
+			LOG.debug("No '{}' file -- using default HTTP connection pool settings.", CONFIG_FILE);
+			configure(null);
+			return;
+		}
+
+		HttpClientConfiguration config = null;
+		try (InputStream is = new FileInputStream(configFile)) {
+			config = (HttpClientConfiguration) unmarshall(CONFIG_JAXB_PACKAGE, CONFIG_SCHEMA, is, workspace);
+		}
+		catch (Exception e) {
+			String msg = "Could not unmarshall HTTP client configuration: " + e.getMessage();
+			throw new ResourceInitException(msg, e);
+		}
+		configure(config);
+	}
+
+	/**
+	 * Replaces the connection pool by one with the given configuration. Connections of
+	 * the previous pool are closed.
+	 * @param config configuration, can be <code>null</code> (use defaults)
+	 */
+	public static synchronized void configure(HttpClientConfiguration config) {
+		PoolingClientConnectionManager manager = new PoolingClientConnectionManager(
+				SchemeRegistryFactory.createSystemDefault());
+		manager.setMaxTotal(DEFAULT_MAX_CONNECTIONS);
+		manager.setDefaultMaxPerRoute(DEFAULT_MAX_CONNECTIONS_PER_HOST);
+		connTimeout = DEFAULT_CONN_TIMEOUT;
+		readTimeout = DEFAULT_READ_TIMEOUT;
+		connRequestTimeout = DEFAULT_CONN_REQUEST_TIMEOUT;
+		idleTimeout = DEFAULT_IDLE_TIMEOUT;
+		if (config != null) {
+			if (config.getMaxConnections() != null) {
+				manager.setMaxTotal(config.getMaxConnections().intValue());
+			}
+			if (config.getMaxConnectionsPerHost() != null) {
+				manager.setDefaultMaxPerRoute(config.getMaxConnectionsPerHost().intValue());
+			}
+			for (Host host : config.getHost()) {
+				setMaxPerHost(manager, host.getUrl(), host.getMaxConnections().intValue());
+			}
+			connTimeout = getInt(config.getConnectionTimeout(), DEFAULT_CONN_TIMEOUT);
+			readTimeout = getInt(config.getReadTimeout(), DEFAULT_READ_TIMEOUT);
+			connRequestTimeout = getInt(config.getConnectionRequestTimeout(), DEFAULT_CONN_REQUEST_TIMEOUT);
+			idleTimeout = getInt(config.getIdleTimeout(), DEFAULT_IDLE_TIMEOUT);
+		}
+		LOG.info("HTTP connection pool: {} connections, {} per host, idle timeout {} ms.", manager.getMaxTotal(),
+				manager.getDefaultMaxPerRoute(), idleTimeout);
+		if (connManager != null) {
+			connManager.shutdown();
+		}
+		connManager = manager;
+	}
+
+	private static void setMaxPerHost(PoolingClientConnectionManager manager, String url, int max) {
+		URL u;
+		try {
+			u = new URL(url);
+		}
+		catch (MalformedURLException e) {
+			throw new ResourceInitException("Invalid host url '" + url + "': " + e.getMessage(), e);
+		}
+		String scheme = u.getProtocol().toLowerCase();
+		int port = u.getPort() != -1 ? u.getPort() : u.getDefaultPort();
+		manager.setMaxPerRoute(new HttpRoute(new HttpHost(u.getHost(), port, scheme)), max);
+		if (port == u.getDefaultPort()) {
+			// routes of requests without explicit port
+			manager.setMaxPerRoute(new HttpRoute(new HttpHost(u.getHost(), -1, scheme)), max);
+		}
+	}
+
+	private static int getInt(BigInteger value, int defaultValue) {
+		return value != null ? value.intValue() : defaultValue;
+	}
+
+	private static synchronized PoolingClientConnectionManager getConnectionManager() {
+		if (connManager == null) {
+			configure(null);
+		}
+		return connManager;
+	}
+
+	/**
+	 * Creates a new client that uses the shared connection pool. The client is cheap, so
+	 * request specific settings (proxies, credentials) can be applied to it. Closing the
+	 * client returns the connections of all its responses to the pool, the pool itself is
+	 * not shut down.
+	 * @return a new client, never <code>null</code>
+	 */
+	public static DefaultHttpClient createClient() {
+		PoolingClientConnectionManager manager = getConnectionManager();
+		evictIdleConnections(manager);
+		DefaultHttpClient client = new PooledHttpClient(manager);
+		client.getParams().setLongParameter(ClientPNames.CONN_MANAGER_TIMEOUT, connRequestTimeout);
+		return client;
+	}
+
+	private static void evictIdleConnections(PoolingClientConnectionManager manager) {
+		long now = System.currentTimeMillis();
+		long last = lastEviction.get();
+		if (now - last > EVICTION_INTERVAL && lastEviction.compareAndSet(last, now)) {
+			manager.closeExpiredConnections();
+			manager.closeIdleConnections(idleTimeout, TimeUnit.MILLISECONDS);
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("HTTP connection pool: {}", manager.getTotalStats());
+			}
+		}
+	}
+
+	/**
+	 * Client of the shared pool that keeps track of its responses, so
+	 * {@link #close()} can release their connections.
+	 */
+	private static final class PooledHttpClient extends DefaultHttpClient {
+
+		private final List<CloseableHttpResponse> responses = new ArrayList<>();
+
+		private PooledHttpClient(ClientConnectionManager manager) {
+			super(manager);
+		}
+
+		@Override
+		public CloseableHttpResponse execute(HttpHost target, HttpRequest request, HttpContext context)
+				throws IOException {
+			return track(super.execute(target, request, context));
+		}
+
+		@Override
+		public CloseableHttpResponse execute(HttpHost target, HttpRequest request) throws IOException {
+			return track(super.execute(target, request));
+		}
+
+		@Override
+		public CloseableHttpResponse execute(HttpUriRequest request, HttpContext context) throws IOException {
+			return track(super.execute(request, context));
+		}
+
+		private CloseableHttpResponse track(CloseableHttpResponse response) {
+			synchronized (responses) {
+				responses.add(response);
+			}
+			return response;
+		}
+
+		@Override
+		public void close() {
+			// the connection manager is shared, it must not be shut down
+			List<CloseableHttpResponse> open;
+			synchronized (responses) {
+				open = new ArrayList<>(responses);
+				responses.clear();
+			}
+			for (CloseableHttpResponse response : open) {
+				try {
+					// consumes the rest of the content and returns the connection to the pool
+					response.close();
+				}
+				catch (IOException e) {
+					LOG.debug("Could not release HTTP connection: {}", e.getMessage());
+					LOG.trace("Stack trace:", e);
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * @return timeout in milliseconds for establishing a connection, zero if none
+	 */
+	public static int getConnectionTimeout() {
+		return connTimeout;
+	}
+
+	/**
+	 * @return timeout in milliseconds for waiting for data, zero if none
+	 */
+	public static int getReadTimeout() {
+		return readTimeout;
+	}
+
+	/**
+	 * @return the statistics of all connections (leased, available, pending), never
+	 * <code>null</code>
+	 */
+	public static PoolStats getTotalStats() {
+		return getConnectionManager().getTotalStats();
+	}
+
+	/**
+	 * @param route route to a host, never <code>null</code>
+	 * @return the statistics of the connections of the route, never <code>null</code>
+	 */
+	public static PoolStats getStats(HttpRoute route) {
+		return getConnectionManager().getStats(route);
+	}
+
+}
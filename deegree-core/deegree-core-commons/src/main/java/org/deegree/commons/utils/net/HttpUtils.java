@@ -41,10 +41,12 @@ import static java.net.URLEncoder.encode;
 import static java.util.Arrays.asList;
 import static javax.imageio.ImageIO.read;
 import static org.deegree.commons.utils.ArrayUtils.join;
+import static org.deegree.commons.utils.net.HttpConnectionPool.createClient;
 import static org.slf4j.LoggerFactory.getLogger;
 
 import java.awt.image.BufferedImage;
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -57,6 +59,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TreeSet;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpHost;
 import org.apache.http.HttpResponse;
@@ -81,6 +84,7 @@ import org.apache.http.message.BasicNameValuePair;
 import org.apache.http.params.HttpConnectionParams;
 import org.apache.http.protocol.BasicHttpContext;
 import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
 import org.deegree.commons.utils.Pair;
 import org.slf4j.Logger;
 
@@ -103,8 +107,6 @@ public class HttpUtils {
 
 	private static final Logger LOG = getLogger(HttpUtils.class);
 
-	private static final int DEFAULT_CONN_TIMEOUT = 10 * 1000;
-
 	private static final int DEFAULT_SOCKET_TIMEOUT = 60 * 1000;
 
 	/**
@@ -126,7 +128,18 @@ public class HttpUtils {
 	}
 
 	/**
-	 * Directly returns the stream.
+	 * Base class of workers that read the stream completely, so the connection can be
+	 * returned to the pool afterwards.
+	 *
+	 * @param <T>
+	 */
+	private abstract static class ConsumingWorker<T> implements Worker<T> {
+
+	}
+
+	/**
+	 * Directly returns the stream. The caller must close it, otherwise the connection is
+	 * not returned to the pool.
 	 */
 	public static final Worker<InputStream> STREAM = new Worker<InputStream>() {
 		@Override
@@ -135,12 +148,24 @@ public class HttpUtils {
 		}
 	};
 
+	/**
+	 * Reads the stream completely and returns a stream of the read bytes. Use this
+	 * instead of {@link #STREAM} if the stream is handed on to code that may not close
+	 * it, the connection is returned to the pool right away.
+	 */
+	public static final Worker<InputStream> BUFFERED_STREAM = new ConsumingWorker<InputStream>() {
+		@Override
+		public InputStream work(InputStream in) throws IOException {
+			return new ByteArrayInputStream(IOUtils.toByteArray(in));
+		}
+	};
+
 	/**
 	 * Returns a decoded String.
 	 */
 	public static final Worker<String> UTF8STRING = getStringWorker("UTF-8");
 
-	public static final Worker<JsonElement> JSON = new Worker<JsonElement>() {
+	public static final Worker<JsonElement> JSON = new ConsumingWorker<JsonElement>() {
 		@Override
 		public JsonElement work(InputStream in) throws IOException {
 			return new JsonParser().parse(new InputStreamReader(in, "UTF-8"));
@@ -150,7 +175,7 @@ public class HttpUtils {
 	/**
 	 * Returns a BufferedImage.
 	 */
-	public static final Worker<BufferedImage> IMAGE = new Worker<BufferedImage>() {
+	public static final Worker<BufferedImage> IMAGE = new ConsumingWorker<BufferedImage>() {
 		@Override
 		public BufferedImage work(InputStream in) throws IOException {
 			return read(in);
@@ -162,7 +187,7 @@ public class HttpUtils {
 	 * @return a string producer for a specific encoding
 	 */
 	public static Worker<String> getStringWorker(final String encoding) {
-		return new Worker<String>() {
+		return new ConsumingWorker<String>() {
 			@Override
 			public String work(InputStream in) throws IOException {
 				BufferedReader bin = new BufferedReader(new InputStreamReader(in, encoding));
@@ -177,6 +202,20 @@ public class HttpUtils {
 		};
 	}
 
+	private static <T> T work(Worker<T> worker, HttpEntity entity) throws IOException {
+		if (!(worker instanceof ConsumingWorker)) {
+			// the caller is responsible for closing the stream
+			return worker.work(entity.getContent());
+		}
+		try {
+			return worker.work(entity.getContent());
+		}
+		finally {
+			// returns the connection to the pool
+			EntityUtils.consumeQuietly(entity);
+		}
+	}
+
 	/**
 	 * @param <T>
 	 * @param worker
@@ -235,7 +274,7 @@ public class HttpUtils {
 	public static <T> T post(Worker<T> worker, String url, InputStream postBody, Map<String, String> headers)
 			throws IOException {
 		DURL u = new DURL(url);
-		DefaultHttpClient client = enableProxyUsage(new DefaultHttpClient(), u);
+		DefaultHttpClient client = enableProxyUsage(createClient(), u);
 		HttpPost post = new HttpPost(url);
 		post.setEntity(new InputStreamEntity(postBody, -1));
 		if (headers != null) {
@@ -243,7 +282,7 @@ public class HttpUtils {
 				post.addHeader(key, headers.get(key));
 			}
 		}
-		return worker.work(client.execute(post).getEntity().getContent());
+		return work(worker, client.execute(post).getEntity());
 	}
 
 	/**
@@ -259,7 +298,7 @@ public class HttpUtils {
 			final int readTimeout) throws IOException {
 		DURL u = new DURL(url);
 		LOG.debug("Sending HTTP POST against {}", url);
-		DefaultHttpClient client = enableProxyUsage(new DefaultHttpClient(), u);
+		DefaultHttpClient client = enableProxyUsage(createClient(), u);
 		client.setKeepAliveStrategy(new DefaultConnectionKeepAliveStrategy() {
 			@Override
 			public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
@@ -284,7 +323,7 @@ public class HttpUtils {
 		}
 		HttpEntity entity = client.execute(post).getEntity();
 		LOG.debug("Received response with content type {}", entity.getContentType());
-		return worker.work(entity.getContent());
+		return work(worker, entity);
 	}
 
 	/**
@@ -301,7 +340,7 @@ public class HttpUtils {
 			Map<String, String> headers, final int readTimeout) throws IOException {
 		DURL u = new DURL(url);
 		LOG.debug("Sending HTTP POST against {}", url);
-		DefaultHttpClient client = enableProxyUsage(new DefaultHttpClient(), u);
+		DefaultHttpClient client = enableProxyUsage(createClient(), u);
 		client.setKeepAliveStrategy(new DefaultConnectionKeepAliveStrategy() {
 			@Override
 			public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
@@ -327,7 +366,7 @@ public class HttpUtils {
 		HttpResponse resp = client.execute(post);
 		HttpEntity entity = resp.getEntity();
 		LOG.debug("Received response with content type {}", entity.getContentType());
-		return new Pair<T, HttpResponse>(worker.work(entity.getContent()), resp);
+		return new Pair<T, HttpResponse>(work(worker, entity), resp);
 	}
 
 	private static void authenticate(DefaultHttpClient client, String user, String pass, DURL u) {
@@ -356,7 +395,7 @@ public class HttpUtils {
 	public static <T> T post(Worker<T> worker, String url, File postBody, Map<String, String> headers, String user,
 			String pass) throws IOException {
 		DURL u = new DURL(url);
-		DefaultHttpClient client = enableProxyUsage(new DefaultHttpClient(), u);
+		DefaultHttpClient client = enableProxyUsage(createClient(), u);
 		HttpPost post = new HttpPost(url);
 		if (user != null && pass != null) {
 			authenticate(client, user, pass, u);
@@ -367,7 +406,7 @@ public class HttpUtils {
 				post.addHeader(key, headers.get(key));
 			}
 		}
-		return worker.work(client.execute(post).getEntity().getContent());
+		return work(worker, client.execute(post).getEntity());
 	}
 
 	/**
@@ -404,7 +443,7 @@ public class HttpUtils {
 		if (!("http".equalsIgnoreCase(protocol) || "https".equalsIgnoreCase(protocol))) {
 			return worker.work(u.getURL().openStream());
 		}
-		DefaultHttpClient client = enableProxyUsage(new DefaultHttpClient(), u);
+		DefaultHttpClient client = enableProxyUsage(createClient(), u);
 		if (user != null && pass != null) {
 			authenticate(client, user, pass, u);
 		}
@@ -415,7 +454,7 @@ public class HttpUtils {
 			}
 		}
 
-		return worker.work(client.execute(get).getEntity().getContent());
+		return work(worker, client.execute(get).getEntity());
 	}
 
 	/**
@@ -435,7 +474,7 @@ public class HttpUtils {
 		if (!u.valid()) {
 			return null;
 		}
-		DefaultHttpClient client = enableProxyUsage(new DefaultHttpClient(), u);
+		DefaultHttpClient client = enableProxyUsage(createClient(), u);
 		if (user != null && pass != null) {
 			authenticate(client, user, pass, u);
 		}
@@ -446,7 +485,7 @@ public class HttpUtils {
 			}
 		}
 		HttpResponse response = client.execute(get);
-		return new Pair<T, HttpResponse>(worker.work(response.getEntity().getContent()), response);
+		return new Pair<T, HttpResponse>(work(worker, response.getEntity()), response);
 	}
 
 	public static void handleProxies(String protocol, DefaultHttpClient client, String host) {
@@ -509,7 +548,7 @@ public class HttpUtils {
 		if (!u.valid()) {
 			return null;
 		}
-		DefaultHttpClient client = enableProxyUsage(new DefaultHttpClient(), u);
+		DefaultHttpClient client = enableProxyUsage(createClient(), u);
 		client.setKeepAliveStrategy(new DefaultConnectionKeepAliveStrategy() {
 			@Override
 			public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
@@ -530,12 +569,13 @@ public class HttpUtils {
 			}
 		}
 		HttpResponse response = client.execute(get);
-		return new Pair<T, HttpResponse>(worker.work(response.getEntity().getContent()), response);
+		return new Pair<T, HttpResponse>(work(worker, response.getEntity()), response);
 	}
 
 	/**
 	 * reads proxyHost and proxyPort from system parameters and sets them to the passed
-	 * HttpClient instance
+	 * HttpClient instance, the timeouts are set as configured for the
+	 * {@link HttpConnectionPool}
 	 *
 	 * @see HttpClient
 	 * @param client
@@ -543,7 +583,8 @@ public class HttpUtils {
 	 * @return HttpClient with proxy configuration
 	 */
 	public static DefaultHttpClient enableProxyUsage(DefaultHttpClient client, DURL url) {
-		HttpConnectionParams.setConnectionTimeout(client.getParams(), DEFAULT_CONN_TIMEOUT);
+		HttpConnectionParams.setConnectionTimeout(client.getParams(), HttpConnectionPool.getConnectionTimeout());
+		HttpConnectionParams.setSoTimeout(client.getParams(), HttpConnectionPool.getReadTimeout());
 		client.setKeepAliveStrategy(new DefaultConnectionKeepAliveStrategy() {
 			@Override
 			public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
@@ -335,7 +335,7 @@ public class XMLAdapter {
 			throw new IllegalArgumentException("The given url may not be null");
 		}
 		try {
-			load(get(STREAM, url.toExternalForm(), null), url.toExternalForm());
+			loadCompletely(get(STREAM, url.toExternalForm(), null), url.toExternalForm());
 		}
 		catch (IOException e) {
 			throw new XMLProcessingException(e.getMessage(), e);
@@ -354,13 +354,32 @@ public class XMLAdapter {
 			throw new IllegalArgumentException("The given url may not be null");
 		}
 		try {
-			load(get(STREAM, url.toExternalForm(), null, httpBasicUser, httpBasicPass), url.toExternalForm());
+			loadCompletely(get(STREAM, url.toExternalForm(), null, httpBasicUser, httpBasicPass), url.toExternalForm());
 		}
 		catch (IOException e) {
 			throw new XMLProcessingException(e.getMessage(), e);
 		}
 	}
 
+	private void loadCompletely(InputStream is, String systemId) throws IOException {
+		try {
+			load(is, systemId);
+			if (rootElement != null) {
+				// the stream is closed afterwards, so the document must not be built lazily
+				rootElement.build();
+			}
+		}
+		catch (OMException e) {
+			throw new XMLProcessingException(e.getMessage(), e);
+		}
+		finally {
+			if (is != null) {
+				// returns the HTTP connection to the pool
+				is.close();
+			}
+		}
+	}
+
 	/**
 	 * Initializes this <code>XMLAdapter</code> with the content from the given
 	 * <code>InputStream</code>. Sets the SystemId, too.
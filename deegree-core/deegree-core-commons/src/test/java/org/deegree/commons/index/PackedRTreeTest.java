@@ -0,0 +1,186 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.commons.index;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.deegree.commons.utils.Pair;
+import org.junit.Test;
+
+/**
+ * Tests for {@link PackedRTree}.
+ */
+public class PackedRTreeTest {
+
+	@Test
+	public void testQueryMatchesLinearScan() {
+		Random random = new Random(42);
+		List<Pair<float[], Long>> items = createItems(random, 5000);
+		for (int nodeSize : new int[] { 2, 4, 16 }) {
+			PackedRTree<Long> tree = new PackedRTree<Long>(nodeSize);
+			tree.insertBulk(items);
+			assertEquals(items.size(), tree.size());
+			for (int i = 0; i < 100; i++) {
+				float[] env = createBox(random, 200);
+				assertEquals(scan(items, env), new HashSet<Long>(tree.query(env)));
+			}
+		}
+	}
+
+	@Test
+	public void testQueryLongs() {
+		Random random = new Random(42);
+		List<Pair<float[], Long>> items = createItems(random, 1000);
+		PackedRTree<Long> tree = new PackedRTree<Long>();
+		tree.insertBulk(items);
+		float[] env = createBox(random, 300);
+		long[] values = tree.queryLongs(env);
+		Set<Long> found = new HashSet<Long>();
+		for (long value : values) {
+			found.add(value);
+		}
+		assertEquals(values.length, found.size());
+		assertEquals(scan(items, env), found);
+	}
+
+	@Test
+	public void testQueryWithVisitorStops() {
+		PackedRTree<Long> tree = new PackedRTree<Long>();
+		tree.insertBulk(createItems(new Random(42), 1000));
+		final int[] visited = new int[1];
+		tree.query(null, new PackedRTree.LongVisitor() {
+			@Override
+			public boolean visit(long value) {
+				return ++visited[0] < 10;
+			}
+		});
+		assertEquals(10, visited[0]);
+	}
+
+	@Test
+	public void testObjectValues() {
+		List<Pair<float[], String>> items = new ArrayList<Pair<float[], String>>();
+		items.add(new Pair<float[], String>(new float[] { 0, 0, 1, 1 }, "a"));
+		items.add(new Pair<float[], String>(null, "b"));
+		items.add(new Pair<float[], String>(new float[] { 5, 5, 6, 6 }, "c"));
+		PackedRTree<String> tree = new PackedRTree<String>();
+		tree.insertBulk(items);
+		assertEquals(2, tree.size());
+		assertEquals(Arrays.asList("a"), tree.query(new float[] { 0.5f, 0.5f, 2, 2 }));
+		assertTrue(tree.query(new float[] { 2, 2, 3, 3 }).isEmpty());
+		assertArrayEquals(new float[] { 0, 0, 6, 6 }, tree.getEnvelope(), 0);
+	}
+
+	@Test
+	public void testEmptyTree() {
+		PackedRTree<Long> tree = new PackedRTree<Long>();
+		tree.insertBulk(new ArrayList<Pair<float[], Long>>());
+		assertTrue(tree.query(new float[] { 0, 0, 1, 1 }).isEmpty());
+		assertEquals(0, tree.queryLongs(null).length);
+	}
+
+	@Test
+	public void testFromStorage() throws IOException {
+		Random random = new Random(42);
+		List<Pair<float[], Long>> items = createItems(random, 3000);
+		PackedRTree<Long> tree = new PackedRTree<Long>();
+		tree.insertBulk(items);
+		tree.setExtraFlag(true);
+
+		File file = File.createTempFile("packedrtree", ".rti");
+		file.deleteOnExit();
+		tree.writeTreeToDisk(file.getCanonicalPath());
+
+		PackedRTree<Long> loaded = PackedRTree.loadFromDisk(file.getCanonicalPath());
+		assertTrue(loaded.getExtraFlag());
+		assertEquals(tree.size(), loaded.size());
+		for (int i = 0; i < 50; i++) {
+			float[] env = createBox(random, 200);
+			assertArrayEquals(tree.queryLongs(env), loaded.queryLongs(env));
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testLoadRejectsOtherFormat() throws IOException {
+		RTree<Long> rtree = new RTree<Long>(new float[] { 0, 0, 10, 10 }, 4);
+		rtree.insert(new float[] { 1, 1, 2, 2 }, 1L);
+		File file = File.createTempFile("rtree", ".rti");
+		file.deleteOnExit();
+		rtree.writeTreeToDisk(file.getCanonicalPath());
+		PackedRTree.loadFromDisk(file.getCanonicalPath());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testInsertNotSupported() {
+		new PackedRTree<Long>().insert(new float[] { 0, 0, 1, 1 }, 1L);
+	}
+
+	private static List<Pair<float[], Long>> createItems(Random random, int n) {
+		List<Pair<float[], Long>> items = new ArrayList<Pair<float[], Long>>(n);
+		for (int i = 0; i < n; i++) {
+			items.add(new Pair<float[], Long>(createBox(random, 20), (long) i));
+		}
+		return items;
+	}
+
+	private static float[] createBox(Random random, float maxSize) {
+		float x = random.nextFloat() * 1000;
+		float y = random.nextFloat() * 1000;
+		return new float[] { x, y, x + random.nextFloat() * maxSize, y + random.nextFloat() * maxSize };
+	}
+
+	private static Set<Long> scan(List<Pair<float[], Long>> items, float[] env) {
+		Set<Long> result = new HashSet<Long>();
+		for (Pair<float[], Long> item : items) {
+			float[] box = item.first;
+			if (box[0] <= env[2] && env[0] <= box[2] && box[1] <= env[3] && env[1] <= box[3]) {
+				result.add(item.second);
+			}
+		}
+		return result;
+	}
+
+}
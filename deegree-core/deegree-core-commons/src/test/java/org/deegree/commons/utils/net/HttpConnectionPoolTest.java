@@ -0,0 +1,154 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.commons.utils.net;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.deegree.commons.utils.net.HttpUtils.BUFFERED_STREAM;
+import static org.deegree.commons.utils.net.HttpUtils.STREAM;
+import static org.deegree.commons.utils.net.HttpUtils.UTF8STRING;
+import static org.deegree.commons.utils.net.HttpUtils.get;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.pool.PoolStats;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests for {@link HttpConnectionPool}.
+ */
+public class HttpConnectionPoolTest {
+
+	private static final byte[] CONTENT = "Hello deegree".getBytes(UTF_8);
+
+	private final Set<Integer> clientPorts = Collections.synchronizedSet(new HashSet<Integer>());
+
+	private HttpServer server;
+
+	private String url;
+
+	private HttpRoute route;
+
+	@Before
+	public void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/", exchange -> {
+			clientPorts.add(exchange.getRemoteAddress().getPort());
+			exchange.sendResponseHeaders(200, CONTENT.length);
+			try (OutputStream os = exchange.getResponseBody()) {
+				os.write(CONTENT);
+			}
+		});
+		server.start();
+		int port = server.getAddress().getPort();
+		url = "http://localhost:" + port + "/test";
+		route = new HttpRoute(new HttpHost("localhost", port, "http"));
+		HttpConnectionPool.configure(null);
+	}
+
+	@After
+	public void tearDown() {
+		server.stop(0);
+	}
+
+	@Test
+	public void testConnectionIsReused() throws IOException {
+		for (int i = 0; i < 3; i++) {
+			assertEquals("Hello deegree\n", get(UTF8STRING, url, null));
+		}
+		assertEquals(1, clientPorts.size());
+		assertStats(0, 1);
+	}
+
+	@Test
+	public void testStreamKeepsConnectionUntilClosed() throws IOException {
+		InputStream is = get(STREAM, url, null);
+		assertStats(1, 0);
+		is.close();
+		assertStats(0, 1);
+
+		try (InputStream in = get(STREAM, url, null)) {
+			assertEquals("Hello deegree", IOUtils.toString(in, UTF_8));
+		}
+		assertEquals(1, clientPorts.size());
+		assertStats(0, 1);
+	}
+
+	@Test
+	public void testBufferedStreamReleasesConnection() throws IOException {
+		InputStream is = get(BUFFERED_STREAM, url, null);
+		assertStats(0, 1);
+		assertEquals("Hello deegree", IOUtils.toString(is, UTF_8));
+	}
+
+	@Test
+	public void testCloseClientReleasesConnections() throws IOException {
+		DefaultHttpClient client = HttpConnectionPool.createClient();
+		HttpResponse first = client.execute(new HttpGet(url));
+		HttpResponse second = client.execute(new HttpGet(url));
+		assertEquals(200, first.getStatusLine().getStatusCode());
+		assertEquals(200, second.getStatusLine().getStatusCode());
+		assertStats(2, 0);
+		client.close();
+		assertStats(0, 2);
+
+		// the pool is still usable
+		assertEquals("Hello deegree\n", get(UTF8STRING, url, null));
+		assertStats(0, 2);
+	}
+
+	private void assertStats(int leased, int available) {
+		PoolStats stats = HttpConnectionPool.getStats(route);
+		assertEquals("leased connections", leased, stats.getLeased());
+		assertEquals("available connections", available, stats.getAvailable());
+	}
+
+}
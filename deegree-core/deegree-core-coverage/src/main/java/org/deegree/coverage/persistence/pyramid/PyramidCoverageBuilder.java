@@ -46,7 +46,10 @@ import static org.deegree.coverage.raster.io.RasterIOOptions.OPT_FORMAT;
 import static org.deegree.coverage.raster.utils.RasterBuilder.setNoDataValue;
 import it.geosolutions.imageioimpl.plugins.tiff.TIFFImageReader;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Iterator;
+import java.util.List;
 
 import javax.imageio.ImageIO;
 import javax.imageio.ImageReader;
@@ -58,6 +61,7 @@ import org.deegree.coverage.persistence.pyramid.jaxb.Pyramid;
 import org.deegree.coverage.raster.AbstractRaster;
 import org.deegree.coverage.raster.MultiResolutionRaster;
 import org.deegree.coverage.raster.io.RasterIOOptions;
+import org.deegree.coverage.raster.io.cog.CogReader;
 import org.deegree.coverage.raster.io.imageio.geotiff.GeoTiffIIOMetadataAdapter;
 import org.deegree.coverage.raster.utils.RasterFactory;
 import org.deegree.cs.coordinatesystems.ICRS;
@@ -90,6 +94,10 @@ public class PyramidCoverageBuilder implements ResourceBuilder<Coverage> {
 	@Override
 	public Coverage build() {
 		try {
+			File file = metadata.getLocation().resolveToFile(config.getPyramidFile());
+			if (new CogReader().canLoad(file)) {
+				return buildTiled(file);
+			}
 			Iterator<ImageReader> readers = ImageIO.getImageReadersBySuffix("tiff");
 			ImageReader reader = null;
 			while (readers.hasNext() && !(reader instanceof TIFFImageReader)) {
@@ -106,8 +114,7 @@ public class PyramidCoverageBuilder implements ResourceBuilder<Coverage> {
 			}
 
 			MultiResolutionRaster mrr = new MultiResolutionRaster(metadata);
-			String file = config.getPyramidFile();
-			ImageInputStream iis = ImageIO.createImageInputStream(metadata.getLocation().resolveToFile(file));
+			ImageInputStream iis = ImageIO.createImageInputStream(file);
 			reader.setInput(iis);
 			int num = reader.getNumImages(true);
 			if (crs == null) {
@@ -130,8 +137,7 @@ public class PyramidCoverageBuilder implements ResourceBuilder<Coverage> {
 					opts.add(RasterIOOptions.GEO_ORIGIN_LOCATION, config.getOriginLocation().toString().toUpperCase());
 				}
 
-				AbstractRaster raster = RasterFactory.loadRasterFromFile(metadata.getLocation().resolveToFile(file),
-						opts, metadata);
+				AbstractRaster raster = RasterFactory.loadRasterFromFile(file, opts, metadata);
 				setNoDataValue(raster, config.getNodata());
 				raster.setCoordinateSystem(crs);
 				mrr.addRaster(raster);
@@ -144,6 +150,41 @@ public class PyramidCoverageBuilder implements ResourceBuilder<Coverage> {
 		}
 	}
 
+	/**
+	 * Reads a tiled GeoTIFF and its overviews with the {@link CogReader}, which reads
+	 * only the tiles needed by a request.
+	 */
+	private Coverage buildTiled(File file) throws IOException {
+		RasterIOOptions opts = new RasterIOOptions();
+		if (config.getCRS() != null) {
+			opts.add(CRS, config.getCRS());
+		}
+		if (config.getOriginLocation() != null) {
+			opts.add(RasterIOOptions.GEO_ORIGIN_LOCATION, config.getOriginLocation().toString().toUpperCase());
+		}
+		List<AbstractRaster> rasters = CogReader.loadAll(file, opts, metadata);
+		ICRS crs = null;
+		if (config.getCRS() != null) {
+			crs = CRSManager.getCRSRef(config.getCRS());
+		}
+		else {
+			crs = rasters.get(0).getCoordinateSystem();
+		}
+		if (crs == null) {
+			throw new ResourceInitException("No CRS information could be read from GeoTIFF, and none was "
+					+ " configured. Please configure a CRS or add one to the GeoTIFF.");
+		}
+
+		MultiResolutionRaster mrr = new MultiResolutionRaster(metadata);
+		for (AbstractRaster raster : rasters) {
+			setNoDataValue(raster, config.getNodata());
+			raster.setCoordinateSystem(crs);
+			mrr.addRaster(raster);
+		}
+		mrr.setCoordinateSystem(crs);
+		return mrr;
+	}
+
 	private static ICRS getCRS(IIOMetadata metaData) {
 		GeoTiffIIOMetadataAdapter geoTIFFMetaData = new GeoTiffIIOMetadataAdapter(metaData);
 		try {
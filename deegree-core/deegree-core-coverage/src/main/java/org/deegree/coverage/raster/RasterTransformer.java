@@ -44,9 +44,8 @@ import javax.vecmath.Point3d;
 import org.deegree.coverage.raster.data.RasterData;
 import org.deegree.coverage.raster.geom.RasterGeoReference;
 import org.deegree.coverage.raster.geom.RasterRect;
-import org.deegree.coverage.raster.interpolation.Interpolation;
-import org.deegree.coverage.raster.interpolation.InterpolationFactory;
 import org.deegree.coverage.raster.interpolation.InterpolationType;
+import org.deegree.coverage.raster.interpolation.WarpResampler;
 import org.deegree.cs.CoordinateTransformer;
 import org.deegree.cs.Transformer;
 import org.deegree.cs.coordinatesystems.ICRS;
@@ -142,9 +141,6 @@ public class RasterTransformer extends Transformer {
 				srcData.setNoDataValue(backgroundValue);
 			}
 
-			// interpolation is needed.
-			Interpolation interpolation = InterpolationFactory.getInterpolation(interpolationType, srcData);
-
 			RasterRect rr = new RasterRect(0, 0, dstWidth, dstHeight);
 			RasterData dstData = srcData.createCompatibleWritableRasterData(rr, null);
 			RasterGeoReference dstREnv = RasterGeoReference
@@ -155,35 +151,12 @@ public class RasterTransformer extends Transformer {
 			// dstEnvelope. This function will map
 			// points from the source crs to the target crs very accurate.
 			WarpPolynomial warp = createWarp(dstWidth, dstHeight, srcCRS, srcREnv, dstREnv);
-			warpTransform(warp, interpolation, dstData);
+			WarpResampler.warp(warp, interpolationType, srcData, dstData);
 
 			return new SimpleRaster(dstData, dstEnvelope, dstREnv, null);
 		}
 	}
 
-	/**
-	 * @param warp
-	 * @param interpolation
-	 * @param dstData
-	 */
-	private void warpTransform(WarpPolynomial warp, Interpolation interpolation, RasterData dstData) {
-		byte[] pixel = new byte[dstData.getBands() * dstData.getDataType().getSize()];
-		float[] srcCoords = new float[dstData.getColumns() * 2];
-		for (int y = 0; y < dstData.getRows(); y++) {
-			// look-up the pixel positions in the source raster for every pixel in this
-			// row, the srcCoords will contain
-			// the x,y ([2n],[2n+1]) values in the source raster (defined in the native
-			// CRS) for this row of pixels.
-			warp.warpRect(0, y, dstData.getColumns(), 1, srcCoords);
-			for (int x = 0; x < dstData.getColumns(); x++) {
-				// get the interpolated pixel and set the value into the result raster
-				interpolation.getPixel(srcCoords[x * 2], srcCoords[x * 2 + 1], pixel);
-				dstData.setPixel(x, y, pixel);
-			}
-		}
-
-	}
-
 	/**
 	 * Create a new raster that contains all data we need for the transformation.
 	 * @throws IllegalArgumentException
@@ -42,6 +42,9 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 
 import org.deegree.commons.utils.FileUtils;
 import org.deegree.coverage.raster.data.info.RasterDataInfo;
@@ -108,6 +111,7 @@ public class CacheInfoFile extends GridMetaInfoFile {
 	}
 
 	/**
+	 * The info is written to a temporary file first, which replaces the given file.
 	 * @param metaInfo the file used as raster cache file, to write meta information for.
 	 * @param info the meta information on the raster cache file.
 	 * @throws IOException if the file could not be written.
@@ -116,14 +120,8 @@ public class CacheInfoFile extends GridMetaInfoFile {
 	public static void write(File metaInfo, CacheInfoFile info) throws IOException {
 
 		if (metaInfo != null) {
-			if (!metaInfo.exists()) {
-				boolean nFileCreated = metaInfo.createNewFile();
-				if (!nFileCreated) {
-					throw new IOException(
-							"Could not write cache info, because the file: " + metaInfo + " could not be created.");
-				}
-			}
-			PrintWriter writer = new PrintWriter(new FileWriter(metaInfo));
+			File tmp = new File(metaInfo.getParentFile(), metaInfo.getName() + ".tmp");
+			PrintWriter writer = new PrintWriter(new FileWriter(tmp));
 			GridMetaInfoFile.write(writer, info, null);
 
 			// original data size.
@@ -139,6 +137,17 @@ public class CacheInfoFile extends GridMetaInfoFile {
 			}
 			writer.flush();
 			writer.close();
+			if (writer.checkError()) {
+				tmp.delete();
+				throw new IOException("Could not write cache info to: " + tmp);
+			}
+			try {
+				Files.move(tmp.toPath(), metaInfo.toPath(), StandardCopyOption.ATOMIC_MOVE,
+						StandardCopyOption.REPLACE_EXISTING);
+			}
+			catch (AtomicMoveNotSupportedException e) {
+				Files.move(tmp.toPath(), metaInfo.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
 		}
 	}
 
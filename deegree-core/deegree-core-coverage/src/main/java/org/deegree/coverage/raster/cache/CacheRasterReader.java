@@ -45,10 +45,14 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import java.util.regex.Pattern;
 import org.deegree.commons.utils.FileUtils;
@@ -69,6 +73,13 @@ import org.slf4j.Logger;
 /**
  * The <code>CacheRasterReader</code> is a grid based caching mechanism for raster
  * readers.
+ * <p>
+ * Tiles which are in memory are returned without locking, loading a tile from the cache
+ * file or the cached reader and writing tiles to the cache file is serialized per reader.
+ * <p>
+ * If {@link RasterCache#DEF_RASTER_CACHE_MAPPED} is set, the cache file uses the
+ * {@link MappedTileFile} layout. Tiles on file are then read through memory mappings
+ * instead of being copied to the heap.
  *
  * @author <a href="mailto:bezema@lat-lon.de">Rutger Bezema</a>
  *
@@ -95,9 +106,13 @@ public class CacheRasterReader extends GridFileReader {
 
 	private GridWriter gridWriter;
 
-	private long lastReadAccess;
+	private MappedTileFile mappedFile;
 
-	private long inMemorySize;
+	private volatile long lastReadAccess;
+
+	private final AtomicLong inMemorySize = new AtomicLong();
+
+	private final AtomicBoolean registered = new AtomicBoolean();
 
 	private RasterCache cacheManager;
 
@@ -121,7 +136,13 @@ public class CacheRasterReader extends GridFileReader {
 							getTileRasterWidth(), getTileRasterHeight());
 					int key = getTileId(c, r);
 					TileEntry entry = new TileEntry(rect);
-					entry.setTileOnFile(tilesOnFile[r][c]);
+					if (mappedFile != null) {
+						// the index of the mapped file is written after the tiles.
+						entry.setTileOnFile(mappedFile.isWritten(key));
+					}
+					else {
+						entry.setTileOnFile(tilesOnFile[r][c]);
+					}
 					result.put(key, entry);
 				}
 			}
@@ -138,14 +159,7 @@ public class CacheRasterReader extends GridFileReader {
 			this.cacheManager = RasterCache.getInstance();
 		}
 		super.instantiate(readValues, cacheFile);
-		try {
-			this.gridWriter = new GridWriter(getTileColumns(), getTileRows(), getEnvelope(), getGeoReference(),
-					cacheFile, getRasterDataInfo());
-		}
-		catch (IOException e) {
-			LOG.warn("Could not create a cache file writer because: {}. Only in memory caching is enabled.",
-					e.getLocalizedMessage());
-		}
+		createCacheFileWriter(readValues, cacheFile);
 		tiles = instantiateTiles();
 	}
 
@@ -184,19 +198,35 @@ public class CacheRasterReader extends GridFileReader {
 		}
 		super.instantiate(readValues, cacheFile);
 		if (shouldUseCachefile) {
-			try {
-				LOG.debug("Writing to file: {}", cacheFile.getAbsolutePath());
-				this.gridWriter = new GridWriter(getTileColumns(), getTileRows(), getEnvelope(), getGeoReference(),
-						cacheFile, getRasterDataInfo());
-			}
-			catch (IOException e) {
-				LOG.warn("Could not create a cache file writer because: {}. Only in memory caching is enabled.",
-						e.getLocalizedMessage());
-			}
+			LOG.debug("Writing to file: {}", cacheFile.getAbsolutePath());
+			createCacheFileWriter(readValues, cacheFile);
 		}
 		tiles = instantiateTiles();
 	}
 
+	/**
+	 * Creates the mapped tile file or the grid writer for the cache file, an existing
+	 * cache file of the old layout is converted if the mapped layout is used.
+	 */
+	private void createCacheFileWriter(CacheInfoFile info, File cacheFile) {
+		if (RasterCache.isMappedFormat()) {
+			if (cacheFile.exists() && !MappedTileFile.isMappedTileFile(cacheFile)) {
+				MappedTileFile.migrate(cacheFile, info);
+			}
+			this.mappedFile = new MappedTileFile(cacheFile, getTileRows(), getTileColumns(), getTileRasterWidth(),
+					getTileRasterHeight(), sampleSize);
+			return;
+		}
+		try {
+			this.gridWriter = new GridWriter(getTileColumns(), getTileRows(), getEnvelope(), getGeoReference(),
+					cacheFile, getRasterDataInfo());
+		}
+		catch (IOException e) {
+			LOG.warn("Could not create a cache file writer because: {}. Only in memory caching is enabled.",
+					e.getLocalizedMessage());
+		}
+	}
+
 	/**
 	 * Create a cached raster from the given bytebuffer.
 	 * @param filledBuffer with values.
@@ -236,7 +266,7 @@ public class CacheRasterReader extends GridFileReader {
 						catch (IOException e) {
 							LOG.error("Could not create tile from buffer because: {}", e.getLocalizedMessage(), e);
 						}
-						this.inMemorySize += entry.setBuffer(entryBuffer);
+						this.inMemorySize.addAndGet(entry.setBuffer(entryBuffer));
 					}
 				}
 			}
@@ -327,11 +357,21 @@ public class CacheRasterReader extends GridFileReader {
 					}
 					for (int row = minCRmaxCR[1]; row < getTileRows() && row <= minCRmaxCR[3]; ++row) {
 						for (int col = minCRmaxCR[0]; col < getTileColumns() && col <= minCRmaxCR[2]; ++col) {
+							TileEntry entry = getEntry(col, row);
+							if (entry == null) {
+								continue;
+							}
 							leaveStreamOpen(true);
-							// getTileBuffer will get a read only (copy-of the
-							// tiles[row][col]) bytebuffer.
-							ByteBuffer tileBuffer = getTileBuffer(col, row);
-							copyValuesFromTile(col, row, intersection, tileBuffer, resultBuffer);
+							entry.retain();
+							try {
+								// getTileBuffer will get a read only (copy-of the
+								// tiles[row][col]) bytebuffer.
+								ByteBuffer tileBuffer = getTileBuffer(entry, col, row);
+								copyValuesFromTile(col, row, intersection, tileBuffer, resultBuffer);
+							}
+							finally {
+								entry.release();
+							}
 						}
 					}
 					leaveStreamOpen(false);
@@ -344,7 +384,8 @@ public class CacheRasterReader extends GridFileReader {
 
 	/**
 	 * Clears all memory buffers and deletes the cache file if requested. Note this method
-	 * will not write any data to the cachefile.
+	 * will not write any data to the cachefile. Tiles which are currently read keep their
+	 * memory buffer.
 	 * @param deleteCacheFile true if the cache file should be deleted as well.
 	 * @return the number of memory bytes freed up after cleaning.
 	 */
@@ -353,8 +394,14 @@ public class CacheRasterReader extends GridFileReader {
 		synchronized (LOCK) {
 			for (TileEntry entry : tiles.values()) {
 				if (entry != null) {
+					if (entry.isReferenced()) {
+						if (deleteCacheFile) {
+							entry.setTileOnFile(false);
+						}
+						continue;
+					}
 					long r = entry.clear(deleteCacheFile);
-					inMemorySize -= r;
+					inMemorySize.addAndGet(-r);
 					result += r;
 				}
 			}
@@ -373,6 +420,9 @@ public class CacheRasterReader extends GridFileReader {
 		boolean result = true;
 		synchronized (LOCK) {
 			super.dispose();
+			if (mappedFile != null) {
+				mappedFile.close();
+			}
 			File f = file();
 			if (f != null) {
 				if (f.exists() && f.isFile()) {
@@ -446,7 +496,22 @@ public class CacheRasterReader extends GridFileReader {
 	 *
 	 */
 	public long currentApproxMemory() {
-		return inMemorySize;
+		return inMemorySize.get();
+	}
+
+	/**
+	 * Marks this reader as known to the {@link RasterCache}.
+	 * @return true if the reader was not registered before.
+	 */
+	boolean register() {
+		return registered.compareAndSet(false, true);
+	}
+
+	/**
+	 * Marks this reader as no longer known to the {@link RasterCache}.
+	 */
+	void unregister() {
+		registered.set(false);
 	}
 
 	/**
@@ -475,12 +540,15 @@ public class CacheRasterReader extends GridFileReader {
 			super.dispose();
 		}
 		long result = 0;
-		if (gridWriter != null) {
+		if (canCreateCacheFile()) {
 			result = writeCache(true);
+			if (mappedFile != null) {
+				mappedFile.close();
+			}
 		}
 		else {
 			if (memoryBuffersAsWell) {
-				clear(false);
+				result = clear(false);
 			}
 		}
 		return result;
@@ -497,7 +565,45 @@ public class CacheRasterReader extends GridFileReader {
 	 * @return true if this reader can create a cachefile for it's in memory buffers.
 	 */
 	public boolean canCreateCacheFile() {
-		return gridWriter != null;
+		return gridWriter != null || mappedFile != null;
+	}
+
+	/**
+	 * Maps the tile covering exactly the given rectangle from a mapped cache file, the
+	 * tile data is not copied to the heap.
+	 * @param rect in raster coordinates of this reader
+	 * @return a copy on write mapping of the tile or <code>null</code> if the cache file
+	 * is not mapped, the rectangle is not a tile or the tile is not on file.
+	 */
+	public ByteBuffer mapTile(RasterRect rect) {
+		if (mappedFile == null || rect == null) {
+			return null;
+		}
+		int tileWidth = getTileRasterWidth();
+		int tileHeight = getTileRasterHeight();
+		if (rect.width != tileWidth || rect.height != tileHeight || rect.x % tileWidth != 0
+				|| rect.y % tileHeight != 0) {
+			return null;
+		}
+		int column = rect.x / tileWidth;
+		int row = rect.y / tileHeight;
+		if (column >= getTileColumns() || row >= getTileRows()) {
+			return null;
+		}
+		TileEntry entry = getEntry(column, row);
+		if (entry == null || !entry.isOnFile()) {
+			return null;
+		}
+		lastReadAccess = currentTimeMillis();
+		try {
+			ByteBuffer result = mappedFile.map(getTileId(column, row), true);
+			RasterCache.recordHit();
+			return result;
+		}
+		catch (IOException e) {
+			LOG.debug("Could not map tile {},{} of {}: {}", column, row, file(), e.getLocalizedMessage());
+			return null;
+		}
 	}
 
 	private String createId(int width, int height, RasterDataInfo rdi, RasterGeoReference geoRef) {
@@ -535,48 +641,74 @@ public class CacheRasterReader extends GridFileReader {
 
 	/**
 	 * Get a tile buffer from the cache, it will be read only.
+	 * @param entry of the tile
 	 * @param column
 	 * @param row
 	 */
-	private ByteBuffer getTileBuffer(int column, int row) {
-		ByteBuffer result = null;
-		TileEntry entry = getEntry(column, row);
-		if (entry != null) {
-
-			ByteBuffer entryBuffer = null;
-			synchronized (LOCK) {
-				entryBuffer = entry.getBuffer();
+	private ByteBuffer getTileBuffer(TileEntry entry, int column, int row) {
+		ByteBuffer entryBuffer = entry.getBuffer();
+		if (entryBuffer != null) {
+			RasterCache.recordHit();
+			return entryBuffer;
+		}
+		RasterCache.recordMiss();
+		if (mappedFile != null) {
+			entryBuffer = mapTile(entry, column, row);
+			if (entryBuffer != null) {
+				return entryBuffer;
 			}
-			if (entryBuffer == null) {
-				// allocation of the buffer should not be in the synchronized block, it
-				// may cause a dead lock with the
-				// raster cache.
-				entryBuffer = allocateTileBuffer(false, true);
+		}
+		// allocation of the buffer should not be in the synchronized block, it may cause
+		// a dead lock with the raster cache.
+		ByteBuffer allocated = allocateTileBuffer(false, true);
+		synchronized (LOCK) {
+			entryBuffer = entry.getBuffer();
+			if (entryBuffer != null) {
+				// another thread loaded the tile in the meantime.
+				RasterCache.releaseMemory(allocated.capacity());
+				return entryBuffer;
 			}
-
-			synchronized (LOCK) {
-				if (!entry.isInMemory()) {
-					// check the cache file
-					if (entry.isOnFile()) {
-						try {
-							entryBuffer = super.getTileData(column, row, entryBuffer);
-						}
-						catch (IOException e) {
-							// could not read from the tile, so get rid of the tilesOnFile
-							entry.setTileOnFile(false);
-						}
-					}
-					if (!entry.isOnFile()) {
-						// this can happen if the file could not be read from the cache
-						// file because of an IOException.
-						readTileFromReader(entry, entryBuffer);
-					}
-					this.inMemorySize += entry.setBuffer(entryBuffer);
+			entryBuffer = allocated;
+			// check the cache file
+			if (entry.isOnFile() && mappedFile == null) {
+				try {
+					entryBuffer = super.getTileData(column, row, entryBuffer);
+				}
+				catch (IOException e) {
+					// could not read from the tile, so get rid of the tilesOnFile
+					entry.setTileOnFile(false);
 				}
 			}
-			result = entryBuffer.asReadOnlyBuffer();
+			if (!entry.isOnFile()) {
+				// this can happen if the file could not be read from the cache file
+				// because of an IOException.
+				readTileFromReader(entry, entryBuffer);
+			}
+			this.inMemorySize.addAndGet(entry.setBuffer(entryBuffer));
+		}
+		return entryBuffer.asReadOnlyBuffer();
+	}
+
+	/**
+	 * Maps the tile from the mapped cache file, if it is on file.
+	 * @return a read only mapping of the tile or <code>null</code> if it is not on file.
+	 */
+	private ByteBuffer mapTile(TileEntry entry, int column, int row) {
+		synchronized (LOCK) {
+			ByteBuffer result = entry.getBuffer();
+			if (result != null || !entry.isOnFile()) {
+				return result;
+			}
+			try {
+				entry.setMappedBuffer(mappedFile.map(getTileId(column, row), false));
+			}
+			catch (IOException e) {
+				// could not map the tile, so get rid of the tilesOnFile
+				LOG.debug("Could not map tile {},{} of {}: {}", column, row, file(), e.getLocalizedMessage());
+				entry.setTileOnFile(false);
+			}
+			return entry.getBuffer();
 		}
-		return result;
 	}
 
 	/**
@@ -604,7 +736,7 @@ public class CacheRasterReader extends GridFileReader {
 						// if the result is the same instance, create a copy
 						LOG.debug("The rectangle did not fit, creating copy.");
 						src = ByteBuffer.allocate(tileBuffer.capacity());
-						this.inMemorySize += src.capacity();
+						this.inMemorySize.addAndGet(src.capacity());
 						tileBuffer.clear();
 						src.put(tileBuffer);
 					}
@@ -623,6 +755,9 @@ public class CacheRasterReader extends GridFileReader {
 	 *
 	 */
 	private long writeCache(boolean clearBuffer) {
+		if (mappedFile != null) {
+			return writeMappedCache(clearBuffer);
+		}
 		long freedUpMemory = 0;
 		if (gridWriter != null) {
 			synchronized (LOCK) {
@@ -664,9 +799,9 @@ public class CacheRasterReader extends GridFileReader {
 								}
 							}
 							if (clearBuffer) {
-								if (entry.isOnFile() && entry.isInMemory()) {
+								if (entry.isOnFile() && entry.isInMemory() && !entry.isReferenced()) {
 									long mem = entry.clear(false);
-									this.inMemorySize -= mem;
+									this.inMemorySize.addAndGet(-mem);
 									freedUpMemory += mem;
 								}
 							}
@@ -687,9 +822,59 @@ public class CacheRasterReader extends GridFileReader {
 		return freedUpMemory;
 	}
 
+	/**
+	 * Writes all in memory tiles which are not on file to the mapped cache file, they are
+	 * marked on file once all of them were committed.
+	 */
+	private long writeMappedCache(boolean clearBuffer) {
+		long freedUpMemory = 0;
+		synchronized (LOCK) {
+			List<TileEntry> written = new ArrayList<TileEntry>();
+			for (int row = 0; row < getTileRows(); ++row) {
+				for (int column = 0; column < getTileColumns(); ++column) {
+					TileEntry entry = getEntry(column, row);
+					if (entry != null && !entry.isOnFile() && entry.isInMemory()) {
+						try {
+							mappedFile.writeTile(getTileId(column, row), entry.getBuffer());
+							written.add(entry);
+						}
+						catch (IOException e) {
+							LOG.error("Exception occurred while writing tile to cache file: {}",
+									e.getLocalizedMessage());
+						}
+					}
+				}
+			}
+			if (!written.isEmpty()) {
+				try {
+					mappedFile.commit();
+					for (TileEntry entry : written) {
+						entry.setTileOnFile(true);
+					}
+					if (!writeCacheInfo()) {
+						LOG.debug("Could not write the info file of the raster cache file: {}.", file());
+					}
+				}
+				catch (IOException e) {
+					LOG.error("Exception occurred while committing tiles to cache file: {}", e.getLocalizedMessage());
+				}
+			}
+			if (clearBuffer) {
+				for (TileEntry entry : tiles.values()) {
+					if (entry.isOnFile() && entry.isInMemory() && !entry.isReferenced()) {
+						long mem = entry.clear(false);
+						this.inMemorySize.addAndGet(-mem);
+						freedUpMemory += mem;
+					}
+				}
+			}
+		}
+		return freedUpMemory;
+	}
+
 	private boolean writeCacheInfo() {
 		boolean result = false;
-		if (gridWriter != null && file() != null) {
+		if (canCreateCacheFile() && file() != null) {
 			File metaInfo = GridMetaInfoFile.fileNameFromOptions(file().getParent(), FileUtils.getFilename(file()),
 					null);
 			boolean[][] tilesOnFiles = new boolean[getTileRows()][getTileColumns()];
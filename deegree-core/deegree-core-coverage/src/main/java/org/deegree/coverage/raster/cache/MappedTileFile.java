@@ -0,0 +1,439 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.coverage.raster.cache;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.util.BitSet;
+
+import org.slf4j.Logger;
+
+/**
+ * A raster cache file which stores the tiles of a grid in fixed size blocks, which are
+ * read through memory mappings. The file starts with a versioned header followed by an
+ * index holding one byte for every tile, the tile blocks start at the next page
+ * boundary:
+ *
+ * <pre>
+ * int magic ('D3RC'), int version, int rows, int columns, int tileWidth, int tileHeight,
+ * int sampleSize, int reserved
+ * byte[rows * columns] index (1 if the tile block holds valid data)
+ * tile blocks, each aligned to 4096 bytes
+ * </pre>
+ *
+ * A new file is written completely to a temporary file and moved into place. Written
+ * tiles are only marked in the index after their data was forced to the disk, so a crash
+ * leaves at most some tiles unmarked, which are read from the original raster again.
+ * <p>
+ * Old cache files, which hold the tiles back to back without a header, can be converted
+ * with {@link #migrate(File, CacheInfoFile)}.
+ */
+class MappedTileFile {
+
+	private static final Logger LOG = getLogger(MappedTileFile.class);
+
+	/** 'D3RC' */
+	static final int MAGIC = 0x44335243;
+
+	/** The current version of the file layout. */
+	static final int VERSION = 1;
+
+	private static final int HEADER_SIZE = 32;
+
+	private static final int ALIGNMENT = 4096;
+
+	private final File file;
+
+	private final int rows;
+
+	private final int columns;
+
+	private final int tileWidth;
+
+	private final int tileHeight;
+
+	private final int sampleSize;
+
+	private final long bytesPerTile;
+
+	private final long blockSize;
+
+	private final long dataOffset;
+
+	private final Object LOCK = new Object();
+
+	private FileChannel channel;
+
+	// tiles marked in the index of the file
+	private BitSet written;
+
+	// tiles written since the last commit
+	private final BitSet pending = new BitSet();
+
+	/**
+	 * @param file to store the tiles in
+	 * @param rows of the grid
+	 * @param columns of the grid
+	 * @param tileWidth width of a tile in pixels
+	 * @param tileHeight height of a tile in pixels
+	 * @param sampleSize number of bytes of a pixel
+	 */
+	MappedTileFile(File file, int rows, int columns, int tileWidth, int tileHeight, int sampleSize) {
+		this.file = file;
+		this.rows = rows;
+		this.columns = columns;
+		this.tileWidth = tileWidth;
+		this.tileHeight = tileHeight;
+		this.sampleSize = sampleSize;
+		this.bytesPerTile = ((long) tileWidth) * tileHeight * sampleSize;
+		this.blockSize = align(bytesPerTile);
+		this.dataOffset = align(HEADER_SIZE + ((long) rows) * columns);
+	}
+
+	private static long align(long size) {
+		return ((size + ALIGNMENT - 1) / ALIGNMENT) * ALIGNMENT;
+	}
+
+	/**
+	 * @param file to check
+	 * @return true if the given file starts with the header of a mapped tile file (of any
+	 * version).
+	 */
+	static boolean isMappedTileFile(File file) {
+		if (file == null || !file.isFile() || file.length() < HEADER_SIZE) {
+			return false;
+		}
+		try (FileChannel ch = FileChannel.open(file.toPath(), READ)) {
+			ByteBuffer magic = ByteBuffer.allocate(4);
+			readFully(ch, magic, 0);
+			return magic.getInt(0) == MAGIC;
+		}
+		catch (IOException e) {
+			LOG.debug("Could not read the header of {}: {}", file, e.getLocalizedMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * @return the file the tiles are stored in.
+	 */
+	File getFile() {
+		return file;
+	}
+
+	/**
+	 * @param tileId of the tile
+	 * @return true if the tile is marked as written in the index of the file.
+	 */
+	boolean isWritten(int tileId) {
+		synchronized (LOCK) {
+			if (channel == null && !file.exists()) {
+				return false;
+			}
+			try {
+				ensureOpen();
+				return written.get(tileId);
+			}
+			catch (IOException e) {
+				LOG.warn("Could not open raster cache file {}: {}", file, e.getLocalizedMessage());
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Maps the block of the given tile.
+	 * @param tileId of the tile
+	 * @param copyOnWrite if true the mapping may be modified, without changing the file
+	 * (and other mappings), otherwise a read only mapping is returned.
+	 * @return the tile data, starting at position 0.
+	 * @throws IOException if the tile is not written or could not be mapped.
+	 */
+	ByteBuffer map(int tileId, boolean copyOnWrite) throws IOException {
+		synchronized (LOCK) {
+			ensureOpen();
+			if (!written.get(tileId)) {
+				throw new IOException("Tile " + tileId + " is not available in raster cache file " + file);
+			}
+			// mappings stay valid after the channel was closed.
+			return channel.map(copyOnWrite ? MapMode.PRIVATE : MapMode.READ_ONLY, tileOffset(tileId), bytesPerTile);
+		}
+	}
+
+	/**
+	 * Writes the data of a tile to its block, the tile is marked as written with the next
+	 * call to {@link #commit()}.
+	 * @param tileId of the tile
+	 * @param data of the tile, the bytes from 0 to the size of a tile are written.
+	 * @throws IOException
+	 */
+	void writeTile(int tileId, ByteBuffer data) throws IOException {
+		if (data.capacity() < bytesPerTile) {
+			throw new IOException("The tile buffer (" + data.capacity() + " bytes) is smaller than a tile ("
+					+ bytesPerTile + " bytes).");
+		}
+		ByteBuffer src = data.duplicate();
+		src.clear();
+		src.limit((int) bytesPerTile);
+		synchronized (LOCK) {
+			ensureOpen();
+			long pos = tileOffset(tileId);
+			while (src.hasRemaining()) {
+				pos += channel.write(src, pos);
+			}
+			pending.set(tileId);
+		}
+	}
+
+	/**
+	 * Forces all tiles written since the last commit to the disk and marks them in the
+	 * index.
+	 * @throws IOException
+	 */
+	void commit() throws IOException {
+		synchronized (LOCK) {
+			if (pending.isEmpty() || channel == null) {
+				return;
+			}
+			channel.force(false);
+			ByteBuffer one = ByteBuffer.allocate(1);
+			for (int id = pending.nextSetBit(0); id >= 0; id = pending.nextSetBit(id + 1)) {
+				one.clear();
+				one.put(0, (byte) 1);
+				channel.write(one, HEADER_SIZE + id);
+			}
+			channel.force(false);
+			written.or(pending);
+			pending.clear();
+		}
+	}
+
+	/**
+	 * Closes the file, tiles which were not committed are discarded. Existing mappings
+	 * stay valid.
+	 */
+	void close() {
+		synchronized (LOCK) {
+			pending.clear();
+			if (channel != null) {
+				try {
+					channel.close();
+				}
+				catch (IOException e) {
+					LOG.debug("Could not close raster cache file {}: {}", file, e.getLocalizedMessage());
+				}
+				channel = null;
+				written = null;
+			}
+		}
+	}
+
+	private long tileOffset(int tileId) {
+		return dataOffset + tileId * blockSize;
+	}
+
+	/**
+	 * Opens the file and reads the index, the file is (re)created if it does not exist or
+	 * its header does not match this grid.
+	 */
+	private void ensureOpen() throws IOException {
+		if (channel != null) {
+			return;
+		}
+		if (!file.exists() || !readHeader()) {
+			create();
+		}
+		channel = FileChannel.open(file.toPath(), READ, WRITE);
+		written = new BitSet(rows * columns);
+		ByteBuffer index = ByteBuffer.allocate(rows * columns);
+		readFully(channel, index, HEADER_SIZE);
+		for (int i = 0; i < index.capacity(); ++i) {
+			if (index.get(i) == 1) {
+				written.set(i);
+			}
+		}
+	}
+
+	/**
+	 * @return true if the header of the existing file matches the layout of this grid.
+	 */
+	private boolean readHeader() {
+		if (file.length() < dataOffset) {
+			LOG.debug("Raster cache file {} is too small for the header, recreating it.", file);
+			return false;
+		}
+		try (FileChannel ch = FileChannel.open(file.toPath(), READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			readFully(ch, header, 0);
+			if (header.getInt(0) != MAGIC) {
+				LOG.info("Raster cache file {} has an unknown format, recreating it.", file);
+				return false;
+			}
+			int version = header.getInt(4);
+			if (version != VERSION) {
+				LOG.info("Raster cache file {} has version {} (current is {}), recreating it.", file, version,
+						VERSION);
+				return false;
+			}
+			boolean matches = header.getInt(8) == rows && header.getInt(12) == columns
+					&& header.getInt(16) == tileWidth && header.getInt(20) == tileHeight
+					&& header.getInt(24) == sampleSize;
+			if (!matches) {
+				LOG.info("The grid of raster cache file {} does not match the raster, recreating it.", file);
+			}
+			return matches;
+		}
+		catch (IOException e) {
+			LOG.warn("Could not read the header of raster cache file {}: {}", file, e.getLocalizedMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * Writes a new file with an empty index to a temporary file and moves it into place.
+	 */
+	private void create() throws IOException {
+		File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+		Files.deleteIfExists(tmp.toPath());
+		try (FileChannel ch = FileChannel.open(tmp.toPath(), CREATE_NEW, WRITE)) {
+			ByteBuffer header = ByteBuffer.allocate((int) dataOffset);
+			header.putInt(MAGIC).putInt(VERSION).putInt(rows).putInt(columns).putInt(tileWidth).putInt(tileHeight);
+			header.putInt(sampleSize).putInt(0);
+			header.clear();
+			long pos = 0;
+			while (header.hasRemaining()) {
+				pos += ch.write(header, pos);
+			}
+			ch.force(true);
+		}
+		move(tmp, file);
+	}
+
+	private static void move(File source, File target) throws IOException {
+		try {
+			Files.move(source.toPath(), target.toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+		}
+		catch (AtomicMoveNotSupportedException e) {
+			Files.move(source.toPath(), target.toPath(), REPLACE_EXISTING);
+		}
+	}
+
+	private static void readFully(FileChannel ch, ByteBuffer dst, long position) throws IOException {
+		long pos = position;
+		while (dst.hasRemaining()) {
+			int read = ch.read(dst, pos);
+			if (read < 0) {
+				throw new IOException("Unexpected end of file.");
+			}
+			pos += read;
+		}
+	}
+
+	/**
+	 * Converts a raster cache file of the old layout (the tiles back to back, without a
+	 * header) into a mapped tile file. The tiles marked on file in the given info are
+	 * copied to a temporary file, which replaces the old file.
+	 * @param cacheFile the old raster cache file
+	 * @param info of the cache file
+	 * @return true if the file was converted, false if it was no old raster cache file or
+	 * the conversion failed.
+	 */
+	static boolean migrate(File cacheFile, CacheInfoFile info) {
+		if (cacheFile == null || !cacheFile.isFile() || info == null || isMappedTileFile(cacheFile)) {
+			return false;
+		}
+		int sampleSize = info.getDataInfo().getDataType().getSize() * info.getDataInfo().bands();
+		File tmp = new File(cacheFile.getParentFile(), cacheFile.getName() + ".migrate");
+		MappedTileFile target = new MappedTileFile(tmp, info.rows(), info.columns(), info.getTileRasterWidth(),
+				info.getTileRasterHeight(), sampleSize);
+		boolean[][] tilesOnFile = info.getTilesOnFile();
+		try (FileChannel old = FileChannel.open(cacheFile.toPath(), READ)) {
+			Files.deleteIfExists(tmp.toPath());
+			ByteBuffer tile = ByteBuffer.allocate((int) target.bytesPerTile);
+			long oldLength = old.size();
+			for (int row = 0; tilesOnFile != null && row < tilesOnFile.length && row < info.rows(); ++row) {
+				for (int col = 0; col < tilesOnFile[row].length && col < info.columns(); ++col) {
+					int tileId = row * info.columns() + col;
+					long oldPos = tileId * target.bytesPerTile;
+					if (tilesOnFile[row][col] && oldPos + target.bytesPerTile <= oldLength) {
+						tile.clear();
+						readFully(old, tile, oldPos);
+						target.writeTile(tileId, tile);
+					}
+				}
+			}
+			target.ensureOpenForMigration();
+			target.commit();
+		}
+		catch (IOException e) {
+			LOG.warn("Could not convert raster cache file {} to the mapped layout: {}", cacheFile,
+					e.getLocalizedMessage());
+			target.close();
+			tmp.delete();
+			return false;
+		}
+		target.close();
+		try {
+			move(tmp, cacheFile);
+		}
+		catch (IOException e) {
+			LOG.warn("Could not replace raster cache file {} with its converted version: {}", cacheFile,
+					e.getLocalizedMessage());
+			tmp.delete();
+			return false;
+		}
+		LOG.info("Converted raster cache file {} to the mapped layout.", cacheFile);
+		return true;
+	}
+
+	private void ensureOpenForMigration() throws IOException {
+		synchronized (LOCK) {
+			ensureOpen();
+		}
+	}
+
+}
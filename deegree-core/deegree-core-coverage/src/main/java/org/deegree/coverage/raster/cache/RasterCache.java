@@ -40,15 +40,20 @@ package org.deegree.coverage.raster.cache;
 import static org.slf4j.LoggerFactory.getLogger;
 
 import java.io.File;
-import java.io.Serializable;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
-import java.util.SortedSet;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.deegree.commons.utils.FileUtils;
 import org.deegree.commons.utils.StringUtils;
@@ -69,6 +74,14 @@ import org.slf4j.Logger;
  * <p>
  * The RasterCache memory size and the amount of disk space can be set by adding the keys
  * {@link #DEF_RASTER_CACHE_MEM_SIZE} and {@link #DEF_RASTER_CACHE_DISK_SIZE} to the JVM.
+ * <p>
+ * The used memory and disk space are kept in atomic counters, allocating cache memory
+ * does not lock. If the memory budget is exceeded the least recently read readers are
+ * written to their cache files (or cleared) by a background thread, the allocating thread
+ * only evicts by itself if the used memory grows beyond {@link #HARD_LIMIT_FACTOR} times
+ * the budget. Setting {@link #DEF_RASTER_CACHE_ASYNC_EVICTION} to <code>false</code>
+ * evicts on the allocating thread only. Cache hits, misses and the cost of evictions are
+ * counted.
  *
  * @author <a href="mailto:bezema@lat-lon.de">Rutger Bezema</a>
  *
@@ -94,16 +107,47 @@ public class RasterCache {
 	 */
 	public static final String DEF_RASTER_CACHE_DISK_SIZE = "deegree.raster.cache.disksize";
 
-	private static long maxCacheMem;
+	/**
+	 * A key which can be given to the JVM to disable the eviction on a background thread
+	 * (true/false, default is true).
+	 */
+	public static final String DEF_RASTER_CACHE_ASYNC_EVICTION = "deegree.raster.cache.asynceviction";
 
-	private static long maxCacheDisk;
+	/**
+	 * A key which can be given to the JVM to store cache files in the memory mapped
+	 * layout of {@link MappedTileFile} (true/false, default is false). Existing cache
+	 * files are converted when they are opened.
+	 */
+	public static final String DEF_RASTER_CACHE_MAPPED = "deegree.raster.cache.mapped";
+
+	/**
+	 * If the used memory exceeds the memory budget times this factor, the allocating
+	 * thread evicts memory by itself instead of waiting for the background eviction.
+	 */
+	public static final double HARD_LIMIT_FACTOR = 1.25;
+
+	private static volatile long maxCacheMem;
+
+	private static volatile long maxCacheDisk;
+
+	private static volatile boolean asyncEviction;
+
+	private static volatile boolean mappedFormat;
 
 	/**
 	 * Standard name for a deegree cache file.
 	 */
 	public static final String FILE_EXTENSION = ".d3rcache";
 
-	private static final Object MEM_LOCK = new Object();
+	private static final ReentrantLock EVICTION_LOCK = new ReentrantLock();
+
+	private static final AtomicBoolean evictionScheduled = new AtomicBoolean();
+
+	private static final ExecutorService EVICTOR = Executors.newSingleThreadExecutor(r -> {
+		Thread t = new Thread(r, "raster-cache-eviction");
+		t.setDaemon(true);
+		return t;
+	});
 
 	private static final Object CURRENT_CACHE_LOCK = new Object();
 
@@ -111,12 +155,21 @@ public class RasterCache {
 
 	private final File cacheDir;
 
-	private static long currentlyUsedMemory = 0;
+	private static final AtomicLong currentlyUsedMemory = new AtomicLong();
+
+	private static final AtomicLong currentlyUsedDisk = new AtomicLong();
+
+	private final static ConcurrentLinkedQueue<CacheRasterReader> cache = new ConcurrentLinkedQueue<CacheRasterReader>();
+
+	private static final LongAdder hits = new LongAdder();
 
-	private static long currentlyUsedDisk = 0;
+	private static final LongAdder misses = new LongAdder();
 
-	private final static ConcurrentSkipListSet<CacheRasterReader> cache = new ConcurrentSkipListSet<CacheRasterReader>(
-			new CacheComparator());
+	private static final LongAdder evictions = new LongAdder();
+
+	private static final LongAdder evictedBytes = new LongAdder();
+
+	private static final LongAdder evictionNanos = new LongAdder();
 
 	private final static Map<String, String> uniqueRasterCacheIds = new HashMap<String, String>();
 
@@ -129,7 +182,8 @@ public class RasterCache {
 	 * {@link #DEF_RASTER_CACHE_MEM_SIZE} properties in the JVM.
 	 */
 	private static void evaluateProperties() {
-		synchronized (MEM_LOCK) {
+		EVICTION_LOCK.lock();
+		try {
 			String cacheSize = TunableParameter.get(DEF_RASTER_CACHE_MEM_SIZE, (String) null);
 			long mm = StringUtils.parseByteSize(cacheSize);
 			if (mm == 0) {
@@ -166,12 +220,14 @@ public class RasterCache {
 						(mm / (1024 * 1024)) + "Mb", DEF_RASTER_CACHE_DISK_SIZE);
 			}
 			maxCacheDisk = mm;
+			asyncEviction = TunableParameter.get(DEF_RASTER_CACHE_ASYNC_EVICTION, true);
+			mappedFormat = TunableParameter.get(DEF_RASTER_CACHE_MAPPED, false);
+		}
+		finally {
+			EVICTION_LOCK.unlock();
 		}
 	}
 
-	// private final static TreeSet<CacheRasterReader> cache = new
-	// TreeSet<CacheRasterReader>( new CacheComparator() );
-
 	private RasterCache(File cacheDir) {
 		this.cacheDir = cacheDir;
 	}
@@ -273,14 +329,86 @@ public class RasterCache {
 	 * @return the currentlyUsedMemory
 	 */
 	public static final long getCurrentlyUsedMemory() {
-		return currentlyUsedMemory;
+		return currentlyUsedMemory.get();
 	}
 
 	/**
 	 * @return the currentlyUsedDisk
 	 */
 	public static final long getCurrentlyUsedDisk() {
-		return currentlyUsedDisk;
+		return currentlyUsedDisk.get();
+	}
+
+	/**
+	 * @return true if cache files are written in the memory mapped layout.
+	 */
+	public static boolean isMappedFormat() {
+		return mappedFormat;
+	}
+
+	/**
+	 * @return number of tile reads which were served from memory
+	 */
+	public static long getHitCount() {
+		return hits.sum();
+	}
+
+	/**
+	 * @return number of tile reads which had to load the tile from a cache file or the
+	 * original raster
+	 */
+	public static long getMissCount() {
+		return misses.sum();
+	}
+
+	/**
+	 * @return ratio of tile reads served from memory, 0 if nothing was read
+	 */
+	public static double getHitRate() {
+		long h = hits.sum();
+		long total = h + misses.sum();
+		return total == 0 ? 0 : ((double) h) / total;
+	}
+
+	/**
+	 * @return number of eviction runs
+	 */
+	public static long getEvictionCount() {
+		return evictions.sum();
+	}
+
+	/**
+	 * @return number of memory bytes freed by evictions
+	 */
+	public static long getEvictedBytes() {
+		return evictedBytes.sum();
+	}
+
+	/**
+	 * @return average duration of an eviction run in milliseconds
+	 */
+	public static double getAverageEvictionTime() {
+		long runs = evictions.sum();
+		return runs == 0 ? 0 : evictionNanos.sum() / 1000000.0 / runs;
+	}
+
+	/**
+	 * @return a summary of the current usage and the hit and eviction statistics
+	 */
+	public static String getStatistics() {
+		return "RasterCache {memory=" + currentlyUsedMemory.get() + "/" + maxCacheMem + ", disk="
+				+ currentlyUsedDisk.get() + "/" + maxCacheDisk + ", hits=" + getHitCount() + ", misses="
+				+ getMissCount() + ", hitRate=" + getHitRate() + ", evictions=" + getEvictionCount()
+				+ ", evictedBytes=" + getEvictedBytes() + ", averageEvictionTime=" + getAverageEvictionTime()
+				+ "ms}";
+	}
+
+	static void recordHit() {
+		hits.increment();
+	}
+
+	static void recordMiss() {
+		misses.increment();
 	}
 
 	/**
@@ -299,17 +427,33 @@ public class RasterCache {
 	 *
 	 */
 	public static void clear(boolean deleteCacheFiles) {
-		synchronized (MEM_LOCK) {
+		EVICTION_LOCK.lock();
+		try {
+			// memory reserved by concurrent reads is not held by the readers yet, so only
+			// the memory and disk space of the removed readers is subtracted
+			long mem = 0;
+			long onDisk = 0;
 			Iterator<CacheRasterReader> it = cache.iterator();
 			while (it != null && it.hasNext()) {
 				CacheRasterReader next = it.next();
 				if (next != null) {
+					mem += next.currentApproxMemory();
+					onDisk += next.cacheFileSize();
 					next.clear(deleteCacheFiles);
+					next.unregister();
 				}
 			}
 			cache.clear();
-			currentlyUsedMemory = 0;
-			currentlyUsedDisk = 0;
+			currentlyUsedMemory.addAndGet(-mem);
+			currentlyUsedDisk.addAndGet(-onDisk);
+			hits.reset();
+			misses.reset();
+			evictions.reset();
+			evictedBytes.reset();
+			evictionNanos.reset();
+		}
+		finally {
+			EVICTION_LOCK.unlock();
 		}
 		synchronized (CURRENT_CACHE_LOCK) {
 			if (deleteCacheFiles && currentCaches.values() != null) {
@@ -340,13 +484,11 @@ public class RasterCache {
 	 * rasters alone.
 	 */
 	public static void flush() {
-		synchronized (MEM_LOCK) {
-			Iterator<CacheRasterReader> it = cache.iterator();
-			while (it != null && it.hasNext()) {
-				CacheRasterReader next = it.next();
-				if (next != null) {
-					next.flush();
-				}
+		Iterator<CacheRasterReader> it = cache.iterator();
+		while (it != null && it.hasNext()) {
+			CacheRasterReader next = it.next();
+			if (next != null) {
+				next.flush();
 			}
 		}
 	}
@@ -355,7 +497,8 @@ public class RasterCache {
 	 * Iterates over all current cache directories and calls dispose on their cache files.
 	 */
 	public static void dispose() {
-		synchronized (MEM_LOCK) {
+		EVICTION_LOCK.lock();
+		try {
 			Iterator<CacheRasterReader> it = cache.iterator();
 			long allocatedMem = 0;
 			int i = 1;
@@ -370,6 +513,9 @@ public class RasterCache {
 			LOG.debug("Disposing allocated {} MB on the heap.",
 					(Math.round((allocatedMem / (1024 * 1024d)) * 100d) / 100d));
 		}
+		finally {
+			EVICTION_LOCK.unlock();
+		}
 	}
 
 	/**
@@ -377,112 +523,181 @@ public class RasterCache {
 	 * by rasters can be returned to running process. Note this method does not actually
 	 * write the cache files, it merely signals the {@link CacheRasterReader}s to write
 	 * their data to file if they have a file to write to. It may well be that the
-	 * required memory can not be freed.
+	 * required memory can not be freed. If the eviction runs asynchronously, this method
+	 * returns before memory was freed.
 	 * @param requiredMemory some process may need.
 	 * @return the amount of currently used cache memory, which is only an approximation.
 	 */
 	public static long freeMemory(long requiredMemory) {
-		synchronized (MEM_LOCK) {
-			LOG.debug("Currently used cache memory:{} MB, totalCacheMemory:{} MB", currentlyUsedMemory / (1024d * 1024),
+		long used = currentlyUsedMemory.addAndGet(requiredMemory);
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("Currently used cache memory:{} MB, totalCacheMemory:{} MB", used / (1024d * 1024),
 					maxCacheMem / (1024d * 1024));
-			if (currentlyUsedMemory + requiredMemory > maxCacheMem) {
-				disposeMemory(requiredMemory);
+		}
+		if (used > maxCacheMem) {
+			if (!asyncEviction || used > maxCacheMem * HARD_LIMIT_FACTOR) {
+				EVICTION_LOCK.lock();
+				try {
+					disposeMemory(requiredMemory);
+				}
+				finally {
+					EVICTION_LOCK.unlock();
+				}
 			}
-			currentlyUsedMemory += requiredMemory;
-		}
-
-		return currentlyUsedMemory;
-	}
-
-	private static void disposeMemory(long requiredMemory) {
-		synchronized (MEM_LOCK) {
-			if (currentlyUsedMemory + requiredMemory > maxCacheMem) {
-				// make a copy, to reflect the last read access.
-				SortedSet<CacheRasterReader> sort = new ConcurrentSkipListSet<CacheRasterReader>(cache);
-				Iterator<CacheRasterReader> it = sort.iterator();
-				if (it != null) {
-					final double halfMem = maxCacheMem * 0.5;
-					int readersConsidered = 0;
-					while (it.hasNext()) {
-						CacheRasterReader next = it.next();
-						if (next != null) {
-							++readersConsidered;
-							long onDisk = next.cacheFileSize();
-							if (currentlyUsedDisk > maxCacheDisk && onDisk > 0) {
-								// just delete the cache file and any in memory data from
-								// the least recently used cache
-								// file.
-								currentlyUsedMemory -= next.clear(true);
-								currentlyUsedDisk -= onDisk;
-							}
-							else {
-								long mem = next.currentApproxMemory();
-								if (mem > 0 && next.canCreateCacheFile()) {
-									currentlyUsedMemory -= next.dispose(false);
-									// add the new cache file size
-									currentlyUsedDisk += (next.cacheFileSize() - onDisk);
-								}
-								else if (mem > 0) {
-									currentlyUsedMemory -= next.dispose(true);
-								}
-							}
-						}
-						if (currentlyUsedMemory + requiredMemory < halfMem) {
-							break;
-						}
-					}
+			else {
+				scheduleEviction();
+			}
+		}
+		return currentlyUsedMemory.get();
+	}
+
+	/**
+	 * Returns memory which was requested with {@link #freeMemory(long)} but is not used
+	 * for caching.
+	 * @param memory no longer used.
+	 */
+	static void releaseMemory(long memory) {
+		currentlyUsedMemory.addAndGet(-memory);
+	}
 
-					if (currentlyUsedMemory > halfMem || readersConsidered > (cache.size() * 0.5)) {
-						// disposed more than half of the readers or could not get
-						// required memory..., update the real
-						// memory, it might well be the current values are invalid.
-						updateCurrentlyUsedSpace();
+	/**
+	 * Schedules an eviction on the background thread, if none is pending.
+	 */
+	private static void scheduleEviction() {
+		if (evictionScheduled.compareAndSet(false, true)) {
+			try {
+				EVICTOR.execute(() -> {
+					evictionScheduled.set(false);
+					EVICTION_LOCK.lock();
+					try {
+						disposeMemory(0);
 					}
-				}
+					catch (Exception e) {
+						LOG.warn("Evicting raster cache memory failed: {}", e.getLocalizedMessage());
+						LOG.trace("Stack trace:", e);
+					}
+					finally {
+						EVICTION_LOCK.unlock();
+					}
+				});
+			}
+			catch (RejectedExecutionException e) {
+				evictionScheduled.set(false);
+				LOG.debug("Could not schedule raster cache eviction: {}", e.getLocalizedMessage());
 			}
 		}
 	}
 
 	/**
-	 * Iterates over all known readers and (re) calculates their in memory data.
+	 * Frees memory of the least recently read readers until half of the memory budget is
+	 * reached. Must be called while holding the {@link #EVICTION_LOCK}.
+	 * @param pendingMemory memory which was requested by the calling thread but is not yet
+	 * held by a reader.
 	 */
-	private static void updateCurrentlyUsedSpace() {
-		synchronized (MEM_LOCK) {
-			LOG.debug("Updating estimation of in-memory cache.");
-			long cum = 0;
-			long onDisk = 0;
-			Iterator<CacheRasterReader> it = cache.iterator();
-			while (it != null && it.hasNext()) {
-				CacheRasterReader next = it.next();
-				if (next != null) {
-					cum += next.currentApproxMemory();
-					onDisk += next.cacheFileSize();
+	private static void disposeMemory(long pendingMemory) {
+		if (currentlyUsedMemory.get() <= maxCacheMem) {
+			return;
+		}
+		long start = System.nanoTime();
+		// snapshot the read access times, readers may still be read while evicting, so
+		// the order is only approximately the least recently used one.
+		final CacheRasterReader[] readers = cache.toArray(new CacheRasterReader[0]);
+		final long[] readAccess = new long[readers.length];
+		Integer[] order = new Integer[readers.length];
+		for (int i = 0; i < readers.length; ++i) {
+			readAccess[i] = readers[i].lastReadAccess();
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> Long.compare(readAccess[a], readAccess[b]));
+
+		final double halfMem = maxCacheMem * 0.5;
+		int readersConsidered = 0;
+		long freed = 0;
+		for (Integer i : order) {
+			CacheRasterReader next = readers[i];
+			++readersConsidered;
+			long onDisk = next.cacheFileSize();
+			long mem = 0;
+			if (currentlyUsedDisk.get() > maxCacheDisk && onDisk > 0) {
+				// just delete the cache file and any in memory data from the least
+				// recently used cache file.
+				mem = next.clear(true);
+				currentlyUsedDisk.addAndGet(-onDisk);
+			}
+			else if (next.currentApproxMemory() > 0) {
+				if (next.canCreateCacheFile()) {
+					mem = next.dispose(false);
+					// add the new cache file size
+					currentlyUsedDisk.addAndGet(next.cacheFileSize() - onDisk);
+				}
+				else {
+					mem = next.dispose(true);
 				}
 			}
-			LOG.debug("Resetting currently used memory from: {} to: {}", (currentlyUsedMemory / (1024 * 1024d)),
-					(cum / (1024 * 1024d)));
+			freed += mem;
+			if (currentlyUsedMemory.addAndGet(-mem) < halfMem) {
+				break;
+			}
+		}
 
-			LOG.debug("Resetting currently used space on disk from: {} to: {}", (currentlyUsedDisk / (1024 * 1024d)),
-					(onDisk / (1024 * 1024d)));
-			currentlyUsedMemory = cum;
-			currentlyUsedDisk = onDisk;
+		if (currentlyUsedMemory.get() > halfMem || readersConsidered > (readers.length * 0.5)) {
+			// disposed more than half of the readers or could not get required memory...,
+			// update the real memory, it might well be the current values are invalid.
+			updateCurrentlyUsedSpace(pendingMemory);
+		}
+		long elapsed = System.nanoTime() - start;
+		evictions.increment();
+		evictedBytes.add(freed);
+		evictionNanos.add(elapsed);
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("Evicted {} MB of {} readers in {} ms.", freed / (1024 * 1024d), readersConsidered,
+					elapsed / 1000000d);
 		}
 	}
 
+	/**
+	 * Iterates over all known readers and (re) calculates their in memory data. Must be
+	 * called while holding the {@link #EVICTION_LOCK}.
+	 * @param pendingMemory memory which was requested but is not yet held by a reader.
+	 */
+	private static void updateCurrentlyUsedSpace(long pendingMemory) {
+		LOG.debug("Updating estimation of in-memory cache.");
+		// reservations and new readers are added without holding the eviction lock, so the
+		// counters are corrected by the difference to the values at the start instead of
+		// being overwritten
+		long memBefore = currentlyUsedMemory.get();
+		long diskBefore = currentlyUsedDisk.get();
+		long cum = pendingMemory;
+		long onDisk = 0;
+		Iterator<CacheRasterReader> it = cache.iterator();
+		while (it != null && it.hasNext()) {
+			CacheRasterReader next = it.next();
+			if (next != null) {
+				cum += next.currentApproxMemory();
+				onDisk += next.cacheFileSize();
+			}
+		}
+		LOG.debug("Resetting currently used memory from: {} to: {}", (memBefore / (1024 * 1024d)),
+				(cum / (1024 * 1024d)));
+
+		LOG.debug("Resetting currently used space on disk from: {} to: {}", (diskBefore / (1024 * 1024d)),
+				(onDisk / (1024 * 1024d)));
+		currentlyUsedMemory.addAndGet(cum - memBefore);
+		currentlyUsedDisk.addAndGet(onDisk - diskBefore);
+	}
+
 	/**
 	 * Adds the reader to the global map
 	 * @param reader
 	 */
 	private static void addReader(CacheRasterReader reader) {
-		boolean added = false;
-		synchronized (MEM_LOCK) {
-			currentlyUsedMemory += reader.currentApproxMemory();
-			currentlyUsedDisk += reader.cacheFileSize();
-			added = cache.add(reader);
-		}
-		if (!added) {
+		if (!reader.register()) {
 			LOG.debug("Not adding reader ({}) to cache because it is already in the cache.", reader);
+			return;
 		}
+		currentlyUsedMemory.addAndGet(reader.currentApproxMemory());
+		currentlyUsedDisk.addAndGet(reader.cacheFileSize());
+		cache.add(reader);
 	}
 
 	/**
@@ -517,6 +732,24 @@ public class RasterCache {
 		return result;
 	}
 
+	/**
+	 * Converts all cache files of the old layout in the cache directory to the memory
+	 * mapped layout. Cache files which are currently in use should not be converted.
+	 * @return the number of converted cache files.
+	 */
+	public int migrateCacheDirectory() {
+		int converted = 0;
+		File[] files = cacheDir.listFiles((dir, name) -> name.endsWith(FILE_EXTENSION));
+		if (files != null) {
+			for (File f : files) {
+				if (!MappedTileFile.isMappedTileFile(f) && MappedTileFile.migrate(f, CacheInfoFile.read(f))) {
+					++converted;
+				}
+			}
+		}
+		return converted;
+	}
+
 	/**
 	 * Creates a unique cachefile for the given id, if the id already exists in the cache
 	 * directory an index will be appended. if the given id is <code>null</code> a uuid
@@ -573,35 +806,6 @@ public class RasterCache {
 		return result;
 	}
 
-	/**
-	 * The <code>CacheComparator</code> class compares two raster readers for their last
-	 * read access time.
-	 *
-	 * @author <a href="mailto:bezema@lat-lon.de">Rutger Bezema</a>
-	 *
-	 */
-	static class CacheComparator implements Comparator<CacheRasterReader>, Serializable {
-
-		/**
-		 * just for the Serializable
-		 */
-		private static final long serialVersionUID = 957737023397188332L;
-
-		@Override
-		public int compare(CacheRasterReader o1, CacheRasterReader o2) {
-			// rb: returning 0 will cause the above 'add' method to discard the new
-			// raster.
-			if (o1 == null) {
-				return -1;
-			}
-			if (o2 == null) {
-				return 1;
-			}
-			return o1.lastReadAccess() <= o2.lastReadAccess() ? -1 : 1;
-		}
-
-	}
-
 	/**
 	 * @return the directory used for caching.
 	 */
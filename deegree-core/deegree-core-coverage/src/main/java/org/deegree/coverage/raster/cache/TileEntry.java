@@ -35,25 +35,36 @@
 package org.deegree.coverage.raster.cache;
 
 import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.deegree.coverage.raster.geom.RasterRect;
 
 /**
  * A tile entry is one tile of a cached Raster. The cached raster is gridified, each grid
  * is a tile, represented by this class.
+ * <p>
+ * The state of a tile is only modified while holding the lock of the owning
+ * {@link CacheRasterReader}, but may be read without it. Readers copying data from the
+ * tile buffer hold a reference on the tile, referenced tiles are not evicted from memory.
  *
  * @author <a href="mailto:bezema@lat-lon.de">Rutger Bezema</a>
  */
 class TileEntry {
 
 	// the memory buffer containing the data of this buffer.
-	private ByteBuffer memoryTile;
+	private volatile ByteBuffer memoryTile;
+
+	// a mapping of the tile in a mapped cache file, not accounted as cache memory.
+	private volatile ByteBuffer mappedTile;
 
 	// time this tile was written to cache.
-	private long writtenToCache;
+	private volatile long writtenToCache;
 
 	// time this tile was read from the original raster
-	private long readFromOriginal;
+	private volatile long readFromOriginal;
+
+	// number of readers currently copying data from this tile
+	private final AtomicInteger references = new AtomicInteger();
 
 	private RasterRect rasterRect;
 
@@ -95,7 +106,40 @@ class TileEntry {
 	 * is available.
 	 */
 	public ByteBuffer getBuffer() {
-		return memoryTile == null ? null : memoryTile.asReadOnlyBuffer();
+		ByteBuffer tile = memoryTile;
+		if (tile == null) {
+			tile = mappedTile;
+		}
+		return tile == null ? null : tile.asReadOnlyBuffer();
+	}
+
+	/**
+	 * @param buffer a mapping of this tile in the cache file, may be <code>null</code>.
+	 */
+	public void setMappedBuffer(ByteBuffer buffer) {
+		this.mappedTile = buffer;
+	}
+
+	/**
+	 * Marks this tile as being read, it will not be evicted from memory until
+	 * {@link #release()} is called.
+	 */
+	public void retain() {
+		references.incrementAndGet();
+	}
+
+	/**
+	 * Signals that a reader no longer needs the memory buffer of this tile.
+	 */
+	public void release() {
+		references.decrementAndGet();
+	}
+
+	/**
+	 * @return true if a reader currently uses the memory buffer of this tile.
+	 */
+	public boolean isReferenced() {
+		return references.get() > 0;
 	}
 
 	/**
@@ -132,6 +176,9 @@ class TileEntry {
 	 */
 	public void setTileOnFile(boolean isOnFile) {
 		writtenToCache = isOnFile ? System.currentTimeMillis() : 0;
+		if (!isOnFile) {
+			mappedTile = null;
+		}
 	}
 
 	/**
@@ -147,6 +194,9 @@ class TileEntry {
 		memoryTile = null;
 		readFromOriginal = 0;
 		writtenToCache = clearFileTime ? 0 : writtenToCache;
+		if (clearFileTime) {
+			mappedTile = null;
+		}
 		return result;
 	}
 
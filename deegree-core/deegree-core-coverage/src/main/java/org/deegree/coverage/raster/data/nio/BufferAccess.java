@@ -43,6 +43,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 
 import org.deegree.coverage.raster.cache.ByteBufferPool;
+import org.deegree.coverage.raster.cache.CacheRasterReader;
 import org.deegree.coverage.raster.data.DataView;
 import org.deegree.coverage.raster.data.container.BufferResult;
 import org.deegree.coverage.raster.data.info.RasterDataInfo;
@@ -217,10 +218,17 @@ public class BufferAccess {
 
 	/**
 	 * Prepares the byte buffer for reading / writing thus instantiates it with values
-	 * (no) data;
+	 * (no) data; If the data is a tile of a memory mapped raster cache file, the mapping
+	 * is used instead of a heap buffer.
 	 */
 	public void prepareBuffer() {
 		synchronized (LOCK) {
+			if (data == null && reader instanceof CacheRasterReader) {
+				ByteBuffer mapped = ((CacheRasterReader) reader).mapTile(maxViewData);
+				if (mapped != null && mapped.capacity() == requiredBufferSize()) {
+					data = mapped;
+				}
+			}
 			if (data == null) {
 				data = ByteBufferPool.allocate(requiredBufferSize(), false);
 				boolean noData = false;
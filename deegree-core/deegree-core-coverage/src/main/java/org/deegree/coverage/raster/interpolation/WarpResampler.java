@@ -0,0 +1,480 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.coverage.raster.interpolation;
+
+import static org.deegree.coverage.raster.interpolation.InterpolationType.BILINEAR;
+import static org.deegree.coverage.raster.interpolation.InterpolationType.NEAREST_NEIGHBOR;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import javax.media.jai.WarpPolynomial;
+
+import org.deegree.coverage.raster.data.DataView;
+import org.deegree.coverage.raster.data.RasterData;
+import org.deegree.coverage.raster.data.info.DataType;
+import org.deegree.coverage.raster.data.nio.PixelInterleavedRasterData;
+
+/**
+ * Resamples raster data along a {@link WarpPolynomial} mapping destination to source
+ * raster coordinates.
+ * <p>
+ * Pixel interleaved raster data (with a view on all bands) is resampled by kernels
+ * specialised for the interpolation, data type and pixel size, which read and write the
+ * underlying byte buffers directly. The destination rows are split among the workers of
+ * the common fork/join pool. The kernels produce the same values as the corresponding
+ * {@link Interpolation} implementations. Other raster data is resampled pixel by pixel
+ * through an {@link Interpolation}, on the calling thread.
+ * </p>
+ *
+ * @see InterpolationFactory
+ */
+public class WarpResampler {
+
+	/** Below this number of destination pixels, no tasks are forked. */
+	private static final int PARALLEL_THRESHOLD = 64 * 1024;
+
+	private static final int MIN_ROWS_PER_TASK = 8;
+
+	private static final ThreadLocal<float[]> COORDS = ThreadLocal.withInitial(() -> new float[0]);
+
+	/**
+	 * Fills the destination raster data with the interpolated values of the source.
+	 * @param warp maps destination to source raster coordinates
+	 * @param type the interpolation to use
+	 * @param src the source raster data
+	 * @param dst the destination raster data, must have the bands and data type of the
+	 * source
+	 * @throws UnsupportedOperationException if the interpolation is not supported for the
+	 * data type of the source
+	 */
+	public static void warp(WarpPolynomial warp, InterpolationType type, RasterData src, RasterData dst) {
+		Kernel kernel = createKernel(type, src, dst);
+		if (kernel == null) {
+			warp(warp, InterpolationFactory.getInterpolation(type, src), dst);
+			return;
+		}
+		int rows = dst.getRows();
+		int cols = dst.getColumns();
+		if ((long) rows * cols < PARALLEL_THRESHOLD) {
+			new RowTask(warp, kernel, 0, rows, cols, rows).compute();
+			return;
+		}
+		int parallelism = ForkJoinPool.getCommonPoolParallelism();
+		int grain = Math.max(MIN_ROWS_PER_TASK, rows / (4 * parallelism));
+		ForkJoinPool.commonPool().invoke(new RowTask(warp, kernel, 0, rows, cols, grain));
+	}
+
+	/**
+	 * Fills the destination raster data pixel by pixel with the values of the given
+	 * interpolation.
+	 * @param warp maps destination to source raster coordinates
+	 * @param interpolation of the source raster data
+	 * @param dst the destination raster data
+	 */
+	public static void warp(WarpPolynomial warp, Interpolation interpolation, RasterData dst) {
+		byte[] pixel = new byte[dst.getBands() * dst.getDataType().getSize()];
+		float[] srcCoords = new float[dst.getColumns() * 2];
+		for (int y = 0; y < dst.getRows(); y++) {
+			// look-up the pixel positions in the source raster for every pixel in this
+			// row, the srcCoords will contain the x,y ([2n],[2n+1]) values in the
+			// source raster for this row of pixels.
+			warp.warpRect(0, y, dst.getColumns(), 1, srcCoords);
+			for (int x = 0; x < dst.getColumns(); x++) {
+				// get the interpolated pixel and set the value into the result raster
+				interpolation.getPixel(srcCoords[x * 2], srcCoords[x * 2 + 1], pixel);
+				dst.setPixel(x, y, pixel);
+			}
+		}
+	}
+
+	private static Kernel createKernel(InterpolationType type, RasterData src, RasterData dst) {
+		if (!isDirectlyAccessible(src) || !isDirectlyAccessible(dst) || src.getBands() != dst.getBands()
+				|| src.getDataType() != dst.getDataType()) {
+			return null;
+		}
+		PixelInterleavedRasterData s = (PixelInterleavedRasterData) src;
+		PixelInterleavedRasterData d = (PixelInterleavedRasterData) dst;
+		ByteBuffer srcBuf = s.getByteBuffer();
+		ByteBuffer dstBuf = d.getByteBuffer();
+		if (srcBuf == null || dstBuf == null || dstBuf.isReadOnly() || srcBuf.order() != ByteOrder.BIG_ENDIAN
+				|| dstBuf.order() != ByteOrder.BIG_ENDIAN) {
+			// the interpolations encode the samples big endian
+			return null;
+		}
+		if (type == NEAREST_NEIGHBOR) {
+			return new NearestNeighborKernel(s, d);
+		}
+		if (type == BILINEAR) {
+			switch (src.getDataType()) {
+				case BYTE:
+					return new BiLinearByteKernel(s, d);
+				case SHORT:
+					return new BiLinearShortKernel(s, d, false);
+				case USHORT:
+					return new BiLinearShortKernel(s, d, true);
+				case FLOAT:
+					return new BiLinearFloatKernel(s, d);
+				default:
+					return null;
+			}
+		}
+		return null;
+	}
+
+	private static boolean isDirectlyAccessible(RasterData data) {
+		if (!(data instanceof PixelInterleavedRasterData)) {
+			return false;
+		}
+		PixelInterleavedRasterData pi = (PixelInterleavedRasterData) data;
+		// views on a subset of the bands are mapped sample by sample
+		return pi.getView().dataInfo.bands == pi.getOriginalDataInfo().bands;
+	}
+
+	/**
+	 * Warps a range of destination rows, splitting it into subtasks as long as it is
+	 * larger than the grain.
+	 */
+	private static class RowTask extends RecursiveAction {
+
+		private static final long serialVersionUID = -2270455208233012722L;
+
+		private final transient WarpPolynomial warp;
+
+		private final transient Kernel kernel;
+
+		private final int start;
+
+		private final int end;
+
+		private final int cols;
+
+		private final int grain;
+
+		RowTask(WarpPolynomial warp, Kernel kernel, int start, int end, int cols, int grain) {
+			this.warp = warp;
+			this.kernel = kernel;
+			this.start = start;
+			this.end = end;
+			this.cols = cols;
+			this.grain = grain;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start > grain) {
+				int mid = (start + end) >>> 1;
+				invokeAll(new RowTask(warp, kernel, start, mid, cols, grain),
+						new RowTask(warp, kernel, mid, end, cols, grain));
+				return;
+			}
+			float[] coords = COORDS.get();
+			if (coords.length < cols * 2) {
+				coords = new float[cols * 2];
+				COORDS.set(coords);
+			}
+			for (int y = start; y < end; ++y) {
+				warp.warpRect(0, y, cols, 1, coords);
+				kernel.warpRow(y, cols, coords);
+			}
+		}
+
+	}
+
+	/**
+	 * Computes the pixels of a destination row.
+	 */
+	private abstract static class Kernel {
+
+		final PixelInterleavedRasterData src;
+
+		final PixelInterleavedRasterData dst;
+
+		final ByteBuffer srcBuf;
+
+		final ByteBuffer dstBuf;
+
+		final int bands;
+
+		final int pixelStride;
+
+		/** The pixel used by {@link RasterData#getNullPixel(byte[])} of the source. */
+		final byte[] nullPixel;
+
+		private final int viewX;
+
+		private final int viewY;
+
+		private final int width;
+
+		private final int height;
+
+		Kernel(PixelInterleavedRasterData src, PixelInterleavedRasterData dst) {
+			this.src = src;
+			this.dst = dst;
+			this.srcBuf = src.getByteBuffer();
+			this.dstBuf = dst.getByteBuffer();
+			this.bands = src.getBands();
+			this.pixelStride = src.getPixelStride();
+			this.nullPixel = src.getNullPixel(new byte[pixelStride]);
+			DataView view = src.getView();
+			this.viewX = view.x;
+			this.viewY = view.y;
+			this.width = src.getOriginalWidth();
+			this.height = src.getOriginalHeight();
+		}
+
+		abstract void warpRow(int y, int cols, float[] coords);
+
+		/**
+		 * @return <code>true</code> if the 2x2 window at the given position is inside the
+		 * source raster
+		 */
+		final boolean containsWindow(int x, int y) {
+			return viewX + x + 2 <= width && viewY + y + 2 <= height && viewX + x >= 0 && viewY + y >= 0;
+		}
+
+		final void putNullPixel(int pos) {
+			dstBuf.put(pos, nullPixel, 0, pixelStride);
+		}
+
+	}
+
+	/**
+	 * Copies the nearest source pixel, same as {@link NearestNeighborInterpolation}.
+	 */
+	private static class NearestNeighborKernel extends Kernel {
+
+		/** The pixel of the source for positions outside of its buffer. */
+		private final byte[] noDataPixel;
+
+		NearestNeighborKernel(PixelInterleavedRasterData src, PixelInterleavedRasterData dst) {
+			super(src, dst);
+			noDataPixel = src.getOriginalDataInfo().getNoDataPixel(new byte[pixelStride]);
+		}
+
+		@Override
+		void warpRow(int y, int cols, float[] coords) {
+			int limit = srcBuf.limit();
+			int dstPos = dst.calculatePos(0, y);
+			for (int x = 0; x < cols; ++x, dstPos += pixelStride) {
+				int pos = src.calculatePos((int) (coords[2 * x] + 0.5f), (int) (coords[2 * x + 1] + 0.5f));
+				if (pos == -1) {
+					dstBuf.put(dstPos, noDataPixel, 0, pixelStride);
+				}
+				else if (pos + pixelStride > limit) {
+					putNullPixel(dstPos);
+				}
+				else if (pixelStride == 1) {
+					dstBuf.put(dstPos, srcBuf.get(pos));
+				}
+				else if (pixelStride == 2) {
+					dstBuf.putShort(dstPos, srcBuf.getShort(pos));
+				}
+				else if (pixelStride == 4) {
+					dstBuf.putInt(dstPos, srcBuf.getInt(pos));
+				}
+				else {
+					dstBuf.put(dstPos, srcBuf, pos, pixelStride);
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * Same as {@link BiLinearByteInterpolation}.
+	 */
+	private static class BiLinearByteKernel extends Kernel {
+
+		private final byte[] noData;
+
+		BiLinearByteKernel(PixelInterleavedRasterData src, PixelInterleavedRasterData dst) {
+			super(src, dst);
+			noData = src.getView().dataInfo.noDataPixel;
+		}
+
+		@Override
+		void warpRow(int y, int cols, float[] coords) {
+			int dstPos = dst.calculatePos(0, y);
+			for (int x = 0; x < cols; ++x, dstPos += pixelStride) {
+				float sx = coords[2 * x];
+				float sy = coords[2 * x + 1];
+				int ix = (int) sx;
+				int iy = (int) sy;
+				if (!containsWindow(ix, iy)) {
+					putNullPixel(dstPos);
+					continue;
+				}
+				float xfrac = Math.abs(sx - ix);
+				float yfrac = Math.abs(sy - iy);
+				try {
+					for (int b = 0; b < bands; ++b) {
+						int w0 = sample(ix, iy, b) & 0xFF;
+						int w1 = sample(ix + 1, iy, b) & 0xFF;
+						int w2 = sample(ix, iy + 1, b) & 0xFF;
+						int w3 = sample(ix + 1, iy + 1, b) & 0xFF;
+						float h1 = w0 + (w1 - w0) * xfrac;
+						float h2 = w2 + (w3 - w2) * xfrac;
+						dstBuf.put(dstPos + b, (byte) (((char) (h1 + (h2 - h1) * yfrac)) & 0xFF));
+					}
+				}
+				catch (IndexOutOfBoundsException e) {
+					putNullPixel(dstPos);
+				}
+			}
+		}
+
+		private byte sample(int x, int y, int band) {
+			int pos = src.calculatePos(x, y, band);
+			return pos == -1 ? noData[band] : srcBuf.get(pos);
+		}
+
+	}
+
+	/**
+	 * Same as {@link BiLinearShortInterpolation}.
+	 */
+	private static class BiLinearShortKernel extends Kernel {
+
+		private final ByteBuffer noData;
+
+		private final boolean unsigned;
+
+		BiLinearShortKernel(PixelInterleavedRasterData src, PixelInterleavedRasterData dst, boolean unsigned) {
+			super(src, dst);
+			this.noData = ByteBuffer.wrap(src.getView().dataInfo.noDataPixel);
+			this.unsigned = unsigned;
+		}
+
+		@Override
+		void warpRow(int y, int cols, float[] coords) {
+			int dstPos = dst.calculatePos(0, y);
+			for (int x = 0; x < cols; ++x, dstPos += pixelStride) {
+				float sx = coords[2 * x];
+				float sy = coords[2 * x + 1];
+				int ix = (int) sx;
+				int iy = (int) sy;
+				if (!containsWindow(ix, iy)) {
+					putNullPixel(dstPos);
+					continue;
+				}
+				float xfrac = Math.abs(sx - ix);
+				float yfrac = Math.abs(sy - iy);
+				try {
+					for (int b = 0; b < bands; ++b) {
+						short w0 = sample(ix, iy, b);
+						short w1 = sample(ix + 1, iy, b);
+						short w2 = sample(ix, iy + 1, b);
+						short w3 = sample(ix + 1, iy + 1, b);
+						float h1;
+						float h2;
+						if (unsigned) {
+							h1 = (0xffff & w0) + ((0xffff & w1) - (0xffff & w0)) * xfrac;
+							h2 = (0xffff & w2) + ((0xffff & w3) - (0xffff & w2)) * xfrac;
+						}
+						else {
+							h1 = w0 + (w1 - w0) * xfrac;
+							h2 = w2 + (w3 - w2) * xfrac;
+						}
+						dstBuf.putShort(dstPos + 2 * b, (short) (h1 + (h2 - h1) * yfrac));
+					}
+				}
+				catch (IndexOutOfBoundsException e) {
+					putNullPixel(dstPos);
+				}
+			}
+		}
+
+		private short sample(int x, int y, int band) {
+			int pos = src.calculatePos(x, y, band);
+			return pos == -1 ? noData.getShort(2 * band) : srcBuf.getShort(pos);
+		}
+
+	}
+
+	/**
+	 * Same as {@link BiLinearFloatInterpolation}.
+	 */
+	private static class BiLinearFloatKernel extends Kernel {
+
+		private final ByteBuffer noData;
+
+		BiLinearFloatKernel(PixelInterleavedRasterData src, PixelInterleavedRasterData dst) {
+			super(src, dst);
+			this.noData = ByteBuffer.wrap(src.getView().dataInfo.noDataPixel);
+		}
+
+		@Override
+		void warpRow(int y, int cols, float[] coords) {
+			int dstPos = dst.calculatePos(0, y);
+			for (int x = 0; x < cols; ++x, dstPos += pixelStride) {
+				float sx = coords[2 * x];
+				float sy = coords[2 * x + 1];
+				int ix = (int) sx;
+				int iy = (int) sy;
+				if (!containsWindow(ix, iy)) {
+					putNullPixel(dstPos);
+					continue;
+				}
+				float xfrac = Math.abs(sx - ix);
+				float yfrac = Math.abs(sy - iy);
+				try {
+					for (int b = 0; b < bands; ++b) {
+						float w0 = sample(ix, iy, b);
+						float w1 = sample(ix + 1, iy, b);
+						float w2 = sample(ix, iy + 1, b);
+						float w3 = sample(ix + 1, iy + 1, b);
+						float h1 = w0 + (w1 - w0) * xfrac;
+						float h2 = w2 + (w3 - w2) * xfrac;
+						dstBuf.putFloat(dstPos + 4 * b, h1 + (h2 - h1) * yfrac);
+					}
+				}
+				catch (IndexOutOfBoundsException e) {
+					putNullPixel(dstPos);
+				}
+			}
+		}
+
+		private float sample(int x, int y, int band) {
+			int pos = src.calculatePos(x, y, band);
+			return pos == -1 ? noData.getFloat(4 * band) : srcBuf.getFloat(pos);
+		}
+
+	}
+
+}
@@ -0,0 +1,512 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.coverage.raster.io.cog;
+
+import static org.deegree.coverage.raster.geom.RasterGeoReference.OriginLocation.CENTER;
+import static org.deegree.coverage.raster.geom.RasterGeoReference.OriginLocation.OUTER;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.deegree.coverage.Coverage;
+import org.deegree.coverage.raster.AbstractRaster;
+import org.deegree.coverage.raster.MultiResolutionRaster;
+import org.deegree.coverage.raster.SimpleRaster;
+import org.deegree.coverage.raster.cache.ByteBufferPool;
+import org.deegree.coverage.raster.cache.RasterCache;
+import org.deegree.coverage.raster.data.container.BufferResult;
+import org.deegree.coverage.raster.data.info.DataType;
+import org.deegree.coverage.raster.data.info.InterleaveType;
+import org.deegree.coverage.raster.data.info.RasterDataInfo;
+import org.deegree.coverage.raster.geom.RasterGeoReference;
+import org.deegree.coverage.raster.geom.RasterGeoReference.OriginLocation;
+import org.deegree.coverage.raster.geom.RasterRect;
+import org.deegree.coverage.raster.io.RasterIOOptions;
+import org.deegree.coverage.raster.io.RasterReader;
+import org.deegree.coverage.raster.io.imageio.geotiff.GeoTiffKey;
+import org.deegree.coverage.raster.utils.RasterFactory;
+import org.deegree.cs.coordinatesystems.ICRS;
+import org.deegree.cs.exceptions.UnknownCRSException;
+import org.deegree.cs.persistence.CRSManager;
+import org.deegree.geometry.Envelope;
+import org.deegree.workspace.ResourceMetadata;
+import org.slf4j.Logger;
+
+/**
+ * Reader of tiled (Cloud Optimized) GeoTIFF files, which reads only the tiles
+ * intersecting a requested region.
+ * <p>
+ * The image file directories are parsed once. Tiles are read with positional reads and
+ * decoded concurrently, so no raster cache is used. The images of the file are
+ * addressed by {@link RasterIOOptions#IMAGE_INDEX}, the full resolution image first,
+ * followed by its overviews. {@link #loadAll(File, RasterIOOptions, ResourceMetadata)}
+ * loads all of them, which may be added to a {@link MultiResolutionRaster} to serve
+ * requests from the overview matching their resolution.
+ * </p>
+ * <p>
+ * Uncompressed, LZW and Deflate compressed images with pixel interleaved 8 to 64 bit
+ * samples are supported. Unless an origin location is given in the options, the origin
+ * location is derived from the raster type GeoKey.
+ * </p>
+ */
+public class CogReader implements RasterReader {
+
+	private static final Logger LOG = getLogger(CogReader.class);
+
+	private TiffFile tiff;
+
+	private TiffImage image;
+
+	private RasterDataInfo rdi;
+
+	private RasterGeoReference geoRef;
+
+	private String dataLocationId;
+
+	@Override
+	public AbstractRaster load(File file, RasterIOOptions options) throws IOException {
+		String imageIndex = options == null ? null : options.get(RasterIOOptions.IMAGE_INDEX);
+		int index = imageIndex == null ? 0 : Integer.parseInt(imageIndex);
+		TiffFile tiffFile = new TiffFile(file);
+		List<TiffImage> images = getLevels(tiffFile);
+		if (index < 0 || index >= images.size()) {
+			tiffFile.close();
+			throw new IOException(file + " has no image with index " + index + ".");
+		}
+		return load(tiffFile, images, index, options);
+	}
+
+	@Override
+	public AbstractRaster load(InputStream stream, RasterIOOptions options) throws IOException {
+		throw new IOException("Cloud Optimized GeoTIFFs can only be read from files.");
+	}
+
+	/**
+	 * Loads the full resolution image and the overviews of the given file, parsing the
+	 * file only once.
+	 * @param file to load
+	 * @param options the options used for every image, may be <code>null</code>
+	 * @param metadata of the coverage, may be <code>null</code>
+	 * @return the rasters, the full resolution image first, never empty
+	 * @throws IOException if the file could not be read or contains no supported image
+	 */
+	public static List<AbstractRaster> loadAll(File file, RasterIOOptions options,
+			ResourceMetadata<Coverage> metadata) throws IOException {
+		TiffFile tiffFile = new TiffFile(file);
+		List<TiffImage> images = getLevels(tiffFile);
+		List<AbstractRaster> result = new ArrayList<AbstractRaster>(images.size());
+		for (int i = 0; i < images.size(); ++i) {
+			// each level is disposed independently, so it needs its own channel
+			TiffFile handle = i == 0 ? tiffFile : tiffFile.duplicate();
+			AbstractRaster raster = new CogReader().load(handle, images, i, options);
+			raster.setMetadata(metadata);
+			result.add(raster);
+		}
+		return result;
+	}
+
+	/**
+	 * @param file to check
+	 * @return <code>true</code> if the file is a TIFF file, whose first image is supported
+	 * by this reader
+	 */
+	@Override
+	public boolean canLoad(File file) {
+		if (!TiffFile.isTiff(file)) {
+			return false;
+		}
+		try (TiffFile tiffFile = new TiffFile(file)) {
+			String reason = tiffFile.getImages().get(0).getUnsupportedReason();
+			if (reason != null) {
+				LOG.debug("Can not read {}: {}.", file, reason);
+			}
+			return reason == null;
+		}
+		catch (IOException e) {
+			LOG.debug("Can not read {}: {}", file, e.getLocalizedMessage());
+			return false;
+		}
+	}
+
+	// the supported full resolution image followed by its supported overviews, reduced
+	// images without the overview flag are accepted, as written by older pyramid tools
+	private static List<TiffImage> getLevels(TiffFile tiffFile) throws IOException {
+		List<TiffImage> images = tiffFile.getImages();
+		TiffImage first = images.get(0);
+		String reason = first.getUnsupportedReason();
+		if (reason != null) {
+			tiffFile.close();
+			throw new IOException("Can not read " + tiffFile.getFile() + ", " + reason + ".");
+		}
+		List<TiffImage> levels = new ArrayList<TiffImage>();
+		levels.add(first);
+		for (TiffImage image : images.subList(1, images.size())) {
+			TiffImage previous = levels.get(levels.size() - 1);
+			if (!image.isMask() && image.getWidth() < previous.getWidth() && image.getUnsupportedReason() == null
+					&& image.getSamplesPerPixel() == first.getSamplesPerPixel()
+					&& image.getDataType() == first.getDataType()) {
+				levels.add(image);
+			}
+		}
+		return levels;
+	}
+
+	private AbstractRaster load(TiffFile tiffFile, List<TiffImage> images, int index, RasterIOOptions options) {
+		this.tiff = tiffFile;
+		this.image = images.get(index);
+		TiffImage full = images.get(0);
+		RasterIOOptions opts = new RasterIOOptions();
+		OriginLocation location = null;
+		if (options != null) {
+			if (options.contains(RasterIOOptions.GEO_ORIGIN_LOCATION)) {
+				location = options.getRasterOriginLocation();
+			}
+			opts.copyOf(options);
+		}
+
+		if (opts.getNoDataValue() == null && full.getNoData() != null) {
+			byte[] noData = createNoData(full.getNoData(), image.getDataType(), image.getSamplesPerPixel());
+			if (noData != null) {
+				opts.setNoData(noData);
+			}
+		}
+		rdi = new RasterDataInfo(opts.getNoDataValue(), image.getBands(), image.getDataType(), InterleaveType.PIXEL);
+
+		ICRS crs = getCRS(full);
+		if (crs == null) {
+			crs = opts.getCRS();
+		}
+		RasterGeoReference fullRef = getGeoReference(full, location, crs, opts);
+		geoRef = fullRef;
+		if (image != full) {
+			// overviews cover the same area with a coarser resolution
+			RasterGeoReference outer = fullRef.createRelocatedReference(OUTER);
+			double scaleX = full.getWidth() / (double) image.getWidth();
+			double scaleY = full.getHeight() / (double) image.getHeight();
+			geoRef = new RasterGeoReference(OUTER, outer.getResolutionX() * scaleX, outer.getResolutionY() * scaleY,
+					outer.getOriginEasting(), outer.getOriginNorthing(), crs)
+				.createRelocatedReference(fullRef.getOriginLocation());
+		}
+
+		dataLocationId = opts.get(RasterIOOptions.ORIGIN_OF_RASTER);
+		if (dataLocationId == null) {
+			dataLocationId = RasterCache.getUniqueCacheIdentifier(tiffFile.getFile());
+		}
+		if (index > 0) {
+			dataLocationId += "__" + index;
+		}
+		Envelope envelope = geoRef.getEnvelope(image.getWidth(), image.getHeight(), crs);
+		SimpleRaster result = RasterFactory.createEmptyRaster(rdi, envelope, geoRef, this, false, opts);
+		result.setCoordinateSystem(crs);
+		return result;
+	}
+
+	private static ICRS getCRS(TiffImage image) {
+		int modelType = image.getGeoKey(GeoTiffKey.GTModelTypeGeoKey);
+		int code = -1;
+		if (modelType == GeoTiffKey.ModelTypeProjected) {
+			code = image.getGeoKey(GeoTiffKey.ProjectedCSTypeGeoKey);
+		}
+		else if (modelType == GeoTiffKey.ModelTypeGeographic) {
+			code = image.getGeoKey(GeoTiffKey.GeographicTypeGeoKey);
+		}
+		// 32767 is user defined
+		if (code <= 0 || code == 32767) {
+			return null;
+		}
+		try {
+			return CRSManager.lookup("EPSG:" + code);
+		}
+		catch (UnknownCRSException e) {
+			LOG.error("No coordinate system found for EPSG:{}", code);
+			return null;
+		}
+	}
+
+	private static RasterGeoReference getGeoReference(TiffImage image, OriginLocation location, ICRS crs,
+			RasterIOOptions opts) {
+		double[] scale = image.getPixelScale();
+		double[] tiePoint = image.getTiePoint();
+		if (scale != null && scale.length >= 2 && tiePoint != null && tiePoint.length >= 6) {
+			OriginLocation loc = location;
+			if (loc == null) {
+				boolean point = image.getGeoKey(GeoTiffKey.GTRasterTypeGeoKey) == GeoTiffKey.RasterPixelIsPoint;
+				loc = point ? CENTER : OUTER;
+			}
+			// the tie point may refer to any raster position
+			double originX = tiePoint[3] - tiePoint[0] * scale[0];
+			double originY = tiePoint[4] + tiePoint[1] * scale[1];
+			return new RasterGeoReference(loc, scale[0], -scale[1], originX, originY, crs);
+		}
+		if (opts.hasRasterGeoReference()) {
+			return opts.getRasterGeoReference();
+		}
+		LOG.warn("No geo reference found in {}, using raster coordinates.", image);
+		// create a 1:1 mapping
+		OriginLocation loc = location == null ? OUTER : location;
+		return new RasterGeoReference(loc, 1, -1, 0, image.getHeight(), crs);
+	}
+
+	// the GDAL no data value, used for all bands
+	private static byte[] createNoData(String value, DataType type, int bands) {
+		double v;
+		try {
+			v = Double.parseDouble(value);
+		}
+		catch (NumberFormatException e) {
+			LOG.debug("Ignoring the no data value {}.", value);
+			return null;
+		}
+		ByteBuffer buf = ByteBuffer.allocate(bands * type.getSize());
+		for (int i = 0; i < bands; ++i) {
+			switch (type) {
+				case BYTE:
+					buf.put((byte) (int) v);
+					break;
+				case SHORT:
+				case USHORT:
+					buf.putShort((short) (int) v);
+					break;
+				case INT:
+					buf.putInt((int) v);
+					break;
+				case FLOAT:
+					buf.putFloat((float) v);
+					break;
+				default:
+					buf.putDouble(v);
+			}
+		}
+		return buf.array();
+	}
+
+	@Override
+	public BufferResult read(RasterRect rect, ByteBuffer buffer) throws IOException {
+		int pixelSize = rdi.bands * rdi.dataSize;
+		int size = rect.width * rect.height * pixelSize;
+		ByteBuffer result = buffer != null && buffer.capacity() >= size ? buffer
+				: ByteBufferPool.allocate(size, false);
+		int x0 = Math.max(rect.x, 0);
+		int y0 = Math.max(rect.y, 0);
+		int x1 = Math.min(rect.x + rect.width, image.getWidth());
+		int y1 = Math.min(rect.y + rect.height, image.getHeight());
+		if (x0 > rect.x || y0 > rect.y || x1 < rect.x + rect.width || y1 < rect.y + rect.height) {
+			fill(result, 0, size, rdi.noDataPixel);
+		}
+		if (x0 < x1 && y0 < y1) {
+			int tw = image.getTileWidth();
+			int th = image.getTileHeight();
+			List<int[]> tiles = new ArrayList<int[]>();
+			for (int ty = y0 / th; ty <= (y1 - 1) / th; ++ty) {
+				for (int tx = x0 / tw; tx <= (x1 - 1) / tw; ++tx) {
+					tiles.add(new int[] { tx, ty });
+				}
+			}
+			RasterRect valid = new RasterRect(x0, y0, x1 - x0, y1 - y0);
+			try {
+				if (tiles.size() == 1) {
+					readTile(tiles.get(0), rect, valid, result);
+				}
+				else {
+					// each tile is read and decoded on its own, as decoding dominates
+					tiles.parallelStream().forEach(tile -> readTile(tile, rect, valid, result));
+				}
+			}
+			catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+		}
+		result.clear();
+		return new BufferResult(rect, result);
+	}
+
+	/**
+	 * Reads, decodes and copies the part of a tile which intersects the valid rectangle.
+	 */
+	private void readTile(int[] tile, RasterRect rect, RasterRect valid, ByteBuffer result) {
+		int tw = image.getTileWidth();
+		int th = image.getTileHeight();
+		int pixelSize = image.getPixelSize();
+		int index = tile[1] * image.getTilesAcross() + tile[0];
+		int tileX = tile[0] * tw;
+		int tileY = tile[1] * th;
+		int cx0 = Math.max(valid.x, tileX);
+		int cx1 = Math.min(valid.x + valid.width, tileX + tw);
+		int cy0 = Math.max(valid.y, tileY);
+		int cy1 = Math.min(valid.y + valid.height, tileY + th);
+		int length = (cx1 - cx0) * pixelSize;
+
+		long offset = image.getOffset(index);
+		long count = image.getByteCount(index);
+		if (offset == 0 || count == 0) {
+			// sparse tile
+			for (int y = cy0; y < cy1; ++y) {
+				int dst = ((y - rect.y) * rect.width + (cx0 - rect.x)) * pixelSize;
+				fill(result, dst, length, rdi.noDataPixel);
+			}
+			return;
+		}
+		byte[] data;
+		try {
+			byte[] encoded = tiff.read(offset, (int) count);
+			data = image.getCompression().decode(encoded, tw * th * pixelSize);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		if (image.getPredictor() == 2) {
+			undoPredictor(data, tw, th, image.getSamplesPerPixel(), image.getSampleSize(), tiff.getByteOrder());
+		}
+		if (tiff.getByteOrder() == ByteOrder.LITTLE_ENDIAN && image.getSampleSize() > 1) {
+			swap(data, image.getSampleSize());
+		}
+		for (int y = cy0; y < cy1; ++y) {
+			int src = ((y - tileY) * tw + (cx0 - tileX)) * pixelSize;
+			int dst = ((y - rect.y) * rect.width + (cx0 - rect.x)) * pixelSize;
+			result.put(dst, data, src, length);
+		}
+	}
+
+	/**
+	 * Reverses the horizontal differencing of integral samples.
+	 */
+	static void undoPredictor(byte[] data, int width, int height, int samples, int sampleSize, ByteOrder order) {
+		ByteBuffer buf = ByteBuffer.wrap(data).order(order);
+		int rowSize = width * samples * sampleSize;
+		int stride = samples * sampleSize;
+		for (int row = 0; row < height; ++row) {
+			int start = row * rowSize;
+			for (int pos = start + stride; pos < start + rowSize; pos += sampleSize) {
+				int prev = pos - stride;
+				switch (sampleSize) {
+					case 1:
+						data[pos] += data[prev];
+						break;
+					case 2:
+						buf.putShort(pos, (short) (buf.getShort(pos) + buf.getShort(prev)));
+						break;
+					case 4:
+						buf.putInt(pos, buf.getInt(pos) + buf.getInt(prev));
+						break;
+					default:
+						buf.putLong(pos, buf.getLong(pos) + buf.getLong(prev));
+				}
+			}
+		}
+	}
+
+	private static void swap(byte[] data, int sampleSize) {
+		for (int pos = 0; pos + sampleSize <= data.length; pos += sampleSize) {
+			for (int i = 0, j = sampleSize - 1; i < j; ++i, --j) {
+				byte b = data[pos + i];
+				data[pos + i] = data[pos + j];
+				data[pos + j] = b;
+			}
+		}
+	}
+
+	private static void fill(ByteBuffer buf, int pos, int length, byte[] pixel) {
+		for (int i = 0; i < length; i += pixel.length) {
+			buf.put(pos + i, pixel, 0, Math.min(pixel.length, length - i));
+		}
+	}
+
+	@Override
+	public Set<String> getSupportedFormats() {
+		return CogRasterIOProvider.FORMATS;
+	}
+
+	@Override
+	public boolean shouldCreateCacheFile() {
+		return false;
+	}
+
+	@Override
+	public File file() {
+		return tiff == null ? null : tiff.getFile();
+	}
+
+	@Override
+	public int getWidth() {
+		return image == null ? 0 : image.getWidth();
+	}
+
+	@Override
+	public int getHeight() {
+		return image == null ? 0 : image.getHeight();
+	}
+
+	@Override
+	public RasterGeoReference getGeoReference() {
+		return geoRef;
+	}
+
+	@Override
+	public RasterDataInfo getRasterDataInfo() {
+		return rdi;
+	}
+
+	@Override
+	public boolean canReadTiles() {
+		return true;
+	}
+
+	@Override
+	public String getDataLocationId() {
+		return dataLocationId;
+	}
+
+	@Override
+	public void dispose() {
+		if (tiff != null) {
+			try {
+				// reopened on the next read
+				tiff.close();
+			}
+			catch (IOException e) {
+				LOG.debug("Could not close {}: {}", tiff.getFile(), e.getLocalizedMessage());
+			}
+		}
+	}
+
+}
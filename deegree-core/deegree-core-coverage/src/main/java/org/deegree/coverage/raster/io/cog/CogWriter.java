@@ -0,0 +1,606 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.coverage.raster.io.cog;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.deegree.coverage.raster.geom.RasterGeoReference.OriginLocation.OUTER;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.deegree.coverage.raster.AbstractRaster;
+import org.deegree.coverage.raster.MultiResolutionRaster;
+import org.deegree.coverage.raster.data.RasterData;
+import org.deegree.coverage.raster.data.info.BandType;
+import org.deegree.coverage.raster.data.info.DataType;
+import org.deegree.coverage.raster.data.info.RasterDataInfo;
+import org.deegree.coverage.raster.data.nio.PixelInterleavedRasterData;
+import org.deegree.coverage.raster.geom.RasterGeoReference;
+import org.deegree.coverage.raster.geom.RasterRect;
+import org.deegree.coverage.raster.io.RasterIOOptions;
+import org.deegree.coverage.raster.io.RasterWriter;
+import org.deegree.coverage.raster.io.imageio.geotiff.GeoTiffWriter;
+import org.deegree.geometry.Envelope;
+import org.slf4j.Logger;
+
+/**
+ * Streaming writer of tiled GeoTIFF files in the layout of Cloud Optimized GeoTIFFs:
+ * the image file directories of the raster and its overviews precede the tile data,
+ * and the tiles of the smallest overview come first.
+ * <p>
+ * The raster is read one row of tiles at a time, the tiles of a row are encoded by a
+ * pool of workers while the following rows are read. At most a few rows of tiles are
+ * kept in memory, whatever the size of the raster. Uncompressed tiles are streamed
+ * directly, compressed tiles are spooled to a temporary file when writing to a stream,
+ * because their offsets have to be known before the first tile is written.
+ * </p>
+ * <p>
+ * The BigTIFF layout is used if the file may exceed 4 GiB.
+ * </p>
+ */
+public class CogWriter implements RasterWriter {
+
+	private static final Logger LOG = getLogger(CogWriter.class);
+
+	/**
+	 * Option key for the compression of the tiles, one of the names of
+	 * {@link TiffCompression}, default is none.
+	 */
+	public static final String OPT_COMPRESSION = "tiff_compression";
+
+	/**
+	 * Option key for the width and height of the tiles in pixels.
+	 */
+	public static final String OPT_TILE_SIZE = "tiff_tile_size";
+
+	/**
+	 * Default width and height of the tiles in pixels.
+	 */
+	public static final int DEF_TILE_SIZE = 256;
+
+	// rows of tiles which are read and encoded ahead of the row being written
+	private static final int ROWS_AHEAD = 2;
+
+	private static final long MAX_CLASSIC_SIZE = 0xFFFFFFFFL;
+
+	private TiffCompression compression;
+
+	private int tileSize;
+
+	private final int threads;
+
+	/**
+	 * Creates a writer of uncompressed tiles of {@link #DEF_TILE_SIZE} pixels, using a
+	 * worker per processor.
+	 */
+	public CogWriter() {
+		this(TiffCompression.NONE, DEF_TILE_SIZE, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param compression of the tiles, <code>null</code> for uncompressed tiles
+	 * @param tileSize width and height of the tiles in pixels, must be a multiple of 16
+	 * @param threads number of workers encoding tiles
+	 */
+	public CogWriter(TiffCompression compression, int tileSize, int threads) {
+		if (tileSize <= 0 || tileSize % 16 != 0) {
+			throw new IllegalArgumentException("The tile size must be a positive multiple of 16, not " + tileSize);
+		}
+		this.compression = compression == null ? TiffCompression.NONE : compression;
+		this.tileSize = tileSize;
+		this.threads = Math.max(1, threads);
+	}
+
+	@Override
+	public void write(AbstractRaster raster, File file, RasterIOOptions options) throws IOException {
+		configure(options);
+		write(Collections.singletonList(raster), file);
+	}
+
+	@Override
+	public void write(AbstractRaster raster, OutputStream out, RasterIOOptions options) throws IOException {
+		configure(options);
+		write(Collections.singletonList(raster), out);
+	}
+
+	/**
+	 * Writes the finest raster of the given multi resolution raster, the other rasters
+	 * are written as its overviews.
+	 * @param raster to write
+	 * @param file the file to write to, an existing file is overwritten
+	 * @throws IOException if reading the raster or writing the file failed
+	 */
+	public void write(MultiResolutionRaster raster, File file) throws IOException {
+		write(getLevels(raster), file);
+	}
+
+	/**
+	 * Writes the finest raster of the given multi resolution raster, the other rasters
+	 * are written as its overviews.
+	 * @param raster to write
+	 * @param out the stream to write to, it is not closed
+	 * @throws IOException if reading the raster or writing the stream failed
+	 */
+	public void write(MultiResolutionRaster raster, OutputStream out) throws IOException {
+		write(getLevels(raster), out);
+	}
+
+	@Override
+	public boolean canWrite(AbstractRaster raster, RasterIOOptions options) {
+		if (raster == null || raster.getRasterDataInfo().dataType == DataType.UNDEFINED) {
+			return false;
+		}
+		String format = options == null ? null : options.get(RasterIOOptions.OPT_FORMAT);
+		return format == null || CogRasterIOProvider.FORMATS.contains(format.toLowerCase());
+	}
+
+	@Override
+	public Set<String> getSupportedFormats() {
+		return new HashSet<String>(CogRasterIOProvider.FORMATS);
+	}
+
+	private void configure(RasterIOOptions options) {
+		if (options == null) {
+			return;
+		}
+		if (options.contains(OPT_COMPRESSION)) {
+			compression = TiffCompression.fromString(options.get(OPT_COMPRESSION));
+		}
+		if (options.contains(OPT_TILE_SIZE)) {
+			int size = Integer.parseInt(options.get(OPT_TILE_SIZE));
+			if (size <= 0 || size % 16 != 0) {
+				throw new IllegalArgumentException("The tile size must be a positive multiple of 16, not " + size);
+			}
+			tileSize = size;
+		}
+	}
+
+	private List<AbstractRaster> getLevels(MultiResolutionRaster raster) {
+		List<AbstractRaster> levels = new ArrayList<AbstractRaster>();
+		for (Double res : raster.getResolutions()) {
+			AbstractRaster level = raster.getRaster(res);
+			if (levels.isEmpty()) {
+				levels.add(level);
+				continue;
+			}
+			AbstractRaster previous = levels.get(levels.size() - 1);
+			RasterDataInfo info = levels.get(0).getRasterDataInfo();
+			RasterDataInfo levelInfo = level.getRasterDataInfo();
+			if (level == previous || levelInfo.dataType != info.dataType || levelInfo.bands != info.bands) {
+				LOG.warn("Skipping the raster with resolution {}, it does not fit as an overview.", res);
+			}
+			else if (level.getColumns() < previous.getColumns() || level.getRows() < previous.getRows()) {
+				levels.add(level);
+			}
+		}
+		return levels;
+	}
+
+	private void write(List<AbstractRaster> rasters, File file) throws IOException {
+		Layout layout = new Layout(rasters);
+		try (FileChannel channel = FileChannel.open(file.toPath(), CREATE, WRITE, TRUNCATE_EXISTING)) {
+			channel.position(layout.metadataSize);
+			writeTiles(layout, channel);
+			ByteBuffer metadata = layout.createMetadata();
+			while (metadata.hasRemaining()) {
+				channel.write(metadata, metadata.position());
+			}
+		}
+	}
+
+	private void write(List<AbstractRaster> rasters, OutputStream out) throws IOException {
+		if (compression != TiffCompression.NONE) {
+			File spool = File.createTempFile("deegree-cog", ".tif");
+			try {
+				write(rasters, spool);
+				Files.copy(spool.toPath(), out);
+			}
+			finally {
+				if (!spool.delete()) {
+					spool.deleteOnExit();
+				}
+			}
+			return;
+		}
+		Layout layout = new Layout(rasters);
+		layout.computeUncompressedOffsets();
+		WritableByteChannel channel = Channels.newChannel(out);
+		ByteBuffer metadata = layout.createMetadata();
+		while (metadata.hasRemaining()) {
+			channel.write(metadata);
+		}
+		writeTiles(layout, channel);
+		out.flush();
+	}
+
+	private void writeTiles(Layout layout, WritableByteChannel channel) throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(threads, new WorkerFactory());
+		try {
+			long position = layout.metadataSize;
+			// the smallest overview first
+			for (int i = layout.levels.size() - 1; i >= 0; --i) {
+				position = writeLevel(layout.levels.get(i), channel, position, executor);
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private long writeLevel(Level level, WritableByteChannel channel, long position, ExecutorService executor)
+			throws IOException {
+		LOG.debug("Writing {}x{} tiles of a {}x{} raster.", level.tilesX, level.tilesY, level.width, level.height);
+		Deque<List<Future<byte[]>>> window = new ArrayDeque<List<Future<byte[]>>>();
+		int written = 0;
+		for (int row = 0; row < level.tilesY; ++row) {
+			byte[] strip = level.readRow(row);
+			int rowHeight = Math.min(tileSize, level.height - row * tileSize);
+			List<Future<byte[]>> tiles = new ArrayList<Future<byte[]>>(level.tilesX);
+			for (int col = 0; col < level.tilesX; ++col) {
+				int x = col * tileSize;
+				int w = Math.min(tileSize, level.width - x);
+				tiles.add(executor.submit(() -> compression.encode(level.createTile(strip, x, w, rowHeight))));
+			}
+			window.add(tiles);
+			if (window.size() > ROWS_AHEAD) {
+				position = writeRow(level, written++, window.poll(), channel, position);
+			}
+		}
+		while (!window.isEmpty()) {
+			position = writeRow(level, written++, window.poll(), channel, position);
+		}
+		return position;
+	}
+
+	private long writeRow(Level level, int row, List<Future<byte[]>> tiles, WritableByteChannel channel,
+			long position) throws IOException {
+		int index = row * level.tilesX;
+		for (Future<byte[]> tile : tiles) {
+			byte[] data = get(tile);
+			ByteBuffer buf = ByteBuffer.wrap(data);
+			while (buf.hasRemaining()) {
+				channel.write(buf);
+			}
+			level.offsets[index] = position;
+			level.byteCounts[index++] = data.length;
+			position += data.length;
+		}
+		return position;
+	}
+
+	private static byte[] get(Future<byte[]> tile) throws IOException {
+		try {
+			return tile.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while encoding tiles.");
+		}
+		catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new IOException("Could not encode a tile: " + cause.getMessage(), cause);
+		}
+	}
+
+	/**
+	 * The image file directories of all levels and the position of the tile data.
+	 */
+	private class Layout {
+
+		private final List<Level> levels = new ArrayList<Level>();
+
+		private final boolean bigTiff;
+
+		private final long metadataSize;
+
+		Layout(List<AbstractRaster> rasters) {
+			AbstractRaster first = rasters.get(0);
+			RasterDataInfo info = first.getRasterDataInfo();
+			long maxDataSize = 0;
+			for (AbstractRaster raster : rasters) {
+				Level level = new Level(raster, info);
+				levels.add(level);
+				maxDataSize += level.tilesX * (long) level.tilesY * compression.maxEncodedSize(level.tileBytes);
+			}
+			bigTiff = headerSize(false) + directoriesSize(false) + maxDataSize > MAX_CLASSIC_SIZE;
+			metadataSize = headerSize(bigTiff) + directoriesSize(bigTiff);
+		}
+
+		private long directoriesSize(boolean big) {
+			long size = 0;
+			for (int i = 0; i < levels.size(); ++i) {
+				size += createDirectory(i, big).size();
+			}
+			return size;
+		}
+
+		private int headerSize(boolean big) {
+			return big ? 16 : 8;
+		}
+
+		/**
+		 * Calculates the tile offsets for uncompressed tiles, which all have the same
+		 * size.
+		 */
+		void computeUncompressedOffsets() {
+			long position = metadataSize;
+			for (int i = levels.size() - 1; i >= 0; --i) {
+				Level level = levels.get(i);
+				for (int t = 0; t < level.offsets.length; ++t) {
+					level.offsets[t] = position;
+					level.byteCounts[t] = level.tileBytes;
+					position += level.tileBytes;
+				}
+			}
+		}
+
+		ByteBuffer createMetadata() {
+			ByteBuffer buf = ByteBuffer.allocate((int) metadataSize);
+			buf.put((byte) 'M').put((byte) 'M');
+			long offset = headerSize(bigTiff);
+			if (bigTiff) {
+				buf.putShort((short) 43).putShort((short) 8).putShort((short) 0).putLong(offset);
+			}
+			else {
+				buf.putShort((short) 42).putInt((int) offset);
+			}
+			for (int i = 0; i < levels.size(); ++i) {
+				TiffDirectory directory = createDirectory(i, bigTiff);
+				long next = i + 1 < levels.size() ? offset + directory.size() : 0;
+				directory.write(buf, offset, next);
+				offset += directory.size();
+			}
+			buf.flip();
+			return buf;
+		}
+
+		private TiffDirectory createDirectory(int index, boolean big) {
+			Level level = levels.get(index);
+			RasterDataInfo info = level.info;
+			TiffDirectory dir = new TiffDirectory(big);
+			int offsetType = big ? TiffDirectory.TYPE_LONG8 : TiffDirectory.TYPE_LONG;
+			dir.add(TiffDirectory.TAG_NEW_SUBFILE_TYPE, TiffDirectory.TYPE_LONG, index == 0 ? 0 : 1);
+			dir.add(TiffDirectory.TAG_IMAGE_WIDTH, TiffDirectory.TYPE_LONG, level.width);
+			dir.add(TiffDirectory.TAG_IMAGE_LENGTH, TiffDirectory.TYPE_LONG, level.height);
+			dir.add(TiffDirectory.TAG_BITS_PER_SAMPLE, TiffDirectory.TYPE_SHORT,
+					repeat(info.bands, info.dataSize * 8));
+			dir.add(TiffDirectory.TAG_COMPRESSION, TiffDirectory.TYPE_SHORT, compression.getCode());
+			boolean rgb = isRGB(info.bandInfo);
+			dir.add(TiffDirectory.TAG_PHOTOMETRIC, TiffDirectory.TYPE_SHORT, rgb ? 2 : 1);
+			dir.add(TiffDirectory.TAG_SAMPLES_PER_PIXEL, TiffDirectory.TYPE_SHORT, info.bands);
+			dir.add(TiffDirectory.TAG_PLANAR_CONFIGURATION, TiffDirectory.TYPE_SHORT, 1);
+			dir.add(TiffDirectory.TAG_TILE_WIDTH, TiffDirectory.TYPE_LONG, tileSize);
+			dir.add(TiffDirectory.TAG_TILE_LENGTH, TiffDirectory.TYPE_LONG, tileSize);
+			dir.add(TiffDirectory.TAG_TILE_OFFSETS, offsetType, level.offsets);
+			dir.add(TiffDirectory.TAG_TILE_BYTE_COUNTS, offsetType, level.byteCounts);
+			int colorBands = rgb ? 3 : 1;
+			if (info.bands > colorBands) {
+				long[] extra = new long[info.bands - colorBands];
+				for (int i = 0; i < extra.length; ++i) {
+					// unassociated alpha
+					extra[i] = info.bandInfo[colorBands + i] == BandType.ALPHA ? 2 : 0;
+				}
+				dir.add(TiffDirectory.TAG_EXTRA_SAMPLES, TiffDirectory.TYPE_SHORT, extra);
+			}
+			dir.add(TiffDirectory.TAG_SAMPLE_FORMAT, TiffDirectory.TYPE_SHORT,
+					repeat(info.bands, sampleFormat(info.dataType)));
+			if (index == 0) {
+				RasterGeoReference geoRef = level.raster.getRasterReference().createRelocatedReference(OUTER);
+				dir.add(TiffDirectory.TAG_MODEL_PIXEL_SCALE, Math.abs(geoRef.getResolutionX()),
+						Math.abs(geoRef.getResolutionY()), 0);
+				dir.add(TiffDirectory.TAG_MODEL_TIE_POINT, 0, 0, 0, geoRef.getOriginEasting(),
+						geoRef.getOriginNorthing(), 0);
+				char[] geoKeys = GeoTiffWriter.createGeoKeyDirectory(geoRef);
+				long[] keys = new long[geoKeys.length];
+				for (int i = 0; i < keys.length; ++i) {
+					keys[i] = geoKeys[i];
+				}
+				dir.add(TiffDirectory.TAG_GEO_KEY_DIRECTORY, TiffDirectory.TYPE_SHORT, keys);
+			}
+			return dir;
+		}
+
+	}
+
+	/**
+	 * A raster written as one image of the file.
+	 */
+	private class Level {
+
+		private final AbstractRaster raster;
+
+		private final RasterDataInfo info;
+
+		private final int width;
+
+		private final int height;
+
+		private final int tilesX;
+
+		private final int tilesY;
+
+		private final int pixelSize;
+
+		private final int tileBytes;
+
+		private final long[] offsets;
+
+		private final long[] byteCounts;
+
+		private final byte[] noData;
+
+		Level(AbstractRaster raster, RasterDataInfo info) {
+			this.raster = raster;
+			this.info = info;
+			width = raster.getColumns();
+			height = raster.getRows();
+			tilesX = (width + tileSize - 1) / tileSize;
+			tilesY = (height + tileSize - 1) / tileSize;
+			pixelSize = info.bands * info.dataSize;
+			tileBytes = tileSize * tileSize * pixelSize;
+			offsets = new long[tilesX * tilesY];
+			byteCounts = new long[tilesX * tilesY];
+			noData = raster.getRasterDataInfo().getNoDataPixel(new byte[pixelSize]);
+		}
+
+		/**
+		 * @return the pixel interleaved, big endian samples of a row of tiles, which are
+		 * only read by the encoding tasks
+		 */
+		byte[] readRow(int row) {
+			int y = row * tileSize;
+			int h = Math.min(tileSize, height - y);
+			RasterGeoReference geoRef = raster.getRasterReference();
+			Envelope env = geoRef.getEnvelope(new RasterRect(0, y, width, h), geoRef.getCrs());
+			RasterData strip = raster.getSubRaster(env).getAsSimpleRaster().getReadOnlyRasterData();
+			int lineLength = width * pixelSize;
+			byte[] result = new byte[lineLength * h];
+			PixelInterleavedRasterData pixelData = null;
+			ByteBuffer buf = null;
+			if (strip instanceof PixelInterleavedRasterData && strip.getBands() == info.bands) {
+				pixelData = (PixelInterleavedRasterData) strip;
+				buf = pixelData.getByteBuffer().asReadOnlyBuffer();
+			}
+			byte[] pixel = new byte[pixelSize];
+			for (int j = 0; j < h; ++j) {
+				int pos = pixelData == null ? -1 : pixelData.calculatePos(0, j);
+				if (pos != -1 && pixelData.calculatePos(width - 1, j) != -1) {
+					// the whole line is stored contiguously
+					buf.position(pos);
+					buf.get(result, j * lineLength, lineLength);
+				}
+				else {
+					for (int i = 0; i < width; ++i) {
+						strip.getPixel(i, j, pixel);
+						System.arraycopy(pixel, 0, result, j * lineLength + i * pixelSize, pixelSize);
+					}
+				}
+			}
+			return result;
+		}
+
+		/**
+		 * @return the pixel interleaved, big endian samples of a tile, the part outside
+		 * of the raster is filled with no data values
+		 */
+		byte[] createTile(byte[] strip, int x, int w, int h) {
+			byte[] tile = new byte[tileBytes];
+			int tileLine = tileSize * pixelSize;
+			int length = w * pixelSize;
+			for (int j = 0; j < tileSize; ++j) {
+				int pos = j * tileLine;
+				int filled = 0;
+				if (j < h) {
+					System.arraycopy(strip, (j * width + x) * pixelSize, tile, pos, length);
+					filled = length;
+				}
+				for (int i = filled; i < tileLine; i += pixelSize) {
+					System.arraycopy(noData, 0, tile, pos + i, pixelSize);
+				}
+			}
+			return tile;
+		}
+
+	}
+
+	private static boolean isRGB(BandType[] bands) {
+		return bands.length >= 3 && bands[0] == BandType.RED && bands[1] == BandType.GREEN
+				&& bands[2] == BandType.BLUE;
+	}
+
+	private static int sampleFormat(DataType type) {
+		switch (type) {
+			case SHORT:
+			case INT:
+				return 2;
+			case FLOAT:
+			case DOUBLE:
+				return 3;
+			default:
+				return 1;
+		}
+	}
+
+	private static long[] repeat(int count, long value) {
+		long[] result = new long[count];
+		for (int i = 0; i < count; ++i) {
+			result[i] = value;
+		}
+		return result;
+	}
+
+	private static class WorkerFactory implements ThreadFactory {
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "cog-writer-" + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		}
+
+	}
+
+}
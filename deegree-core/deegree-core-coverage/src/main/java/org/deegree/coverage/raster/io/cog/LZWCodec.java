@@ -0,0 +1,262 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.coverage.raster.io.cog;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * LZW codec of the TIFF 6.0 specification: codes are packed most significant bit
+ * first and the code width grows one code early, as written by libtiff.
+ */
+final class LZWCodec {
+
+	private static final int CLEAR = 256;
+
+	private static final int EOI = 257;
+
+	private static final int FIRST_CODE = 258;
+
+	private static final int MIN_BITS = 9;
+
+	private static final int MAX_BITS = 12;
+
+	private static final int MAX_CODE = (1 << MAX_BITS) - 1;
+
+	// open addressing table of (prefix code, byte) pairs, kept below half full
+	private static final int HASH_SIZE = 1 << 13;
+
+	private LZWCodec() {
+		// static helpers only
+	}
+
+	/**
+	 * @param data to compress
+	 * @return the LZW compressed data
+	 */
+	static byte[] encode(byte[] data) {
+		BitWriter out = new BitWriter(data.length / 2 + 16);
+		int[] keys = new int[HASH_SIZE];
+		short[] codes = new short[HASH_SIZE];
+		int bits = MIN_BITS;
+		int maxCode = (1 << bits) - 1;
+		out.write(CLEAR, bits);
+		if (data.length == 0) {
+			out.write(EOI, bits);
+			return out.toByteArray();
+		}
+		int freeCode = FIRST_CODE;
+		int prefix = data[0] & 0xff;
+		for (int i = 1; i < data.length; ++i) {
+			int c = data[i] & 0xff;
+			// never 0, so 0 marks an empty slot
+			int key = ((c << MAX_BITS) | prefix) + 1;
+			int slot = hash(key);
+			while (keys[slot] != 0 && keys[slot] != key) {
+				slot = (slot + 1) & (HASH_SIZE - 1);
+			}
+			if (keys[slot] == key) {
+				prefix = codes[slot];
+				continue;
+			}
+			out.write(prefix, bits);
+			prefix = c;
+			keys[slot] = key;
+			codes[slot] = (short) freeCode++;
+			if (freeCode == MAX_CODE - 1) {
+				out.write(CLEAR, bits);
+				Arrays.fill(keys, 0);
+				freeCode = FIRST_CODE;
+				bits = MIN_BITS;
+				maxCode = (1 << bits) - 1;
+			}
+			else if (freeCode > maxCode) {
+				++bits;
+				maxCode = (1 << bits) - 1;
+			}
+		}
+		out.write(prefix, bits);
+		if (++freeCode == MAX_CODE - 1) {
+			out.write(CLEAR, bits);
+			bits = MIN_BITS;
+		}
+		else if (freeCode > maxCode) {
+			++bits;
+		}
+		out.write(EOI, bits);
+		return out.toByteArray();
+	}
+
+	/**
+	 * @param data LZW compressed data
+	 * @param size the number of decoded bytes
+	 * @return the decoded bytes, missing bytes of truncated data are zero
+	 * @throws IOException if the data is corrupt
+	 */
+	static byte[] decode(byte[] data, int size) throws IOException {
+		byte[] result = new byte[size];
+		short[] prefixes = new short[MAX_CODE + 1];
+		byte[] suffixes = new byte[MAX_CODE + 1];
+		short[] lengths = new short[MAX_CODE + 1];
+		for (int i = 0; i < CLEAR; ++i) {
+			suffixes[i] = (byte) i;
+			lengths[i] = 1;
+		}
+		long bitPos = 0;
+		long totalBits = 8L * data.length;
+		int bits = MIN_BITS;
+		int next = FIRST_CODE;
+		int old = -1;
+		int pos = 0;
+		while (pos < size && bitPos + bits <= totalBits) {
+			int code = read(data, bitPos, bits);
+			bitPos += bits;
+			if (code == EOI) {
+				break;
+			}
+			if (code == CLEAR) {
+				bits = MIN_BITS;
+				next = FIRST_CODE;
+				old = -1;
+				continue;
+			}
+			if (old == -1) {
+				if (code >= CLEAR) {
+					throw new IOException("Corrupt LZW data, code " + code + " follows a clear code.");
+				}
+				result[pos++] = (byte) code;
+				old = code;
+				continue;
+			}
+			if (code > next) {
+				throw new IOException("Corrupt LZW data, code " + code + " is not defined yet.");
+			}
+			// the new entry is the old string followed by the first byte of the current one
+			int first = first(code == next ? old : code, prefixes, suffixes);
+			if (next <= MAX_CODE) {
+				prefixes[next] = (short) old;
+				suffixes[next] = (byte) first;
+				lengths[next] = (short) (lengths[old] + 1);
+				++next;
+			}
+			pos = copy(code, prefixes, suffixes, lengths, result, pos);
+			old = code;
+			if (next >= (1 << bits) - 1 && bits < MAX_BITS) {
+				++bits;
+			}
+		}
+		return result;
+	}
+
+	private static int hash(int key) {
+		int h = key * 0x9E3779B1;
+		return (h ^ (h >>> 16)) & (HASH_SIZE - 1);
+	}
+
+	private static int first(int code, short[] prefixes, byte[] suffixes) {
+		while (code >= FIRST_CODE) {
+			code = prefixes[code];
+		}
+		return suffixes[code] & 0xff;
+	}
+
+	private static int copy(int code, short[] prefixes, byte[] suffixes, short[] lengths, byte[] result, int pos) {
+		int length = lengths[code];
+		int end = pos + length;
+		for (int i = end - 1; i >= pos; --i) {
+			if (i < result.length) {
+				result[i] = suffixes[code];
+			}
+			code = prefixes[code];
+		}
+		return Math.min(end, result.length);
+	}
+
+	private static int read(byte[] data, long bitPos, int bits) {
+		int index = (int) (bitPos >>> 3);
+		int value = (data[index] & 0xff) << 16;
+		if (index + 1 < data.length) {
+			value |= (data[index + 1] & 0xff) << 8;
+		}
+		if (index + 2 < data.length) {
+			value |= data[index + 2] & 0xff;
+		}
+		int shift = 24 - (int) (bitPos & 7) - bits;
+		return (value >>> shift) & ((1 << bits) - 1);
+	}
+
+	private static class BitWriter {
+
+		private byte[] buf;
+
+		private int length;
+
+		private int pending;
+
+		private int pendingBits;
+
+		BitWriter(int capacity) {
+			buf = new byte[Math.max(16, capacity)];
+		}
+
+		void write(int code, int bits) {
+			pending = (pending << bits) | code;
+			pendingBits += bits;
+			while (pendingBits >= 8) {
+				pendingBits -= 8;
+				append(pending >>> pendingBits);
+			}
+			pending &= (1 << pendingBits) - 1;
+		}
+
+		byte[] toByteArray() {
+			if (pendingBits > 0) {
+				append(pending << (8 - pendingBits));
+				pending = 0;
+				pendingBits = 0;
+			}
+			return Arrays.copyOf(buf, length);
+		}
+
+		private void append(int b) {
+			if (length == buf.length) {
+				buf = Arrays.copyOf(buf, buf.length * 2);
+			}
+			buf[length++] = (byte) b;
+		}
+
+	}
+
+}
@@ -0,0 +1,181 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.coverage.raster.io.cog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The compression schemes of TIFF tiles supported by the {@link CogWriter}.
+ */
+public enum TiffCompression {
+
+	/** Tiles are stored uncompressed. */
+	NONE(1),
+	/** LZW compression as defined by the TIFF 6.0 specification. */
+	LZW(5),
+	/** zlib compression (Adobe Deflate). */
+	DEFLATE(8);
+
+	private final int code;
+
+	TiffCompression(int code) {
+		this.code = code;
+	}
+
+	/**
+	 * @return the value of the TIFF compression tag
+	 */
+	public int getCode() {
+		return code;
+	}
+
+	/**
+	 * @param code value of a TIFF compression tag
+	 * @return the compression with the given tag value, <code>null</code> if the
+	 * compression is not supported
+	 */
+	public static TiffCompression fromCode(int code) {
+		for (TiffCompression c : values()) {
+			if (c.code == code) {
+				return c;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param compression name of the compression (case insensitive), e.g.
+	 * <code>deflate</code>, may be <code>null</code>
+	 * @return the compression with the given name, {@link #NONE} if the name is
+	 * <code>null</code> or empty
+	 * @throws IllegalArgumentException if the compression is not supported
+	 */
+	public static TiffCompression fromString(String compression) {
+		if (compression == null || compression.trim().isEmpty()) {
+			return NONE;
+		}
+		return valueOf(compression.trim().toUpperCase());
+	}
+
+	/**
+	 * @param data the uncompressed bytes of a tile
+	 * @return the compressed bytes, the given array for {@link #NONE}
+	 */
+	byte[] encode(byte[] data) {
+		switch (this) {
+			case LZW:
+				return LZWCodec.encode(data);
+			case DEFLATE:
+				Deflater deflater = new Deflater();
+				try {
+					deflater.setInput(data);
+					deflater.finish();
+					ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 64);
+					byte[] buf = new byte[8192];
+					while (!deflater.finished()) {
+						out.write(buf, 0, deflater.deflate(buf));
+					}
+					return out.toByteArray();
+				}
+				finally {
+					deflater.end();
+				}
+			default:
+				return data;
+		}
+	}
+
+	/**
+	 * @param data the compressed bytes of a tile
+	 * @param size the size of the uncompressed tile in bytes
+	 * @return the uncompressed bytes, missing bytes of truncated tiles are zero
+	 * @throws IOException if the data is corrupt
+	 */
+	byte[] decode(byte[] data, int size) throws IOException {
+		switch (this) {
+			case LZW:
+				return LZWCodec.decode(data, size);
+			case DEFLATE:
+				Inflater inflater = new Inflater();
+				try {
+					inflater.setInput(data);
+					byte[] result = new byte[size];
+					int read = 0;
+					while (read < size && !inflater.finished()) {
+						int n = inflater.inflate(result, read, size - read);
+						if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+							break;
+						}
+						read += n;
+					}
+					return result;
+				}
+				catch (DataFormatException e) {
+					throw new IOException("Corrupt deflate compressed tile: " + e.getMessage(), e);
+				}
+				finally {
+					inflater.end();
+				}
+			default:
+				if (data.length == size) {
+					return data;
+				}
+				byte[] result = new byte[size];
+				System.arraycopy(data, 0, result, 0, Math.min(size, data.length));
+				return result;
+		}
+	}
+
+	/**
+	 * @param size number of uncompressed bytes
+	 * @return an upper bound of the size of the encoded bytes
+	 */
+	long maxEncodedSize(long size) {
+		switch (this) {
+			case LZW:
+				// at most 12 bit per input byte, plus clear and end of information codes
+				return size + size / 2 + 16;
+			case DEFLATE:
+				return size + size / 1000 + 64;
+			default:
+				return size;
+		}
+	}
+
+}
@@ -0,0 +1,287 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.coverage.raster.io.cog;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A TIFF image file directory (IFD) which is written in the classic or the BigTIFF
+ * layout. The size of a directory only depends on the tags and the number of their
+ * values, so the space of a directory can be reserved before its values are known.
+ */
+final class TiffDirectory {
+
+	static final int TYPE_ASCII = 2;
+
+	static final int TYPE_SHORT = 3;
+
+	static final int TYPE_LONG = 4;
+
+	static final int TYPE_DOUBLE = 12;
+
+	static final int TYPE_LONG8 = 16;
+
+	static final int TAG_NEW_SUBFILE_TYPE = 254;
+
+	static final int TAG_IMAGE_WIDTH = 256;
+
+	static final int TAG_IMAGE_LENGTH = 257;
+
+	static final int TAG_BITS_PER_SAMPLE = 258;
+
+	static final int TAG_COMPRESSION = 259;
+
+	static final int TAG_PHOTOMETRIC = 262;
+
+	static final int TAG_STRIP_OFFSETS = 273;
+
+	static final int TAG_SAMPLES_PER_PIXEL = 277;
+
+	static final int TAG_ROWS_PER_STRIP = 278;
+
+	static final int TAG_STRIP_BYTE_COUNTS = 279;
+
+	static final int TAG_PLANAR_CONFIGURATION = 284;
+
+	static final int TAG_PREDICTOR = 317;
+
+	static final int TAG_TILE_WIDTH = 322;
+
+	static final int TAG_TILE_LENGTH = 323;
+
+	static final int TAG_TILE_OFFSETS = 324;
+
+	static final int TAG_TILE_BYTE_COUNTS = 325;
+
+	static final int TAG_EXTRA_SAMPLES = 338;
+
+	static final int TAG_SAMPLE_FORMAT = 339;
+
+	static final int TAG_MODEL_PIXEL_SCALE = 33550;
+
+	static final int TAG_MODEL_TIE_POINT = 33922;
+
+	static final int TAG_GEO_KEY_DIRECTORY = 34735;
+
+	static final int TAG_GDAL_NODATA = 42113;
+
+	private final Map<Integer, Entry> entries = new TreeMap<>();
+
+	private final boolean bigTiff;
+
+	/**
+	 * @param bigTiff <code>true</code> if the directory is written in the BigTIFF
+	 * layout
+	 */
+	TiffDirectory(boolean bigTiff) {
+		this.bigTiff = bigTiff;
+	}
+
+	/**
+	 * Adds an integral tag, existing values of the tag are replaced.
+	 * @param tag the tag number
+	 * @param type one of {@link #TYPE_SHORT}, {@link #TYPE_LONG} or {@link #TYPE_LONG8}
+	 * @param values the values of the tag
+	 */
+	void add(int tag, int type, long... values) {
+		entries.put(tag, new Entry(type, values.length, values, null));
+	}
+
+	/**
+	 * Adds a tag of type {@link #TYPE_DOUBLE}, existing values of the tag are replaced.
+	 * @param tag the tag number
+	 * @param values the values of the tag
+	 */
+	void add(int tag, double... values) {
+		entries.put(tag, new Entry(TYPE_DOUBLE, values.length, null, values));
+	}
+
+	/**
+	 * @return the number of bytes of the directory including the values which do not fit
+	 * into the entries
+	 */
+	long size() {
+		long size = (bigTiff ? 16 : 6) + (long) entries.size() * entrySize();
+		for (Entry e : entries.values()) {
+			long length = e.length();
+			if (length > inlineSize()) {
+				size += length + (length & 1);
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Writes the directory into the buffer at its position.
+	 * @param buf to write to, the values are written in its byte order
+	 * @param offset the file offset of the buffer position
+	 * @param nextDirectory the file offset of the next directory, 0 for the last one
+	 */
+	void write(ByteBuffer buf, long offset, long nextDirectory) {
+		int start = buf.position();
+		long valueOffset = offset + (bigTiff ? 16 : 6) + (long) entries.size() * entrySize();
+		int valuePos = (int) (start + valueOffset - offset);
+		if (bigTiff) {
+			buf.putLong(entries.size());
+		}
+		else {
+			buf.putShort((short) entries.size());
+		}
+		for (Map.Entry<Integer, Entry> tagEntry : entries.entrySet()) {
+			Entry e = tagEntry.getValue();
+			buf.putShort((short) tagEntry.getKey().intValue());
+			buf.putShort((short) e.type);
+			putOffset(buf, e.count);
+			long length = e.length();
+			if (length <= inlineSize()) {
+				int entryEnd = buf.position() + inlineSize();
+				e.putValues(buf);
+				while (buf.position() < entryEnd) {
+					buf.put((byte) 0);
+				}
+			}
+			else {
+				putOffset(buf, valueOffset);
+				int pos = buf.position();
+				buf.position(valuePos);
+				e.putValues(buf);
+				if ((length & 1) != 0) {
+					buf.put((byte) 0);
+				}
+				valuePos = buf.position();
+				valueOffset += length + (length & 1);
+				buf.position(pos);
+			}
+		}
+		putOffset(buf, nextDirectory);
+		buf.position(valuePos);
+	}
+
+	private int entrySize() {
+		return bigTiff ? 20 : 12;
+	}
+
+	private int inlineSize() {
+		return bigTiff ? 8 : 4;
+	}
+
+	// a count or an offset, 4 bytes in classic TIFF and 8 bytes in BigTIFF
+	private void putOffset(ByteBuffer buf, long value) {
+		if (bigTiff) {
+			buf.putLong(value);
+		}
+		else {
+			buf.putInt((int) value);
+		}
+	}
+
+	private static class Entry {
+
+		private final int type;
+
+		private final int count;
+
+		private final long[] values;
+
+		private final double[] doubles;
+
+		Entry(int type, int count, long[] values, double[] doubles) {
+			this.type = type;
+			this.count = count;
+			this.values = values;
+			this.doubles = doubles;
+		}
+
+		long length() {
+			return (long) count * typeSize(type);
+		}
+
+		void putValues(ByteBuffer buf) {
+			for (int i = 0; i < count; ++i) {
+				switch (type) {
+					case TYPE_ASCII:
+						buf.put((byte) values[i]);
+						break;
+					case TYPE_SHORT:
+						buf.putShort((short) values[i]);
+						break;
+					case TYPE_LONG:
+						buf.putInt((int) values[i]);
+						break;
+					case TYPE_DOUBLE:
+						buf.putDouble(doubles[i]);
+						break;
+					default:
+						buf.putLong(values[i]);
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * @param type a TIFF field type
+	 * @return the size of a single value of the type in bytes, 0 for unknown types
+	 */
+	static int typeSize(int type) {
+		switch (type) {
+			case 1:
+			case TYPE_ASCII:
+			case 6:
+			case 7:
+				return 1;
+			case TYPE_SHORT:
+			case 8:
+				return 2;
+			case TYPE_LONG:
+			case 9:
+			case 11:
+			case 13:
+				return 4;
+			case 5:
+			case 10:
+			case TYPE_DOUBLE:
+			case TYPE_LONG8:
+			case 17:
+			case 18:
+				return 8;
+			default:
+				return 0;
+		}
+	}
+
+}
@@ -0,0 +1,362 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.coverage.raster.io.cog;
+
+import static java.nio.file.StandardOpenOption.READ;
+import static org.deegree.coverage.raster.io.cog.TiffDirectory.TYPE_ASCII;
+import static org.deegree.coverage.raster.io.cog.TiffDirectory.TYPE_DOUBLE;
+import static org.deegree.coverage.raster.io.cog.TiffDirectory.TYPE_LONG;
+import static org.deegree.coverage.raster.io.cog.TiffDirectory.TYPE_LONG8;
+import static org.deegree.coverage.raster.io.cog.TiffDirectory.TYPE_SHORT;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A TIFF or BigTIFF file, whose image file directories are parsed once when it is
+ * opened. Tile data is read with positional reads, which may be done concurrently.
+ */
+final class TiffFile implements Closeable {
+
+	// protects against cyclic directory chains
+	private static final int MAX_IMAGES = 1024;
+
+	private static final Set<Integer> TAGS = new HashSet<Integer>();
+	static {
+		int[] tags = { TiffDirectory.TAG_NEW_SUBFILE_TYPE, TiffDirectory.TAG_IMAGE_WIDTH,
+				TiffDirectory.TAG_IMAGE_LENGTH, TiffDirectory.TAG_BITS_PER_SAMPLE, TiffDirectory.TAG_COMPRESSION,
+				TiffDirectory.TAG_PHOTOMETRIC, TiffDirectory.TAG_STRIP_OFFSETS, TiffDirectory.TAG_SAMPLES_PER_PIXEL,
+				TiffDirectory.TAG_ROWS_PER_STRIP, TiffDirectory.TAG_STRIP_BYTE_COUNTS,
+				TiffDirectory.TAG_PLANAR_CONFIGURATION, TiffDirectory.TAG_PREDICTOR, TiffDirectory.TAG_TILE_WIDTH,
+				TiffDirectory.TAG_TILE_LENGTH, TiffDirectory.TAG_TILE_OFFSETS, TiffDirectory.TAG_TILE_BYTE_COUNTS,
+				TiffDirectory.TAG_EXTRA_SAMPLES, TiffDirectory.TAG_SAMPLE_FORMAT, TiffDirectory.TAG_MODEL_PIXEL_SCALE,
+				TiffDirectory.TAG_MODEL_TIE_POINT, TiffDirectory.TAG_GEO_KEY_DIRECTORY,
+				TiffDirectory.TAG_GDAL_NODATA };
+		for (int tag : tags) {
+			TAGS.add(tag);
+		}
+	}
+
+	private final File file;
+
+	private final ByteOrder order;
+
+	private final boolean bigTiff;
+
+	private final List<TiffImage> images;
+
+	private FileChannel channel;
+
+	/**
+	 * Opens the file and parses all of its image file directories.
+	 * @param file to open
+	 * @throws IOException if the file could not be read or is no TIFF file
+	 */
+	TiffFile(File file) throws IOException {
+		this.file = file;
+		channel = FileChannel.open(file.toPath(), READ);
+		try {
+			ByteBuffer header = read(0, 8, ByteOrder.BIG_ENDIAN);
+			int byteOrder = header.getShort(0);
+			if (byteOrder == 0x4949) {
+				order = ByteOrder.LITTLE_ENDIAN;
+			}
+			else if (byteOrder == 0x4D4D) {
+				order = ByteOrder.BIG_ENDIAN;
+			}
+			else {
+				throw new IOException(file + " is no TIFF file.");
+			}
+			header.order(order);
+			int version = header.getShort(2);
+			if (version != 42 && version != 43) {
+				throw new IOException(file + " is no TIFF file, version is " + version + ".");
+			}
+			bigTiff = version == 43;
+			if (bigTiff) {
+				header = read(0, 16, order);
+			}
+			long offset = bigTiff ? header.getLong(8) : header.getInt(4) & 0xFFFFFFFFL;
+			List<TiffImage> result = new ArrayList<TiffImage>();
+			while (offset != 0) {
+				if (result.size() == MAX_IMAGES) {
+					throw new IOException(file + " has more than " + MAX_IMAGES + " images.");
+				}
+				offset = readDirectory(offset, result);
+			}
+			if (result.isEmpty()) {
+				throw new IOException(file + " contains no image.");
+			}
+			images = Collections.unmodifiableList(result);
+		}
+		catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	private TiffFile(TiffFile other) {
+		this.file = other.file;
+		this.order = other.order;
+		this.bigTiff = other.bigTiff;
+		this.images = other.images;
+	}
+
+	/**
+	 * Returns another handle of the file, which shares the parsed image file directories,
+	 * but reads through its own channel (opened on the first read). Closing one handle
+	 * does not affect the others.
+	 * @return a new handle, never <code>null</code>
+	 */
+	TiffFile duplicate() {
+		return new TiffFile(this);
+	}
+
+	/**
+	 * @param file to check
+	 * @return <code>true</code> if the file starts with a (Big)TIFF header
+	 */
+	static boolean isTiff(File file) {
+		if (file == null || !file.isFile()) {
+			return false;
+		}
+		try (FileChannel ch = FileChannel.open(file.toPath(), READ)) {
+			ByteBuffer buf = ByteBuffer.allocate(4);
+			while (buf.hasRemaining() && ch.read(buf) >= 0) {
+				// read the header
+			}
+			if (buf.hasRemaining()) {
+				return false;
+			}
+			int byteOrder = buf.getShort(0);
+			if (byteOrder == 0x4949) {
+				buf.order(ByteOrder.LITTLE_ENDIAN);
+			}
+			else if (byteOrder != 0x4D4D) {
+				return false;
+			}
+			int version = buf.getShort(2);
+			return version == 42 || version == 43;
+		}
+		catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * @return the file
+	 */
+	File getFile() {
+		return file;
+	}
+
+	/**
+	 * @return the byte order of the file
+	 */
+	ByteOrder getByteOrder() {
+		return order;
+	}
+
+	/**
+	 * @return the images in the order of the directory chain, never empty
+	 */
+	List<TiffImage> getImages() {
+		return images;
+	}
+
+	/**
+	 * Reads bytes from the file, the file is reopened if it was closed.
+	 * @param offset in the file
+	 * @param length number of bytes to read
+	 * @return the bytes
+	 * @throws IOException if the file could not be read or ends before
+	 */
+	byte[] read(long offset, int length) throws IOException {
+		return read(offset, length, order).array();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (channel != null) {
+			channel.close();
+			channel = null;
+		}
+	}
+
+	private ByteBuffer read(long offset, int length, ByteOrder byteOrder) throws IOException {
+		ByteBuffer buf = ByteBuffer.allocate(length).order(byteOrder);
+		try {
+			read(channel(), buf, offset);
+		}
+		catch (ClosedByInterruptException e) {
+			// the interrupt status is still set, so another attempt would fail as well
+			throw e;
+		}
+		catch (ClosedChannelException e) {
+			// closed by dispose or by another, interrupted reader, try once more
+			buf.clear();
+			read(channel(), buf, offset);
+		}
+		buf.flip();
+		return buf;
+	}
+
+	private void read(FileChannel ch, ByteBuffer buf, long offset) throws IOException {
+		long pos = offset;
+		while (buf.hasRemaining()) {
+			int n = ch.read(buf, pos);
+			if (n < 0) {
+				throw new EOFException("Unexpected end of " + file + " at " + pos + ".");
+			}
+			pos += n;
+		}
+	}
+
+	private synchronized FileChannel channel() throws IOException {
+		if (channel == null || !channel.isOpen()) {
+			channel = FileChannel.open(file.toPath(), READ);
+		}
+		return channel;
+	}
+
+	private long readDirectory(long offset, List<TiffImage> result) throws IOException {
+		int countSize = bigTiff ? 8 : 2;
+		int entrySize = bigTiff ? 20 : 12;
+		int inlineSize = bigTiff ? 8 : 4;
+		ByteBuffer countBuf = read(offset, countSize, order);
+		long count = bigTiff ? countBuf.getLong(0) : countBuf.getShort(0) & 0xFFFF;
+		if (count <= 0 || count > 4096) {
+			throw new IOException("Invalid number of directory entries (" + count + ") in " + file + ".");
+		}
+		ByteBuffer entries = read(offset + countSize, (int) count * entrySize + inlineSize, order);
+		Map<Integer, Object> values = new HashMap<Integer, Object>();
+		for (int i = 0; i < count; ++i) {
+			int pos = i * entrySize;
+			int tag = entries.getShort(pos) & 0xFFFF;
+			int type = entries.getShort(pos + 2) & 0xFFFF;
+			long n = bigTiff ? entries.getLong(pos + 4) : entries.getInt(pos + 4) & 0xFFFFFFFFL;
+			int valuePos = pos + (bigTiff ? 12 : 8);
+			int typeSize = TiffDirectory.typeSize(type);
+			if (!TAGS.contains(tag) || typeSize == 0 || n <= 0 || n > Integer.MAX_VALUE / 8) {
+				continue;
+			}
+			long length = n * typeSize;
+			ByteBuffer data;
+			if (length <= inlineSize) {
+				data = entries.duplicate().order(order);
+				data.position(valuePos);
+			}
+			else {
+				long valueOffset = bigTiff ? entries.getLong(valuePos) : entries.getInt(valuePos) & 0xFFFFFFFFL;
+				data = read(valueOffset, (int) length, order);
+			}
+			values.put(tag, decode(data, type, (int) n));
+		}
+		result.add(new TiffImage(values));
+		int next = (int) count * entrySize;
+		return bigTiff ? entries.getLong(next) : entries.getInt(next) & 0xFFFFFFFFL;
+	}
+
+	private static Object decode(ByteBuffer data, int type, int count) {
+		if (type == TYPE_ASCII) {
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < count; ++i) {
+				char c = (char) (data.get() & 0xFF);
+				if (c == 0) {
+					break;
+				}
+				sb.append(c);
+			}
+			return sb.toString();
+		}
+		if (type == TYPE_DOUBLE || type == 11) {
+			double[] result = new double[count];
+			for (int i = 0; i < count; ++i) {
+				result[i] = type == TYPE_DOUBLE ? data.getDouble() : data.getFloat();
+			}
+			return result;
+		}
+		long[] result = new long[count];
+		for (int i = 0; i < count; ++i) {
+			switch (type) {
+				case TYPE_SHORT:
+					result[i] = data.getShort() & 0xFFFF;
+					break;
+				case TYPE_LONG:
+					result[i] = data.getInt() & 0xFFFFFFFFL;
+					break;
+				case TYPE_LONG8:
+				case 17:
+				case 18:
+					result[i] = data.getLong();
+					break;
+				case 8:
+					result[i] = data.getShort();
+					break;
+				case 9:
+				case 13:
+					result[i] = data.getInt();
+					break;
+				case 6:
+					result[i] = data.get();
+					break;
+				case 5:
+				case 10:
+					// rationals are not needed, keep the numerator
+					result[i] = data.getInt();
+					data.getInt();
+					break;
+				default:
+					result[i] = data.get() & 0xFF;
+			}
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,329 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.coverage.raster.io.cog;
+
+import java.util.Map;
+
+import org.deegree.coverage.raster.data.info.BandType;
+import org.deegree.coverage.raster.data.info.DataType;
+
+/**
+ * The description of an image of a {@link TiffFile}, taken from its image file
+ * directory. Strips are handled as tiles spanning the width of the image.
+ */
+final class TiffImage {
+
+	private static final long[] NONE = new long[0];
+
+	private final int width;
+
+	private final int height;
+
+	private final int tileWidth;
+
+	private final int tileHeight;
+
+	private final int samplesPerPixel;
+
+	private final int bitsPerSample;
+
+	private final boolean uniformSamples;
+
+	private final int sampleFormat;
+
+	private final int compression;
+
+	private final int predictor;
+
+	private final int planarConfiguration;
+
+	private final int photometric;
+
+	private final long subfileType;
+
+	private final long[] offsets;
+
+	private final long[] byteCounts;
+
+	private final long[] extraSamples;
+
+	private final double[] pixelScale;
+
+	private final double[] tiePoint;
+
+	private final long[] geoKeys;
+
+	private final String noData;
+
+	TiffImage(Map<Integer, Object> tags) {
+		width = (int) first(tags, TiffDirectory.TAG_IMAGE_WIDTH, 0);
+		height = (int) first(tags, TiffDirectory.TAG_IMAGE_LENGTH, 0);
+		samplesPerPixel = (int) first(tags, TiffDirectory.TAG_SAMPLES_PER_PIXEL, 1);
+		long[] bits = longs(tags, TiffDirectory.TAG_BITS_PER_SAMPLE);
+		bitsPerSample = bits.length == 0 ? 1 : (int) bits[0];
+		boolean uniform = true;
+		for (long b : bits) {
+			uniform &= b == bitsPerSample;
+		}
+		uniformSamples = uniform;
+		sampleFormat = (int) first(tags, TiffDirectory.TAG_SAMPLE_FORMAT, 1);
+		compression = (int) first(tags, TiffDirectory.TAG_COMPRESSION, 1);
+		predictor = (int) first(tags, TiffDirectory.TAG_PREDICTOR, 1);
+		planarConfiguration = (int) first(tags, TiffDirectory.TAG_PLANAR_CONFIGURATION, 1);
+		photometric = (int) first(tags, TiffDirectory.TAG_PHOTOMETRIC, 1);
+		subfileType = first(tags, TiffDirectory.TAG_NEW_SUBFILE_TYPE, 0);
+		if (tags.containsKey(TiffDirectory.TAG_TILE_OFFSETS)) {
+			tileWidth = (int) first(tags, TiffDirectory.TAG_TILE_WIDTH, 0);
+			tileHeight = (int) first(tags, TiffDirectory.TAG_TILE_LENGTH, 0);
+			offsets = longs(tags, TiffDirectory.TAG_TILE_OFFSETS);
+			byteCounts = longs(tags, TiffDirectory.TAG_TILE_BYTE_COUNTS);
+		}
+		else {
+			tileWidth = width;
+			tileHeight = (int) Math.min(height, first(tags, TiffDirectory.TAG_ROWS_PER_STRIP, height));
+			offsets = longs(tags, TiffDirectory.TAG_STRIP_OFFSETS);
+			byteCounts = longs(tags, TiffDirectory.TAG_STRIP_BYTE_COUNTS);
+		}
+		extraSamples = longs(tags, TiffDirectory.TAG_EXTRA_SAMPLES);
+		Object scale = tags.get(TiffDirectory.TAG_MODEL_PIXEL_SCALE);
+		pixelScale = scale instanceof double[] ? (double[]) scale : null;
+		Object tie = tags.get(TiffDirectory.TAG_MODEL_TIE_POINT);
+		tiePoint = tie instanceof double[] ? (double[]) tie : null;
+		geoKeys = longs(tags, TiffDirectory.TAG_GEO_KEY_DIRECTORY);
+		Object nd = tags.get(TiffDirectory.TAG_GDAL_NODATA);
+		noData = nd instanceof String ? ((String) nd).trim() : null;
+	}
+
+	private static long[] longs(Map<Integer, Object> tags, int tag) {
+		Object values = tags.get(tag);
+		return values instanceof long[] ? (long[]) values : NONE;
+	}
+
+	private static long first(Map<Integer, Object> tags, int tag, long defaultValue) {
+		long[] values = longs(tags, tag);
+		return values.length == 0 ? defaultValue : values[0];
+	}
+
+	/**
+	 * @return the reason why the image can not be read, <code>null</code> if it can be
+	 * read
+	 */
+	String getUnsupportedReason() {
+		if (width <= 0 || height <= 0 || tileWidth <= 0 || tileHeight <= 0) {
+			return "the image or tile size is missing";
+		}
+		if (getCompression() == null) {
+			return "compression " + compression + " is not supported";
+		}
+		if (planarConfiguration != 1 && samplesPerPixel > 1) {
+			return "separate sample planes are not supported";
+		}
+		if (!uniformSamples || getDataType() == DataType.UNDEFINED) {
+			return bitsPerSample + " bit samples of format " + sampleFormat + " are not supported";
+		}
+		if (predictor != 1 && (predictor != 2 || sampleFormat == 3)) {
+			return "predictor " + predictor + " is not supported";
+		}
+		if (photometric > 2) {
+			return "photometric interpretation " + photometric + " is not supported";
+		}
+		if (samplesPerPixel > BandType.BAND_9.ordinal() + 1) {
+			return samplesPerPixel + " samples per pixel are not supported";
+		}
+		long tiles = (long) getTilesAcross() * getTilesDown();
+		if (offsets.length < tiles || byteCounts.length < tiles) {
+			return "tile offsets are missing";
+		}
+		if ((long) tileWidth * tileHeight * getPixelSize() > Integer.MAX_VALUE) {
+			return "the tiles are too large";
+		}
+		return null;
+	}
+
+	/**
+	 * @return the type of the samples, {@link DataType#UNDEFINED} if not supported
+	 */
+	DataType getDataType() {
+		switch (bitsPerSample) {
+			case 8:
+				return sampleFormat == 3 ? DataType.UNDEFINED : DataType.BYTE;
+			case 16:
+				return sampleFormat == 3 ? DataType.UNDEFINED : sampleFormat == 2 ? DataType.SHORT : DataType.USHORT;
+			case 32:
+				return sampleFormat == 3 ? DataType.FLOAT : DataType.INT;
+			case 64:
+				return sampleFormat == 3 ? DataType.DOUBLE : DataType.UNDEFINED;
+			default:
+				return DataType.UNDEFINED;
+		}
+	}
+
+	/**
+	 * @return the bands of the image
+	 */
+	BandType[] getBands() {
+		BandType[] bands = new BandType[samplesPerPixel];
+		int color = 0;
+		if (photometric == 2 && samplesPerPixel >= 3) {
+			bands[0] = BandType.RED;
+			bands[1] = BandType.GREEN;
+			bands[2] = BandType.BLUE;
+			color = 3;
+		}
+		else if (photometric <= 1 && samplesPerPixel == 2 && extraSamples.length == 1 && extraSamples[0] != 0) {
+			// grey with alpha
+			bands[0] = BandType.BAND_0;
+			bands[1] = BandType.ALPHA;
+			return bands;
+		}
+		for (int i = color; i < samplesPerPixel; ++i) {
+			int extra = i - color;
+			boolean alpha = color == 3 && extra < extraSamples.length && extraSamples[extra] != 0;
+			bands[i] = alpha ? BandType.ALPHA : BandType.values()[BandType.BAND_0.ordinal() + i];
+		}
+		return bands;
+	}
+
+	/**
+	 * @param tile index of the tile, row by row
+	 * @return the offset of the tile in the file, 0 for sparse tiles
+	 */
+	long getOffset(int tile) {
+		return offsets[tile];
+	}
+
+	/**
+	 * @param tile index of the tile, row by row
+	 * @return the number of (compressed) bytes of the tile, 0 for sparse tiles
+	 */
+	long getByteCount(int tile) {
+		return byteCounts[tile];
+	}
+
+	/**
+	 * @return <code>true</code> if the image is a transparency mask
+	 */
+	boolean isMask() {
+		return (subfileType & 4) != 0;
+	}
+
+	TiffCompression getCompression() {
+		// 32946 is the obsolete code of deflate compression
+		return compression == 32946 ? TiffCompression.DEFLATE : TiffCompression.fromCode(compression);
+	}
+
+	int getWidth() {
+		return width;
+	}
+
+	int getHeight() {
+		return height;
+	}
+
+	int getTileWidth() {
+		return tileWidth;
+	}
+
+	int getTileHeight() {
+		return tileHeight;
+	}
+
+	int getTilesAcross() {
+		return (width + tileWidth - 1) / tileWidth;
+	}
+
+	int getTilesDown() {
+		return (height + tileHeight - 1) / tileHeight;
+	}
+
+	int getSamplesPerPixel() {
+		return samplesPerPixel;
+	}
+
+	int getSampleSize() {
+		return bitsPerSample / 8;
+	}
+
+	int getPixelSize() {
+		return samplesPerPixel * bitsPerSample / 8;
+	}
+
+	int getPredictor() {
+		return predictor;
+	}
+
+	/**
+	 * @return the pixel scale (x, y, z), <code>null</code> if the image has none
+	 */
+	double[] getPixelScale() {
+		return pixelScale;
+	}
+
+	/**
+	 * @return the tie points (raster i, j, k and model x, y, z), <code>null</code> if the
+	 * image has none
+	 */
+	double[] getTiePoint() {
+		return tiePoint;
+	}
+
+	/**
+	 * @param key a GeoKey id
+	 * @return the value of a short valued GeoKey, -1 if the key is not set
+	 */
+	int getGeoKey(int key) {
+		if (geoKeys.length < 4) {
+			return -1;
+		}
+		int count = (int) geoKeys[3];
+		for (int i = 0; i < count && 4 + 4 * i + 3 < geoKeys.length; ++i) {
+			int pos = 4 + 4 * i;
+			// location 0 means the value is stored in the entry
+			if (geoKeys[pos] == key && geoKeys[pos + 1] == 0) {
+				return (int) geoKeys[pos + 3];
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the no data value of the GDAL_NODATA tag, <code>null</code> if the image
+	 * has none
+	 */
+	String getNoData() {
+		return noData;
+	}
+
+}
@@ -57,6 +57,7 @@ import java.util.Set;
 
 import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
 import javax.imageio.ImageWriteParam;
 import javax.imageio.ImageWriter;
 import javax.imageio.metadata.IIOInvalidTreeException;
@@ -151,11 +152,7 @@ public class GeoTiffWriter {
 	 * description and the raster type.
 	 */
 	private static TIFFField createDirectoryTag(RasterGeoReference geoRef) {
-		Map<Integer, char[]> geoKeyDirectoryTag = new HashMap<Integer, char[]>();
-		addCRS(geoKeyDirectoryTag, geoRef.getCrs());
-		addGTRasterTypeGeoKey(geoKeyDirectoryTag, geoRef.getOriginLocation());
-		// space for the header and the keys.
-		char[] geoKeys = extractGeoKeys(geoKeyDirectoryTag);
+		char[] geoKeys = createGeoKeyDirectory(geoRef);
 		if (geoKeys.length > 4) {
 			TIFFTag tag = GEO_TAG_SET.getTag(GeoTIFFTagSet.TAG_GEO_KEY_DIRECTORY);
 			return new TIFFField(tag, TIFFTag.TIFF_SHORT, geoKeys.length, geoKeys);
@@ -164,11 +161,28 @@ public class GeoTiffWriter {
 	}
 
 	/**
-	 * @param geoKeyDirectoryTag2
+	 * Creates the values of the GeoKeyDirectoryTag, describing the crs and the raster
+	 * type of the given geo reference.
+	 * @param geoRef the geo reference of the raster, must not be <code>null</code>
+	 * @return the header and the keys of the directory, only the header if the geo
+	 * reference has no crs
+	 */
+	public static char[] createGeoKeyDirectory(RasterGeoReference geoRef) {
+		Map<Integer, char[]> geoKeyDirectoryTag = new HashMap<Integer, char[]>();
+		addCRS(geoKeyDirectoryTag, geoRef.getCrs());
+		addGTRasterTypeGeoKey(geoKeyDirectoryTag, geoRef.getOriginLocation());
+		// space for the header and the keys.
+		return extractGeoKeys(geoKeyDirectoryTag);
+	}
+
+	/**
+	 * The tie point is the origin of the geo reference, so an origin on the outer corner
+	 * of the first pixel means the pixels are areas.
+	 * @param geoKeyDirectoryTag
 	 * @param originLocation
 	 */
 	private static void addGTRasterTypeGeoKey(Map<Integer, char[]> geoKeyDirectoryTag, OriginLocation originLocation) {
-		char val = originLocation == OriginLocation.CENTER ? RasterPixelIsArea : RasterPixelIsPoint;
+		char val = originLocation == OriginLocation.CENTER ? RasterPixelIsPoint : RasterPixelIsArea;
 		geoKeyDirectoryTag.put(GTRasterTypeGeoKey, new char[] { 0, 1, val });
 	}
 
@@ -297,7 +311,25 @@ public class GeoTiffWriter {
 
 	private static void write(BufferedImage img, RasterGeoReference ref, ImageWriter writer) throws IOException {
 		ImageWriteParam encodeParam = writer.getDefaultWriteParam();
-		IIOMetadata metadata = writer.getDefaultImageMetadata(null, encodeParam);
+		IIOMetadata metadata = createMetadata(writer, null, encodeParam, ref);
+		IIOImage wImage = new IIOImage(img, null, metadata);
+		writer.write(wImage);
+
+	}
+
+	/**
+	 * Creates the image metadata containing the GeoTIFF tags (tie point, pixel scale and
+	 * geo key directory) of the given geo reference.
+	 * @param writer the TIFF writer the metadata is created for, see {@link #getWriter()}
+	 * @param type of the image to write, may be <code>null</code>
+	 * @param param the parameters used for writing, may be <code>null</code>
+	 * @param ref the geo reference of the image, must not be <code>null</code>
+	 * @return the metadata to write with the image, never <code>null</code>
+	 * @throws IOException if the metadata could not be created
+	 */
+	public static IIOMetadata createMetadata(ImageWriter writer, ImageTypeSpecifier type, ImageWriteParam param,
+			RasterGeoReference ref) throws IOException {
+		IIOMetadata metadata = writer.getDefaultImageMetadata(type, param);
 		TIFFDirectory tiffDir = null;
 		try {
 			tiffDir = TIFFDirectory.createFromMetadata(metadata);
@@ -319,13 +351,14 @@ public class GeoTiffWriter {
 		if (tag != null) {
 			tiffDir.addTIFFField(tag);
 		}
-		metadata = tiffDir.getAsMetadata();
-		IIOImage wImage = new IIOImage(img, null, metadata);
-		writer.write(wImage);
-
+		return tiffDir.getAsMetadata();
 	}
 
-	private static ImageWriter getWriter() throws IOException {
+	/**
+	 * @return a new imageio-ext TIFF writer
+	 * @throws IOException if no such writer is registered
+	 */
+	public static ImageWriter getWriter() throws IOException {
 		Iterator<ImageWriter> imageWritersByFormatName = ImageIO.getImageWritersByFormatName("tiff");
 		ImageWriter writer = null;
 
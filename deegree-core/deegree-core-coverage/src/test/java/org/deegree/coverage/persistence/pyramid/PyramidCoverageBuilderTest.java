@@ -0,0 +1,184 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.coverage.persistence.pyramid;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.deegree.coverage.Coverage;
+import org.deegree.coverage.persistence.pyramid.jaxb.Pyramid;
+import org.deegree.coverage.raster.AbstractRaster;
+import org.deegree.coverage.raster.MultiResolutionRaster;
+import org.deegree.coverage.raster.SimpleRaster;
+import org.deegree.coverage.raster.data.RasterData;
+import org.deegree.coverage.raster.data.nio.ByteBufferRasterData;
+import org.deegree.coverage.raster.geom.RasterGeoReference;
+import org.deegree.coverage.raster.geom.RasterGeoReference.OriginLocation;
+import org.deegree.coverage.raster.io.RasterIOOptions;
+import org.deegree.coverage.raster.io.RasterReader;
+import org.deegree.coverage.raster.io.cog.CogReader;
+import org.deegree.coverage.raster.io.cog.CogWriter;
+import org.deegree.coverage.raster.io.cog.TiffCompression;
+import org.deegree.coverage.raster.utils.RasterFactory;
+import org.deegree.workspace.ResourceLocation;
+import org.deegree.workspace.ResourceMetadata;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link PyramidCoverageBuilder}.
+ */
+public class PyramidCoverageBuilderTest {
+
+	private File input;
+
+	private AbstractRaster raster;
+
+	private File file;
+
+	@Before
+	public void setUp() throws Exception {
+		input = new File(PyramidCoverageBuilderTest.class.getResource("/org/deegree/coverage/raster/epsg4326.tiff")
+			.toURI());
+		RasterIOOptions options = RasterIOOptions.forFile(input);
+		options.add(RasterIOOptions.GEO_ORIGIN_LOCATION, OriginLocation.OUTER.name());
+		raster = RasterFactory.loadRasterFromFile(input, options);
+		file = File.createTempFile("deegree3-junit-test", ".tif");
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Test
+	public void testTiledPyramidIsReadByCogReader() throws IOException {
+		MultiResolutionRaster mrr = new MultiResolutionRaster(null);
+		mrr.addRaster(raster);
+		mrr.addRaster(createOverview(raster));
+		new CogWriter(TiffCompression.DEFLATE, 16, 2).write(mrr, file);
+
+		MultiResolutionRaster result = (MultiResolutionRaster) new PyramidCoverageBuilder(createMetadata(file),
+				createConfig(file)).build();
+
+		RasterGeoReference ref = raster.getRasterReference();
+		double res = Math.min(Math.abs(ref.getResolutionX()), Math.abs(ref.getResolutionY()));
+		List<Double> resolutions = result.getResolutions();
+		assertEquals(2, resolutions.size());
+		assertEquals(res, resolutions.get(0), 1E-10);
+		assertEquals(2 * res, resolutions.get(1), 1E-10);
+		assertTrue(result.getCoordinateSystem().hasId("epsg:4326", true, true));
+		AbstractRaster full = result.getRaster(ref.getResolutionX());
+		AbstractRaster overview = result.getRaster(2 * ref.getResolutionX());
+		assertEquals(raster.getColumns() / 2, overview.getColumns());
+		assertTrue(getReader(full) instanceof CogReader);
+		assertTrue(getReader(overview) instanceof CogReader);
+		assertPixels(raster, full);
+	}
+
+	@Test
+	public void testStrippedPyramidIsReadByImageIO() {
+		// not tiled, so not supported by the CogReader
+		assertFalse(new CogReader().canLoad(input));
+
+		MultiResolutionRaster result = (MultiResolutionRaster) new PyramidCoverageBuilder(createMetadata(input),
+				createConfig(input)).build();
+
+		assertEquals(1, result.getResolutions().size());
+		AbstractRaster level = result.getRaster(result.getResolutions().get(0));
+		assertFalse(getReader(level) instanceof CogReader);
+		assertPixels(raster, level);
+	}
+
+	private static SimpleRaster createOverview(AbstractRaster raster) {
+		// every other pixel of the raster
+		RasterGeoReference ref = raster.getRasterReference();
+		RasterGeoReference overviewRef = new RasterGeoReference(OriginLocation.OUTER, ref.getResolutionX() * 2,
+				ref.getResolutionY() * 2, ref.getOriginEasting(), ref.getOriginNorthing(),
+				raster.getCoordinateSystem());
+		int width = raster.getColumns() / 2;
+		int height = raster.getRows() / 2;
+		SimpleRaster overview = RasterFactory.createEmptyRaster(raster.getRasterDataInfo(),
+				overviewRef.getEnvelope(width, height, raster.getCoordinateSystem()), overviewRef);
+		RasterData data = raster.getAsSimpleRaster().getRasterData();
+		for (int y = 0; y < height; ++y) {
+			for (int x = 0; x < width; ++x) {
+				overview.getRasterData().setPixel(x, y, data.getPixel(2 * x, 2 * y, null));
+			}
+		}
+		return overview;
+	}
+
+	private static RasterReader getReader(AbstractRaster raster) {
+		return ((ByteBufferRasterData) raster.getAsSimpleRaster().getRasterData()).getReader();
+	}
+
+	private static void assertPixels(AbstractRaster expected, AbstractRaster actual) {
+		assertEquals(expected.getColumns(), actual.getColumns());
+		assertEquals(expected.getRows(), actual.getRows());
+		RasterData data = expected.getAsSimpleRaster().getRasterData();
+		RasterData read = actual.getAsSimpleRaster().getRasterData();
+		for (int y = 0; y < expected.getRows(); ++y) {
+			for (int x = 0; x < expected.getColumns(); ++x) {
+				assertArrayEquals(data.getPixel(x, y, null), read.getPixel(x, y, null));
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static ResourceMetadata<Coverage> createMetadata(File file) {
+		ResourceMetadata<Coverage> metadata = mock(ResourceMetadata.class);
+		ResourceLocation<Coverage> location = mock(ResourceLocation.class);
+		when(metadata.getLocation()).thenReturn(location);
+		when(location.resolveToFile(file.getName())).thenReturn(file);
+		return metadata;
+	}
+
+	private static Pyramid createConfig(File file) {
+		Pyramid config = new Pyramid();
+		config.setPyramidFile(file.getName());
+		return config;
+	}
+
+}
@@ -0,0 +1,173 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.coverage.raster.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
+import org.deegree.coverage.raster.data.info.BandType;
+import org.deegree.coverage.raster.data.info.DataType;
+import org.deegree.coverage.raster.data.info.InterleaveType;
+import org.deegree.coverage.raster.data.info.RasterDataInfo;
+import org.deegree.coverage.raster.geom.RasterGeoReference;
+import org.deegree.coverage.raster.geom.RasterGeoReference.OriginLocation;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the layout, the index and the conversion of {@link MappedTileFile}s.
+ */
+public class MappedTileFileTest {
+
+	private static final int TILE_SIZE = 10 * 5 * 3;
+
+	private File file;
+
+	@Before
+	public void createFile() throws IOException {
+		file = File.createTempFile("deegree3-junit-test", RasterCache.FILE_EXTENSION);
+		file.delete();
+	}
+
+	@After
+	public void deleteFile() {
+		file.delete();
+	}
+
+	private static ByteBuffer tile(int seed) {
+		ByteBuffer result = ByteBuffer.allocate(TILE_SIZE);
+		for (int i = 0; i < TILE_SIZE; ++i) {
+			result.put(i, (byte) (seed + i));
+		}
+		return result;
+	}
+
+	@Test
+	public void testWriteCommitAndMap() throws IOException {
+		MappedTileFile tiles = new MappedTileFile(file, 2, 3, 10, 5, 3);
+		assertFalse(tiles.isWritten(4));
+		assertFalse(file.exists());
+
+		tiles.writeTile(4, tile(7).asReadOnlyBuffer());
+		assertFalse(tiles.isWritten(4));
+		tiles.commit();
+		assertTrue(tiles.isWritten(4));
+		tiles.close();
+
+		MappedTileFile reopened = new MappedTileFile(file, 2, 3, 10, 5, 3);
+		assertTrue(reopened.isWritten(4));
+		assertFalse(reopened.isWritten(0));
+		ByteBuffer mapped = reopened.map(4, false);
+		assertTrue(mapped.isReadOnly());
+		assertEquals(TILE_SIZE, mapped.capacity());
+		assertEquals(tile(7), mapped);
+
+		// copy on write mappings do not change the file
+		ByteBuffer copy = reopened.map(4, true);
+		copy.put(0, (byte) -1);
+		assertEquals(tile(7), reopened.map(4, false));
+		reopened.close();
+	}
+
+	@Test(expected = IOException.class)
+	public void testMapUnwrittenTile() throws IOException {
+		MappedTileFile tiles = new MappedTileFile(file, 2, 3, 10, 5, 3);
+		tiles.writeTile(0, tile(0));
+		tiles.commit();
+		try {
+			tiles.map(1, false);
+		}
+		finally {
+			tiles.close();
+		}
+	}
+
+	@Test
+	public void testUncommittedTilesAreDiscarded() throws IOException {
+		MappedTileFile tiles = new MappedTileFile(file, 2, 3, 10, 5, 3);
+		tiles.writeTile(2, tile(1));
+		tiles.close();
+		assertFalse(new MappedTileFile(file, 2, 3, 10, 5, 3).isWritten(2));
+	}
+
+	@Test
+	public void testMismatchingGridRecreatesFile() throws IOException {
+		MappedTileFile tiles = new MappedTileFile(file, 2, 3, 10, 5, 3);
+		tiles.writeTile(1, tile(1));
+		tiles.commit();
+		tiles.close();
+
+		MappedTileFile other = new MappedTileFile(file, 2, 3, 10, 6, 3);
+		assertFalse(other.isWritten(1));
+		other.close();
+		assertTrue(MappedTileFile.isMappedTileFile(file));
+	}
+
+	@Test
+	public void testMigrate() throws IOException {
+		// old layout: the tiles back to back
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			for (int i = 0; i < 6; ++i) {
+				raf.write(tile(i).array());
+			}
+		}
+		boolean[][] onFile = new boolean[][] { { true, false, false }, { false, false, true } };
+		RasterDataInfo rdi = new RasterDataInfo(new BandType[] { BandType.RED, BandType.GREEN, BandType.BLUE },
+				DataType.BYTE, InterleaveType.PIXEL);
+		RasterGeoReference geoRef = new RasterGeoReference(OriginLocation.OUTER, 1, -1, 0, 10);
+		CacheInfoFile info = new CacheInfoFile(geoRef, 2, 3, 10, 5, rdi, 30, 10, onFile, 0);
+
+		assertFalse(MappedTileFile.isMappedTileFile(file));
+		assertTrue(MappedTileFile.migrate(file, info));
+		assertTrue(MappedTileFile.isMappedTileFile(file));
+		assertFalse(MappedTileFile.migrate(file, info));
+
+		MappedTileFile tiles = new MappedTileFile(file, 2, 3, 10, 5, 3);
+		assertTrue(tiles.isWritten(0));
+		assertFalse(tiles.isWritten(1));
+		assertTrue(tiles.isWritten(5));
+		assertEquals(tile(0), tiles.map(0, false));
+		assertEquals(tile(5), tiles.map(5, false));
+		tiles.close();
+	}
+
+}
@@ -118,10 +118,11 @@ public class TestRasterCache {
 		}
 	}
 
-	private static void setRasterCache() {
+	private static void setRasterCache(boolean asyncEviction) {
 		TunableParameter.resetCache();
 		System.setProperty(RasterCache.DEF_RASTER_CACHE_MEM_SIZE, "4m");
 		System.setProperty(RasterCache.DEF_RASTER_CACHE_DISK_SIZE, "5m");
+		System.setProperty(RasterCache.DEF_RASTER_CACHE_ASYNC_EVICTION, Boolean.toString(asyncEviction));
 		RasterCache.reset(true);
 	}
 
@@ -130,6 +131,7 @@ public class TestRasterCache {
 		TunableParameter.resetCache();
 		System.setProperty(RasterCache.DEF_RASTER_CACHE_MEM_SIZE, "");
 		System.setProperty(RasterCache.DEF_RASTER_CACHE_DISK_SIZE, "");
+		System.setProperty(RasterCache.DEF_RASTER_CACHE_ASYNC_EVICTION, "");
 		RasterCache.reset(true);
 	}
 
@@ -175,7 +177,7 @@ public class TestRasterCache {
 	 */
 	@Test
 	public void testTileCache() throws IOException, URISyntaxException {
-		setRasterCache();
+		setRasterCache(false);
 		TiledRaster tR = buildTiledRaster(OriginLocation.CENTER);
 		checkDiskSize(0);
 		checkMemSize(0);
@@ -299,7 +301,7 @@ public class TestRasterCache {
 
 	@Test
 	public void testMultiThreaded() throws IOException, URISyntaxException {
-		setRasterCache();
+		setRasterCache(false);
 		final TiledRaster tR = buildTiledRaster(OriginLocation.CENTER);
 		checkDiskSize(0);
 		checkMemSize(0);
@@ -406,6 +408,41 @@ public class TestRasterCache {
 
 	}
 
+	/**
+	 * Test the eviction on the background thread and the cache statistics.
+	 * @throws IOException
+	 * @throws URISyntaxException
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void testAsyncEviction() throws IOException, URISyntaxException, InterruptedException {
+		setRasterCache(true);
+		TiledRaster tR = buildTiledRaster(OriginLocation.CENTER);
+		AbstractRaster raster = buildRaster(OriginLocation.CENTER, "overview.png", "png", "epsg:26912");
+
+		tR.getSubRaster(tR.getEnvelope()).getAsSimpleRaster();
+		long misses = RasterCache.getMissCount();
+		Assert.assertTrue(misses > 0);
+		Assert.assertEquals(0, RasterCache.getHitCount());
+
+		// all tiles are in memory now
+		tR.getSubRaster(tR.getEnvelope()).getAsSimpleRaster();
+		Assert.assertEquals(misses, RasterCache.getMissCount());
+		Assert.assertTrue(RasterCache.getHitCount() > 0);
+		Assert.assertEquals(0, RasterCache.getEvictionCount());
+
+		// exceeds the memory budget, ( 3000000 + 3012012 > 4Mb)
+		((ByteBufferRasterData) raster.getSubRaster(raster.getEnvelope()).getAsSimpleRaster().getRasterData())
+			.getByteBuffer();
+		for (int i = 0; i < 50 && RasterCache.getCurrentlyUsedMemory() > 4 * 1024 * 1024; ++i) {
+			Thread.sleep(100);
+		}
+		Assert.assertTrue(RasterCache.getCurrentlyUsedMemory() <= 4 * 1024 * 1024);
+		Assert.assertTrue(RasterCache.getEvictionCount() > 0);
+		Assert.assertTrue(RasterCache.getEvictedBytes() > 0);
+		clearCache();
+	}
+
 	private void clearCache() {
 		// clear cache
 		RasterCache.clear(true);
@@ -0,0 +1,135 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.coverage.raster.interpolation;
+
+import static org.deegree.coverage.raster.data.info.BandType.BAND_0;
+import static org.deegree.coverage.raster.data.info.BandType.BAND_1;
+import static org.deegree.coverage.raster.data.info.BandType.BAND_2;
+import static org.deegree.coverage.raster.data.info.InterleaveType.PIXEL;
+import static org.deegree.coverage.raster.interpolation.InterpolationType.BILINEAR;
+import static org.deegree.coverage.raster.interpolation.InterpolationType.NEAREST_NEIGHBOR;
+import static org.junit.Assert.assertArrayEquals;
+
+import java.awt.geom.AffineTransform;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import javax.media.jai.WarpAffine;
+import javax.media.jai.WarpPolynomial;
+
+import org.deegree.coverage.raster.data.RasterDataFactory;
+import org.deegree.coverage.raster.data.info.BandType;
+import org.deegree.coverage.raster.data.info.DataType;
+import org.deegree.coverage.raster.data.nio.ByteBufferRasterData;
+import org.deegree.coverage.raster.geom.RasterRect;
+import org.junit.Test;
+
+/**
+ * Checks that the {@link WarpResampler} kernels produce the values of the
+ * {@link Interpolation} implementations.
+ */
+public class WarpResamplerTest {
+
+	private static final BandType[] BANDS = { BAND_0, BAND_1, BAND_2 };
+
+	@Test
+	public void testNearestNeighborByte() {
+		assertSameAsInterpolation(NEAREST_NEIGHBOR, DataType.BYTE);
+	}
+
+	@Test
+	public void testNearestNeighborFloat() {
+		assertSameAsInterpolation(NEAREST_NEIGHBOR, DataType.FLOAT);
+	}
+
+	@Test
+	public void testBiLinearByte() {
+		assertSameAsInterpolation(BILINEAR, DataType.BYTE);
+	}
+
+	@Test
+	public void testBiLinearShort() {
+		assertSameAsInterpolation(BILINEAR, DataType.SHORT);
+	}
+
+	@Test
+	public void testBiLinearUShort() {
+		assertSameAsInterpolation(BILINEAR, DataType.USHORT);
+	}
+
+	@Test
+	public void testBiLinearFloat() {
+		assertSameAsInterpolation(BILINEAR, DataType.FLOAT);
+	}
+
+	private static void assertSameAsInterpolation(InterpolationType type, DataType dataType) {
+		ByteBufferRasterData src = RasterDataFactory.createRasterData(300, 200, BANDS, dataType, PIXEL, false);
+		fill(src.getByteBuffer(), dataType);
+
+		// rotated and scaled, so the destination also covers pixels outside of the source
+		AffineTransform tf = AffineTransform.getRotateInstance(0.3, 150, 100);
+		tf.scale(0.8, 0.7);
+		WarpPolynomial warp = new WarpAffine(tf);
+
+		RasterRect rect = new RasterRect(0, 0, 400, 300);
+		ByteBufferRasterData expected = (ByteBufferRasterData) src.createCompatibleWritableRasterData(rect, null);
+		WarpResampler.warp(warp, InterpolationFactory.getInterpolation(type, src), expected);
+		ByteBufferRasterData actual = (ByteBufferRasterData) src.createCompatibleWritableRasterData(rect, null);
+		WarpResampler.warp(warp, type, src, actual);
+
+		assertArrayEquals(toArray(expected.getByteBuffer()), toArray(actual.getByteBuffer()));
+	}
+
+	private static byte[] toArray(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.capacity()];
+		buffer.get(0, bytes);
+		return bytes;
+	}
+
+	private static void fill(ByteBuffer buffer, DataType dataType) {
+		Random random = new Random(42);
+		if (dataType == DataType.FLOAT) {
+			for (int i = 0; i + 4 <= buffer.capacity(); i += 4) {
+				buffer.putFloat(i, random.nextFloat() * 1000);
+			}
+		}
+		else {
+			for (int i = 0; i < buffer.capacity(); ++i) {
+				buffer.put(i, (byte) random.nextInt());
+			}
+		}
+	}
+
+}
@@ -0,0 +1,291 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.coverage.raster.io.cog;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.deegree.coverage.raster.AbstractRaster;
+import org.deegree.coverage.raster.MultiResolutionRaster;
+import org.deegree.coverage.raster.SimpleRaster;
+import org.deegree.coverage.raster.data.RasterData;
+import org.deegree.coverage.raster.data.info.DataType;
+import org.deegree.coverage.raster.geom.RasterGeoReference;
+import org.deegree.coverage.raster.geom.RasterGeoReference.OriginLocation;
+import org.deegree.coverage.raster.geom.RasterRect;
+import org.deegree.coverage.raster.io.RasterIOOptions;
+import org.deegree.coverage.raster.utils.RasterFactory;
+import org.deegree.geometry.Envelope;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Reads GeoTIFFs written by the {@link CogWriter} and hand made tiled TIFFs with the
+ * {@link CogReader}.
+ */
+public class CogReaderTest {
+
+	private static AbstractRaster raster;
+
+	private File file;
+
+	@BeforeClass
+	public static void init() throws Exception {
+		File input = new File(CogReaderTest.class.getResource("/org/deegree/coverage/raster/epsg4326.tiff").toURI());
+		RasterIOOptions options = RasterIOOptions.forFile(input);
+		options.add(RasterIOOptions.GEO_ORIGIN_LOCATION, OriginLocation.OUTER.name());
+		raster = RasterFactory.loadRasterFromFile(input, options);
+	}
+
+	@Before
+	public void createFile() throws IOException {
+		file = File.createTempFile("deegree3-junit-test", ".tif");
+	}
+
+	@After
+	public void deleteFile() {
+		file.delete();
+	}
+
+	private static void assertPixels(AbstractRaster expected, AbstractRaster actual) {
+		assertEquals(expected.getColumns(), actual.getColumns());
+		assertEquals(expected.getRows(), actual.getRows());
+		RasterData data = expected.getAsSimpleRaster().getRasterData();
+		RasterData read = actual.getAsSimpleRaster().getRasterData();
+		for (int y = 0; y < expected.getRows(); ++y) {
+			for (int x = 0; x < expected.getColumns(); ++x) {
+				assertArrayEquals(data.getPixel(x, y, null), read.getPixel(x, y, null));
+			}
+		}
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		for (TiffCompression compression : TiffCompression.values()) {
+			new CogWriter(compression, 32, 2).write(raster, file, null);
+			CogReader reader = new CogReader();
+			assertTrue(reader.canLoad(file));
+			AbstractRaster result = reader.load(file, null);
+
+			assertTrue(result.getEnvelope().getCoordinateSystem().hasId("epsg:4326", true, true));
+			RasterGeoReference expected = raster.getRasterReference();
+			RasterGeoReference ref = result.getRasterReference().createRelocatedReference(OriginLocation.OUTER);
+			assertEquals(expected.getOriginEasting(), ref.getOriginEasting(), 1E-10);
+			assertEquals(expected.getOriginNorthing(), ref.getOriginNorthing(), 1E-10);
+			assertEquals(expected.getResolutionX(), ref.getResolutionX(), 1E-10);
+			assertEquals(expected.getResolutionY(), ref.getResolutionY(), 1E-10);
+			assertPixels(raster, result);
+			reader.dispose();
+		}
+	}
+
+	@Test
+	public void testSubRaster() throws IOException {
+		new CogWriter(TiffCompression.DEFLATE, 32, 2).write(raster, file, null);
+		RasterIOOptions options = new RasterIOOptions();
+		options.add(RasterIOOptions.GEO_ORIGIN_LOCATION, OriginLocation.OUTER.name());
+		AbstractRaster result = new CogReader().load(file, options);
+		// spans the boundaries of four tiles
+		Envelope envelope = raster.getRasterReference()
+			.getEnvelope(new RasterRect(20, 25, 30, 20), raster.getCoordinateSystem());
+		assertPixels(raster.getSubRaster(envelope), result.getSubRaster(envelope));
+	}
+
+	@Test
+	public void testOverviews() throws IOException {
+		// every other pixel of the raster
+		RasterGeoReference ref = raster.getRasterReference();
+		RasterGeoReference overviewRef = new RasterGeoReference(OriginLocation.OUTER, ref.getResolutionX() * 2,
+				ref.getResolutionY() * 2, ref.getOriginEasting(), ref.getOriginNorthing(),
+				raster.getCoordinateSystem());
+		int width = raster.getColumns() / 2;
+		int height = raster.getRows() / 2;
+		SimpleRaster overview = RasterFactory.createEmptyRaster(raster.getRasterDataInfo(),
+				overviewRef.getEnvelope(width, height, raster.getCoordinateSystem()), overviewRef);
+		RasterData data = raster.getAsSimpleRaster().getRasterData();
+		for (int y = 0; y < height; ++y) {
+			for (int x = 0; x < width; ++x) {
+				overview.getRasterData().setPixel(x, y, data.getPixel(2 * x, 2 * y, null));
+			}
+		}
+		MultiResolutionRaster mrr = new MultiResolutionRaster(null);
+		mrr.addRaster(raster);
+		mrr.addRaster(overview);
+		new CogWriter(TiffCompression.LZW, 16, 2).write(mrr, file);
+
+		List<AbstractRaster> levels = CogReader.loadAll(file, null, null);
+		assertEquals(2, levels.size());
+		assertPixels(raster, levels.get(0));
+		assertPixels(overview, levels.get(1));
+		assertEquals(ref.getResolutionX() * 2, levels.get(1).getRasterReference().getResolutionX(), 1E-10);
+
+		MultiResolutionRaster read = new MultiResolutionRaster(null);
+		for (AbstractRaster level : levels) {
+			read.addRaster(level);
+		}
+		assertEquals(width, read.getRaster(ref.getResolutionX() * 3).getColumns());
+		assertEquals(raster.getColumns(), read.getRaster(ref.getResolutionX()).getColumns());
+	}
+
+	@Test
+	public void testDuplicateHandles() throws IOException {
+		new CogWriter(TiffCompression.NONE, 32, 2).write(raster, file, null);
+		try (TiffFile tiff = new TiffFile(file); TiffFile other = tiff.duplicate()) {
+			assertSame(tiff.getImages(), other.getImages());
+			byte[] header = tiff.read(0, 8);
+			assertArrayEquals(header, other.read(0, 8));
+
+			Thread.currentThread().interrupt();
+			try {
+				tiff.read(0, 8);
+				fail("Expected ClosedByInterruptException");
+			}
+			catch (ClosedByInterruptException e) {
+				// expected, not retried
+			}
+			finally {
+				Thread.interrupted();
+			}
+			// reopened
+			assertArrayEquals(header, tiff.read(0, 8));
+
+			tiff.close();
+			assertArrayEquals(header, other.read(0, 8));
+		}
+	}
+
+	@Test
+	public void testLittleEndianPredictor() throws IOException {
+		// 40x20 unsigned shorts in 3x2 tiles of 16x16, the last tile is sparse
+		int width = 40;
+		int height = 20;
+		int tileSize = 16;
+		TiffDirectory dir = new TiffDirectory(false);
+		dir.add(TiffDirectory.TAG_IMAGE_WIDTH, TiffDirectory.TYPE_SHORT, width);
+		dir.add(TiffDirectory.TAG_IMAGE_LENGTH, TiffDirectory.TYPE_SHORT, height);
+		dir.add(TiffDirectory.TAG_BITS_PER_SAMPLE, TiffDirectory.TYPE_SHORT, 16);
+		dir.add(TiffDirectory.TAG_COMPRESSION, TiffDirectory.TYPE_SHORT, TiffCompression.LZW.getCode());
+		dir.add(TiffDirectory.TAG_PHOTOMETRIC, TiffDirectory.TYPE_SHORT, 1);
+		dir.add(TiffDirectory.TAG_SAMPLES_PER_PIXEL, TiffDirectory.TYPE_SHORT, 1);
+		dir.add(TiffDirectory.TAG_PREDICTOR, TiffDirectory.TYPE_SHORT, 2);
+		dir.add(TiffDirectory.TAG_TILE_WIDTH, TiffDirectory.TYPE_SHORT, tileSize);
+		dir.add(TiffDirectory.TAG_TILE_LENGTH, TiffDirectory.TYPE_SHORT, tileSize);
+		dir.add(TiffDirectory.TAG_MODEL_PIXEL_SCALE, 2.0, 2.0, 0.0);
+		dir.add(TiffDirectory.TAG_MODEL_TIE_POINT, 0.0, 0.0, 0.0, 100.0, 200.0, 0.0);
+
+		byte[][] tiles = new byte[5][];
+		for (int ty = 0; ty < 2; ++ty) {
+			for (int tx = 0; tx < 3 && tiles.length > ty * 3 + tx; ++tx) {
+				ByteBuffer tile = ByteBuffer.allocate(tileSize * tileSize * 2).order(ByteOrder.LITTLE_ENDIAN);
+				for (int y = 0; y < tileSize; ++y) {
+					int previous = 0;
+					for (int x = 0; x < tileSize; ++x) {
+						int value = sample(tx * tileSize + x, ty * tileSize + y);
+						tile.putShort((short) (value - previous));
+						previous = value;
+					}
+				}
+				tiles[ty * 3 + tx] = TiffCompression.LZW.encode(tile.array());
+			}
+		}
+		long[] offsets = new long[6];
+		long[] counts = new long[6];
+		dir.add(TiffDirectory.TAG_TILE_OFFSETS, TiffDirectory.TYPE_LONG, offsets);
+		dir.add(TiffDirectory.TAG_TILE_BYTE_COUNTS, TiffDirectory.TYPE_LONG, counts);
+		long offset = 8 + dir.size();
+		for (int i = 0; i < tiles.length; ++i) {
+			offsets[i] = offset;
+			counts[i] = tiles[i].length;
+			offset += counts[i];
+		}
+		dir.add(TiffDirectory.TAG_TILE_OFFSETS, TiffDirectory.TYPE_LONG, offsets);
+		dir.add(TiffDirectory.TAG_TILE_BYTE_COUNTS, TiffDirectory.TYPE_LONG, counts);
+
+		ByteBuffer buf = ByteBuffer.allocate((int) offset).order(ByteOrder.LITTLE_ENDIAN);
+		buf.put((byte) 'I').put((byte) 'I').putShort((short) 42).putInt(8);
+		dir.write(buf, 8, 0);
+		for (byte[] tile : tiles) {
+			buf.put(tile);
+		}
+		buf.flip();
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+			while (buf.hasRemaining()) {
+				channel.write(buf);
+			}
+		}
+
+		RasterIOOptions options = new RasterIOOptions();
+		options.setNoData(new byte[] { (byte) 0xFF, (byte) 0xFE });
+		CogReader reader = new CogReader();
+		assertTrue(reader.canLoad(file));
+		AbstractRaster result = reader.load(file, options);
+		assertEquals(DataType.USHORT, result.getRasterDataInfo().getDataType());
+		RasterGeoReference ref = result.getRasterReference().createRelocatedReference(OriginLocation.OUTER);
+		assertEquals(100, ref.getOriginEasting(), 1E-10);
+		assertEquals(200, ref.getOriginNorthing(), 1E-10);
+		assertEquals(2, ref.getResolutionX(), 1E-10);
+
+		RasterData data = result.getAsSimpleRaster().getRasterData();
+		for (int y = 0; y < height; ++y) {
+			for (int x = 0; x < width; ++x) {
+				int value = ByteBuffer.wrap(data.getPixel(x, y, null)).getShort() & 0xFFFF;
+				boolean sparse = x >= 2 * tileSize && y >= tileSize;
+				assertEquals(sparse ? 0xFFFE : sample(x, y), value);
+			}
+		}
+		reader.dispose();
+		assertFalse(new CogReader().canLoad(new File(file.getParentFile(), "missing.tif")));
+	}
+
+	private static int sample(int x, int y) {
+		return (x * 1237 + y * 7919) & 0xFFFF;
+	}
+
+}
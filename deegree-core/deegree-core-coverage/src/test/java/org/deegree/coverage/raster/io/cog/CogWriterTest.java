@@ -0,0 +1,201 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.coverage.raster.io.cog;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.deegree.coverage.raster.AbstractRaster;
+import org.deegree.coverage.raster.SimpleRaster;
+import org.deegree.coverage.raster.data.RasterData;
+import org.deegree.coverage.raster.data.info.BandType;
+import org.deegree.coverage.raster.data.info.DataType;
+import org.deegree.coverage.raster.data.info.InterleaveType;
+import org.deegree.coverage.raster.data.info.RasterDataInfo;
+import org.deegree.coverage.raster.geom.RasterGeoReference;
+import org.deegree.coverage.raster.geom.RasterGeoReference.OriginLocation;
+import org.deegree.coverage.raster.io.RasterIOOptions;
+import org.deegree.coverage.raster.utils.RasterFactory;
+import org.deegree.geometry.Envelope;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Writes GeoTIFFs with the {@link CogWriter} and reads them back with the ImageIO
+ * based reader.
+ */
+public class CogWriterTest {
+
+	private static AbstractRaster raster;
+
+	private File file;
+
+	@BeforeClass
+	public static void init() throws Exception {
+		File input = new File(CogWriterTest.class.getResource("/org/deegree/coverage/raster/epsg4326.tiff").toURI());
+		raster = load(input);
+	}
+
+	@Before
+	public void createFile() throws IOException {
+		file = File.createTempFile("deegree3-junit-test", ".tif");
+	}
+
+	@After
+	public void deleteFile() {
+		file.delete();
+	}
+
+	private static AbstractRaster load(File input) throws IOException {
+		RasterIOOptions options = RasterIOOptions.forFile(input);
+		options.add(RasterIOOptions.GEO_ORIGIN_LOCATION, OriginLocation.OUTER.name());
+		return RasterFactory.loadRasterFromFile(input, options);
+	}
+
+	private void assertRoundTrip(TiffCompression compression) throws IOException {
+		// 100x73 pixels, 4x3 tiles
+		new CogWriter(compression, 32, 3).write(raster, file, null);
+		AbstractRaster result = load(file);
+
+		assertEquals(raster.getColumns(), result.getColumns());
+		assertEquals(raster.getRows(), result.getRows());
+		assertTrue(result.getEnvelope().getCoordinateSystem().hasId("epsg:4326", true, true));
+		double[] expected = raster.getRasterReference().getOrigin();
+		double[] origin = result.getRasterReference().getOrigin();
+		assertEquals(expected[0], origin[0], 1E-10);
+		assertEquals(expected[1], origin[1], 1E-10);
+		assertEquals(raster.getRasterReference().getResolutionX(), result.getRasterReference().getResolutionX(),
+				1E-10);
+		assertEquals(raster.getRasterReference().getResolutionY(), result.getRasterReference().getResolutionY(),
+				1E-10);
+
+		RasterData data = raster.getAsSimpleRaster().getRasterData();
+		RasterData written = result.getAsSimpleRaster().getRasterData();
+		for (int y = 0; y < raster.getRows(); ++y) {
+			for (int x = 0; x < raster.getColumns(); ++x) {
+				assertArrayEquals(data.getPixel(x, y, null), written.getPixel(x, y, null));
+			}
+		}
+	}
+
+	@Test
+	public void testUncompressed() throws IOException {
+		assertRoundTrip(TiffCompression.NONE);
+	}
+
+	@Test
+	public void testDeflate() throws IOException {
+		assertRoundTrip(TiffCompression.DEFLATE);
+	}
+
+	@Test
+	public void testLZW() throws IOException {
+		assertRoundTrip(TiffCompression.LZW);
+	}
+
+	@Test
+	public void testStreamMatchesFile() throws IOException {
+		for (TiffCompression compression : TiffCompression.values()) {
+			CogWriter writer = new CogWriter(compression, 32, 2);
+			writer.write(raster, file, null);
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			writer.write(raster, out, null);
+			assertArrayEquals(Files.readAllBytes(file.toPath()), out.toByteArray());
+		}
+	}
+
+	@Test
+	public void testOptions() throws IOException {
+		RasterIOOptions options = new RasterIOOptions();
+		options.add(CogWriter.OPT_COMPRESSION, "deflate");
+		options.add(CogWriter.OPT_TILE_SIZE, "64");
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new CogWriter().write(raster, out, options);
+		Files.write(file.toPath(), out.toByteArray());
+		assertEquals(raster.getColumns(), load(file).getColumns());
+	}
+
+	@Test
+	public void testBandInterleaved() throws IOException {
+		// 100x40 pixels, 4 tile columns encoded concurrently
+		RasterDataInfo rdi = new RasterDataInfo(new BandType[] { BandType.RED, BandType.GREEN, BandType.BLUE },
+				DataType.BYTE, InterleaveType.BAND);
+		RasterGeoReference ref = new RasterGeoReference(OriginLocation.OUTER, 0.5, -0.5, 10, 50,
+				raster.getCoordinateSystem());
+		Envelope envelope = ref.getEnvelope(100, 40, raster.getCoordinateSystem());
+		SimpleRaster source = RasterFactory.createEmptyRaster(rdi, envelope, ref);
+		Random random = new Random(11);
+		RasterData data = source.getRasterData();
+		for (int y = 0; y < source.getRows(); ++y) {
+			for (int x = 0; x < source.getColumns(); ++x) {
+				for (int b = 0; b < 3; ++b) {
+					data.setByteSample(x, y, b, (byte) random.nextInt(256));
+				}
+			}
+		}
+		new CogWriter(TiffCompression.DEFLATE, 32, 4).write(source, file, null);
+		AbstractRaster result = load(file);
+		assertEquals(source.getColumns(), result.getColumns());
+		assertEquals(source.getRows(), result.getRows());
+		RasterData written = result.getAsSimpleRaster().getRasterData();
+		for (int y = 0; y < source.getRows(); ++y) {
+			for (int x = 0; x < source.getColumns(); ++x) {
+				assertArrayEquals(data.getPixel(x, y, null), written.getPixel(x, y, null));
+			}
+		}
+	}
+
+	@Test
+	public void testLZWCodec() throws IOException {
+		Random random = new Random(7);
+		for (int size : new int[] { 0, 1, 2, 1000, 100000 }) {
+			byte[] data = new byte[size];
+			for (int i = 0; i < size; ++i) {
+				data[i] = (byte) (i % 3 == 0 ? random.nextInt(256) : i % 5);
+			}
+			assertArrayEquals(data, LZWCodec.decode(LZWCodec.encode(data), size));
+		}
+	}
+
+}
@@ -43,12 +43,15 @@ import java.io.InputStream;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.ServiceLoader;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamReader;
@@ -88,13 +91,25 @@ public class CRSManager implements Initializable, Destroyable {
 
 	private static Map<String, CRSStoreProvider> nsToProvider = null;
 
-	private static Map<String, CRSStore> idToCRSStore = Collections.synchronizedMap(new HashMap<String, CRSStore>());
+	private static Map<String, CRSStore> idToCRSStore = new ConcurrentHashMap<String, CRSStore>();
 
 	// store ids in order of requesting, workspace stores should overwrite the default
 	// store!
-	private static List<String> storeIds = Collections.synchronizedList(new LinkedList<String>());
+	private static List<String> storeIds = new CopyOnWriteArrayList<String>();
 
-	private static Map<String, TransformationFactory> idToTransF = new HashMap<String, TransformationFactory>();
+	private static Map<String, TransformationFactory> idToTransF = new ConcurrentHashMap<>();
+
+	// upper bound for the number of resolved crs kept in the lookup cache
+	private static final int MAX_CACHED_CRS = 10000;
+
+	// resolved crs, read without locking
+	private static final Map<LookupKey, ICRS> lookupCache = new ConcurrentHashMap<LookupKey, ICRS>();
+
+	// crs that are being resolved, concurrent misses for the same crs wait for the same result
+	private static final Map<LookupKey, CompletableFuture<ICRS>> pendingLookups = new ConcurrentHashMap<>();
+
+	// serializes registration of crs stores and transformation lookups
+	private static final java.lang.Object STORE_LOCK = new java.lang.Object();
 
 	private Workspace workspace;
 
@@ -134,10 +149,15 @@ public class CRSManager implements Initializable, Destroyable {
 	@Override
 	public void destroy(Workspace workspace) {
 		LOG.info("Clear CRS store and transformation map");
-		idToCRSStore.clear();
-		idToTransF.clear();
-		storeIds.clear();
-		defaultInitialized = false;
+		synchronized (CRSManager.class) {
+			synchronized (STORE_LOCK) {
+				idToCRSStore.clear();
+				idToTransF.clear();
+				storeIds.clear();
+				clearLookupCache();
+			}
+			defaultInitialized = false;
+		}
 		new CRSManager().initDefault();
 	}
 
@@ -268,21 +288,26 @@ public class CRSManager implements Initializable, Destroyable {
 		return nsToProvider;
 	}
 
-	private static void registerAndInit(CRSStore crss, String id, boolean prefer) throws CRSStoreException {
+	private synchronized static void registerAndInit(CRSStore crss, String id, boolean prefer)
+			throws CRSStoreException {
 		if (id != null) {
 			if (idToCRSStore.containsKey(id)) {
 				throw new CRSStoreException(Messages.getMessage("CRSManager.DUPLICATE_ID", id));
 			}
 			LOG.info("Registering global crs store with id '{}', type: '{}'", id, crss.getClass().getName());
-			idToTransF.put(id, new TransformationFactory(crss));
-			idToCRSStore.put(id, crss);
-			if (prefer) {
-				storeIds.add(0, id);
-			}
-			else {
-				storeIds.add(id);
+			synchronized (STORE_LOCK) {
+				idToTransF.put(id, new TransformationFactory(crss));
+				idToCRSStore.put(id, crss);
+				if (prefer) {
+					storeIds.add(0, id);
+				}
+				else {
+					storeIds.add(id);
+				}
+				crss.init();
+				// a preferred store may resolve codes differently
+				clearLookupCache();
 			}
-			crss.init();
 		}
 	}
 
@@ -303,6 +328,9 @@ public class CRSManager implements Initializable, Destroyable {
 	 * one could also not be created.
 	 */
 	public static CRSStore get(String id) {
+		if (id == null) {
+			return null;
+		}
 		return idToCRSStore.get(id);
 	}
 
@@ -404,7 +432,7 @@ public class CRSManager implements Initializable, Destroyable {
 	 * {@link CRSRef}, using all configured {@link CRSStore}s.
 	 * @throws UnknownCRSException if a {@link ICRS} with the name is not known
 	 */
-	public synchronized static ICRS lookup(String name) throws UnknownCRSException {
+	public static ICRS lookup(String name) throws UnknownCRSException {
 		return lookup(name, false);
 	}
 
@@ -420,7 +448,7 @@ public class CRSManager implements Initializable, Destroyable {
 	 * {@link CRSRef}, using all configured {@link CRSStore}s.
 	 * @throws UnknownCRSException if a {@link ICRS} with the name is not known
 	 */
-	public synchronized static ICRS lookup(String name, boolean forceXY) throws UnknownCRSException {
+	public static ICRS lookup(String name, boolean forceXY) throws UnknownCRSException {
 		return lookup(null, name, forceXY);
 	}
 
@@ -434,7 +462,7 @@ public class CRSManager implements Initializable, Destroyable {
 	 * {@link CRSRef}
 	 * @throws UnknownCRSException if a {@link ICRS} with the name is not known
 	 */
-	public synchronized static ICRS lookup(CRSCodeType codeType) throws UnknownCRSException {
+	public static ICRS lookup(CRSCodeType codeType) throws UnknownCRSException {
 		return lookup(null, codeType);
 	}
 
@@ -450,7 +478,7 @@ public class CRSManager implements Initializable, Destroyable {
 	 * the given name from the {@link CRSStore} with the given id
 	 * @throws UnknownCRSException if a {@link ICRS} with the name is not known
 	 */
-	public synchronized static ICRS lookup(String storeId, String name) throws UnknownCRSException {
+	public static ICRS lookup(String storeId, String name) throws UnknownCRSException {
 		return lookup(storeId, name, false);
 	}
 
@@ -467,8 +495,12 @@ public class CRSManager implements Initializable, Destroyable {
 	 * the given name from the {@link CRSStore} with the given id
 	 * @throws UnknownCRSException if a {@link ICRS} with the name is not known
 	 */
-	public synchronized static ICRS lookup(String storeIdName, String name, boolean forceXY)
-			throws UnknownCRSException {
+	public static ICRS lookup(String storeIdName, String name, boolean forceXY) throws UnknownCRSException {
+		LookupKey key = new LookupKey(storeIdName, name, forceXY);
+		return lookupCached(key, () -> lookupUncached(storeIdName, name, forceXY));
+	}
+
+	private static ICRS lookupUncached(String storeIdName, String name, boolean forceXY) throws UnknownCRSException {
 		CRSStore crsStore = get(storeIdName);
 		if (crsStore != null) {
 			return lookupStore(crsStore, name, forceXY);
@@ -476,6 +508,10 @@ public class CRSManager implements Initializable, Destroyable {
 		else {
 			for (String stId : storeIds) {
 				CRSStore store = idToCRSStore.get(stId);
+				if (store == null) {
+					// removed in the meantime
+					continue;
+				}
 				try {
 					ICRS crs = lookupStore(store, name, forceXY);
 					if (crs != null) {
@@ -500,7 +536,12 @@ public class CRSManager implements Initializable, Destroyable {
 	 * @return a real {@link ICRS} not just a reference.
 	 * @throws UnknownCRSException if a {@link ICRS} with the name is not known
 	 */
-	public synchronized static ICRS lookup(String storeId, CRSCodeType crsCodeType) throws UnknownCRSException {
+	public static ICRS lookup(String storeId, CRSCodeType crsCodeType) throws UnknownCRSException {
+		LookupKey key = new LookupKey(storeId, crsCodeType, false);
+		return lookupCached(key, () -> lookupUncached(storeId, crsCodeType));
+	}
+
+	private static ICRS lookupUncached(String storeId, CRSCodeType crsCodeType) throws UnknownCRSException {
 		CRSStore crsStore = get(storeId);
 		if (crsStore != null) {
 			return lookupStore(crsStore, crsCodeType, false);
@@ -508,6 +549,10 @@ public class CRSManager implements Initializable, Destroyable {
 		else {
 			for (String sId : storeIds) {
 				CRSStore store = idToCRSStore.get(sId);
+				if (store == null) {
+					// removed in the meantime
+					continue;
+				}
 				try {
 					ICRS crs = lookupStore(store, crsCodeType, false);
 					if (crs != null) {
@@ -522,6 +567,73 @@ public class CRSManager implements Initializable, Destroyable {
 		throw new UnknownCRSException(crsCodeType.getOriginal());
 	}
 
+	/**
+	 * Returns the cached crs for the given key or resolves it. Concurrent misses for the
+	 * same key are resolved only once, misses for different keys do not block each other.
+	 */
+	private static ICRS lookupCached(LookupKey key, CrsResolver resolver) throws UnknownCRSException {
+		ICRS crs = lookupCache.get(key);
+		if (crs != null) {
+			return crs;
+		}
+		CompletableFuture<ICRS> future = new CompletableFuture<>();
+		CompletableFuture<ICRS> pending = pendingLookups.putIfAbsent(key, future);
+		if (pending != null) {
+			return await(pending);
+		}
+		try {
+			crs = lookupCache.get(key);
+			if (crs == null) {
+				crs = resolver.resolve();
+				// the stores may have changed while resolving, the crs is only cached if not
+				if (pendingLookups.get(key) == future) {
+					cache(key, crs);
+				}
+			}
+		}
+		catch (Throwable t) {
+			pendingLookups.remove(key, future);
+			future.completeExceptionally(t);
+			throw t;
+		}
+		pendingLookups.remove(key, future);
+		future.complete(crs);
+		return crs;
+	}
+
+	private static ICRS await(CompletableFuture<ICRS> pending) throws UnknownCRSException {
+		try {
+			return pending.join();
+		}
+		catch (CompletionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof UnknownCRSException) {
+				throw (UnknownCRSException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw e;
+		}
+	}
+
+	private static void clearLookupCache() {
+		// pending lookups started before are not cached any more
+		pendingLookups.clear();
+		lookupCache.clear();
+	}
+
+	private static void cache(LookupKey key, ICRS crs) {
+		if (lookupCache.size() >= MAX_CACHED_CRS) {
+			LOG.debug("CRS lookup cache exceeded {} entries, clearing it.", MAX_CACHED_CRS);
+			lookupCache.clear();
+		}
+		lookupCache.put(key, crs);
+	}
+
 	/**
 	 * Creates a {@link ICRS} from the given name using the given {@link CRSStore}, if no
 	 * {@link ICRS} was found an {@link UnknownCRSException} will be thrown.
@@ -543,11 +655,14 @@ public class CRSManager implements Initializable, Destroyable {
 		ICRS realCRS = null;
 		try {
 			sT = currentTimeMillis();
-			realCRS = crsStore.getCRSByCode(CRSCodeType.valueOf(name), forceXY);
-			if (realCRS == null) {
-				// TODO: try to get CRS with lower case id (bug with id handling in the
-				// abstractStore cache)
-				realCRS = crsStore.getCRSByCode(CRSCodeType.valueOf(name.toLowerCase()), forceXY);
+			// the caches of the stores are not thread-safe
+			synchronized (crsStore) {
+				realCRS = crsStore.getCRSByCode(CRSCodeType.valueOf(name), forceXY);
+				if (realCRS == null) {
+					// TODO: try to get CRS with lower case id (bug with id handling in the
+					// abstractStore cache)
+					realCRS = crsStore.getCRSByCode(CRSCodeType.valueOf(name.toLowerCase()), forceXY);
+				}
 			}
 			eT = currentTimeMillis() - sT;
 			LOG.debug("Getting crs ( {} )from provider: {} took: {} ms.", name, crsStore, eT);
@@ -582,7 +697,9 @@ public class CRSManager implements Initializable, Destroyable {
 		}
 		ICRS realCRS = null;
 		try {
-			realCRS = crsStore.getCRSByCode(crsCodeType);
+			synchronized (crsStore) {
+				realCRS = crsStore.getCRSByCode(crsCodeType);
+			}
 		}
 		catch (CRSConfigurationException e) {
 			LOG.error(e.getMessage(), e);
@@ -607,6 +724,7 @@ public class CRSManager implements Initializable, Destroyable {
 			for (TransformationFactory tf : idToTransF.values()) {
 				return tf;
 			}
+			return null;
 		}
 		return idToTransF.get(storeId);
 	}
@@ -620,21 +738,23 @@ public class CRSManager implements Initializable, Destroyable {
 	 * @return the identified {@link Transformation} or <code>null<code> if no such
 	 * transformation is found.
 	 */
-	public synchronized static Transformation getTransformation(String storeId, String id) {
-		CRSStore crsStore = idToCRSStore.get(storeId);
-		if (crsStore == null) {
-			for (String sId : storeIds) {
-				CRSStore store = idToCRSStore.get(sId);
-				Transformation transformation = getTransformation(store, id);
-				if (transformation != null) {
-					return transformation;
+	public static Transformation getTransformation(String storeId, String id) {
+		synchronized (STORE_LOCK) {
+			CRSStore crsStore = get(storeId);
+			if (crsStore == null) {
+				for (String sId : storeIds) {
+					CRSStore store = idToCRSStore.get(sId);
+					Transformation transformation = getTransformation(store, id);
+					if (transformation != null) {
+						return transformation;
+					}
 				}
 			}
+			else {
+				return getTransformation(crsStore, id);
+			}
+			return null;
 		}
-		else {
-			return getTransformation(crsStore, id);
-		}
-		return null;
 	}
 
 	/**
@@ -654,7 +774,7 @@ public class CRSManager implements Initializable, Destroyable {
 	 * @throws TransformationException
 	 * @throws IllegalArgumentException
 	 */
-	public synchronized static Transformation getTransformation(String storeId, ICRS sourceCRS, ICRS targetCRS)
+	public static Transformation getTransformation(String storeId, ICRS sourceCRS, ICRS targetCRS)
 			throws IllegalArgumentException, TransformationException {
 		return getTransformation(storeId, sourceCRS, targetCRS, null);
 	}
@@ -678,21 +798,24 @@ public class CRSManager implements Initializable, Destroyable {
 	 * @throws TransformationException
 	 * @throws IllegalArgumentException
 	 */
-	public synchronized static Transformation getTransformation(String storeId, ICRS sourceCRS, ICRS targetCRS,
+	public static Transformation getTransformation(String storeId, ICRS sourceCRS, ICRS targetCRS,
 			List<Transformation> transformationsToBeUsed) throws IllegalArgumentException, TransformationException {
-		if (storeId != null) {
-			TransformationFactory fac = getTransformationFactory(storeId);
-			return fac.createFromCoordinateSystems(sourceCRS, targetCRS, transformationsToBeUsed);
-		}
-		else {
-			for (TransformationFactory tf : idToTransF.values()) {
-				Transformation trans = tf.createFromCoordinateSystems(sourceCRS, targetCRS, transformationsToBeUsed);
-				if (trans != null) {
-					return trans;
+		synchronized (STORE_LOCK) {
+			if (storeId != null) {
+				TransformationFactory fac = getTransformationFactory(storeId);
+				return fac.createFromCoordinateSystems(sourceCRS, targetCRS, transformationsToBeUsed);
+			}
+			else {
+				for (TransformationFactory tf : idToTransF.values()) {
+					Transformation trans = tf.createFromCoordinateSystems(sourceCRS, targetCRS,
+							transformationsToBeUsed);
+					if (trans != null) {
+						return trans;
+					}
 				}
 			}
+			return null;
 		}
-		return null;
 	}
 
 	/**
@@ -705,7 +828,7 @@ public class CRSManager implements Initializable, Destroyable {
 	 * transformation is found.
 	 * @throws IllegalArgumentException if crsStore is null
 	 */
-	private synchronized static Transformation getTransformation(CRSStore crsStore, String id) {
+	private static Transformation getTransformation(CRSStore crsStore, String id) {
 		if (crsStore == null) {
 			throw new IllegalArgumentException(Messages.get("CRSManager.STORE_NULL"));
 		}
@@ -725,10 +848,60 @@ public class CRSManager implements Initializable, Destroyable {
 
 	protected void remove(String id) {
 		if (id != null) {
-			storeIds.remove(id);
-			idToCRSStore.remove(id);
-			idToTransF.remove(id);
+			synchronized (STORE_LOCK) {
+				storeIds.remove(id);
+				idToCRSStore.remove(id);
+				idToTransF.remove(id);
+				clearLookupCache();
+			}
+		}
+	}
+
+	/**
+	 * Resolves a crs that is not in the lookup cache.
+	 */
+	private interface CrsResolver {
+
+		ICRS resolve() throws UnknownCRSException;
+
+	}
+
+	/**
+	 * Key of the lookup cache: store id (may be <code>null</code>), crs code (as
+	 * {@link String} or {@link CRSCodeType}) and forceXY flag.
+	 */
+	private static final class LookupKey {
+
+		private final String storeId;
+
+		private final java.lang.Object code;
+
+		private final boolean forceXY;
+
+		private LookupKey(String storeId, java.lang.Object code, boolean forceXY) {
+			this.storeId = storeId;
+			this.code = code;
+			this.forceXY = forceXY;
+		}
+
+		@Override
+		public boolean equals(java.lang.Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof LookupKey)) {
+				return false;
+			}
+			LookupKey that = (LookupKey) o;
+			return forceXY == that.forceXY && Objects.equals(storeId, that.storeId)
+					&& code.getClass() == that.code.getClass() && code.equals(that.code);
 		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(storeId, code, forceXY);
+		}
+
 	}
 
 }
@@ -68,6 +68,16 @@ public class AxisFlipTransformation extends Transformation {
 		return srcPts;
 	}
 
+	@Override
+	public void doTransformPacked(double[] xyz, int offset, int numPoints) throws TransformationException {
+		int end = offset + 3 * numPoints;
+		for (int i = offset; i < end; i += 3) {
+			double tmpX = xyz[i];
+			xyz[i] = xyz[i + 1];
+			xyz[i + 1] = tmpX;
+		}
+	}
+
 	@Override
 	public boolean isIdentity() {
 		return false;
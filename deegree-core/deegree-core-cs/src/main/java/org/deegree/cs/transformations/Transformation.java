@@ -35,6 +35,7 @@
 
 package org.deegree.cs.transformations;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -240,6 +241,33 @@ public abstract class Transformation extends CRSIdentifiable {
 		return doTransform(coord).get(0);
 	}
 
+	/**
+	 * Transforms the given packed coordinates in place. The array holds the coordinates
+	 * as consecutive x, y, z triples (regardless of the dimension of the source and
+	 * target CRS), a missing z value is denoted by {@link Double#NaN}. Subclasses
+	 * should override this method with an implementation working directly on the array,
+	 * the default implementation wraps the coordinates into {@link Point3d}s and calls
+	 * {@link #doTransform(List)}.
+	 * @param xyz the packed coordinates, must not be <code>null</code>
+	 * @param offset the index of the x value of the first point
+	 * @param numPoints the number of points to transform
+	 * @throws TransformationException if the coordinates could not be transformed
+	 */
+	public void doTransformPacked(double[] xyz, int offset, int numPoints) throws TransformationException {
+		List<Point3d> points = new ArrayList<Point3d>(numPoints);
+		int end = offset + 3 * numPoints;
+		for (int i = offset; i < end; i += 3) {
+			points.add(new Point3d(xyz[i], xyz[i + 1], xyz[i + 2]));
+		}
+		List<Point3d> result = doTransform(points);
+		int i = offset;
+		for (Point3d p : result) {
+			xyz[i++] = p.x;
+			xyz[i++] = p.y;
+			xyz[i++] = p.z;
+		}
+	}
+
 	/**
 	 * @return true if the doInverseTransform method should be called, false otherwise.
 	 */
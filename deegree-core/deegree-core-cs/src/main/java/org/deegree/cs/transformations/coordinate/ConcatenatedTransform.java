@@ -115,6 +115,14 @@ public class ConcatenatedTransform extends Transformation {
 		return srcPts;
 	}
 
+	@Override
+	public void doTransformPacked(double[] xyz, int offset, int numPoints) throws TransformationException {
+		if (!isIdentitiy) {
+			firstTransform.doTransformPacked(xyz, offset, numPoints);
+			secondTransform.doTransformPacked(xyz, offset, numPoints);
+		}
+	}
+
 	@Override
 	public void inverse() {
 		super.inverse();
@@ -184,6 +184,19 @@ public class GeocentricTransform extends Transformation {
 		return result;
 	}
 
+	@Override
+	public void doTransformPacked(double[] xyz, int offset, int numPoints) {
+		int end = offset + 3 * numPoints;
+		for (int i = offset; i < end; i += 3) {
+			if (isInverseTransform()) {
+				toGeographic(xyz, i);
+			}
+			else {
+				toGeoCentric(xyz, i);
+			}
+		}
+	}
+
 	/**
 	 * Converts geocentric coordinates (x, y, z) to geodetic coordinates (longitude,
 	 * latitude, height), according to the current ellipsoid parameters. The method used
@@ -192,53 +205,68 @@ public class GeocentricTransform extends Transformation {
 	 * @param srcPts the points which must be transformed.
 	 */
 	protected void toGeographic(List<Point3d> srcPts) {
+		double[] xyz = new double[3];
 		for (Point3d p : srcPts) {
-			// Note: Variable names follow the notation used in Toms, Feb 1996
-
-			final double T0 = p.z * AD_C; // initial estimate of vertical component
-			final double W = length(p.x, p.y);// distance from Z axis
-			final double S0 = length(T0, W);// initial estimate of horizontal component
-
-			final double sin_B0 = T0 / S0; // sin(B0), B0 is estimate of Bowring variable
-			final double cos_B0 = W / S0; // cos(B0)
-			final double sin3_B0 = sin_B0 * sin_B0 * sin_B0; // cube of sin(B0)
-			final double T1 = p.z + semiMinorAxis * ep2 * sin3_B0; // corrected estimate
-																	// of vertical
-																	// component
-
-			// numerator of cos(phi1)
-			final double sum = W - semiMajorAxis * squaredEccentricity * (cos_B0 * cos_B0 * cos_B0);
-
-			// corrected estimate of horizontal component
-			final double S1 = length(T1, sum);// Math.sqrt( T1 * T1 + sum * sum );
-
-			// sin(phi), phi is estimated latitude
-			final double sinPhi = T1 / S1;
-			final double cosPhi = sum / S1; // cos(phi)
-
-			// Lambda in tom.
-			p.x = Math.atan2(p.y, p.x);// longitude;
-			p.y = Math.atan(sinPhi / cosPhi);// latitude;
-			if (hasHeight) {
-				double height;
-				// rn = radius of curvature of the prime vertical, of the ellipsoid at
-				// location
-				final double rn = semiMajorAxis / Math.sqrt(1 - squaredEccentricity * (sinPhi * sinPhi));
-
-				if (cosPhi >= +COS_67P5) {
-					height = W / +cosPhi - rn;
-				}
-				else if (cosPhi <= -COS_67P5) {
-					height = W / -cosPhi - rn;
-				}
-				else {
-					height = p.z / sinPhi + rn * (squaredEccentricity - 1.0);
-				}
-				p.z = height;
+			p.get(xyz);
+			toGeographic(xyz, 0);
+			p.set(xyz);
+		}
+	}
+
+	/**
+	 * Converts the geocentric coordinate starting at the given index of the packed
+	 * coordinates array in place, see {@link #toGeographic(List)}.
+	 * @param xyz the packed x, y, z coordinates
+	 * @param i the index of the x value of the coordinate
+	 */
+	private void toGeographic(double[] xyz, int i) {
+		final double x = xyz[i];
+		final double y = xyz[i + 1];
+		final double z = xyz[i + 2];
+		// Note: Variable names follow the notation used in Toms, Feb 1996
+
+		final double T0 = z * AD_C; // initial estimate of vertical component
+		final double W = length(x, y);// distance from Z axis
+		final double S0 = length(T0, W);// initial estimate of horizontal component
+
+		final double sin_B0 = T0 / S0; // sin(B0), B0 is estimate of Bowring variable
+		final double cos_B0 = W / S0; // cos(B0)
+		final double sin3_B0 = sin_B0 * sin_B0 * sin_B0; // cube of sin(B0)
+		final double T1 = z + semiMinorAxis * ep2 * sin3_B0; // corrected estimate of
+																// vertical component
+
+		// numerator of cos(phi1)
+		final double sum = W - semiMajorAxis * squaredEccentricity * (cos_B0 * cos_B0 * cos_B0);
+
+		// corrected estimate of horizontal component
+		final double S1 = length(T1, sum);// Math.sqrt( T1 * T1 + sum * sum );
+
+		// sin(phi), phi is estimated latitude
+		final double sinPhi = T1 / S1;
+		final double cosPhi = sum / S1; // cos(phi)
+
+		// Lambda in tom.
+		xyz[i] = Math.atan2(y, x);// longitude;
+		xyz[i + 1] = Math.atan(sinPhi / cosPhi);// latitude;
+		if (hasHeight) {
+			double height;
+			// rn = radius of curvature of the prime vertical, of the ellipsoid at
+			// location
+			final double rn = semiMajorAxis / Math.sqrt(1 - squaredEccentricity * (sinPhi * sinPhi));
+
+			if (cosPhi >= +COS_67P5) {
+				height = W / +cosPhi - rn;
+			}
+			else if (cosPhi <= -COS_67P5) {
+				height = W / -cosPhi - rn;
 			}
 			else {
-				p.z = defaultHeightValue;
+				height = z / sinPhi + rn * (squaredEccentricity - 1.0);
 			}
+			xyz[i + 2] = height;
+		}
+		else {
+			xyz[i + 2] = defaultHeightValue;
 		}
 	}
 
@@ -247,25 +275,38 @@ public class GeocentricTransform extends Transformation {
 	 * @param srcPts to convert.
 	 */
 	protected void toGeoCentric(List<Point3d> srcPts) {
+		double[] xyz = new double[3];
 		for (Point3d p : srcPts) {
-			final double lambda = p.x; // Longitude
-			final double phi = p.y; // Latitude
-			// first check the p.z value if it is defined, if not, use the defaultheight
-			// value, which will be
-			// initialized with 0 or the configured compound crs value.
-			if (Double.isNaN(p.z) || Math.abs(p.z) < EPS11) {
-				p.z = defaultHeightValue;
-			}
-			final double h = hasHeight ? p.z : 0; // Height above the ellipsoid (metres).
-
-			final double cosPhi = Math.cos(phi);
-			final double sinPhi = Math.sin(phi);
-			final double rn = semiMajorAxis / Math.sqrt(1 - squaredEccentricity * (sinPhi * sinPhi));
+			p.get(xyz);
+			toGeoCentric(xyz, 0);
+			p.set(xyz);
+		}
+	}
 
-			p.x = (rn + h) * cosPhi * Math.cos(lambda);
-			p.y = (rn + h) * cosPhi * Math.sin(lambda);
-			p.z = (rn * (1 - squaredEccentricity) + h) * sinPhi;
+	/**
+	 * Converts the geographic coordinate starting at the given index of the packed
+	 * coordinates array in place, see {@link #toGeoCentric(List)}.
+	 * @param xyz the packed x, y, z coordinates
+	 * @param i the index of the x value of the coordinate
+	 */
+	private void toGeoCentric(double[] xyz, int i) {
+		final double lambda = xyz[i]; // Longitude
+		final double phi = xyz[i + 1]; // Latitude
+		double z = xyz[i + 2];
+		// first check the z value if it is defined, if not, use the defaultheight value,
+		// which will be initialized with 0 or the configured compound crs value.
+		if (Double.isNaN(z) || Math.abs(z) < EPS11) {
+			z = defaultHeightValue;
 		}
+		final double h = hasHeight ? z : 0; // Height above the ellipsoid (metres).
+
+		final double cosPhi = Math.cos(phi);
+		final double sinPhi = Math.sin(phi);
+		final double rn = semiMajorAxis / Math.sqrt(1 - squaredEccentricity * (sinPhi * sinPhi));
+
+		xyz[i] = (rn + h) * cosPhi * Math.cos(lambda);
+		xyz[i + 1] = (rn + h) * cosPhi * Math.sin(lambda);
+		xyz[i + 2] = (rn * (1 - squaredEccentricity) + h) * sinPhi;
 	}
 
 	@Override
@@ -64,6 +64,11 @@ public class IdentityTransform extends Transformation {
 		return srcPts;
 	}
 
+	@Override
+	public void doTransformPacked(double[] xyz, int offset, int numPoints) throws TransformationException {
+		// nothing to do
+	}
+
 	@Override
 	public String getImplementationName() {
 		return "Identity";
@@ -257,6 +257,23 @@ public class MatrixTransform extends Transformation {
 		return srcPts;
 	}
 
+	@Override
+	public void doTransformPacked(double[] xyz, int offset, int numPoints) {
+		if (isIdentity()) {
+			return;
+		}
+		boolean inverse = isInverseTransform();
+		if (matrix3D != null) {
+			transform(inverse ? invertMatrix3D : matrix3D, xyz, offset, numPoints);
+		}
+		else if (matrix4D != null) {
+			transform(inverse ? invertMatrix4D : matrix4D, xyz, offset, numPoints);
+		}
+		else {
+			transform(inverse ? invertMatrix : matrix, xyz, offset, numPoints);
+		}
+	}
+
 	/**
 	 * @return the dimension of input points.
 	 */
@@ -456,6 +473,94 @@ public class MatrixTransform extends Transformation {
 		}
 	}
 
+	/**
+	 * Packed coordinates variant of {@link #transform(GMatrix, List)}.
+	 * @param gm the matrix to use (e.g. the inverse matrix or the forward matrix).
+	 * @param xyz the packed x, y, z coordinates
+	 * @param offset index of the first x value
+	 * @param numPoints number of points to transform
+	 */
+	private void transform(GMatrix gm, double[] xyz, int offset, int numPoints) {
+		final int outputDimension = numRow - 1;
+		if (numCol - 1 > 3) {
+			throw new IllegalArgumentException("Number of collumns: " + numCol
+					+ " of the given matrix exceed the maximum dimension (3) supported by this Transformation");
+		}
+		if (outputDimension > 3) {
+			throw new IllegalArgumentException("Number of rows: " + numRow
+					+ " of the given matrix exceed the maximum dimension (3) supported by this Transformation");
+		}
+
+		final double[] tmpPoint = new double[numRow];
+		final int end = offset + 3 * numPoints;
+		for (int i = offset; i < end; i += 3) {
+			final double x = xyz[i];
+			final double y = xyz[i + 1];
+			final double z = xyz[i + 2];
+			for (int row = 0; row < numRow; ++row) {
+				tmpPoint[row] = gm.getElement(row, 0) * x;
+				if (numCol >= 2) {
+					tmpPoint[row] += gm.getElement(row, 1) * y;
+					if (numCol >= 3) {
+						tmpPoint[row] += gm.getElement(row, 2) * ((!Double.isNaN(z) && !Double.isInfinite(z)) ? z : 1);
+						if (numCol == 4) { // assume 1
+							tmpPoint[row] += gm.getElement(row, 3);
+						}
+					}
+				}
+			}
+			final double w = tmpPoint[outputDimension];
+			if (outputDimension >= 1) {
+				xyz[i] = tmpPoint[0] / w;
+				if (outputDimension >= 2) {
+					xyz[i + 1] = tmpPoint[1] / w;
+					if (outputDimension == 3) {
+						xyz[i + 2] = tmpPoint[2] / w;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Packed coordinates variant of {@link #transform(Matrix4d, List)}.
+	 * @param m4d the matrix to use (e.g. the inverse matrix or the forward matrix).
+	 * @param xyz the packed x, y, z coordinates
+	 * @param offset index of the first x value
+	 * @param numPoints number of points to transform
+	 */
+	private void transform(Matrix4d m4d, double[] xyz, int offset, int numPoints) {
+		final int end = offset + 3 * numPoints;
+		for (int i = offset; i < end; i += 3) {
+			final double x = xyz[i];
+			final double y = xyz[i + 1];
+			final double z = xyz[i + 2];
+			xyz[i] = m4d.m00 * x + m4d.m01 * y + m4d.m02 * z + m4d.m03;
+			xyz[i + 1] = m4d.m10 * x + m4d.m11 * y + m4d.m12 * z + m4d.m13;
+			xyz[i + 2] = m4d.m20 * x + m4d.m21 * y + m4d.m22 * z + m4d.m23;
+		}
+	}
+
+	/**
+	 * Packed coordinates variant of {@link #transform(Matrix3d, List)}.
+	 * @param m3d the matrix to use (e.g. the inverse matrix or the forward matrix).
+	 * @param xyz the packed x, y, z coordinates
+	 * @param offset index of the first x value
+	 * @param numPoints number of points to transform
+	 */
+	private void transform(Matrix3d m3d, double[] xyz, int offset, int numPoints) {
+		final int end = offset + 3 * numPoints;
+		for (int i = offset; i < end; i += 3) {
+			final double x = xyz[i];
+			final double y = xyz[i + 1];
+			final boolean zIsNaN = Double.isNaN(xyz[i + 2]);
+			final double z = zIsNaN ? 1 : xyz[i + 2];
+			xyz[i] = m3d.m00 * x + m3d.m01 * y + m3d.m02 * z;
+			xyz[i + 1] = m3d.m10 * x + m3d.m11 * y + m3d.m12 * z;
+			xyz[i + 2] = zIsNaN ? Double.NaN : m3d.m20 * x + m3d.m21 * y + m3d.m22 * z;
+		}
+	}
+
 	/**
 	 * @return the matrix.
 	 */
@@ -141,6 +141,27 @@ public class ProjectionTransform extends Transformation {
 		return srcPts;
 	}
 
+	@Override
+	public void doTransformPacked(double[] xyz, int offset, int numPoints) throws TransformationException {
+		boolean inverse = isInverseTransform();
+		boolean swapIn = inverse ? swapAxisTarget : swapAxisSource;
+		boolean swapOut = inverse ? swapAxisSource : swapAxisTarget;
+		int end = offset + 3 * numPoints;
+		for (int i = offset; i < end; i += 3) {
+			double x = swapIn ? xyz[i + 1] : xyz[i];
+			double y = swapIn ? xyz[i] : xyz[i + 1];
+			try {
+				Point2d tmp = inverse ? projectedCRS.doInverseProjection(x, y) : projectedCRS.doProjection(x, y);
+				xyz[i] = swapOut ? tmp.y : tmp.x;
+				xyz[i + 1] = swapOut ? tmp.x : tmp.y;
+			}
+			catch (ProjectionException e) {
+				LOG.trace("Stack trace:", e);
+				LOG.warn("Transformation error: {}", e.getLocalizedMessage());
+			}
+		}
+	}
+
 	/**
 	 * @param srcPts
 	 */
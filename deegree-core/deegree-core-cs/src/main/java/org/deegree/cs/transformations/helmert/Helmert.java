@@ -413,6 +413,49 @@ public class Helmert extends Transformation {
 			return srcPts;
 		}
 
+		Matrix4d matrix = getCurrentMatrix();
+		for (Point3d p : srcPts) {
+			boolean zIsNaN = Double.isNaN(p.z);
+			if (zIsNaN) {
+				p.z = 1;
+			}
+			matrix.transform(p);
+			if (zIsNaN) {
+				p.z = Double.NaN;
+			}
+		}
+
+		return srcPts;
+	}
+
+	@Override
+	public void doTransformPacked(double[] xyz, int offset, int numPoints) throws TransformationException {
+		if (numPoints == 0) {
+			return;
+		}
+		Matrix4d matrix;
+		synchronized (this) {
+			matrix = getCurrentMatrix();
+		}
+		int end = offset + 3 * numPoints;
+		for (int i = offset; i < end; i += 3) {
+			final double x = xyz[i];
+			final double y = xyz[i + 1];
+			final boolean zIsNaN = Double.isNaN(xyz[i + 2]);
+			final double z = zIsNaN ? 1 : xyz[i + 2];
+			xyz[i] = matrix.m00 * x + matrix.m01 * y + matrix.m02 * z + matrix.m03;
+			xyz[i + 1] = matrix.m10 * x + matrix.m11 * y + matrix.m12 * z + matrix.m13;
+			xyz[i + 2] = zIsNaN ? Double.NaN : matrix.m20 * x + matrix.m21 * y + matrix.m22 * z + matrix.m23;
+		}
+	}
+
+	/**
+	 * Lazily creates the forward and inverse matrices, must be called while holding the
+	 * monitor of this transformation.
+	 * @return the matrix to apply according to the current direction of this
+	 * transformation
+	 */
+	private Matrix4d getCurrentMatrix() {
 		// lazy instantiation
 		if (transformMatrix == null) {
 			transformMatrix = getAsAffineTransform();
@@ -427,19 +470,7 @@ public class Helmert extends Transformation {
 			}
 			matrix = inverseMatrix;
 		}
-
-		for (Point3d p : srcPts) {
-			boolean zIsNaN = Double.isNaN(p.z);
-			if (zIsNaN) {
-				p.z = 1;
-			}
-			matrix.transform(p);
-			if (zIsNaN) {
-				p.z = Double.NaN;
-			}
-		}
-
-		return srcPts;
+		return matrix;
 	}
 
 	@Override
@@ -0,0 +1,163 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.cs.persistence;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.deegree.cs.CRSCodeType;
+import org.deegree.cs.coordinatesystems.ICRS;
+import org.deegree.cs.exceptions.UnknownCRSException;
+import org.junit.Test;
+
+/**
+ * Tests the cached crs resolution of {@link CRSManager}.
+ */
+public class CRSManagerLookupTest {
+
+	@Test
+	public void testRepeatedLookupReturnsSameInstance() throws UnknownCRSException {
+		ICRS first = CRSManager.lookup("EPSG:4326");
+		ICRS second = CRSManager.lookup("EPSG:4326");
+
+		assertSame(first, second);
+	}
+
+	@Test
+	public void testLookupByCodeType() throws UnknownCRSException {
+		ICRS crs = CRSManager.lookup(CRSCodeType.valueOf("EPSG:31467"));
+
+		assertSame(crs, CRSManager.lookup(CRSCodeType.valueOf("EPSG:31467")));
+	}
+
+	@Test
+	public void testForceXYIsPartOfTheKey() throws UnknownCRSException {
+		ICRS crs = CRSManager.lookup("urn:ogc:def:crs:EPSG::4326", false);
+		ICRS crsXY = CRSManager.lookup("urn:ogc:def:crs:EPSG::4326", true);
+
+		assertSame(crs, CRSManager.lookup("urn:ogc:def:crs:EPSG::4326", false));
+		assertSame(crsXY, CRSManager.lookup("urn:ogc:def:crs:EPSG::4326", true));
+	}
+
+	@Test(expected = UnknownCRSException.class)
+	public void testUnknownCrs() throws UnknownCRSException {
+		CRSManager.lookup("EPSG:999999999");
+	}
+
+	@Test
+	public void testConcurrentLookups() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<ICRS>> results = new ArrayList<Future<ICRS>>();
+			for (int i = 0; i < 64; i++) {
+				results.add(executor.submit(new Callable<ICRS>() {
+					@Override
+					public ICRS call() throws Exception {
+						return CRSManager.lookup("EPSG:25832");
+					}
+				}));
+			}
+			ICRS expected = CRSManager.lookup("EPSG:25832");
+			for (Future<ICRS> result : results) {
+				assertSame(expected, result.get());
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testConcurrentLookupsOfDifferentCodes() throws Exception {
+		String[] codes = { "EPSG:4258", "EPSG:25833", "EPSG:3857", "EPSG:31468" };
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<ICRS>> results = new ArrayList<Future<ICRS>>();
+			for (int i = 0; i < 64; i++) {
+				final String code = codes[i % codes.length];
+				results.add(executor.submit(new Callable<ICRS>() {
+					@Override
+					public ICRS call() throws Exception {
+						return CRSManager.lookup(code);
+					}
+				}));
+			}
+			for (int i = 0; i < results.size(); i++) {
+				assertSame(CRSManager.lookup(codes[i % codes.length]), results.get(i).get());
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testConcurrentLookupsOfUnknownCrs() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<ICRS>> results = new ArrayList<Future<ICRS>>();
+			for (int i = 0; i < 16; i++) {
+				results.add(executor.submit(new Callable<ICRS>() {
+					@Override
+					public ICRS call() throws Exception {
+						return CRSManager.lookup("EPSG:999999998");
+					}
+				}));
+			}
+			for (Future<ICRS> result : results) {
+				try {
+					result.get();
+					fail("Expected an UnknownCRSException.");
+				}
+				catch (ExecutionException e) {
+					assertTrue(e.getCause() instanceof UnknownCRSException);
+				}
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+}
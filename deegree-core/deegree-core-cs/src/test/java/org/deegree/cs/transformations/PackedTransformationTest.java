@@ -0,0 +1,97 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.cs.transformations;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.vecmath.Point3d;
+
+import org.deegree.cs.coordinatesystems.ICRS;
+import org.deegree.cs.persistence.CRSManager;
+import org.junit.Test;
+
+/**
+ * Tests that {@link Transformation#doTransformPacked(double[], int, int)} yields the same
+ * results as {@link Transformation#doTransform(List)}.
+ */
+public class PackedTransformationTest {
+
+	private static final double[] POINTS = { 1233190.824196, 6352029.317383, Double.NaN, 1160534.71688755,
+			6058437.91872294, Double.NaN, 1000000, 6000000, 120 };
+
+	@Test
+	public void testProjectedToGeographic() throws Exception {
+		assertPackedEqualsList("epsg:3857", "epsg:4326");
+	}
+
+	@Test
+	public void testGeographicToProjected() throws Exception {
+		assertPackedEqualsList("epsg:4326", "epsg:3857");
+	}
+
+	@Test
+	public void testHelmertChain() throws Exception {
+		assertPackedEqualsList("epsg:3857", "epsg:31468");
+	}
+
+	private void assertPackedEqualsList(String source, String target) throws Exception {
+		ICRS sourceCRS = CRSManager.lookup(source);
+		ICRS targetCRS = CRSManager.lookup(target);
+		Transformation trans = CRSManager.getTransformationFactory(null)
+			.createFromCoordinateSystems(sourceCRS, targetCRS);
+
+		List<Point3d> points = new ArrayList<Point3d>();
+		for (int i = 0; i < POINTS.length; i += 3) {
+			points.add(new Point3d(POINTS[i], POINTS[i + 1], POINTS[i + 2]));
+		}
+		List<Point3d> expected = trans.doTransform(points);
+
+		// use an offset to make sure it is respected
+		double[] xyz = new double[POINTS.length + 3];
+		System.arraycopy(POINTS, 0, xyz, 3, POINTS.length);
+		trans.doTransformPacked(xyz, 3, expected.size());
+
+		for (int i = 0; i < expected.size(); i++) {
+			Point3d p = expected.get(i);
+			assertEquals(p.x, xyz[3 + i * 3], 1E-9);
+			assertEquals(p.y, xyz[4 + i * 3], 1E-9);
+			assertEquals(p.z, xyz[5 + i * 3], 1E-9);
+		}
+	}
+
+}
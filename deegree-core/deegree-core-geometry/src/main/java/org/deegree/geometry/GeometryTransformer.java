@@ -38,6 +38,7 @@ import static org.deegree.commons.utils.StringUtils.isSet;
 import static org.slf4j.LoggerFactory.getLogger;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -109,6 +110,7 @@ import org.deegree.geometry.primitive.segments.LineStringSegment;
 import org.deegree.geometry.primitive.segments.OffsetCurve;
 import org.deegree.geometry.primitive.segments.CurveSegment.CurveSegmentType;
 import org.deegree.geometry.standard.curvesegments.AffinePlacement;
+import org.deegree.geometry.standard.points.PackedPoints;
 import org.deegree.geometry.standard.points.PointsList;
 import org.slf4j.Logger;
 
@@ -125,6 +127,13 @@ public class GeometryTransformer extends Transformer {
 
 	private static final GeometryFactory geomFactory = new GeometryFactory();
 
+	/**
+	 * Number of points transformed at once using the per thread scratch buffer.
+	 */
+	private static final int SCRATCH_POINTS = 4096;
+
+	private static final ThreadLocal<double[]> SCRATCH_BUFFER = new ThreadLocal<double[]>();
+
 	/**
 	 * Creates a new GeometryTransformer object.
 	 * @param targetCRS
@@ -785,6 +794,74 @@ public class GeometryTransformer extends Transformer {
 	 * @throws TransformationException
 	 */
 	private Points transform(Points points, Transformation trans) throws TransformationException {
+		if (!isPackable(points)) {
+			return transformPointwise(points, trans);
+		}
+		int size = points.size();
+		int dim = points.getDimension() < 3 ? 2 : 3;
+		// pass the 3rd coordinate if dimension of source and target CRS is 2
+		boolean keepZ = trans.getSourceCRS().getDimension() == 2 && trans.getTargetCRS().getDimension() == 2;
+		double[] result = new double[size * dim];
+		double[] xyz = getScratchBuffer();
+		Iterator<Point> iter = points.iterator();
+		for (int start = 0; start < size; start += SCRATCH_POINTS) {
+			int numPoints = Math.min(SCRATCH_POINTS, size - start);
+			for (int i = 0, j = 0; i < numPoints; i++) {
+				Point point = iter.next();
+				xyz[j++] = point.get0();
+				xyz[j++] = point.get1();
+				xyz[j++] = point.get2();
+				if (dim == 3 && keepZ) {
+					result[(start + i) * 3 + 2] = point.get2();
+				}
+			}
+			trans.doTransformPacked(xyz, 0, numPoints);
+			for (int i = 0, j = 0, k = start * dim; i < numPoints; i++, j += 3, k += dim) {
+				result[k] = xyz[j];
+				result[k + 1] = xyz[j + 1];
+				if (dim == 3 && !keepZ) {
+					result[k + 2] = xyz[j + 2];
+				}
+			}
+		}
+		return new PackedPoints(getTargetCRS(), result, dim);
+	}
+
+	/**
+	 * Determines if the points can be transformed as packed coordinates, this is the case
+	 * if none of the points has an id and all points have the same dimension.
+	 */
+	private static boolean isPackable(Points points) {
+		if (points instanceof PackedPoints) {
+			return true;
+		}
+		int dim = points.getDimension();
+		for (Point point : points) {
+			if (point.getId() != null || point.getCoordinateDimension() != dim) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the scratch buffer of the current thread, holding {@link #SCRATCH_POINTS}
+	 * x, y, z triples
+	 */
+	private static double[] getScratchBuffer() {
+		double[] buffer = SCRATCH_BUFFER.get();
+		if (buffer == null) {
+			buffer = new double[3 * SCRATCH_POINTS];
+			SCRATCH_BUFFER.set(buffer);
+		}
+		return buffer;
+	}
+
+	/**
+	 * transforms the list of points one by one, retaining the ids of the points
+	 * @throws TransformationException
+	 */
+	private Points transformPointwise(Points points, Transformation trans) throws TransformationException {
 
 		List<Point> result = new ArrayList<Point>(points.size());
 		for (Point point : points) {
@@ -815,19 +892,20 @@ public class GeometryTransformer extends Transformer {
 	 */
 	private Point transform(Point geo, Transformation trans) throws TransformationException {
 
-		Point3d coord = new Point3d(geo.get0(), geo.get1(), geo.get2());
-		Point3d result = new Point3d(coord);
-
-		result = trans.doTransform(coord);
+		double[] xyz = getScratchBuffer();
+		xyz[0] = geo.get0();
+		xyz[1] = geo.get1();
+		xyz[2] = geo.get2();
+		trans.doTransformPacked(xyz, 0, 1);
 		if (Double.isNaN(geo.get2())) {
-			return geomFactory.createPoint(geo.getId(), new double[] { result.x, result.y }, getTargetCRS());
+			return geomFactory.createPoint(geo.getId(), new double[] { xyz[0], xyz[1] }, getTargetCRS());
 		}
 		else if (trans.getSourceCRS().getDimension() == 2 && trans.getTargetCRS().getDimension() == 2) {
 			// pass the 3rd coordinate if exist and dimension of source and target CRS is
 			// 2
-			result.z = geo.get2();
+			xyz[2] = geo.get2();
 		}
-		return geomFactory.createPoint(geo.getId(), new double[] { result.x, result.y, result.z }, getTargetCRS());
+		return geomFactory.createPoint(geo.getId(), new double[] { xyz[0], xyz[1], xyz[2] }, getTargetCRS());
 	}
 
 	/**
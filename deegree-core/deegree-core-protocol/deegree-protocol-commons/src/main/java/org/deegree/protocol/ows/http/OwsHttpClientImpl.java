@@ -34,6 +34,7 @@
  ----------------------------------------------------------------------------*/
 package org.deegree.protocol.ows.http;
 
+import static org.deegree.commons.utils.net.HttpConnectionPool.createClient;
 import static org.deegree.commons.utils.net.HttpUtils.handleProxies;
 
 import java.io.IOException;
@@ -143,7 +144,7 @@ public class OwsHttpClientImpl implements OwsHttpClient {
 			DefaultHttpClient httpClient = getInitializedHttpClient(endPoint);
 			LOG.debug("Performing GET request: {}", query);
 			HttpResponse httpResponse = httpClient.execute(httpGet);
-			response = new OwsHttpResponseImpl(httpResponse, httpClient.getConnectionManager(), sb.toString());
+			response = new OwsHttpResponseImpl(httpResponse, sb.toString());
 		}
 		catch (Throwable e) {
 			e.printStackTrace();
@@ -167,7 +168,7 @@ public class OwsHttpClientImpl implements OwsHttpClient {
 			entity.setContentType(contentType);
 			httpPost.setEntity(entity);
 			HttpResponse httpResponse = httpClient.execute(httpPost);
-			response = new OwsHttpResponseImpl(httpResponse, httpClient.getConnectionManager(), endPoint.toString());
+			response = new OwsHttpResponseImpl(httpResponse, endPoint.toString());
 		}
 		catch (Throwable e) {
 			String msg = "Error performing POST request on '" + endPoint + "': " + e.getMessage();
@@ -177,7 +178,7 @@ public class OwsHttpClientImpl implements OwsHttpClient {
 	}
 
 	private DefaultHttpClient getInitializedHttpClient(URL url) {
-		DefaultHttpClient client = new DefaultHttpClient();
+		DefaultHttpClient client = createClient();
 		setTimeouts(client);
 		setProxies(url, client);
 		setCredentials(url, client);
@@ -88,7 +88,7 @@ public interface OwsHttpResponse extends Closeable {
 	public void assertNoXmlContentTypeAndExceptionReport() throws OWSExceptionReport, XMLStreamException;
 
 	/**
-	 * Closes the HTTP connection.
+	 * Releases the HTTP connection, so it can be reused for subsequent requests.
 	 */
 	@Override
 	public void close();
@@ -51,7 +51,6 @@ import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.StatusLine;
-import org.apache.http.conn.ClientConnectionManager;
 import org.deegree.commons.ows.exception.OWSException;
 import org.deegree.commons.xml.stax.XMLInputFactoryUtils;
 import org.deegree.protocol.ows.exception.OWSExceptionReport;
@@ -74,8 +73,6 @@ public class OwsHttpResponseImpl implements OwsHttpResponse {
 
 	private final HttpResponse httpResponse;
 
-	private final ClientConnectionManager connManager;
-
 	private final String url;
 
 	private final InputStream is;
@@ -83,15 +80,12 @@ public class OwsHttpResponseImpl implements OwsHttpResponse {
 	/**
 	 * Creates a new {@link OwsHttpResponseImpl} instance.
 	 * @param httpResponse
-	 * @param httpClient
 	 * @param url
 	 * @throws IllegalStateException
 	 * @throws IOException
 	 */
-	OwsHttpResponseImpl(HttpResponse httpResponse, ClientConnectionManager connManager, String url)
-			throws IllegalStateException, IOException {
+	OwsHttpResponseImpl(HttpResponse httpResponse, String url) throws IllegalStateException, IOException {
 		this.httpResponse = httpResponse;
-		this.connManager = connManager;
 		this.url = url;
 		HttpEntity entity = httpResponse.getEntity();
 		if (entity == null) {
@@ -175,7 +169,13 @@ public class OwsHttpResponseImpl implements OwsHttpResponse {
 
 	@Override
 	public void close() {
-		connManager.shutdown();
+		try {
+			// returns the connection to the pool
+			is.close();
+		}
+		catch (IOException e) {
+			LOG.debug("Could not close HTTP response stream: {}", e.getMessage());
+		}
 	}
 
 }
@@ -52,7 +52,6 @@ import javax.xml.stream.XMLStreamReader;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.StatusLine;
-import org.apache.http.conn.ClientConnectionManager;
 import org.deegree.protocol.ows.exception.OWSExceptionReport;
 import org.h2.util.IOUtils;
 import org.junit.Before;
@@ -89,11 +88,8 @@ public class OwsHttpResponseTest {
 
 	private OwsHttpResponse scenario4;
 
-	private ClientConnectionManager connManager;
-
 	@Before
 	public void setup() throws Exception {
-		connManager = mock(ClientConnectionManager.class);
 		scenario1 = createScenario1();
 		scenario2 = createScenario2();
 		scenario3 = createScenario3();
@@ -240,34 +236,36 @@ public class OwsHttpResponseTest {
 	 * Test method for {@link org.deegree.protocol.ows.http.OwsHttpResponse#close()}.
 	 */
 	@Test
-	public void testClose() throws IOException {
-		Mockito.verify(connManager, times(0)).shutdown();
-		scenario1.close();
-		Mockito.verify(connManager, times(1)).shutdown();
+	public void testClose() throws Exception {
+		InputStream payload = mock(InputStream.class);
+		OwsHttpResponse response = new OwsHttpResponseImpl(mockHttpResponse(payload, 200), "");
+		Mockito.verify(payload, times(0)).close();
+		response.close();
+		Mockito.verify(payload, times(1)).close();
 	}
 
 	private OwsHttpResponse createScenario1() throws Exception {
 		InputStream payload = OwsHttpResponseTest.class.getResourceAsStream(SCENARIO1_RESPONSE);
 		HttpResponse httpResponse = mockHttpResponse(payload, 200);
-		return new OwsHttpResponseImpl(httpResponse, connManager, "");
+		return new OwsHttpResponseImpl(httpResponse, "");
 	}
 
 	private OwsHttpResponse createScenario2() throws Exception {
 		InputStream payload = OwsHttpResponseTest.class.getResourceAsStream(SCENARIO2_RESPONSE);
 		HttpResponse httpResponse = mockHttpResponse(payload, 200);
-		return new OwsHttpResponseImpl(httpResponse, connManager, "");
+		return new OwsHttpResponseImpl(httpResponse, "");
 	}
 
 	private OwsHttpResponse createScenario3() throws Exception {
 		InputStream payload = OwsHttpResponseTest.class.getResourceAsStream(SCENARIO3_RESPONSE);
 		HttpResponse httpResponse = mockHttpResponse(payload, 200);
-		return new OwsHttpResponseImpl(httpResponse, connManager, "");
+		return new OwsHttpResponseImpl(httpResponse, "");
 	}
 
 	private OwsHttpResponse createScenario4() throws Exception {
 		InputStream payload = new ByteArrayInputStream(new byte[0]);
 		HttpResponse httpResponse = mockHttpResponse(payload, 500);
-		return new OwsHttpResponseImpl(httpResponse, connManager, "");
+		return new OwsHttpResponseImpl(httpResponse, "");
 	}
 
 	private HttpResponse mockHttpResponse(InputStream payload, int status) throws IllegalStateException, IOException {
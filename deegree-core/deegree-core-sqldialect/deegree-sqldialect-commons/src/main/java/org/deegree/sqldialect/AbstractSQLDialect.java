@@ -60,4 +60,9 @@ public abstract class AbstractSQLDialect implements SQLDialect {
 		return true;
 	}
 
+	@Override
+	public String getSelectSequenceNextVals(String sequence, int count) {
+		return null;
+	}
+
 }
@@ -197,6 +197,15 @@ public interface SQLDialect {
 	 */
 	String getSelectSequenceNextVal(String sequence);
 
+	/**
+	 * Returns a <code>SELECT</code> statement for retrieving the next values in the
+	 * specified DB sequence (one row per value).
+	 * @param sequence name of the database sequence, must not be <code>null</code>
+	 * @param count number of values to retrieve, must be positive
+	 * @return SQL <code>SELECT</code> statement, <code>null</code> if not supported
+	 */
+	String getSelectSequenceNextVals(String sequence, int count);
+
 	/**
 	 * Returns the leading escape char for the SQLDialect
 	 * @return leading escape char
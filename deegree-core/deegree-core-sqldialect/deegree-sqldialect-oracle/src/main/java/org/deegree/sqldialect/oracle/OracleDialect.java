@@ -279,6 +279,11 @@ public class OracleDialect extends AbstractSQLDialect implements SQLDialect {
 		return "SELECT " + sequence + ".NEXTVAL from DUAL";
 	}
 
+	@Override
+	public String getSelectSequenceNextVals(String sequence, int count) {
+		return "SELECT " + sequence + ".NEXTVAL from DUAL CONNECT BY LEVEL <= " + count;
+	}
+
 	@Override
 	public boolean isRowLimitingCapable() {
 		return versionMajor < 12 ? false : true;
@@ -284,6 +284,11 @@ public class PostGISDialect extends AbstractSQLDialect implements SQLDialect {
 		return "SELECT nextval('" + sequence + "')";
 	}
 
+	@Override
+	public String getSelectSequenceNextVals(String sequence, int count) {
+		return "SELECT nextval('" + sequence + "') FROM generate_series(1," + count + ")";
+	}
+
 	@Override
 	public char getLeadingEscapeChar() {
 		return escapeChar;
@@ -75,6 +75,35 @@ public interface Tile {
 	 */
 	InputStream getAsStream() throws TileIOException;
 
+	/**
+	 * Returns the mime type of the encoded data delivered by {@link #getAsStream()}, if
+	 * it is known without accessing the data. Callers may use this to deliver the
+	 * encoded bytes as they are instead of decoding and re-encoding them.
+	 * @return the mime type of the encoded tile, or <code>null</code> if unknown
+	 */
+	default String getEncodedFormat() {
+		return null;
+	}
+
+	/**
+	 * Returns a token that changes whenever the data of the tile changes, if it can be
+	 * determined more cheaply than by fetching the data. Callers may use it as a
+	 * validator, e.g. as HTTP entity tag.
+	 * @return version of the tile data, or <code>null</code> if unknown
+	 * @throws TileIOException if accessing the tile failed
+	 */
+	default String getVersion() throws TileIOException {
+		return null;
+	}
+
+	/**
+	 * Returns the time the tile data was last modified.
+	 * @return milliseconds since the epoch, or <code>-1</code> if unknown
+	 */
+	default long getLastModified() {
+		return -1;
+	}
+
 	/**
 	 * Returns the envelope of the tile data, specified from the outer bounds of the
 	 * border pixels.
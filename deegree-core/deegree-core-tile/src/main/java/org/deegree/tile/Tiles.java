@@ -40,6 +40,9 @@
 
 package org.deegree.tile;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
 import org.deegree.geometry.Envelope;
 import org.deegree.geometry.GeometryFactory;
 
@@ -112,4 +115,27 @@ public class Tiles {
 		return GEOMETRY_FACTORY.createEnvelope(minx, miny, minx + width, miny - height, env.getCoordinateSystem());
 	}
 
+	/**
+	 * Calculates a version token for the given tile data, suitable for
+	 * {@link Tile#getVersion()}.
+	 * @param data encoded tile data, must not be <code>null</code>
+	 * @return hex encoded hash of the data, never <code>null</code>
+	 */
+	public static String getVersion(byte[] data) {
+		MessageDigest md;
+		try {
+			md = MessageDigest.getInstance("MD5");
+		}
+		catch (NoSuchAlgorithmException e) {
+			// every Java platform is required to support MD5
+			throw new IllegalStateException(e);
+		}
+		md.update(data);
+		StringBuilder sb = new StringBuilder();
+		for (byte b : md.digest()) {
+			sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return sb.toString();
+	}
+
 }
@@ -29,7 +29,9 @@ package org.deegree.workspace;
 
 /**
  * SPI extension point for cleanup after workspace shutdown. After all resources have been
- * destroyed, all SPI providers implementing this interface will be called.
+ * destroyed, all SPI providers implementing this interface will be called. Before the
+ * resources are destroyed, {@link #preDestroy(Workspace)} is called, e.g. to stop
+ * background tasks that still use them.
  *
  * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
  * @since 3.4
@@ -41,4 +43,13 @@ public interface Destroyable {
 	 */
 	void destroy(Workspace workspace);
 
+	/**
+	 * Called before the resources of the workspace are destroyed. The default
+	 * implementation does nothing.
+	 * @param workspace the workspace being destroyed, never <code>null</code>
+	 */
+	default void preDestroy(Workspace workspace) {
+		// nothing to do
+	}
+
 }
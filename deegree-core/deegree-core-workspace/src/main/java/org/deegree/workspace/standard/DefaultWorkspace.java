@@ -178,6 +178,19 @@ public class DefaultWorkspace implements Workspace {
 
 	@Override
 	public void destroy() {
+		List<Destroyable> destroyables = new ArrayList<Destroyable>();
+		ServiceLoader.load(Destroyable.class, moduleClassLoader).forEach(destroyables::add);
+		for (Destroyable destroyable : destroyables) {
+			try {
+				destroyable.preDestroy(this);
+			}
+			catch (Exception e) {
+				LOG.error("Could not prepare destroying {}: {}", destroyable.getClass().getSimpleName(),
+						e.getLocalizedMessage());
+				LOG.trace("Stack trace:", e);
+			}
+		}
+
 		List<ResourceMetadata<? extends Resource>> list = graph.toSortedList();
 		Collections.reverse(list);
 		for (ResourceMetadata<? extends Resource> md : list) {
@@ -198,9 +211,7 @@ public class DefaultWorkspace implements Workspace {
 			mgr.shutdown();
 		}
 
-		Iterator<Destroyable> it = ServiceLoader.load(Destroyable.class, moduleClassLoader).iterator();
-		while (it.hasNext()) {
-			Destroyable init = it.next();
+		for (Destroyable init : destroyables) {
 			try {
 				init.destroy(this);
 			}
@@ -0,0 +1,502 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.persistence.cache;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.deegree.commons.tom.TypedObjectNode;
+import org.deegree.commons.tom.gml.GMLObject;
+import org.deegree.commons.tom.gml.GMLReference;
+import org.deegree.commons.tom.gml.property.Property;
+import org.deegree.commons.tom.primitive.PrimitiveValue;
+import org.deegree.feature.persistence.FeatureStore;
+import org.deegree.geometry.multi.MultiGeometry;
+import org.deegree.geometry.primitive.Curve;
+import org.deegree.geometry.primitive.Point;
+import org.deegree.geometry.primitive.Surface;
+import org.deegree.geometry.points.Points;
+
+/**
+ * {@link FeatureStoreCache} for concurrent access that is bounded by the estimated memory
+ * size of the cached objects.
+ * <p>
+ * The cache is split into independently locked segments (selected by the hash of the
+ * object id), so concurrent lookups of different objects rarely contend. Each segment
+ * uses a segmented LRU policy: new objects enter a probationary area and are only
+ * promoted to the protected area when they are requested again, so a scan over many
+ * objects that are requested only once cannot flush the frequently used ones. Entries may
+ * optionally expire after a fixed time to live.
+ * </p>
+ * <p>
+ * In contrast to {@link SimpleFeatureStoreCache}, cached objects are strongly referenced,
+ * so the cache does not empty all at once under memory pressure.
+ * </p>
+ *
+ * @see FeatureStore
+ */
+public class ConcurrentFeatureStoreCache implements FeatureStoreCache {
+
+	/** Default maximum (estimated) memory size of the cached objects: 64 MB */
+	public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+	/** Default number of segments */
+	public static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+	// share of the capacity of a segment that is reserved for objects that have been
+	// requested more than once
+	private static final double PROTECTED_RATIO = 0.8;
+
+	// rough memory costs (in bytes) used for estimating the size of cached objects
+	private static final int OBJECT_OVERHEAD = 64;
+
+	private static final int PROPERTY_OVERHEAD = 48;
+
+	private static final int POINT_SIZE = 40;
+
+	private static final int UNKNOWN_VALUE_SIZE = 256;
+
+	private static final int MAX_NESTING = 4;
+
+	private final Segment[] segments;
+
+	private final int segmentMask;
+
+	private final long maxBytes;
+
+	private final long timeToLiveNanos;
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * Creates a new {@link ConcurrentFeatureStoreCache} with default memory size and
+	 * without expiration.
+	 */
+	public ConcurrentFeatureStoreCache() {
+		this(DEFAULT_MAX_BYTES, -1, DEFAULT_CONCURRENCY_LEVEL);
+	}
+
+	/**
+	 * Creates a new {@link ConcurrentFeatureStoreCache}.
+	 * @param maxBytes maximum estimated memory size of all cached objects in bytes, must
+	 * be positive
+	 * @param timeToLiveMillis time in milliseconds after which cached objects expire, a
+	 * value less than or equal to zero disables expiration
+	 * @param concurrencyLevel number of independently locked segments, rounded up to the
+	 * next power of two, must be positive
+	 */
+	public ConcurrentFeatureStoreCache(long maxBytes, long timeToLiveMillis, int concurrencyLevel) {
+		if (maxBytes <= 0) {
+			throw new IllegalArgumentException("Maximum cache size must be positive, but was " + maxBytes + ".");
+		}
+		if (concurrencyLevel <= 0) {
+			throw new IllegalArgumentException("Concurrency level must be positive, but was " + concurrencyLevel + ".");
+		}
+		int numSegments = 1;
+		while (numSegments < concurrencyLevel) {
+			numSegments <<= 1;
+		}
+		this.maxBytes = maxBytes;
+		this.timeToLiveNanos = timeToLiveMillis > 0 ? MILLISECONDS.toNanos(timeToLiveMillis) : -1;
+		this.segmentMask = numSegments - 1;
+		this.segments = new Segment[numSegments];
+		long segmentBytes = Math.max(1, maxBytes / numSegments);
+		for (int i = 0; i < numSegments; i++) {
+			segments[i] = new Segment(segmentBytes);
+		}
+	}
+
+	@Override
+	public GMLObject get(String id) {
+		GMLObject obj = segmentFor(id).get(id);
+		if (obj == null) {
+			misses.increment();
+		}
+		else {
+			hits.increment();
+		}
+		return obj;
+	}
+
+	@Override
+	public void add(GMLObject obj) {
+		String id = obj.getId();
+		if (id == null) {
+			return;
+		}
+		segmentFor(id).put(id, obj, estimateSize(obj));
+	}
+
+	@Override
+	public void remove(String id) {
+		segmentFor(id).remove(id);
+	}
+
+	@Override
+	public void clear() {
+		for (Segment segment : segments) {
+			segment.clear();
+		}
+	}
+
+	/**
+	 * @return number of lookups that returned a cached object
+	 */
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	/**
+	 * @return number of lookups that did not find a (non-expired) cached object
+	 */
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	/**
+	 * @return number of objects that have been evicted because of the size limit or
+	 * expiration
+	 */
+	public long getEvictionCount() {
+		return evictions.sum();
+	}
+
+	/**
+	 * @return number of currently cached objects
+	 */
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			size += segment.size();
+		}
+		return size;
+	}
+
+	/**
+	 * @return estimated memory size of all currently cached objects in bytes
+	 */
+	public long getEstimatedBytes() {
+		long bytes = 0;
+		for (Segment segment : segments) {
+			bytes += segment.bytes();
+		}
+		return bytes;
+	}
+
+	/**
+	 * @return maximum estimated memory size of all cached objects in bytes
+	 */
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	@Override
+	public String toString() {
+		return "ConcurrentFeatureStoreCache {entries=" + size() + ", bytes=" + getEstimatedBytes() + "/" + maxBytes
+				+ ", hits=" + getHitCount() + ", misses=" + getMissCount() + ", evictions=" + getEvictionCount()
+				+ "}";
+	}
+
+	private Segment segmentFor(String id) {
+		int h = id.hashCode();
+		// spread the bits, the lower bits of string hash codes are poorly distributed
+		h ^= (h >>> 16);
+		return segments[h & segmentMask];
+	}
+
+	/**
+	 * Estimates the memory size of the given object (including its properties and
+	 * geometries).
+	 * @param obj object, must not be <code>null</code>
+	 * @return estimated memory size in bytes
+	 */
+	static long estimateSize(GMLObject obj) {
+		try {
+			return estimateSize(obj, 0);
+		}
+		catch (RuntimeException e) {
+			// e.g. curves with non-linear segments
+			return UNKNOWN_VALUE_SIZE;
+		}
+	}
+
+	private static long estimateSize(GMLObject obj, int depth) {
+		long size = OBJECT_OVERHEAD + estimateSize(obj.getId());
+		if (obj instanceof Point) {
+			return size + POINT_SIZE;
+		}
+		if (obj instanceof Curve) {
+			return size + estimateSize(((Curve) obj).getControlPoints());
+		}
+		if (obj instanceof Surface) {
+			Surface surface = (Surface) obj;
+			size += estimateSize(surface.getExteriorRingCoordinates());
+			List<Points> interiors = surface.getInteriorRingsCoordinates();
+			if (interiors != null) {
+				for (Points points : interiors) {
+					size += estimateSize(points);
+				}
+			}
+			return size;
+		}
+		if (obj instanceof MultiGeometry<?>) {
+			for (Object member : (MultiGeometry<?>) obj) {
+				size += estimateSize((GMLObject) member, depth);
+			}
+			return size;
+		}
+		if (depth < MAX_NESTING) {
+			for (Property prop : obj.getProperties()) {
+				size += PROPERTY_OVERHEAD + estimateSize(prop.getValue(), depth + 1);
+			}
+		}
+		return size;
+	}
+
+	private static long estimateSize(TypedObjectNode value, int depth) {
+		if (value == null) {
+			return 0;
+		}
+		if (value instanceof PrimitiveValue) {
+			return OBJECT_OVERHEAD + estimateSize(((PrimitiveValue) value).getAsText());
+		}
+		if (value instanceof GMLReference<?>) {
+			// do not resolve references, only the reference itself is held
+			return OBJECT_OVERHEAD;
+		}
+		if (value instanceof GMLObject) {
+			return estimateSize((GMLObject) value, depth);
+		}
+		return UNKNOWN_VALUE_SIZE;
+	}
+
+	private static long estimateSize(Points points) {
+		return points == null ? 0 : (long) points.size() * POINT_SIZE;
+	}
+
+	private static long estimateSize(String s) {
+		return s == null ? 0 : 40 + 2L * s.length();
+	}
+
+	private static class CacheEntry {
+
+		final GMLObject value;
+
+		final long size;
+
+		final long expires;
+
+		CacheEntry(GMLObject value, long size, long expires) {
+			this.value = value;
+			this.size = size;
+			this.expires = expires;
+		}
+
+	}
+
+	private class Segment extends ReentrantLock {
+
+		private static final long serialVersionUID = -2839254787290427516L;
+
+		private final long maxSegmentBytes;
+
+		private final long maxProtectedBytes;
+
+		// access ordered: least recently used entries first
+		private final LinkedHashMap<String, CacheEntry> probation = new LinkedHashMap<>(16, 0.75f, true);
+
+		private final LinkedHashMap<String, CacheEntry> protectedArea = new LinkedHashMap<>(16, 0.75f, true);
+
+		private long probationBytes;
+
+		private long protectedBytes;
+
+		Segment(long maxSegmentBytes) {
+			this.maxSegmentBytes = maxSegmentBytes;
+			this.maxProtectedBytes = (long) (maxSegmentBytes * PROTECTED_RATIO);
+		}
+
+		GMLObject get(String id) {
+			lock();
+			try {
+				CacheEntry entry = protectedArea.get(id);
+				if (entry == null) {
+					entry = probation.remove(id);
+					if (entry == null) {
+						return null;
+					}
+					probationBytes -= entry.size;
+					if (isExpired(entry)) {
+						evictions.increment();
+						return null;
+					}
+					promote(id, entry);
+					return entry.value;
+				}
+				if (isExpired(entry)) {
+					protectedArea.remove(id);
+					protectedBytes -= entry.size;
+					evictions.increment();
+					return null;
+				}
+				return entry.value;
+			}
+			finally {
+				unlock();
+			}
+		}
+
+		void put(String id, GMLObject obj, long size) {
+			lock();
+			try {
+				removeEntry(id);
+				if (size > maxSegmentBytes) {
+					// would flush the whole segment
+					return;
+				}
+				long expires = System.nanoTime() + timeToLiveNanos;
+				probation.put(id, new CacheEntry(obj, size, expires));
+				probationBytes += size;
+				evict();
+			}
+			finally {
+				unlock();
+			}
+		}
+
+		void remove(String id) {
+			lock();
+			try {
+				removeEntry(id);
+			}
+			finally {
+				unlock();
+			}
+		}
+
+		void clear() {
+			lock();
+			try {
+				probation.clear();
+				protectedArea.clear();
+				probationBytes = 0;
+				protectedBytes = 0;
+			}
+			finally {
+				unlock();
+			}
+		}
+
+		int size() {
+			lock();
+			try {
+				return probation.size() + protectedArea.size();
+			}
+			finally {
+				unlock();
+			}
+		}
+
+		long bytes() {
+			lock();
+			try {
+				return probationBytes + protectedBytes;
+			}
+			finally {
+				unlock();
+			}
+		}
+
+		private void promote(String id, CacheEntry entry) {
+			protectedArea.put(id, entry);
+			protectedBytes += entry.size;
+			// demote the least recently used protected entries back into probation
+			Iterator<Map.Entry<String, CacheEntry>> iter = protectedArea.entrySet().iterator();
+			while (protectedBytes > maxProtectedBytes && iter.hasNext()) {
+				Map.Entry<String, CacheEntry> eldest = iter.next();
+				if (eldest.getValue() == entry) {
+					break;
+				}
+				iter.remove();
+				protectedBytes -= eldest.getValue().size;
+				probation.put(eldest.getKey(), eldest.getValue());
+				probationBytes += eldest.getValue().size;
+			}
+		}
+
+		private void evict() {
+			while (probationBytes + protectedBytes > maxSegmentBytes) {
+				LinkedHashMap<String, CacheEntry> victims = probation.isEmpty() ? protectedArea : probation;
+				Iterator<CacheEntry> iter = victims.values().iterator();
+				CacheEntry eldest = iter.next();
+				iter.remove();
+				if (victims == probation) {
+					probationBytes -= eldest.size;
+				}
+				else {
+					protectedBytes -= eldest.size;
+				}
+				evictions.increment();
+			}
+		}
+
+		private void removeEntry(String id) {
+			CacheEntry entry = probation.remove(id);
+			if (entry != null) {
+				probationBytes -= entry.size;
+			}
+			entry = protectedArea.remove(id);
+			if (entry != null) {
+				protectedBytes -= entry.size;
+			}
+		}
+
+		private boolean isExpired(CacheEntry entry) {
+			return timeToLiveNanos > 0 && System.nanoTime() - entry.expires > 0;
+		}
+
+	}
+
+}
@@ -0,0 +1,73 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.persistence.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates {@link FeatureStoreCache} instances from the cache settings of feature store
+ * configurations.
+ */
+public class FeatureStoreCaches {
+
+	private static final Logger LOG = LoggerFactory.getLogger(FeatureStoreCaches.class);
+
+	private FeatureStoreCaches() {
+		// avoid instantiation
+	}
+
+	/**
+	 * Creates a {@link ConcurrentFeatureStoreCache}, using the defaults for all settings
+	 * that are not configured.
+	 * @param maxMemory maximum estimated memory size of the cached objects in bytes, may
+	 * be <code>null</code> ({@link ConcurrentFeatureStoreCache#DEFAULT_MAX_BYTES})
+	 * @param timeToLive time in milliseconds after which cached objects expire, may be
+	 * <code>null</code> (no expiration)
+	 * @param concurrencyLevel number of independently locked segments, may be
+	 * <code>null</code> ({@link ConcurrentFeatureStoreCache#DEFAULT_CONCURRENCY_LEVEL})
+	 * @return cache, never <code>null</code>
+	 */
+	public static FeatureStoreCache createConcurrentCache(Long maxMemory, Long timeToLive, Integer concurrencyLevel) {
+		long maxBytes = maxMemory != null ? maxMemory : ConcurrentFeatureStoreCache.DEFAULT_MAX_BYTES;
+		long timeToLiveMillis = timeToLive != null ? timeToLive : -1;
+		int segments = concurrencyLevel != null ? concurrencyLevel
+				: ConcurrentFeatureStoreCache.DEFAULT_CONCURRENCY_LEVEL;
+		LOG.debug("Using concurrent feature cache (max memory: {} bytes, time to live: {} ms).", maxBytes,
+				timeToLiveMillis);
+		return new ConcurrentFeatureStoreCache(maxBytes, timeToLiveMillis, segments);
+	}
+
+}
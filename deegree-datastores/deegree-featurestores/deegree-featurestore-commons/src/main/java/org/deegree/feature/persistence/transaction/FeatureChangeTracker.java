@@ -0,0 +1,142 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.persistence.transaction;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.namespace.QName;
+
+import org.deegree.feature.Feature;
+import org.deegree.feature.persistence.FeatureStore;
+import org.deegree.geometry.Envelope;
+import org.slf4j.Logger;
+
+/**
+ * Tracks the changed features of a feature store transaction, so they can be published as
+ * {@link FeatureStoreChange} on commit.
+ * <p>
+ * To limit the memory used by large transactions, the envelopes are merged into a single
+ * envelope once a threshold is exceeded.
+ * </p>
+ */
+public class FeatureChangeTracker {
+
+	private static final Logger LOG = getLogger(FeatureChangeTracker.class);
+
+	private static final int MAX_ENVELOPES = 1000;
+
+	private final Set<QName> featureTypes = new HashSet<QName>();
+
+	private List<Envelope> envelopes = new ArrayList<Envelope>();
+
+	private boolean unlocated;
+
+	/**
+	 * A feature has been inserted or deleted, or is updated (to be called before and
+	 * after the update).
+	 * @param feature the changed feature, must not be <code>null</code>
+	 */
+	public void changed(Feature feature) {
+		featureTypes.add(feature.getName());
+		if (unlocated) {
+			return;
+		}
+		Envelope bbox;
+		try {
+			bbox = feature.getEnvelope();
+		}
+		catch (Exception e) {
+			LOG.debug("Unable to determine bbox of feature with id {}: {}", feature.getId(), e.getMessage());
+			unlocated = true;
+			return;
+		}
+		if (bbox == null) {
+			// features without geometry don't change any area
+			return;
+		}
+		envelopes.add(bbox);
+		if (envelopes.size() > MAX_ENVELOPES) {
+			mergeEnvelopes();
+		}
+	}
+
+	/**
+	 * Features of the given type have changed, but their location is not known.
+	 * @param ftName name of the changed feature type, must not be <code>null</code>
+	 */
+	public void changed(QName ftName) {
+		featureTypes.add(ftName);
+		unlocated = true;
+	}
+
+	/**
+	 * @return <code>true</code>, if no changes have been tracked
+	 */
+	public boolean isEmpty() {
+		return featureTypes.isEmpty();
+	}
+
+	/**
+	 * @param store the changed feature store, must not be <code>null</code>
+	 * @return the tracked changes, never <code>null</code>
+	 */
+	public FeatureStoreChange getChange(FeatureStore store) {
+		return new FeatureStoreChange(store, featureTypes, unlocated ? new ArrayList<Envelope>() : envelopes,
+				unlocated);
+	}
+
+	private void mergeEnvelopes() {
+		Envelope merged = null;
+		for (Envelope bbox : envelopes) {
+			try {
+				merged = merged == null ? bbox : merged.merge(bbox);
+			}
+			catch (Exception e) {
+				// e.g. different coordinate systems
+				LOG.debug("Unable to merge envelopes: {}", e.getMessage());
+				unlocated = true;
+				return;
+			}
+		}
+		envelopes = new ArrayList<Envelope>();
+		envelopes.add(merged);
+	}
+
+}
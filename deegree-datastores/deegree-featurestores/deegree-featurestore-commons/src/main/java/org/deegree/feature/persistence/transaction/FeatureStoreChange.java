@@ -0,0 +1,113 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.persistence.transaction;
+
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableSet;
+
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.namespace.QName;
+
+import org.deegree.feature.persistence.FeatureStore;
+import org.deegree.feature.persistence.FeatureStoreTransaction;
+import org.deegree.geometry.Envelope;
+
+/**
+ * The changes of a committed {@link FeatureStoreTransaction}, as published to
+ * {@link FeatureStoreChangeListener}s.
+ *
+ * @see FeatureStoreChanges
+ */
+public class FeatureStoreChange {
+
+	private final FeatureStore store;
+
+	private final Set<QName> featureTypes;
+
+	private final List<Envelope> envelopes;
+
+	private final boolean unlocated;
+
+	/**
+	 * Creates a new {@link FeatureStoreChange} instance.
+	 * @param store the changed feature store, must not be <code>null</code>
+	 * @param featureTypes names of the changed feature types, must not be
+	 * <code>null</code>
+	 * @param envelopes envelopes of the inserted, updated (before and after the update)
+	 * and deleted features, must not be <code>null</code>
+	 * @param unlocated <code>true</code>, if the location of some changes is not known
+	 */
+	public FeatureStoreChange(FeatureStore store, Set<QName> featureTypes, List<Envelope> envelopes,
+			boolean unlocated) {
+		this.store = store;
+		this.featureTypes = unmodifiableSet(featureTypes);
+		this.envelopes = unmodifiableList(envelopes);
+		this.unlocated = unlocated;
+	}
+
+	/**
+	 * @return the changed feature store, never <code>null</code>
+	 */
+	public FeatureStore getStore() {
+		return store;
+	}
+
+	/**
+	 * @return names of the changed feature types, never <code>null</code>
+	 */
+	public Set<QName> getFeatureTypes() {
+		return featureTypes;
+	}
+
+	/**
+	 * Returns the areas affected by the changes. Envelopes without a coordinate system
+	 * are in the storage CRS of the feature store.
+	 * @return envelopes of the changed features, never <code>null</code>
+	 */
+	public List<Envelope> getEnvelopes() {
+		return envelopes;
+	}
+
+	/**
+	 * @return <code>true</code>, if the location of some changes is not known, so the
+	 * whole extent of the feature store has to be considered as changed
+	 */
+	public boolean isUnlocated() {
+		return unlocated;
+	}
+
+}
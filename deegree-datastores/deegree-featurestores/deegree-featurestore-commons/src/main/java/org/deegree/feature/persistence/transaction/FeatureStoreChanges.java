@@ -0,0 +1,127 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.persistence.transaction;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.deegree.feature.persistence.FeatureStore;
+import org.slf4j.Logger;
+
+/**
+ * Registry of the {@link FeatureStoreChangeListener}s of feature stores.
+ * <p>
+ * Feature store transactions publish their changes on commit, if listeners are registered
+ * for their store. Feature stores are referenced weakly, so listeners of feature stores
+ * that have been destroyed don't need to be removed.
+ * </p>
+ */
+public final class FeatureStoreChanges {
+
+	private static final Logger LOG = getLogger(FeatureStoreChanges.class);
+
+	private static final Map<FeatureStore, List<FeatureStoreChangeListener>> LISTENERS = new WeakHashMap<>();
+
+	private FeatureStoreChanges() {
+		// avoid instantiation
+	}
+
+	/**
+	 * @param store feature store to listen to, must not be <code>null</code>
+	 * @param listener listener to add, must not be <code>null</code>
+	 */
+	public static void addListener(FeatureStore store, FeatureStoreChangeListener listener) {
+		synchronized (LISTENERS) {
+			LISTENERS.computeIfAbsent(store, s -> new CopyOnWriteArrayList<>()).add(listener);
+		}
+	}
+
+	/**
+	 * @param store feature store the listener has been added to, must not be
+	 * <code>null</code>
+	 * @param listener listener to remove, must not be <code>null</code>
+	 */
+	public static void removeListener(FeatureStore store, FeatureStoreChangeListener listener) {
+		synchronized (LISTENERS) {
+			List<FeatureStoreChangeListener> listeners = LISTENERS.get(store);
+			if (listeners != null) {
+				listeners.remove(listener);
+				if (listeners.isEmpty()) {
+					LISTENERS.remove(store);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Transactions may use this to avoid tracking changes no one is interested in.
+	 * @param store feature store, must not be <code>null</code>
+	 * @return <code>true</code>, if listeners are registered for the store
+	 */
+	public static boolean hasListeners(FeatureStore store) {
+		synchronized (LISTENERS) {
+			return LISTENERS.containsKey(store);
+		}
+	}
+
+	/**
+	 * Notifies the listeners of the changed store. Exceptions thrown by listeners are
+	 * logged and don't affect other listeners.
+	 * @param change changes of a committed transaction, must not be <code>null</code>
+	 */
+	public static void publish(FeatureStoreChange change) {
+		List<FeatureStoreChangeListener> listeners;
+		synchronized (LISTENERS) {
+			listeners = LISTENERS.get(change.getStore());
+		}
+		if (listeners == null) {
+			return;
+		}
+		for (FeatureStoreChangeListener listener : listeners) {
+			try {
+				listener.changed(change);
+			}
+			catch (RuntimeException e) {
+				LOG.warn("Feature store change listener failed: {}", e.getMessage());
+				LOG.trace("Stack trace:", e);
+			}
+		}
+	}
+
+}
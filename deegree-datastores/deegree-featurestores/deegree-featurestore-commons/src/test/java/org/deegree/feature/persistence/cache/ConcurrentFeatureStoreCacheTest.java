@@ -0,0 +1,135 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.persistence.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.deegree.commons.tom.gml.GMLObject;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ConcurrentFeatureStoreCache}.
+ */
+public class ConcurrentFeatureStoreCacheTest {
+
+	@Test
+	public void testAddAndGet() {
+		ConcurrentFeatureStoreCache cache = new ConcurrentFeatureStoreCache();
+		GMLObject obj = mockObject("f1");
+		cache.add(obj);
+
+		assertSame(obj, cache.get("f1"));
+		assertNull(cache.get("f2"));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	@Test
+	public void testRemoveAndClear() {
+		ConcurrentFeatureStoreCache cache = new ConcurrentFeatureStoreCache();
+		cache.add(mockObject("f1"));
+		cache.add(mockObject("f2"));
+		cache.add(mockObject("f3"));
+
+		cache.remove("f1");
+		assertNull(cache.get("f1"));
+		assertEquals(2, cache.size());
+
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getEstimatedBytes());
+	}
+
+	@Test
+	public void testSizeIsBounded() {
+		long entrySize = ConcurrentFeatureStoreCache.estimateSize(mockObject("f00"));
+		ConcurrentFeatureStoreCache cache = new ConcurrentFeatureStoreCache(10 * entrySize, -1, 1);
+		for (int i = 0; i < 100; i++) {
+			cache.add(mockObject(String.format("f%02d", i)));
+		}
+
+		assertEquals(10, cache.size());
+		assertTrue(cache.getEstimatedBytes() <= cache.getMaxBytes());
+		assertEquals(90, cache.getEvictionCount());
+		// least recently added objects are evicted first
+		assertNull(cache.get("f00"));
+		assertTrue(cache.get("f99") != null);
+	}
+
+	@Test
+	public void testFrequentlyUsedObjectSurvivesScan() {
+		long entrySize = ConcurrentFeatureStoreCache.estimateSize(mockObject("f00"));
+		ConcurrentFeatureStoreCache cache = new ConcurrentFeatureStoreCache(10 * entrySize, -1, 1);
+		GMLObject hot = mockObject("hot");
+		cache.add(hot);
+		cache.get("hot");
+		for (int i = 0; i < 100; i++) {
+			cache.add(mockObject(String.format("f%02d", i)));
+		}
+
+		assertSame(hot, cache.get("hot"));
+	}
+
+	@Test
+	public void testExpiration() throws InterruptedException {
+		ConcurrentFeatureStoreCache cache = new ConcurrentFeatureStoreCache(1024 * 1024, 10, 1);
+		cache.add(mockObject("f1"));
+		Thread.sleep(50);
+
+		assertNull(cache.get("f1"));
+		assertEquals(1, cache.getEvictionCount());
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testObjectWithoutIdIsIgnored() {
+		ConcurrentFeatureStoreCache cache = new ConcurrentFeatureStoreCache();
+		cache.add(mockObject(null));
+
+		assertEquals(0, cache.size());
+	}
+
+	private static GMLObject mockObject(String id) {
+		GMLObject obj = mock(GMLObject.class);
+		when(obj.getId()).thenReturn(id);
+		return obj;
+	}
+
+}
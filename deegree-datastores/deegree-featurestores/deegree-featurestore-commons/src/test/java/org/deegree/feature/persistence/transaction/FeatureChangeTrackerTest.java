@@ -0,0 +1,125 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.persistence.transaction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import javax.xml.namespace.QName;
+
+import org.deegree.feature.Feature;
+import org.deegree.feature.persistence.FeatureStore;
+import org.deegree.geometry.Envelope;
+import org.deegree.geometry.GeometryFactory;
+import org.junit.Test;
+
+/**
+ * Tests for {@link FeatureChangeTracker}.
+ */
+public class FeatureChangeTrackerTest {
+
+	private static final GeometryFactory FAC = new GeometryFactory();
+
+	private static final QName FT = new QName("http://www.deegree.org/app", "Place");
+
+	private final FeatureStore store = mock(FeatureStore.class);
+
+	@Test
+	public void testEnvelopesAreCollected() {
+		FeatureChangeTracker tracker = new FeatureChangeTracker();
+		assertTrue(tracker.isEmpty());
+		tracker.changed(mockFeature(FAC.createEnvelope(0, 0, 1, 1, null)));
+		tracker.changed(mockFeature(FAC.createEnvelope(5, 5, 6, 6, null)));
+		tracker.changed(mockFeature(null));
+
+		FeatureStoreChange change = tracker.getChange(store);
+		assertFalse(tracker.isEmpty());
+		assertSame(store, change.getStore());
+		assertTrue(change.getFeatureTypes().contains(FT));
+		assertFalse(change.isUnlocated());
+		assertEquals(2, change.getEnvelopes().size());
+	}
+
+	@Test
+	public void testManyEnvelopesAreMerged() {
+		FeatureChangeTracker tracker = new FeatureChangeTracker();
+		for (int i = 0; i <= 1000; i++) {
+			tracker.changed(mockFeature(FAC.createEnvelope(i, 0, i + 1, 1, null)));
+		}
+
+		FeatureStoreChange change = tracker.getChange(store);
+		assertFalse(change.isUnlocated());
+		assertEquals(1, change.getEnvelopes().size());
+		Envelope merged = change.getEnvelopes().get(0);
+		assertEquals(0.0, merged.getMin().get0(), 0.0);
+		assertEquals(1001.0, merged.getMax().get0(), 0.0);
+	}
+
+	@Test
+	public void testUnknownLocation() {
+		FeatureChangeTracker tracker = new FeatureChangeTracker();
+		tracker.changed(mockFeature(FAC.createEnvelope(0, 0, 1, 1, null)));
+		Feature broken = mockFeature(null);
+		when(broken.getEnvelope()).thenThrow(new IllegalArgumentException("no envelope"));
+		tracker.changed(broken);
+
+		FeatureStoreChange change = tracker.getChange(store);
+		assertTrue(change.isUnlocated());
+		assertTrue(change.getEnvelopes().isEmpty());
+	}
+
+	@Test
+	public void testChangedFeatureType() {
+		FeatureChangeTracker tracker = new FeatureChangeTracker();
+		tracker.changed(FT);
+
+		FeatureStoreChange change = tracker.getChange(store);
+		assertFalse(tracker.isEmpty());
+		assertTrue(change.isUnlocated());
+		assertTrue(change.getFeatureTypes().contains(FT));
+	}
+
+	private static Feature mockFeature(Envelope bbox) {
+		Feature feature = mock(Feature.class);
+		when(feature.getName()).thenReturn(FT);
+		when(feature.getEnvelope()).thenReturn(bbox);
+		return feature;
+	}
+
+}
@@ -61,6 +61,8 @@ import org.deegree.feature.persistence.FeatureStoreException;
 import org.deegree.feature.persistence.FeatureStoreTransaction;
 import org.deegree.feature.persistence.lock.Lock;
 import org.deegree.feature.persistence.lock.LockManager;
+import org.deegree.feature.persistence.transaction.FeatureChangeTracker;
+import org.deegree.feature.persistence.transaction.FeatureStoreChanges;
 import org.deegree.feature.persistence.transaction.FeatureUpdater;
 import org.deegree.feature.types.FeatureType;
 import org.deegree.feature.xpath.TypedObjectNodeXPathEvaluator;
@@ -103,6 +105,9 @@ class MemoryFeatureStoreTransaction implements FeatureStoreTransaction {
 
 	private final LockManager lockManager;
 
+	// only if someone listens to the changes
+	private final FeatureChangeTracker changeTracker;
+
 	/**
 	 * Creates a new {@link MemoryFeatureStoreTransaction} instance.
 	 * @param fs invoking feature store instance, must not be <code>null</code>
@@ -113,6 +118,7 @@ class MemoryFeatureStoreTransaction implements FeatureStoreTransaction {
 		this.fs = fs;
 		this.sf = sf;
 		this.lockManager = lockManager;
+		this.changeTracker = FeatureStoreChanges.hasListeners(fs) ? new FeatureChangeTracker() : null;
 	}
 
 	@Override
@@ -124,6 +130,9 @@ class MemoryFeatureStoreTransaction implements FeatureStoreTransaction {
 			throw new FeatureStoreException(e.getMessage());
 		}
 		fs.releaseTransaction(this, sf);
+		if (changeTracker != null && !changeTracker.isEmpty()) {
+			FeatureStoreChanges.publish(changeTracker.getChange(fs));
+		}
 	}
 
 	@Override
@@ -161,6 +170,7 @@ class MemoryFeatureStoreTransaction implements FeatureStoreTransaction {
 
 				deleted = delete.size();
 				for (Feature feature : delete) {
+					trackChange(feature);
 					sf.removeFeature(feature);
 					if (lock != null) {
 						lock.release(feature.getId());
@@ -197,6 +207,7 @@ class MemoryFeatureStoreTransaction implements FeatureStoreTransaction {
 			if (obj != null) {
 				if (obj instanceof Feature) {
 					Feature f = (Feature) obj;
+					trackChange(f);
 					sf.removeFeature(f);
 					deleted++;
 				}
@@ -238,6 +249,7 @@ class MemoryFeatureStoreTransaction implements FeatureStoreTransaction {
 		begin = System.currentTimeMillis();
 		for (Feature feature : features) {
 			sf.addFeature(feature);
+			trackChange(feature);
 		}
 		elapsed = System.currentTimeMillis() - begin;
 		LOG.debug("Adding of features took {} [ms]", elapsed);
@@ -507,6 +519,12 @@ class MemoryFeatureStoreTransaction implements FeatureStoreTransaction {
 		return transformed;
 	}
 
+	private void trackChange(Feature feature) {
+		if (changeTracker != null) {
+			changeTracker.changed(feature);
+		}
+	}
+
 	private String generateNewId() {
 		return UUID.randomUUID().toString();
 	}
@@ -543,7 +561,9 @@ class MemoryFeatureStoreTransaction implements FeatureStoreTransaction {
 
 				for (Feature feature : update) {
 					updatedFids.add(feature.getId());
+					trackChange(feature);
 					new FeatureUpdater().update(feature, replacementProps);
+					trackChange(feature);
 					if (lock != null) {
 						lock.release(feature.getId());
 					}
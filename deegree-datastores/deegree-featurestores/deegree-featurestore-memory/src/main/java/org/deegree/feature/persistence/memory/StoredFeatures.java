@@ -43,7 +43,7 @@ import java.util.Set;
 
 import javax.xml.namespace.QName;
 
-import org.deegree.commons.index.RTree;
+import org.deegree.commons.index.PackedRTree;
 import org.deegree.commons.tom.Reference;
 import org.deegree.commons.tom.gml.GMLObject;
 import org.deegree.commons.utils.Pair;
@@ -63,6 +63,7 @@ import org.deegree.feature.xpath.TypedObjectNodeXPathEvaluator;
 import org.deegree.filter.FilterEvaluationException;
 import org.deegree.filter.IdFilter;
 import org.deegree.filter.ResourceId;
+import org.deegree.filter.compiled.FilterCompiler;
 import org.deegree.filter.sort.SortProperty;
 import org.deegree.geometry.Envelope;
 import org.deegree.geometry.Geometry;
@@ -91,7 +92,7 @@ class StoredFeatures {
 
 	private final Map<String, GMLObject> idToObject = new HashMap<>();
 
-	private final Map<QName, RTree<Feature>> ftToIndex = new HashMap<>();
+	private final Map<QName, PackedRTree<Feature>> ftToIndex = new HashMap<>();
 
 	/**
 	 * Creates a new {@link StoredFeatures} instance.
@@ -160,9 +161,10 @@ class StoredFeatures {
 			// determine / filter features
 			fc = ftToFeatures.get(ft.getName());
 
-			// perform index filtering
+			// perform index filtering (not available for modified types until commit)
 			Envelope ftEnv = fc.getEnvelope();
-			if (query.getPrefilterBBoxEnvelope() != null && ftEnv != null && storageCRS != null) {
+			PackedRTree<Feature> index = ftToIndex.get(ft.getName());
+			if (query.getPrefilterBBoxEnvelope() != null && ftEnv != null && storageCRS != null && index != null) {
 				Envelope prefilterBox = query.getPrefilterBBoxEnvelope();
 				if (prefilterBox.getCoordinateSystem() != null
 						&& !prefilterBox.getCoordinateSystem().equals(storageCRS)) {
@@ -176,12 +178,11 @@ class StoredFeatures {
 				}
 
 				float[] floats = toFloats(prefilterBox);
-				RTree<Feature> index = ftToIndex.get(ft.getName());
 				fc = new GenericFeatureCollection(null, index.query(floats));
 			}
 
 			if (query.getFilter() != null) {
-				fc = fc.getMembers(query.getFilter(), evaluator);
+				fc = fc.getMembers(FilterCompiler.compile(query.getFilter(), storageCRS), evaluator);
 			}
 		}
 		else {
@@ -236,14 +237,8 @@ class StoredFeatures {
 		}
 		fc.add(feature);
 		idToObject.put(feature.getId(), feature);
-		if (feature.getEnvelope() != null) {
-			RTree<Feature> rTree = ftToIndex.get(ft.getName());
-			float[] insertBox = toFloats(feature.getEnvelope());
-			if (rTree == null) {
-				rTree = new RTree<>(insertBox, 16);
-			}
-			rTree.insert(insertBox, feature);
-		}
+		// packed index cannot be updated, it is rebuilt by rebuildIndexes()
+		ftToIndex.remove(ft.getName());
 	}
 
 	/**
@@ -253,10 +248,8 @@ class StoredFeatures {
 	void removeFeature(Feature feature) {
 		idToObject.remove(feature.getId());
 		FeatureType ft = feature.getType();
-		RTree<Feature> rTree = ftToIndex.get(ft.getName());
-		if (rTree != null) {
-			rTree.remove(feature);
-		}
+		// packed index cannot be updated, it is rebuilt by rebuildIndexes()
+		ftToIndex.remove(ft.getName());
 		FeatureCollection fc = ftToFeatures.get(ft.getName());
 		if (fc != null) {
 			fc.remove(feature);
@@ -293,7 +286,7 @@ class StoredFeatures {
 			FeatureCollection fc = ftToFeatures.get(ftName);
 			Envelope env = fc.getEnvelope();
 			if (env != null) {
-				RTree<Feature> index = new RTree<>(toFloats(env), 16);
+				PackedRTree<Feature> index = new PackedRTree<>();
 				List<Pair<float[], Feature>> fBboxes = new ArrayList<Pair<float[], Feature>>(fc.size());
 				for (Feature f : fc) {
 					Envelope fEnv = f.getEnvelope();
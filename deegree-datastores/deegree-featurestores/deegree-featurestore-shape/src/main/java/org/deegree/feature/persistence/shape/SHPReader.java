@@ -51,11 +51,13 @@ import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 
+import org.deegree.commons.index.PackedRTree;
 import org.deegree.commons.index.SpatialIndex;
 import org.deegree.commons.utils.Pair;
 import org.deegree.cs.coordinatesystems.ICRS;
@@ -345,6 +347,29 @@ public class SHPReader {
 		return GEOMETRY;
 	}
 
+	/**
+	 * @return the sorted file positions of the records whose envelopes intersect the
+	 * given bbox
+	 */
+	@SuppressWarnings("unchecked")
+	private long[] queryPointers(Envelope bbox) {
+		float[] env = createEnvelope(bbox);
+		long[] pointers;
+		if (rtree instanceof PackedRTree) {
+			pointers = ((PackedRTree<Long>) rtree).queryLongs(env);
+		}
+		else {
+			Collection<Long> list = rtree.query(env);
+			pointers = new long[list.size()];
+			int i = 0;
+			for (Long ptr : list) {
+				pointers[i++] = ptr;
+			}
+		}
+		Arrays.sort(pointers);
+		return pointers;
+	}
+
 	/**
 	 * @param bbox
 	 * @param ids if not null, the resulting list will only contain record numbers which
@@ -357,10 +382,9 @@ public class SHPReader {
 
 		ByteBuffer buffer = sharedBuffer.asReadOnlyBuffer();
 		buffer.order(ByteOrder.LITTLE_ENDIAN);
-		List<Long> pointers = (List<Long>) rtree.query(createEnvelope(bbox));
-		List<Pair<Integer, Long>> recNums = new ArrayList<Pair<Integer, Long>>(pointers.size());
-		Collections.sort(pointers);
-		for (Long ptr : pointers) {
+		long[] pointers = queryPointers(bbox);
+		List<Pair<Integer, Long>> recNums = new ArrayList<Pair<Integer, Long>>(pointers.length);
+		for (long ptr : pointers) {
 			buffer.position((int) (ptr - 8));
 			int num = getBEInt(buffer);
 			if (num == 0 && !recordNumStartsWith0 && rtree != null) {
@@ -399,9 +423,8 @@ public class SHPReader {
 
 		LinkedList<Pair<Integer, Geometry>> list = new LinkedList<Pair<Integer, Geometry>>();
 
-		List<Long> pointers = (List<Long>) rtree.query(createEnvelope(bbox));
-		Collections.sort(pointers);
-		for (Long ptr : pointers) {
+		long[] pointers = queryPointers(bbox);
+		for (long ptr : pointers) {
 			buffer.position((int) (ptr - 8));
 
 			int num = getBEInt(buffer);
@@ -38,7 +38,6 @@ import static org.deegree.commons.utils.CollectionUtils.unzipPair;
 import static org.deegree.feature.types.property.GeometryPropertyType.CoordinateDimension.DIM_2_OR_3;
 import static org.deegree.feature.types.property.ValueRepresentation.BOTH;
 import static org.deegree.filter.Filters.splitOffBBoxConstraint;
-import static org.deegree.geometry.utils.GeometryUtils.createEnvelope;
 import static org.slf4j.LoggerFactory.getLogger;
 
 import java.io.BufferedReader;
@@ -61,7 +60,7 @@ import java.util.NoSuchElementException;
 import javax.xml.namespace.QName;
 
 import org.apache.commons.io.IOUtils;
-import org.deegree.commons.index.RTree;
+import org.deegree.commons.index.PackedRTree;
 import org.deegree.commons.tom.gml.GMLObject;
 import org.deegree.commons.tom.gml.property.Property;
 import org.deegree.commons.tom.gml.property.PropertyType;
@@ -99,6 +98,7 @@ import org.deegree.filter.Filter;
 import org.deegree.filter.FilterEvaluationException;
 import org.deegree.filter.IdFilter;
 import org.deegree.filter.ResourceId;
+import org.deegree.filter.compiled.FilterCompiler;
 import org.deegree.filter.sort.SortProperty;
 import org.deegree.geometry.Envelope;
 import org.deegree.geometry.Geometry;
@@ -253,7 +253,7 @@ public class ShapeFeatureStore implements FeatureStore {
 		if (rtfile.exists() && !(rtfile.lastModified() < shpFile.lastModified()) && !forceIndexRebuild) {
 			try {
 				LOG.debug("Loading RTree from disk.");
-				RTree<Long> rtree = RTree.loadFromDisk(shpName + ".rti");
+				PackedRTree<Long> rtree = PackedRTree.loadFromDisk(shpName + ".rti");
 				shp = new SHPReader(raf, storageCrs, rtree, rtree.getExtraFlag());
 			}
 			catch (IOException e) {
@@ -269,26 +269,31 @@ public class ShapeFeatureStore implements FeatureStore {
 
 		LOG.debug("Building rtree index in memory for '{}'", new File(shpName).getName());
 
-		Pair<RTree<Long>, Boolean> p = createIndex(shp);
+		PackedRTree<Long> rtree = createIndex(shp);
 		LOG.debug("done building index.");
-		shp = new SHPReader(raf, storageCrs, p.first, p.second);
-		p.first.writeTreeToDisk(shpName + ".rti");
+		shp = new SHPReader(raf, storageCrs, rtree, rtree.getExtraFlag());
+		try {
+			rtree.writeTreeToDisk(shpName + ".rti");
+		}
+		catch (IOException e) {
+			LOG.debug("Stack trace:", e);
+			LOG.warn("Rtree index could not be written to '{}': {}", shpName + ".rti", e.getMessage());
+		}
 		return shp;
 	}
 
 	/**
 	 * @param shapeReader
 	 */
-	private static Pair<RTree<Long>, Boolean> createIndex(SHPReader shapeReader) {
-		Envelope env = shapeReader.getEnvelope();
-		// use 128 values per rect.
-		RTree<Long> result = new RTree<Long>(createEnvelope(env), -1);
-		// to work around Java's non-existent variant type
+	private static PackedRTree<Long> createIndex(SHPReader shapeReader) {
+		PackedRTree<Long> result = new PackedRTree<Long>();
 		LOG.debug("Read envelopes from shape file...");
 		Pair<ArrayList<Pair<float[], Long>>, Boolean> p = shapeReader.readEnvelopes();
 		LOG.debug("done reading envelopes.");
 		result.insertBulk(p.first);
-		return new Pair<RTree<Long>, Boolean>(result, p.second);
+		// to work around buggy shape files
+		result.setExtraFlag(p.second);
+		return result;
 	}
 
 	private void checkForUpdate() {
@@ -411,7 +416,7 @@ public class ShapeFeatureStore implements FeatureStore {
 
 		if (p.first != null) {
 			LOG.debug("Applying in-memory filtering.");
-			rs = new FilteredFeatureInputStream(rs, p.first);
+			rs = new FilteredFeatureInputStream(rs, FilterCompiler.compile(p.first, storageCrs));
 		}
 
 		if (p.second != null && p.second.length > 0) {
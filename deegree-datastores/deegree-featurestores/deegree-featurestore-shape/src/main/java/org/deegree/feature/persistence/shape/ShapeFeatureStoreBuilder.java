@@ -47,8 +47,11 @@ import java.util.List;
 import org.deegree.cs.coordinatesystems.ICRS;
 import org.deegree.cs.persistence.CRSManager;
 import org.deegree.feature.persistence.FeatureStore;
+import org.deegree.feature.persistence.cache.FeatureStoreCache;
+import org.deegree.feature.persistence.cache.FeatureStoreCaches;
 import org.deegree.feature.persistence.shape.ShapeFeatureStoreProvider.Mapping;
 import org.deegree.feature.persistence.shape.jaxb.ShapeFeatureStoreConfig;
+import org.deegree.feature.persistence.shape.jaxb.ShapeFeatureStoreConfig.FeatureCache.ConcurrentCache;
 import org.deegree.feature.persistence.shape.jaxb.ShapeFeatureStoreConfig.Mapping.GeometryProperty;
 import org.deegree.feature.persistence.shape.jaxb.ShapeFeatureStoreConfig.Mapping.SimpleProperty;
 import org.deegree.workspace.ResourceBuilder;
@@ -127,8 +130,18 @@ public class ShapeFeatureStoreBuilder implements ResourceBuilder<FeatureStore> {
 
 		Boolean genIdx = config.isGenerateAlphanumericIndexes();
 		return new ShapeFeatureStore(shapeFileName, crs, cs, config.getFeatureTypeNamespace(),
-				config.getFeatureTypeName(), config.getFeatureTypePrefix(), genIdx == null || genIdx, null, mappings,
-				metadata);
+				config.getFeatureTypeName(), config.getFeatureTypePrefix(), genIdx == null || genIdx, buildCache(),
+				mappings, metadata);
+	}
+
+	private FeatureStoreCache buildCache() {
+		if (config.getFeatureCache() == null || config.getFeatureCache().getConcurrentCache() == null) {
+			// use default cache
+			return null;
+		}
+		ConcurrentCache conf = config.getFeatureCache().getConcurrentCache();
+		return FeatureStoreCaches.createConcurrentCache(conf.getMaxMemory(), conf.getTimeToLive(),
+				conf.getConcurrencyLevel());
 	}
 
 }
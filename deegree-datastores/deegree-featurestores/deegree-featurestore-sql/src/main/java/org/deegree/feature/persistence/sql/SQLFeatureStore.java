@@ -48,6 +48,7 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -71,6 +72,7 @@ import org.deegree.commons.tom.primitive.PrimitiveType;
 import org.deegree.commons.tom.primitive.PrimitiveValue;
 import org.deegree.commons.tom.sql.ParticleConverter;
 import org.deegree.commons.tom.sql.SQLValueMangler;
+import org.deegree.commons.utils.CloseableIterator;
 import org.deegree.commons.utils.JDBCUtils;
 import org.deegree.commons.utils.Pair;
 import org.deegree.commons.utils.kvp.InvalidParameterValueException;
@@ -88,6 +90,7 @@ import org.deegree.feature.persistence.FeatureStoreManager;
 import org.deegree.feature.persistence.FeatureStoreTransaction;
 import org.deegree.feature.persistence.cache.BBoxCache;
 import org.deegree.feature.persistence.cache.FeatureStoreCache;
+import org.deegree.feature.persistence.cache.FeatureStoreCaches;
 import org.deegree.feature.persistence.cache.SimpleFeatureStoreCache;
 import org.deegree.feature.persistence.lock.DefaultLockManager;
 import org.deegree.feature.persistence.lock.LockManager;
@@ -100,6 +103,7 @@ import org.deegree.feature.persistence.sql.converter.CustomParticleConverter;
 import org.deegree.feature.persistence.sql.converter.FeatureParticleConverter;
 import org.deegree.feature.persistence.sql.id.FIDMapping;
 import org.deegree.feature.persistence.sql.id.IdAnalysis;
+import org.deegree.feature.persistence.sql.jaxb.ConcurrentCacheType;
 import org.deegree.feature.persistence.sql.jaxb.CustomConverterJAXB;
 import org.deegree.feature.persistence.sql.jaxb.CustomInspector;
 import org.deegree.feature.persistence.sql.jaxb.SQLFeatureStoreJAXB;
@@ -122,6 +126,7 @@ import org.deegree.filter.Filter;
 import org.deegree.filter.FilterEvaluationException;
 import org.deegree.filter.IdFilter;
 import org.deegree.filter.OperatorFilter;
+import org.deegree.filter.compiled.FilterCompiler;
 import org.deegree.filter.expression.ValueReference;
 import org.deegree.filter.sort.SortProperty;
 import org.deegree.filter.spatial.BBOX;
@@ -191,6 +196,10 @@ public class SQLFeatureStore implements FeatureStore {
 
 	private final Boolean readAutoCommit;
 
+	private final int joinBatchSize;
+
+	private final int insertBatchSize;
+
 	private final List<FeatureInspector> inspectors = new ArrayList<FeatureInspector>();
 
 	private boolean nullEscalation;
@@ -223,15 +232,27 @@ public class SQLFeatureStore implements FeatureStore {
 		readAutoCommit = config.getJDBCConnId().isReadAutoCommit() != null ? config.getJDBCConnId().isReadAutoCommit()
 				: !dialect.requiresTransactionForCursorMode();
 		LOG.debug("Read auto commit: {}", readAutoCommit);
+		joinBatchSize = config.getJoinBatchSize() != null ? config.getJoinBatchSize().intValue() : 0;
+		LOG.debug("Join batch size: {}", joinBatchSize);
+		insertBatchSize = config.getInsertBatchSize() != null ? config.getInsertBatchSize().intValue() : 0;
+		LOG.debug("Insert batch size: {}", insertBatchSize);
 
 		if (config.getFeatureCache() != null) {
-			cache = new SimpleFeatureStoreCache(DEFAULT_CACHE_SIZE);
+			cache = createCache(config.getFeatureCache().getConcurrentCache());
 		}
 		else {
 			cache = null;
 		}
 	}
 
+	private static FeatureStoreCache createCache(ConcurrentCacheType concurrentCache) {
+		if (concurrentCache == null) {
+			return new SimpleFeatureStoreCache(DEFAULT_CACHE_SIZE);
+		}
+		return FeatureStoreCaches.createConcurrentCache(concurrentCache.getMaxMemory(),
+				concurrentCache.getTimeToLive(), concurrentCache.getConcurrencyLevel());
+	}
+
 	/**
 	 * @return the currently active transaction., may be <code>null</code> if no
 	 * transaction was acquired
@@ -690,6 +711,15 @@ public class SQLFeatureStore implements FeatureStore {
 		}
 	}
 
+	/**
+	 * Returns the maximum number of rows that are inserted with a single JDBC batch.
+	 * @return maximum number of rows per batch, <code>0</code> if rows are inserted one
+	 * by one
+	 */
+	public int getInsertBatchSize() {
+		return insertBatchSize;
+	}
+
 	/**
 	 * Returns the {@link FeatureStoreCache}.
 	 * @return feature store cache, can be <code>null</code> (no cache configured)
@@ -1179,7 +1209,7 @@ public class SQLFeatureStore implements FeatureStore {
 			conn = getConnection();
 
 			String tableAlias = "X1";
-			FeatureBuilder builder = new FeatureBuilderRelational(this, ft, ftMapping, conn, tableAlias,
+			FeatureBuilderRelational builder = new FeatureBuilderRelational(this, ft, ftMapping, conn, tableAlias,
 					nullEscalation);
 			List<String> columns = builder.getInitialSelectList();
 			StringBuilder sql = new StringBuilder("SELECT ");
@@ -1231,7 +1261,7 @@ public class SQLFeatureStore implements FeatureStore {
 			begin = System.currentTimeMillis();
 			rs = stmt.executeQuery();
 			LOG.debug("Executing SELECT took {} [ms] ", System.currentTimeMillis() - begin);
-			result = new IteratorFeatureInputStream(new FeatureResultSetIterator(builder, rs, conn, stmt));
+			result = new IteratorFeatureInputStream(createFeatureIterator(builder, rs, conn, stmt));
 		}
 		catch (Exception e) {
 			release(rs, stmt, conn);
@@ -1399,7 +1429,7 @@ public class SQLFeatureStore implements FeatureStore {
 
 		if (filter != null) {
 			LOG.debug("Applying in-memory post-filtering.");
-			result = new FilteredFeatureInputStream(result, filter);
+			result = new FilteredFeatureInputStream(result, FilterCompiler.compile(filter, getStorageCrs()));
 		}
 
 		if (query.getSortProperties().length > 0) {
@@ -1445,8 +1475,8 @@ public class SQLFeatureStore implements FeatureStore {
 			LOG.debug("WHERE clause: {}", wb.getWhere());
 			LOG.debug("ORDER BY clause: {}", wb.getOrderBy());
 
-			FeatureBuilder builder = new FeatureBuilderRelational(this, featureTypeAndMappings, conn, aliasManager,
-					nullEscalation);
+			FeatureBuilderRelational builder = new FeatureBuilderRelational(this, featureTypeAndMappings, conn,
+					aliasManager, nullEscalation);
 			List<String> columns = builder.getInitialSelectList();
 
 			BlobMapping blobMapping = getSchema().getBlobMapping();
@@ -1521,7 +1551,7 @@ public class SQLFeatureStore implements FeatureStore {
 			rs = stmt.executeQuery();
 			LOG.debug("Executing SELECT took {} [ms] ", System.currentTimeMillis() - begin);
 
-			result = new IteratorFeatureInputStream(new FeatureResultSetIterator(builder, rs, conn, stmt));
+			result = new IteratorFeatureInputStream(createFeatureIterator(builder, rs, conn, stmt));
 		}
 		catch (InvalidParameterValueException e) {
 			release(rs, stmt, conn);
@@ -1538,7 +1568,8 @@ public class SQLFeatureStore implements FeatureStore {
 
 		if (wb.getPostFilter() != null) {
 			LOG.debug("Applying in-memory post-filtering.");
-			result = new FilteredFeatureInputStream(result, wb.getPostFilter());
+			Filter postFilter = FilterCompiler.compile(wb.getPostFilter(), getStorageCrs());
+			result = new FilteredFeatureInputStream(result, postFilter);
 		}
 		if (wb.getPostSortCriteria() != null) {
 			LOG.debug("Applying in-memory post-sorting.");
@@ -1699,6 +1730,14 @@ public class SQLFeatureStore implements FeatureStore {
 		return dialect;
 	}
 
+	private CloseableIterator<Feature> createFeatureIterator(FeatureBuilderRelational builder, ResultSet rs,
+			Connection conn, Statement stmt) {
+		if (joinBatchSize > 0) {
+			return new BatchedFeatureResultSetIterator(builder, rs, conn, stmt);
+		}
+		return new FeatureResultSetIterator(builder, rs, conn, stmt);
+	}
+
 	private class FeatureResultSetIterator extends ResultSetIterator<Feature> {
 
 		private final FeatureBuilder builder;
@@ -1729,6 +1768,84 @@ public class SQLFeatureStore implements FeatureStore {
 
 	}
 
+	/**
+	 * Iterator that builds the features in batches of {@link #joinBatchSize} rows, so
+	 * the rows of joined tables can be selected for the whole batch at once.
+	 */
+	private class BatchedFeatureResultSetIterator implements CloseableIterator<Feature> {
+
+		private final FeatureBuilderRelational builder;
+
+		private final ResultSet rs;
+
+		private final Connection conn;
+
+		private final Statement stmt;
+
+		private Iterator<Feature> batch = Collections.<Feature>emptyList().iterator();
+
+		private boolean exhausted;
+
+		BatchedFeatureResultSetIterator(FeatureBuilderRelational builder, ResultSet rs, Connection conn,
+				Statement stmt) {
+			this.builder = builder;
+			this.rs = rs;
+			this.conn = conn;
+			this.stmt = stmt;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (!batch.hasNext() && !exhausted) {
+				try {
+					List<Feature> features = builder.buildFeatures(rs, joinBatchSize);
+					exhausted = features.isEmpty();
+					batch = features.iterator();
+				}
+				catch (SQLException e) {
+					// try to close everything
+					close();
+					// wrap as unchecked exception
+					throw new RuntimeException(e.getMessage(), e);
+				}
+			}
+			return batch.hasNext();
+		}
+
+		@Override
+		public Feature next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return batch.next();
+		}
+
+		@Override
+		public void close() {
+			release(rs, stmt, conn);
+		}
+
+		@Override
+		public List<Feature> getAsListAndClose() {
+			List<Feature> list = new ArrayList<Feature>();
+			while (hasNext()) {
+				list.add(next());
+			}
+			close();
+			return list;
+		}
+
+		@Override
+		public Collection<Feature> getAsCollectionAndClose(Collection<Feature> collection) {
+			while (hasNext()) {
+				collection.add(next());
+			}
+			close();
+			return collection;
+		}
+
+	}
+
 	@Override
 	public ResourceMetadata<? extends Resource> getMetadata() {
 		return metadata;
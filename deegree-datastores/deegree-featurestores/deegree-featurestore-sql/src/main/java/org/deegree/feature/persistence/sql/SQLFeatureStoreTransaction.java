@@ -101,6 +101,8 @@ import org.deegree.feature.persistence.sql.rules.FeatureMapping;
 import org.deegree.feature.persistence.sql.rules.GeometryMapping;
 import org.deegree.feature.persistence.sql.rules.Mapping;
 import org.deegree.feature.persistence.sql.rules.PrimitiveMapping;
+import org.deegree.feature.persistence.transaction.FeatureChangeTracker;
+import org.deegree.feature.persistence.transaction.FeatureStoreChanges;
 import org.deegree.feature.persistence.transaction.FeatureUpdater;
 import org.deegree.feature.stream.FeatureInputStream;
 import org.deegree.feature.types.FeatureType;
@@ -113,6 +115,7 @@ import org.deegree.filter.ResourceId;
 import org.deegree.geometry.Envelope;
 import org.deegree.geometry.Geometries;
 import org.deegree.geometry.Geometry;
+import org.deegree.protocol.wfs.getfeature.TypeName;
 import org.deegree.protocol.wfs.transaction.action.IDGenMode;
 import org.deegree.protocol.wfs.transaction.action.ParsedPropertyReplacement;
 import org.deegree.protocol.wfs.transaction.action.UpdateAction;
@@ -143,6 +146,9 @@ public class SQLFeatureStoreTransaction implements FeatureStoreTransaction {
 
 	private final BBoxTracker bboxTracker;
 
+	// only if someone listens to the changes
+	private final FeatureChangeTracker changeTracker;
+
 	// TODO
 	private ParticleConverter<Geometry> blobGeomConverter;
 
@@ -170,6 +176,7 @@ public class SQLFeatureStoreTransaction implements FeatureStoreTransaction {
 			blobGeomConverter = fs.getGeometryConverter(blobGeomMapping);
 		}
 		this.bboxTracker = new BBoxTracker();
+		this.changeTracker = FeatureStoreChanges.hasListeners(store) ? new FeatureChangeTracker() : null;
 	}
 
 	@Override
@@ -187,6 +194,9 @@ public class SQLFeatureStoreTransaction implements FeatureStoreTransaction {
 		finally {
 			fs.closeAndDetachTransactionConnection();
 		}
+		if (changeTracker != null && !changeTracker.isEmpty()) {
+			FeatureStoreChanges.publish(changeTracker.getChange(fs));
+		}
 	}
 
 	private void updateBBoxCache() throws FeatureStoreException {
@@ -265,6 +275,7 @@ public class SQLFeatureStoreTransaction implements FeatureStoreTransaction {
 
 	@Override
 	public int performDelete(IdFilter filter, Lock lock) throws FeatureStoreException {
+		trackChanges(new Query(new TypeName[0], filter, null, null, null));
 		int deleted = 0;
 		if (blobMapping != null) {
 			deleted = performDeleteBlob(filter, lock);
@@ -645,6 +656,9 @@ public class SQLFeatureStoreTransaction implements FeatureStoreTransaction {
 					}
 					ICRS storageSrs = blobMapping.getCRS();
 					bboxTracker.insert(feature, storageSrs);
+					if (changeTracker != null) {
+						changeTracker.changed(feature);
+					}
 				}
 				if (blobInsertStmt != null) {
 					blobInsertStmt.close();
@@ -663,12 +677,16 @@ public class SQLFeatureStoreTransaction implements FeatureStoreTransaction {
 						// + "'. No mapping defined and BLOB mode is off." );
 					}
 					idAssignments.add(insertManager.insertFeature(feature, ftMapping));
+					if (changeTracker != null) {
+						changeTracker.changed(feature);
+					}
 					Pair<TableName, GeometryMapping> mapping = ftMapping.getDefaultGeometryMapping();
 					if (mapping != null) {
 						ICRS storageSrs = mapping.second.getCRS();
 						bboxTracker.insert(feature, storageSrs);
 					}
 				}
+				insertManager.flushBatches();
 				if (insertManager.getDelayedRows() != 0) {
 					String msg = "After insertion, " + insertManager.getDelayedRows()
 							+ " delayed rows left uninserted. Probably a cyclic key constraint blocks insertion.";
@@ -740,6 +758,8 @@ public class SQLFeatureStoreTransaction implements FeatureStoreTransaction {
 			Lock lock) throws FeatureStoreException {
 		LOG.debug("Updating feature type '{}', filter: {}, replacement properties: {}", ftName, filter,
 				replacementProps.size());
+		// old locations of the updated features
+		trackChanges(new Query(ftName, filter, -1, -1, -1));
 		List<String> updatedFids = null;
 		if (blobMapping != null) {
 			updatedFids = performUpdateBlob(ftName, replacementProps, filter, lock);
@@ -748,9 +768,48 @@ public class SQLFeatureStoreTransaction implements FeatureStoreTransaction {
 			updatedFids = performUpdateRelational(ftName, replacementProps, filter);
 		}
 		bboxTracker.update(ftName);
+		if (updatedFids != null && !updatedFids.isEmpty()) {
+			// new locations of the updated features
+			trackChanges(new Query(new TypeName[0], new IdFilter(updatedFids), null, null, null));
+		}
 		return updatedFids;
 	}
 
+	/**
+	 * Tracks the features matched by the query as changed, if anyone listens to the
+	 * changes of the feature store.
+	 */
+	private void trackChanges(Query query) {
+		if (changeTracker == null) {
+			return;
+		}
+		FeatureInputStream features = null;
+		try {
+			features = fs.query(query);
+			for (Feature feature : features) {
+				changeTracker.changed(feature);
+			}
+		}
+		catch (Exception e) {
+			LOG.debug("Unable to determine the changed features, assuming all features have changed: {}",
+					e.getMessage());
+			LOG.trace("Stack trace:", e);
+			for (TypeName typeName : query.getTypeNames()) {
+				changeTracker.changed(typeName.getFeatureTypeName());
+			}
+			if (query.getTypeNames().length == 0) {
+				for (FeatureType ft : schema.getFeatureTypes(null, false, false)) {
+					changeTracker.changed(ft.getName());
+				}
+			}
+		}
+		finally {
+			if (features != null) {
+				features.close();
+			}
+		}
+	}
+
 	private List<String> performUpdateBlob(final QName ftName, final List<ParsedPropertyReplacement> replacementProps,
 			final Filter filter, final Lock lock) throws FeatureStoreException {
 		final List<String> updatedFids = new ArrayList<String>();
@@ -1056,6 +1115,7 @@ public class SQLFeatureStoreTransaction implements FeatureStoreTransaction {
 			Feature f = featureType.newFeature(id.getRid(), props, null);
 			mgr.updateFeature(f, ftMapping, analysis.getIdKernels(), mapping, replacement);
 		}
+		mgr.flushBatches();
 	}
 
 	private IdFilter getIdFilter(QName ftName, OperatorFilter filter) throws FeatureStoreException {
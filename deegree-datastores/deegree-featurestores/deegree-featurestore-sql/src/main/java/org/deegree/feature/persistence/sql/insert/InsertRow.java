@@ -38,7 +38,6 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -50,7 +49,6 @@ import java.util.UUID;
 import org.deegree.commons.jdbc.SQLIdentifier;
 import org.deegree.commons.jdbc.TransactionRow;
 import org.deegree.commons.tom.sql.ParticleConversion;
-import org.deegree.commons.utils.JDBCUtils;
 import org.deegree.feature.persistence.FeatureStoreException;
 import org.deegree.feature.persistence.sql.id.AutoIDGenerator;
 import org.deegree.feature.persistence.sql.id.IDGenerator;
@@ -91,7 +89,7 @@ public abstract class InsertRow extends TransactionRow {
 			for (SQLIdentifier autoKeyColumn : keyColumnToGenerator.keySet()) {
 				IDGenerator idGenerator = keyColumnToGenerator.get(autoKeyColumn);
 				if (idGenerator instanceof SequenceIDGenerator) {
-					int seqVal = getSequenceNextVal(((SequenceIDGenerator) idGenerator).getSequence());
+					int seqVal = mgr.getSequenceNextVal(((SequenceIDGenerator) idGenerator).getSequence());
 					LOG.debug("Got key value for column '{}' from sequence: {}", autoKeyColumn.getName(), seqVal);
 					addPreparedArgument(autoKeyColumn, seqVal);
 				}
@@ -110,31 +108,6 @@ public abstract class InsertRow extends TransactionRow {
 		}
 	}
 
-	private int getSequenceNextVal(String sequenceName) throws FeatureStoreException {
-		String sql = mgr.getDialect().getSelectSequenceNextVal(sequenceName);
-		Statement stmt = null;
-		ResultSet rs = null;
-		try {
-			stmt = mgr.getConnection().createStatement();
-			LOG.debug("Determing feature ID from db sequence: {}", sql);
-			rs = stmt.executeQuery(sql);
-			if (rs.next()) {
-				return rs.getInt(1);
-			}
-			else {
-				String msg = "Error determining ID from db sequence. No value returned for: " + sql;
-				throw new FeatureStoreException(msg);
-			}
-		}
-		catch (SQLException e) {
-			String msg = "Error determining ID from db sequence. No value returned for: " + sql;
-			throw new FeatureStoreException(msg, e);
-		}
-		finally {
-			JDBCUtils.close(rs, stmt, null, LOG);
-		}
-	}
-
 	void addParent(ParentRowReference ref) {
 		parentToRef.put(ref.getTarget(), ref);
 	}
@@ -196,6 +169,13 @@ public abstract class InsertRow extends TransactionRow {
 		PreparedStatement stmt = null;
 
 		Set<SQLIdentifier> autoGenColumns = getAutogenColumns(propagateNonFidAutoGenColumns);
+		if (mgr.isBatchInsert() && hasValues(autoGenColumns)) {
+			// no need to read back any keys
+			mgr.addToBatch(this, sql);
+			return;
+		}
+		// rows that provide foreign keys for this row may still be batched
+		mgr.flushBatchesForRow(this);
 		if (autoGenColumns.isEmpty()) {
 			stmt = conn.prepareStatement(sql);
 		}
@@ -212,23 +192,7 @@ public abstract class InsertRow extends TransactionRow {
 			}
 			stmt = conn.prepareStatement(sql, cols);
 		}
-		int columnId = 1;
-		for (Entry<SQLIdentifier, Object> entry : columnToObject.entrySet()) {
-			if (entry.getValue() != null) {
-				LOG.debug("- Argument {} = {} ({})", entry.getKey(), entry.getValue(), entry.getValue().getClass());
-				if (entry.getValue() instanceof ParticleConversion<?>) {
-					ParticleConversion<?> conversion = (ParticleConversion<?>) entry.getValue();
-					conversion.setParticle(stmt, columnId++);
-				}
-				else {
-					stmt.setObject(columnId++, entry.getValue());
-				}
-			}
-			else {
-				LOG.debug("- Argument {} = NULL", entry.getKey());
-				stmt.setObject(columnId++, null);
-			}
-		}
+		setArguments(stmt);
 		stmt.execute();
 
 		if (!autoGenColumns.isEmpty()) {
@@ -256,6 +220,43 @@ public abstract class InsertRow extends TransactionRow {
 		stmt.close();
 	}
 
+	/**
+	 * Sets the values of the prepared arguments of this row.
+	 * @param stmt statement created for the SQL of this row, must not be
+	 * <code>null</code>
+	 * @throws SQLException
+	 */
+	void setArguments(PreparedStatement stmt) throws SQLException {
+		int columnId = 1;
+		for (Entry<SQLIdentifier, Object> entry : columnToObject.entrySet()) {
+			if (entry.getValue() != null) {
+				LOG.debug("- Argument {} = {} ({})", entry.getKey(), entry.getValue(), entry.getValue().getClass());
+				if (entry.getValue() instanceof ParticleConversion<?>) {
+					ParticleConversion<?> conversion = (ParticleConversion<?>) entry.getValue();
+					conversion.setParticle(stmt, columnId++);
+				}
+				else {
+					stmt.setObject(columnId++, entry.getValue());
+				}
+			}
+			else {
+				LOG.debug("- Argument {} = NULL", entry.getKey());
+				stmt.setObject(columnId++, null);
+			}
+		}
+	}
+
+	private boolean hasValues(Set<SQLIdentifier> columns) {
+		for (SQLIdentifier column : columns) {
+			Object value = columnToObject.get(column);
+			// converted values may differ from the value that is actually stored
+			if (value == null || value instanceof ParticleConversion<?>) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	protected Set<SQLIdentifier> getAutogenColumns(boolean propagateNonFidAutoGenColumns) {
 		Set<SQLIdentifier> cols = new LinkedHashSet<SQLIdentifier>();
 		if (propagateNonFidAutoGenColumns) {
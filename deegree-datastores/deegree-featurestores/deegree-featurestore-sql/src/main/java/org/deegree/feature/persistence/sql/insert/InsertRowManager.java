@@ -35,9 +35,14 @@
 package org.deegree.feature.persistence.sql.insert;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -54,6 +59,7 @@ import org.deegree.commons.tom.gml.property.Property;
 import org.deegree.commons.tom.primitive.BaseType;
 import org.deegree.commons.tom.primitive.PrimitiveValue;
 import org.deegree.commons.tom.sql.ParticleConverter;
+import org.deegree.commons.utils.JDBCUtils;
 import org.deegree.commons.utils.Pair;
 import org.deegree.feature.Feature;
 import org.deegree.feature.persistence.FeatureStoreException;
@@ -92,6 +98,7 @@ import org.slf4j.LoggerFactory;
  * <li>Usability for complex structures/mappings</li>
  * <li>Coping with unresolved feature references (forward/backward xlinks)</li>
  * <li>Auto-generated feature ids/key columns</li>
+ * <li>Optional JDBC batching of rows whose key values are known before insertion</li>
  * </ul>
  *
  * @author <a href="mailto:schneider@lat-lon.de">Markus Schneider</a>
@@ -122,6 +129,24 @@ public class InsertRowManager {
 	// values: rows that have not been inserted yet, but can be inserted (no parents)
 	private final Set<InsertRow> rootRows = new HashSet<InsertRow>();
 
+	// maximum number of rows per JDBC batch (0: no batching)
+	private final int batchSize;
+
+	// pending JDBC batches in order of creation, executed in this order
+	private final List<InsertBatch> batches = new ArrayList<InsertBatch>();
+
+	// key: INSERT statement, value: pending batch
+	private final Map<String, InsertBatch> sqlToBatch = new HashMap<String, InsertBatch>();
+
+	// key: row that has been added to a pending batch, value: batch
+	private final Map<InsertRow, InsertBatch> batchedRowToBatch = new HashMap<InsertRow, InsertBatch>();
+
+	// key: row, value: pending batches that contain rows the row takes foreign keys from
+	private final Map<InsertRow, List<InsertBatch>> rowToParentBatches = new HashMap<InsertRow, List<InsertBatch>>();
+
+	// key: sequence name, value: values fetched in advance
+	private final Map<String, Deque<Integer>> sequenceToValues = new HashMap<String, Deque<Integer>>();
+
 	/**
 	 * Creates a new {@link InsertRowManager} instance.
 	 * @param fs feature store, must not be <code>null</code>
@@ -134,6 +159,7 @@ public class InsertRowManager {
 		this.conn = conn;
 		this.idGenMode = idGenMode;
 		this.tableDeps = fs.getSchema().getKeyDependencies();
+		this.batchSize = fs.getInsertBatchSize();
 	}
 
 	/**
@@ -166,15 +192,7 @@ public class InsertRowManager {
 
 			LOG.debug("Built rows for feature '{}': {}", feature.getId(), allRows.size());
 
-			for (InsertRow insertRow : allRows) {
-				if (!insertRow.hasParents()) {
-					rootRows.add(insertRow);
-				}
-			}
-
-			LOG.debug("Before heap run: uninserted rows: {}, root rows: {}", delayedRows.size(), rootRows.size());
-			processHeap();
-			LOG.debug("After heap run: uninserted rows: {}, root rows: {}", delayedRows.size(), rootRows.size());
+			insertRows(allRows);
 
 		}
 		catch (Throwable t) {
@@ -219,15 +237,7 @@ public class InsertRowManager {
 
 			LOG.debug("Built rows for feature '{}': {}", feature.getId(), allRows.size());
 
-			for (InsertRow insertRow : allRows) {
-				if (!insertRow.hasParents()) {
-					rootRows.add(insertRow);
-				}
-			}
-
-			LOG.debug("Before heap run: uninserted rows: {}, root rows: {}", delayedRows.size(), rootRows.size());
-			processHeap();
-			LOG.debug("After heap run: uninserted rows: {}, root rows: {}", delayedRows.size(), rootRows.size());
+			insertRows(allRows);
 
 		}
 		catch (Throwable t) {
@@ -237,6 +247,45 @@ public class InsertRowManager {
 		return featureRow;
 	}
 
+	/**
+	 * Inserts the given rows, as far as the rows they depend on have been inserted.
+	 * Remaining rows are inserted as soon as their parents are.
+	 * @param rows rows to be inserted, must not be <code>null</code>
+	 * @throws SQLException
+	 * @throws FeatureStoreException
+	 */
+	void insertRows(List<InsertRow> rows) throws SQLException, FeatureStoreException {
+		for (InsertRow insertRow : rows) {
+			if (!insertRow.hasParents()) {
+				rootRows.add(insertRow);
+			}
+		}
+
+		LOG.debug("Before heap run: uninserted rows: {}, root rows: {}", delayedRows.size(), rootRows.size());
+		processHeap();
+		LOG.debug("After heap run: uninserted rows: {}, root rows: {}", delayedRows.size(), rootRows.size());
+	}
+
+	/**
+	 * Registers the given child row as depending on the given parent row.
+	 * @param parent row that provides the key values, must not be <code>null</code>
+	 * @param child row that takes the key values as foreign keys, must not be
+	 * <code>null</code>
+	 * @param keyPropagation propagation of the key values, must not be <code>null</code>
+	 * @return reference from the child row to the parent row, never <code>null</code>
+	 */
+	ParentRowReference addChildRow(InsertRow parent, InsertRow child, KeyPropagation keyPropagation) {
+		ParentRowReference ref = new ParentRowReference(parent, keyPropagation);
+		child.addParent(ref);
+		List<InsertRow> children = rowToChildRows.get(parent);
+		if (children == null) {
+			children = new ArrayList<InsertRow>();
+			rowToChildRows.put(parent, children);
+		}
+		children.add(child);
+		return ref;
+	}
+
 	SQLDialect getDialect() {
 		return dialect;
 	}
@@ -374,14 +423,7 @@ public class InsertRowManager {
 						TableJoin join = jc.get(0);
 						KeyPropagation keyPropagation = getKeyPropagation((FeatureMapping) mapping, join);
 						// standard: pk in subfeature table (usually feature id)
-						ParentRowReference ref = new ParentRowReference(subFeatureRow, keyPropagation);
-						currentRow.addParent(ref);
-						List<InsertRow> children = rowToChildRows.get(subFeatureRow);
-						if (children == null) {
-							children = new ArrayList<InsertRow>();
-							rowToChildRows.put(subFeatureRow, children);
-						}
-						children.add(currentRow);
+						ParentRowReference ref = addChildRow(subFeatureRow, currentRow, keyPropagation);
 
 						SQLIdentifier hrefCol = null;
 						if (((FeatureMapping) mapping).getHrefMapping() != null) {
@@ -392,7 +434,7 @@ public class InsertRowManager {
 						if (!delayedRows.contains(subFeatureRow)) {
 							// sub feature already inserted, propagate key values right
 							// away
-							currentRow.removeParent(subFeatureRow);
+							propagateKeys(subFeatureRow, currentRow);
 						}
 					}
 				}
@@ -479,21 +521,10 @@ public class InsertRowManager {
 		}
 
 		if (keyPropagation.getSourceTable().equals(join.getFromTable())) {
-			ParentRowReference ref = new ParentRowReference(row, keyPropagation);
-			newRow.addParent(ref);
-			List<InsertRow> children = rowToChildRows.get(row);
-			if (children == null) {
-				children = new ArrayList<InsertRow>();
-				rowToChildRows.put(row, children);
-			}
-			children.add(newRow);
+			addChildRow(row, newRow, keyPropagation);
 		}
 		else {
-			ParentRowReference ref = new ParentRowReference(newRow, keyPropagation);
-			row.addParent(ref);
-			List<InsertRow> children = new ArrayList<InsertRow>();
-			rowToChildRows.put(newRow, children);
-			children.add(row);
+			addChildRow(newRow, row, keyPropagation);
 		}
 
 		return newRow;
@@ -532,7 +563,7 @@ public class InsertRowManager {
 				if (childRows != null) {
 					for (InsertRow childRow : childRows) {
 						LOG.debug("Child row: {}", childRow);
-						childRow.removeParent(row);
+						propagateKeys(row, childRow);
 						if (!childRow.hasParents()) {
 							rootAdds.add(childRow);
 						}
@@ -545,6 +576,153 @@ public class InsertRowManager {
 		}
 	}
 
+	private void propagateKeys(InsertRow parent, InsertRow child) {
+		child.removeParent(parent);
+		InsertBatch parentBatch = batchedRowToBatch.get(parent);
+		if (parentBatch != null) {
+			List<InsertBatch> parentBatches = rowToParentBatches.get(child);
+			if (parentBatches == null) {
+				parentBatches = new ArrayList<InsertBatch>();
+				rowToParentBatches.put(child, parentBatches);
+			}
+			parentBatches.add(parentBatch);
+		}
+	}
+
+	boolean isBatchInsert() {
+		return batchSize > 0;
+	}
+
+	/**
+	 * Adds the given row to the JDBC batch for the given INSERT statement.
+	 * <p>
+	 * Pending batches are always executed in order of their creation. If the row takes
+	 * foreign keys from a row in a batch that has been created after the batch for the
+	 * statement, all pending batches are executed first.
+	 * </p>
+	 * @param row row to be inserted, must not be <code>null</code>
+	 * @param sql INSERT statement of the row, must not be <code>null</code>
+	 * @throws SQLException
+	 */
+	void addToBatch(InsertRow row, String sql) throws SQLException {
+		InsertBatch batch = sqlToBatch.get(sql);
+		if (batch != null) {
+			List<InsertBatch> parentBatches = rowToParentBatches.get(row);
+			if (parentBatches != null) {
+				for (InsertBatch parentBatch : parentBatches) {
+					if (parentBatch.index > batch.index) {
+						flushBatches();
+						batch = null;
+						break;
+					}
+				}
+			}
+		}
+		rowToParentBatches.remove(row);
+		if (batch == null) {
+			batch = new InsertBatch(batches.size(), conn.prepareStatement(sql));
+			batches.add(batch);
+			sqlToBatch.put(sql, batch);
+		}
+		row.setArguments(batch.stmt);
+		batch.stmt.addBatch();
+		batchedRowToBatch.put(row, batch);
+		if (++batch.size >= batchSize) {
+			flushBatches();
+		}
+	}
+
+	/**
+	 * Executes all pending batches if the given row takes foreign keys from any batched
+	 * row.
+	 * @param row row that is about to be inserted, must not be <code>null</code>
+	 * @throws SQLException
+	 */
+	void flushBatchesForRow(InsertRow row) throws SQLException {
+		if (rowToParentBatches.remove(row) != null) {
+			flushBatches();
+		}
+	}
+
+	/**
+	 * Executes all pending JDBC batches.
+	 * <p>
+	 * Must be invoked after the last feature has been inserted (if batching is enabled).
+	 * </p>
+	 * @throws SQLException if the execution of a batch fails
+	 */
+	public void flushBatches() throws SQLException {
+		if (batches.isEmpty()) {
+			return;
+		}
+		try {
+			for (InsertBatch batch : batches) {
+				long begin = System.currentTimeMillis();
+				batch.stmt.executeBatch();
+				LOG.debug("Executing batch of {} INSERTs took {} [ms]", batch.size, System.currentTimeMillis() - begin);
+			}
+		}
+		finally {
+			for (InsertBatch batch : batches) {
+				JDBCUtils.close(batch.stmt);
+			}
+			batches.clear();
+			sqlToBatch.clear();
+			batchedRowToBatch.clear();
+			rowToParentBatches.clear();
+		}
+	}
+
+	/**
+	 * Returns the next value of the given DB sequence.
+	 * <p>
+	 * If batching is enabled and supported by the SQL dialect, the values are fetched in
+	 * blocks of the batch size. Values that have been fetched in advance, but are not
+	 * used, are lost (which leaves gaps in the sequence).
+	 * </p>
+	 * @param sequence name of the sequence, must not be <code>null</code>
+	 * @return next value
+	 * @throws FeatureStoreException if the value cannot be determined
+	 */
+	int getSequenceNextVal(String sequence) throws FeatureStoreException {
+		Deque<Integer> values = sequenceToValues.get(sequence);
+		if (values == null || values.isEmpty()) {
+			values = fetchSequenceValues(sequence);
+			sequenceToValues.put(sequence, values);
+		}
+		return values.poll();
+	}
+
+	private Deque<Integer> fetchSequenceValues(String sequence) throws FeatureStoreException {
+		String sql = batchSize > 1 ? dialect.getSelectSequenceNextVals(sequence, batchSize) : null;
+		if (sql == null) {
+			sql = dialect.getSelectSequenceNextVal(sequence);
+		}
+		Statement stmt = null;
+		ResultSet rs = null;
+		try {
+			stmt = conn.createStatement();
+			LOG.debug("Determing feature ID from db sequence: {}", sql);
+			rs = stmt.executeQuery(sql);
+			Deque<Integer> values = new ArrayDeque<Integer>();
+			while (rs.next()) {
+				values.add(rs.getInt(1));
+			}
+			if (values.isEmpty()) {
+				String msg = "Error determining ID from db sequence. No value returned for: " + sql;
+				throw new FeatureStoreException(msg);
+			}
+			return values;
+		}
+		catch (SQLException e) {
+			String msg = "Error determining ID from db sequence. No value returned for: " + sql;
+			throw new FeatureStoreException(msg, e);
+		}
+		finally {
+			JDBCUtils.close(rs, stmt, null, LOG);
+		}
+	}
+
 	/**
 	 * Returns the number of currently delayed rows (rows that depend on some other row to
 	 * be inserted first).
@@ -554,4 +732,19 @@ public class InsertRowManager {
 		return delayedRows.size();
 	}
 
+	private static class InsertBatch {
+
+		private final int index;
+
+		private final PreparedStatement stmt;
+
+		private int size;
+
+		private InsertBatch(int index, PreparedStatement stmt) {
+			this.index = index;
+			this.stmt = stmt;
+		}
+
+	}
+
 }
@@ -0,0 +1,167 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.persistence.sql.rules;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Arrays;
+
+/**
+ * In-memory copy of a single {@link ResultSet} row.
+ * <p>
+ * Used by {@link FeatureBuilderRelational} to build features from rows that have already
+ * been consumed from the underlying cursor. The copy is exposed as a read-only
+ * {@link ResultSet} that is positioned on the copied row, so it can be passed to
+ * {@link org.deegree.commons.tom.sql.ParticleConverter}s. Only column index based access
+ * via <code>getObject</code>, <code>getString</code>, <code>getBytes</code>,
+ * <code>getBinaryStream</code>, <code>getCharacterStream</code> and the numeric getters
+ * is supported. LOB values are materialized while copying.
+ * </p>
+ */
+class BufferedRow implements InvocationHandler {
+
+	private final Object[] values;
+
+	private boolean wasNull;
+
+	private BufferedRow(Object[] values) {
+		this.values = values;
+	}
+
+	/**
+	 * Copies the current row of the given {@link ResultSet}.
+	 * @param rs result set positioned on a row, must not be <code>null</code>
+	 * @param columnCount number of columns of the result set
+	 * @return read-only result set that provides the values of the copied row, never
+	 * <code>null</code>
+	 * @throws SQLException if accessing the result set fails
+	 */
+	static ResultSet copy(ResultSet rs, int columnCount) throws SQLException {
+		Object[] values = new Object[columnCount];
+		for (int i = 0; i < columnCount; i++) {
+			Object value = rs.getObject(i + 1);
+			if (value instanceof Blob) {
+				Blob blob = (Blob) value;
+				value = blob.getBytes(1, (int) blob.length());
+			}
+			else if (value instanceof Clob) {
+				Clob clob = (Clob) value;
+				value = clob.getSubString(1, (int) clob.length());
+			}
+			values[i] = value;
+		}
+		ClassLoader cl = BufferedRow.class.getClassLoader();
+		return (ResultSet) Proxy.newProxyInstance(cl, new Class<?>[] { ResultSet.class }, new BufferedRow(values));
+	}
+
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+		String name = method.getName();
+		if (method.getDeclaringClass() == Object.class) {
+			if ("equals".equals(name)) {
+				return proxy == args[0];
+			}
+			if ("hashCode".equals(name)) {
+				return System.identityHashCode(proxy);
+			}
+			return "BufferedRow" + Arrays.toString(values);
+		}
+		if ("close".equals(name)) {
+			return null;
+		}
+		if ("isClosed".equals(name)) {
+			return false;
+		}
+		if ("wasNull".equals(name)) {
+			return wasNull;
+		}
+		if (args == null || args.length != 1 || !(args[0] instanceof Integer)) {
+			throw new SQLFeatureNotSupportedException("Method '" + name + "' is not supported by buffered rows.");
+		}
+		Object value = getValue((Integer) args[0]);
+		if ("getObject".equals(name)) {
+			return value;
+		}
+		if ("getString".equals(name)) {
+			return value == null ? null : value.toString();
+		}
+		if ("getBytes".equals(name)) {
+			return (byte[]) value;
+		}
+		if ("getBinaryStream".equals(name)) {
+			return value == null ? null : new ByteArrayInputStream((byte[]) value);
+		}
+		if ("getCharacterStream".equals(name)) {
+			return value == null ? null : new StringReader(value.toString());
+		}
+		if (value == null || value instanceof Number) {
+			// SQL NULL is mapped to 0 like JDBC drivers do
+			Number n = value == null ? Integer.valueOf(0) : (Number) value;
+			switch (name) {
+				case "getInt":
+					return n.intValue();
+				case "getLong":
+					return n.longValue();
+				case "getDouble":
+					return n.doubleValue();
+				case "getFloat":
+					return n.floatValue();
+				case "getShort":
+					return n.shortValue();
+				default:
+					break;
+			}
+		}
+		throw new SQLFeatureNotSupportedException("Method '" + name + "' is not supported by buffered rows.");
+	}
+
+	private Object getValue(int columnIndex) throws SQLException {
+		if (columnIndex < 1 || columnIndex > values.length) {
+			throw new SQLException("Invalid column index: " + columnIndex);
+		}
+		Object value = values[columnIndex - 1];
+		wasNull = value == null;
+		return value;
+	}
+
+}
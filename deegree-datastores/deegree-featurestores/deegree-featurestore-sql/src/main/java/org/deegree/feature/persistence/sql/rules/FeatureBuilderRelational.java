@@ -52,10 +52,13 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import javax.xml.namespace.QName;
 import javax.xml.stream.XMLInputFactory;
@@ -136,6 +139,10 @@ public class FeatureBuilderRelational implements FeatureBuilder {
 
 	private static final Logger LOG = LoggerFactory.getLogger(FeatureBuilderRelational.class);
 
+	// maximum number of keys per batched subsequent SELECT (e.g. Oracle limits IN lists
+	// to 1000 expressions)
+	private static final int MAX_KEYS_PER_SELECT = 1000;
+
 	private final SQLFeatureStore fs;
 
 	private final Map<FeatureType, FeatureTypeMapping> featureTypeAndMappings;
@@ -154,6 +161,9 @@ public class FeatureBuilderRelational implements FeatureBuilder {
 
 	private final boolean nullEscalation;
 
+	// rows of joined tables fetched for the current batch (null, if not building a batch)
+	private Map<Mapping, JoinedRows> prefetchedJoins;
+
 	/**
 	 * Creates a new {@link FeatureBuilderRelational} instance.
 	 * @param fs feature store, must not be <code>null</code>
@@ -350,6 +360,71 @@ public class FeatureBuilderRelational implements FeatureBuilder {
 		return new FeatureTuple(features);
 	}
 
+	/**
+	 * Builds {@link Feature} instances from the next rows of the given {@link ResultSet}.
+	 * <p>
+	 * In contrast to {@link #buildFeature(ResultSet)}, the rows of joined tables are not
+	 * selected for every single feature, but with one SELECT per table join for all
+	 * consumed rows (recursively for nested joins).
+	 * </p>
+	 * @param rs SQL result set, must not be <code>null</code>, the cursor is advanced by
+	 * up to <code>maxRows</code> rows
+	 * @param maxRows maximum number of rows to consume, must be positive
+	 * @return created {@link Feature} instances in row order, never <code>null</code>,
+	 * empty if the result set has no more rows
+	 * @throws SQLException
+	 */
+	public List<Feature> buildFeatures(ResultSet rs, int maxRows) throws SQLException {
+		int columnCount = rs.getMetaData().getColumnCount();
+		List<ResultSet> rows = new ArrayList<ResultSet>();
+		while (rows.size() < maxRows && rs.next()) {
+			rows.add(BufferedRow.copy(rs, columnCount));
+		}
+		List<Feature> features = new ArrayList<Feature>(rows.size());
+		if (rows.isEmpty()) {
+			return features;
+		}
+		prefetchedJoins = new IdentityHashMap<Mapping, JoinedRows>();
+		try {
+			for (FeatureTypeMapping ftMapping : featureTypeAndMappings.values()) {
+				String tableAlias = detectTableAlias(ftMapping);
+				for (Mapping mapping : ftMapping.getMappings()) {
+					if (getChildElementStepAsQName(mapping.getPath()) != null) {
+						prefetchJoinedRows(mapping, rows, qualifiedSqlExprToRsIdx, tableAlias);
+					}
+				}
+			}
+			for (ResultSet row : rows) {
+				Feature feature = buildFeature(row);
+				if (feature != null) {
+					features.add(feature);
+				}
+			}
+		}
+		finally {
+			prefetchedJoins = null;
+		}
+		return features;
+	}
+
+	private void prefetchJoinedRows(Mapping mapping, List<ResultSet> rows, LinkedHashMap<String, Integer> colToRsIdx,
+			String tableAlias) throws SQLException {
+		if (!(mapping instanceof FeatureMapping) && mapping.getJoinedTable() != null) {
+			JoinedRows joined = getJoinedRows(mapping.getJoinedTable().get(0), mapping, rows, colToRsIdx, tableAlias);
+			prefetchedJoins.put(mapping, joined);
+			if (mapping instanceof CompoundMapping && !joined.rows.isEmpty()) {
+				for (Mapping particle : ((CompoundMapping) mapping).getParticles()) {
+					prefetchJoinedRows(particle, joined.rows, joined.colToRsIdx, tableAlias);
+				}
+			}
+		}
+		else if (mapping instanceof CompoundMapping) {
+			for (Mapping particle : ((CompoundMapping) mapping).getParticles()) {
+				prefetchJoinedRows(particle, rows, colToRsIdx, tableAlias);
+			}
+		}
+	}
+
 	private String toIdPrefix(ValueReference propName) {
 		String s = propName.getAsText();
 		s = s.replace("/", "_");
@@ -455,6 +530,19 @@ public class FeatureBuilderRelational implements FeatureBuilder {
 
 		if (!(mapping instanceof FeatureMapping) && mapping.getJoinedTable() != null) {
 			List<TypedObjectNode> values = new ArrayList<TypedObjectNode>();
+			JoinedRows joined = prefetchedJoins != null ? prefetchedJoins.get(mapping) : null;
+			if (joined != null) {
+				List<Object> key = getJoinKey(mapping.getJoinedTable().get(0), rs, colToRsIdx, tableAlias);
+				int i = 0;
+				for (ResultSet rs2 : joined.getRows(key)) {
+					TypedObjectNode particle = buildParticle(mapping, rs2, joined.colToRsIdx, tableAlias,
+							idPrefix + "_" + (i++));
+					if (particle != null) {
+						values.add(particle);
+					}
+				}
+				return values;
+			}
 			ResultSet rs2 = null;
 			try {
 				Pair<ResultSet, LinkedHashMap<String, Integer>> p = getJoinedResultSet(mapping.getJoinedTable().get(0),
@@ -776,21 +864,10 @@ public class FeatureBuilderRelational implements FeatureBuilder {
 
 		LinkedHashMap<String, Integer> rsToIdx = getSubsequentSelectColumns(mapping, tableAlias);
 
-		StringBuilder sql = new StringBuilder("SELECT ");
-		boolean first = true;
-		for (String column : rsToIdx.keySet()) {
-			if (!first) {
-				sql.append(',');
-			}
-			sql.append(column);
-			first = false;
-		}
-		sql.append(" FROM ");
-		sql.append(jc.getToTable());
-		sql.append(' ');
-		sql.append(tableAlias);
+		StringBuilder sql = new StringBuilder();
+		appendSelectFrom(sql, rsToIdx, jc, tableAlias);
 		sql.append(" WHERE ");
-		first = true;
+		boolean first = true;
 		for (SQLIdentifier keyColumn : jc.getToColumns()) {
 			if (!first) {
 				sql.append(" AND ");
@@ -799,23 +876,7 @@ public class FeatureBuilderRelational implements FeatureBuilder {
 			sql.append(" = ?");
 			first = false;
 		}
-		if (jc.getOrderColumns() != null && !jc.getOrderColumns().isEmpty()) {
-			sql.append(" ORDER BY ");
-			first = true;
-			for (SQLIdentifier orderColumn : jc.getOrderColumns()) {
-				if (!first) {
-					sql.append(",");
-				}
-				if (orderColumn.toString().endsWith("-")) {
-					sql.append(orderColumn.toString().substring(0, orderColumn.toString().length() - 1));
-					sql.append(" DESC");
-				}
-				else {
-					sql.append(orderColumn);
-				}
-				first = false;
-			}
-		}
+		appendOrderBy(sql, jc);
 		LOG.debug("SQL: {}", sql);
 
 		PreparedStatement stmt = null;
@@ -844,6 +905,160 @@ public class FeatureBuilderRelational implements FeatureBuilder {
 		return new Pair<ResultSet, LinkedHashMap<String, Integer>>(rs2, rsToIdx);
 	}
 
+	private JoinedRows getJoinedRows(TableJoin jc, Mapping mapping, List<ResultSet> rows,
+			LinkedHashMap<String, Integer> colToRsIdx, String tableAlias) throws SQLException {
+
+		LinkedHashMap<String, Integer> rsToIdx = getSubsequentSelectColumns(mapping, tableAlias);
+		// the key columns are required to assign the joined rows to their parent rows
+		List<SQLIdentifier> keyColumns = jc.getToColumns();
+		int[] keyColIdx = new int[keyColumns.size()];
+		for (int i = 0; i < keyColIdx.length; i++) {
+			String column = tableAlias + "." + keyColumns.get(i);
+			addColumn(rsToIdx, column);
+			keyColIdx[i] = rsToIdx.get(column);
+		}
+
+		Set<List<Object>> keys = new LinkedHashSet<List<Object>>();
+		for (ResultSet row : rows) {
+			List<Object> key = getJoinKey(jc, row, colToRsIdx, tableAlias);
+			if (key != null) {
+				keys.add(key);
+			}
+		}
+
+		JoinedRows joined = new JoinedRows(rsToIdx);
+		for (List<List<Object>> batch : JoinedRows.batches(new ArrayList<List<Object>>(keys), MAX_KEYS_PER_SELECT)) {
+			fetchJoinedRows(jc, batch, tableAlias, keyColIdx, joined);
+		}
+		return joined;
+	}
+
+	private void fetchJoinedRows(TableJoin jc, List<List<Object>> keys, String tableAlias, int[] keyColIdx,
+			JoinedRows joined) throws SQLException {
+
+		StringBuilder sql = new StringBuilder();
+		appendSelectFrom(sql, joined.colToRsIdx, jc, tableAlias);
+		sql.append(" WHERE ");
+		List<SQLIdentifier> keyColumns = jc.getToColumns();
+		if (keyColumns.size() == 1) {
+			sql.append(keyColumns.get(0));
+			sql.append(" IN (");
+			for (int i = 0; i < keys.size(); i++) {
+				if (i > 0) {
+					sql.append(',');
+				}
+				sql.append('?');
+			}
+			sql.append(')');
+		}
+		else {
+			for (int i = 0; i < keys.size(); i++) {
+				if (i > 0) {
+					sql.append(" OR ");
+				}
+				sql.append('(');
+				for (int j = 0; j < keyColumns.size(); j++) {
+					if (j > 0) {
+						sql.append(" AND ");
+					}
+					sql.append(keyColumns.get(j));
+					sql.append(" = ?");
+				}
+				sql.append(')');
+			}
+		}
+		appendOrderBy(sql, jc);
+		LOG.debug("SQL: {}", sql);
+
+		PreparedStatement stmt = null;
+		ResultSet rs2 = null;
+		try {
+			long begin = System.currentTimeMillis();
+			stmt = conn.prepareStatement(sql.toString());
+			int i = 1;
+			for (List<Object> key : keys) {
+				for (Object value : key) {
+					stmt.setObject(i++, value);
+				}
+			}
+			rs2 = stmt.executeQuery();
+			int columnCount = joined.colToRsIdx.size();
+			while (rs2.next()) {
+				ResultSet row = BufferedRow.copy(rs2, columnCount);
+				List<Object> key = new ArrayList<Object>(keyColIdx.length);
+				for (int idx : keyColIdx) {
+					key.add(JoinedRows.normalizeKeyValue(row.getObject(idx)));
+				}
+				joined.add(key, row);
+			}
+			LOG.debug("Fetching joined rows for {} keys took {} [ms] ", keys.size(),
+					System.currentTimeMillis() - begin);
+		}
+		catch (Throwable t) {
+			String msg = "Error performing batched subsequent SELECT: " + t.getMessage();
+			LOG.error(msg, t);
+			throw new SQLException(msg, t);
+		}
+		finally {
+			close(rs2, stmt, null, LOG);
+		}
+	}
+
+	private void appendSelectFrom(StringBuilder sql, LinkedHashMap<String, Integer> rsToIdx, TableJoin jc,
+			String tableAlias) {
+		sql.append("SELECT ");
+		boolean first = true;
+		for (String column : rsToIdx.keySet()) {
+			if (!first) {
+				sql.append(',');
+			}
+			sql.append(column);
+			first = false;
+		}
+		sql.append(" FROM ");
+		sql.append(jc.getToTable());
+		sql.append(' ');
+		sql.append(tableAlias);
+	}
+
+	private void appendOrderBy(StringBuilder sql, TableJoin jc) {
+		if (jc.getOrderColumns() != null && !jc.getOrderColumns().isEmpty()) {
+			sql.append(" ORDER BY ");
+			boolean first = true;
+			for (SQLIdentifier orderColumn : jc.getOrderColumns()) {
+				if (!first) {
+					sql.append(",");
+				}
+				if (orderColumn.toString().endsWith("-")) {
+					sql.append(orderColumn.toString().substring(0, orderColumn.toString().length() - 1));
+					sql.append(" DESC");
+				}
+				else {
+					sql.append(orderColumn);
+				}
+				first = false;
+			}
+		}
+	}
+
+	/**
+	 * Returns the values of the join columns of the given row.
+	 * @return normalized values, <code>null</code> if any of the values is NULL (no
+	 * joined rows)
+	 */
+	private List<Object> getJoinKey(TableJoin jc, ResultSet rs, LinkedHashMap<String, Integer> colToRsIdx,
+			String tableAlias) throws SQLException {
+		List<Object> key = new ArrayList<Object>(jc.getFromColumns().size());
+		for (SQLIdentifier keyColumn : jc.getFromColumns()) {
+			Object value = rs.getObject(colToRsIdx.get(tableAlias + "." + keyColumn));
+			if (value == null) {
+				return null;
+			}
+			key.add(JoinedRows.normalizeKeyValue(value));
+		}
+		return key;
+	}
+
 	private QName getChildElementStepAsQName(ValueReference ref) {
 		QName qName = null;
 		Expr xpath = ref.getAsXPath();
@@ -921,4 +1136,4 @@ public class FeatureBuilderRelational implements FeatureBuilder {
 		return null;
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,134 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.persistence.sql.rules;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rows of a joined table, fetched for a batch of parent rows.
+ * <p>
+ * The rows are assigned to their parent rows by the values of the join columns. As the
+ * columns on both sides of a join may be returned as different numeric types, key values
+ * have to be normalized with {@link #normalizeKeyValue(Object)}.
+ * </p>
+ */
+class JoinedRows {
+
+	final LinkedHashMap<String, Integer> colToRsIdx;
+
+	final List<ResultSet> rows = new ArrayList<ResultSet>();
+
+	private final Map<List<Object>, List<ResultSet>> keyToRows = new HashMap<List<Object>, List<ResultSet>>();
+
+	JoinedRows(LinkedHashMap<String, Integer> colToRsIdx) {
+		this.colToRsIdx = colToRsIdx;
+	}
+
+	void add(List<Object> key, ResultSet row) {
+		rows.add(row);
+		List<ResultSet> keyRows = keyToRows.get(key);
+		if (keyRows == null) {
+			keyRows = new ArrayList<ResultSet>();
+			keyToRows.put(key, keyRows);
+		}
+		keyRows.add(row);
+	}
+
+	List<ResultSet> getRows(List<Object> key) {
+		List<ResultSet> keyRows = key != null ? keyToRows.get(key) : null;
+		return keyRows != null ? keyRows : Collections.<ResultSet>emptyList();
+	}
+
+	/**
+	 * Returns a single representation for numerically equal values: integral values as
+	 * {@link Long}, all other numbers as {@link BigDecimal} without trailing zeros.
+	 * @param value value of a join column, may be <code>null</code>
+	 * @return normalized value, non-numeric values are returned unchanged
+	 */
+	static Object normalizeKeyValue(Object value) {
+		if (!(value instanceof Number)) {
+			return value;
+		}
+		if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+			return ((Number) value).longValue();
+		}
+		BigDecimal decimal;
+		try {
+			if (value instanceof BigDecimal) {
+				decimal = (BigDecimal) value;
+			}
+			else if (value instanceof BigInteger) {
+				decimal = new BigDecimal((BigInteger) value);
+			}
+			else {
+				// e.g. Double or Float, the shortest decimal representation is used
+				decimal = new BigDecimal(value.toString());
+			}
+		}
+		catch (NumberFormatException e) {
+			// NaN or infinite
+			return value;
+		}
+		decimal = decimal.stripTrailingZeros();
+		try {
+			return decimal.longValueExact();
+		}
+		catch (ArithmeticException e) {
+			return decimal;
+		}
+	}
+
+	/**
+	 * @param keys keys to split, must not be <code>null</code>
+	 * @param size maximum number of keys per batch
+	 * @return consecutive batches of the keys, never <code>null</code>
+	 */
+	static <T> List<List<T>> batches(List<T> keys, int size) {
+		List<List<T>> batches = new ArrayList<List<T>>();
+		for (int i = 0; i < keys.size(); i += size) {
+			batches.add(keys.subList(i, Math.min(i + size, keys.size())));
+		}
+		return batches;
+	}
+
+}
@@ -0,0 +1,236 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.persistence.sql.insert;
+
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Arrays;
+
+import org.deegree.commons.jdbc.SQLIdentifier;
+import org.deegree.commons.jdbc.TableName;
+import org.deegree.feature.persistence.sql.MappedAppSchema;
+import org.deegree.feature.persistence.sql.SQLFeatureStore;
+import org.deegree.feature.persistence.sql.id.KeyPropagation;
+import org.deegree.feature.persistence.sql.id.TableDependencies;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+/**
+ * Tests for the JDBC batching of {@link InsertRowManager}.
+ */
+public class InsertRowManagerTest {
+
+	private static final TableName PARENT = new TableName("parent");
+
+	private static final TableName CHILD = new TableName("child");
+
+	private static final SQLIdentifier ID = new SQLIdentifier("id");
+
+	private static final SQLIdentifier PARENT_ID = new SQLIdentifier("parent_id");
+
+	private static final SQLIdentifier NAME = new SQLIdentifier("name");
+
+	private static final KeyPropagation PARENT_TO_CHILD = new KeyPropagation(PARENT, singletonList(ID), CHILD,
+			singletonList(PARENT_ID));
+
+	private TableDependencies tableDeps;
+
+	private Connection conn;
+
+	@Before
+	public void setUp() {
+		tableDeps = mock(TableDependencies.class);
+		when(tableDeps.getGeneratedColumns(PARENT)).thenReturn(singleton(ID));
+		conn = mock(Connection.class);
+	}
+
+	@Test
+	public void testBatchIsExecutedWhenFull() throws Exception {
+		PreparedStatement first = mock(PreparedStatement.class);
+		PreparedStatement second = mock(PreparedStatement.class);
+		when(conn.prepareStatement(anyString())).thenReturn(first, second);
+		InsertRowManager mgr = createManager(2);
+
+		mgr.insertRows(Arrays.<InsertRow>asList(row(mgr, CHILD, "a"), row(mgr, CHILD, "b"), row(mgr, CHILD, "c")));
+
+		verify(first, times(2)).addBatch();
+		verify(first).executeBatch();
+		verify(second).addBatch();
+		verify(second, never()).executeBatch();
+		verify(conn, times(2)).prepareStatement(anyString());
+
+		mgr.flushBatches();
+
+		verify(second).executeBatch();
+		verify(first, never()).execute();
+		verify(second, never()).execute();
+	}
+
+	@Test
+	public void testGeneratedKeyIsPropagatedToBatchedChild() throws Exception {
+		PreparedStatement parentStmt = mock(PreparedStatement.class);
+		ResultSet keys = mock(ResultSet.class);
+		when(keys.next()).thenReturn(true);
+		when(keys.getObject(1)).thenReturn(42);
+		when(parentStmt.getGeneratedKeys()).thenReturn(keys);
+		when(conn.prepareStatement(anyString(), any(String[].class))).thenReturn(parentStmt);
+		PreparedStatement childStmt = mock(PreparedStatement.class);
+		when(conn.prepareStatement(anyString())).thenReturn(childStmt);
+		InsertRowManager mgr = createManager(10);
+
+		InsertRow parent = row(mgr, PARENT, "p");
+		InsertRow child = row(mgr, CHILD, "c");
+		mgr.addChildRow(parent, child, PARENT_TO_CHILD);
+		mgr.insertRows(Arrays.asList(parent, child));
+
+		assertEquals(42, child.get(PARENT_ID));
+		InOrder order = inOrder(parentStmt, childStmt);
+		order.verify(parentStmt).execute();
+		order.verify(childStmt).setObject(2, 42);
+		order.verify(childStmt).addBatch();
+		verify(childStmt, never()).executeBatch();
+
+		mgr.flushBatches();
+
+		verify(childStmt).executeBatch();
+		verify(childStmt, never()).execute();
+	}
+
+	@Test
+	public void testBatchedParentIsExecutedBeforeChildBatch() throws Exception {
+		PreparedStatement childStmt1 = mock(PreparedStatement.class);
+		PreparedStatement parentStmt = mock(PreparedStatement.class);
+		PreparedStatement childStmt2 = mock(PreparedStatement.class);
+		when(conn.prepareStatement(anyString())).thenReturn(childStmt1, parentStmt, childStmt2);
+		InsertRowManager mgr = createManager(10);
+
+		// creates the batch for the child table before the batch for the parent table
+		InsertRow orphan = row(mgr, CHILD, "o");
+		orphan.addPreparedArgument(PARENT_ID, 7);
+		mgr.insertRows(singletonList(orphan));
+
+		InsertRow parent = row(mgr, PARENT, "p");
+		parent.addPreparedArgument(ID, 8);
+		InsertRow child = row(mgr, CHILD, "c");
+		mgr.addChildRow(parent, child, PARENT_TO_CHILD);
+		mgr.insertRows(Arrays.asList(parent, child));
+
+		assertEquals(8, child.get(PARENT_ID));
+		InOrder order = inOrder(childStmt1, parentStmt, childStmt2);
+		order.verify(childStmt1).executeBatch();
+		order.verify(parentStmt).executeBatch();
+		order.verify(childStmt2).addBatch();
+		verify(childStmt2, never()).executeBatch();
+
+		mgr.flushBatches();
+
+		verify(childStmt2).executeBatch();
+		verify(childStmt1).executeBatch();
+		verify(parentStmt).executeBatch();
+	}
+
+	@Test
+	public void testDirectInsertOfChildExecutesParentBatchFirst() throws Exception {
+		TableName grandchildTable = new TableName("grandchild");
+		KeyPropagation childToGrandchild = new KeyPropagation(CHILD, singletonList(ID), grandchildTable,
+				singletonList(new SQLIdentifier("child_id")));
+		when(tableDeps.getGeneratedColumns(CHILD)).thenReturn(singleton(ID));
+		PreparedStatement parentStmt = mock(PreparedStatement.class);
+		PreparedStatement grandchildStmt = mock(PreparedStatement.class);
+		when(conn.prepareStatement(anyString())).thenReturn(parentStmt, grandchildStmt);
+		PreparedStatement childStmt = mock(PreparedStatement.class);
+		ResultSet keys = mock(ResultSet.class);
+		when(keys.next()).thenReturn(true);
+		when(keys.getObject(1)).thenReturn(5);
+		when(childStmt.getGeneratedKeys()).thenReturn(keys);
+		when(conn.prepareStatement(anyString(), any(String[].class))).thenReturn(childStmt);
+		InsertRowManager mgr = createManager(10);
+
+		InsertRow parent = row(mgr, PARENT, "p");
+		parent.addPreparedArgument(ID, 8);
+		// key of the child is generated by the DB, so it cannot be batched
+		InsertRow child = row(mgr, CHILD, "c");
+		InsertRow grandchild = row(mgr, grandchildTable, "g");
+		mgr.addChildRow(parent, child, PARENT_TO_CHILD);
+		mgr.addChildRow(child, grandchild, childToGrandchild);
+		mgr.insertRows(Arrays.asList(parent, child, grandchild));
+
+		assertEquals(8, child.get(PARENT_ID));
+		assertEquals(5, grandchild.get(new SQLIdentifier("child_id")));
+		InOrder order = inOrder(parentStmt, childStmt, grandchildStmt);
+		order.verify(parentStmt).executeBatch();
+		order.verify(childStmt).execute();
+		order.verify(grandchildStmt).addBatch();
+	}
+
+	private InsertRowManager createManager(int batchSize) {
+		SQLFeatureStore fs = mock(SQLFeatureStore.class);
+		MappedAppSchema schema = mock(MappedAppSchema.class);
+		when(fs.getSchema()).thenReturn(schema);
+		when(schema.getKeyDependencies()).thenReturn(tableDeps);
+		when(fs.getInsertBatchSize()).thenReturn(batchSize);
+		return new InsertRowManager(fs, conn, null);
+	}
+
+	private static InsertRow row(InsertRowManager mgr, TableName table, String name) {
+		InsertRow row = new TableRow(mgr, table);
+		row.addPreparedArgument(NAME, name);
+		return row;
+	}
+
+	private static class TableRow extends InsertRow {
+
+		private TableRow(InsertRowManager mgr, TableName table) {
+			super(mgr);
+			this.table = table;
+		}
+
+	}
+
+}
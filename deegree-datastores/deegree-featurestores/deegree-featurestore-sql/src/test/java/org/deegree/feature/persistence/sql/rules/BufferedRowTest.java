@@ -0,0 +1,110 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.persistence.sql.rules;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.sql.Clob;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link BufferedRow}.
+ */
+public class BufferedRowTest {
+
+	@Test
+	public void testCopiedValues() throws Exception {
+		ResultSet rs = mock(ResultSet.class);
+		byte[] wkb = new byte[] { 1, 2, 3 };
+		when(rs.getObject(1)).thenReturn(42);
+		when(rs.getObject(2)).thenReturn("text");
+		when(rs.getObject(3)).thenReturn(wkb);
+		when(rs.getObject(4)).thenReturn(null);
+
+		ResultSet row = BufferedRow.copy(rs, 4);
+		// the source cursor may move on
+		when(rs.getObject(1)).thenReturn(43);
+
+		assertEquals(42, row.getObject(1));
+		assertEquals(42L, row.getLong(1));
+		assertFalse(row.wasNull());
+		assertEquals("text", row.getString(2));
+		assertArrayEquals(wkb, row.getBytes(3));
+		InputStream is = row.getBinaryStream(3);
+		assertEquals(1, is.read());
+		assertNull(row.getObject(4));
+		assertTrue(row.wasNull());
+		assertEquals(0, row.getInt(4));
+		assertNull(row.getCharacterStream(4));
+	}
+
+	@Test
+	public void testClobIsMaterialized() throws Exception {
+		ResultSet rs = mock(ResultSet.class);
+		Clob clob = mock(Clob.class);
+		when(clob.length()).thenReturn(5L);
+		when(clob.getSubString(1, 5)).thenReturn("hello");
+		when(rs.getObject(1)).thenReturn(clob);
+
+		ResultSet row = BufferedRow.copy(rs, 1);
+
+		Reader reader = row.getCharacterStream(1);
+		char[] chars = new char[5];
+		assertEquals(5, reader.read(chars));
+		assertEquals("hello", new String(chars));
+	}
+
+	@Test(expected = SQLException.class)
+	public void testInvalidColumnIndex() throws Exception {
+		BufferedRow.copy(mock(ResultSet.class), 1).getObject(2);
+	}
+
+	@Test(expected = SQLException.class)
+	public void testUnsupportedMethod() throws Exception {
+		BufferedRow.copy(mock(ResultSet.class), 1).next();
+	}
+
+}
@@ -0,0 +1,136 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.persistence.sql.rules;
+
+import static java.util.Arrays.asList;
+import static org.deegree.feature.persistence.sql.rules.JoinedRows.normalizeKeyValue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link JoinedRows}.
+ */
+public class JoinedRowsTest {
+
+	@Test
+	public void testIntegralValuesAreNormalized() {
+		Object expected = normalizeKeyValue(42);
+		assertEquals(expected, normalizeKeyValue(42L));
+		assertEquals(expected, normalizeKeyValue((short) 42));
+		assertEquals(expected, normalizeKeyValue((byte) 42));
+		assertEquals(expected, normalizeKeyValue(BigInteger.valueOf(42)));
+		assertEquals(expected, normalizeKeyValue(new BigDecimal("42.000")));
+		assertEquals(expected, normalizeKeyValue(42.0d));
+		assertEquals(expected, normalizeKeyValue(42.0f));
+	}
+
+	@Test
+	public void testDecimalValuesAreNormalized() {
+		Object expected = normalizeKeyValue(new BigDecimal("2.5"));
+		assertEquals(expected, normalizeKeyValue(new BigDecimal("2.50")));
+		assertEquals(expected, normalizeKeyValue(2.5d));
+		assertEquals(expected, normalizeKeyValue(2.5f));
+		assertNotEquals(expected, normalizeKeyValue(2));
+		assertNotEquals(expected, normalizeKeyValue(new BigDecimal("2.51")));
+	}
+
+	@Test
+	public void testOtherValuesAreUnchanged() {
+		assertEquals("42", normalizeKeyValue("42"));
+		assertEquals(Double.NaN, normalizeKeyValue(Double.NaN));
+		assertNull(normalizeKeyValue(null));
+	}
+
+	@Test
+	public void testBatches() {
+		List<Integer> keys = new ArrayList<Integer>();
+		for (int i = 0; i < 2500; i++) {
+			keys.add(i);
+		}
+
+		List<List<Integer>> batches = JoinedRows.batches(keys, 1000);
+
+		assertEquals(3, batches.size());
+		assertEquals(1000, batches.get(0).size());
+		assertEquals(1000, batches.get(1).size());
+		assertEquals(500, batches.get(2).size());
+		assertEquals(Integer.valueOf(1000), batches.get(1).get(0));
+		assertEquals(Integer.valueOf(2499), batches.get(2).get(499));
+		assertTrue(JoinedRows.batches(new ArrayList<Integer>(), 1000).isEmpty());
+	}
+
+	@Test
+	public void testRowsOfSeveralBatchesAreAssignedByMixedKeyTypes() {
+		// parent keys are INTEGER, the joined key column is NUMERIC with a scale
+		List<List<Object>> parentKeys = new ArrayList<List<Object>>();
+		for (int i = 0; i < 2500; i++) {
+			parentKeys.add(asList(normalizeKeyValue(i), normalizeKeyValue("type" + i % 3)));
+		}
+		JoinedRows joined = new JoinedRows(new LinkedHashMap<String, Integer>());
+		List<ResultSet> expected = new ArrayList<ResultSet>();
+		for (List<List<Object>> batch : JoinedRows.batches(parentKeys, 1000)) {
+			for (List<Object> key : batch) {
+				long id = (Long) key.get(0);
+				ResultSet row = mock(ResultSet.class);
+				joined.add(asList(normalizeKeyValue(new BigDecimal(id).setScale(2)), normalizeKeyValue(key.get(1))),
+						row);
+				expected.add(row);
+			}
+		}
+
+		assertEquals(2500, joined.rows.size());
+		for (int i = 0; i < 2500; i++) {
+			List<ResultSet> rows = joined.getRows(asList(normalizeKeyValue(i), normalizeKeyValue("type" + i % 3)));
+			assertEquals(1, rows.size());
+			assertSame(expected.get(i), rows.get(0));
+		}
+		assertTrue(joined.getRows(asList(normalizeKeyValue(0), normalizeKeyValue("type1"))).isEmpty());
+		assertTrue(joined.getRows(null).isEmpty());
+	}
+
+}
@@ -46,6 +46,7 @@ import org.apache.axiom.om.OMElement;
 import org.deegree.commons.xml.XMLAdapter;
 import org.deegree.filter.Filter;
 import org.deegree.filter.FilterEvaluationException;
+import org.deegree.filter.compiled.FilterCompiler;
 import org.deegree.metadata.MetadataRecord;
 import org.deegree.metadata.MetadataRecordFactory;
 import org.deegree.metadata.iso.ISORecord;
@@ -194,10 +195,11 @@ public class StoredISORecords {
 		if (filter == null) {
 			return applyNullFilter(startPosition, maxRecords);
 		}
+		Filter compiledFilter = FilterCompiler.compile(filter);
 		List<ISORecord> result = new ArrayList<ISORecord>(maxRecords);
 		int matched = 1;
 		for (ISORecord record : identifierToRecord.values()) {
-			if (record.eval(filter)) {
+			if (record.eval(compiledFilter)) {
 				if (matched >= startPosition) {
 					result.add(record);
 				}
@@ -245,8 +247,9 @@ public class StoredISORecords {
 			result.addAll(identifierToRecord.values());
 		}
 		else {
+			Filter compiledFilter = FilterCompiler.compile(filter);
 			for (ISORecord record : identifierToRecord.values()) {
-				if (record.eval(filter)) {
+				if (record.eval(compiledFilter)) {
 					result.add(record);
 				}
 			}
@@ -0,0 +1,205 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.tile.persistence.cache;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.deegree.cs.coordinatesystems.ICRS;
+import org.deegree.feature.persistence.transaction.FeatureStoreChange;
+import org.deegree.feature.persistence.transaction.FeatureStoreChangeListener;
+import org.deegree.geometry.Envelope;
+import org.deegree.geometry.GeometryFactory;
+import org.deegree.geometry.GeometryTransformer;
+import org.deegree.tile.TileDataSet;
+import org.slf4j.Logger;
+
+/**
+ * Removes the tiles affected by feature store transactions from a
+ * {@link CachingTileStore}.
+ * <p>
+ * Changes are collected for a configurable delay, so a burst of transactions results in
+ * a single invalidation run.
+ * </p>
+ */
+class CacheInvalidator implements FeatureStoreChangeListener {
+
+	private static final Logger LOG = getLogger(CacheInvalidator.class);
+
+	private static final int MAX_ENVELOPES = 1000;
+
+	private static final GeometryFactory FAC = new GeometryFactory();
+
+	private final CachingTileStore store;
+
+	private final long delay;
+
+	private final int pixelBuffer;
+
+	private final ScheduledExecutorService scheduler;
+
+	private List<Envelope> pending = new ArrayList<Envelope>();
+
+	private boolean invalidateAll;
+
+	private boolean scheduled;
+
+	/**
+	 * @param store the caching tile store, must not be <code>null</code>
+	 * @param name used for naming the invalidation thread, must not be <code>null</code>
+	 * @param delay milliseconds to collect changes before invalidating the affected tiles
+	 * @param pixelBuffer pixels the changed areas are extended by on each level
+	 */
+	CacheInvalidator(CachingTileStore store, String name, long delay, int pixelBuffer) {
+		this.store = store;
+		this.delay = delay;
+		this.pixelBuffer = pixelBuffer;
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "tile-cache-invalidation-" + name);
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	@Override
+	public void changed(FeatureStoreChange change) {
+		synchronized (this) {
+			if (change.isUnlocated()) {
+				invalidateAll = true;
+			}
+			else if (!invalidateAll) {
+				ICRS storageCrs = change.getStore().getStorageCrs();
+				for (Envelope bbox : change.getEnvelopes()) {
+					if (bbox.getCoordinateSystem() == null && storageCrs != null) {
+						// the change is shared with other listeners, so it is not modified
+						bbox = FAC.createEnvelope(bbox.getMin().getAsArray(), bbox.getMax().getAsArray(), storageCrs);
+					}
+					pending.add(bbox);
+				}
+				if (pending.size() > MAX_ENVELOPES) {
+					mergePending();
+				}
+			}
+			if (scheduled) {
+				return;
+			}
+			try {
+				scheduler.schedule(this::flush, delay, MILLISECONDS);
+				scheduled = true;
+			}
+			catch (RejectedExecutionException e) {
+				// tile store has been destroyed
+			}
+		}
+	}
+
+	/**
+	 * Stops invalidating, pending changes are discarded.
+	 */
+	void destroy() {
+		scheduler.shutdownNow();
+	}
+
+	private void mergePending() {
+		Envelope merged = null;
+		for (Envelope bbox : pending) {
+			try {
+				merged = merged == null ? bbox : merged.merge(bbox);
+			}
+			catch (Exception e) {
+				// e.g. different coordinate systems
+				invalidateAll = true;
+				return;
+			}
+		}
+		pending = new ArrayList<Envelope>();
+		pending.add(merged);
+	}
+
+	private void flush() {
+		List<Envelope> envelopes;
+		boolean all;
+		synchronized (this) {
+			envelopes = pending;
+			all = invalidateAll;
+			pending = new ArrayList<Envelope>();
+			invalidateAll = false;
+			scheduled = false;
+		}
+		try {
+			long removed = 0;
+			if (all) {
+				removed = store.invalidateCache(null, null);
+			}
+			else {
+				for (String id : store.getTileDataSetIds()) {
+					removed += invalidate(id, envelopes);
+				}
+			}
+			LOG.debug("Removed {} tiles affected by feature store changes.", removed);
+		}
+		catch (RuntimeException e) {
+			LOG.warn("Removing tiles affected by feature store changes failed: {}", e.getMessage());
+			LOG.trace("Stack trace:", e);
+		}
+	}
+
+	private long invalidate(String id, List<Envelope> envelopes) {
+		TileDataSet dataSet = store.getTileDataSet(id);
+		ICRS crs = dataSet.getTileMatrixSet().getSpatialMetadata().getEnvelope().getCoordinateSystem();
+		long removed = 0;
+		for (Envelope bbox : envelopes) {
+			if (bbox.getCoordinateSystem() != null && crs != null && !crs.equals(bbox.getCoordinateSystem())) {
+				try {
+					bbox = new GeometryTransformer(crs).transform(bbox);
+				}
+				catch (Exception e) {
+					LOG.debug("Unable to transform changed area to {}, removing all tiles: {}", crs.getAlias(),
+							e.getMessage());
+					return store.invalidateCache(null, null);
+				}
+			}
+			removed += store.invalidateCache(id, bbox, pixelBuffer);
+		}
+		return removed;
+	}
+
+}
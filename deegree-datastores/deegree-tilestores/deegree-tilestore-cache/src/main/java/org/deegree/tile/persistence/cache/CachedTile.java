@@ -40,11 +40,11 @@
 
 package org.deegree.tile.persistence.cache;
 
-import org.apache.commons.io.IOUtils;
 import org.deegree.feature.FeatureCollection;
 import org.deegree.geometry.Envelope;
 import org.deegree.tile.Tile;
 import org.deegree.tile.TileIOException;
+import org.deegree.tile.Tiles;
 import org.ehcache.Cache;
 import org.slf4j.Logger;
 
@@ -68,15 +68,19 @@ public class CachedTile implements Tile {
 
 	private final Tile tile;
 
-	private final Cache<String, byte[]> cache;
+	private final TileLoader loader;
 
 	private final String key;
 
 	private byte[] data;
 
 	public CachedTile(Tile tile, Cache<String, byte[]> cache, String key) {
+		this(tile, new TileLoader(cache, 0, null), key);
+	}
+
+	CachedTile(Tile tile, TileLoader loader, String key) {
 		this.tile = tile;
-		this.cache = cache;
+		this.loader = loader;
 		this.key = key;
 	}
 
@@ -97,6 +101,20 @@ public class CachedTile implements Tile {
 		return new ByteArrayInputStream(getData());
 	}
 
+	@Override
+	public String getEncodedFormat() {
+		return tile.getEncodedFormat();
+	}
+
+	/**
+	 * Derived from the cached data, which is kept for a subsequent
+	 * {@link #getAsStream()}.
+	 */
+	@Override
+	public String getVersion() {
+		return Tiles.getVersion(getData());
+	}
+
 	@Override
 	public Envelope getEnvelope() {
 		return tile.getEnvelope();
@@ -109,25 +127,7 @@ public class CachedTile implements Tile {
 
 	private synchronized byte[] getData() {
 		if (data == null) {
-			if (!cache.containsKey(key)) {
-				try {
-					InputStream is = tile.getAsStream();
-					if (is == null) {
-						data = new byte[] {};
-					}
-					else {
-						data = IOUtils.toByteArray(is);
-					}
-					cache.put(key, data);
-				}
-				catch (IOException e) {
-					LOG.trace(e.getMessage(), e);
-					throw new TileIOException(e.getMessage(), e);
-				}
-			}
-			else {
-				data = cache.get(key);
-			}
+			data = loader.get(key, tile);
 		}
 		return data;
 	}
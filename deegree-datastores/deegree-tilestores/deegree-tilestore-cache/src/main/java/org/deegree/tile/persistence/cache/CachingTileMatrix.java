@@ -57,13 +57,17 @@ public class CachingTileMatrix implements TileDataLevel {
 
 	private final TileDataLevel tileMatrix;
 
-	private final Cache<String, byte[]> cache;
+	private final TileLoader loader;
 
 	private final String identifier;
 
 	public CachingTileMatrix(TileDataLevel tileMatrix, Cache<String, byte[]> cache) {
+		this(tileMatrix, new TileLoader(cache, 0, null));
+	}
+
+	CachingTileMatrix(TileDataLevel tileMatrix, TileLoader loader) {
 		this.tileMatrix = tileMatrix;
-		this.cache = cache;
+		this.loader = loader;
 		this.identifier = tileMatrix.getMetadata().getIdentifier();
 	}
 
@@ -79,7 +83,7 @@ public class CachingTileMatrix implements TileDataLevel {
 			return null;
 		}
 		String key = identifier + "_" + x + "_" + y;
-		return new CachedTile(tile, cache, key);
+		return new CachedTile(tile, loader, key);
 	}
 
 	@Override
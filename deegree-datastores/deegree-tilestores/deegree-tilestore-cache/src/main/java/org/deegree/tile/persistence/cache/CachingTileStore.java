@@ -39,7 +39,11 @@
  ----------------------------------------------------------------------------*/
 package org.deegree.tile.persistence.cache;
 
+import org.deegree.feature.persistence.FeatureStore;
+import org.deegree.feature.persistence.transaction.FeatureStoreChanges;
 import org.deegree.geometry.Envelope;
+import org.deegree.geometry.GeometryFactory;
+import org.deegree.tile.TileMatrix;
 import org.deegree.tile.DefaultTileDataSet;
 import org.deegree.tile.Tile;
 import org.deegree.tile.TileDataLevel;
@@ -59,36 +63,105 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.StreamSupport;
 
 /**
  * {@link TileStore} that acts as a caching proxy to another {@link TileStore}.
+ * <p>
+ * Concurrent requests for a tile that is not cached yet are served by a single fetch
+ * from the wrapped tile store. Optionally, cached tiles are refreshed in the background
+ * after a configurable interval, while the old tile data is still served. Cached tiles
+ * can also be removed automatically when features in configured feature stores change.
+ * </p>
  *
  * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
  */
 public class CachingTileStore implements TileStore {
 
+	private static final GeometryFactory FAC = new GeometryFactory();
+
+	private static final long MAX_TILES_PER_LOOKUP = 100000;
+
 	private final TileStore tileStore;
 
 	private final CacheManager cacheManager;
 
 	private final Cache<String, byte[]> cache;
 
+	private final ExecutorService refresher;
+
+	private final TileLoader loader;
+
 	private Map<String, TileDataSet> tileMatrixSets;
 
 	private final ResourceMetadata<TileStore> metadata;
 
+	private final String cacheName;
+
+	private List<FeatureStore> invalidatingStores = new ArrayList<>();
+
+	private long invalidationDelay;
+
+	private int invalidationBuffer;
+
+	private CacheInvalidator invalidator;
+
 	public CachingTileStore(TileStore tileStore, String cacheName, URL cacheConfiguration,
 			ResourceMetadata<TileStore> metadata) {
+		this(tileStore, cacheName, cacheConfiguration, metadata, 0);
+	}
+
+	/**
+	 * @param tileStore the tile store to cache, never <code>null</code>
+	 * @param cacheName alias of the cache in the cache configuration, never
+	 * <code>null</code>
+	 * @param cacheConfiguration location of the ehcache configuration, never
+	 * <code>null</code>
+	 * @param metadata never <code>null</code>
+	 * @param refreshInterval interval in milliseconds after which cached tiles are
+	 * refreshed in the background, <code>0</code> to disable refreshing
+	 */
+	public CachingTileStore(TileStore tileStore, String cacheName, URL cacheConfiguration,
+			ResourceMetadata<TileStore> metadata, long refreshInterval) {
 		this.tileStore = tileStore;
 		this.metadata = metadata;
+		this.cacheName = cacheName;
 		Configuration xmlConfig = new XmlConfiguration(cacheConfiguration);
 		this.cacheManager = CacheManagerBuilder.newCacheManager(xmlConfig);
 		this.cacheManager.init();
 		this.cache = this.cacheManager.getCache(cacheName, String.class, byte[].class);
+		if (refreshInterval > 0) {
+			this.refresher = Executors.newFixedThreadPool(2, r -> {
+				Thread t = new Thread(r, "tile-cache-refresh-" + cacheName);
+				t.setDaemon(true);
+				return t;
+			});
+		}
+		else {
+			this.refresher = null;
+		}
+		this.loader = new TileLoader(cache, refreshInterval, refresher);
+	}
+
+	/**
+	 * Removes cached tiles whenever features in the given feature stores are changed.
+	 * Must be called before {@link #init()}.
+	 * @param featureStores the feature stores to listen to, never <code>null</code>
+	 * @param delay milliseconds to collect changes before the affected tiles are removed
+	 * @param pixelBuffer pixels the changed areas are extended by on each level, to cover
+	 * symbols and labels reaching into neighbouring tiles
+	 */
+	void setInvalidation(List<FeatureStore> featureStores, long delay, int pixelBuffer) {
+		this.invalidatingStores = featureStores;
+		this.invalidationDelay = delay;
+		this.invalidationBuffer = pixelBuffer;
 	}
 
 	@Override
@@ -99,12 +172,18 @@ public class CachingTileStore implements TileStore {
 			TileDataSet cachedDataset = tileStore.getTileDataSet(id);
 			List<TileDataLevel> list = new ArrayList<>();
 			for (TileDataLevel tm : cachedDataset.getTileDataLevels()) {
-				list.add(new CachingTileMatrix(tm, cache));
+				list.add(new CachingTileMatrix(tm, loader));
 			}
 			TileDataSet cachingDataset = new DefaultTileDataSet(list, cachedDataset.getTileMatrixSet(),
 					cachedDataset.getNativeImageFormat());
 			this.tileMatrixSets.put(id, cachingDataset);
 		}
+		if (!invalidatingStores.isEmpty()) {
+			invalidator = new CacheInvalidator(this, cacheName, invalidationDelay, invalidationBuffer);
+			for (FeatureStore fs : invalidatingStores) {
+				FeatureStoreChanges.addListener(fs, invalidator);
+			}
+		}
 	}
 
 	@Override
@@ -114,6 +193,15 @@ public class CachingTileStore implements TileStore {
 
 	@Override
 	public void destroy() {
+		if (invalidator != null) {
+			for (FeatureStore fs : invalidatingStores) {
+				FeatureStoreChanges.removeListener(fs, invalidator);
+			}
+			invalidator.destroy();
+		}
+		if (refresher != null) {
+			refresher.shutdownNow();
+		}
 		cacheManager.close();
 	}
 
@@ -143,23 +231,54 @@ public class CachingTileStore implements TileStore {
 	 * cache
 	 */
 	public long invalidateCache(String tileMatrixSet, Envelope envelope) {
+		return invalidateCache(tileMatrixSet, envelope, 0);
+	}
+
+	/**
+	 * Removes matching objects from cache.
+	 * @param tileMatrixSet the id of the tile matrix set
+	 * @param envelope may be null, in which case all objects will be removed from the
+	 * cache
+	 * @param pixelBuffer number of pixels the envelope is extended by on each level
+	 * @return number of removed objects
+	 */
+	public long invalidateCache(String tileMatrixSet, Envelope envelope, int pixelBuffer) {
 		if (envelope == null) {
+			loader.invalidate(key -> true);
 			long count = StreamSupport.stream(cache.spliterator(), false).count();
 			cache.clear();
 			return count;
 		}
-		long cnt = 0;
+		Map<String, long[]> ranges = new HashMap<>();
+		long numTiles = 0;
 		for (TileDataLevel tm : tileMatrixSets.get(tileMatrixSet).getTileDataLevels()) {
-			long[] ts = Tiles.getTileIndexRange(tm, envelope);
+			TileMatrix md = tm.getMetadata();
+			Envelope bbox = envelope;
+			if (pixelBuffer > 0) {
+				double buffer = pixelBuffer * md.getResolution();
+				bbox = FAC.createEnvelope(envelope.getMin().get0() - buffer, envelope.getMin().get1() - buffer,
+						envelope.getMax().get0() + buffer, envelope.getMax().get1() + buffer,
+						envelope.getCoordinateSystem());
+			}
+			long[] ts = Tiles.getTileIndexRange(tm, bbox);
 			if (ts != null) {
-				String id = tm.getMetadata().getIdentifier();
-				for (long x = ts[0]; x <= ts[2]; ++x) {
-					for (long y = ts[1]; y <= ts[3]; ++y) {
-						String key = id + "_" + x + "_" + y;
-						if (cache.containsKey(key)) {
-							cache.remove(key);
-							++cnt;
-						}
+				ranges.put(md.getIdentifier(), ts);
+				numTiles += (ts[2] - ts[0] + 1) * (ts[3] - ts[1] + 1);
+			}
+		}
+		loader.invalidate(key -> inRanges(key, ranges));
+		if (numTiles > MAX_TILES_PER_LOOKUP) {
+			return removeByScan(ranges);
+		}
+		long cnt = 0;
+		for (Map.Entry<String, long[]> range : ranges.entrySet()) {
+			long[] ts = range.getValue();
+			for (long x = ts[0]; x <= ts[2]; ++x) {
+				for (long y = ts[1]; y <= ts[3]; ++y) {
+					String key = range.getKey() + "_" + x + "_" + y;
+					if (cache.containsKey(key)) {
+						cache.remove(key);
+						++cnt;
 					}
 				}
 			}
@@ -167,6 +286,85 @@ public class CachingTileStore implements TileStore {
 		return cnt;
 	}
 
+	/**
+	 * Walks the cache once instead of looking up every tile of huge index ranges, which
+	 * are mostly not cached anyway.
+	 */
+	private long removeByScan(Map<String, long[]> ranges) {
+		Set<String> keys = new HashSet<>();
+		for (Cache.Entry<String, byte[]> entry : cache) {
+			if (inRanges(entry.getKey(), ranges)) {
+				keys.add(entry.getKey());
+			}
+		}
+		cache.removeAll(keys);
+		return keys.size();
+	}
+
+	/**
+	 * @param key cache key of a tile (<code>matrix_x_y</code>)
+	 * @param ranges tile index ranges (min x, min y, max x, max y) by tile matrix id
+	 * @return <code>true</code> if the key denotes a tile within the ranges
+	 */
+	static boolean inRanges(String key, Map<String, long[]> ranges) {
+		int yIdx = key.lastIndexOf('_');
+		int xIdx = yIdx > 0 ? key.lastIndexOf('_', yIdx - 1) : -1;
+		if (xIdx <= 0) {
+			return false;
+		}
+		long[] ts = ranges.get(key.substring(0, xIdx));
+		if (ts == null) {
+			return false;
+		}
+		try {
+			long x = Long.parseLong(key.substring(xIdx + 1, yIdx));
+			long y = Long.parseLong(key.substring(yIdx + 1));
+			return x >= ts[0] && x <= ts[2] && y >= ts[1] && y <= ts[3];
+		}
+		catch (NumberFormatException e) {
+			// not a tile key
+			return false;
+		}
+	}
+
+	/**
+	 * @return number of tiles fetched from the cached tile store, including background
+	 * refreshes
+	 */
+	public long getLoadCount() {
+		return loader.getLoadCount();
+	}
+
+	/**
+	 * @return average time needed to fetch a tile from the cached tile store in
+	 * milliseconds
+	 */
+	public double getAverageLoadTime() {
+		long loads = loader.getLoadCount();
+		return loads == 0 ? 0 : loader.getLoadNanos() / 1000000.0 / loads;
+	}
+
+	/**
+	 * @return number of requests for uncached tiles that have been served by the fetch of
+	 * a concurrent request
+	 */
+	public long getCoalescedLoadCount() {
+		return loader.getCoalescedLoadCount();
+	}
+
+	/**
+	 * @return number of background refreshes of cached tiles
+	 */
+	public long getRefreshCount() {
+		return loader.getRefreshCount();
+	}
+
+	@Override
+	public String toString() {
+		return "CachingTileStore {loads=" + getLoadCount() + ", averageLoadTime=" + getAverageLoadTime()
+				+ "ms, coalescedLoads=" + getCoalescedLoadCount() + ", refreshes=" + getRefreshCount() + "}";
+	}
+
 	@Override
 	public TileStoreTransaction acquireTransaction(String id) {
 		throw new UnsupportedOperationException("CachingTileStore does not support transactions.");
@@ -27,7 +27,10 @@
 ----------------------------------------------------------------------------*/
 package org.deegree.tile.persistence.cache;
 
+import org.deegree.feature.persistence.FeatureStore;
+import org.deegree.feature.persistence.FeatureStoreProvider;
 import org.deegree.tile.persistence.TileStore;
+import org.deegree.tile.persistence.cache.jaxb.CachingTileStore.InvalidateOnChange;
 import org.deegree.tile.persistence.TileStoreProvider;
 import org.deegree.workspace.ResourceBuilder;
 import org.deegree.workspace.ResourceInitException;
@@ -37,6 +40,8 @@ import org.deegree.workspace.Workspace;
 import java.io.File;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * This class is responsible for building caching tile stores.
@@ -64,7 +69,26 @@ public class CachingTileStoreBuilder implements ResourceBuilder<TileStore> {
 		try {
 			URL cacheConfiguration = getCacheConfiguration();
 			TileStore tileStore = workspace.getResource(TileStoreProvider.class, cfg.getTileStoreId());
-			return new CachingTileStore(tileStore, cfg.getCacheName(), cacheConfiguration, metadata);
+			long refreshInterval = 0;
+			if (cfg.getRefreshInterval() != null) {
+				refreshInterval = cfg.getRefreshInterval().longValue() * 1000;
+			}
+			CachingTileStore store = new CachingTileStore(tileStore, cfg.getCacheName(), cacheConfiguration,
+					metadata, refreshInterval);
+			InvalidateOnChange invalidation = cfg.getInvalidateOnChange();
+			if (invalidation != null) {
+				List<FeatureStore> featureStores = new ArrayList<>();
+				for (String id : invalidation.getFeatureStoreId()) {
+					FeatureStore fs = workspace.getResource(FeatureStoreProvider.class, id);
+					if (fs == null) {
+						throw new ResourceInitException("Feature store with id " + id + " is not available.");
+					}
+					featureStores.add(fs);
+				}
+				store.setInvalidation(featureStores, invalidation.getDelay().longValue() * 1000,
+						invalidation.getBuffer().intValue());
+			}
+			return store;
 		}
 		catch (Exception e) {
 			throw new ResourceInitException("Unable to create tile store", e);
@@ -29,6 +29,8 @@ package org.deegree.tile.persistence.cache;
 
 import static org.deegree.commons.xml.jaxb.JAXBUtils.unmarshall;
 
+import org.deegree.feature.persistence.FeatureStore;
+import org.deegree.feature.persistence.FeatureStoreProvider;
 import org.deegree.tile.persistence.TileStore;
 import org.deegree.tile.persistence.TileStoreProvider;
 import org.deegree.workspace.ResourceBuilder;
@@ -60,6 +62,11 @@ public class CachingTileStoreMetadata extends AbstractResourceMetadata<TileStore
 					"org.deegree.tile.persistence.cache.jaxb", provider.getSchema(), location.getAsStream(), workspace);
 			String tsid = cfg.getTileStoreId();
 			dependencies.add(new DefaultResourceIdentifier<TileStore>(TileStoreProvider.class, tsid));
+			if (cfg.getInvalidateOnChange() != null) {
+				for (String fsid : cfg.getInvalidateOnChange().getFeatureStoreId()) {
+					dependencies.add(new DefaultResourceIdentifier<FeatureStore>(FeatureStoreProvider.class, fsid));
+				}
+			}
 			return new CachingTileStoreBuilder(cfg, this, workspace);
 		}
 		catch (Exception e) {
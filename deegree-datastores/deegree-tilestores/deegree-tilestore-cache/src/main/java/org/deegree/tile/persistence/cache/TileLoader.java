@@ -0,0 +1,331 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.tile.persistence.cache;
+
+import org.apache.commons.io.IOUtils;
+import org.deegree.tile.Tile;
+import org.deegree.tile.TileIOException;
+import org.ehcache.Cache;
+import org.ehcache.event.CacheEvent;
+import org.ehcache.event.CacheEventListener;
+import org.ehcache.event.EventFiring;
+import org.ehcache.event.EventOrdering;
+import org.ehcache.event.EventType;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Loads the encoded data of tiles into the cache of a {@link CachingTileStore}.
+ * <p>
+ * Concurrent cache misses for the same tile are coalesced: only the first request fetches
+ * the tile from the wrapped tile store, all others wait for its result. If a refresh
+ * interval is configured, cached tiles that are older than the interval are still served
+ * from the cache, while a single background refresh replaces them. Tiles whose age is not
+ * known (e.g. from a persistent cache) are considered fresh when first accessed. A failed
+ * refresh is retried after a delay, the stale tile is served meanwhile. Loads running
+ * while their tiles are invalidated do not put their outdated data into the cache.
+ * </p>
+ */
+class TileLoader {
+
+	private static final Logger LOG = getLogger(TileLoader.class);
+
+	private static final long MAX_REFRESH_RETRY_DELAY = 60000;
+
+	private final Cache<String, byte[]> cache;
+
+	private final long refreshInterval;
+
+	private final Executor refresher;
+
+	private final ConcurrentHashMap<String, Load> inFlight = new ConcurrentHashMap<>();
+
+	private final ConcurrentHashMap<String, Long> loadTimes;
+
+	private final LongAdder loads = new LongAdder();
+
+	private final LongAdder loadNanos = new LongAdder();
+
+	private final LongAdder coalescedLoads = new LongAdder();
+
+	private final LongAdder refreshes = new LongAdder();
+
+	/**
+	 * @param cache the cache, must not be <code>null</code>
+	 * @param refreshInterval interval in milliseconds after which cached tiles are
+	 * refreshed in the background, <code>0</code> to disable refreshing
+	 * @param refresher used for background refreshes, may be <code>null</code> if
+	 * refreshing is disabled
+	 */
+	TileLoader(Cache<String, byte[]> cache, long refreshInterval, Executor refresher) {
+		this.cache = cache;
+		this.refreshInterval = refreshInterval;
+		this.refresher = refresher;
+		if (refreshInterval > 0) {
+			loadTimes = new ConcurrentHashMap<>();
+			cache.getRuntimeConfiguration()
+				.registerCacheEventListener(new LoadTimeRemover(), EventOrdering.UNORDERED, EventFiring.ASYNCHRONOUS,
+						EnumSet.of(EventType.EVICTED, EventType.EXPIRED, EventType.REMOVED));
+		}
+		else {
+			loadTimes = null;
+		}
+	}
+
+	/**
+	 * Returns the encoded data of the given tile, from the cache if possible.
+	 * @param key cache key of the tile, must not be <code>null</code>
+	 * @param tile tile of the wrapped tile store, must not be <code>null</code>
+	 * @return encoded tile data, never <code>null</code>
+	 * @throws TileIOException if fetching the tile failed
+	 */
+	byte[] get(String key, Tile tile) {
+		byte[] data = cache.get(key);
+		if (data == null) {
+			return load(key, tile);
+		}
+		if (loadTimes != null && isStale(key)) {
+			refresh(key, tile);
+		}
+		return data;
+	}
+
+	/**
+	 * Discards the results of running loads of the given tiles and forgets about their
+	 * age. To be called before the tiles are removed from the cache, so a load that
+	 * started before a change of the tiles cannot put them back.
+	 * @param affected matches the cache keys of the invalidated tiles, must not be
+	 * <code>null</code>
+	 */
+	void invalidate(Predicate<String> affected) {
+		for (Map.Entry<String, Load> entry : inFlight.entrySet()) {
+			if (affected.test(entry.getKey())) {
+				entry.getValue().invalidate();
+			}
+		}
+		if (loadTimes != null) {
+			loadTimes.keySet().removeIf(affected);
+		}
+	}
+
+	/**
+	 * @return number of tiles fetched from the wrapped tile store (including refreshes)
+	 */
+	long getLoadCount() {
+		return loads.sum();
+	}
+
+	/**
+	 * @return total time spent fetching tiles from the wrapped tile store in nanoseconds
+	 */
+	long getLoadNanos() {
+		return loadNanos.sum();
+	}
+
+	/**
+	 * @return number of cache misses that waited for a load of another request
+	 */
+	long getCoalescedLoadCount() {
+		return coalescedLoads.sum();
+	}
+
+	/**
+	 * @return number of background refreshes of stale tiles
+	 */
+	long getRefreshCount() {
+		return refreshes.sum();
+	}
+
+	private byte[] load(String key, Tile tile) {
+		Load load = new Load();
+		Load running = inFlight.putIfAbsent(key, load);
+		if (running != null) {
+			coalescedLoads.increment();
+			return await(running.future);
+		}
+		try {
+			// another load may have completed since the cache lookup
+			byte[] data = cache.get(key);
+			if (data == null) {
+				data = fetch(key, tile, load);
+			}
+			load.future.complete(data);
+			return data;
+		}
+		catch (RuntimeException | Error e) {
+			load.future.completeExceptionally(e);
+			throw e;
+		}
+		finally {
+			inFlight.remove(key, load);
+		}
+	}
+
+	private void refresh(String key, Tile tile) {
+		Load load = new Load();
+		if (inFlight.putIfAbsent(key, load) != null) {
+			return;
+		}
+		try {
+			refresher.execute(() -> {
+				try {
+					load.future.complete(fetch(key, tile, load));
+				}
+				catch (RuntimeException e) {
+					LOG.debug("Refreshing tile {} failed: {}", key, e.getMessage());
+					load.failed(key);
+					load.future.completeExceptionally(e);
+				}
+				finally {
+					inFlight.remove(key, load);
+				}
+			});
+			refreshes.increment();
+		}
+		catch (RejectedExecutionException e) {
+			// tile store is shutting down
+			inFlight.remove(key, load);
+			load.future.cancel(false);
+		}
+	}
+
+	private byte[] fetch(String key, Tile tile, Load load) {
+		long start = System.nanoTime();
+		try (InputStream is = tile.getAsStream()) {
+			byte[] data = is == null ? new byte[] {} : IOUtils.toByteArray(is);
+			load.store(key, data);
+			return data;
+		}
+		catch (IOException e) {
+			LOG.trace(e.getMessage(), e);
+			throw new TileIOException(e.getMessage(), e);
+		}
+		finally {
+			loads.increment();
+			loadNanos.add(System.nanoTime() - start);
+		}
+	}
+
+	private boolean isStale(String key) {
+		long now = System.currentTimeMillis();
+		Long loadTime = loadTimes.putIfAbsent(key, now);
+		return loadTime != null && now - loadTime > refreshInterval;
+	}
+
+	private static byte[] await(CompletableFuture<byte[]> future) {
+		try {
+			return future.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new TileIOException("Interrupted while waiting for tile.");
+		}
+		catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new TileIOException(cause.getMessage(), cause);
+		}
+	}
+
+	/**
+	 * A running load of a tile, shared by all requests waiting for the tile.
+	 */
+	private class Load {
+
+		private final CompletableFuture<byte[]> future = new CompletableFuture<>();
+
+		private boolean invalidated;
+
+		synchronized void invalidate() {
+			invalidated = true;
+		}
+
+		/**
+		 * Puts the loaded data into the cache, unless the tile has been invalidated since
+		 * the load started.
+		 */
+		synchronized void store(String key, byte[] data) {
+			if (invalidated) {
+				LOG.debug("Not caching tile {}, it has been invalidated while loading.", key);
+				return;
+			}
+			cache.put(key, data);
+			if (loadTimes != null) {
+				loadTimes.put(key, System.currentTimeMillis());
+			}
+		}
+
+		/**
+		 * Postpones the next refresh of a tile whose refresh failed, so the wrapped tile
+		 * store is not asked on every request while it cannot deliver the tile.
+		 */
+		synchronized void failed(String key) {
+			if (invalidated) {
+				return;
+			}
+			long retryDelay = Math.min(refreshInterval, MAX_REFRESH_RETRY_DELAY);
+			loadTimes.put(key, System.currentTimeMillis() - refreshInterval + retryDelay);
+		}
+
+	}
+
+	private class LoadTimeRemover implements CacheEventListener<String, byte[]> {
+
+		@Override
+		public void onEvent(CacheEvent<? extends String, ? extends byte[]> event) {
+			loadTimes.remove(event.getKey());
+		}
+
+	}
+
+}
@@ -0,0 +1,183 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.tile.persistence.cache;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+import javax.xml.namespace.QName;
+
+import org.deegree.feature.persistence.FeatureStore;
+import org.deegree.feature.persistence.transaction.FeatureStoreChange;
+import org.deegree.geometry.Envelope;
+import org.deegree.geometry.GeometryFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link CacheInvalidator}.
+ */
+public class CacheInvalidatorTest {
+
+	private static final GeometryFactory FAC = new GeometryFactory();
+
+	private static final QName FT = new QName("http://www.deegree.org/app", "Place");
+
+	private static final long DELAY = 200;
+
+	private final FeatureStore fs = mock(FeatureStore.class);
+
+	private RecordingTileStore store;
+
+	private CacheInvalidator invalidator;
+
+	@Before
+	public void setup() {
+		store = new RecordingTileStore();
+		store.init();
+		invalidator = new CacheInvalidator(store, "test", DELAY, 4);
+	}
+
+	@After
+	public void shutdown() {
+		invalidator.destroy();
+		store.destroy();
+	}
+
+	@Test
+	public void testChangesWithinDelayAreCollected() throws InterruptedException {
+		long start = System.currentTimeMillis();
+		invalidator.changed(located(FAC.createEnvelope(1, 1, 2, 2, null)));
+		invalidator.changed(located(FAC.createEnvelope(10, 10, 12, 12, null)));
+		assertTrue(store.getInvalidations().isEmpty());
+
+		assertTrue(store.calls.tryAcquire(2, 5, SECONDS));
+		List<Invalidation> invalidations = store.getInvalidations();
+		assertEquals(2, invalidations.size());
+		for (Invalidation invalidation : invalidations) {
+			assertTrue(invalidation.time - start >= DELAY / 2);
+			assertEquals(4, invalidation.pixelBuffer);
+		}
+		assertEquals(1.0, invalidations.get(0).envelope.getMin().get0(), 0.0);
+		assertEquals(10.0, invalidations.get(1).envelope.getMin().get0(), 0.0);
+		// both changes were handled by the same run
+		assertTrue(invalidations.get(1).time - invalidations.get(0).time < DELAY);
+	}
+
+	@Test
+	public void testUnlocatedChangeInvalidatesAll() throws InterruptedException {
+		invalidator.changed(located(FAC.createEnvelope(1, 1, 2, 2, null)));
+		invalidator.changed(new FeatureStoreChange(fs, singleton(FT), emptyList(), true));
+		invalidator.changed(located(FAC.createEnvelope(10, 10, 12, 12, null)));
+
+		assertTrue(store.calls.tryAcquire(1, 5, SECONDS));
+		Thread.sleep(2 * DELAY);
+		List<Invalidation> invalidations = store.getInvalidations();
+		assertEquals(1, invalidations.size());
+		assertNull(invalidations.get(0).envelope);
+	}
+
+	@Test
+	public void testChangesAfterRunAreCollectedAgain() throws InterruptedException {
+		invalidator.changed(located(FAC.createEnvelope(1, 1, 2, 2, null)));
+		assertTrue(store.calls.tryAcquire(1, 5, SECONDS));
+
+		invalidator.changed(located(FAC.createEnvelope(10, 10, 12, 12, null)));
+		invalidator.changed(located(FAC.createEnvelope(20, 20, 22, 22, null)));
+		assertTrue(store.calls.tryAcquire(2, 5, SECONDS));
+
+		List<Invalidation> invalidations = store.getInvalidations();
+		assertEquals(3, invalidations.size());
+		assertTrue(invalidations.get(1).time - invalidations.get(0).time >= DELAY / 2);
+	}
+
+	private FeatureStoreChange located(Envelope bbox) {
+		return new FeatureStoreChange(fs, singleton(FT), singletonList(bbox), false);
+	}
+
+	private static class Invalidation {
+
+		private final Envelope envelope;
+
+		private final int pixelBuffer;
+
+		private final long time = System.currentTimeMillis();
+
+		Invalidation(Envelope envelope, int pixelBuffer) {
+			this.envelope = envelope;
+			this.pixelBuffer = pixelBuffer;
+		}
+
+	}
+
+	private static class RecordingTileStore extends CachingTileStore {
+
+		private final List<Invalidation> invalidations = new ArrayList<Invalidation>();
+
+		private final Semaphore calls = new Semaphore(0);
+
+		RecordingTileStore() {
+			super(new MemoryTileStore(1, 2), "tiles", CacheInvalidatorTest.class.getResource("ehcache.xml"), null);
+		}
+
+		@Override
+		public long invalidateCache(String tileMatrixSet, Envelope envelope, int pixelBuffer) {
+			synchronized (invalidations) {
+				invalidations.add(new Invalidation(envelope, pixelBuffer));
+			}
+			calls.release();
+			return 0;
+		}
+
+		List<Invalidation> getInvalidations() {
+			synchronized (invalidations) {
+				return new ArrayList<Invalidation>(invalidations);
+			}
+		}
+
+	}
+
+}
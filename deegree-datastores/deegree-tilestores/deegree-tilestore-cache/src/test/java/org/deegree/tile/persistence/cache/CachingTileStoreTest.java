@@ -0,0 +1,221 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.tile.persistence.cache;
+
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.deegree.feature.persistence.FeatureStore;
+import org.deegree.feature.persistence.FeatureStoreException;
+import org.deegree.feature.persistence.FeatureStoreProvider;
+import org.deegree.feature.persistence.FeatureStoreTransaction;
+import org.deegree.filter.IdFilter;
+import org.deegree.geometry.Envelope;
+import org.deegree.geometry.GeometryFactory;
+import org.deegree.tile.TileMatrix;
+import org.deegree.workspace.Workspace;
+import org.deegree.workspace.standard.DefaultWorkspace;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests for the invalidation of {@link CachingTileStore}.
+ */
+public class CachingTileStoreTest {
+
+	private static final GeometryFactory FAC = new GeometryFactory();
+
+	private static final URL EHCACHE = CachingTileStoreTest.class.getResource("ehcache.xml");
+
+	private CachingTileStore store;
+
+	private Workspace workspace;
+
+	@After
+	public void shutdown() {
+		if (store != null) {
+			store.destroy();
+		}
+		if (workspace != null) {
+			workspace.destroy();
+		}
+	}
+
+	@Test
+	public void testInvalidateWithoutBuffer() throws IOException {
+		store = createStore(new MemoryTileStore(1, 2, 4, 8));
+		fetchAll();
+
+		long removed = store.invalidateCache("tms", FAC.createEnvelope(29.5, 0, 30.5, 64, null), 0);
+
+		// a single column on each level
+		assertEquals(1 + 2 + 4 + 8, removed);
+		assertTrue(reloads("2", 1, 0));
+		assertFalse(reloads("2", 2, 0));
+		assertTrue(reloads("3", 3, 0));
+	}
+
+	@Test
+	public void testInvalidateWithBuffer() throws IOException {
+		store = createStore(new MemoryTileStore(1, 2, 4, 8));
+		fetchAll();
+
+		// 2 pixels are 8, 4, 2 and 1 units on the four levels
+		long removed = store.invalidateCache("tms", FAC.createEnvelope(29.5, 0, 30.5, 64, null), 2);
+
+		// the buffer reaches into the neighbouring column on the levels 1 and 2 only
+		assertEquals(1 + 2 * 2 + 2 * 4 + 8, removed);
+		assertTrue(reloads("1", 1, 1));
+		assertTrue(reloads("2", 1, 0));
+		assertTrue(reloads("2", 2, 0));
+		assertFalse(reloads("2", 3, 0));
+		assertTrue(reloads("3", 3, 0));
+		assertFalse(reloads("3", 4, 0));
+		assertFalse(reloads("3", 2, 0));
+	}
+
+	@Test
+	public void testInvalidateHugeRange() throws IOException {
+		store = createStore(new MemoryTileStore(1, 512));
+		assertTrue(reloads("0", 0, 0));
+		assertTrue(reloads("1", 0, 0));
+		assertTrue(reloads("1", 255, 511));
+		assertTrue(reloads("1", 256, 0));
+		assertTrue(reloads("1", 511, 511));
+
+		// the left half of level 1 are more tiles than looked up one by one
+		long removed = store.invalidateCache("tms", FAC.createEnvelope(0, 0, 31.9, 64, null), 0);
+
+		assertEquals(3, removed);
+		assertTrue(reloads("0", 0, 0));
+		assertTrue(reloads("1", 0, 0));
+		assertTrue(reloads("1", 255, 511));
+		assertFalse(reloads("1", 256, 0));
+		assertFalse(reloads("1", 511, 511));
+	}
+
+	@Test
+	public void testInvalidateAll() throws IOException {
+		store = createStore(new MemoryTileStore(1, 2));
+		fetchAll();
+
+		assertEquals(5, store.invalidateCache(null, null));
+		assertTrue(reloads("1", 1, 1));
+	}
+
+	@Test
+	public void testInRanges() {
+		Map<String, long[]> ranges = new HashMap<String, long[]>();
+		ranges.put("level_1", new long[] { 2, 3, 4, 5 });
+
+		assertTrue(CachingTileStore.inRanges("level_1_2_3", ranges));
+		assertTrue(CachingTileStore.inRanges("level_1_4_5", ranges));
+		assertFalse(CachingTileStore.inRanges("level_1_5_5", ranges));
+		assertFalse(CachingTileStore.inRanges("level_1_2_2", ranges));
+		assertFalse(CachingTileStore.inRanges("level_2_3", ranges));
+		assertFalse(CachingTileStore.inRanges("level_1_x_3", ranges));
+		assertFalse(CachingTileStore.inRanges("level", ranges));
+		assertFalse(CachingTileStore.inRanges("_2_3", ranges));
+	}
+
+	@Test
+	public void testTransactionInvalidatesTiles()
+			throws URISyntaxException, IOException, FeatureStoreException, InterruptedException {
+		workspace = new DefaultWorkspace(new File(CachingTileStoreTest.class.getResource("workspace").toURI()));
+		workspace.initAll();
+		FeatureStore fs = workspace.getResource(FeatureStoreProvider.class, "places");
+		store = new CachingTileStore(new MemoryTileStore(1, 2, 4, 8), "tiles", EHCACHE, null);
+		store.setInvalidation(singletonList(fs), 10, 0);
+		store.init();
+		fetchAll();
+
+		FeatureStoreTransaction ta = fs.acquireTransaction();
+		ta.performDelete(new IdFilter("PLACE_1"), null);
+		ta.commit();
+
+		// the deleted place is located at (30,30)
+		assertTrue(awaitReload("3", 3, 4));
+		assertFalse(reloads("3", 7, 0));
+		assertFalse(reloads("3", 0, 7));
+	}
+
+	private static CachingTileStore createStore(MemoryTileStore tileStore) {
+		CachingTileStore store = new CachingTileStore(tileStore, "tiles", EHCACHE, null);
+		store.init();
+		return store;
+	}
+
+	private void fetchAll() throws IOException {
+		for (TileMatrix matrix : store.getTileDataSet("tms").getTileMatrixSet().getTileMatrices()) {
+			for (int x = 0; x < matrix.getNumTilesX(); x++) {
+				for (int y = 0; y < matrix.getNumTilesY(); y++) {
+					reloads(matrix.getIdentifier(), x, y);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return <code>true</code>, if the tile had to be fetched from the cached tile store
+	 */
+	private boolean reloads(String level, int x, int y) throws IOException {
+		long loads = store.getLoadCount();
+		try (InputStream is = store.getTile("tms", level, x, y).getAsStream()) {
+			return store.getLoadCount() > loads;
+		}
+	}
+
+	private boolean awaitReload(String level, int x, int y) throws IOException, InterruptedException {
+		long end = System.currentTimeMillis() + 5000;
+		while (System.currentTimeMillis() < end) {
+			if (reloads(level, x, y)) {
+				return true;
+			}
+			Thread.sleep(10);
+		}
+		return false;
+	}
+
+}
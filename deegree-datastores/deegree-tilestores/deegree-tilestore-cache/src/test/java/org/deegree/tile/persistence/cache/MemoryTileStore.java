@@ -0,0 +1,179 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.tile.persistence.cache;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.deegree.feature.FeatureCollection;
+import org.deegree.geometry.Envelope;
+import org.deegree.geometry.GeometryFactory;
+import org.deegree.geometry.metadata.SpatialMetadata;
+import org.deegree.tile.DefaultTileDataSet;
+import org.deegree.tile.Tile;
+import org.deegree.tile.TileDataLevel;
+import org.deegree.tile.TileDataSet;
+import org.deegree.tile.TileMatrix;
+import org.deegree.tile.TileMatrixSet;
+import org.deegree.tile.persistence.TileStore;
+import org.deegree.tile.persistence.TileStoreTransaction;
+import org.deegree.workspace.Resource;
+import org.deegree.workspace.ResourceMetadata;
+
+/**
+ * Tile store for tests with a single tile matrix set <code>tms</code> that covers the
+ * extent (0,0)-(64,64) with 16x16 pixel tiles. Level <code>i</code> consists of
+ * <code>numTiles[i]</code> x <code>numTiles[i]</code> tiles.
+ */
+class MemoryTileStore implements TileStore {
+
+	private static final GeometryFactory FAC = new GeometryFactory();
+
+	private final TileDataSet dataSet;
+
+	MemoryTileStore(long... numTiles) {
+		Envelope env = FAC.createEnvelope(0, 0, 64, 64, null);
+		SpatialMetadata smd = new SpatialMetadata(env, Collections.emptyList());
+		List<TileMatrix> matrices = new ArrayList<TileMatrix>();
+		List<TileDataLevel> levels = new ArrayList<TileDataLevel>();
+		for (int i = 0; i < numTiles.length; i++) {
+			long num = numTiles[i];
+			TileMatrix matrix = new TileMatrix(Integer.toString(i), smd, 16, 16, 64.0 / num / 16, num, num);
+			matrices.add(matrix);
+			levels.add(new MemoryTileDataLevel(matrix));
+		}
+		TileMatrixSet tms = new TileMatrixSet("tms", null, matrices, smd, null);
+		dataSet = new DefaultTileDataSet(levels, tms, "image/png");
+	}
+
+	@Override
+	public TileDataSet getTileDataSet(String id) {
+		return "tms".equals(id) ? dataSet : null;
+	}
+
+	@Override
+	public Collection<String> getTileDataSetIds() {
+		return Collections.singleton("tms");
+	}
+
+	@Override
+	public Iterator<Tile> getTiles(String id, Envelope envelope, double resolution) {
+		return dataSet.getTiles(envelope, resolution);
+	}
+
+	@Override
+	public Tile getTile(String id, String level, int x, int y) {
+		return dataSet.getTileDataLevel(level).getTile(x, y);
+	}
+
+	@Override
+	public TileStoreTransaction acquireTransaction(String id) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public ResourceMetadata<? extends Resource> getMetadata() {
+		return null;
+	}
+
+	@Override
+	public void init() {
+		// nothing to do
+	}
+
+	@Override
+	public void destroy() {
+		// nothing to do
+	}
+
+	private static class MemoryTileDataLevel implements TileDataLevel {
+
+		private final TileMatrix matrix;
+
+		MemoryTileDataLevel(TileMatrix matrix) {
+			this.matrix = matrix;
+		}
+
+		@Override
+		public TileMatrix getMetadata() {
+			return matrix;
+		}
+
+		@Override
+		public Tile getTile(long x, long y) {
+			if (x < 0 || y < 0 || x >= matrix.getNumTilesX() || y >= matrix.getNumTilesY()) {
+				return null;
+			}
+			return new MemoryTile();
+		}
+
+		@Override
+		public List<String> getStyles() {
+			return null;
+		}
+
+	}
+
+	private static class MemoryTile implements Tile {
+
+		@Override
+		public BufferedImage getAsImage() {
+			return null;
+		}
+
+		@Override
+		public InputStream getAsStream() {
+			return new ByteArrayInputStream(new byte[] { 1, 2, 3 });
+		}
+
+		@Override
+		public Envelope getEnvelope() {
+			return null;
+		}
+
+		@Override
+		public FeatureCollection getFeatures(int i, int j, int limit) {
+			return null;
+		}
+
+	}
+
+}
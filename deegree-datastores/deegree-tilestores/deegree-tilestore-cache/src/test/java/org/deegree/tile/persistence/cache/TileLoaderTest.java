@@ -0,0 +1,248 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.tile.persistence.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.deegree.feature.FeatureCollection;
+import org.deegree.geometry.Envelope;
+import org.deegree.tile.Tile;
+import org.deegree.tile.TileIOException;
+import org.ehcache.Cache;
+import org.ehcache.CacheManager;
+import org.ehcache.config.builders.CacheManagerBuilder;
+import org.ehcache.xml.XmlConfiguration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link TileLoader}.
+ */
+public class TileLoaderTest {
+
+	private static final long REFRESH_INTERVAL = 500;
+
+	private CacheManager cacheManager;
+
+	private Cache<String, byte[]> cache;
+
+	@Before
+	public void setup() {
+		cacheManager = CacheManagerBuilder
+			.newCacheManager(new XmlConfiguration(TileLoaderTest.class.getResource("ehcache.xml")));
+		cacheManager.init();
+		cache = cacheManager.getCache("tiles", String.class, byte[].class);
+	}
+
+	@After
+	public void shutdown() {
+		cacheManager.close();
+	}
+
+	@Test
+	public void testConcurrentGetsLoadOnce() throws Exception {
+		TileLoader loader = new TileLoader(cache, 0, null);
+		CountingTile tile = new CountingTile(new byte[] { 1, 2, 3 });
+		tile.blocked = new CountDownLatch(1);
+		int threads = 8;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<byte[]>> results = new ArrayList<Future<byte[]>>();
+			for (int i = 0; i < threads; i++) {
+				results.add(executor.submit(() -> loader.get("0_0_0", tile)));
+			}
+			// release the load once all other requests wait for it
+			long end = System.currentTimeMillis() + 5000;
+			while (loader.getCoalescedLoadCount() < threads - 1 && System.currentTimeMillis() < end) {
+				Thread.sleep(10);
+			}
+			tile.blocked.countDown();
+
+			for (Future<byte[]> result : results) {
+				assertArrayEquals(new byte[] { 1, 2, 3 }, result.get(5, TimeUnit.SECONDS));
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		assertEquals(1, tile.calls.get());
+		assertEquals(1, loader.getLoadCount());
+		assertEquals(threads - 1, loader.getCoalescedLoadCount());
+		assertArrayEquals(new byte[] { 1, 2, 3 }, cache.get("0_0_0"));
+	}
+
+	@Test
+	public void testFailedLoadIsNotCached() {
+		TileLoader loader = new TileLoader(cache, 0, null);
+		CountingTile tile = new CountingTile(new byte[] { 1 });
+		tile.failing = true;
+		try {
+			loader.get("0_0_0", tile);
+		}
+		catch (TileIOException e) {
+			// expected
+		}
+		tile.failing = false;
+
+		assertArrayEquals(new byte[] { 1 }, loader.get("0_0_0", tile));
+		assertEquals(2, tile.calls.get());
+	}
+
+	@Test
+	public void testStaleTileIsRefreshed() throws InterruptedException {
+		TileLoader loader = new TileLoader(cache, REFRESH_INTERVAL, Runnable::run);
+		CountingTile tile = new CountingTile(new byte[] { 1 });
+		loader.get("0_0_0", tile);
+
+		tile.data = new byte[] { 2 };
+		Thread.sleep(REFRESH_INTERVAL + 100);
+		// the stale tile is served while it is refreshed
+		assertArrayEquals(new byte[] { 1 }, loader.get("0_0_0", tile));
+		assertArrayEquals(new byte[] { 2 }, loader.get("0_0_0", tile));
+		assertEquals(2, tile.calls.get());
+		assertEquals(1, loader.getRefreshCount());
+	}
+
+	@Test
+	public void testFailedRefreshIsNotRetriedOnEveryHit() throws InterruptedException {
+		TileLoader loader = new TileLoader(cache, REFRESH_INTERVAL, Runnable::run);
+		CountingTile tile = new CountingTile(new byte[] { 1 });
+		loader.get("0_0_0", tile);
+
+		tile.failing = true;
+		Thread.sleep(REFRESH_INTERVAL + 100);
+		for (int i = 0; i < 10; i++) {
+			assertArrayEquals(new byte[] { 1 }, loader.get("0_0_0", tile));
+		}
+		assertEquals(2, tile.calls.get());
+		assertEquals(1, loader.getRefreshCount());
+
+		// retried after the delay
+		tile.failing = false;
+		tile.data = new byte[] { 2 };
+		Thread.sleep(REFRESH_INTERVAL + 100);
+		loader.get("0_0_0", tile);
+		assertEquals(3, tile.calls.get());
+		assertArrayEquals(new byte[] { 2 }, loader.get("0_0_0", tile));
+	}
+
+	@Test
+	public void testInvalidatedLoadIsNotCached() throws Exception {
+		TileLoader loader = new TileLoader(cache, 0, null);
+		CountingTile tile = new CountingTile(new byte[] { 1 });
+		tile.blocked = new CountDownLatch(1);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<byte[]> result = executor.submit(() -> loader.get("0_0_0", tile));
+			long end = System.currentTimeMillis() + 5000;
+			while (tile.calls.get() == 0 && System.currentTimeMillis() < end) {
+				Thread.sleep(10);
+			}
+			loader.invalidate(key -> key.startsWith("0_"));
+			tile.blocked.countDown();
+
+			// the request is served, but the outdated data is not cached
+			assertArrayEquals(new byte[] { 1 }, result.get(5, TimeUnit.SECONDS));
+			assertNull(cache.get("0_0_0"));
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static class CountingTile implements Tile {
+
+		private final AtomicInteger calls = new AtomicInteger();
+
+		private volatile byte[] data;
+
+		private volatile boolean failing;
+
+		private volatile CountDownLatch blocked;
+
+		CountingTile(byte[] data) {
+			this.data = data;
+		}
+
+		@Override
+		public BufferedImage getAsImage() {
+			return null;
+		}
+
+		@Override
+		public InputStream getAsStream() {
+			calls.incrementAndGet();
+			if (blocked != null) {
+				try {
+					blocked.await(5, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException e) {
+					throw new TileIOException("interrupted");
+				}
+			}
+			if (failing) {
+				throw new TileIOException("failing");
+			}
+			return new ByteArrayInputStream(data);
+		}
+
+		@Override
+		public Envelope getEnvelope() {
+			return null;
+		}
+
+		@Override
+		public FeatureCollection getFeatures(int i, int j, int limit) {
+			return null;
+		}
+
+	}
+
+}
@@ -74,4 +74,15 @@ public interface TileStoreTransaction {
 	 */
 	void delete(String tileDataLevel, Envelope envelope) throws TileIOException;
 
+	/**
+	 * Makes sure that all tiles put so far have been stored. Implementations that buffer
+	 * or batch writes must override this, callers that need to know that the tiles are
+	 * stored (e.g. before recording progress) must call it. The default implementation
+	 * does nothing.
+	 * @throws TileIOException if buffered tiles could not be stored, they are lost then
+	 */
+	default void flush() throws TileIOException {
+		// tiles are stored by put
+	}
+
 }
@@ -0,0 +1,149 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.tile.seed;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.util.Properties;
+
+import org.slf4j.Logger;
+
+/**
+ * Persists the position of a {@link TileSeeder} run, so that an interrupted run can be
+ * resumed.
+ * <p>
+ * The checkpoint records the level and the number of tiles of that level that have been
+ * completely seeded, along with the seeding parameters. A checkpoint written for other
+ * parameters is ignored.
+ * </p>
+ */
+class SeedingCheckpoint {
+
+	private static final Logger LOG = getLogger(SeedingCheckpoint.class);
+
+	private static final String PARAMETERS = "parameters";
+
+	private static final String LEVEL = "level";
+
+	private static final String TILE = "tile";
+
+	private final File file;
+
+	private final String parameters;
+
+	/**
+	 * @param file checkpoint file, may be <code>null</code> (no checkpointing)
+	 * @param parameters the seeding parameters, never <code>null</code>
+	 */
+	SeedingCheckpoint(File file, String parameters) {
+		this.file = file;
+		this.parameters = parameters;
+	}
+
+	/**
+	 * @return index of the level and number of seeded tiles of this level, or
+	 * <code>null</code> if there is no (matching) checkpoint
+	 */
+	long[] load() {
+		if (file == null || !file.exists()) {
+			return null;
+		}
+		Properties props = new Properties();
+		try (Reader reader = Files.newBufferedReader(file.toPath(), UTF_8)) {
+			props.load(reader);
+			if (!parameters.equals(props.getProperty(PARAMETERS))) {
+				LOG.warn("Ignoring seeding checkpoint {}, it has been written for other parameters.", file);
+				return null;
+			}
+			return new long[] { Long.parseLong(props.getProperty(LEVEL)), Long.parseLong(props.getProperty(TILE)) };
+		}
+		catch (IOException | RuntimeException e) {
+			LOG.warn("Ignoring unreadable seeding checkpoint {}: {}", file, e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * @param level index of the level currently seeded
+	 * @param tile number of tiles of this level that have been seeded
+	 */
+	void save(int level, long tile) {
+		if (file == null) {
+			return;
+		}
+		Properties props = new Properties();
+		props.setProperty(PARAMETERS, parameters);
+		props.setProperty(LEVEL, Integer.toString(level));
+		props.setProperty(TILE, Long.toString(tile));
+		File tmp = new File(file.getPath() + ".tmp");
+		try {
+			File parent = file.getAbsoluteFile().getParentFile();
+			if (parent != null) {
+				Files.createDirectories(parent.toPath());
+			}
+			try (Writer writer = Files.newBufferedWriter(tmp.toPath(), UTF_8)) {
+				props.store(writer, "deegree tile seeding checkpoint");
+			}
+			try {
+				Files.move(tmp.toPath(), file.toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+			}
+			catch (AtomicMoveNotSupportedException e) {
+				Files.move(tmp.toPath(), file.toPath(), REPLACE_EXISTING);
+			}
+		}
+		catch (IOException e) {
+			LOG.warn("Unable to write seeding checkpoint {}: {}", file, e.getMessage());
+		}
+	}
+
+	/**
+	 * Removes the checkpoint after a completed run.
+	 */
+	void delete() {
+		if (file != null && file.exists() && !file.delete()) {
+			LOG.warn("Unable to delete seeding checkpoint {}.", file);
+		}
+	}
+
+}
@@ -0,0 +1,169 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.tile.seed;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Progress of a {@link TileSeeder} run, safe for being read while seeding is running.
+ */
+public class SeedingProgress {
+
+	private final List<String> levels;
+
+	private final long[] totals;
+
+	private final AtomicLongArray done;
+
+	private final LongAdder failed = new LongAdder();
+
+	private final long resumed;
+
+	private final long startTime = System.currentTimeMillis();
+
+	private volatile long endTime = -1;
+
+	/**
+	 * @param levels identifiers of the seeded tile data levels, never <code>null</code>
+	 * @param totals number of tiles to seed per level, never <code>null</code>
+	 * @param resumed number of tiles per level that have already been seeded by a
+	 * previous run, never <code>null</code>
+	 */
+	SeedingProgress(List<String> levels, long[] totals, long[] resumed) {
+		this.levels = Collections.unmodifiableList(levels);
+		this.totals = totals;
+		this.done = new AtomicLongArray(resumed);
+		this.resumed = Arrays.stream(resumed).sum();
+	}
+
+	void tileDone(int level) {
+		done.incrementAndGet(level);
+	}
+
+	void tileFailed(int level) {
+		failed.increment();
+		done.incrementAndGet(level);
+	}
+
+	void finish() {
+		endTime = System.currentTimeMillis();
+	}
+
+	/**
+	 * @return identifiers of the seeded tile data levels, never <code>null</code>
+	 */
+	public List<String> getLevels() {
+		return levels;
+	}
+
+	/**
+	 * @param level index of the level in {@link #getLevels()}
+	 * @return number of tiles to seed on the level
+	 */
+	public long getTotalTiles(int level) {
+		return totals[level];
+	}
+
+	/**
+	 * @param level index of the level in {@link #getLevels()}
+	 * @return number of tiles already seeded on the level (including failed tiles)
+	 */
+	public long getDoneTiles(int level) {
+		return done.get(level);
+	}
+
+	/**
+	 * @return number of tiles to seed on all levels
+	 */
+	public long getTotalTiles() {
+		return Arrays.stream(totals).sum();
+	}
+
+	/**
+	 * @return number of tiles already seeded on all levels (including failed tiles)
+	 */
+	public long getDoneTiles() {
+		long sum = 0;
+		for (int i = 0; i < done.length(); i++) {
+			sum += done.get(i);
+		}
+		return sum;
+	}
+
+	/**
+	 * @return number of tiles that could not be seeded
+	 */
+	public long getFailedTiles() {
+		return failed.sum();
+	}
+
+	/**
+	 * @return number of tiles seeded per second in this run (tiles seeded by a previous
+	 * run are not considered)
+	 */
+	public double getTilesPerSecond() {
+		long end = endTime < 0 ? System.currentTimeMillis() : endTime;
+		long millis = Math.max(1, end - startTime);
+		return (getDoneTiles() - resumed) * 1000.0 / millis;
+	}
+
+	/**
+	 * @return <code>true</code>, if the seeding run has ended (successfully or not)
+	 */
+	public boolean isFinished() {
+		return endTime >= 0;
+	}
+
+	@Override
+	public String toString() {
+		long total = getTotalTiles();
+		long doneTiles = getDoneTiles();
+		StringBuilder sb = new StringBuilder();
+		sb.append(doneTiles).append('/').append(total).append(" tiles");
+		sb.append(String.format(" (%.1f%%)", total == 0 ? 100.0 : doneTiles * 100.0 / total));
+		sb.append(String.format(", %.1f tiles/s", getTilesPerSecond()));
+		sb.append(", failed: ").append(getFailedTiles());
+		sb.append(", levels:");
+		for (int i = 0; i < totals.length; i++) {
+			sb.append(' ').append(levels.get(i)).append(": ").append(done.get(i)).append('/').append(totals[i]);
+		}
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,443 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.tile.seed;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.deegree.geometry.Envelope;
+import org.deegree.tile.Tile;
+import org.deegree.tile.TileDataLevel;
+import org.deegree.tile.TileDataSet;
+import org.deegree.tile.TileIOException;
+import org.deegree.tile.TileMatrix;
+import org.deegree.tile.Tiles;
+import org.deegree.tile.persistence.TileStore;
+import org.deegree.tile.persistence.TileStoreTransaction;
+import org.slf4j.Logger;
+
+/**
+ * Pre-generates the tiles of a tile data set.
+ * <p>
+ * The tiles of a range of tile matrices that intersect an envelope are retrieved from a
+ * source {@link TileStore} using a pool of worker threads and written to a target
+ * {@link TileStore} using its {@link TileStoreTransaction}. If no target is given, the
+ * tiles are only retrieved, which fills the cache of a caching tile store.
+ * </p>
+ * <p>
+ * The levels are processed one after another in the order of the tile matrix set, the
+ * tiles of a level row by row in chunks. If a checkpoint file is given, the position up
+ * to which all tiles have been seeded is stored in it regularly, so that an interrupted
+ * run continues from there when it is started again with the same parameters. The target
+ * transaction is flushed before the checkpoint is stored. If the flush fails or tiles of a
+ * level could not be seeded, the checkpoint is not advanced any further and kept after the
+ * run, so that the failed tiles are seeded again by the next run. Progress is
+ * logged regularly and available via {@link #getProgress()}.
+ * </p>
+ */
+public class TileSeeder {
+
+	private static final Logger LOG = getLogger(TileSeeder.class);
+
+	private static final int CHUNK_SIZE = 16;
+
+	private static final long REPORT_INTERVAL = 10000;
+
+	private static final long TERMINATION_TIMEOUT = 60000;
+
+	private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+	private final TileStore source;
+
+	private final TileStore target;
+
+	private final String tileDataSet;
+
+	private final Envelope envelope;
+
+	private final int minLevel;
+
+	private final int maxLevel;
+
+	private final int threads;
+
+	private final File checkpointFile;
+
+	private volatile SeedingProgress progress;
+
+	private volatile boolean checkpointFrozen;
+
+	/**
+	 * Creates a new {@link TileSeeder} instance.
+	 * @param source tile store to retrieve the tiles from, must not be <code>null</code>
+	 * @param target tile store to write the tiles to, may be <code>null</code> (tiles are
+	 * only retrieved)
+	 * @param tileDataSet identifier of the tile data set, must be available in source
+	 * (and target)
+	 * @param envelope area to seed, may be <code>null</code> (whole extent)
+	 * @param minLevel index of the first tile matrix to seed in the tile matrix set,
+	 * counting from zero
+	 * @param maxLevel index of the last tile matrix to seed in the tile matrix set,
+	 * <code>-1</code> for the last tile matrix
+	 * @param threads number of worker threads, must be positive
+	 * @param checkpointFile file to store the progress in, may be <code>null</code> (no
+	 * resuming)
+	 */
+	public TileSeeder(TileStore source, TileStore target, String tileDataSet, Envelope envelope, int minLevel,
+			int maxLevel, int threads, File checkpointFile) {
+		if (source.getTileDataSet(tileDataSet) == null) {
+			throw new IllegalArgumentException("No tile data set '" + tileDataSet + "' in source tile store.");
+		}
+		if (target != null && target.getTileDataSet(tileDataSet) == null) {
+			throw new IllegalArgumentException("No tile data set '" + tileDataSet + "' in target tile store.");
+		}
+		int numLevels = source.getTileDataSet(tileDataSet).getTileMatrixSet().getTileMatrices().size();
+		if (maxLevel < 0 || maxLevel >= numLevels) {
+			maxLevel = numLevels - 1;
+		}
+		if (minLevel < 0 || minLevel > maxLevel) {
+			throw new IllegalArgumentException("Invalid level range " + minLevel + "-" + maxLevel
+					+ ", tile matrix set of '" + tileDataSet + "' has " + numLevels + " tile matrices.");
+		}
+		if (threads < 1) {
+			throw new IllegalArgumentException("Number of threads must be positive.");
+		}
+		this.source = source;
+		this.target = target;
+		this.tileDataSet = tileDataSet;
+		this.envelope = envelope;
+		this.minLevel = minLevel;
+		this.maxLevel = maxLevel;
+		this.threads = threads;
+		this.checkpointFile = checkpointFile;
+	}
+
+	/**
+	 * @return progress of the current or last run, <code>null</code> if seeding has not
+	 * been started yet
+	 */
+	public SeedingProgress getProgress() {
+		return progress;
+	}
+
+	/**
+	 * Seeds the tiles, blocks until all tiles have been processed. Tiles that cannot be
+	 * retrieved or written are logged and counted as failed, the checkpoint is kept then.
+	 * @return the progress of the completed run, never <code>null</code>
+	 * @throws InterruptedException if the calling thread has been interrupted, the
+	 * checkpoint contains the position to resume from, the worker threads have been
+	 * stopped
+	 */
+	public SeedingProgress seed() throws InterruptedException {
+		TileDataSet dataSet = source.getTileDataSet(tileDataSet);
+		List<TileMatrix> matrices = dataSet.getTileMatrixSet().getTileMatrices().subList(minLevel, maxLevel + 1);
+		int numLevels = matrices.size();
+		List<String> ids = new ArrayList<String>(numLevels);
+		List<TileDataLevel> levels = new ArrayList<TileDataLevel>(numLevels);
+		long[][] ranges = new long[numLevels][];
+		long[] totals = new long[numLevels];
+		for (int i = 0; i < numLevels; i++) {
+			TileMatrix matrix = matrices.get(i);
+			TileDataLevel level = dataSet.getTileDataLevel(matrix.getIdentifier());
+			ids.add(matrix.getIdentifier());
+			levels.add(level);
+			if (level == null) {
+				// no data available for this tile matrix
+				continue;
+			}
+			Envelope env = envelope == null ? matrix.getSpatialMetadata().getEnvelope() : envelope;
+			ranges[i] = Tiles.getTileIndexRange(level, env);
+			if (ranges[i] != null) {
+				totals[i] = (ranges[i][2] - ranges[i][0] + 1) * (ranges[i][3] - ranges[i][1] + 1);
+			}
+		}
+
+		SeedingCheckpoint checkpoint = new SeedingCheckpoint(checkpointFile, getParameters());
+		long[] position = checkpoint.load();
+		int startLevel = 0;
+		long startTile = 0;
+		long[] resumed = new long[numLevels];
+		if (position != null) {
+			startLevel = (int) Math.min(position[0], numLevels);
+			startTile = startLevel < numLevels ? Math.min(position[1], totals[startLevel]) : 0;
+			for (int i = 0; i < startLevel; i++) {
+				resumed[i] = totals[i];
+			}
+			if (startLevel < numLevels) {
+				resumed[startLevel] = startTile;
+			}
+			LOG.info("Resuming seeding of tile data set '{}' at level {}, tile {}.", tileDataSet,
+					startLevel < numLevels ? ids.get(startLevel) : "-", startTile);
+		}
+		progress = new SeedingProgress(ids, totals, resumed);
+		checkpointFrozen = false;
+
+		TileStoreTransaction ta = target == null ? null : target.acquireTransaction(tileDataSet);
+		ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "tile-seeder-" + POOL_NUMBER.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+		try {
+			for (int i = startLevel; i < numLevels; i++) {
+				if (ranges[i] != null) {
+					seedLevel(executor, ta, i, levels.get(i), ranges[i], i == startLevel ? startTile : 0, checkpoint);
+				}
+				saveCheckpoint(ta, checkpoint, i + 1, 0);
+				LOG.info("Seeded level {} of tile data set '{}': {}", ids.get(i), tileDataSet, progress);
+			}
+			if (checkpointFrozen) {
+				LOG.warn("Finished seeding tile data set '{}', but not all tiles have been seeded, the checkpoint "
+						+ "has been kept to seed them again: {}", tileDataSet, progress);
+			}
+			else {
+				checkpoint.delete();
+				LOG.info("Finished seeding tile data set '{}': {}", tileDataSet, progress);
+			}
+			return progress;
+		}
+		finally {
+			executor.shutdownNow();
+			awaitTermination(executor);
+			progress.finish();
+		}
+	}
+
+	/**
+	 * Waits for the workers to stop after their current tile, so that no tile is written
+	 * after {@link #seed()} returned, e.g. to a tile store that is destroyed then.
+	 */
+	private void awaitTermination(ExecutorService executor) {
+		try {
+			if (!executor.awaitTermination(TERMINATION_TIMEOUT, MILLISECONDS)) {
+				LOG.warn("Seeding threads of tile data set '{}' did not stop in time.", tileDataSet);
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void seedLevel(ExecutorService executor, TileStoreTransaction ta, int levelIndex, TileDataLevel level,
+			long[] range, long startTile, SeedingCheckpoint checkpoint) throws InterruptedException {
+		long width = range[2] - range[0] + 1;
+		long total = width * (range[3] - range[1] + 1);
+		long firstChunk = startTile / CHUNK_SIZE;
+		long numChunks = (total + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		int maxPending = threads * 4;
+		Semaphore pending = new Semaphore(maxPending);
+		ChunkTracker tracker = new ChunkTracker(firstChunk);
+		long lastReport = System.currentTimeMillis();
+		try {
+			for (long chunk = firstChunk; chunk < numChunks; chunk++) {
+				while (!pending.tryAcquire(REPORT_INTERVAL, MILLISECONDS)) {
+					lastReport = report(ta, levelIndex, tracker, total, checkpoint);
+				}
+				long first = chunk * CHUNK_SIZE;
+				long last = Math.min(total, first + CHUNK_SIZE);
+				long currentChunk = chunk;
+				executor.execute(() -> {
+					boolean failed = false;
+					try {
+						for (long t = first; t < last; t++) {
+							if (Thread.currentThread().isInterrupted()) {
+								return;
+							}
+							if (!seedTile(ta, levelIndex, level, range[0] + t % width, range[1] + t / width)) {
+								failed = true;
+							}
+						}
+						if (failed) {
+							// keeps the checkpoint before this chunk
+							tracker.fail();
+						}
+						else {
+							tracker.complete(currentChunk);
+						}
+					}
+					finally {
+						pending.release();
+					}
+				});
+				if (System.currentTimeMillis() - lastReport > REPORT_INTERVAL) {
+					lastReport = report(ta, levelIndex, tracker, total, checkpoint);
+				}
+			}
+			while (!pending.tryAcquire(maxPending, REPORT_INTERVAL, MILLISECONDS)) {
+				report(ta, levelIndex, tracker, total, checkpoint);
+			}
+			pending.release(maxPending);
+			if (tracker.hasFailed()) {
+				long seeded = Math.min(total, tracker.getCompleted() * CHUNK_SIZE);
+				saveCheckpoint(ta, checkpoint, levelIndex, seeded);
+				checkpointFrozen = true;
+				LOG.warn("Not all tiles of level {} of tile data set '{}' have been seeded, the checkpoint is kept at "
+						+ "tile {} of this level.", level.getMetadata().getIdentifier(), tileDataSet, seeded);
+			}
+		}
+		catch (InterruptedException e) {
+			saveCheckpoint(ta, checkpoint, levelIndex, Math.min(total, tracker.getCompleted() * CHUNK_SIZE));
+			LOG.info("Seeding of tile data set '{}' interrupted: {}", tileDataSet, progress);
+			throw e;
+		}
+	}
+
+	private long report(TileStoreTransaction ta, int levelIndex, ChunkTracker tracker, long total,
+			SeedingCheckpoint checkpoint) {
+		saveCheckpoint(ta, checkpoint, levelIndex, Math.min(total, tracker.getCompleted() * CHUNK_SIZE));
+		LOG.info("Seeding tile data set '{}': {}", tileDataSet, progress);
+		return System.currentTimeMillis();
+	}
+
+	/**
+	 * Stores the position in the checkpoint after flushing the tiles written so far. The
+	 * position has to be determined before, so all tiles up to it have been put.
+	 */
+	private void saveCheckpoint(TileStoreTransaction ta, SeedingCheckpoint checkpoint, int levelIndex, long tile) {
+		if (ta != null) {
+			try {
+				ta.flush();
+			}
+			catch (TileIOException e) {
+				checkpointFrozen = true;
+				LOG.error("Unable to store seeded tiles of tile data set '{}', the checkpoint is not advanced any "
+						+ "further: {}", tileDataSet, e.getMessage());
+				LOG.trace("Stack trace:", e);
+			}
+		}
+		if (!checkpointFrozen) {
+			checkpoint.save(levelIndex, tile);
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the tile has been seeded, <code>false</code> if it failed
+	 */
+	private boolean seedTile(TileStoreTransaction ta, int levelIndex, TileDataLevel level, long x, long y) {
+		String id = level.getMetadata().getIdentifier();
+		try {
+			Tile tile = level.getTile(x, y);
+			if (tile != null) {
+				if (ta != null) {
+					ta.put(id, tile, x, y);
+				}
+				else {
+					try (InputStream is = tile.getAsStream()) {
+						if (is != null) {
+							is.transferTo(OutputStream.nullOutputStream());
+						}
+					}
+				}
+			}
+			progress.tileDone(levelIndex);
+			return true;
+		}
+		catch (IOException | RuntimeException e) {
+			progress.tileFailed(levelIndex);
+			LOG.warn("Unable to seed tile {}/{}/{}: {}", id, x, y, e.getMessage());
+			LOG.trace("Stack trace:", e);
+			return false;
+		}
+	}
+
+	private String getParameters() {
+		StringBuilder sb = new StringBuilder(tileDataSet);
+		sb.append(';').append(minLevel).append('-').append(maxLevel);
+		if (envelope != null) {
+			sb.append(';').append(envelope.getMin().get0()).append(',').append(envelope.getMin().get1());
+			sb.append(',').append(envelope.getMax().get0()).append(',').append(envelope.getMax().get1());
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Keeps track of the completed chunks of a level, which may complete out of order.
+	 * Chunks with failed tiles are never completed.
+	 */
+	private static class ChunkTracker {
+
+		private final BitSet completed = new BitSet();
+
+		private long base;
+
+		private boolean failed;
+
+		ChunkTracker(long base) {
+			this.base = base;
+		}
+
+		synchronized void complete(long chunk) {
+			completed.set((int) (chunk - base));
+			int next = completed.nextClearBit(0);
+			if (next > 0) {
+				base += next;
+				// shift remaining bits
+				BitSet rest = completed.get(next, Math.max(next, completed.length()));
+				completed.clear();
+				completed.or(rest);
+			}
+		}
+
+		synchronized void fail() {
+			failed = true;
+		}
+
+		synchronized boolean hasFailed() {
+			return failed;
+		}
+
+		/**
+		 * @return number of chunks from the start of the level that have all been
+		 * completed
+		 */
+		synchronized long getCompleted() {
+			return base;
+		}
+
+	}
+
+}
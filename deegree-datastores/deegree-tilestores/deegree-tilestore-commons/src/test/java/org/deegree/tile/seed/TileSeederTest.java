@@ -0,0 +1,326 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.tile.seed;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.deegree.feature.FeatureCollection;
+import org.deegree.geometry.Envelope;
+import org.deegree.geometry.GeometryFactory;
+import org.deegree.geometry.metadata.SpatialMetadata;
+import org.deegree.tile.DefaultTileDataSet;
+import org.deegree.tile.Tile;
+import org.deegree.tile.TileDataLevel;
+import org.deegree.tile.TileDataSet;
+import org.deegree.tile.TileIOException;
+import org.deegree.tile.TileMatrix;
+import org.deegree.tile.TileMatrixSet;
+import org.deegree.tile.persistence.AbstractTileStoreTransaction;
+import org.deegree.tile.persistence.TileStore;
+import org.deegree.tile.persistence.TileStoreTransaction;
+import org.deegree.workspace.Resource;
+import org.deegree.workspace.ResourceMetadata;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link TileSeeder}.
+ */
+public class TileSeederTest {
+
+	private static final GeometryFactory FAC = new GeometryFactory();
+
+	private MemoryTileStore source;
+
+	private MemoryTileStore target;
+
+	@Before
+	public void setup() {
+		source = new MemoryTileStore();
+		target = new MemoryTileStore();
+	}
+
+	@Test
+	public void testSeedAllLevels() throws InterruptedException {
+		SeedingProgress progress = new TileSeeder(source, target, "tms", null, 0, -1, 4, null).seed();
+
+		assertEquals(1 + 4 + 16 + 64, target.tiles.size());
+		assertEquals(85, progress.getTotalTiles());
+		assertEquals(85, progress.getDoneTiles());
+		assertEquals(0, progress.getFailedTiles());
+		assertTrue(progress.isFinished());
+		assertTrue(target.tiles.contains("3/7/7"));
+		assertTrue(target.flushes.get() >= 4);
+	}
+
+	@Test
+	public void testSeedEnvelopeAndLevelRange() throws InterruptedException {
+		Envelope env = FAC.createEnvelope(1, 1, 39, 39, null);
+		SeedingProgress progress = new TileSeeder(source, target, "tms", env, 2, 3, 2, null).seed();
+
+		// lower left part of the two finest levels
+		assertEquals(progress.getTotalTiles(), target.tiles.size());
+		assertFalse(target.tiles.contains("0/0/0"));
+		assertFalse(target.tiles.contains("1/0/1"));
+		assertTrue(target.tiles.contains("2/0/3"));
+		assertTrue(target.tiles.contains("3/0/7"));
+		assertFalse(target.tiles.contains("3/4/0"));
+		assertFalse(target.tiles.contains("3/7/7"));
+	}
+
+	@Test
+	public void testFailedTilesAreCounted() throws InterruptedException {
+		source.failing = true;
+		SeedingProgress progress = new TileSeeder(source, null, "tms", null, 0, 1, 2, null).seed();
+
+		assertEquals(5, progress.getDoneTiles());
+		assertEquals(5, progress.getFailedTiles());
+	}
+
+	@Test
+	public void testFailedTilesAreSeededAgain() throws InterruptedException, IOException {
+		File file = File.createTempFile("seeding", ".properties");
+		try {
+			source.failing = true;
+			new TileSeeder(source, target, "tms", null, 0, -1, 2, file).seed();
+
+			assertTrue(file.exists());
+			long[] position = new SeedingCheckpoint(file, "tms;0-3").load();
+			assertEquals(0, position[0]);
+			assertEquals(0, position[1]);
+
+			source.failing = false;
+			SeedingProgress progress = new TileSeeder(source, target, "tms", null, 0, -1, 2, file).seed();
+			assertEquals(0, progress.getFailedTiles());
+			assertEquals(85, target.tiles.size());
+			assertFalse(file.exists());
+		}
+		finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testResumeFromCheckpoint() throws InterruptedException, IOException {
+		File file = File.createTempFile("seeding", ".properties");
+		try {
+			new SeedingCheckpoint(file, "tms;0-3").save(3, 32);
+			SeedingProgress progress = new TileSeeder(source, target, "tms", null, 0, -1, 2, file).seed();
+
+			assertEquals(32, target.tiles.size());
+			assertFalse(target.tiles.contains("3/0/0"));
+			assertTrue(target.tiles.contains("3/7/7"));
+			assertEquals(85, progress.getDoneTiles());
+			assertFalse(file.exists());
+		}
+		finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testCheckpointIsKeptIfFlushFails() throws InterruptedException, IOException {
+		File file = File.createTempFile("seeding", ".properties");
+		try {
+			new SeedingCheckpoint(file, "tms;0-3").save(1, 0);
+			target.failingFlush = true;
+			new TileSeeder(source, target, "tms", null, 0, -1, 2, file).seed();
+
+			assertTrue(file.exists());
+			assertEquals(1, new SeedingCheckpoint(file, "tms;0-3").load()[0]);
+		}
+		finally {
+			file.delete();
+		}
+	}
+
+	private static class MemoryTileStore implements TileStore {
+
+		private final Set<String> tiles = ConcurrentHashMap.newKeySet();
+
+		private final AtomicInteger flushes = new AtomicInteger();
+
+		private volatile boolean failingFlush;
+
+		private final TileDataSet dataSet;
+
+		private volatile boolean failing;
+
+		MemoryTileStore() {
+			Envelope env = FAC.createEnvelope(0, 0, 80, 80, null);
+			SpatialMetadata smd = new SpatialMetadata(env, Collections.emptyList());
+			List<TileMatrix> matrices = new ArrayList<TileMatrix>();
+			List<TileDataLevel> levels = new ArrayList<TileDataLevel>();
+			for (int i = 0; i < 4; i++) {
+				long num = 1L << i;
+				TileMatrix matrix = new TileMatrix(Integer.toString(i), smd, 256, 256, 80.0 / num / 256, num, num);
+				matrices.add(matrix);
+				levels.add(new MemoryTileDataLevel(matrix));
+			}
+			TileMatrixSet tms = new TileMatrixSet("tms", null, matrices, smd, null);
+			dataSet = new DefaultTileDataSet(levels, tms, "image/png");
+		}
+
+		@Override
+		public TileDataSet getTileDataSet(String id) {
+			return "tms".equals(id) ? dataSet : null;
+		}
+
+		@Override
+		public Collection<String> getTileDataSetIds() {
+			return Collections.singleton("tms");
+		}
+
+		@Override
+		public Iterator<Tile> getTiles(String id, Envelope envelope, double resolution) {
+			return dataSet.getTiles(envelope, resolution);
+		}
+
+		@Override
+		public Tile getTile(String id, String level, int x, int y) {
+			return dataSet.getTileDataLevel(level).getTile(x, y);
+		}
+
+		@Override
+		public TileStoreTransaction acquireTransaction(String id) {
+			return new AbstractTileStoreTransaction(this, id) {
+
+				@Override
+				public void put(String level, Tile tile, long x, long y) {
+					tile.getAsStream();
+					tiles.add(level + "/" + x + "/" + y);
+				}
+
+				@Override
+				public void delete(String level, long x, long y) {
+					tiles.remove(level + "/" + x + "/" + y);
+				}
+
+				@Override
+				public void flush() {
+					flushes.incrementAndGet();
+					if (failingFlush) {
+						throw new TileIOException("failing");
+					}
+				}
+			};
+		}
+
+		@Override
+		public ResourceMetadata<? extends Resource> getMetadata() {
+			return null;
+		}
+
+		@Override
+		public void init() {
+			// nothing to do
+		}
+
+		@Override
+		public void destroy() {
+			// nothing to do
+		}
+
+		private class MemoryTileDataLevel implements TileDataLevel {
+
+			private final TileMatrix matrix;
+
+			MemoryTileDataLevel(TileMatrix matrix) {
+				this.matrix = matrix;
+			}
+
+			@Override
+			public TileMatrix getMetadata() {
+				return matrix;
+			}
+
+			@Override
+			public Tile getTile(long x, long y) {
+				return new MemoryTile();
+			}
+
+			@Override
+			public List<String> getStyles() {
+				return null;
+			}
+
+		}
+
+		private class MemoryTile implements Tile {
+
+			@Override
+			public BufferedImage getAsImage() {
+				return null;
+			}
+
+			@Override
+			public InputStream getAsStream() {
+				if (failing) {
+					throw new TileIOException("failing");
+				}
+				return new ByteArrayInputStream(new byte[] { 1, 2, 3 });
+			}
+
+			@Override
+			public Envelope getEnvelope() {
+				return null;
+			}
+
+			@Override
+			public FeatureCollection getFeatures(int i, int j, int limit) {
+				return null;
+			}
+
+		}
+
+	}
+
+}
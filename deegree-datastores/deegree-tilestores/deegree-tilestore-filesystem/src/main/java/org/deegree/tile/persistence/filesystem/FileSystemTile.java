@@ -61,15 +61,19 @@ class FileSystemTile implements Tile {
 
 	private final File file;
 
+	private final String format;
+
 	/**
 	 * Creates a new {@link FileSystemTile} instance.
 	 * @param bbox envelope of the tile, must not be <code>null</code>
 	 * @param file image file, must not be <code>null</code> and point to an existing
 	 * image file
+	 * @param format mime type of the image file, can be <code>null</code> (unknown)
 	 */
-	FileSystemTile(Envelope bbox, File file) {
+	FileSystemTile(Envelope bbox, File file, String format) {
 		this.bbox = bbox;
 		this.file = file;
+		this.format = format;
 	}
 
 	@Override
@@ -97,6 +101,30 @@ class FileSystemTile implements Tile {
 		}
 	}
 
+	@Override
+	public String getEncodedFormat() {
+		return format;
+	}
+
+	/**
+	 * Derived from the modification time and the size of the file, so the file is not
+	 * read.
+	 */
+	@Override
+	public String getVersion() {
+		long lastModified = file.lastModified();
+		if (lastModified == 0) {
+			return null;
+		}
+		return Long.toHexString(lastModified) + "-" + Long.toHexString(file.length());
+	}
+
+	@Override
+	public long getLastModified() {
+		long lastModified = file.lastModified();
+		return lastModified == 0 ? -1 : lastModified;
+	}
+
 	@Override
 	public Envelope getEnvelope() {
 		return bbox;
@@ -114,7 +114,7 @@ class FileSystemTileDataLevel implements TileDataLevel {
 		Envelope bbox = calcTileEnvelope(metadata, x, y);
 		File file = layout.resolve(metadata.getIdentifier(), x, y);
 		checkBase(x, y, file);
-		return new FileSystemTile(bbox, file);
+		return new FileSystemTile(bbox, file, "image/" + layout.getFileType());
 	}
 
 	public DiskLayout getLayout() {
@@ -135,6 +135,11 @@ class GdalTile implements Tile {
 		return new ByteArrayInputStream(bos.toByteArray());
 	}
 
+	@Override
+	public String getEncodedFormat() {
+		return imageFormat.startsWith("image/") ? imageFormat : "image/" + imageFormat;
+	}
+
 	@Override
 	public Envelope getEnvelope() {
 		return tileEnvelope;
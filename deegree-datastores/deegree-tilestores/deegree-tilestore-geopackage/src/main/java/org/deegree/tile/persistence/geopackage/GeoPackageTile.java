@@ -0,0 +1,116 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.tile.persistence.geopackage;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.imageio.ImageIO;
+
+import org.deegree.feature.FeatureCollection;
+import org.deegree.geometry.Envelope;
+import org.deegree.tile.Tile;
+import org.deegree.tile.TileIOException;
+
+/**
+ * A {@link Tile} that is backed by a {@link GeoPackageTileStore}. The tile data is
+ * fetched when it is accessed.
+ */
+class GeoPackageTile implements Tile {
+
+	private final TileDatabase db;
+
+	private final int zoom;
+
+	private final long x;
+
+	private final long y;
+
+	private final Envelope bbox;
+
+	/**
+	 * Creates a new {@link GeoPackageTile} instance.
+	 * @param db tile database, must not be <code>null</code>
+	 * @param zoom index of the tile matrix in the tile matrix set
+	 * @param x column index of the tile
+	 * @param y row index of the tile
+	 * @param bbox envelope of the tile, must not be <code>null</code>
+	 */
+	GeoPackageTile(TileDatabase db, int zoom, long x, long y, Envelope bbox) {
+		this.db = db;
+		this.zoom = zoom;
+		this.x = x;
+		this.y = y;
+		this.bbox = bbox;
+	}
+
+	@Override
+	public BufferedImage getAsImage() throws TileIOException {
+		try {
+			return ImageIO.read(getAsStream());
+		}
+		catch (IOException e) {
+			throw new TileIOException("Error decoding tile " + zoom + "/" + x + "/" + y + ": " + e.getMessage(), e);
+		}
+	}
+
+	@Override
+	public InputStream getAsStream() throws TileIOException {
+		byte[] data = db.getTile(zoom, x, y);
+		if (data == null) {
+			throw new TileIOException(
+					"Tile " + zoom + "/" + x + "/" + y + " does not exist in '" + db.getFile() + "'.");
+		}
+		return new ByteArrayInputStream(data);
+	}
+
+	@Override
+	public String getEncodedFormat() {
+		return db.getFormat();
+	}
+
+	@Override
+	public Envelope getEnvelope() {
+		return bbox;
+	}
+
+	@Override
+	public FeatureCollection getFeatures(int i, int j, int limit) throws UnsupportedOperationException {
+		throw new UnsupportedOperationException("Feature retrieval is not supported by the GeoPackageTileStore.");
+	}
+
+}
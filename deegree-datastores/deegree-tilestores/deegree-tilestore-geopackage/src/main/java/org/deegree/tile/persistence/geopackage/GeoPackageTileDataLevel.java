@@ -0,0 +1,94 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.tile.persistence.geopackage;
+
+import static org.deegree.tile.Tiles.calcTileEnvelope;
+
+import java.util.List;
+
+import org.deegree.tile.Tile;
+import org.deegree.tile.TileDataLevel;
+import org.deegree.tile.TileMatrix;
+
+/**
+ * {@link TileDataLevel} implementation for the {@link GeoPackageTileStore}.
+ */
+class GeoPackageTileDataLevel implements TileDataLevel {
+
+	private final TileMatrix metadata;
+
+	private final TileDatabase db;
+
+	private final int zoom;
+
+	/**
+	 * Creates a new {@link GeoPackageTileDataLevel} instance.
+	 * @param metadata tile matrix of the level, must not be <code>null</code>
+	 * @param db tile database, must not be <code>null</code>
+	 * @param zoom index of the tile matrix in the tile matrix set
+	 */
+	GeoPackageTileDataLevel(TileMatrix metadata, TileDatabase db, int zoom) {
+		this.metadata = metadata;
+		this.db = db;
+		this.zoom = zoom;
+	}
+
+	@Override
+	public TileMatrix getMetadata() {
+		return metadata;
+	}
+
+	@Override
+	public Tile getTile(long x, long y) {
+		if (metadata.getNumTilesX() <= x || metadata.getNumTilesY() <= y || x < 0 || y < 0) {
+			return null;
+		}
+		return new GeoPackageTile(db, zoom, x, y, calcTileEnvelope(metadata, x, y));
+	}
+
+	@Override
+	public List<String> getStyles() {
+		return null;
+	}
+
+	TileDatabase getDatabase() {
+		return db;
+	}
+
+	int getZoom() {
+		return zoom;
+	}
+
+}
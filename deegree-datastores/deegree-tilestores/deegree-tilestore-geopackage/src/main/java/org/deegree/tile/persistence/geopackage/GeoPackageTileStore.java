@@ -0,0 +1,80 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.tile.persistence.geopackage;
+
+import java.util.List;
+import java.util.Map;
+
+import org.deegree.tile.TileDataSet;
+import org.deegree.tile.persistence.GenericTileStore;
+import org.deegree.tile.persistence.TileStore;
+import org.deegree.tile.persistence.TileStoreTransaction;
+import org.deegree.workspace.ResourceMetadata;
+
+/**
+ * {@link TileStore} that stores the tiles of each tile data set in a single GeoPackage or
+ * MBTiles file.
+ */
+public class GeoPackageTileStore extends GenericTileStore {
+
+	private final List<TileDatabase> databases;
+
+	/**
+	 * Creates a new {@link GeoPackageTileStore} instance.
+	 * @param tileDataSets the tile data sets to serve, must not be <code>null</code>
+	 * @param databases the databases used by the tile data sets, must not be
+	 * <code>null</code>
+	 * @param metadata resource metadata for this tile store, may not be <code>null</code>
+	 * if managed by workspace
+	 */
+	GeoPackageTileStore(Map<String, TileDataSet> tileDataSets, List<TileDatabase> databases,
+			ResourceMetadata<TileStore> metadata) {
+		super(tileDataSets, metadata);
+		this.databases = databases;
+	}
+
+	@Override
+	public TileStoreTransaction acquireTransaction(String id) {
+		return new GeoPackageTileStoreTransaction(id, this);
+	}
+
+	@Override
+	public void destroy() {
+		for (TileDatabase db : databases) {
+			db.close();
+		}
+	}
+
+}
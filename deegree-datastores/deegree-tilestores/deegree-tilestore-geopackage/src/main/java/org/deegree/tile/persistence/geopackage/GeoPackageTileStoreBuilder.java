@@ -0,0 +1,129 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.tile.persistence.geopackage;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FilenameUtils;
+import org.deegree.tile.DefaultTileDataSet;
+import org.deegree.tile.TileDataLevel;
+import org.deegree.tile.TileDataSet;
+import org.deegree.tile.TileMatrixSet;
+import org.deegree.tile.persistence.TileStore;
+import org.deegree.tile.persistence.geopackage.jaxb.GeoPackageTileStoreJAXB;
+import org.deegree.tile.tilematrixset.TileMatrixSetProvider;
+import org.deegree.workspace.ResourceBuilder;
+import org.deegree.workspace.ResourceInitException;
+import org.deegree.workspace.ResourceMetadata;
+import org.deegree.workspace.Workspace;
+import org.slf4j.Logger;
+
+/**
+ * This class is responsible for building GeoPackage/MBTiles tile stores.
+ */
+public class GeoPackageTileStoreBuilder implements ResourceBuilder<TileStore> {
+
+	private static final Logger LOG = getLogger(GeoPackageTileStoreBuilder.class);
+
+	private static final int DEFAULT_MAX_READ_CONNECTIONS = 8;
+
+	private GeoPackageTileStoreJAXB config;
+
+	private ResourceMetadata<TileStore> metadata;
+
+	private Workspace workspace;
+
+	public GeoPackageTileStoreBuilder(GeoPackageTileStoreJAXB config, ResourceMetadata<TileStore> metadata,
+			Workspace workspace) {
+		this.config = config;
+		this.metadata = metadata;
+		this.workspace = workspace;
+	}
+
+	@Override
+	public TileStore build() {
+		List<TileDatabase> databases = new ArrayList<TileDatabase>();
+		try {
+			int maxReadConnections = config.getMaxReadConnections() == null ? DEFAULT_MAX_READ_CONNECTIONS
+					: config.getMaxReadConnections();
+			Map<String, TileDataSet> map = new HashMap<String, TileDataSet>();
+
+			for (GeoPackageTileStoreJAXB.TileDataSet tds : config.getTileDataSet()) {
+				File file = new File(tds.getFile());
+				if (!file.isAbsolute()) {
+					file = metadata.getLocation().resolveToFile(tds.getFile());
+				}
+				TileContainer container = TileContainer.fromFileName(file.getName());
+
+				String id = tds.getIdentifier();
+				if (id == null) {
+					id = tds.getTableName() != null ? tds.getTableName() : FilenameUtils.getBaseName(file.getName());
+				}
+				String table = tds.getTableName();
+				if (table == null) {
+					table = id.replaceAll("\\W", "_");
+				}
+				String format = tds.getImageFormat() == null ? "image/png" : tds.getImageFormat();
+
+				TileMatrixSet tms = workspace.getResource(TileMatrixSetProvider.class, tds.getTileMatrixSetId());
+				TileDatabase db = new TileDatabase(file, container, table, tms, format, maxReadConnections);
+				databases.add(db);
+
+				List<TileDataLevel> list = new ArrayList<TileDataLevel>(tms.getTileMatrices().size());
+				for (int zoom = 0; zoom < tms.getTileMatrices().size(); zoom++) {
+					list.add(new GeoPackageTileDataLevel(tms.getTileMatrices().get(zoom), db, zoom));
+				}
+				map.put(id, new DefaultTileDataSet(list, tms, format));
+			}
+
+			return new GeoPackageTileStore(map, databases, metadata);
+		}
+		catch (Exception e) {
+			for (TileDatabase db : databases) {
+				db.close();
+			}
+			String msg = "Unable to create GeoPackageTileStore: " + e.getMessage();
+			LOG.error(msg);
+			throw new ResourceInitException(msg, e);
+		}
+	}
+
+}
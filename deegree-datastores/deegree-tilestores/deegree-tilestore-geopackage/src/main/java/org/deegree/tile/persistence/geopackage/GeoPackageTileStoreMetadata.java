@@ -0,0 +1,87 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.tile.persistence.geopackage;
+
+import static org.deegree.commons.xml.jaxb.JAXBUtils.unmarshall;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import org.deegree.tile.TileMatrixSet;
+import org.deegree.tile.persistence.TileStore;
+import org.deegree.tile.persistence.geopackage.jaxb.GeoPackageTileStoreJAXB;
+import org.deegree.tile.tilematrixset.TileMatrixSetProvider;
+import org.deegree.workspace.ResourceBuilder;
+import org.deegree.workspace.ResourceInitException;
+import org.deegree.workspace.ResourceLocation;
+import org.deegree.workspace.Workspace;
+import org.deegree.workspace.standard.AbstractResourceMetadata;
+import org.deegree.workspace.standard.AbstractResourceProvider;
+import org.deegree.workspace.standard.DefaultResourceIdentifier;
+import org.slf4j.Logger;
+
+/**
+ * Resource metadata implementation for GeoPackage/MBTiles tile stores.
+ */
+public class GeoPackageTileStoreMetadata extends AbstractResourceMetadata<TileStore> {
+
+	private static final Logger LOG = getLogger(GeoPackageTileStoreMetadata.class);
+
+	private static final String JAXB_PACKAGE = "org.deegree.tile.persistence.geopackage.jaxb";
+
+	public GeoPackageTileStoreMetadata(Workspace workspace, ResourceLocation<TileStore> location,
+			AbstractResourceProvider<TileStore> provider) {
+		super(workspace, location, provider);
+	}
+
+	@Override
+	public ResourceBuilder<TileStore> prepare() {
+		try {
+			GeoPackageTileStoreJAXB config = (GeoPackageTileStoreJAXB) unmarshall(JAXB_PACKAGE, provider.getSchema(),
+					location.getAsStream(), workspace);
+
+			for (GeoPackageTileStoreJAXB.TileDataSet tds : config.getTileDataSet()) {
+				String tmsId = tds.getTileMatrixSetId();
+				dependencies.add(new DefaultResourceIdentifier<TileMatrixSet>(TileMatrixSetProvider.class, tmsId));
+			}
+
+			return new GeoPackageTileStoreBuilder(config, this, workspace);
+		}
+		catch (Exception e) {
+			String msg = "Unable to prepare GeoPackageTileStore: " + e.getMessage();
+			LOG.error(msg);
+			throw new ResourceInitException(msg, e);
+		}
+	}
+
+}
@@ -0,0 +1,135 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.tile.persistence.geopackage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.commons.io.IOUtils;
+import org.deegree.geometry.Envelope;
+import org.deegree.tile.Tile;
+import org.deegree.tile.TileDataLevel;
+import org.deegree.tile.TileIOException;
+import org.deegree.tile.Tiles;
+import org.deegree.tile.persistence.AbstractTileStoreTransaction;
+
+/**
+ * {@link org.deegree.tile.persistence.TileStoreTransaction} for the
+ * {@link GeoPackageTileStore}. Tiles are stored with the encoding delivered by
+ * {@link Tile#getAsStream()}, without decoding and re-encoding the image. Puts are
+ * committed in batches, they are only guaranteed to be stored after {@link #flush()}.
+ */
+class GeoPackageTileStoreTransaction extends AbstractTileStoreTransaction {
+
+	/**
+	 * Creates a new {@link GeoPackageTileStoreTransaction}.
+	 * @param id id of the tile data set, must not be <code>null</code>
+	 * @param store tile store, must not be <code>null</code>
+	 */
+	GeoPackageTileStoreTransaction(String id, GeoPackageTileStore store) {
+		super(store, id);
+	}
+
+	@Override
+	public void put(String matrixId, Tile tile, long x, long y) throws TileIOException {
+		GeoPackageTileDataLevel level = getLevel(matrixId);
+		byte[] data;
+		try (InputStream in = tile.getAsStream()) {
+			if (in == null) {
+				throw new TileIOException("Tile yielded no data.");
+			}
+			data = IOUtils.toByteArray(in);
+		}
+		catch (IOException e) {
+			throw new TileIOException("Error retrieving image: " + e.getMessage(), e);
+		}
+		level.getDatabase().putTile(level.getZoom(), x, y, data);
+	}
+
+	@Override
+	public void delete(String matrixId, long x, long y) throws TileIOException {
+		GeoPackageTileDataLevel level = getLevel(matrixId);
+		level.getDatabase().deleteTile(level.getZoom(), x, y);
+	}
+
+	@Override
+	public void delete(String matrixId, Envelope env) throws TileIOException {
+		if (matrixId == null) {
+			for (TileDataLevel level : store.getTileDataSet(tileMatrixSet).getTileDataLevels()) {
+				delete((GeoPackageTileDataLevel) level, env);
+			}
+		}
+		else {
+			delete(getLevel(matrixId), env);
+		}
+	}
+
+	@Override
+	public void flush() throws TileIOException {
+		Set<TileDatabase> databases = new HashSet<TileDatabase>();
+		for (TileDataLevel level : store.getTileDataSet(tileMatrixSet).getTileDataLevels()) {
+			TileDatabase db = ((GeoPackageTileDataLevel) level).getDatabase();
+			if (databases.add(db)) {
+				db.commit();
+			}
+		}
+	}
+
+	private void delete(GeoPackageTileDataLevel level, Envelope env) throws TileIOException {
+		long[] range;
+		if (env == null) {
+			range = new long[] { 0, 0, level.getMetadata().getNumTilesX() - 1, level.getMetadata().getNumTilesY() - 1 };
+		}
+		else {
+			range = Tiles.getTileIndexRange(level, env);
+			if (range == null) {
+				return;
+			}
+		}
+		// one ranged statement instead of one statement per tile
+		level.getDatabase().deleteTiles(level.getZoom(), range[0], range[1], range[2], range[3]);
+	}
+
+	private GeoPackageTileDataLevel getLevel(String matrixId) throws TileIOException {
+		TileDataLevel level = store.getTileDataSet(tileMatrixSet).getTileDataLevel(matrixId);
+		if (level == null) {
+			throw new TileIOException("No tile matrix '" + matrixId + "' in tile data set '" + tileMatrixSet + "'.");
+		}
+		return (GeoPackageTileDataLevel) level;
+	}
+
+}
@@ -0,0 +1,63 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.tile.persistence.geopackage;
+
+/**
+ * The SQLite based tile containers supported by the {@link GeoPackageTileStore}.
+ */
+enum TileContainer {
+
+	/**
+	 * OGC GeoPackage, tile rows are counted from the top.
+	 */
+	GEOPACKAGE,
+
+	/**
+	 * MBTiles, the tiles are stored in the <code>tiles</code> table and tile rows are
+	 * counted from the bottom.
+	 */
+	MBTILES;
+
+	/**
+	 * Determines the container type from the file name, <code>.mbtiles</code> files are
+	 * MBTiles, everything else is treated as a GeoPackage.
+	 * @param fileName name of the file, must not be <code>null</code>
+	 * @return the container type, never <code>null</code>
+	 */
+	static TileContainer fromFileName(String fileName) {
+		return fileName.toLowerCase().endsWith(".mbtiles") ? MBTILES : GEOPACKAGE;
+	}
+
+}
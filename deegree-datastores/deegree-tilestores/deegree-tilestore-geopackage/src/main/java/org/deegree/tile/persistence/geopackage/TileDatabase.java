@@ -0,0 +1,625 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.tile.persistence.geopackage;
+
+import static org.deegree.tile.persistence.geopackage.TileContainer.MBTILES;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.apache.commons.pool2.BasePooledObjectFactory;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.deegree.cs.CRSCodeType;
+import org.deegree.cs.coordinatesystems.ICRS;
+import org.deegree.geometry.Envelope;
+import org.deegree.tile.TileIOException;
+import org.deegree.tile.TileMatrix;
+import org.deegree.tile.TileMatrixSet;
+import org.slf4j.Logger;
+
+/**
+ * Provides access to the tiles of one tile table in a GeoPackage or MBTiles file.
+ * <p>
+ * Tiles are read through a pool of read-only connections, each of which keeps its
+ * prepared select statement, so a tile lookup is a single indexed row fetch. Writes are
+ * serialized on one connection with prepared insert and delete statements. Consecutive
+ * puts share one transaction, which is committed once {@link #MAX_PENDING_WRITES} tiles
+ * have been written and by {@link #commit()}. Deletes, reads through this instance and
+ * {@link #close()} commit pending puts as well. If pending puts are lost because a write
+ * fails, the next call of {@link #commit()} reports it. The file is switched to WAL mode,
+ * so readers are not blocked while tiles are written. Zoom level <code>n</code>
+ * corresponds to the <code>n</code>-th tile matrix of the tile matrix set. Files (or tile
+ * tables) that do not exist yet are created.
+ * </p>
+ */
+class TileDatabase {
+
+	private static final Logger LOG = getLogger(TileDatabase.class);
+
+	private static final Pattern TABLE_NAME = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+	private static final int BUSY_TIMEOUT_MILLIS = 10000;
+
+	static final int MAX_PENDING_WRITES = 1000;
+
+	private static final String WGS84_WKT = "GEOGCS[\"WGS 84\",DATUM[\"WGS_1984\",SPHEROID[\"WGS 84\",6378137,"
+			+ "298.257223563,AUTHORITY[\"EPSG\",\"7030\"]],AUTHORITY[\"EPSG\",\"6326\"]],PRIMEM[\"Greenwich\",0,"
+			+ "AUTHORITY[\"EPSG\",\"8901\"]],UNIT[\"degree\",0.0174532925199433,AUTHORITY[\"EPSG\",\"9122\"]],"
+			+ "AUTHORITY[\"EPSG\",\"4326\"]]";
+
+	private final File file;
+
+	private final String url;
+
+	private final TileContainer container;
+
+	private final String table;
+
+	private final String format;
+
+	private final List<TileMatrix> matrices;
+
+	private final GenericObjectPool<ReadConnection> readPool;
+
+	private final Object writeLock = new Object();
+
+	private Connection writeConnection;
+
+	private PreparedStatement insertStmt;
+
+	private PreparedStatement deleteStmt;
+
+	// written while holding the write lock only, read without it to skip the lock
+	private volatile int pendingWrites;
+
+	// writes that have been rolled back since the last commit
+	private int lostWrites;
+
+	/**
+	 * Opens (and creates, if necessary) the tile table.
+	 * @param file the GeoPackage or MBTiles file, must not be <code>null</code>
+	 * @param container type of the file, must not be <code>null</code>
+	 * @param table name of the tile table, must not be <code>null</code>, ignored for
+	 * MBTiles
+	 * @param tms tile matrix set of the tiles, must not be <code>null</code>
+	 * @param format mime type of the tiles, must not be <code>null</code>
+	 * @param maxReadConnections maximum number of concurrent read connections, must be
+	 * positive
+	 * @throws SQLException if the file cannot be opened or created
+	 */
+	TileDatabase(File file, TileContainer container, String table, TileMatrixSet tms, String format,
+			int maxReadConnections) throws SQLException {
+		this.file = file;
+		this.url = "jdbc:sqlite:" + file.getAbsolutePath();
+		this.container = container;
+		this.table = container == MBTILES ? "tiles" : table;
+		if (!TABLE_NAME.matcher(this.table).matches()) {
+			throw new IllegalArgumentException("Invalid tile table name '" + table + "'.");
+		}
+		this.format = format;
+		this.matrices = tms.getTileMatrices();
+		init(tms, format);
+		GenericObjectPoolConfig<ReadConnection> poolConfig = new GenericObjectPoolConfig<>();
+		poolConfig.setMaxTotal(maxReadConnections);
+		poolConfig.setMaxIdle(maxReadConnections);
+		this.readPool = new GenericObjectPool<ReadConnection>(new ReadConnectionFactory(), poolConfig);
+	}
+
+	/**
+	 * @return the file, never <code>null</code>
+	 */
+	File getFile() {
+		return file;
+	}
+
+	/**
+	 * @return the mime type of the tiles, never <code>null</code>
+	 */
+	String getFormat() {
+		return format;
+	}
+
+	/**
+	 * Retrieves the encoded data of a tile.
+	 * @param zoom index of the tile matrix in the tile matrix set
+	 * @param x column index of the tile
+	 * @param y row index of the tile, counted from the top
+	 * @return the encoded image, or <code>null</code> if the tile does not exist
+	 * @throws TileIOException if the tile could not be read
+	 */
+	byte[] getTile(int zoom, long x, long y) throws TileIOException {
+		if (pendingWrites > 0) {
+			synchronized (writeLock) {
+				commitPendingWrites();
+			}
+		}
+		ReadConnection conn = null;
+		try {
+			conn = readPool.borrowObject();
+			byte[] data = conn.read(zoom, x, toTileRow(zoom, y));
+			readPool.returnObject(conn);
+			conn = null;
+			return data;
+		}
+		catch (Exception e) {
+			throw new TileIOException("Error reading tile " + zoom + "/" + x + "/" + y + " from '" + file + "': "
+					+ e.getMessage(), e);
+		}
+		finally {
+			if (conn != null) {
+				invalidate(conn);
+			}
+		}
+	}
+
+	/**
+	 * Inserts or replaces a tile. The tile is stored once it has been committed, see
+	 * {@link #commit()}.
+	 * @param zoom index of the tile matrix in the tile matrix set
+	 * @param x column index of the tile
+	 * @param y row index of the tile, counted from the top
+	 * @param data the encoded image, must not be <code>null</code>
+	 * @throws TileIOException if the tile could not be written
+	 */
+	void putTile(int zoom, long x, long y, byte[] data) throws TileIOException {
+		synchronized (writeLock) {
+			try {
+				openWriteConnection();
+				insertStmt.setInt(1, zoom);
+				insertStmt.setLong(2, x);
+				insertStmt.setLong(3, toTileRow(zoom, y));
+				insertStmt.setBytes(4, data);
+				insertStmt.executeUpdate();
+				if (++pendingWrites >= MAX_PENDING_WRITES) {
+					commitPending();
+				}
+			}
+			catch (SQLException e) {
+				closeWriteConnection();
+				throw new TileIOException("Error writing tile " + zoom + "/" + x + "/" + y + " to '" + file + "': "
+						+ e.getMessage(), e);
+			}
+		}
+	}
+
+	/**
+	 * Deletes a tile.
+	 * @param zoom index of the tile matrix in the tile matrix set
+	 * @param x column index of the tile
+	 * @param y row index of the tile, counted from the top
+	 * @throws TileIOException if the tile could not be deleted
+	 */
+	void deleteTile(int zoom, long x, long y) throws TileIOException {
+		synchronized (writeLock) {
+			try {
+				openWriteConnection();
+				deleteStmt.setInt(1, zoom);
+				deleteStmt.setLong(2, x);
+				deleteStmt.setLong(3, toTileRow(zoom, y));
+				deleteStmt.executeUpdate();
+				pendingWrites++;
+				commitPending();
+			}
+			catch (SQLException e) {
+				closeWriteConnection();
+				throw new TileIOException("Error deleting tile " + zoom + "/" + x + "/" + y + " from '" + file + "': "
+						+ e.getMessage(), e);
+			}
+		}
+	}
+
+	/**
+	 * Deletes all tiles of a tile matrix within an index range with a single statement.
+	 * @param zoom index of the tile matrix in the tile matrix set
+	 * @param minX first column
+	 * @param minY first row, counted from the top
+	 * @param maxX last column
+	 * @param maxY last row, counted from the top
+	 * @return number of deleted tiles
+	 * @throws TileIOException if the tiles could not be deleted
+	 */
+	int deleteTiles(int zoom, long minX, long minY, long maxX, long maxY) throws TileIOException {
+		long minRow = Math.min(toTileRow(zoom, minY), toTileRow(zoom, maxY));
+		long maxRow = Math.max(toTileRow(zoom, minY), toTileRow(zoom, maxY));
+		String sql = "DELETE FROM " + table
+				+ " WHERE zoom_level = ? AND tile_column BETWEEN ? AND ? AND tile_row BETWEEN ? AND ?";
+		synchronized (writeLock) {
+			try {
+				openWriteConnection();
+				try (PreparedStatement stmt = writeConnection.prepareStatement(sql)) {
+					stmt.setInt(1, zoom);
+					stmt.setLong(2, minX);
+					stmt.setLong(3, maxX);
+					stmt.setLong(4, minRow);
+					stmt.setLong(5, maxRow);
+					int deleted = stmt.executeUpdate();
+					pendingWrites++;
+					commitPending();
+					return deleted;
+				}
+			}
+			catch (SQLException e) {
+				closeWriteConnection();
+				throw new TileIOException("Error deleting tiles of zoom level " + zoom + " from '" + file + "': "
+						+ e.getMessage(), e);
+			}
+		}
+	}
+
+	/**
+	 * Commits the pending puts, so they are stored and visible to other connections.
+	 * @throws TileIOException if the commit failed or puts since the last commit have
+	 * been lost because a write failed
+	 */
+	void commit() throws TileIOException {
+		synchronized (writeLock) {
+			commitPendingWrites();
+			if (lostWrites > 0) {
+				int lost = lostWrites;
+				lostWrites = 0;
+				throw new TileIOException(lost + " tile writes to '" + file
+						+ "' since the last commit have been lost due to a failed write.");
+			}
+		}
+	}
+
+	/**
+	 * Commits the pending puts and closes all connections.
+	 */
+	void close() {
+		readPool.close();
+		synchronized (writeLock) {
+			try {
+				commit();
+			}
+			catch (TileIOException e) {
+				LOG.warn(e.getMessage());
+			}
+			closeWriteConnection();
+		}
+	}
+
+	private void commitPendingWrites() throws TileIOException {
+		try {
+			commitPending();
+		}
+		catch (SQLException e) {
+			closeWriteConnection();
+			throw new TileIOException("Error committing tiles to '" + file + "': " + e.getMessage(), e);
+		}
+	}
+
+	private void commitPending() throws SQLException {
+		if (pendingWrites > 0) {
+			writeConnection.commit();
+			pendingWrites = 0;
+		}
+	}
+
+	private long toTileRow(int zoom, long y) {
+		if (container == MBTILES) {
+			return matrices.get(zoom).getNumTilesY() - 1 - y;
+		}
+		return y;
+	}
+
+	private Connection connect() throws SQLException {
+		Connection conn = DriverManager.getConnection(url);
+		try (Statement stmt = conn.createStatement()) {
+			stmt.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT_MILLIS);
+		}
+		catch (SQLException e) {
+			conn.close();
+			throw e;
+		}
+		return conn;
+	}
+
+	private void openWriteConnection() throws SQLException {
+		if (writeConnection != null) {
+			return;
+		}
+		Connection conn = connect();
+		try {
+			try (Statement stmt = conn.createStatement()) {
+				// the WAL is synced at checkpoints only, which is safe in WAL mode
+				stmt.execute("PRAGMA synchronous = NORMAL");
+			}
+			conn.setAutoCommit(false);
+			insertStmt = conn.prepareStatement("INSERT OR REPLACE INTO " + table
+					+ " (zoom_level, tile_column, tile_row, tile_data) VALUES (?, ?, ?, ?)");
+			deleteStmt = conn.prepareStatement(
+					"DELETE FROM " + table + " WHERE zoom_level = ? AND tile_column = ? AND tile_row = ?");
+		}
+		catch (SQLException e) {
+			conn.close();
+			throw e;
+		}
+		writeConnection = conn;
+	}
+
+	private void closeWriteConnection() {
+		if (writeConnection == null) {
+			return;
+		}
+		if (pendingWrites > 0) {
+			// closing rolls back the open transaction
+			lostWrites += pendingWrites;
+			pendingWrites = 0;
+		}
+		try {
+			writeConnection.close();
+		}
+		catch (SQLException e) {
+			LOG.debug("Error closing connection to '{}': {}", file, e.getMessage());
+		}
+		writeConnection = null;
+		insertStmt = null;
+		deleteStmt = null;
+	}
+
+	private void invalidate(ReadConnection conn) {
+		try {
+			readPool.invalidateObject(conn);
+		}
+		catch (Exception e) {
+			LOG.debug("Error closing connection to '{}': {}", file, e.getMessage());
+		}
+	}
+
+	private void init(TileMatrixSet tms, String format) throws SQLException {
+		try (Connection conn = connect(); Statement stmt = conn.createStatement()) {
+			boolean exists;
+			try (PreparedStatement ps = conn
+				.prepareStatement("SELECT 1 FROM sqlite_master WHERE type IN ('table', 'view') AND name = ?")) {
+				ps.setString(1, table);
+				try (ResultSet rs = ps.executeQuery()) {
+					exists = rs.next();
+				}
+			}
+			if (!exists) {
+				LOG.info("Creating tile table '{}' in '{}'.", table, file);
+				conn.setAutoCommit(false);
+				if (container == MBTILES) {
+					createMbTilesSchema(conn, tms, format);
+				}
+				else {
+					createGeoPackageSchema(conn, tms);
+				}
+				conn.commit();
+				conn.setAutoCommit(true);
+			}
+			try {
+				stmt.execute("PRAGMA journal_mode = WAL");
+			}
+			catch (SQLException e) {
+				// e.g. read-only file, readers work in rollback journal mode as well
+				LOG.debug("Unable to switch '{}' to WAL mode: {}", file, e.getMessage());
+			}
+		}
+	}
+
+	private void createGeoPackageSchema(Connection conn, TileMatrixSet tms) throws SQLException {
+		int srsId = getSrsId(tms.getSpatialMetadata().getCoordinateSystems());
+		try (Statement stmt = conn.createStatement()) {
+			// 'GPKG' and version 1.2
+			stmt.execute("PRAGMA application_id = 1196444487");
+			stmt.execute("PRAGMA user_version = 10200");
+			stmt.execute("CREATE TABLE IF NOT EXISTS gpkg_spatial_ref_sys (srs_name TEXT NOT NULL, "
+					+ "srs_id INTEGER PRIMARY KEY, organization TEXT NOT NULL, "
+					+ "organization_coordsys_id INTEGER NOT NULL, definition TEXT NOT NULL, description TEXT)");
+			stmt.execute("CREATE TABLE IF NOT EXISTS gpkg_contents (table_name TEXT NOT NULL PRIMARY KEY, "
+					+ "data_type TEXT NOT NULL, identifier TEXT UNIQUE, description TEXT DEFAULT '', "
+					+ "last_change DATETIME NOT NULL DEFAULT (strftime('%Y-%m-%dT%H:%M:%fZ','now')), min_x DOUBLE, "
+					+ "min_y DOUBLE, max_x DOUBLE, max_y DOUBLE, srs_id INTEGER, "
+					+ "CONSTRAINT fk_gc_r_srs_id FOREIGN KEY (srs_id) REFERENCES gpkg_spatial_ref_sys(srs_id))");
+			stmt.execute("CREATE TABLE IF NOT EXISTS gpkg_tile_matrix_set (table_name TEXT NOT NULL PRIMARY KEY, "
+					+ "srs_id INTEGER NOT NULL, min_x DOUBLE NOT NULL, min_y DOUBLE NOT NULL, max_x DOUBLE NOT NULL, "
+					+ "max_y DOUBLE NOT NULL, "
+					+ "CONSTRAINT fk_gtms_table_name FOREIGN KEY (table_name) REFERENCES gpkg_contents(table_name), "
+					+ "CONSTRAINT fk_gtms_srs FOREIGN KEY (srs_id) REFERENCES gpkg_spatial_ref_sys (srs_id))");
+			stmt.execute("CREATE TABLE IF NOT EXISTS gpkg_tile_matrix (table_name TEXT NOT NULL, "
+					+ "zoom_level INTEGER NOT NULL, matrix_width INTEGER NOT NULL, matrix_height INTEGER NOT NULL, "
+					+ "tile_width INTEGER NOT NULL, tile_height INTEGER NOT NULL, pixel_x_size DOUBLE NOT NULL, "
+					+ "pixel_y_size DOUBLE NOT NULL, CONSTRAINT pk_ttm PRIMARY KEY (table_name, zoom_level), "
+					+ "CONSTRAINT fk_tmm_table_name FOREIGN KEY (table_name) REFERENCES gpkg_contents(table_name))");
+			stmt.execute("INSERT OR IGNORE INTO gpkg_spatial_ref_sys VALUES "
+					+ "('Undefined cartesian SRS', -1, 'NONE', -1, 'undefined', NULL), "
+					+ "('Undefined geographic SRS', 0, 'NONE', 0, 'undefined', NULL), "
+					+ "('WGS 84 geodetic', 4326, 'EPSG', 4326, '" + WGS84_WKT + "', NULL)");
+			stmt.execute("CREATE TABLE " + table + " (id INTEGER PRIMARY KEY AUTOINCREMENT, "
+					+ "zoom_level INTEGER NOT NULL, tile_column INTEGER NOT NULL, tile_row INTEGER NOT NULL, "
+					+ "tile_data BLOB NOT NULL, UNIQUE (zoom_level, tile_column, tile_row))");
+		}
+		if (srsId > 0) {
+			try (PreparedStatement ps = conn.prepareStatement(
+					"INSERT OR IGNORE INTO gpkg_spatial_ref_sys VALUES (?, ?, 'EPSG', ?, 'undefined', NULL)")) {
+				ps.setString(1, "EPSG:" + srsId);
+				ps.setInt(2, srsId);
+				ps.setInt(3, srsId);
+				ps.executeUpdate();
+			}
+		}
+		Envelope env = tms.getSpatialMetadata().getEnvelope();
+		try (PreparedStatement ps = conn.prepareStatement("INSERT INTO gpkg_contents (table_name, data_type, "
+				+ "identifier, min_x, min_y, max_x, max_y, srs_id) VALUES (?, 'tiles', ?, ?, ?, ?, ?, ?)")) {
+			ps.setString(1, table);
+			ps.setString(2, table);
+			setEnvelope(ps, 3, env);
+			ps.setInt(7, srsId);
+			ps.executeUpdate();
+		}
+		try (PreparedStatement ps = conn.prepareStatement("INSERT INTO gpkg_tile_matrix_set "
+				+ "(table_name, srs_id, min_x, min_y, max_x, max_y) VALUES (?, ?, ?, ?, ?, ?)")) {
+			ps.setString(1, table);
+			ps.setInt(2, srsId);
+			setEnvelope(ps, 3, env);
+			ps.executeUpdate();
+		}
+		try (PreparedStatement ps = conn
+			.prepareStatement("INSERT INTO gpkg_tile_matrix VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+			for (int zoom = 0; zoom < matrices.size(); zoom++) {
+				TileMatrix tm = matrices.get(zoom);
+				ps.setString(1, table);
+				ps.setInt(2, zoom);
+				ps.setLong(3, tm.getNumTilesX());
+				ps.setLong(4, tm.getNumTilesY());
+				ps.setLong(5, tm.getTilePixelsX());
+				ps.setLong(6, tm.getTilePixelsY());
+				ps.setDouble(7, tm.getResolution());
+				ps.setDouble(8, tm.getResolution());
+				ps.addBatch();
+			}
+			ps.executeBatch();
+		}
+	}
+
+	private void createMbTilesSchema(Connection conn, TileMatrixSet tms, String format) throws SQLException {
+		try (Statement stmt = conn.createStatement()) {
+			stmt.execute("CREATE TABLE IF NOT EXISTS metadata (name TEXT, value TEXT)");
+			stmt.execute("CREATE TABLE tiles (zoom_level INTEGER, tile_column INTEGER, tile_row INTEGER, "
+					+ "tile_data BLOB)");
+			stmt.execute("CREATE UNIQUE INDEX tile_index ON tiles (zoom_level, tile_column, tile_row)");
+		}
+		String type = format.substring(format.indexOf('/') + 1);
+		try (PreparedStatement ps = conn.prepareStatement("INSERT INTO metadata VALUES (?, ?)")) {
+			String[][] values = { { "name", tms.getIdentifier() }, { "format", "jpeg".equals(type) ? "jpg" : type },
+					{ "minzoom", "0" }, { "maxzoom", Integer.toString(matrices.size() - 1) } };
+			for (String[] value : values) {
+				ps.setString(1, value[0]);
+				ps.setString(2, value[1]);
+				ps.addBatch();
+			}
+			ps.executeBatch();
+		}
+	}
+
+	private static void setEnvelope(PreparedStatement ps, int index, Envelope env) throws SQLException {
+		ps.setDouble(index, env.getMin().get0());
+		ps.setDouble(index + 1, env.getMin().get1());
+		ps.setDouble(index + 2, env.getMax().get0());
+		ps.setDouble(index + 3, env.getMax().get1());
+	}
+
+	private static int getSrsId(List<ICRS> crsList) {
+		if (crsList == null || crsList.isEmpty() || crsList.get(0) == null) {
+			return -1;
+		}
+		for (CRSCodeType code : crsList.get(0).getCodes()) {
+			if ("CRS84".equalsIgnoreCase(code.getCode())) {
+				return 4326;
+			}
+			if ("EPSG".equalsIgnoreCase(code.getCodeSpace())) {
+				try {
+					return Integer.parseInt(code.getCode());
+				}
+				catch (NumberFormatException e) {
+					// try next code
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * A read-only connection with its prepared tile lookup statement.
+	 */
+	private class ReadConnection {
+
+		private final Connection conn;
+
+		private final PreparedStatement selectStmt;
+
+		ReadConnection() throws SQLException {
+			conn = connect();
+			try {
+				try (Statement stmt = conn.createStatement()) {
+					stmt.execute("PRAGMA query_only = 1");
+				}
+				selectStmt = conn.prepareStatement("SELECT tile_data FROM " + table
+						+ " WHERE zoom_level = ? AND tile_column = ? AND tile_row = ?");
+			}
+			catch (SQLException e) {
+				conn.close();
+				throw e;
+			}
+		}
+
+		byte[] read(int zoom, long column, long row) throws SQLException {
+			selectStmt.setInt(1, zoom);
+			selectStmt.setLong(2, column);
+			selectStmt.setLong(3, row);
+			try (ResultSet rs = selectStmt.executeQuery()) {
+				return rs.next() ? rs.getBytes(1) : null;
+			}
+		}
+
+		void close() throws SQLException {
+			conn.close();
+		}
+
+	}
+
+	private class ReadConnectionFactory extends BasePooledObjectFactory<ReadConnection> {
+
+		@Override
+		public ReadConnection create() throws SQLException {
+			return new ReadConnection();
+		}
+
+		@Override
+		public PooledObject<ReadConnection> wrap(ReadConnection conn) {
+			return new DefaultPooledObject<ReadConnection>(conn);
+		}
+
+		@Override
+		public void destroyObject(PooledObject<ReadConnection> pooledObject) throws SQLException {
+			pooledObject.getObject().close();
+		}
+
+	}
+
+}
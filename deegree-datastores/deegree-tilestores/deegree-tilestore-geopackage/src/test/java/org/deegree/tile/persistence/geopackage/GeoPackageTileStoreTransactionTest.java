@@ -0,0 +1,156 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.tile.persistence.geopackage;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static org.deegree.tile.persistence.geopackage.TileContainer.GEOPACKAGE;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.deegree.geometry.Envelope;
+import org.deegree.geometry.GeometryFactory;
+import org.deegree.geometry.metadata.SpatialMetadata;
+import org.deegree.tile.DefaultTileDataSet;
+import org.deegree.tile.Tile;
+import org.deegree.tile.TileDataLevel;
+import org.deegree.tile.TileIOException;
+import org.deegree.tile.TileMatrix;
+import org.deegree.tile.TileMatrixSet;
+import org.deegree.tile.persistence.TileStoreTransaction;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link GeoPackageTileStoreTransaction}.
+ */
+public class GeoPackageTileStoreTransactionTest {
+
+	private File dir;
+
+	private TileDatabase db;
+
+	private GeoPackageTileStore store;
+
+	@Before
+	public void setup() throws Exception {
+		dir = File.createTempFile("tiledb", "");
+		dir.delete();
+		dir.mkdir();
+		Envelope env = new GeometryFactory().createEnvelope(0, 0, 80, 80, null);
+		SpatialMetadata smd = new SpatialMetadata(env, emptyList());
+		List<TileMatrix> matrices = new ArrayList<TileMatrix>();
+		for (int zoom = 0; zoom < 2; zoom++) {
+			long num = 1L << zoom;
+			matrices.add(new TileMatrix(Integer.toString(zoom), smd, 256, 256, 80.0 / num / 256, num, num));
+		}
+		TileMatrixSet tms = new TileMatrixSet("test", null, matrices, smd, null);
+		db = new TileDatabase(new File(dir, "test.gpkg"), GEOPACKAGE, "tiles1", tms, "image/png", 2);
+		List<TileDataLevel> levels = new ArrayList<TileDataLevel>();
+		for (int zoom = 0; zoom < matrices.size(); zoom++) {
+			levels.add(new GeoPackageTileDataLevel(matrices.get(zoom), db, zoom));
+		}
+		store = new GeoPackageTileStore(singletonMap("tiles1", new DefaultTileDataSet(levels, tms, "image/png")),
+				singletonList(db), null);
+	}
+
+	@After
+	public void tearDown() {
+		store.destroy();
+		for (File f : dir.listFiles()) {
+			f.delete();
+		}
+		dir.delete();
+	}
+
+	@Test
+	public void testPutStoresEncodedData() throws IOException {
+		TileStoreTransaction ta = store.acquireTransaction("tiles1");
+		ta.put("1", tile(new byte[] { 1, 2, 3 }), 1, 0);
+
+		assertArrayEquals(new byte[] { 1, 2, 3 }, db.getTile(1, 1, 0));
+	}
+
+	@Test
+	public void testFlushStoresPuts() throws Exception {
+		TileStoreTransaction ta = store.acquireTransaction("tiles1");
+		ta.put("0", tile(new byte[] { 1 }), 0, 0);
+		ta.put("1", tile(new byte[] { 2 }), 1, 1);
+		ta.flush();
+
+		try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + db.getFile().getAbsolutePath());
+				Statement stmt = conn.createStatement();
+				ResultSet rs = stmt.executeQuery("SELECT count(*) FROM tiles1")) {
+			rs.next();
+			assertEquals(2, rs.getInt(1));
+		}
+	}
+
+	@Test
+	public void testPutRejectsTileWithoutData() throws IOException {
+		TileStoreTransaction ta = store.acquireTransaction("tiles1");
+		try {
+			ta.put("1", tile(null), 1, 0);
+			fail("Expected TileIOException.");
+		}
+		catch (TileIOException e) {
+			// expected
+		}
+		assertNull(db.getTile(1, 1, 0));
+	}
+
+	private static Tile tile(byte[] data) {
+		Tile tile = mock(Tile.class);
+		when(tile.getAsStream()).thenReturn(data == null ? null : new ByteArrayInputStream(data));
+		return tile;
+	}
+
+}
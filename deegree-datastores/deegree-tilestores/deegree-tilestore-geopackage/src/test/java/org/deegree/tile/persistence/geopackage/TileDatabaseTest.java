@@ -0,0 +1,280 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.tile.persistence.geopackage;
+
+import static java.util.Collections.emptyList;
+import static org.deegree.tile.persistence.geopackage.TileContainer.GEOPACKAGE;
+import static org.deegree.tile.persistence.geopackage.TileContainer.MBTILES;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.deegree.geometry.Envelope;
+import org.deegree.geometry.GeometryFactory;
+import org.deegree.geometry.metadata.SpatialMetadata;
+import org.deegree.tile.TileIOException;
+import org.deegree.tile.TileMatrix;
+import org.deegree.tile.TileMatrixSet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link TileDatabase}.
+ */
+public class TileDatabaseTest {
+
+	private File dir;
+
+	private TileMatrixSet tms;
+
+	private TileDatabase db;
+
+	@Before
+	public void setup() throws IOException {
+		dir = File.createTempFile("tiledb", "");
+		dir.delete();
+		dir.mkdir();
+		Envelope env = new GeometryFactory().createEnvelope(0, 0, 80, 80, null);
+		SpatialMetadata smd = new SpatialMetadata(env, emptyList());
+		List<TileMatrix> matrices = new ArrayList<TileMatrix>();
+		for (int zoom = 0; zoom < 3; zoom++) {
+			long num = 1L << zoom;
+			matrices.add(new TileMatrix(Integer.toString(zoom), smd, 256, 256, 80.0 / num / 256, num, num));
+		}
+		tms = new TileMatrixSet("test", null, matrices, smd, null);
+	}
+
+	@After
+	public void tearDown() {
+		if (db != null) {
+			db.close();
+		}
+		for (File f : dir.listFiles()) {
+			f.delete();
+		}
+		dir.delete();
+	}
+
+	@Test
+	public void testPutGetAndReplace() throws Exception {
+		db = new TileDatabase(new File(dir, "test.gpkg"), GEOPACKAGE, "tiles1", tms, "image/png", 2);
+		assertNull(db.getTile(1, 1, 0));
+
+		db.putTile(1, 1, 0, new byte[] { 1, 2, 3 });
+		assertArrayEquals(new byte[] { 1, 2, 3 }, db.getTile(1, 1, 0));
+		assertNull(db.getTile(1, 0, 1));
+
+		db.putTile(1, 1, 0, new byte[] { 4 });
+		assertArrayEquals(new byte[] { 4 }, db.getTile(1, 1, 0));
+	}
+
+	@Test
+	public void testDelete() throws Exception {
+		db = new TileDatabase(new File(dir, "test.gpkg"), GEOPACKAGE, "tiles1", tms, "image/png", 2);
+		for (int x = 0; x < 4; x++) {
+			for (int y = 0; y < 4; y++) {
+				db.putTile(2, x, y, new byte[] { (byte) x, (byte) y });
+			}
+		}
+
+		db.deleteTile(2, 0, 0);
+		assertNull(db.getTile(2, 0, 0));
+		assertEquals(3, db.deleteTiles(2, 0, 0, 1, 1));
+		assertEquals(12, count("tiles1"));
+		assertArrayEquals(new byte[] { 2, 1 }, db.getTile(2, 2, 1));
+	}
+
+	@Test
+	public void testGeoPackageTablesAreCreated() throws Exception {
+		db = new TileDatabase(new File(dir, "test.gpkg"), GEOPACKAGE, "tiles1", tms, "image/png", 2);
+
+		assertEquals(3, count("gpkg_tile_matrix"));
+		assertEquals(1, count("gpkg_tile_matrix_set"));
+		assertEquals(1, count("gpkg_contents"));
+		assertEquals("1196444487", query("PRAGMA application_id"));
+		assertEquals("wal", query("PRAGMA journal_mode"));
+	}
+
+	@Test
+	public void testMbTilesRowsCountFromBottom() throws Exception {
+		db = new TileDatabase(new File(dir, "test.mbtiles"), MBTILES, null, tms, "image/jpeg", 2);
+		db.putTile(2, 1, 0, new byte[] { 1 });
+
+		assertArrayEquals(new byte[] { 1 }, db.getTile(2, 1, 0));
+		assertEquals("3", query("SELECT tile_row FROM tiles"));
+		assertEquals("jpg", query("SELECT value FROM metadata WHERE name = 'format'"));
+	}
+
+	@Test
+	public void testExistingFileIsReused() throws Exception {
+		File file = new File(dir, "test.gpkg");
+		db = new TileDatabase(file, GEOPACKAGE, "tiles1", tms, "image/png", 2);
+		db.putTile(0, 0, 0, new byte[] { 1 });
+		db.close();
+
+		db = new TileDatabase(file, GEOPACKAGE, "tiles1", tms, "image/png", 2);
+		assertArrayEquals(new byte[] { 1 }, db.getTile(0, 0, 0));
+
+		// a second tile table in the same file
+		TileDatabase other = new TileDatabase(file, GEOPACKAGE, "tiles2", tms, "image/png", 2);
+		try {
+			assertNull(other.getTile(0, 0, 0));
+			assertEquals(6, count("gpkg_tile_matrix"));
+		}
+		finally {
+			other.close();
+		}
+	}
+
+	@Test
+	public void testCommitStoresPendingPuts() throws Exception {
+		db = new TileDatabase(new File(dir, "test.gpkg"), GEOPACKAGE, "tiles1", tms, "image/png", 2);
+		db.putTile(2, 0, 0, new byte[] { 1 });
+		db.putTile(2, 1, 0, new byte[] { 2 });
+		assertEquals(0, count("tiles1"));
+
+		db.commit();
+		assertEquals(2, count("tiles1"));
+	}
+
+	@Test
+	public void testPutsAreCommittedInBatches() throws Exception {
+		db = new TileDatabase(new File(dir, "test.gpkg"), GEOPACKAGE, "tiles1", tms, "image/png", 2);
+		for (int i = 0; i < TileDatabase.MAX_PENDING_WRITES - 1; i++) {
+			db.putTile(2, i % 4, (i / 4) % 4, new byte[] { (byte) i });
+		}
+		assertEquals(0, count("tiles1"));
+
+		db.putTile(2, 0, 0, new byte[] { 1 });
+		assertEquals(16, count("tiles1"));
+	}
+
+	@Test
+	public void testLostPutsAreReportedOnCommit() throws Exception {
+		db = new TileDatabase(new File(dir, "test.gpkg"), GEOPACKAGE, "tiles1", tms, "image/png", 2);
+		db.putTile(2, 0, 0, new byte[] { 1 });
+		try {
+			// violates the not null constraint of tile_data
+			db.putTile(2, 1, 0, null);
+			fail("Expected TileIOException.");
+		}
+		catch (TileIOException e) {
+			// expected
+		}
+		try {
+			db.commit();
+			fail("Expected TileIOException.");
+		}
+		catch (TileIOException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("1 tile writes"));
+		}
+		assertEquals(0, count("tiles1"));
+
+		// reported once only
+		db.putTile(2, 0, 0, new byte[] { 1 });
+		db.commit();
+		assertEquals(1, count("tiles1"));
+	}
+
+	@Test
+	public void testCloseCommitsPendingPuts() throws Exception {
+		db = new TileDatabase(new File(dir, "test.gpkg"), GEOPACKAGE, "tiles1", tms, "image/png", 2);
+		db.putTile(0, 0, 0, new byte[] { 1 });
+		db.close();
+
+		assertEquals(1, count("tiles1"));
+	}
+
+	@Test
+	public void testConcurrentReadsAndWrites() throws Exception {
+		db = new TileDatabase(new File(dir, "test.gpkg"), GEOPACKAGE, "tiles1", tms, "image/png", 4);
+		db.putTile(0, 0, 0, new byte[] { 1 });
+		List<Thread> threads = new ArrayList<Thread>();
+		List<Throwable> errors = new ArrayList<Throwable>();
+		for (int i = 0; i < 8; i++) {
+			final int n = i;
+			threads.add(new Thread(() -> {
+				try {
+					for (int j = 0; j < 50; j++) {
+						db.putTile(2, n % 4, j % 4, new byte[] { (byte) j });
+						assertArrayEquals(new byte[] { 1 }, db.getTile(0, 0, 0));
+					}
+				}
+				catch (Throwable t) {
+					synchronized (errors) {
+						errors.add(t);
+					}
+				}
+			}));
+		}
+		for (Thread t : threads) {
+			t.start();
+		}
+		for (Thread t : threads) {
+			t.join();
+		}
+
+		assertTrue(errors.toString(), errors.isEmpty());
+		assertEquals(17, count("tiles1"));
+	}
+
+	private long count(String table) throws SQLException {
+		return Long.parseLong(query("SELECT count(*) FROM " + table));
+	}
+
+	private String query(String sql) throws SQLException {
+		File file = db.getFile();
+		try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+				Statement stmt = conn.createStatement();
+				ResultSet rs = stmt.executeQuery(sql)) {
+			rs.next();
+			return rs.getString(1);
+		}
+	}
+
+}
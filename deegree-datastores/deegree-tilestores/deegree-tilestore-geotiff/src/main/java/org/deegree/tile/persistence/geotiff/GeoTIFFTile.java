@@ -75,8 +75,15 @@ public class GeoTIFFTile implements Tile {
 
 	private final GenericObjectPool<ImageReader> readerPool;
 
+	private final JpegTileIndex jpegTiles;
+
 	public GeoTIFFTile(GenericObjectPool<ImageReader> readerPool, int imageIndex, int x, int y, Envelope envelope,
 			int sizeX, int sizeY) {
+		this(readerPool, imageIndex, x, y, envelope, sizeX, sizeY, null);
+	}
+
+	GeoTIFFTile(GenericObjectPool<ImageReader> readerPool, int imageIndex, int x, int y, Envelope envelope, int sizeX,
+			int sizeY, JpegTileIndex jpegTiles) {
 		this.readerPool = readerPool;
 		this.imageIndex = imageIndex;
 		this.x = x;
@@ -84,6 +91,7 @@ public class GeoTIFFTile implements Tile {
 		this.envelope = envelope;
 		this.sizeX = sizeX;
 		this.sizeY = sizeY;
+		this.jpegTiles = jpegTiles;
 	}
 
 	@Override
@@ -126,7 +134,13 @@ public class GeoTIFFTile implements Tile {
 	public InputStream getAsStream() throws TileIOException {
 		ByteArrayOutputStream bos = new ByteArrayOutputStream();
 		try {
-			ImageIO.write(getAsImage(), "png", bos);
+			if (jpegTiles != null) {
+				byte[] jpeg = jpegTiles.read(x, y);
+				if (jpeg != null) {
+					return new ByteArrayInputStream(jpeg);
+				}
+			}
+			ImageIO.write(getAsImage(), getEncodedFormat().substring(6), bos);
 		}
 		catch (IOException e) {
 			throw new TileIOException("Error retrieving image: " + e.getMessage(), e);
@@ -134,6 +148,11 @@ public class GeoTIFFTile implements Tile {
 		return new ByteArrayInputStream(bos.toByteArray());
 	}
 
+	@Override
+	public String getEncodedFormat() {
+		return jpegTiles != null ? "image/jpeg" : "image/png";
+	}
+
 	@Override
 	public Envelope getEnvelope() {
 		return envelope;
@@ -39,7 +39,10 @@
  ----------------------------------------------------------------------------*/
 package org.deegree.tile.persistence.geotiff;
 
+import static org.slf4j.LoggerFactory.getLogger;
+
 import java.io.File;
+import java.io.IOException;
 import java.util.List;
 
 import javax.imageio.ImageReader;
@@ -50,6 +53,7 @@ import org.deegree.geometry.Envelope;
 import org.deegree.geometry.GeometryFactory;
 import org.deegree.tile.TileDataLevel;
 import org.deegree.tile.TileMatrix;
+import org.slf4j.Logger;
 
 /**
  * The <code>GeoTIFFTileMatrix</code> is a tile matrix handing out GeoTIFFTile tiles. It
@@ -60,6 +64,8 @@ import org.deegree.tile.TileMatrix;
 
 public class GeoTIFFTileDataLevel implements TileDataLevel {
 
+	private static final Logger LOG = getLogger(GeoTIFFTileDataLevel.class);
+
 	private final TileMatrix metadata;
 
 	private final int imageIndex;
@@ -70,8 +76,20 @@ public class GeoTIFFTileDataLevel implements TileDataLevel {
 
 	private final int xoff, yoff, numx, numy;
 
+	private final JpegTileIndex jpegTiles;
+
 	public GeoTIFFTileDataLevel(TileMatrix metadata, File file, int imageIndex, int xoff, int yoff, int numx, int numy,
 			int maxActive) {
+		this(metadata, file, imageIndex, xoff, yoff, numx, numy, maxActive, null);
+	}
+
+	/**
+	 * @param format mime type of the tiles, if this is <code>image/jpeg</code> and the
+	 * tiff contains suitable JPEG compressed tiles, these are delivered without
+	 * re-encoding them, can be <code>null</code>
+	 */
+	public GeoTIFFTileDataLevel(TileMatrix metadata, File file, int imageIndex, int xoff, int yoff, int numx, int numy,
+			int maxActive, String format) {
 		this.metadata = metadata;
 		this.imageIndex = imageIndex;
 		ImageReaderFactory fac = new ImageReaderFactory(file);
@@ -82,6 +100,27 @@ public class GeoTIFFTileDataLevel implements TileDataLevel {
 		this.yoff = yoff;
 		this.numx = numx;
 		this.numy = numy;
+		this.jpegTiles = openJpegTiles(file, format);
+	}
+
+	private JpegTileIndex openJpegTiles(File file, String format) {
+		if (!"image/jpeg".equals(format)) {
+			return null;
+		}
+		try {
+			JpegTileIndex index = JpegTileIndex.open(file, imageIndex, (int) metadata.getTilePixelsX(),
+					(int) metadata.getTilePixelsY());
+			if (index == null) {
+				LOG.debug("Image {} of '{}' has no JPEG tiles usable as they are, tiles will be re-encoded.",
+						imageIndex, file);
+			}
+			return index;
+		}
+		catch (IOException e) {
+			LOG.warn("Could not read the tile layout of image {} of '{}': {}", imageIndex, file, e.getMessage());
+			LOG.trace("Stack trace:", e);
+			return null;
+		}
 	}
 
 	@Override
@@ -111,7 +150,7 @@ public class GeoTIFFTileDataLevel implements TileDataLevel {
 		double miny = env.getMax().get1() - height * y;
 		Envelope envelope = fac.createEnvelope(minx, miny, minx + width, miny - height, env.getCoordinateSystem());
 		return new GeoTIFFTile(readerPool, imageIndex, (int) x, (int) y, envelope, (int) metadata.getTilePixelsX(),
-				(int) metadata.getTilePixelsY());
+				(int) metadata.getTilePixelsY(), jpegTiles);
 	}
 
 	@Override
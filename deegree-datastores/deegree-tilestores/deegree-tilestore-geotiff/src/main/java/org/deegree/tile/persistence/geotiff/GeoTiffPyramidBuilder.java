@@ -0,0 +1,282 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.tile.persistence.geotiff;
+
+import static org.deegree.coverage.raster.geom.RasterGeoReference.OriginLocation.OUTER;
+import static org.deegree.coverage.raster.interpolation.InterpolationType.BILINEAR;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.stream.ImageOutputStream;
+
+import it.geosolutions.imageio.plugins.tiff.TIFFImageWriteParam;
+import org.deegree.coverage.raster.AbstractRaster;
+import org.deegree.coverage.raster.data.RasterData;
+import org.deegree.coverage.raster.data.info.InterleaveType;
+import org.deegree.coverage.raster.data.info.RasterDataInfo;
+import org.deegree.coverage.raster.data.nio.ByteBufferRasterData;
+import org.deegree.coverage.raster.geom.RasterGeoReference;
+import org.deegree.coverage.raster.geom.RasterRect;
+import org.deegree.coverage.raster.interpolation.Interpolation;
+import org.deegree.coverage.raster.interpolation.InterpolationFactory;
+import org.deegree.coverage.raster.io.imageio.geotiff.GeoTiffWriter;
+import org.deegree.geometry.Envelope;
+import org.slf4j.Logger;
+
+/**
+ * Builds a tiled BigTIFF with overviews (a pyramid) from a raster, that can be served
+ * directly by a GeoTIFF tile store, e.g. with a tile matrix set generated from the file.
+ * <p>
+ * The first image has the resolution of the source raster, every following image
+ * (overview) half the resolution of its predecessor, down to the first one that fits into
+ * a single tile. The GeoTIFF tags are written for the first image.
+ * </p>
+ * <p>
+ * The tiles of a level are computed in chunks (rows of tiles) by a pool of workers and
+ * streamed to the file, only a bounded number of chunks is held in memory. Overview tiles
+ * are computed from the previous level with the bilinear interpolations of the coverage
+ * module, sampling the centers of 2x2 pixel blocks (which averages the block). The
+ * previous level is read back from a temporary file next to the target file.
+ * </p>
+ */
+public class GeoTiffPyramidBuilder {
+
+	private static final Logger LOG = getLogger(GeoTiffPyramidBuilder.class);
+
+	private final AbstractRaster source;
+
+	private final int tileSize;
+
+	private final String compression;
+
+	private final int threads;
+
+	/**
+	 * @param source the raster to build the pyramid of, must not be <code>null</code>
+	 * @param tileSize width and height of the tiles in pixels, should be a multiple of 16
+	 * @param compression TIFF compression type (e.g. <code>Deflate</code>,
+	 * <code>LZW</code> or <code>JPEG</code>), <code>null</code> for uncompressed tiles
+	 * @param threads number of workers computing tiles
+	 */
+	public GeoTiffPyramidBuilder(AbstractRaster source, int tileSize, String compression, int threads) {
+		this.source = source;
+		this.tileSize = tileSize;
+		this.compression = compression;
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * Writes the pyramid.
+	 * @param file the file to write to, an existing file is overwritten
+	 * @return the number of levels written
+	 * @throws IOException if reading the source or writing the file failed
+	 */
+	public int build(File file) throws IOException {
+		RasterDataInfo srcInfo = source.getRasterDataInfo();
+		RasterDataInfo info = new RasterDataInfo(srcInfo.noDataPixel, srcInfo.bandInfo, srcInfo.dataType,
+				InterleaveType.PIXEL);
+		File spoolDir = file.getAbsoluteFile().getParentFile();
+		if (file.exists() && !file.delete()) {
+			throw new IOException("Could not delete " + file + ".");
+		}
+
+		ImageWriter writer = GeoTiffWriter.getWriter();
+		ExecutorService executor = Executors.newFixedThreadPool(threads, new WorkerFactory());
+		TileSpool previous = null;
+		TileSpool spool = null;
+		int width = source.getColumns();
+		int height = source.getRows();
+		int prevWidth = 0;
+		int prevHeight = 0;
+		int levels = 0;
+		try (ImageOutputStream out = ImageIO.createImageOutputStream(file)) {
+			writer.setOutput(out);
+			writer.prepareWriteSequence(null);
+			while (true) {
+				boolean last = width <= tileSize && height <= tileSize;
+				spool = last ? null : new TileSpool(spoolDir, info, tileSize, (width + tileSize - 1) / tileSize);
+				PyramidLevel.TileProducer producer;
+				if (previous == null) {
+					int w = width;
+					int h = height;
+					producer = (x, y) -> readSourceTile(x, y, w, h, info);
+				}
+				else {
+					TileSpool prev = previous;
+					int pw = prevWidth;
+					int ph = prevHeight;
+					producer = (x, y) -> downsample(prev, x, y, pw, ph, info);
+				}
+				PyramidLevel level = new PyramidLevel(width, height, tileSize, info, producer, spool, executor,
+						2 * threads);
+				ImageWriteParam param = createWriteParam(writer);
+				IIOMetadata metadata = null;
+				if (levels == 0) {
+					RasterGeoReference geoRef = source.getRasterReference().createRelocatedReference(OUTER);
+					metadata = GeoTiffWriter.createMetadata(writer, new ImageTypeSpecifier(level), param, geoRef);
+				}
+				LOG.info("Writing level {} ({}x{} pixels, {}x{} tiles).", levels, width, height,
+						level.getNumXTiles(), level.getNumYTiles());
+				try {
+					writer.writeToSequence(new IIOImage(level, null, metadata), param);
+				}
+				catch (UncheckedIOException e) {
+					throw e.getCause();
+				}
+				level.finish();
+				++levels;
+				closeQuietly(previous);
+				previous = spool;
+				spool = null;
+				if (last) {
+					break;
+				}
+				prevWidth = width;
+				prevHeight = height;
+				width = (width + 1) / 2;
+				height = (height + 1) / 2;
+			}
+			writer.endWriteSequence();
+		}
+		finally {
+			executor.shutdownNow();
+			writer.dispose();
+			closeQuietly(previous);
+			closeQuietly(spool);
+		}
+		return levels;
+	}
+
+	private ImageWriteParam createWriteParam(ImageWriter writer) {
+		ImageWriteParam param = writer.getDefaultWriteParam();
+		param.setTilingMode(ImageWriteParam.MODE_EXPLICIT);
+		param.setTiling(tileSize, tileSize, 0, 0);
+		if (compression != null) {
+			param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+			param.setCompressionType(compression);
+		}
+		if (param instanceof TIFFImageWriteParam) {
+			((TIFFImageWriteParam) param).setForceToBigTIFF(true);
+		}
+		return param;
+	}
+
+	private ByteBufferRasterData readSourceTile(int x, int y, int width, int height, RasterDataInfo info) {
+		ByteBufferRasterData tile = TileSpool.createTile(info, tileSize);
+		int w = Math.min(tileSize, width - x * tileSize);
+		int h = Math.min(tileSize, height - y * tileSize);
+		RasterGeoReference geoRef = source.getRasterReference();
+		Envelope env = geoRef.getEnvelope(new RasterRect(x * tileSize, y * tileSize, w, h), geoRef.getCrs());
+		RasterData data = source.getSubRaster(env).getAsSimpleRaster().getReadOnlyRasterData();
+		tile.setSubset(0, 0, w, h, data);
+		return tile;
+	}
+
+	private ByteBufferRasterData downsample(TileSpool previous, int x, int y, int prevWidth, int prevHeight,
+			RasterDataInfo info) throws IOException {
+		// the (up to) 2x2 tiles of the previous level covering this tile
+		int blockSize = 2 * tileSize;
+		ByteBufferRasterData block = TileSpool.createTile(info, blockSize);
+		int prevNumX = (prevWidth + tileSize - 1) / tileSize;
+		int prevNumY = (prevHeight + tileSize - 1) / tileSize;
+		for (int dy = 0; dy < 2; ++dy) {
+			for (int dx = 0; dx < 2; ++dx) {
+				int px = 2 * x + dx;
+				int py = 2 * y + dy;
+				if (px < prevNumX && py < prevNumY) {
+					block.setSubset(dx * tileSize, dy * tileSize, tileSize, tileSize, previous.read(px, py));
+				}
+			}
+		}
+
+		// valid pixels of the block, odd sizes leave a single column/row at the border
+		int blockWidth = Math.min(blockSize, prevWidth - x * blockSize);
+		int blockHeight = Math.min(blockSize, prevHeight - y * blockSize);
+		int w = (blockWidth + 1) / 2;
+		int h = (blockHeight + 1) / 2;
+
+		Interpolation interpolation = InterpolationFactory.getInterpolation(BILINEAR, block);
+		ByteBufferRasterData tile = TileSpool.createTile(info, tileSize);
+		byte[] pixel = new byte[info.bands * info.dataSize];
+		for (int j = 0; j < h; ++j) {
+			float sy = 2 * j + 1 < blockHeight ? 2 * j + 0.5f : 2 * j;
+			for (int i = 0; i < w; ++i) {
+				float sx = 2 * i + 1 < blockWidth ? 2 * i + 0.5f : 2 * i;
+				tile.setPixel(i, j, interpolation.getPixel(sx, sy, pixel));
+			}
+		}
+		return tile;
+	}
+
+	private static void closeQuietly(Closeable closeable) {
+		if (closeable == null) {
+			return;
+		}
+		try {
+			closeable.close();
+		}
+		catch (IOException e) {
+			LOG.debug("Could not close temporary file: {}", e.getMessage());
+		}
+	}
+
+	private static class WorkerFactory implements ThreadFactory {
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "pyramid-worker-" + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		}
+
+	}
+
+}
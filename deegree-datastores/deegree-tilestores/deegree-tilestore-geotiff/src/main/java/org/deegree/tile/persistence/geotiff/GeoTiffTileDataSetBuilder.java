@@ -90,7 +90,7 @@ class GeoTiffTileDataSetBuilder {
 			int yoff = (int) Math.round(y / tm.getTileHeight());
 			int numx = (int) Math.ceil(envelope.getSpan0() / tm.getTileWidth());
 			int numy = (int) Math.ceil(envelope.getSpan1() / tm.getTileHeight());
-			levels.add(new GeoTIFFTileDataLevel(tm, file, idx++, xoff, yoff, numx, numy, maxActive));
+			levels.add(new GeoTIFFTileDataLevel(tm, file, idx++, xoff, yoff, numx, numy, maxActive, format));
 		}
 
 		return new DefaultTileDataSet(levels, tms, format);
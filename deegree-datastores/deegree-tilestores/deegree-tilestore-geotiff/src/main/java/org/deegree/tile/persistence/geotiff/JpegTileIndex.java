@@ -0,0 +1,357 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.tile.persistence.geotiff;
+
+import static java.nio.ByteOrder.BIG_ENDIAN;
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+import static java.nio.file.StandardOpenOption.READ;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Locates the compressed tiles of one image of a tiled, JPEG compressed TIFF/BigTIFF
+ * file. As each of these tiles is a complete JPEG stream (apart from the shared tables),
+ * tiles can be delivered as JPEG images without decoding and re-encoding them.
+ * <p>
+ * Only the TIFF structures needed for this are parsed, i.e. the image file directories
+ * of the main chain and the tags describing the tile layout.
+ * </p>
+ */
+class JpegTileIndex {
+
+	private static final int IMAGE_WIDTH = 256;
+
+	private static final int COMPRESSION = 259;
+
+	private static final int PHOTOMETRIC_INTERPRETATION = 262;
+
+	private static final int SAMPLES_PER_PIXEL = 277;
+
+	private static final int PLANAR_CONFIGURATION = 284;
+
+	private static final int TILE_WIDTH = 322;
+
+	private static final int TILE_LENGTH = 323;
+
+	private static final int TILE_OFFSETS = 324;
+
+	private static final int TILE_BYTE_COUNTS = 325;
+
+	private static final int JPEG_TABLES = 347;
+
+	private static final int COMPRESSION_JPEG = 7;
+
+	private static final int PHOTOMETRIC_BLACK_IS_ZERO = 1;
+
+	private static final int PHOTOMETRIC_YCBCR = 6;
+
+	private final File file;
+
+	private final int tilesAcross;
+
+	private final long[] offsets;
+
+	private final long[] byteCounts;
+
+	private final byte[] tables;
+
+	private JpegTileIndex(File file, int tilesAcross, long[] offsets, long[] byteCounts, byte[] tables) {
+		this.file = file;
+		this.tilesAcross = tilesAcross;
+		this.offsets = offsets;
+		this.byteCounts = byteCounts;
+		this.tables = tables;
+	}
+
+	/**
+	 * Reads the tile layout of an image.
+	 * @param file TIFF file, must not be <code>null</code>
+	 * @param imageIndex index of the image in the main chain of image file directories
+	 * @param tileWidth expected width of the tiles in pixels
+	 * @param tileHeight expected height of the tiles in pixels
+	 * @return the index, or <code>null</code> if the image does not exist, is not tiled
+	 * with the expected tile size or its tiles cannot be used as JPEG images as they are
+	 * @throws IOException if the file could not be read or is not a valid TIFF file
+	 */
+	static JpegTileIndex open(File file, int imageIndex, int tileWidth, int tileHeight) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), READ)) {
+			Directory dir = Directory.read(channel, imageIndex);
+			if (dir == null || dir.getInt(COMPRESSION, 1) != COMPRESSION_JPEG
+					|| dir.getInt(PLANAR_CONFIGURATION, 1) != 1) {
+				return null;
+			}
+			int photometric = dir.getInt(PHOTOMETRIC_INTERPRETATION, -1);
+			int samples = dir.getInt(SAMPLES_PER_PIXEL, 1);
+			if (!(photometric == PHOTOMETRIC_YCBCR && samples == 3)
+					&& !(photometric == PHOTOMETRIC_BLACK_IS_ZERO && samples == 1)) {
+				return null;
+			}
+			if (dir.getInt(TILE_WIDTH, -1) != tileWidth || dir.getInt(TILE_LENGTH, -1) != tileHeight) {
+				return null;
+			}
+			long[] offsets = dir.getValues(TILE_OFFSETS);
+			long[] byteCounts = dir.getValues(TILE_BYTE_COUNTS);
+			if (offsets == null || byteCounts == null || offsets.length != byteCounts.length) {
+				return null;
+			}
+			byte[] tables = null;
+			long[] tableValues = dir.getValues(JPEG_TABLES);
+			if (tableValues != null) {
+				tables = new byte[tableValues.length];
+				for (int i = 0; i < tables.length; i++) {
+					tables[i] = (byte) tableValues[i];
+				}
+				if (!isMarker(tables, 0, 0xD8) || !isMarker(tables, tables.length - 2, 0xD9)) {
+					return null;
+				}
+			}
+			int tilesAcross = (dir.getInt(IMAGE_WIDTH, 0) + tileWidth - 1) / tileWidth;
+			return new JpegTileIndex(file, tilesAcross, offsets, byteCounts, tables);
+		}
+	}
+
+	/**
+	 * Reads a tile as JPEG image.
+	 * @param x column index of the tile within the image
+	 * @param y row index of the tile within the image
+	 * @return the JPEG encoded tile, or <code>null</code> if the tile is not present in
+	 * the file
+	 * @throws IOException if reading the tile failed
+	 */
+	byte[] read(int x, int y) throws IOException {
+		long index = (long) y * tilesAcross + x;
+		if (x < 0 || y < 0 || x >= tilesAcross || index >= offsets.length) {
+			return null;
+		}
+		long count = byteCounts[(int) index];
+		if (count < 4 || count > Integer.MAX_VALUE - 1024) {
+			return null;
+		}
+		byte[] data;
+		try (FileChannel channel = FileChannel.open(file.toPath(), READ)) {
+			data = read(channel, offsets[(int) index], (int) count, BIG_ENDIAN).array();
+		}
+		if (!isMarker(data, 0, 0xD8)) {
+			return null;
+		}
+		if (tables == null || tables.length <= 4) {
+			return data;
+		}
+		// SOI, tables (without their SOI and EOI markers), then the tile data without SOI
+		byte[] jpeg = new byte[tables.length - 2 + data.length - 2];
+		System.arraycopy(tables, 0, jpeg, 0, tables.length - 2);
+		System.arraycopy(data, 2, jpeg, tables.length - 2, data.length - 2);
+		return jpeg;
+	}
+
+	private static boolean isMarker(byte[] data, int pos, int marker) {
+		return pos >= 0 && data.length >= pos + 2 && (data[pos] & 0xFF) == 0xFF && (data[pos + 1] & 0xFF) == marker;
+	}
+
+	private static ByteBuffer read(FileChannel channel, long pos, int length, ByteOrder order) throws IOException {
+		ByteBuffer buf = ByteBuffer.allocate(length).order(order);
+		while (buf.hasRemaining()) {
+			if (channel.read(buf, pos + buf.position()) < 0) {
+				throw new EOFException("Unexpected end of TIFF file.");
+			}
+		}
+		buf.flip();
+		return buf;
+	}
+
+	/**
+	 * The relevant entries of an image file directory.
+	 */
+	private static class Directory {
+
+		private final FileChannel channel;
+
+		private final ByteOrder order;
+
+		private final Map<Integer, Entry> entries = new HashMap<Integer, Entry>();
+
+		private Directory(FileChannel channel, ByteOrder order) {
+			this.channel = channel;
+			this.order = order;
+		}
+
+		static Directory read(FileChannel channel, int imageIndex) throws IOException {
+			ByteBuffer header = JpegTileIndex.read(channel, 0, 8, BIG_ENDIAN);
+			int byteOrder = header.getShort(0);
+			ByteOrder order;
+			if (byteOrder == 0x4949) {
+				order = LITTLE_ENDIAN;
+			}
+			else if (byteOrder == 0x4D4D) {
+				order = BIG_ENDIAN;
+			}
+			else {
+				throw new IOException("Not a TIFF file.");
+			}
+			header.order(order);
+			int version = header.getShort(2) & 0xFFFF;
+			boolean bigTiff;
+			long ifd;
+			if (version == 42) {
+				bigTiff = false;
+				ifd = header.getInt(4) & 0xFFFFFFFFL;
+			}
+			else if (version == 43) {
+				bigTiff = true;
+				ifd = JpegTileIndex.read(channel, 8, 8, order).getLong();
+			}
+			else {
+				throw new IOException("Not a TIFF file, unknown version " + version + ".");
+			}
+			int countSize = bigTiff ? 8 : 2;
+			int entrySize = bigTiff ? 20 : 12;
+			int valueSize = bigTiff ? 8 : 4;
+			for (int i = 0; ifd != 0; i++) {
+				ByteBuffer buf = JpegTileIndex.read(channel, ifd, countSize, order);
+				long numEntries = bigTiff ? buf.getLong() : buf.getShort() & 0xFFFF;
+				if (numEntries < 0 || numEntries > 0xFFFF) {
+					throw new IOException("Invalid TIFF directory at offset " + ifd + ".");
+				}
+				long entriesStart = ifd + countSize;
+				buf = JpegTileIndex.read(channel, entriesStart, (int) numEntries * entrySize + valueSize, order);
+				if (i < imageIndex) {
+					buf.position((int) numEntries * entrySize);
+					ifd = bigTiff ? buf.getLong() : buf.getInt() & 0xFFFFFFFFL;
+					continue;
+				}
+				Directory dir = new Directory(channel, order);
+				for (int e = 0; e < numEntries; e++) {
+					int tag = buf.getShort() & 0xFFFF;
+					int type = buf.getShort() & 0xFFFF;
+					long count = bigTiff ? buf.getLong() : buf.getInt() & 0xFFFFFFFFL;
+					long position = entriesStart + (long) e * entrySize + entrySize - valueSize;
+					if (count * getTypeSize(type) > valueSize) {
+						position = bigTiff ? buf.getLong() : buf.getInt() & 0xFFFFFFFFL;
+					}
+					else {
+						buf.position(buf.position() + valueSize);
+					}
+					dir.entries.put(tag, new Entry(type, count, position));
+				}
+				return dir;
+			}
+			return null;
+		}
+
+		int getInt(int tag, int defaultValue) throws IOException {
+			long[] values = getValues(tag);
+			if (values == null || values.length == 0) {
+				return defaultValue;
+			}
+			return (int) values[0];
+		}
+
+		long[] getValues(int tag) throws IOException {
+			Entry entry = entries.get(tag);
+			if (entry == null) {
+				return null;
+			}
+			int typeSize = getTypeSize(entry.type);
+			if (typeSize == 0 || entry.count > Integer.MAX_VALUE / 8) {
+				throw new IOException("Unsupported value of TIFF tag " + tag + ".");
+			}
+			int count = (int) entry.count;
+			ByteBuffer buf = JpegTileIndex.read(channel, entry.position, count * typeSize, order);
+			long[] values = new long[count];
+			for (int i = 0; i < count; i++) {
+				switch (entry.type) {
+					case 1:
+					case 7:
+						values[i] = buf.get() & 0xFF;
+						break;
+					case 3:
+						values[i] = buf.getShort() & 0xFFFF;
+						break;
+					case 4:
+						values[i] = buf.getInt() & 0xFFFFFFFFL;
+						break;
+					default:
+						values[i] = buf.getLong();
+				}
+			}
+			return values;
+		}
+
+		/**
+		 * @return the size of the supported (unsigned integer) types in bytes, 0 for all
+		 * other types
+		 */
+		private static int getTypeSize(int type) {
+			switch (type) {
+				case 1: // BYTE
+				case 7: // UNDEFINED
+					return 1;
+				case 3: // SHORT
+					return 2;
+				case 4: // LONG
+					return 4;
+				case 16: // LONG8
+					return 8;
+				default:
+					return 0;
+			}
+		}
+
+	}
+
+	private static class Entry {
+
+		private final int type;
+
+		private final long count;
+
+		private final long position;
+
+		private Entry(int type, long count, long position) {
+			this.type = type;
+			this.count = count;
+			this.position = position;
+		}
+
+	}
+
+}
@@ -0,0 +1,343 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.tile.persistence.geotiff;
+
+import java.awt.Image;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.BitSet;
+import java.util.TreeMap;
+import java.util.Vector;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.deegree.coverage.raster.data.info.RasterDataInfo;
+import org.deegree.coverage.raster.data.nio.ByteBufferRasterData;
+import org.deegree.coverage.raster.utils.RasterFactory;
+
+/**
+ * One level of a pyramid, as tiled image that is handed to the TIFF writer. Tiles are
+ * computed on demand, a row of tiles at a time. The rows following the requested one are
+ * computed in advance by the workers of an executor, at most a fixed number of rows is
+ * kept in memory. Computed tiles are also written to a {@link TileSpool}, if one is
+ * given, to serve as source of the next level.
+ *
+ * @see GeoTiffPyramidBuilder
+ */
+class PyramidLevel implements RenderedImage {
+
+	/**
+	 * Produces the tiles of a level.
+	 */
+	interface TileProducer {
+
+		/**
+		 * @param x tile column
+		 * @param y tile row
+		 * @return the tile, pixel interleaved and of the tile size of the level
+		 * @throws IOException
+		 */
+		ByteBufferRasterData produce(int x, int y) throws IOException;
+
+	}
+
+	private final int width;
+
+	private final int height;
+
+	private final int tileSize;
+
+	private final int numX;
+
+	private final int numY;
+
+	private final TileProducer producer;
+
+	private final TileSpool spool;
+
+	private final ExecutorService executor;
+
+	private final int lookAhead;
+
+	private final SampleModel sampleModel;
+
+	private final ColorModel colorModel;
+
+	private final TreeMap<Integer, Future<Raster[]>> rows = new TreeMap<>();
+
+	private final BitSet finished = new BitSet();
+
+	private int nextRow;
+
+	/**
+	 * @param width width of the level in pixels
+	 * @param height height of the level in pixels
+	 * @param tileSize width and height of the tiles in pixels
+	 * @param info describes the bands and data type of the tiles
+	 * @param producer computes the tiles
+	 * @param spool receives the computed tiles, may be <code>null</code>
+	 * @param executor runs the workers
+	 * @param lookAhead maximum number of tile rows computed in advance
+	 */
+	PyramidLevel(int width, int height, int tileSize, RasterDataInfo info, TileProducer producer, TileSpool spool,
+			ExecutorService executor, int lookAhead) {
+		this.width = width;
+		this.height = height;
+		this.tileSize = tileSize;
+		this.numX = (width + tileSize - 1) / tileSize;
+		this.numY = (height + tileSize - 1) / tileSize;
+		this.producer = producer;
+		this.spool = spool;
+		this.executor = executor;
+		this.lookAhead = Math.max(1, lookAhead);
+		BufferedImage prototype = RasterFactory.rasterDataToImage(TileSpool.createTile(info, tileSize));
+		this.sampleModel = prototype.getSampleModel();
+		this.colorModel = prototype.getColorModel();
+	}
+
+	/**
+	 * Waits for the workers of this level, and checks that all tiles have been computed
+	 * (and spooled).
+	 * @throws IOException if computing a tile failed
+	 */
+	void finish() throws IOException {
+		while (true) {
+			Future<Raster[]> row;
+			synchronized (rows) {
+				if (rows.isEmpty()) {
+					break;
+				}
+				row = rows.pollFirstEntry().getValue();
+			}
+			get(row);
+		}
+		synchronized (finished) {
+			if (finished.cardinality() != numY) {
+				throw new IOException("Only " + finished.cardinality() + " of " + numY + " tile rows were written.");
+			}
+		}
+	}
+
+	@Override
+	public Raster getTile(int tileX, int tileY) {
+		return get(getRow(tileY))[tileX];
+	}
+
+	private Future<Raster[]> getRow(int y) {
+		synchronized (rows) {
+			// the writer proceeds row by row, previous rows are not needed anymore
+			rows.headMap(y).clear();
+			int end = Math.min(numY, y + lookAhead);
+			while (nextRow < end) {
+				int r = nextRow++;
+				rows.put(r, executor.submit(() -> computeRow(r)));
+			}
+			Future<Raster[]> row = rows.get(y);
+			if (row == null) {
+				// requested again after it was dropped
+				row = executor.submit(() -> computeRow(y));
+				rows.put(y, row);
+			}
+			return row;
+		}
+	}
+
+	private Raster[] computeRow(int y) throws IOException {
+		Raster[] tiles = new Raster[numX];
+		for (int x = 0; x < numX; ++x) {
+			ByteBufferRasterData data = producer.produce(x, y);
+			if (spool != null) {
+				spool.write(x, y, data);
+			}
+			WritableRaster raster = RasterFactory.rasterDataToImage(data).getRaster();
+			tiles[x] = raster.createTranslatedChild(x * tileSize, y * tileSize);
+		}
+		synchronized (finished) {
+			finished.set(y);
+		}
+		return tiles;
+	}
+
+	private static Raster[] get(Future<Raster[]> row) {
+		try {
+			return row.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while computing the pyramid.", e);
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw new UncheckedIOException((IOException) e.getCause());
+			}
+			throw new IllegalStateException(e.getCause().getMessage(), e.getCause());
+		}
+	}
+
+	@Override
+	public Raster getData() {
+		return getData(new Rectangle(0, 0, width, height));
+	}
+
+	@Override
+	public Raster getData(Rectangle rect) {
+		int x0 = rect.x / tileSize;
+		int y0 = rect.y / tileSize;
+		if (rect.x % tileSize == 0 && rect.y % tileSize == 0 && rect.width == tileSize
+				&& rect.height == tileSize) {
+			return getTile(x0, y0);
+		}
+		return copyData(createRaster(rect));
+	}
+
+	@Override
+	public WritableRaster copyData(WritableRaster raster) {
+		if (raster == null) {
+			raster = createRaster(new Rectangle(0, 0, width, height));
+		}
+		Rectangle bounds = raster.getBounds().intersection(new Rectangle(0, 0, width, height));
+		if (bounds.isEmpty()) {
+			return raster;
+		}
+		int x1 = (bounds.x + bounds.width - 1) / tileSize;
+		int y1 = (bounds.y + bounds.height - 1) / tileSize;
+		for (int y = bounds.y / tileSize; y <= y1; ++y) {
+			for (int x = bounds.x / tileSize; x <= x1; ++x) {
+				raster.setRect(getTile(x, y));
+			}
+		}
+		return raster;
+	}
+
+	private WritableRaster createRaster(Rectangle rect) {
+		SampleModel sm = sampleModel.createCompatibleSampleModel(rect.width, rect.height);
+		return Raster.createWritableRaster(sm, new Point(rect.x, rect.y));
+	}
+
+	@Override
+	public Vector<RenderedImage> getSources() {
+		return null;
+	}
+
+	@Override
+	public Object getProperty(String name) {
+		return Image.UndefinedProperty;
+	}
+
+	@Override
+	public String[] getPropertyNames() {
+		return null;
+	}
+
+	@Override
+	public ColorModel getColorModel() {
+		return colorModel;
+	}
+
+	@Override
+	public SampleModel getSampleModel() {
+		return sampleModel;
+	}
+
+	@Override
+	public int getWidth() {
+		return width;
+	}
+
+	@Override
+	public int getHeight() {
+		return height;
+	}
+
+	@Override
+	public int getMinX() {
+		return 0;
+	}
+
+	@Override
+	public int getMinY() {
+		return 0;
+	}
+
+	@Override
+	public int getNumXTiles() {
+		return numX;
+	}
+
+	@Override
+	public int getNumYTiles() {
+		return numY;
+	}
+
+	@Override
+	public int getMinTileX() {
+		return 0;
+	}
+
+	@Override
+	public int getMinTileY() {
+		return 0;
+	}
+
+	@Override
+	public int getTileWidth() {
+		return tileSize;
+	}
+
+	@Override
+	public int getTileHeight() {
+		return tileSize;
+	}
+
+	@Override
+	public int getTileGridXOffset() {
+		return 0;
+	}
+
+	@Override
+	public int getTileGridYOffset() {
+		return 0;
+	}
+
+}
@@ -0,0 +1,148 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.tile.persistence.geotiff;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.DELETE_ON_CLOSE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.deegree.coverage.raster.data.RasterDataFactory;
+import org.deegree.coverage.raster.data.info.RasterDataInfo;
+import org.deegree.coverage.raster.data.nio.ByteBufferRasterData;
+
+/**
+ * Temporary file holding the uncompressed tiles of one pyramid level, so the next
+ * (coarser) level can be computed from it without keeping the level in memory. Tiles are
+ * stored at fixed offsets and can be written and read concurrently.
+ *
+ * @see GeoTiffPyramidBuilder
+ */
+class TileSpool implements Closeable {
+
+	private final FileChannel channel;
+
+	private final RasterDataInfo info;
+
+	private final int tileSize;
+
+	private final int numX;
+
+	private final int tileBytes;
+
+	/**
+	 * @param dir directory to create the temporary file in, may be <code>null</code>
+	 * (default temporary directory)
+	 * @param info describes the (pixel interleaved) tiles
+	 * @param tileSize width and height of the tiles in pixels
+	 * @param numX number of tile columns
+	 * @throws IOException if the file could not be created
+	 */
+	TileSpool(File dir, RasterDataInfo info, int tileSize, int numX) throws IOException {
+		File file = File.createTempFile("pyramid", ".tiles", dir);
+		this.channel = FileChannel.open(file.toPath(), CREATE, READ, WRITE, DELETE_ON_CLOSE);
+		this.info = info;
+		this.tileSize = tileSize;
+		this.numX = numX;
+		this.tileBytes = tileSize * tileSize * info.bands * info.dataSize;
+	}
+
+	/**
+	 * @param x tile column
+	 * @param y tile row
+	 * @param tile the tile to store, must have been created by
+	 * {@link #createTile(RasterDataInfo, int)}
+	 * @throws IOException
+	 */
+	void write(int x, int y, ByteBufferRasterData tile) throws IOException {
+		ByteBuffer buf = tile.getByteBuffer().duplicate();
+		buf.clear();
+		buf.limit(tileBytes);
+		long pos = offset(x, y);
+		while (buf.hasRemaining()) {
+			pos += channel.write(buf, pos);
+		}
+	}
+
+	/**
+	 * @param x tile column
+	 * @param y tile row
+	 * @return the tile, never <code>null</code>
+	 * @throws IOException if the tile has not been written before
+	 */
+	ByteBufferRasterData read(int x, int y) throws IOException {
+		ByteBufferRasterData tile = createTile(info, tileSize);
+		ByteBuffer buf = tile.getByteBuffer().duplicate();
+		buf.clear();
+		buf.limit(tileBytes);
+		long pos = offset(x, y);
+		while (buf.hasRemaining()) {
+			int read = channel.read(buf, pos);
+			if (read < 0) {
+				throw new EOFException("Tile " + x + "/" + y + " has not been written.");
+			}
+			pos += read;
+		}
+		return tile;
+	}
+
+	/**
+	 * @param info describes the bands and the data type
+	 * @param tileSize width and height of the tile in pixels
+	 * @return a new pixel interleaved tile filled with no data values
+	 */
+	static ByteBufferRasterData createTile(RasterDataInfo info, int tileSize) {
+		ByteBufferRasterData tile = RasterDataFactory.createRasterData(tileSize, tileSize, info, null, false);
+		tile.fillWithNoData();
+		return tile;
+	}
+
+	private long offset(int x, int y) {
+		return ((long) y * numX + x) * tileBytes;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+}
@@ -0,0 +1,163 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.tile.persistence.geotiff;
+
+import static java.awt.image.BufferedImage.TYPE_BYTE_GRAY;
+import static org.deegree.coverage.raster.geom.RasterGeoReference.OriginLocation.OUTER;
+import static org.junit.Assert.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import it.geosolutions.imageioimpl.plugins.tiff.TIFFImageReader;
+import org.deegree.coverage.raster.AbstractRaster;
+import org.deegree.coverage.raster.utils.RasterFactory;
+import org.deegree.geometry.Envelope;
+import org.deegree.geometry.GeometryFactory;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests for {@link GeoTiffPyramidBuilder}.
+ */
+public class GeoTiffPyramidBuilderTest {
+
+	private File file;
+
+	@After
+	public void cleanup() {
+		if (file != null) {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testBuildPyramid() throws IOException {
+		file = File.createTempFile("pyramid", ".tif");
+		int levels = new GeoTiffPyramidBuilder(createRaster(600, 300), 256, "Deflate", 3).build(file);
+		assertEquals(3, levels);
+
+		ImageReader reader = getReader();
+		try (ImageInputStream in = ImageIO.createImageInputStream(file)) {
+			reader.setInput(in);
+			assertEquals(3, reader.getNumImages(true));
+			int[][] sizes = { { 600, 300 }, { 300, 150 }, { 150, 75 } };
+			for (int i = 0; i < sizes.length; ++i) {
+				assertEquals(sizes[i][0], reader.getWidth(i));
+				assertEquals(sizes[i][1], reader.getHeight(i));
+				assertEquals(256, reader.getTileWidth(i));
+				assertEquals(256, reader.getTileHeight(i));
+			}
+
+			// level 0 is a copy of the source
+			BufferedImage level = reader.read(0);
+			assertEquals(0, level.getRaster().getSample(0, 0, 0));
+			assertEquals(200, level.getRaster().getSample(599, 299, 0));
+
+			// overviews average 2x2 pixel blocks
+			level = reader.read(1);
+			assertEquals(100, level.getRaster().getSample(0, 0, 0));
+			assertEquals(100, level.getRaster().getSample(299, 149, 0));
+			level = reader.read(2);
+			assertEquals(100, level.getRaster().getSample(149, 74, 0));
+
+			Envelope env = GeoTiffUtils.getEnvelope(reader.getImageMetadata(0), 600, 300, null);
+			assertEquals(0, env.getMin().get0(), 1E-9);
+			assertEquals(0, env.getMin().get1(), 1E-9);
+			assertEquals(600, env.getMax().get0(), 1E-9);
+			assertEquals(300, env.getMax().get1(), 1E-9);
+		}
+		finally {
+			reader.dispose();
+		}
+	}
+
+	@Test
+	public void testOddSizes() throws IOException {
+		file = File.createTempFile("pyramid", ".tif");
+		int levels = new GeoTiffPyramidBuilder(createRaster(513, 257), 256, null, 2).build(file);
+		assertEquals(3, levels);
+
+		ImageReader reader = getReader();
+		try (ImageInputStream in = ImageIO.createImageInputStream(file)) {
+			reader.setInput(in);
+			assertEquals(257, reader.getWidth(1));
+			assertEquals(129, reader.getHeight(1));
+			assertEquals(129, reader.getWidth(2));
+			assertEquals(65, reader.getHeight(2));
+			BufferedImage level = reader.read(1);
+			assertEquals(100, level.getRaster().getSample(255, 0, 0));
+			// the last column only covers source column 512
+			assertEquals(0, level.getRaster().getSample(256, 128, 0));
+		}
+		finally {
+			reader.dispose();
+		}
+	}
+
+	/**
+	 * @return a raster with alternating columns of 0 and 200
+	 */
+	private static AbstractRaster createRaster(int width, int height) {
+		BufferedImage img = new BufferedImage(width, height, TYPE_BYTE_GRAY);
+		WritableRaster raster = img.getRaster();
+		for (int y = 0; y < height; ++y) {
+			for (int x = 0; x < width; ++x) {
+				raster.setSample(x, y, 0, x % 2 == 0 ? 0 : 200);
+			}
+		}
+		Envelope env = new GeometryFactory().createEnvelope(0, 0, width, height, null);
+		return RasterFactory.createRasterFromImage(img, env, OUTER);
+	}
+
+	private static ImageReader getReader() {
+		Iterator<ImageReader> readers = ImageIO.getImageReadersByFormatName("tiff");
+		while (readers.hasNext()) {
+			ImageReader reader = readers.next();
+			if (reader instanceof TIFFImageReader) {
+				return reader;
+			}
+		}
+		throw new IllegalStateException("No imageio-ext TIFF reader available.");
+	}
+
+}
@@ -0,0 +1,155 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.tile.persistence.geotiff;
+
+import static java.awt.image.BufferedImage.TYPE_INT_RGB;
+import static javax.imageio.ImageWriteParam.MODE_EXPLICIT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests for {@link JpegTileIndex}.
+ */
+public class JpegTileIndexTest {
+
+	private File file;
+
+	@After
+	public void cleanup() {
+		if (file != null) {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testReadJpegTile() throws IOException {
+		file = writeTiff("JPEG");
+		JpegTileIndex index = JpegTileIndex.open(file, 0, 256, 256);
+		assertNotNull(index);
+		byte[] jpeg = index.read(1, 1);
+		assertNotNull(jpeg);
+		BufferedImage tile = ImageIO.read(new ByteArrayInputStream(jpeg));
+		assertEquals(256, tile.getWidth());
+		assertEquals(256, tile.getHeight());
+		BufferedImage expected = readTile(file, 1, 1);
+		// the reference reader clips the tile at the image bounds
+		for (int y = 0; y < expected.getHeight(); y += 5) {
+			for (int x = 0; x < expected.getWidth(); x += 5) {
+				assertEquals(expected.getRGB(x, y), tile.getRGB(x, y));
+			}
+		}
+	}
+
+	@Test
+	public void testTileOutsideImage() throws IOException {
+		file = writeTiff("JPEG");
+		JpegTileIndex index = JpegTileIndex.open(file, 0, 256, 256);
+		assertNull(index.read(3, 0));
+		assertNull(index.read(0, 2));
+	}
+
+	@Test
+	public void testDifferentTileSize() throws IOException {
+		file = writeTiff("JPEG");
+		assertNull(JpegTileIndex.open(file, 0, 512, 512));
+	}
+
+	@Test
+	public void testMissingImage() throws IOException {
+		file = writeTiff("JPEG");
+		assertNull(JpegTileIndex.open(file, 1, 256, 256));
+	}
+
+	@Test
+	public void testNotJpegCompressed() throws IOException {
+		file = writeTiff("Deflate");
+		assertNull(JpegTileIndex.open(file, 0, 256, 256));
+	}
+
+	private static File writeTiff(String compression) throws IOException {
+		BufferedImage img = new BufferedImage(600, 300, TYPE_INT_RGB);
+		Graphics2D g = img.createGraphics();
+		g.setPaint(new GradientPaint(0, 0, Color.RED, 600, 300, Color.BLUE));
+		g.fillRect(0, 0, 600, 300);
+		g.dispose();
+		File file = File.createTempFile("jpegtiles", ".tif");
+		ImageWriter writer = ImageIO.getImageWritersByFormatName("tiff").next();
+		ImageWriteParam param = writer.getDefaultWriteParam();
+		param.setTilingMode(MODE_EXPLICIT);
+		param.setTiling(256, 256, 0, 0);
+		param.setCompressionMode(MODE_EXPLICIT);
+		param.setCompressionType(compression);
+		try (ImageOutputStream out = ImageIO.createImageOutputStream(file)) {
+			writer.setOutput(out);
+			writer.write(null, new IIOImage(img, null, null), param);
+		}
+		finally {
+			writer.dispose();
+		}
+		return file;
+	}
+
+	private static BufferedImage readTile(File file, int x, int y) throws IOException {
+		ImageReader reader = ImageIO.getImageReadersByFormatName("tiff").next();
+		try (ImageInputStream in = ImageIO.createImageInputStream(file)) {
+			reader.setInput(in);
+			return reader.readTile(0, x, y);
+		}
+		finally {
+			reader.dispose();
+		}
+	}
+
+}
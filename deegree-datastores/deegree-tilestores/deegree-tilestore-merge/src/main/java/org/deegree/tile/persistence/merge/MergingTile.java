@@ -43,15 +43,17 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Iterator;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import javax.imageio.ImageIO;
 
+import org.apache.commons.io.IOUtils;
 import org.deegree.feature.FeatureCollection;
 import org.deegree.geometry.Envelope;
 import org.deegree.tile.Tile;
 import org.deegree.tile.TileIOException;
+import org.deegree.tile.Tiles;
 
 /**
  * {@link Tile} implementation used by {@link MergingTileStore}.
@@ -70,13 +72,28 @@ class MergingTile implements Tile {
 
 	@Override
 	public BufferedImage getAsImage() throws TileIOException {
-		Iterator<Tile> itr = tiles.iterator();
-		Tile firstTile = itr.next();
-		BufferedImage img = firstTile.getAsImage();
+		return merge(null);
+	}
+
+	/**
+	 * Merges the tile images, starting with the topmost one. Tiles below an opaque image
+	 * are hidden anyway, so they are neither fetched nor decoded.
+	 * @param topImage already decoded image of the topmost tile, can be <code>null</code>
+	 * @return merged image, never <code>null</code>
+	 */
+	private BufferedImage merge(BufferedImage topImage) throws TileIOException {
+		int last = tiles.size() - 1;
+		BufferedImage[] images = new BufferedImage[tiles.size()];
+		images[last] = topImage != null ? topImage : tiles.get(last).getAsImage();
+		int bottom = last;
+		while (bottom > 0 && !isOpaque(images[bottom])) {
+			bottom--;
+			images[bottom] = tiles.get(bottom).getAsImage();
+		}
+		BufferedImage img = images[bottom];
 		Graphics g = img.getGraphics();
-		while (itr.hasNext()) {
-			Tile nextTile = itr.next();
-			BufferedImage nextImage = nextTile.getAsImage();
+		for (int i = bottom + 1; i <= last; i++) {
+			BufferedImage nextImage = images[i];
 			if (nextImage.getColorModel().hasAlpha()) {
 				g.drawImage(nextImage, 0, 0, null);
 			}
@@ -87,6 +104,26 @@ class MergingTile implements Tile {
 		return img;
 	}
 
+	/**
+	 * Determines whether an image completely covers the images below it, i.e. it has no
+	 * translucent pixels and (if it has no alpha channel) no white pixels, as these are
+	 * made translucent when merging.
+	 */
+	private static boolean isOpaque(BufferedImage img) {
+		boolean hasAlpha = img.getColorModel().hasAlpha();
+		int width = img.getWidth();
+		int[] row = new int[width];
+		for (int y = 0; y < img.getHeight(); y++) {
+			img.getRGB(0, y, width, 1, row, 0, width);
+			for (int rgb : row) {
+				if (hasAlpha ? (rgb >>> 24) != 0xFF : rgb == WHITE.getRGB()) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
 	private Image makeColorTranslucent(final BufferedImage image, final Color translucentColor) {
 		final int transparentRgb = translucentColor.getRGB();
 		final ImageFilter filter = new RGBImageFilter() {
@@ -105,7 +142,23 @@ class MergingTile implements Tile {
 	public InputStream getAsStream() throws TileIOException {
 		ByteArrayOutputStream output = new ByteArrayOutputStream();
 		try {
-			BufferedImage img = getAsImage();
+			BufferedImage topImage = null;
+			Tile top = tiles.get(tiles.size() - 1);
+			if (MergingTileStore.FORMAT.equals(top.getEncodedFormat())) {
+				byte[] encoded;
+				try (InputStream in = top.getAsStream()) {
+					encoded = IOUtils.toByteArray(in);
+				}
+				topImage = ImageIO.read(new ByteArrayInputStream(encoded));
+				if (topImage == null) {
+					throw new TileIOException("Could not decode tile image.");
+				}
+				if (isOpaque(topImage)) {
+					// hides all other tiles and is already encoded in the output format
+					return new ByteArrayInputStream(encoded);
+				}
+			}
+			BufferedImage img = merge(topImage);
 			if (img.getTransparency() != BufferedImage.OPAQUE) {
 				final int width = img.getWidth();
 				final int height = img.getHeight();
@@ -125,6 +178,42 @@ class MergingTile implements Tile {
 		return new ByteArrayInputStream(output.toByteArray());
 	}
 
+	@Override
+	public String getEncodedFormat() {
+		return MergingTileStore.FORMAT;
+	}
+
+	/**
+	 * Combines the versions of the merged tiles, so merging is not necessary to validate
+	 * a merged tile.
+	 * @return <code>null</code>, if the version of any of the merged tiles is unknown
+	 */
+	@Override
+	public String getVersion() throws TileIOException {
+		StringBuilder sb = new StringBuilder();
+		for (Tile tile : tiles) {
+			String version = tile.getVersion();
+			if (version == null) {
+				return null;
+			}
+			sb.append(version).append('/');
+		}
+		return Tiles.getVersion(sb.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Override
+	public long getLastModified() {
+		long lastModified = -1;
+		for (Tile tile : tiles) {
+			long tileModified = tile.getLastModified();
+			if (tileModified < 0) {
+				return -1;
+			}
+			lastModified = Math.max(lastModified, tileModified);
+		}
+		return lastModified;
+	}
+
 	@Override
 	public Envelope getEnvelope() {
 		return tiles.get(0).getEnvelope();
@@ -61,7 +61,7 @@ class MergingTileStore implements TileStore {
 
 	private static final Logger LOG = getLogger(MergingTileStore.class);
 
-	private final static String FORMAT = "image/jpeg";
+	final static String FORMAT = "image/jpeg";
 
 	private final ResourceMetadata<TileStore> metadata;
 
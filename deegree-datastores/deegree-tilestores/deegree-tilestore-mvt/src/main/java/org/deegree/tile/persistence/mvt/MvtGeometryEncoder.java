@@ -0,0 +1,309 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.tile.persistence.mvt;
+
+import static org.deegree.tile.persistence.mvt.ProtobufWriter.zigZag;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Encodes geometries as vector tile geometry commands.
+ * <p>
+ * Coordinates are quantized to the integer grid of the tile, with the origin in the upper
+ * left corner. Consecutive duplicate positions are dropped, as are lines and rings that
+ * collapse when quantized. Polygon rings are oriented as required by the specification:
+ * exterior rings clockwise, interior rings counter-clockwise (with the y axis pointing
+ * down). One instance encodes the geometry of one feature at a time and is reused:
+ * {@link #reset()}, add the geometries, {@link #finish()}.
+ * </p>
+ */
+class MvtGeometryEncoder {
+
+	static final int POINT = 1;
+
+	static final int LINESTRING = 2;
+
+	static final int POLYGON = 3;
+
+	private static final int MOVE_TO = 1;
+
+	private static final int LINE_TO = 2;
+
+	private static final int CLOSE_PATH = 7;
+
+	private final double minX;
+
+	private final double maxY;
+
+	private final double scaleX;
+
+	private final double scaleY;
+
+	private int[] commands = new int[64];
+
+	private int length;
+
+	private int type;
+
+	private int cursorX, cursorY;
+
+	private int[] xs = new int[64];
+
+	private int[] ys = new int[64];
+
+	private int numPoints;
+
+	/**
+	 * @param minX minimum x of the tile (without buffer)
+	 * @param minY minimum y of the tile (without buffer)
+	 * @param maxX maximum x of the tile (without buffer)
+	 * @param maxY maximum y of the tile (without buffer)
+	 * @param extent size of the integer grid of the tile
+	 */
+	MvtGeometryEncoder(double minX, double minY, double maxX, double maxY, int extent) {
+		this.minX = minX;
+		this.maxY = maxY;
+		this.scaleX = extent / (maxX - minX);
+		this.scaleY = extent / (maxY - minY);
+	}
+
+	/**
+	 * Starts encoding the geometry of a new feature.
+	 */
+	void reset() {
+		length = 0;
+		numPoints = 0;
+		type = 0;
+		cursorX = 0;
+		cursorY = 0;
+	}
+
+	/**
+	 * Completes encoding the geometry of the current feature, must be called before
+	 * accessing the encoded commands.
+	 */
+	void finish() {
+		if (numPoints > 0) {
+			// all points of a feature are encoded with a single MoveTo command
+			ensureCapacity(1 + 2 * numPoints);
+			commands[length++] = command(MOVE_TO, numPoints);
+			for (int i = 0; i < numPoints; i++) {
+				writePosition(xs[i], ys[i]);
+			}
+			numPoints = 0;
+		}
+	}
+
+	/**
+	 * @return geometry type of the encoded geometry, <code>0</code> if nothing has been
+	 * encoded
+	 */
+	int getType() {
+		return length == 0 ? 0 : type;
+	}
+
+	/**
+	 * @return the encoded commands, only the first {@link #getLength()} are valid
+	 */
+	int[] getCommands() {
+		return commands;
+	}
+
+	/**
+	 * @return number of encoded commands
+	 */
+	int getLength() {
+		return length;
+	}
+
+	/**
+	 * Adds points. A feature can only contain geometries of one type, so points are
+	 * ignored if lines or polygons have already been added.
+	 * @param coords interleaved x and y coordinates, must not be <code>null</code>
+	 * @param n number of points
+	 */
+	void addPoints(double[] coords, int n) {
+		if (n == 0 || !setType(POINT)) {
+			return;
+		}
+		if (xs.length < numPoints + n) {
+			xs = Arrays.copyOf(xs, Math.max(2 * xs.length, numPoints + n));
+			ys = Arrays.copyOf(ys, xs.length);
+		}
+		for (int i = 0; i < n; i++) {
+			xs[numPoints] = quantizeX(coords[2 * i]);
+			ys[numPoints] = quantizeY(coords[2 * i + 1]);
+			numPoints++;
+		}
+	}
+
+	/**
+	 * Adds a line string. Ignored if points or polygons have already been added.
+	 * @param coords interleaved x and y coordinates, must not be <code>null</code>
+	 * @param n number of positions
+	 */
+	void addLineString(double[] coords, int n) {
+		if (!setType(LINESTRING)) {
+			return;
+		}
+		int count = quantize(coords, n);
+		if (count < 2) {
+			return;
+		}
+		writePath(count, false);
+	}
+
+	/**
+	 * Adds a polygon. Ignored if points or lines have already been added.
+	 * @param rings exterior ring followed by the interior rings, each as interleaved x
+	 * and y coordinates, must not be <code>null</code>
+	 * @param sizes number of positions of each ring
+	 */
+	void addPolygon(List<double[]> rings, int[] sizes) {
+		if (rings.isEmpty() || !setType(POLYGON)) {
+			return;
+		}
+		for (int r = 0; r < rings.size(); r++) {
+			int count = quantize(rings.get(r), sizes[r]);
+			if (count > 1 && xs[0] == xs[count - 1] && ys[0] == ys[count - 1]) {
+				// closing position is implied by ClosePath
+				count--;
+			}
+			long area = count < 3 ? 0 : area(count);
+			if (area == 0) {
+				if (r == 0) {
+					// exterior ring collapsed, so does the polygon
+					return;
+				}
+				continue;
+			}
+			boolean exterior = r == 0;
+			if ((area > 0) != exterior) {
+				reverse(count);
+			}
+			writePath(count, true);
+		}
+	}
+
+	private boolean setType(int newType) {
+		if ((length > 0 || numPoints > 0) && type != newType) {
+			return false;
+		}
+		type = newType;
+		return true;
+	}
+
+	private int quantize(double[] coords, int n) {
+		if (xs.length < n) {
+			xs = new int[n];
+			ys = new int[n];
+		}
+		int count = 0;
+		for (int i = 0; i < n; i++) {
+			int x = quantizeX(coords[2 * i]);
+			int y = quantizeY(coords[2 * i + 1]);
+			if (count == 0 || x != xs[count - 1] || y != ys[count - 1]) {
+				xs[count] = x;
+				ys[count] = y;
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return twice the signed area of the quantized ring, positive if clockwise in tile
+	 * coordinates
+	 */
+	private long area(int count) {
+		long sum = 0;
+		for (int i = 0, j = count - 1; i < count; j = i++) {
+			sum += (long) xs[j] * ys[i] - (long) xs[i] * ys[j];
+		}
+		return sum;
+	}
+
+	private void reverse(int count) {
+		// keeps the start position, so the ring still begins where the source ring did
+		for (int i = 1, j = count - 1; i < j; i++, j--) {
+			int t = xs[i];
+			xs[i] = xs[j];
+			xs[j] = t;
+			t = ys[i];
+			ys[i] = ys[j];
+			ys[j] = t;
+		}
+	}
+
+	private void writePath(int count, boolean close) {
+		ensureCapacity(2 * count + 3);
+		commands[length++] = command(MOVE_TO, 1);
+		writePosition(xs[0], ys[0]);
+		commands[length++] = command(LINE_TO, count - 1);
+		for (int i = 1; i < count; i++) {
+			writePosition(xs[i], ys[i]);
+		}
+		if (close) {
+			commands[length++] = command(CLOSE_PATH, 1);
+		}
+	}
+
+	private void writePosition(int x, int y) {
+		commands[length++] = zigZag(x - cursorX);
+		commands[length++] = zigZag(y - cursorY);
+		cursorX = x;
+		cursorY = y;
+	}
+
+	private int quantizeX(double x) {
+		return (int) Math.round((x - minX) * scaleX);
+	}
+
+	private int quantizeY(double y) {
+		return (int) Math.round((maxY - y) * scaleY);
+	}
+
+	private void ensureCapacity(int additional) {
+		if (length + additional > commands.length) {
+			commands = Arrays.copyOf(commands, Math.max(commands.length * 2, length + additional));
+		}
+	}
+
+	private static int command(int id, int count) {
+		return (id & 0x7) | (count << 3);
+	}
+
+}
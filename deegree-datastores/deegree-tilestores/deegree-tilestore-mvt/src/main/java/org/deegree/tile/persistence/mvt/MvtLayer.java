@@ -0,0 +1,210 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.tile.persistence.mvt;
+
+import static org.deegree.tile.persistence.mvt.ProtobufWriter.zigZag;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Encodes the features of one layer of a vector tile.
+ * <p>
+ * Features are written to the layer buffer as they are added, attribute keys and values
+ * are collected in dictionaries, so each distinct key and value is encoded only once per
+ * layer.
+ * </p>
+ */
+class MvtLayer {
+
+	private static final int VERSION = 2;
+
+	private final String name;
+
+	private final int extent;
+
+	private final Map<String, Integer> keys = new LinkedHashMap<String, Integer>();
+
+	private final Map<Object, Integer> values = new LinkedHashMap<Object, Integer>();
+
+	private final ProtobufWriter features = new ProtobufWriter(4096);
+
+	private final ProtobufWriter feature = new ProtobufWriter();
+
+	private int[] tags = new int[32];
+
+	private int numFeatures;
+
+	/**
+	 * @param name name of the layer, must not be <code>null</code>
+	 * @param extent size of the integer grid of the tile
+	 */
+	MvtLayer(String name, int extent) {
+		this.name = name;
+		this.extent = extent;
+	}
+
+	/**
+	 * @return number of features added so far
+	 */
+	int getNumFeatures() {
+		return numFeatures;
+	}
+
+	/**
+	 * Adds a feature, if its geometry is not empty.
+	 * @param id feature id, <code>-1</code> if unknown
+	 * @param attributes attributes of the feature, values of unsupported types are
+	 * encoded as strings, <code>null</code> values are skipped
+	 * @param geometry encoder holding the finished geometry of the feature, must not be
+	 * <code>null</code>
+	 */
+	void addFeature(long id, Map<String, Object> attributes, MvtGeometryEncoder geometry) {
+		if (geometry.getType() == 0) {
+			return;
+		}
+		feature.reset();
+		if (id >= 0) {
+			feature.writeVarintField(1, id);
+		}
+		int numTags = 0;
+		for (Map.Entry<String, Object> attribute : attributes.entrySet()) {
+			Object value = normalize(attribute.getValue());
+			if (value == null) {
+				continue;
+			}
+			if (tags.length < numTags + 2) {
+				tags = Arrays.copyOf(tags, 2 * tags.length);
+			}
+			tags[numTags++] = index(keys, attribute.getKey());
+			tags[numTags++] = index(values, value);
+		}
+		if (numTags > 0) {
+			feature.writePackedField(2, tags, numTags);
+		}
+		feature.writeVarintField(3, geometry.getType());
+		feature.writePackedField(4, geometry.getCommands(), geometry.getLength());
+		features.writeMessageField(2, feature);
+		numFeatures++;
+	}
+
+	/**
+	 * Writes the layer to the tile, must only be called once.
+	 * @param tile writer of the tile message, must not be <code>null</code>
+	 */
+	void writeTo(ProtobufWriter tile) {
+		ProtobufWriter layer = new ProtobufWriter(features.size() + 1024);
+		layer.writeVarintField(15, VERSION);
+		layer.writeStringField(1, name);
+		layer.writeRaw(features);
+		for (String key : keys.keySet()) {
+			layer.writeStringField(3, key);
+		}
+		ProtobufWriter value = new ProtobufWriter(64);
+		for (Object v : values.keySet()) {
+			value.reset();
+			writeValue(value, v);
+			layer.writeMessageField(4, value);
+		}
+		layer.writeVarintField(5, extent);
+		tile.writeMessageField(3, layer);
+	}
+
+	private static <T> int index(Map<T, Integer> dictionary, T entry) {
+		Integer idx = dictionary.get(entry);
+		if (idx == null) {
+			idx = dictionary.size();
+			dictionary.put(entry, idx);
+		}
+		return idx;
+	}
+
+	/**
+	 * Maps attribute values to the types of the vector tile value message, so equal
+	 * values share a dictionary entry.
+	 * @return a {@link String}, {@link Long}, {@link Double}, {@link Boolean} or
+	 * <code>null</code>
+	 */
+	static Object normalize(Object value) {
+		if (value == null || value instanceof String || value instanceof Boolean || value instanceof Double) {
+			return value;
+		}
+		if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+			return ((Number) value).longValue();
+		}
+		if (value instanceof Float) {
+			return ((Float) value).doubleValue();
+		}
+		if (value instanceof BigInteger) {
+			BigInteger bi = (BigInteger) value;
+			return bi.bitLength() < 64 ? (Object) bi.longValue() : bi.toString();
+		}
+		if (value instanceof BigDecimal) {
+			BigDecimal bd = (BigDecimal) value;
+			try {
+				return bd.longValueExact();
+			}
+			catch (ArithmeticException e) {
+				return bd.doubleValue();
+			}
+		}
+		return value.toString();
+	}
+
+	private static void writeValue(ProtobufWriter writer, Object value) {
+		if (value instanceof String) {
+			writer.writeStringField(1, (String) value);
+		}
+		else if (value instanceof Double) {
+			writer.writeDoubleField(3, (Double) value);
+		}
+		else if (value instanceof Long) {
+			long l = (Long) value;
+			if (l >= 0) {
+				writer.writeVarintField(5, l);
+			}
+			else {
+				writer.writeVarintField(6, zigZag(l));
+			}
+		}
+		else {
+			writer.writeVarintField(7, ((Boolean) value) ? 1 : 0);
+		}
+	}
+
+}
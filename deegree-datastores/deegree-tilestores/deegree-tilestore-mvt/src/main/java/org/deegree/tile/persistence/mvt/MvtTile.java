@@ -0,0 +1,319 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.tile.persistence.mvt;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static org.deegree.commons.utils.MapUtils.DEFAULT_PIXEL_SIZE;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.deegree.commons.tom.TypedObjectNode;
+import org.deegree.commons.tom.gml.property.Property;
+import org.deegree.commons.tom.primitive.PrimitiveValue;
+import org.deegree.cs.coordinatesystems.ICRS;
+import org.deegree.feature.Feature;
+import org.deegree.feature.FeatureCollection;
+import org.deegree.feature.stream.FeatureInputStream;
+import org.deegree.geometry.Envelope;
+import org.deegree.geometry.GeometryFactory;
+import org.deegree.geometry.GeometryTransformer;
+import org.deegree.geometry.standard.AbstractDefaultGeometry;
+import org.deegree.layer.LayerQuery;
+import org.deegree.layer.persistence.feature.FeatureLayer;
+import org.deegree.layer.persistence.feature.FeatureLayerData;
+import org.deegree.rendering.r2d.context.MapOptionsMaps;
+import org.deegree.style.StyleRef;
+import org.deegree.tile.Tile;
+import org.deegree.tile.TileIOException;
+import org.deegree.tile.TileMatrix;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryCollection;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.TopologyException;
+import org.locationtech.jts.simplify.DouglasPeuckerSimplifier;
+import org.slf4j.Logger;
+
+/**
+ * A {@link Tile} that is generated from feature layers and encoded as Mapbox Vector Tile.
+ * <p>
+ * For each layer, the features of the tile (plus a buffer) are queried using the rules of
+ * the configured style, so scale ranges and filters of the style select the features per
+ * zoom level. Geometries are clipped to the buffered tile, simplified with a tolerance
+ * relative to the tile resolution and quantized to the tile grid. Primitive properties
+ * are encoded as attributes.
+ * </p>
+ */
+class MvtTile implements Tile {
+
+	private static final Logger LOG = getLogger(MvtTile.class);
+
+	private static final GeometryFactory FAC = new GeometryFactory();
+
+	private final MvtTileDataLevel level;
+
+	private final Envelope bbox;
+
+	/**
+	 * @param level the tile data level, must not be <code>null</code>
+	 * @param bbox envelope of the tile, must not be <code>null</code>
+	 */
+	MvtTile(MvtTileDataLevel level, Envelope bbox) {
+		this.level = level;
+		this.bbox = bbox;
+	}
+
+	@Override
+	public BufferedImage getAsImage() throws TileIOException {
+		throw new TileIOException("Vector tiles cannot be rendered as image.");
+	}
+
+	@Override
+	public InputStream getAsStream() throws TileIOException {
+		double minX = Math.min(bbox.getMin().get0(), bbox.getMax().get0());
+		double maxX = Math.max(bbox.getMin().get0(), bbox.getMax().get0());
+		double minY = Math.min(bbox.getMin().get1(), bbox.getMax().get1());
+		double maxY = Math.max(bbox.getMin().get1(), bbox.getMax().get1());
+		int extent = level.getExtent();
+		double buffer = level.getBuffer() * (maxX - minX) / extent;
+		org.locationtech.jts.geom.Envelope clip = new org.locationtech.jts.geom.Envelope(minX - buffer,
+				maxX + buffer, minY - buffer, maxY + buffer);
+		ICRS crs = bbox.getCoordinateSystem();
+		Envelope tileBox = FAC.createEnvelope(minX, minY, maxX, maxY, crs);
+		Envelope queryBox = FAC.createEnvelope(clip.getMinX(), clip.getMinY(), clip.getMaxX(), clip.getMaxY(), crs);
+		double tolerance = level.getTolerance() * (maxX - minX) / extent;
+
+		MvtGeometryEncoder encoder = new MvtGeometryEncoder(minX, minY, maxX, maxY, extent);
+		ProtobufWriter tile = new ProtobufWriter(16384);
+		for (Map.Entry<FeatureLayer, StyleRef> layer : level.getLayers().entrySet()) {
+			TileMatrix md = level.getMetadata();
+			LayerQuery query = new LayerQuery(tileBox, (int) md.getTilePixelsX(), (int) md.getTilePixelsY(),
+					layer.getValue(), null, emptyMap(), emptyMap(), DEFAULT_PIXEL_SIZE, new MapOptionsMaps(),
+					queryBox);
+			MvtLayer mvtLayer = new MvtLayer(layer.getKey().getMetadata().getName(), extent);
+			encodeLayer(layer.getKey(), query, mvtLayer, encoder, clip, tolerance, crs);
+			if (mvtLayer.getNumFeatures() > 0) {
+				mvtLayer.writeTo(tile);
+			}
+		}
+		return new ByteArrayInputStream(tile.toByteArray());
+	}
+
+	private void encodeLayer(FeatureLayer layer, LayerQuery query, MvtLayer mvtLayer, MvtGeometryEncoder encoder,
+			org.locationtech.jts.geom.Envelope clip, double tolerance, ICRS crs) {
+		FeatureInputStream features = null;
+		try {
+			FeatureLayerData data = layer.mapQuery(query, emptyList());
+			if (data == null) {
+				return;
+			}
+			features = data.getFeatures();
+			GeometryTransformer transformer = crs == null ? null : new GeometryTransformer(crs);
+			Map<String, Object> attributes = new LinkedHashMap<String, Object>();
+			for (Feature f : features) {
+				Geometry geom = getGeometry(f, transformer);
+				if (geom == null) {
+					continue;
+				}
+				geom = clip(geom, clip);
+				if (geom == null || geom.isEmpty()) {
+					continue;
+				}
+				if (tolerance > 0 && geom.getDimension() > 0) {
+					geom = DouglasPeuckerSimplifier.simplify(geom, tolerance);
+				}
+				encoder.reset();
+				encode(geom, encoder, clip);
+				encoder.finish();
+				attributes.clear();
+				for (Property p : f.getProperties()) {
+					TypedObjectNode value = p.getValue();
+					if (value instanceof PrimitiveValue) {
+						attributes.putIfAbsent(p.getName().getLocalPart(), ((PrimitiveValue) value).getValue());
+					}
+				}
+				mvtLayer.addFeature(parseId(f.getId()), attributes, encoder);
+			}
+		}
+		catch (Exception e) {
+			String msg = "Error generating vector tile for layer " + layer.getMetadata().getName() + ": "
+					+ e.getMessage();
+			LOG.trace(msg, e);
+			throw new TileIOException(msg, e);
+		}
+		finally {
+			if (features != null) {
+				features.close();
+			}
+		}
+	}
+
+	private static Geometry getGeometry(Feature f, GeometryTransformer transformer) {
+		for (Property p : f.getGeometryProperties()) {
+			if (!(p.getValue() instanceof org.deegree.geometry.Geometry)) {
+				continue;
+			}
+			org.deegree.geometry.Geometry geom = (org.deegree.geometry.Geometry) p.getValue();
+			try {
+				if (transformer != null && geom.getCoordinateSystem() != null
+						&& !transformer.getTargetCRS().equals(geom.getCoordinateSystem())) {
+					geom = transformer.transform(geom);
+				}
+				if (geom instanceof AbstractDefaultGeometry) {
+					return ((AbstractDefaultGeometry) geom).getJTSGeometry();
+				}
+			}
+			catch (Exception e) {
+				LOG.debug("Skipping geometry of feature {}: {}", f.getId(), e.getMessage());
+			}
+			return null;
+		}
+		return null;
+	}
+
+	private static Geometry clip(Geometry geom, org.locationtech.jts.geom.Envelope clip) {
+		org.locationtech.jts.geom.Envelope env = geom.getEnvelopeInternal();
+		if (!clip.intersects(env)) {
+			return null;
+		}
+		if (clip.contains(env) || geom.getDimension() == 0) {
+			// points are filtered when encoding
+			return geom;
+		}
+		Geometry clipGeom = geom.getFactory().toGeometry(clip);
+		try {
+			return clipGeom.intersection(geom);
+		}
+		catch (TopologyException e) {
+			if (geom.getDimension() < 2) {
+				return null;
+			}
+			// self-intersecting polygon
+			return clipGeom.intersection(geom.buffer(0));
+		}
+	}
+
+	private static void encode(Geometry geom, MvtGeometryEncoder encoder, org.locationtech.jts.geom.Envelope clip) {
+		if (geom instanceof Point) {
+			Coordinate c = geom.getCoordinate();
+			if (c != null && clip.contains(c)) {
+				encoder.addPoints(new double[] { c.x, c.y }, 1);
+			}
+		}
+		else if (geom instanceof LineString) {
+			CoordinateSequence seq = ((LineString) geom).getCoordinateSequence();
+			encoder.addLineString(toArray(seq), seq.size());
+		}
+		else if (geom instanceof Polygon) {
+			Polygon polygon = (Polygon) geom;
+			List<double[]> rings = new ArrayList<double[]>(polygon.getNumInteriorRing() + 1);
+			int[] sizes = new int[polygon.getNumInteriorRing() + 1];
+			CoordinateSequence seq = polygon.getExteriorRing().getCoordinateSequence();
+			rings.add(toArray(seq));
+			sizes[0] = seq.size();
+			for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
+				seq = polygon.getInteriorRingN(i).getCoordinateSequence();
+				rings.add(toArray(seq));
+				sizes[i + 1] = seq.size();
+			}
+			encoder.addPolygon(rings, sizes);
+		}
+		else if (geom instanceof GeometryCollection) {
+			for (int i = 0; i < geom.getNumGeometries(); i++) {
+				encode(geom.getGeometryN(i), encoder, clip);
+			}
+		}
+	}
+
+	private static double[] toArray(CoordinateSequence seq) {
+		double[] coords = new double[2 * seq.size()];
+		for (int i = 0; i < seq.size(); i++) {
+			coords[2 * i] = seq.getX(i);
+			coords[2 * i + 1] = seq.getY(i);
+		}
+		return coords;
+	}
+
+	/**
+	 * Vector tile feature ids are integers, so the numeric suffix of the feature id is
+	 * used (e.g. <code>42</code> for <code>ROADS_42</code>).
+	 * @return the id, or <code>-1</code> if the id has no numeric suffix
+	 */
+	static long parseId(String id) {
+		if (id == null) {
+			return -1;
+		}
+		int start = id.length();
+		while (start > 0 && Character.isDigit(id.charAt(start - 1))) {
+			start--;
+		}
+		if (start == id.length()) {
+			return -1;
+		}
+		try {
+			return Long.parseLong(id.substring(start));
+		}
+		catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	@Override
+	public String getEncodedFormat() {
+		return MvtTileStore.FORMAT;
+	}
+
+	@Override
+	public Envelope getEnvelope() {
+		return bbox;
+	}
+
+	@Override
+	public FeatureCollection getFeatures(int i, int j, int limit) throws UnsupportedOperationException {
+		throw new UnsupportedOperationException("Feature retrieval is not supported by the MvtTileStore.");
+	}
+
+}
@@ -0,0 +1,114 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.tile.persistence.mvt;
+
+import static org.deegree.tile.Tiles.calcTileEnvelope;
+
+import java.util.List;
+import java.util.Map;
+
+import org.deegree.layer.persistence.feature.FeatureLayer;
+import org.deegree.style.StyleRef;
+import org.deegree.tile.Tile;
+import org.deegree.tile.TileDataLevel;
+import org.deegree.tile.TileMatrix;
+
+/**
+ * {@link TileDataLevel} that generates vector tiles from feature layers.
+ */
+class MvtTileDataLevel implements TileDataLevel {
+
+	private final TileMatrix metadata;
+
+	private final Map<FeatureLayer, StyleRef> layers;
+
+	private final int extent;
+
+	private final int buffer;
+
+	private final double tolerance;
+
+	/**
+	 * @param metadata tile matrix of the level, must not be <code>null</code>
+	 * @param layers feature layers (with the styles selecting their features) to encode,
+	 * must not be <code>null</code>
+	 * @param extent size of the integer grid of a tile
+	 * @param buffer grid units geometries are kept beyond the tile edges
+	 * @param tolerance simplification tolerance in grid units, <code>0</code> to disable
+	 */
+	MvtTileDataLevel(TileMatrix metadata, Map<FeatureLayer, StyleRef> layers, int extent, int buffer,
+			double tolerance) {
+		this.metadata = metadata;
+		this.layers = layers;
+		this.extent = extent;
+		this.buffer = buffer;
+		this.tolerance = tolerance;
+	}
+
+	@Override
+	public TileMatrix getMetadata() {
+		return metadata;
+	}
+
+	@Override
+	public Tile getTile(long x, long y) {
+		if (metadata.getNumTilesX() <= x || metadata.getNumTilesY() <= y || x < 0 || y < 0) {
+			return null;
+		}
+		return new MvtTile(this, calcTileEnvelope(metadata, x, y));
+	}
+
+	@Override
+	public List<String> getStyles() {
+		return null;
+	}
+
+	Map<FeatureLayer, StyleRef> getLayers() {
+		return layers;
+	}
+
+	int getExtent() {
+		return extent;
+	}
+
+	int getBuffer() {
+		return buffer;
+	}
+
+	double getTolerance() {
+		return tolerance;
+	}
+
+}
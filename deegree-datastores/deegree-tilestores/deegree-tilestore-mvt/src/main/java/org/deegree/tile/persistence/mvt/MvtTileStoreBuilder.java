@@ -0,0 +1,149 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.tile.persistence.mvt;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.deegree.layer.Layer;
+import org.deegree.layer.persistence.LayerStore;
+import org.deegree.layer.persistence.LayerStoreProvider;
+import org.deegree.layer.persistence.feature.FeatureLayer;
+import org.deegree.style.StyleRef;
+import org.deegree.tile.DefaultTileDataSet;
+import org.deegree.tile.TileDataLevel;
+import org.deegree.tile.TileDataSet;
+import org.deegree.tile.TileMatrix;
+import org.deegree.tile.TileMatrixSet;
+import org.deegree.tile.persistence.TileStore;
+import org.deegree.tile.persistence.mvt.jaxb.MvtTileStoreJAXB;
+import org.deegree.tile.tilematrixset.TileMatrixSetProvider;
+import org.deegree.workspace.ResourceBuilder;
+import org.deegree.workspace.ResourceInitException;
+import org.deegree.workspace.ResourceMetadata;
+import org.deegree.workspace.Workspace;
+import org.slf4j.Logger;
+
+/**
+ * This class is responsible for building vector tile stores.
+ */
+public class MvtTileStoreBuilder implements ResourceBuilder<TileStore> {
+
+	private static final Logger LOG = getLogger(MvtTileStoreBuilder.class);
+
+	private static final int DEFAULT_EXTENT = 4096;
+
+	private static final int DEFAULT_BUFFER = 64;
+
+	private static final double DEFAULT_TOLERANCE = 1;
+
+	private MvtTileStoreJAXB config;
+
+	private ResourceMetadata<TileStore> metadata;
+
+	private Workspace workspace;
+
+	public MvtTileStoreBuilder(MvtTileStoreJAXB config, ResourceMetadata<TileStore> metadata, Workspace workspace) {
+		this.config = config;
+		this.metadata = metadata;
+		this.workspace = workspace;
+	}
+
+	@Override
+	public TileStore build() {
+		try {
+			Map<String, TileDataSet> map = new HashMap<String, TileDataSet>();
+			for (MvtTileStoreJAXB.TileDataSet tds : config.getTileDataSet()) {
+				TileMatrixSet tms = workspace.getResource(TileMatrixSetProvider.class, tds.getTileMatrixSetId());
+				if (tms == null) {
+					throw new ResourceInitException(
+							"The tile matrix set with id " + tds.getTileMatrixSetId() + " is not available.");
+				}
+				Map<FeatureLayer, StyleRef> layers = getLayers(tds);
+				int extent = tds.getExtent() == null ? DEFAULT_EXTENT : tds.getExtent().intValue();
+				int buffer = tds.getBuffer() == null ? DEFAULT_BUFFER : tds.getBuffer().intValue();
+				double tolerance = tds.getSimplificationTolerance() == null ? DEFAULT_TOLERANCE
+						: tds.getSimplificationTolerance();
+
+				List<TileDataLevel> levels = new ArrayList<TileDataLevel>(tms.getTileMatrices().size());
+				for (TileMatrix tm : tms.getTileMatrices()) {
+					levels.add(new MvtTileDataLevel(tm, layers, extent, buffer, tolerance));
+				}
+				map.put(tds.getIdentifier(), new DefaultTileDataSet(levels, tms, MvtTileStore.FORMAT));
+			}
+			return new MvtTileStore(map, metadata);
+		}
+		catch (ResourceInitException e) {
+			LOG.error(e.getMessage());
+			throw e;
+		}
+		catch (Exception e) {
+			String msg = "Unable to create MvtTileStore: " + e.getMessage();
+			LOG.error(msg);
+			throw new ResourceInitException(msg, e);
+		}
+	}
+
+	private Map<FeatureLayer, StyleRef> getLayers(MvtTileStoreJAXB.TileDataSet tds) {
+		LayerStore store = workspace.getResource(LayerStoreProvider.class, tds.getLayerStoreId());
+		if (store == null) {
+			throw new ResourceInitException("The layer store with id " + tds.getLayerStoreId() + " is not available.");
+		}
+		Map<FeatureLayer, StyleRef> layers = new LinkedHashMap<FeatureLayer, StyleRef>();
+		if (tds.getLayer().isEmpty()) {
+			for (Layer l : store.getAll()) {
+				if (l instanceof FeatureLayer) {
+					layers.put((FeatureLayer) l, new StyleRef("default"));
+				}
+			}
+			return layers;
+		}
+		for (MvtTileStoreJAXB.TileDataSet.Layer layerCfg : tds.getLayer()) {
+			Layer l = store.get(layerCfg.getValue());
+			if (!(l instanceof FeatureLayer)) {
+				throw new ResourceInitException("The layer " + layerCfg.getValue() + " of layer store "
+						+ tds.getLayerStoreId() + " is not a feature layer.");
+			}
+			layers.put((FeatureLayer) l, new StyleRef(layerCfg.getStyle()));
+		}
+		return layers;
+	}
+
+}
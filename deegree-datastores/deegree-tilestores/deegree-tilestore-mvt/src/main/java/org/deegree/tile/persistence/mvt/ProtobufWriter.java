@@ -0,0 +1,180 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.tile.persistence.mvt;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.Arrays;
+
+/**
+ * Minimal writer for the protocol buffers wire format, as far as needed for encoding
+ * vector tiles.
+ */
+class ProtobufWriter {
+
+	static final int VARINT = 0;
+
+	static final int FIXED64 = 1;
+
+	static final int LENGTH_DELIMITED = 2;
+
+	private byte[] buf;
+
+	private int size;
+
+	ProtobufWriter() {
+		this(256);
+	}
+
+	ProtobufWriter(int initialCapacity) {
+		buf = new byte[initialCapacity];
+	}
+
+	/**
+	 * @return number of bytes written
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Discards all written bytes.
+	 */
+	void reset() {
+		size = 0;
+	}
+
+	/**
+	 * @return copy of the written bytes, never <code>null</code>
+	 */
+	byte[] toByteArray() {
+		return Arrays.copyOf(buf, size);
+	}
+
+	void writeTag(int field, int wireType) {
+		writeVarint((field << 3) | wireType);
+	}
+
+	void writeVarint(long value) {
+		ensureCapacity(10);
+		while ((value & ~0x7FL) != 0) {
+			buf[size++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buf[size++] = (byte) value;
+	}
+
+	void writeVarintField(int field, long value) {
+		writeTag(field, VARINT);
+		writeVarint(value);
+	}
+
+	void writeDoubleField(int field, double value) {
+		writeTag(field, FIXED64);
+		ensureCapacity(8);
+		long bits = Double.doubleToLongBits(value);
+		for (int i = 0; i < 8; i++) {
+			buf[size++] = (byte) (bits >>> (8 * i));
+		}
+	}
+
+	void writeStringField(int field, String value) {
+		byte[] bytes = value.getBytes(UTF_8);
+		writeTag(field, LENGTH_DELIMITED);
+		writeVarint(bytes.length);
+		writeRaw(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Writes the content of another writer as an embedded message.
+	 */
+	void writeMessageField(int field, ProtobufWriter message) {
+		writeTag(field, LENGTH_DELIMITED);
+		writeVarint(message.size);
+		writeRaw(message.buf, 0, message.size);
+	}
+
+	/**
+	 * Appends the content of another writer as it is.
+	 */
+	void writeRaw(ProtobufWriter other) {
+		writeRaw(other.buf, 0, other.size);
+	}
+
+	/**
+	 * Writes unsigned integers as a packed repeated field.
+	 */
+	void writePackedField(int field, int[] values, int len) {
+		int bytes = 0;
+		for (int i = 0; i < len; i++) {
+			bytes += varintSize(values[i] & 0xFFFFFFFFL);
+		}
+		writeTag(field, LENGTH_DELIMITED);
+		writeVarint(bytes);
+		for (int i = 0; i < len; i++) {
+			writeVarint(values[i] & 0xFFFFFFFFL);
+		}
+	}
+
+	static int zigZag(int value) {
+		return (value << 1) ^ (value >> 31);
+	}
+
+	static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private static int varintSize(long value) {
+		int n = 1;
+		while ((value & ~0x7FL) != 0) {
+			value >>>= 7;
+			n++;
+		}
+		return n;
+	}
+
+	private void writeRaw(byte[] bytes, int off, int len) {
+		ensureCapacity(len);
+		System.arraycopy(bytes, off, buf, size, len);
+		size += len;
+	}
+
+	private void ensureCapacity(int additional) {
+		if (size + additional > buf.length) {
+			buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + additional));
+		}
+	}
+
+}
@@ -0,0 +1,294 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.tile.persistence.mvt;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link MvtGeometryEncoder} and {@link MvtLayer}, using the examples of the
+ * vector tile specification (2.1).
+ */
+public class MvtEncoderTest {
+
+	private static final int EXTENT = 4096;
+
+	// y axis of the world points up, the one of the tile grid down
+	private final MvtGeometryEncoder encoder = new MvtGeometryEncoder(0, 0, EXTENT, EXTENT, EXTENT);
+
+	@Test
+	public void testPoint() {
+		encoder.reset();
+		encoder.addPoints(new double[] { 25, EXTENT - 17 }, 1);
+		encoder.finish();
+		assertEquals(MvtGeometryEncoder.POINT, encoder.getType());
+		assertCommands(9, 50, 34);
+	}
+
+	@Test
+	public void testMultiPointFromSeveralParts() {
+		encoder.reset();
+		encoder.addPoints(new double[] { 5, EXTENT - 7 }, 1);
+		encoder.addPoints(new double[] { 3, EXTENT - 2 }, 1);
+		encoder.finish();
+		assertCommands(17, 10, 14, 3, 9);
+	}
+
+	@Test
+	public void testLineString() {
+		encoder.reset();
+		encoder.addLineString(world(2, 2, 2, 10, 10, 10), 3);
+		encoder.finish();
+		assertEquals(MvtGeometryEncoder.LINESTRING, encoder.getType());
+		assertCommands(9, 4, 4, 18, 0, 16, 16, 0);
+	}
+
+	@Test
+	public void testLineStringDuplicatesDropped() {
+		encoder.reset();
+		encoder.addLineString(world(2, 2, 2.2, 2.1, 2, 10, 10, 10), 4);
+		encoder.finish();
+		assertCommands(9, 4, 4, 18, 0, 16, 16, 0);
+	}
+
+	@Test
+	public void testCollapsedLineStringSkipped() {
+		encoder.reset();
+		encoder.addLineString(world(2, 2, 2.3, 2.2), 2);
+		encoder.finish();
+		assertEquals(0, encoder.getType());
+		assertEquals(0, encoder.getLength());
+	}
+
+	@Test
+	public void testPolygon() {
+		encoder.reset();
+		encoder.addPolygon(rings(world(3, 6, 8, 12, 20, 34, 3, 6)), new int[] { 4 });
+		encoder.finish();
+		assertEquals(MvtGeometryEncoder.POLYGON, encoder.getType());
+		assertCommands(9, 6, 12, 18, 10, 12, 24, 44, 15);
+	}
+
+	@Test
+	public void testPolygonOrientationFixed() {
+		encoder.reset();
+		// counter-clockwise exterior ring in tile coordinates
+		encoder.addPolygon(rings(world(3, 6, 20, 34, 8, 12, 3, 6)), new int[] { 4 });
+		encoder.finish();
+		assertCommands(9, 6, 12, 18, 10, 12, 24, 44, 15);
+	}
+
+	@Test
+	public void testPolygonWithHole() {
+		encoder.reset();
+		// both rings clockwise in tile coordinates, the hole must be reversed
+		double[] exterior = world(0, 0, 10, 0, 10, 10, 0, 10, 0, 0);
+		double[] interior = world(2, 2, 4, 2, 4, 4, 2, 4, 2, 2);
+		encoder.addPolygon(rings(exterior, interior), new int[] { 5, 5 });
+		encoder.finish();
+		// cursor continues at the last position of the exterior ring (0,10)
+		assertCommands(9, 0, 0, 26, 20, 0, 0, 20, 19, 0, 15, 9, 4, 15, 26, 0, 4, 4, 0, 0, 3, 15);
+	}
+
+	@Test
+	public void testTypesNotMixed() {
+		encoder.reset();
+		encoder.addLineString(world(2, 2, 2, 10, 10, 10), 3);
+		encoder.addPoints(new double[] { 25, EXTENT - 17 }, 1);
+		encoder.finish();
+		assertEquals(MvtGeometryEncoder.LINESTRING, encoder.getType());
+		assertCommands(9, 4, 4, 18, 0, 16, 16, 0);
+	}
+
+	@Test
+	public void testLayer() {
+		MvtLayer layer = new MvtLayer("roads", EXTENT);
+		Map<String, Object> attributes = new LinkedHashMap<String, Object>();
+		attributes.put("name", "Main Street");
+		attributes.put("lanes", new BigDecimal("2"));
+		attributes.put("missing", null);
+		encoder.reset();
+		encoder.addLineString(world(2, 2, 2, 10, 10, 10), 3);
+		encoder.finish();
+		layer.addFeature(42, attributes, encoder);
+		attributes.put("name", "Main Street");
+		attributes.put("lanes", -1);
+		layer.addFeature(-1, attributes, encoder);
+
+		ProtobufWriter tile = new ProtobufWriter();
+		layer.writeTo(tile);
+		byte[] bytes = tile.toByteArray();
+
+		ProtobufReader tileReader = new ProtobufReader(bytes);
+		assertEquals(3, tileReader.nextField());
+		ProtobufReader layerReader = new ProtobufReader(tileReader.bytes());
+		assertEquals(bytes.length, tileReader.pos);
+
+		List<Integer> fields = new ArrayList<Integer>();
+		List<byte[]> features = new ArrayList<byte[]>();
+		List<String> keys = new ArrayList<String>();
+		List<byte[]> values = new ArrayList<byte[]>();
+		long version = 0, extent = 0;
+		String name = null;
+		while (layerReader.hasMore()) {
+			int field = layerReader.nextField();
+			fields.add(field);
+			switch (field) {
+				case 15:
+					version = layerReader.varint();
+					break;
+				case 1:
+					name = new String(layerReader.bytes(), UTF_8);
+					break;
+				case 2:
+					features.add(layerReader.bytes());
+					break;
+				case 3:
+					keys.add(new String(layerReader.bytes(), UTF_8));
+					break;
+				case 4:
+					values.add(layerReader.bytes());
+					break;
+				case 5:
+					extent = layerReader.varint();
+					break;
+			}
+		}
+		assertEquals(2, version);
+		assertEquals("roads", name);
+		assertEquals(EXTENT, extent);
+		assertEquals(Arrays.asList("name", "lanes"), keys);
+		assertEquals(3, values.size());
+		// string value
+		assertArrayEquals(concat(new byte[] { 10, 11 }, "Main Street".getBytes(UTF_8)), values.get(0));
+		// uint value
+		assertArrayEquals(new byte[] { 40, 2 }, values.get(1));
+		// sint value (zigzag)
+		assertArrayEquals(new byte[] { 48, 1 }, values.get(2));
+
+		assertEquals(2, features.size());
+		// id, tags, type, geometry
+		assertArrayEquals(new byte[] { 8, 42, 18, 4, 0, 0, 1, 1, 24, 2, 34, 8, 9, 4, 4, 18, 0, 16, 16, 0 },
+				features.get(0));
+		assertArrayEquals(new byte[] { 18, 4, 0, 0, 1, 2, 24, 2, 34, 8, 9, 4, 4, 18, 0, 16, 16, 0 },
+				features.get(1));
+	}
+
+	@Test
+	public void testParseId() {
+		assertEquals(42, MvtTile.parseId("ROADS_42"));
+		assertEquals(7, MvtTile.parseId("7"));
+		assertEquals(-1, MvtTile.parseId("ROADS_A"));
+		assertEquals(-1, MvtTile.parseId(null));
+		assertEquals(-1, MvtTile.parseId("F_99999999999999999999"));
+	}
+
+	private void assertCommands(int... expected) {
+		assertArrayEquals(expected, Arrays.copyOf(encoder.getCommands(), encoder.getLength()));
+	}
+
+	private static double[] world(double... tileCoords) {
+		double[] coords = new double[tileCoords.length];
+		for (int i = 0; i < tileCoords.length; i += 2) {
+			coords[i] = tileCoords[i];
+			coords[i + 1] = EXTENT - tileCoords[i + 1];
+		}
+		return coords;
+	}
+
+	private static List<double[]> rings(double[]... rings) {
+		return Arrays.asList(rings);
+	}
+
+	private static byte[] concat(byte[] a, byte[] b) {
+		byte[] result = Arrays.copyOf(a, a.length + b.length);
+		System.arraycopy(b, 0, result, a.length, b.length);
+		return result;
+	}
+
+	/**
+	 * Reads the protocol buffer fields used by vector tiles.
+	 */
+	private static class ProtobufReader {
+
+		private final byte[] buf;
+
+		private int pos;
+
+		ProtobufReader(byte[] buf) {
+			this.buf = buf;
+		}
+
+		boolean hasMore() {
+			return pos < buf.length;
+		}
+
+		int nextField() {
+			return (int) (varint() >>> 3);
+		}
+
+		long varint() {
+			long value = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = buf[pos++];
+				value |= (long) (b & 0x7F) << shift;
+				shift += 7;
+			}
+			while ((b & 0x80) != 0);
+			return value;
+		}
+
+		byte[] bytes() {
+			int len = (int) varint();
+			byte[] bytes = Arrays.copyOfRange(buf, pos, pos + len);
+			pos += len;
+			return bytes;
+		}
+
+	}
+
+}
@@ -0,0 +1,295 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.tile.persistence.remotewms;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+import javax.imageio.ImageIO;
+
+import org.deegree.commons.ows.exception.OWSException;
+import org.deegree.cs.coordinatesystems.ICRS;
+import org.deegree.geometry.Envelope;
+import org.deegree.geometry.GeometryFactory;
+import org.deegree.protocol.wms.client.WMSClient;
+import org.deegree.protocol.wms.ops.GetMap;
+import org.deegree.tile.TileIOException;
+import org.deegree.tile.TileMatrix;
+
+/**
+ * Fetches blocks of tiles (meta tiles) of a {@link RemoteWMSTileDataLevel} with a single
+ * GetMap request and splits them into encoded tiles.
+ * <p>
+ * Concurrent requests for tiles of the same meta tile share one GetMap request. The tiles
+ * of the most recently fetched meta tiles are kept, so requests for the sibling tiles
+ * (e.g. by a caching tile store or while seeding) don't hit the WMS again.
+ * </p>
+ */
+class MetaTileLoader {
+
+	private static final GeometryFactory fac = new GeometryFactory();
+
+	/** Maximum number of meta tiles kept after they have been fetched. */
+	private static final int MAX_RECENT = 16;
+
+	private final WMSClient client;
+
+	private final TileMatrix metadata;
+
+	private final List<String> layers;
+
+	private final List<String> styles;
+
+	private final String format;
+
+	private final ICRS crs;
+
+	private final String outputFormat;
+
+	private final int size;
+
+	private final int gutter;
+
+	private final ConcurrentHashMap<Key, CompletableFuture<byte[][]>> inFlight = new ConcurrentHashMap<>();
+
+	private final Map<Key, byte[][]> recent = new LinkedHashMap<Key, byte[][]>(MAX_RECENT, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, byte[][]> eldest) {
+			return size() > MAX_RECENT;
+		}
+
+	};
+
+	/**
+	 * @param client the WMS client to use, must not be <code>null</code>
+	 * @param metadata matrix metadata, must not be <code>null</code>
+	 * @param layers WMS layers to request, must not be <code>null</code>
+	 * @param styles WMS styles to request, must not be <code>null</code>
+	 * @param format format to request images, must not be <code>null</code>
+	 * @param crs the crs to request maps with, must not be <code>null</code>
+	 * @param outputFormat format to encode the tiles in (ImageIO format name, eg.
+	 * 'png'), must not be <code>null</code>
+	 * @param size number of tiles per row and column of a meta tile, must be positive
+	 * @param gutter number of pixels to request additionally around a meta tile
+	 */
+	MetaTileLoader(WMSClient client, TileMatrix metadata, List<String> layers, List<String> styles, String format,
+			ICRS crs, String outputFormat, int size, int gutter) {
+		this.client = client;
+		this.metadata = metadata;
+		this.layers = layers;
+		this.styles = styles;
+		this.format = format;
+		this.crs = crs;
+		this.outputFormat = outputFormat;
+		this.size = size;
+		this.gutter = gutter;
+	}
+
+	/**
+	 * Returns an encoded tile, fetching the meta tile containing it if necessary.
+	 * @param x column index of the tile
+	 * @param y row index of the tile
+	 * @param parameters additional GetMap parameters, must not be <code>null</code>
+	 * @return the encoded tile, never <code>null</code>
+	 * @throws TileIOException if fetching the meta tile failed
+	 */
+	byte[] getTile(long x, long y, Map<String, String> parameters) throws TileIOException {
+		Key key = new Key(x / size, y / size, parameters);
+		byte[][] tiles = getMetaTile(key);
+		int columns = getColumns(key);
+		return tiles[(int) ((y - key.y * size) * columns + x - key.x * size)];
+	}
+
+	private byte[][] getMetaTile(Key key) throws TileIOException {
+		synchronized (recent) {
+			byte[][] tiles = recent.get(key);
+			if (tiles != null) {
+				return tiles;
+			}
+		}
+		CompletableFuture<byte[][]> future = new CompletableFuture<>();
+		CompletableFuture<byte[][]> running = inFlight.putIfAbsent(key, future);
+		if (running != null) {
+			return await(running);
+		}
+		try {
+			byte[][] tiles = fetch(key);
+			synchronized (recent) {
+				recent.put(key, tiles);
+			}
+			future.complete(tiles);
+			return tiles;
+		}
+		catch (RuntimeException | Error e) {
+			future.completeExceptionally(e);
+			throw e;
+		}
+		finally {
+			inFlight.remove(key, future);
+		}
+	}
+
+	private byte[][] fetch(Key key) throws TileIOException {
+		int columns = getColumns(key);
+		int rows = (int) Math.min(size, metadata.getNumTilesY() - key.y * size);
+		int tileSizeX = (int) metadata.getTilePixelsX();
+		int tileSizeY = (int) metadata.getTilePixelsY();
+		double gutterX = gutter * metadata.getTileWidth() / tileSizeX;
+		double gutterY = gutter * metadata.getTileHeight() / tileSizeY;
+		Envelope env = metadata.getSpatialMetadata().getEnvelope();
+		double minx = env.getMin().get0() + metadata.getTileWidth() * key.x * size - gutterX;
+		double maxy = env.getMax().get1() - metadata.getTileHeight() * key.y * size + gutterY;
+		double maxx = minx + metadata.getTileWidth() * columns + 2 * gutterX;
+		double miny = maxy - metadata.getTileHeight() * rows - 2 * gutterY;
+		Envelope envelope = fac.createEnvelope(minx, miny, maxx, maxy, env.getCoordinateSystem());
+		int width = columns * tileSizeX + 2 * gutter;
+		int height = rows * tileSizeY + 2 * gutter;
+		GetMap gm = new GetMap(layers, styles, width, height, envelope, crs, format, true, key.parameters);
+
+		BufferedImage img;
+		try (InputStream map = client.getMap(gm)) {
+			if (map == null) {
+				throw new TileIOException("A meta tile could not be fetched from remote WMS for an unknown reason.");
+			}
+			img = ImageIO.read(map);
+		}
+		catch (SocketTimeoutException e) {
+			String msg = "Error performing GetMap request, read timed out (timeout configured is "
+					+ client.getReadTimeout() + " seconds).";
+			throw new TileIOException(msg);
+		}
+		catch (UnknownHostException e) {
+			throw new TileIOException("Error performing GetMap request, host could not be resolved: " + e.getMessage());
+		}
+		catch (IOException | OWSException e) {
+			throw new TileIOException("Error performing GetMap request: " + e.getMessage(), e);
+		}
+		if (img == null || img.getWidth() < width || img.getHeight() < height) {
+			throw new TileIOException("The remote WMS did not return an image of " + width + "x" + height + " pixels.");
+		}
+
+		byte[][] tiles = new byte[rows * columns][];
+		for (int row = 0; row < rows; row++) {
+			for (int column = 0; column < columns; column++) {
+				BufferedImage tile = img.getSubimage(gutter + column * tileSizeX, gutter + row * tileSizeY, tileSizeX,
+						tileSizeY);
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				try {
+					if (!ImageIO.write(tile, outputFormat, out)) {
+						throw new TileIOException("No image writer for output format '" + outputFormat + "'.");
+					}
+				}
+				catch (IOException e) {
+					throw new TileIOException("Error encoding tile: " + e.getMessage(), e);
+				}
+				tiles[row * columns + column] = out.toByteArray();
+			}
+		}
+		return tiles;
+	}
+
+	private int getColumns(Key key) {
+		return (int) Math.min(size, metadata.getNumTilesX() - key.x * size);
+	}
+
+	private static byte[][] await(CompletableFuture<byte[][]> future) {
+		try {
+			return future.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new TileIOException("Interrupted while waiting for meta tile.");
+		}
+		catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new TileIOException(cause.getMessage(), cause);
+		}
+	}
+
+	/**
+	 * Identifies a meta tile, including the request parameters, as these may change the
+	 * rendered image.
+	 */
+	private static class Key {
+
+		private final long x;
+
+		private final long y;
+
+		private final Map<String, String> parameters;
+
+		private Key(long x, long y, Map<String, String> parameters) {
+			this.x = x;
+			this.y = y;
+			this.parameters = parameters;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key that = (Key) o;
+			return x == that.x && y == that.y && parameters.equals(that.parameters);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(x, y, parameters);
+		}
+
+	}
+
+}
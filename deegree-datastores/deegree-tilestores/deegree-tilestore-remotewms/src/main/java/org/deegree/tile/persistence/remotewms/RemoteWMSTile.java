@@ -51,6 +51,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 import javax.imageio.ImageIO;
 
@@ -84,6 +85,8 @@ class RemoteWMSTile implements Tile {
 
 	private Map<String, String> hardGetFeatureInfo;
 
+	private final Supplier<byte[]> metaTile;
+
 	/**
 	 * Creates a new {@link RemoteWMSTile} instance.
 	 * @param client client to use for performing the {@link GetMap} request, never
@@ -96,11 +99,30 @@ class RemoteWMSTile implements Tile {
 	 */
 	RemoteWMSTile(WMSClient client, GetMap gm, String outputFormat, Map<String, String> defaultGetFeatureInfo,
 			Map<String, String> hardGetFeatureInfo) {
+		this(client, gm, outputFormat, defaultGetFeatureInfo, hardGetFeatureInfo, null);
+	}
+
+	/**
+	 * Creates a new {@link RemoteWMSTile} instance whose image is cut from a meta tile.
+	 * @param client client to use for performing GetFeatureInfo requests, never
+	 * <code>null</code>
+	 * @param gm request for the tile, used for GetFeatureInfo requests, never
+	 * <code>null</code>
+	 * @param outputFormat format of the encoded tile image (use ImageIO like formats, eg.
+	 * 'png'), never <code>null</code>
+	 * @param defaultGetFeatureInfo default parameters for remote GFI requests
+	 * @param hardGetFeatureInfo replace parameters for remote GFI requests
+	 * @param metaTile provides the encoded tile image from its meta tile, can be
+	 * <code>null</code> (request the tile on its own)
+	 */
+	RemoteWMSTile(WMSClient client, GetMap gm, String outputFormat, Map<String, String> defaultGetFeatureInfo,
+			Map<String, String> hardGetFeatureInfo, Supplier<byte[]> metaTile) {
 		this.client = client;
 		this.gm = gm;
 		this.outputFormat = outputFormat;
 		this.defaultGetFeatureInfo = defaultGetFeatureInfo;
 		this.hardGetFeatureInfo = hardGetFeatureInfo;
+		this.metaTile = metaTile;
 	}
 
 	@Override
@@ -119,6 +141,9 @@ class RemoteWMSTile implements Tile {
 
 	@Override
 	public InputStream getAsStream() throws TileIOException {
+		if (metaTile != null) {
+			return new ByteArrayInputStream(metaTile.get());
+		}
 		try {
 			InputStream map = client.getMap(gm);
 
@@ -126,7 +151,7 @@ class RemoteWMSTile implements Tile {
 				throw new TileIOException("A tile could not be fetched from remote WMS for an unknown reason.");
 			}
 
-			if (outputFormat != null) {
+			if (outputFormat != null && !getEncodedFormat().equals(gm.getFormat())) {
 				BufferedImage img = ImageIO.read(map);
 				ByteArrayOutputStream out = new ByteArrayOutputStream();
 				ImageIO.write(img, outputFormat, out);
@@ -151,6 +176,11 @@ class RemoteWMSTile implements Tile {
 		}
 	}
 
+	@Override
+	public String getEncodedFormat() {
+		return outputFormat == null ? gm.getFormat() : "image/" + outputFormat;
+	}
+
 	@Override
 	public Envelope getEnvelope() {
 		return gm.getBoundingBox();
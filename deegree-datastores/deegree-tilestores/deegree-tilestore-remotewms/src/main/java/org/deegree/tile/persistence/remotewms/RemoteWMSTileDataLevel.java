@@ -83,6 +83,8 @@ class RemoteWMSTileDataLevel implements TileDataLevel {
 
 	private Map<String, String> hardGetFeatureInfo;
 
+	private final MetaTileLoader metaTileLoader;
+
 	/**
 	 * Creates a new {@link RemoteWMSTileDataLevel} instance.
 	 * @param tileMd matrix metadata, must not be <code>null</code>
@@ -97,11 +99,15 @@ class RemoteWMSTileDataLevel implements TileDataLevel {
 	 * @param hardGetMap
 	 * @param defaultGetFeatureInfo
 	 * @param defaultGetMap
+	 * @param metaTileSize number of tiles per row and column to request with a single
+	 * GetMap request, <code>1</code> disables meta tiling (which also requires a recoded
+	 * output format)
+	 * @param gutter number of pixels to request additionally around meta tiles
 	 */
 	RemoteWMSTileDataLevel(TileMatrix tileMd, String format, List<String> layers, List<String> styles, WMSClient client,
 			String recodedOutputFormat, String crs, Map<String, String> defaultGetMap,
 			Map<String, String> defaultGetFeatureInfo, Map<String, String> hardGetMap,
-			Map<String, String> hardGetFeatureInfo) {
+			Map<String, String> hardGetFeatureInfo, int metaTileSize, int gutter) {
 		this.metadata = tileMd;
 		this.format = format;
 		this.layers = layers;
@@ -117,6 +123,17 @@ class RemoteWMSTileDataLevel implements TileDataLevel {
 		if (crs != null) {
 			this.crs = CRSManager.getCRSRef(crs);
 		}
+		if (metaTileSize > 1 && recodedOutputFormat != null) {
+			ICRS requestCrs = this.crs;
+			if (requestCrs == null) {
+				requestCrs = tileMd.getSpatialMetadata().getEnvelope().getCoordinateSystem();
+			}
+			this.metaTileLoader = new MetaTileLoader(client, tileMd, layers, styles, format, requestCrs,
+					recodedOutputFormat, metaTileSize, gutter);
+		}
+		else {
+			this.metaTileLoader = null;
+		}
 	}
 
 	@Override
@@ -144,6 +161,10 @@ class RemoteWMSTileDataLevel implements TileDataLevel {
 				defaultGetMap, hardGetMap);
 		GetMap gm = new GetMap(layers, styles, (int) tileSizeX, (int) tileSizeY, envelope, crs, format, true,
 				overriddenParameters);
+		if (metaTileLoader != null) {
+			return new RemoteWMSTile(client, gm, recodedOutputFormat, defaultGetFeatureInfo, hardGetFeatureInfo,
+					() -> metaTileLoader.getTile(x, y, overriddenParameters));
+		}
 		return new RemoteWMSTile(client, gm, recodedOutputFormat, defaultGetFeatureInfo, hardGetFeatureInfo);
 	}
 
@@ -95,13 +95,19 @@ class TileDataSetBuilder {
 			}
 
 			RequestParams params = cfg.getRequestParams();
-			map.put(id, buildTileDataSet(params, tms, wms.getClient(), cfg.getOutputFormat()));
+			int metaTileSize = 1;
+			int gutter = 0;
+			if (cfg.getMetaTile() != null) {
+				metaTileSize = cfg.getMetaTile().getSize().intValue();
+				gutter = cfg.getMetaTile().getGutter().intValue();
+			}
+			map.put(id, buildTileDataSet(params, tms, wms.getClient(), cfg.getOutputFormat(), metaTileSize, gutter));
 		}
 		return map;
 	}
 
 	private DefaultTileDataSet buildTileDataSet(RequestParams requestParams, TileMatrixSet tms, WMSClient client,
-			String outputFormat) throws ResourceInitException {
+			String outputFormat, int metaTileSize, int gutter) throws ResourceInitException {
 		List<String> layers = splitNullSafe(requestParams.getLayers());
 
 		for (String l : layers) {
@@ -127,7 +133,7 @@ class TileDataSetBuilder {
 		List<TileDataLevel> dataLevels = new ArrayList<TileDataLevel>();
 		for (TileMatrix tm : tms.getTileMatrices()) {
 			TileDataLevel m = new RemoteWMSTileDataLevel(tm, format, layers, styles, client, outputFormat, crs,
-					defaultGetMap, defaultGetFeatureInfo, hardGetMap, hardGetFeatureInfo);
+					defaultGetMap, defaultGetFeatureInfo, hardGetMap, hardGetFeatureInfo, metaTileSize, gutter);
 			dataLevels.add(0, m);
 		}
 		return new DefaultTileDataSet(dataLevels, tms, "image/" + outputFormat);
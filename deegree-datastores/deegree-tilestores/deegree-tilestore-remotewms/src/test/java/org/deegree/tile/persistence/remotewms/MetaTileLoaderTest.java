@@ -0,0 +1,261 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.tile.persistence.remotewms;
+
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import org.deegree.geometry.Envelope;
+import org.deegree.geometry.GeometryFactory;
+import org.deegree.geometry.metadata.SpatialMetadata;
+import org.deegree.protocol.wms.client.WMSClient;
+import org.deegree.protocol.wms.ops.GetMap;
+import org.deegree.tile.TileIOException;
+import org.deegree.tile.TileMatrix;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link MetaTileLoader}.
+ */
+public class MetaTileLoaderTest {
+
+	private static final int TILE_SIZE = 10;
+
+	private static final int GUTTER = 2;
+
+	// 5 x 3 tiles of 10 x 10 pixels (one unit per pixel), covering 0,0 - 50,30
+	private static final TileMatrix MATRIX = new TileMatrix("0",
+			new SpatialMetadata(new GeometryFactory().createEnvelope(0, 0, 50, 30, null),
+					Collections.emptyList()),
+			TILE_SIZE, TILE_SIZE, 1, 5, 3);
+
+	private final List<GetMap> requests = new CopyOnWriteArrayList<GetMap>();
+
+	private WMSClient client;
+
+	private volatile CountDownLatch release;
+
+	private volatile boolean failing;
+
+	@Before
+	public void setUp() throws Exception {
+		client = mock(WMSClient.class);
+		when(client.getMap(any(GetMap.class))).thenAnswer(invocation -> {
+			GetMap getMap = invocation.getArgument(0);
+			requests.add(getMap);
+			if (release != null) {
+				release.await(10, TimeUnit.SECONDS);
+			}
+			if (failing) {
+				throw new IOException("Connection refused");
+			}
+			return render(getMap.getWidth(), getMap.getHeight());
+		});
+	}
+
+	@Test
+	public void testTilesOfMetaTileShareRequest() {
+		MetaTileLoader loader = createLoader();
+
+		for (int y = 0; y < 2; y++) {
+			for (int x = 0; x < 2; x++) {
+				assertTile(loader.getTile(x, y, emptyMap()), x, y);
+			}
+		}
+		assertEquals(1, requests.size());
+
+		assertTile(loader.getTile(2, 0, emptyMap()), 0, 0);
+		assertTile(loader.getTile(3, 1, emptyMap()), 1, 1);
+		assertEquals(2, requests.size());
+	}
+
+	@Test
+	public void testMetaTileEnvelopeIncludesGutter() {
+		MetaTileLoader loader = createLoader();
+
+		loader.getTile(1, 1, emptyMap());
+
+		GetMap getMap = requests.get(0);
+		assertEquals(2 * TILE_SIZE + 2 * GUTTER, getMap.getWidth());
+		assertEquals(2 * TILE_SIZE + 2 * GUTTER, getMap.getHeight());
+		assertEnvelope(-2, 8, 22, 32, getMap.getBoundingBox());
+	}
+
+	@Test
+	public void testMetaTileIsClippedAtMatrixEdge() {
+		MetaTileLoader loader = createLoader();
+
+		// last column and row only contain a single tile
+		assertTile(loader.getTile(4, 2, emptyMap()), 0, 0);
+
+		GetMap getMap = requests.get(0);
+		assertEquals(TILE_SIZE + 2 * GUTTER, getMap.getWidth());
+		assertEquals(TILE_SIZE + 2 * GUTTER, getMap.getHeight());
+		assertEnvelope(38, -2, 52, 12, getMap.getBoundingBox());
+
+		// right edge: one column, two rows
+		assertTile(loader.getTile(4, 1, emptyMap()), 0, 1);
+		getMap = requests.get(1);
+		assertEquals(TILE_SIZE + 2 * GUTTER, getMap.getWidth());
+		assertEquals(2 * TILE_SIZE + 2 * GUTTER, getMap.getHeight());
+		assertEnvelope(38, 8, 52, 32, getMap.getBoundingBox());
+		assertTile(loader.getTile(4, 0, emptyMap()), 0, 0);
+		assertEquals(2, requests.size());
+	}
+
+	@Test
+	public void testParametersSelectMetaTile() {
+		MetaTileLoader loader = createLoader();
+
+		loader.getTile(0, 0, emptyMap());
+		loader.getTile(0, 0, singletonMap("time", "2020"));
+		loader.getTile(1, 0, singletonMap("time", "2020"));
+
+		assertEquals(2, requests.size());
+		assertEquals(singletonMap("time", "2020"), requests.get(1).getOverriddenParameters());
+	}
+
+	@Test
+	public void testConcurrentRequestsShareRequest() throws Exception {
+		MetaTileLoader loader = createLoader();
+		release = new CountDownLatch(1);
+
+		byte[][] tiles = new byte[2][];
+		Thread first = new Thread(() -> tiles[0] = loader.getTile(0, 0, emptyMap()));
+		Thread second = new Thread(() -> tiles[1] = loader.getTile(1, 1, emptyMap()));
+		first.start();
+		while (requests.isEmpty()) {
+			Thread.sleep(10);
+		}
+		second.start();
+		Thread.sleep(100);
+		release.countDown();
+		first.join(10000);
+		second.join(10000);
+
+		assertEquals(1, requests.size());
+		assertTile(tiles[0], 0, 0);
+		assertTile(tiles[1], 1, 1);
+	}
+
+	@Test
+	public void testFailedMetaTileIsNotKept() {
+		MetaTileLoader loader = createLoader();
+		failing = true;
+
+		try {
+			loader.getTile(0, 0, emptyMap());
+			fail("Expected TileIOException");
+		}
+		catch (TileIOException e) {
+			// expected
+		}
+
+		failing = false;
+		assertTile(loader.getTile(1, 0, emptyMap()), 1, 0);
+		assertEquals(2, requests.size());
+	}
+
+	private MetaTileLoader createLoader() {
+		return new MetaTileLoader(client, MATRIX, singletonList("layer"), singletonList("default"), "image/png", null,
+				"png", 2, GUTTER);
+	}
+
+	/**
+	 * Renders a meta tile, the pixels of each tile get a color from the position of the
+	 * tile within the meta tile, the gutter is blue.
+	 */
+	private static InputStream render(int width, int height) throws IOException {
+		BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				boolean gutter = x < GUTTER || y < GUTTER || x >= width - GUTTER || y >= height - GUTTER;
+				img.setRGB(x, y, gutter ? 0xff : getColor((x - GUTTER) / TILE_SIZE, (y - GUTTER) / TILE_SIZE));
+			}
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(img, "png", out);
+		return new ByteArrayInputStream(out.toByteArray());
+	}
+
+	private static int getColor(int column, int row) {
+		return (50 * column + 10) << 16 | (50 * row + 10) << 8;
+	}
+
+	private static void assertTile(byte[] tile, int column, int row) {
+		assertNotNull(tile);
+		BufferedImage img;
+		try {
+			img = ImageIO.read(new ByteArrayInputStream(tile));
+		}
+		catch (IOException e) {
+			throw new AssertionError(e);
+		}
+		assertEquals(TILE_SIZE, img.getWidth());
+		assertEquals(TILE_SIZE, img.getHeight());
+		int color = getColor(column, row);
+		assertEquals(color, img.getRGB(0, 0) & 0xffffff);
+		assertEquals(color, img.getRGB(TILE_SIZE - 1, TILE_SIZE - 1) & 0xffffff);
+	}
+
+	private static void assertEnvelope(double minx, double miny, double maxx, double maxy, Envelope env) {
+		assertEquals(minx, env.getMin().get0(), 1E-9);
+		assertEquals(miny, env.getMin().get1(), 1E-9);
+		assertEquals(maxx, env.getMax().get0(), 1E-9);
+		assertEquals(maxy, env.getMax().get1(), 1E-9);
+	}
+
+}
@@ -128,7 +128,7 @@ class RemoteWMTSTile implements Tile {
 
 	@Override
 	public CloseRequiredInputStream getAsStream() throws TileIOException {
-		if (recodedOutputFormat == null) {
+		if (recodedOutputFormat == null || getEncodedFormat().equals(request.getFormat())) {
 			return getNativeFormatRemoteStream();
 		}
 		return getRecodedImageStream();
@@ -160,6 +160,11 @@ class RemoteWMTSTile implements Tile {
 		return new CloseRequiredInputStream(null, new ByteArrayInputStream(out.toByteArray()));
 	}
 
+	@Override
+	public String getEncodedFormat() {
+		return recodedOutputFormat == null ? request.getFormat() : "image/" + recodedOutputFormat;
+	}
+
 	@Override
 	public Envelope getEnvelope() {
 		return envelope;
@@ -47,6 +47,7 @@ import org.deegree.feature.Feature;
 import org.deegree.feature.FeatureCollection;
 import org.deegree.feature.GenericFeatureCollection;
 import org.deegree.feature.persistence.FeatureStore;
+import org.deegree.feature.persistence.FeatureStoreException;
 import org.deegree.feature.persistence.query.Query;
 import org.deegree.feature.stream.FeatureInputStream;
 import org.deegree.feature.stream.ThreadedFeatureInputStream;
@@ -119,6 +120,16 @@ public class FeatureLayerData implements LayerData {
 		}
 	}
 
+	/**
+	 * Queries the features that would be rendered, e.g. to encode them as vector tiles.
+	 * @return the features, never <code>null</code>, must be closed by the caller
+	 * @throws FeatureStoreException if querying the feature store failed
+	 * @throws FilterEvaluationException if a filter could not be evaluated
+	 */
+	public FeatureInputStream getFeatures() throws FeatureStoreException, FilterEvaluationException {
+		return featureStore.query(queries.toArray(new Query[queries.size()]));
+	}
+
 	private static FeatureCollection clearDuplicates(FeatureInputStream rs) {
 		FeatureCollection col = null;
 		try {
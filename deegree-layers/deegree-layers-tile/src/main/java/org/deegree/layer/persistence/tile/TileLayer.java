@@ -75,6 +75,8 @@ public class TileLayer extends AbstractLayer {
 	// maps crs to tile matrix set ids
 	private final Map<ICRS, String> coordinateSystems = new LinkedHashMap<ICRS, String>();
 
+	private String cacheControl;
+
 	public TileLayer(LayerMetadata md, List<TileDataSet> datasets) {
 		super(md);
 		for (TileDataSet tds : datasets) {
@@ -122,6 +124,22 @@ public class TileLayer extends AbstractLayer {
 		return tileDataSets.values();
 	}
 
+	/**
+	 * @return value of the HTTP <code>Cache-Control</code> header for tiles of this
+	 * layer, may be <code>null</code> (not configured)
+	 */
+	public String getCacheControl() {
+		return cacheControl;
+	}
+
+	/**
+	 * @param cacheControl value of the HTTP <code>Cache-Control</code> header for tiles of
+	 * this layer, may be <code>null</code>
+	 */
+	public void setCacheControl(String cacheControl) {
+		this.cacheControl = cacheControl;
+	}
+
 	@Override
 	public boolean isStyleApplicable(StyleRef style) {
 		return true;
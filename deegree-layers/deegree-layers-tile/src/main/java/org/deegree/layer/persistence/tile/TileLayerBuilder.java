@@ -58,6 +58,7 @@ import org.deegree.layer.config.ConfigUtils;
 import org.deegree.layer.metadata.LayerMetadata;
 import org.deegree.layer.persistence.base.jaxb.ScaleDenominatorsType;
 import org.deegree.layer.persistence.tile.jaxb.TileLayerType;
+import org.deegree.layer.persistence.tile.jaxb.TileLayerType.CacheControl;
 import org.deegree.tile.TileDataSet;
 import org.deegree.tile.persistence.TileStore;
 import org.deegree.tile.persistence.TileStoreProvider;
@@ -129,7 +130,20 @@ class TileLayerBuilder {
 			md.setScaleDenominators(p);
 		}
 		md.setMetadataId(cfg.getMetadataSetId());
-		return new TileLayer(md, datasets);
+		TileLayer layer = new TileLayer(md, datasets);
+		layer.setCacheControl(getCacheControl(cfg.getCacheControl()));
+		return layer;
+	}
+
+	private static String getCacheControl(CacheControl cfg) {
+		if (cfg == null) {
+			return null;
+		}
+		String cacheControl = "public, max-age=" + cfg.getMaxAge();
+		if (cfg.getSharedMaxAge() != null) {
+			cacheControl += ", s-maxage=" + cfg.getSharedMaxAge();
+		}
+		return cacheControl;
 	}
 
 }
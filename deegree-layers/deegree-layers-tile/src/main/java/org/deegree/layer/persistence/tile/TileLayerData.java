@@ -39,22 +39,65 @@
  ----------------------------------------------------------------------------*/
 package org.deegree.layer.persistence.tile;
 
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.awt.image.BufferedImage;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.deegree.commons.utils.TunableParameter;
 import org.deegree.feature.FeatureCollection;
+import org.deegree.geometry.Envelope;
 import org.deegree.layer.LayerData;
 import org.deegree.rendering.r2d.TileRenderer;
 import org.deegree.rendering.r2d.context.RenderContext;
 import org.deegree.tile.Tile;
+import org.deegree.tile.TileIOException;
+import org.slf4j.Logger;
 
 /**
  * <code>TileLayerData</code>
+ * <p>
+ * Tiles are fetched and decoded concurrently: up to
+ * <code>deegree.layer.tile.prefetch</code> tiles per request are retrieved on a shared
+ * thread pool and drawn on the calling thread in the order of completion (tile positions
+ * are disjoint). If the calling thread gets interrupted (request time-out), all
+ * outstanding fetches are cancelled. Setting the parameter to <code>1</code> restores
+ * sequential rendering.
+ * </p>
  *
  * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
  */
 
 public class TileLayerData implements LayerData {
 
+	private static final Logger LOG = getLogger(TileLayerData.class);
+
+	private static final int PREFETCH = TunableParameter.get("deegree.layer.tile.prefetch", 8);
+
+	private static final int PREFETCH_THREADS = TunableParameter.get("deegree.layer.tile.prefetch.threads", 32);
+
+	private static final ThreadPoolExecutor EXECUTOR;
+
+	static {
+		int threads = Math.max(1, PREFETCH_THREADS);
+		EXECUTOR = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+				new PrefetchThreadFactory());
+		EXECUTOR.allowCoreThreadTimeOut(true);
+	}
+
 	private final Iterator<Tile> tiles;
 
 	public TileLayerData(Iterator<Tile> tiles) {
@@ -62,10 +105,40 @@ public class TileLayerData implements LayerData {
 	}
 
 	@Override
-	public void render(RenderContext context) {
+	public void render(RenderContext context) throws InterruptedException {
 		TileRenderer renderer = context.getTileRenderer();
-		while (tiles.hasNext()) {
-			renderer.render(tiles.next());
+		if (PREFETCH <= 1) {
+			while (tiles.hasNext()) {
+				renderer.render(tiles.next());
+			}
+			return;
+		}
+		CompletionService<Tile> completionService = new ExecutorCompletionService<Tile>(EXECUTOR);
+		List<Future<Tile>> futures = new ArrayList<Future<Tile>>();
+		int pending = 0;
+		try {
+			while (tiles.hasNext()) {
+				Tile tile = tiles.next();
+				if (tile == null) {
+					renderer.render(null);
+					continue;
+				}
+				if (pending == PREFETCH) {
+					renderer.render(take(completionService));
+					pending--;
+				}
+				futures.add(completionService.submit(new PrefetchTask(tile)));
+				pending++;
+			}
+			while (pending > 0) {
+				renderer.render(take(completionService));
+				pending--;
+			}
+		}
+		finally {
+			for (Future<Tile> future : futures) {
+				future.cancel(true);
+			}
 		}
 	}
 
@@ -74,4 +147,102 @@ public class TileLayerData implements LayerData {
 		return null;
 	}
 
+	private static Tile take(CompletionService<Tile> completionService) throws InterruptedException {
+		try {
+			return completionService.take().get();
+		}
+		catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new RuntimeException(cause);
+		}
+	}
+
+	private static class PrefetchTask implements Callable<Tile> {
+
+		private final Tile tile;
+
+		PrefetchTask(Tile tile) {
+			this.tile = tile;
+		}
+
+		@Override
+		public Tile call() {
+			try {
+				return new PrefetchedTile(tile, tile.getAsImage(), null);
+			}
+			catch (TileIOException e) {
+				return new PrefetchedTile(tile, null, e);
+			}
+		}
+
+	}
+
+	/**
+	 * Tile with an already decoded image (or the exception that occurred while decoding
+	 * it).
+	 */
+	private static class PrefetchedTile implements Tile {
+
+		private final Tile tile;
+
+		private final BufferedImage image;
+
+		private final TileIOException exception;
+
+		PrefetchedTile(Tile tile, BufferedImage image, TileIOException exception) {
+			this.tile = tile;
+			this.image = image;
+			this.exception = exception;
+		}
+
+		@Override
+		public BufferedImage getAsImage() throws TileIOException {
+			if (exception != null) {
+				throw exception;
+			}
+			return image;
+		}
+
+		@Override
+		public InputStream getAsStream() throws TileIOException {
+			return tile.getAsStream();
+		}
+
+		@Override
+		public String getEncodedFormat() {
+			return tile.getEncodedFormat();
+		}
+
+		@Override
+		public Envelope getEnvelope() {
+			return tile.getEnvelope();
+		}
+
+		@Override
+		public FeatureCollection getFeatures(int i, int j, int limit) throws UnsupportedOperationException {
+			return tile.getFeatures(i, j, limit);
+		}
+
+	}
+
+	private static class PrefetchThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger threadNumber = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "tile-prefetch-" + threadNumber.incrementAndGet());
+			t.setDaemon(true);
+			LOG.debug("Created tile prefetch thread {}.", t.getName());
+			return t;
+		}
+
+	}
+
 }
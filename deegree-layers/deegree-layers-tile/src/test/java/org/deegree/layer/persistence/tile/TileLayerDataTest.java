@@ -0,0 +1,186 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.layer.persistence.tile;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.awt.image.BufferedImage;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import org.deegree.feature.FeatureCollection;
+import org.deegree.geometry.Envelope;
+import org.deegree.geometry.GeometryFactory;
+import org.deegree.rendering.r2d.TileRenderer;
+import org.deegree.rendering.r2d.context.RenderContext;
+import org.deegree.tile.Tile;
+import org.deegree.tile.TileIOException;
+import org.junit.Test;
+
+/**
+ * Tests for the concurrent fetching of tiles in {@link TileLayerData}.
+ */
+public class TileLayerDataTest {
+
+	private static final GeometryFactory fac = new GeometryFactory();
+
+	// key: envelope of the rendered tile, value: image or exception
+	private final Map<Envelope, Object> rendered = new IdentityHashMap<Envelope, Object>();
+
+	private final List<Tile> renderedTiles = new ArrayList<Tile>();
+
+	@Test
+	public void testNeighbouringTilesAreFetchedConcurrently() throws Exception {
+		// each fetch only completes when all fetches have been started
+		CountDownLatch started = new CountDownLatch(4);
+		List<Tile> tiles = new ArrayList<Tile>();
+		for (int i = 0; i < 4; i++) {
+			tiles.add(new StubTile(i, started, false));
+		}
+
+		new TileLayerData(tiles.iterator()).render(createContext());
+
+		assertEquals(4, rendered.size());
+		for (Tile tile : tiles) {
+			StubTile stub = (StubTile) tile;
+			assertSame(stub.image, rendered.get(stub.getEnvelope()));
+			assertNotSame(Thread.currentThread(), stub.fetchThread);
+		}
+	}
+
+	@Test
+	public void testFailedFetchDoesNotAffectOtherTiles() throws Exception {
+		StubTile failing = new StubTile(1, null, true);
+		List<Tile> tiles = Arrays.<Tile>asList(new StubTile(0, null, false), failing, new StubTile(2, null, false),
+				null, new StubTile(3, null, false));
+
+		new TileLayerData(tiles.iterator()).render(createContext());
+
+		assertEquals(5, renderedTiles.size());
+		assertTrue(renderedTiles.contains(null));
+		assertEquals(4, rendered.size());
+		assertTrue(rendered.get(failing.getEnvelope()) instanceof TileIOException);
+		for (Tile tile : tiles) {
+			if (tile != null && tile != failing) {
+				assertSame(((StubTile) tile).image, rendered.get(tile.getEnvelope()));
+			}
+		}
+	}
+
+	private RenderContext createContext() {
+		RenderContext context = mock(RenderContext.class);
+		TileRenderer renderer = tile -> {
+			renderedTiles.add(tile);
+			if (tile == null) {
+				return;
+			}
+			try {
+				rendered.put(tile.getEnvelope(), tile.getAsImage());
+			}
+			catch (TileIOException e) {
+				rendered.put(tile.getEnvelope(), e);
+			}
+		};
+		when(context.getTileRenderer()).thenReturn(renderer);
+		return context;
+	}
+
+	private static class StubTile implements Tile {
+
+		private final Envelope envelope;
+
+		private final CountDownLatch started;
+
+		private final boolean failing;
+
+		private final BufferedImage image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+
+		private volatile Thread fetchThread;
+
+		private StubTile(int x, CountDownLatch started, boolean failing) {
+			this.envelope = fac.createEnvelope(x, 0, x + 1, 1, null);
+			this.started = started;
+			this.failing = failing;
+		}
+
+		@Override
+		public BufferedImage getAsImage() throws TileIOException {
+			fetchThread = Thread.currentThread();
+			if (started != null) {
+				started.countDown();
+				try {
+					if (!started.await(10, SECONDS)) {
+						throw new TileIOException("Tiles have not been fetched concurrently.");
+					}
+				}
+				catch (InterruptedException e) {
+					throw new TileIOException(e);
+				}
+			}
+			if (failing) {
+				throw new TileIOException("Tile could not be fetched.");
+			}
+			return image;
+		}
+
+		@Override
+		public InputStream getAsStream() throws TileIOException {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Envelope getEnvelope() {
+			return envelope;
+		}
+
+		@Override
+		public FeatureCollection getFeatures(int i, int j, int limit) throws UnsupportedOperationException {
+			throw new UnsupportedOperationException();
+		}
+
+	}
+
+}
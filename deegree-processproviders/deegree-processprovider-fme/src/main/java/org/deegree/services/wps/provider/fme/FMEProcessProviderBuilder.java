@@ -263,8 +263,9 @@ public class FMEProcessProviderBuilder implements ResourceBuilder<ProcessProvide
 	}
 
 	private JSONAdapter retrieve(String url) throws IOException {
-		InputStream retrieve = HttpUtils.retrieve(HttpUtils.STREAM, url);
-		return new JSONAdapter(retrieve);
+		try (InputStream in = HttpUtils.retrieve(HttpUtils.STREAM, url)) {
+			return new JSONAdapter(in);
+		}
 	}
 
 }
@@ -42,7 +42,6 @@
 package org.deegree.services.wps.provider.fme;
 
 import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
-import static org.apache.commons.io.IOUtils.closeQuietly;
 import static org.apache.commons.io.IOUtils.copyLarge;
 import static org.deegree.commons.utils.net.HttpUtils.STREAM;
 import static org.deegree.commons.utils.net.HttpUtils.UTF8STRING;
@@ -64,7 +63,6 @@ import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.XMLStreamWriter;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.http.Header;
 import org.apache.http.HttpResponse;
 import org.deegree.commons.utils.Pair;
@@ -143,41 +141,33 @@ public class FMEProcesslet implements Processlet {
 		LOG.debug("Sending {}", url);
 		Pair<InputStream, HttpResponse> p = postFullResponse(STREAM, url, kvpMap, headers, 0);
 
-		InputStream is = p.first;
-		ComplexOutput output = (ComplexOutput) out.getParameter("FMEResponse");
-		Header contentType = p.second.getEntity().getContentType();
-		LOG.debug("Content type: {}", contentType);
-		if (contentType.getValue() != null
-				&& (contentType.getValue().contains("xml") || contentType.getValue().contains("html"))) {
-			copyXmlResponse(is, output);
-		}
-		else {
-			copyBinaryResponse(is, output);
+		// closing the stream returns the connection to the pool
+		try (InputStream is = p.first) {
+			ComplexOutput output = (ComplexOutput) out.getParameter("FMEResponse");
+			Header contentType = p.second.getEntity().getContentType();
+			LOG.debug("Content type: {}", contentType);
+			if (contentType.getValue() != null
+					&& (contentType.getValue().contains("xml") || contentType.getValue().contains("html"))) {
+				copyXmlResponse(is, output);
+			}
+			else {
+				copyBinaryResponse(is, output);
+			}
 		}
 	}
 
 	private void copyXmlResponse(InputStream is, ComplexOutput output) throws XMLStreamException {
-		try {
-			XMLStreamWriter writer = output.getXMLStreamWriter();
-			XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(is);
-			while (reader.getEventType() != START_ELEMENT) {
-				reader.next();
-			}
-			writeElement(writer, reader);
-		}
-		finally {
-			IOUtils.closeQuietly(is);
+		XMLStreamWriter writer = output.getXMLStreamWriter();
+		XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(is);
+		while (reader.getEventType() != START_ELEMENT) {
+			reader.next();
 		}
+		writeElement(writer, reader);
 	}
 
 	private void copyBinaryResponse(InputStream is, ComplexOutput output) throws IOException {
-		try {
-			OutputStream os = output.getBinaryOutputStream();
-			copyLarge(is, os);
-		}
-		finally {
-			closeQuietly(is);
-		}
+		OutputStream os = output.getBinaryOutputStream();
+		copyLarge(is, os);
 	}
 
 	private String getSecurityToken() throws IOException {
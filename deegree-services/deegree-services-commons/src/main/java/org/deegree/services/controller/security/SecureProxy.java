@@ -243,21 +243,23 @@ public class SecureProxy extends HttpServlet {
 					headers.put(next, request.getHeader(next));
 				}
 
-				InputStream in = post(STREAM, proxiedUrl, pin, headers);
-				pin.close();
-				OutputStream out = response.getOutputStream();
-				XMLStreamReader responseReader = inFac.createXMLStreamReader(in);
-				responseReader.next();
-				boolean successful = copyXML(responseReader, outFac.createXMLStreamWriter(out), requestURL)
-						|| !loader.isLogOnlySuccessful();
-				if (requestLogger != null && successful) {
-					requestLogger.logXML(proxiedUrl + "?" + request.getRequestURL(), tmpFile, startTime,
-							System.currentTimeMillis(), creds);
-				}
-				else {
-					if (tmpFile != null) {
-						if (!tmpFile.delete()) {
-							LOG.warn("Could not delete temporary file {}.", tmpFile);
+				// closing the stream returns the connection to the pool
+				try (InputStream in = post(STREAM, proxiedUrl, pin, headers)) {
+					pin.close();
+					OutputStream out = response.getOutputStream();
+					XMLStreamReader responseReader = inFac.createXMLStreamReader(in);
+					responseReader.next();
+					boolean successful = copyXML(responseReader, outFac.createXMLStreamWriter(out), requestURL)
+							|| !loader.isLogOnlySuccessful();
+					if (requestLogger != null && successful) {
+						requestLogger.logXML(proxiedUrl + "?" + request.getRequestURL(), tmpFile, startTime,
+								System.currentTimeMillis(), creds);
+					}
+					else {
+						if (tmpFile != null) {
+							if (!tmpFile.delete()) {
+								LOG.warn("Could not delete temporary file {}.", tmpFile);
+							}
 						}
 					}
 				}
@@ -290,26 +292,28 @@ public class SecureProxy extends HttpServlet {
 			if (loggedIn && serviceRights) {
 				normalizedKVPParams.remove("USER");
 				normalizedKVPParams.remove("PASSWORD");
-				InputStream in = retrieve(STREAM, proxiedUrl, normalizedKVPParams);
-				OutputStream out = response.getOutputStream();
-				boolean successful = false;
-				String req = normalizedKVPParams.get("REQUEST");
-				if (req.equalsIgnoreCase("GetCapabilities") || req.equalsIgnoreCase("GetFeature")
-						|| req.equalsIgnoreCase("DescribeFeatureType")) {
-					XMLStreamReader reader = inFac.createXMLStreamReader(in);
-					reader.next();
-					successful = copyXML(reader, outFac.createXMLStreamWriter(out), request.getRequestURL().toString());
-				}
-				else {
-					// TODO determine from content type if it was successful, for WFS this
-					// should not be a problem
-					copy(in, out);
-				}
-				OwsGlobalConfigLoader loader = workspace.getInitializable(OwsGlobalConfigLoader.class);
-				successful = successful || !loader.isLogOnlySuccessful();
-				if (requestLogger != null && successful) {
-					requestLogger.logKVP(proxiedUrl + "?" + request.getRequestURL(), toQueryString(normalizedKVPParams),
-							startTime, System.currentTimeMillis(), creds);
+				try (InputStream in = retrieve(STREAM, proxiedUrl, normalizedKVPParams)) {
+					OutputStream out = response.getOutputStream();
+					boolean successful = false;
+					String req = normalizedKVPParams.get("REQUEST");
+					if (req.equalsIgnoreCase("GetCapabilities") || req.equalsIgnoreCase("GetFeature")
+							|| req.equalsIgnoreCase("DescribeFeatureType")) {
+						XMLStreamReader reader = inFac.createXMLStreamReader(in);
+						reader.next();
+						successful = copyXML(reader, outFac.createXMLStreamWriter(out),
+								request.getRequestURL().toString());
+					}
+					else {
+						// TODO determine from content type if it was successful, for WFS this
+						// should not be a problem
+						copy(in, out);
+					}
+					OwsGlobalConfigLoader loader = workspace.getInitializable(OwsGlobalConfigLoader.class);
+					successful = successful || !loader.isLogOnlySuccessful();
+					if (requestLogger != null && successful) {
+						requestLogger.logKVP(proxiedUrl + "?" + request.getRequestURL(),
+								toQueryString(normalizedKVPParams), startTime, System.currentTimeMillis(), creds);
+					}
 				}
 			}
 			else {
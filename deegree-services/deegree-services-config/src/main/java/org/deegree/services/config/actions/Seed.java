@@ -0,0 +1,294 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.services.config.actions;
+
+import static org.deegree.services.controller.OGCFrontController.getServiceWorkspace;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.apache.commons.io.IOUtils;
+import org.deegree.commons.config.DeegreeWorkspace;
+import org.deegree.commons.utils.ArrayUtils;
+import org.deegree.commons.utils.kvp.KVPUtils;
+import org.deegree.geometry.Envelope;
+import org.deegree.geometry.GeometryFactory;
+import org.deegree.tile.TileDataSet;
+import org.deegree.tile.persistence.TileStore;
+import org.deegree.tile.persistence.TileStoreProvider;
+import org.deegree.tile.seed.SeedingProgress;
+import org.deegree.tile.seed.TileSeeder;
+import org.deegree.workspace.Destroyable;
+import org.deegree.workspace.Workspace;
+import org.slf4j.Logger;
+
+/**
+ * Starts, lists and cancels tile seeding jobs running in the background.
+ * <p>
+ * The progress of a job is stored in
+ * <code>seeding/&lt;id&gt;_&lt;matrixset&gt;.properties</code> in the workspace
+ * directory, so a cancelled job (or one interrupted by a restart) resumes where it
+ * stopped when it is started again with the same parameters. The jobs of a workspace are
+ * interrupted before its resources are destroyed.
+ * </p>
+ */
+public class Seed implements Destroyable {
+
+	private static final Logger LOG = getLogger(Seed.class);
+
+	private static final long STOP_TIMEOUT = 120000;
+
+	private static final Map<String, SeedingJob> JOBS = new ConcurrentHashMap<String, SeedingJob>();
+
+	/**
+	 * Starts seeding a tile matrix set of a tile store.
+	 * @param path <code>id/matrixset</code> of the tile store to seed
+	 * @param qstring optional parameters <code>target</code>, <code>levels</code>,
+	 * <code>bbox</code> and <code>threads</code>, may be <code>null</code>
+	 * @param resp
+	 * @throws IOException
+	 */
+	public static void seed(String path, String qstring, HttpServletResponse resp) throws IOException {
+		resp.setContentType("text/plain");
+
+		String[] ids = path.split("/");
+		if (ids.length != 2) {
+			resp.setStatus(404);
+			IOUtils.write("Tile store id and tile matrix set id must be specified.\n", resp.getOutputStream());
+			return;
+		}
+		String id = ids[0];
+		String tmsId = ids[1];
+
+		Map<String, String> params = qstring == null ? Map.of() : KVPUtils.getNormalizedKVPMap(qstring, "UTF-8");
+		int minLevel = 0;
+		int maxLevel = -1;
+		double[] bbox = null;
+		int threads;
+		try {
+			String levels = params.get("LEVELS");
+			if (levels != null) {
+				String[] parts = levels.split("-");
+				minLevel = Integer.parseInt(parts[0].trim());
+				maxLevel = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : minLevel;
+			}
+			if (params.get("BBOX") != null) {
+				bbox = ArrayUtils.splitAsDoubles(params.get("BBOX"), ",");
+			}
+			threads = Integer.parseInt(params.getOrDefault("THREADS", "4"));
+		}
+		catch (NumberFormatException e) {
+			bbox = null;
+			threads = -1;
+		}
+		if ((bbox != null && bbox.length != 4) || threads < 1) {
+			resp.setStatus(404);
+			IOUtils.write("The value of the levels, bbox or threads parameter was invalid.\n", resp.getOutputStream());
+			return;
+		}
+
+		DeegreeWorkspace ws = getServiceWorkspace();
+		Workspace workspace = ws.getNewWorkspace();
+		TileStore source = workspace.getResource(TileStoreProvider.class, id);
+		String targetId = params.get("TARGET");
+		TileStore target = targetId == null ? null : workspace.getResource(TileStoreProvider.class, targetId);
+		if (source == null || (targetId != null && target == null)) {
+			resp.setStatus(404);
+			IOUtils.write("No such tile store.\n", resp.getOutputStream());
+			return;
+		}
+		TileDataSet dataSet = source.getTileDataSet(tmsId);
+		if (dataSet == null) {
+			resp.setStatus(404);
+			IOUtils.write("No such tile matrix set.\n", resp.getOutputStream());
+			return;
+		}
+
+		Envelope envelope = null;
+		if (bbox != null) {
+			envelope = new GeometryFactory().createEnvelope(bbox[0], bbox[1], bbox[2], bbox[3],
+					dataSet.getTileMatrixSet().getSpatialMetadata().getCoordinateSystems().get(0));
+		}
+
+		String key = id + "/" + tmsId;
+		File checkpoint = new File(new File(ws.getLocation(), "seeding"), id + "_" + tmsId + ".properties");
+		SeedingJob job;
+		try {
+			job = new SeedingJob(key, workspace, new TileSeeder(source, target, tmsId, envelope, minLevel, maxLevel, threads,
+					checkpoint));
+		}
+		catch (IllegalArgumentException e) {
+			resp.setStatus(403);
+			IOUtils.write(e.getLocalizedMessage() + "\n", resp.getOutputStream());
+			return;
+		}
+		synchronized (JOBS) {
+			// finished jobs are kept for the status until the same job is started again
+			SeedingJob running = JOBS.get(key);
+			if (running != null && running.isAlive()) {
+				resp.setStatus(403);
+				IOUtils.write("Seeding of " + key + " is already running.\n", resp.getOutputStream());
+				return;
+			}
+			JOBS.put(key, job);
+			job.start();
+		}
+		IOUtils.write("Started seeding of " + key + ".\n", resp.getOutputStream());
+	}
+
+	/**
+	 * Writes the progress of all seeding jobs that have been started.
+	 * @param resp
+	 * @throws IOException
+	 */
+	public static void status(HttpServletResponse resp) throws IOException {
+		resp.setContentType("text/plain");
+		StringBuilder sb = new StringBuilder();
+		for (SeedingJob job : JOBS.values()) {
+			sb.append(job.key).append(": ").append(job.getStatus()).append("\n");
+		}
+		if (sb.length() == 0) {
+			sb.append("No seeding jobs.\n");
+		}
+		IOUtils.write(sb.toString(), resp.getOutputStream());
+	}
+
+	/**
+	 * Cancels a running seeding job, its progress is kept for resuming.
+	 * @param path <code>id/matrixset</code> of the seeded tile store
+	 * @param resp
+	 * @throws IOException
+	 */
+	public static void cancel(String path, HttpServletResponse resp) throws IOException {
+		resp.setContentType("text/plain");
+		SeedingJob job = JOBS.get(path);
+		if (job == null || !job.isAlive()) {
+			resp.setStatus(404);
+			IOUtils.write("No running seeding job for " + path + ".\n", resp.getOutputStream());
+			return;
+		}
+		job.interrupt();
+		IOUtils.write("Cancelled seeding of " + path + ".\n", resp.getOutputStream());
+	}
+
+	/**
+	 * Interrupts the running seeding jobs of the workspace and waits until they have
+	 * stored their checkpoints, so they do not write to the destroyed tile stores.
+	 */
+	@Override
+	public void preDestroy(Workspace workspace) {
+		List<SeedingJob> stopped = new ArrayList<SeedingJob>();
+		synchronized (JOBS) {
+			for (SeedingJob job : JOBS.values()) {
+				if (job.workspace == workspace && job.isAlive()) {
+					job.interrupt();
+					stopped.add(job);
+				}
+			}
+		}
+		for (SeedingJob job : stopped) {
+			try {
+				job.join(STOP_TIMEOUT);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			if (job.isAlive()) {
+				LOG.warn("Seeding of {} did not stop in time.", job.key);
+			}
+			else {
+				LOG.info("Stopped seeding of {}, it resumes when started again.", job.key);
+			}
+		}
+	}
+
+	@Override
+	public void destroy(Workspace workspace) {
+		// jobs have been stopped before the resources were destroyed
+	}
+
+	private static class SeedingJob extends Thread {
+
+		private final String key;
+
+		private final Workspace workspace;
+
+		private final TileSeeder seeder;
+
+		private volatile String result;
+
+		SeedingJob(String key, Workspace workspace, TileSeeder seeder) {
+			super("tile-seeding-" + key);
+			setDaemon(true);
+			this.key = key;
+			this.workspace = workspace;
+			this.seeder = seeder;
+		}
+
+		@Override
+		public void run() {
+			try {
+				SeedingProgress progress = seeder.seed();
+				result = "finished, " + progress;
+			}
+			catch (InterruptedException e) {
+				result = "cancelled, " + seeder.getProgress();
+			}
+			catch (Throwable e) {
+				LOG.error("Seeding of {} failed: {}", key, e.getLocalizedMessage());
+				LOG.trace("Stack trace:", e);
+				result = "failed: " + e.getLocalizedMessage();
+			}
+		}
+
+		String getStatus() {
+			if (result != null) {
+				return result;
+			}
+			SeedingProgress progress = seeder.getProgress();
+			return progress == null ? "starting" : "running, " + progress;
+		}
+
+	}
+
+}
@@ -44,6 +44,9 @@ import static org.deegree.services.config.actions.List.list;
 import static org.deegree.services.config.actions.ListFonts.listFonts;
 import static org.deegree.services.config.actions.ListWorkspaces.listWorkspaces;
 import static org.deegree.services.config.actions.Restart.restart;
+import static org.deegree.services.config.actions.Seed.cancel;
+import static org.deegree.services.config.actions.Seed.seed;
+import static org.deegree.services.config.actions.Seed.status;
 import static org.deegree.services.config.actions.UpdateBboxCache.updateBboxCache;
 import static org.deegree.services.config.actions.Update.update;
 import static org.deegree.services.config.actions.Upload.upload;
@@ -106,6 +109,12 @@ public class ConfigServlet extends HttpServlet {
 					"GET /config/list/wsname[/path]                               - list workspace with name <wsname> or directory in workspace\n");
 			data.append(
 					"GET /config/invalidate/datasources/tile/id/matrixset[?bbox=] - invalidate part or all of a tile store cache's tile matrix set\n");
+			data.append(
+					"GET /config/seed/datasources/tile/id/matrixset[?target=&levels=&bbox=&threads=] - start seeding part or all of a tile store's tile matrix set in the background\n");
+			data.append(
+					"GET /config/seed/status                                      - list the progress of the seeding jobs\n");
+			data.append(
+					"GET /config/seed/cancel/id/matrixset                         - cancel a seeding job, it resumes when started again\n");
 			data.append(
 					"GET /config/crs/list                                         - list available CRS definitions\n");
 			data.append(
@@ -186,6 +195,16 @@ public class ConfigServlet extends HttpServlet {
 			invalidate(path.substring(29), req.getQueryString(), resp);
 		}
 
+		if (path.toLowerCase().startsWith("/seed/datasources/tile/")) {
+			seed(path.substring(23), req.getQueryString(), resp);
+		}
+		else if (path.toLowerCase().startsWith("/seed/status")) {
+			status(resp);
+		}
+		else if (path.toLowerCase().startsWith("/seed/cancel/")) {
+			cancel(path.substring(13), resp);
+		}
+
 		if (path.toLowerCase().startsWith("/delete")) {
 			delete(path.substring(7), resp);
 		}
@@ -37,7 +37,9 @@ package org.deegree.services.wcs.coverages;
 import java.io.IOException;
 import java.io.OutputStream;
 
+import org.deegree.commons.utils.TunableParameter;
 import org.deegree.coverage.raster.AbstractRaster;
+import org.deegree.coverage.raster.io.cog.CogWriter;
 import org.deegree.coverage.raster.io.RasterIOOptions;
 import org.deegree.coverage.raster.utils.RasterFactory;
 import org.deegree.services.wcs.model.CoverageResult;
@@ -50,6 +52,14 @@ import org.deegree.services.wcs.model.CoverageResult;
  */
 public class SimpleRasterResult implements CoverageResult {
 
+	/**
+	 * Compression of GeoTIFF tiles, compressed tiles are spooled to a temporary file
+	 * before they are sent.
+	 */
+	public static final String DEF_GEOTIFF_COMPRESSION = "deegree.wcs.geotiff.compression";
+
+	private static final String GEOTIFF_COMPRESSION = TunableParameter.get(DEF_GEOTIFF_COMPRESSION, "none");
+
 	private final AbstractRaster result;
 
 	private final String format;
@@ -67,13 +77,13 @@ public class SimpleRasterResult implements CoverageResult {
 	public void write(OutputStream out) throws IOException {
 		RasterIOOptions options = new RasterIOOptions();
 
-		// lets fake GeoTiff until we have a real GeoTiff writer (TODO)
 		if (format.equalsIgnoreCase("GeoTiff")) {
-			options.add(RasterIOOptions.OPT_FORMAT, "tiff");
-		}
-		else {
-			options.add(RasterIOOptions.OPT_FORMAT, format);
+			// tiled and streamed, without materialising the whole raster
+			options.add(CogWriter.OPT_COMPRESSION, GEOTIFF_COMPRESSION);
+			new CogWriter().write(result, out, options);
+			return;
 		}
+		options.add(RasterIOOptions.OPT_FORMAT, format);
 		RasterFactory.saveRasterToStream(result, out, options);
 
 	}
@@ -0,0 +1,202 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.services.wfs.format.gml.request;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.Arrays;
+
+/**
+ * Compact set of feature ids for deduplicating large GetFeature responses.
+ * <p>
+ * Instead of one <code>String</code> (plus hash map entry) per id, the ids are stored as
+ * UTF-8 bytes in a single growing byte array and referenced from an open addressing table
+ * of primitive 64 bit hashes and offsets. This needs roughly the length of the id plus 25
+ * bytes per entry, which is a fraction of a <code>HashSet&lt;String&gt;</code>.
+ * Membership is exact: equal hashes are always verified against the stored bytes.
+ * </p>
+ */
+class FeatureIdSet {
+
+	private static final float LOAD_FACTOR = 0.6f;
+
+	private static final int MAX_ARENA_SIZE = Integer.MAX_VALUE - 8;
+
+	private long[] hashes;
+
+	private int[] offsets;
+
+	private byte[] arena;
+
+	private int arenaSize;
+
+	private int size;
+
+	private boolean containsNull;
+
+	private int entries;
+
+	private int threshold;
+
+	FeatureIdSet() {
+		init(1024);
+	}
+
+	/**
+	 * Adds the given id to the set.
+	 * @param id feature id, may be <code>null</code>
+	 * @return <code>true</code> if the id has not been contained in the set before,
+	 * <code>false</code> otherwise
+	 */
+	boolean add(String id) {
+		if (id == null) {
+			if (containsNull) {
+				return false;
+			}
+			containsNull = true;
+			size++;
+			return true;
+		}
+		byte[] bytes = id.getBytes(UTF_8);
+		long hash = hash(bytes);
+		int mask = hashes.length - 1;
+		int slot = (int) (hash ^ (hash >>> 32)) & mask;
+		while (hashes[slot] != 0) {
+			if (hashes[slot] == hash && equals(offsets[slot], bytes)) {
+				return false;
+			}
+			slot = (slot + 1) & mask;
+		}
+		hashes[slot] = hash;
+		offsets[slot] = append(bytes);
+		size++;
+		if (++entries > threshold) {
+			rehash();
+		}
+		return true;
+	}
+
+	/**
+	 * @return number of ids in the set
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Removes all ids, but keeps the allocated memory for reuse.
+	 */
+	void clear() {
+		Arrays.fill(hashes, 0L);
+		arenaSize = 0;
+		size = 0;
+		entries = 0;
+		containsNull = false;
+	}
+
+	private void init(int capacity) {
+		hashes = new long[capacity];
+		offsets = new int[capacity];
+		threshold = (int) (capacity * LOAD_FACTOR);
+		if (arena == null) {
+			arena = new byte[capacity * 16];
+		}
+	}
+
+	private void rehash() {
+		long[] oldHashes = hashes;
+		int[] oldOffsets = offsets;
+		init(oldHashes.length * 2);
+		int mask = hashes.length - 1;
+		for (int i = 0; i < oldHashes.length; i++) {
+			long hash = oldHashes[i];
+			if (hash != 0) {
+				int slot = (int) (hash ^ (hash >>> 32)) & mask;
+				while (hashes[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+				hashes[slot] = hash;
+				offsets[slot] = oldOffsets[i];
+			}
+		}
+	}
+
+	private int append(byte[] bytes) {
+		int offset = arenaSize;
+		int needed = offset + 5 + bytes.length;
+		if (needed < 0 || needed > MAX_ARENA_SIZE) {
+			throw new IllegalStateException("Too many feature ids for deduplication.");
+		}
+		if (needed > arena.length) {
+			arena = Arrays.copyOf(arena, (int) Math.min(MAX_ARENA_SIZE, Math.max(needed, 2L * arena.length)));
+		}
+		// length as variable length quantity, 7 bits per byte
+		int pos = offset;
+		int len = bytes.length;
+		while (len > 0x7F) {
+			arena[pos++] = (byte) (len & 0x7F | 0x80);
+			len >>>= 7;
+		}
+		arena[pos++] = (byte) len;
+		System.arraycopy(bytes, 0, arena, pos, bytes.length);
+		arenaSize = pos + bytes.length;
+		return offset;
+	}
+
+	private boolean equals(int offset, byte[] bytes) {
+		int pos = offset;
+		int len = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = arena[pos++];
+			len |= (b & 0x7F) << shift;
+			shift += 7;
+		}
+		while (b < 0);
+		return len == bytes.length && Arrays.equals(arena, pos, pos + len, bytes, 0, len);
+	}
+
+	private static long hash(byte[] bytes) {
+		// 64 bit FNV-1a, 0 is reserved for empty slots
+		long hash = 0xcbf29ce484222325L;
+		for (byte b : bytes) {
+			hash ^= b & 0xFF;
+			hash *= 0x100000001b3L;
+		}
+		return hash == 0 ? 1 : hash;
+	}
+
+}
@@ -59,6 +59,7 @@ import static org.deegree.services.wfs.query.StoredQueryHandler.GET_FEATURE_BY_I
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -75,6 +76,7 @@ import org.deegree.commons.ows.exception.OWSException;
 import org.deegree.commons.tom.ResolveParams;
 import org.deegree.commons.tom.datetime.DateTime;
 import org.deegree.commons.tom.ows.Version;
+import org.deegree.commons.utils.TunableParameter;
 import org.deegree.commons.utils.kvp.InvalidParameterValueException;
 import org.deegree.commons.utils.kvp.KVPUtils;
 import org.deegree.commons.xml.CommonNamespaces;
@@ -125,6 +127,9 @@ public class GmlGetFeatureHandler extends AbstractGmlRequestHandler {
 
 	private static final Logger LOG = LoggerFactory.getLogger(GmlGetFeatureHandler.class);
 
+	private static final int MAX_CACHED_FEATURES = TunableParameter.get("deegree.wfs.getfeature.cached-features",
+			1000);
+
 	/**
 	 * Creates a new {@link GmlGetFeatureHandler} instance.
 	 * @param format never <code>null</code>
@@ -548,46 +553,57 @@ public class GmlGetFeatureHandler extends AbstractGmlRequestHandler {
 		}
 	}
 
+	/**
+	 * Writes the feature members with exact <code>numberMatched</code>/
+	 * <code>numberReturned</code> and <code>boundedBy</code> information, skipping
+	 * duplicate features.
+	 * <p>
+	 * As counts and envelope have to be written before the first member, the features
+	 * are retrieved twice: the first pass only counts them, merges their envelopes and
+	 * records their ids in a compact {@link FeatureIdSet}; the second pass retrieves them
+	 * again and writes them as they arrive. Up to {@link #MAX_CACHED_FEATURES} features
+	 * are kept from the first pass, so small results are still only retrieved once.
+	 * </p>
+	 */
 	private void writeFeatureMembersCached(Version wfsVersion, GMLStreamWriter gmlStream, QueryAnalyzer analyzer,
 			GMLVersion outputFormat, int maxFeatures, int startIndex, QName featureMemberEl, Lock lock,
 			ResponsePagingUris responsePagingUris)
 			throws XMLStreamException, UnknownCRSException, TransformationException, FeatureStoreException,
 			FilterEvaluationException, FactoryConfigurationError, OWSException {
 
-		FeatureCollection allFeatures = new GenericFeatureCollection();
-		Set<String> fids = new HashSet<String>();
-
-		// retrieve maxfeatures features
-		int featuresAdded = 0;
-		int featuresSkipped = 0;
 		Map<FeatureStore, List<Query>> analysedQueries = analyzer.getQueries();
-		boolean applyMaxFeaturesAndStartIndex = checkIfMaxFeaturesAndStartIndexMustBeApplied(analysedQueries);
+		MemberSelector selector = new MemberSelector(lock, maxFeatures, startIndex,
+				checkIfMaxFeaturesAndStartIndexMustBeApplied(analysedQueries));
+
+		// first pass: count features and determine envelope
+		List<Feature> cachedFeatures = new ArrayList<Feature>();
+		int numberOfFeatures = 0;
+		Envelope env = null;
 		for (Map.Entry<FeatureStore, List<Query>> fsToQueries : analysedQueries.entrySet()) {
 			FeatureStore fs = fsToQueries.getKey();
 			Query[] queries = fsToQueries.getValue().toArray(new Query[fsToQueries.getValue().size()]);
 			FeatureInputStream rs = fs.query(queries);
 			try {
 				for (Feature feature : rs) {
-					if (lock != null && !lock.isLocked(feature.getId())) {
+					if (selector.isComplete()) {
+						break;
+					}
+					if (!selector.select(feature)) {
 						continue;
 					}
-					if (applyMaxFeaturesAndStartIndex) {
-						if (featuresAdded == maxFeatures) {
-							break;
-						}
-						if (featuresSkipped < startIndex) {
-							featuresSkipped++;
-						}
-						else if (!fids.contains(feature.getId())) {
-							allFeatures.add(feature);
-							fids.add(feature.getId());
-							featuresAdded++;
-						}
+					numberOfFeatures++;
+					Envelope memberEnv = feature.getEnvelope();
+					if (memberEnv != null) {
+						env = env == null ? memberEnv : env.merge(memberEnv);
 					}
-					else {
-						if (!fids.contains(feature.getId())) {
-							allFeatures.add(feature);
-							fids.add(feature.getId());
+					if (cachedFeatures != null) {
+						if (cachedFeatures.size() < MAX_CACHED_FEATURES) {
+							cachedFeatures.add(feature);
+						}
+						else {
+							LOG.debug("More than {} features, features will be retrieved again for writing.",
+									MAX_CACHED_FEATURES);
+							cachedFeatures = null;
 						}
 					}
 				}
@@ -600,22 +616,52 @@ public class GmlGetFeatureHandler extends AbstractGmlRequestHandler {
 
 		XMLStreamWriter xmlStream = gmlStream.getXMLStream();
 		if (wfsVersion.equals(VERSION_200)) {
-			xmlStream.writeAttribute("numberMatched", "" + allFeatures.size());
-			xmlStream.writeAttribute("numberReturned", "" + allFeatures.size());
+			xmlStream.writeAttribute("numberMatched", "" + numberOfFeatures);
+			xmlStream.writeAttribute("numberReturned", "" + numberOfFeatures);
 			writeResponsePagingUris(xmlStream, responsePagingUris);
 		}
 		else if (!wfsVersion.equals(VERSION_100) && options.getResponseContainerEl() == null) {
-			xmlStream.writeAttribute("numberOfFeatures", "" + allFeatures.size());
+			xmlStream.writeAttribute("numberOfFeatures", "" + numberOfFeatures);
 		}
 
-		if (outputFormat == GML_2 || allFeatures.getEnvelope() != null) {
-			writeBoundedBy(wfsVersion, gmlStream, outputFormat, allFeatures.getEnvelope());
+		if (outputFormat == GML_2 || env != null) {
+			writeBoundedBy(wfsVersion, gmlStream, outputFormat, env);
 		}
 
-		// retrieve and write result features
+		// second pass: retrieve and write result features
 		GmlXlinkOptions resolveState = gmlStream.getReferenceResolveStrategy().getResolveOptions();
-		for (Feature member : allFeatures) {
-			writeMemberFeature(member, gmlStream, xmlStream, resolveState, featureMemberEl, wfsVersion);
+		if (cachedFeatures != null) {
+			for (Feature member : cachedFeatures) {
+				writeMemberFeature(member, gmlStream, xmlStream, resolveState, featureMemberEl, wfsVersion);
+			}
+			return;
+		}
+		selector.reset();
+		int featuresWritten = 0;
+		for (Map.Entry<FeatureStore, List<Query>> fsToQueries : analysedQueries.entrySet()) {
+			FeatureStore fs = fsToQueries.getKey();
+			Query[] queries = fsToQueries.getValue().toArray(new Query[fsToQueries.getValue().size()]);
+			FeatureInputStream rs = fs.query(queries);
+			try {
+				for (Feature member : rs) {
+					// never write more features than announced, even if the store changed in between
+					if (selector.isComplete() || featuresWritten == numberOfFeatures) {
+						break;
+					}
+					if (selector.select(member)) {
+						writeMemberFeature(member, gmlStream, xmlStream, resolveState, featureMemberEl, wfsVersion);
+						featuresWritten++;
+					}
+				}
+			}
+			finally {
+				LOG.debug("Closing FeatureResultSet (cached, second pass)");
+				rs.close();
+			}
+		}
+		if (featuresWritten != numberOfFeatures) {
+			LOG.warn("Wrote {} features, but announced {}: features have been changed during the request.",
+					featuresWritten, numberOfFeatures);
 		}
 	}
 
@@ -810,6 +856,60 @@ public class GmlGetFeatureHandler extends AbstractGmlRequestHandler {
 		return true;
 	}
 
+	/**
+	 * Applies lock, start index, max features and deduplication to the retrieved
+	 * features.
+	 */
+	private static class MemberSelector {
+
+		private final Lock lock;
+
+		private final int maxFeatures;
+
+		private final int startIndex;
+
+		private final boolean applyMaxFeaturesAndStartIndex;
+
+		private final FeatureIdSet fids = new FeatureIdSet();
+
+		private int featuresAdded;
+
+		private int featuresSkipped;
+
+		private MemberSelector(Lock lock, int maxFeatures, int startIndex, boolean applyMaxFeaturesAndStartIndex) {
+			this.lock = lock;
+			this.maxFeatures = maxFeatures;
+			this.startIndex = startIndex;
+			this.applyMaxFeaturesAndStartIndex = applyMaxFeaturesAndStartIndex;
+		}
+
+		private boolean isComplete() {
+			return applyMaxFeaturesAndStartIndex && featuresAdded == maxFeatures;
+		}
+
+		private boolean select(Feature feature) throws FeatureStoreException {
+			if (lock != null && !lock.isLocked(feature.getId())) {
+				return false;
+			}
+			if (applyMaxFeaturesAndStartIndex && featuresSkipped < startIndex) {
+				featuresSkipped++;
+				return false;
+			}
+			if (!fids.add(feature.getId())) {
+				return false;
+			}
+			featuresAdded++;
+			return true;
+		}
+
+		private void reset() {
+			fids.clear();
+			featuresAdded = 0;
+			featuresSkipped = 0;
+		}
+
+	}
+
 	private class ResponsePagingUris {
 
 		private final String nextUri;
@@ -0,0 +1,94 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.services.wfs.format.gml.request;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link FeatureIdSet}.
+ */
+public class FeatureIdSetTest {
+
+	@Test
+	public void testAdd() {
+		FeatureIdSet fids = new FeatureIdSet();
+		assertTrue(fids.add("app_Building_1"));
+		assertTrue(fids.add("app_Building_2"));
+		assertFalse(fids.add("app_Building_1"));
+		assertTrue(fids.add("äöü_1"));
+		assertFalse(fids.add("äöü_1"));
+		assertEquals(3, fids.size());
+	}
+
+	@Test
+	public void testAddNull() {
+		FeatureIdSet fids = new FeatureIdSet();
+		assertTrue(fids.add(null));
+		assertFalse(fids.add(null));
+		assertEquals(1, fids.size());
+	}
+
+	@Test
+	public void testAddManyAndLongIds() {
+		FeatureIdSet fids = new FeatureIdSet();
+		StringBuilder prefix = new StringBuilder();
+		for (int i = 0; i < 200; i++) {
+			prefix.append('x');
+		}
+		for (int i = 0; i < 100000; i++) {
+			assertTrue(fids.add(prefix + "_" + i));
+		}
+		for (int i = 0; i < 100000; i++) {
+			assertFalse(fids.add(prefix + "_" + i));
+		}
+		assertEquals(100000, fids.size());
+	}
+
+	@Test
+	public void testClear() {
+		FeatureIdSet fids = new FeatureIdSet();
+		fids.add("f1");
+		fids.add(null);
+		fids.clear();
+		assertEquals(0, fids.size());
+		assertTrue(fids.add("f1"));
+		assertTrue(fids.add(null));
+	}
+
+}
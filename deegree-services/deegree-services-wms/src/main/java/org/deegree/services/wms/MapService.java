@@ -124,6 +124,8 @@ public class MapService {
 
 	private final RequestedLayerVisibilityInspector visibilityInspector;
 
+	private final ParallelLayerRenderer parallelRenderer;
+
 	/**
 	 * @param conf
 	 * @param workspace
@@ -168,6 +170,16 @@ public class MapService {
 		getLegendHandler = new GetLegendHandler(this);
 
 		visibilityInspector = new RequestedLayerVisibilityInspector(conf.getVisibilityInspector(), workspace);
+		parallelRenderer = builder.buildParallelLayerRenderer();
+	}
+
+	/**
+	 * Releases the resources (rendering threads) held by this map service.
+	 */
+	public void destroy() {
+		if (parallelRenderer != null) {
+			parallelRenderer.destroy();
+		}
 	}
 
 	/**
@@ -239,16 +251,27 @@ public class MapService {
 		try {
 			List<LayerData> layerDataList = checkStyleValidAndBuildLayerDataList(gm, headers, scale, queryIter);
 			Iterator<MapOptions> optIter = mapOptions.iterator();
-			for (LayerData d : layerDataList) {
-				ctx.applyOptions(optIter.next());
+			if (isRenderedInParallel(parallelRenderer, gm.getFormat(), layerDataList.size())) {
 				try {
-					d.render(ctx);
+					parallelRenderer.render(gm, layerDataList, optIter, ctx, scale);
 				}
 				catch (InterruptedException e) {
 					String msg = "Request time-out.";
 					throw new OWSException(msg, NO_APPLICABLE_CODE);
 				}
 			}
+			else {
+				for (LayerData d : layerDataList) {
+					ctx.applyOptions(optIter.next());
+					try {
+						d.render(ctx);
+					}
+					catch (InterruptedException e) {
+						String msg = "Request time-out.";
+						throw new OWSException(msg, NO_APPLICABLE_CODE);
+					}
+				}
+			}
 			ctx.optimizeAndDrawLabels();
 			if (copyright != null) {
 				ctx.paintCopyright(copyright, gm.getHeight());
@@ -260,6 +283,17 @@ public class MapService {
 		}
 	}
 
+	/**
+	 * @param renderer the parallel renderer, <code>null</code> if it is not configured
+	 * @param format the requested output format
+	 * @param numLayers the number of layers to render
+	 * @return <code>true</code>, if the layers are rendered with the parallel renderer
+	 */
+	static boolean isRenderedInParallel(ParallelLayerRenderer renderer, String format, int numLayers) {
+		// layers are composited as raster images, so keep vector output formats sequential
+		return renderer != null && numLayers > 1 && !"image/svg+xml".equals(format);
+	}
+
 	private List<LayerData> checkStyleValidAndBuildLayerDataList(org.deegree.protocol.wms.ops.GetMap gm,
 			List<String> headers, double scale, ListIterator<LayerQuery> queryIter) throws OWSException {
 		List<LayerData> layerDataList = new ArrayList<LayerData>();
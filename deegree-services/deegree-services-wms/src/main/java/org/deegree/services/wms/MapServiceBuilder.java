@@ -50,6 +50,7 @@ import org.deegree.rendering.r2d.context.MapOptions.Antialias;
 import org.deegree.rendering.r2d.context.MapOptions.Interpolation;
 import org.deegree.rendering.r2d.context.MapOptions.Quality;
 import org.deegree.services.jaxb.wms.LayerOptionsType;
+import org.deegree.services.jaxb.wms.ParallelRenderingType;
 import org.deegree.services.jaxb.wms.ServiceConfigurationType;
 import org.slf4j.Logger;
 
@@ -111,6 +112,24 @@ class MapServiceBuilder {
 		return null;
 	}
 
+	ParallelLayerRenderer buildParallelLayerRenderer() {
+		if (conf == null || conf.getParallelRendering() == null) {
+			return null;
+		}
+		ParallelRenderingType parallel = conf.getParallelRendering();
+		int maxThreads = Runtime.getRuntime().availableProcessors();
+		if (parallel.getMaxThreads() != null) {
+			maxThreads = parallel.getMaxThreads();
+		}
+		if (maxThreads < 2) {
+			LOG.warn("Parallel rendering needs at least two threads, but {} were configured. Rendering sequentially.",
+					maxThreads);
+			return null;
+		}
+		LOG.debug("Rendering layers in parallel using up to {} threads.", maxThreads);
+		return new ParallelLayerRenderer(maxThreads);
+	}
+
 	private static <T extends Enum<T>> T handleDefaultValue(String val, Class<T> enumType, T defaultValue) {
 		if (val == null) {
 			return defaultValue;
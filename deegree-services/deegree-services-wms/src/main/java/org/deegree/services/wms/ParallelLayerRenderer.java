@@ -0,0 +1,244 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.services.wms;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.deegree.layer.LayerData;
+import org.deegree.protocol.wms.filter.EnvFunction;
+import org.deegree.protocol.wms.filter.ScaleFunction;
+import org.deegree.protocol.wms.ops.GetMap;
+import org.deegree.rendering.r2d.Label;
+import org.deegree.rendering.r2d.context.ImageRenderContext;
+import org.deegree.rendering.r2d.context.MapOptions;
+import org.deegree.rendering.r2d.context.RenderContext;
+import org.deegree.rendering.r2d.context.RenderingInfo;
+import org.slf4j.Logger;
+
+/**
+ * Renders the {@link LayerData} of a GetMap request concurrently.
+ * <p>
+ * The first layer is rendered directly into the target context on the calling thread, all
+ * other layers are rendered into off-screen images on a bounded, service wide thread
+ * pool. The images (and the labels collected while rendering them) are composited into
+ * the target context in request order afterwards, so the result equals the one of
+ * sequential rendering. If the calling thread gets interrupted (request time-out), all
+ * outstanding layer renderings are cancelled.
+ * </p>
+ */
+class ParallelLayerRenderer {
+
+	private static final Logger LOG = getLogger(ParallelLayerRenderer.class);
+
+	private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+	private final ExecutorService executor;
+
+	private final int maxThreads;
+
+	/**
+	 * @param maxThreads maximum number of threads used for rendering layers of all
+	 * requests of the service, must be positive
+	 */
+	ParallelLayerRenderer(int maxThreads) {
+		this.maxThreads = maxThreads;
+		this.executor = Executors.newFixedThreadPool(maxThreads, new RenderThreadFactory());
+	}
+
+	/**
+	 * @return the maximum number of rendering threads
+	 */
+	int getMaxThreads() {
+		return maxThreads;
+	}
+
+	/**
+	 * Renders the layers into the given context.
+	 * @param gm the GetMap request, never <code>null</code>
+	 * @param layerDataList the layers to render in request order, never <code>null</code>
+	 * @param optIter the map options of the layers in request order, never
+	 * <code>null</code>
+	 * @param ctx the target context, never <code>null</code>
+	 * @param scale the scale of the request
+	 * @throws InterruptedException if the calling thread was interrupted
+	 */
+	void render(GetMap gm, List<LayerData> layerDataList, Iterator<MapOptions> optIter, RenderContext ctx,
+			double scale) throws InterruptedException {
+		Iterator<LayerData> layerIter = layerDataList.iterator();
+		LayerData first = layerIter.next();
+		MapOptions firstOptions = optIter.next();
+
+		List<MapOptions> options = new ArrayList<MapOptions>(layerDataList.size() - 1);
+		List<Future<RenderedLayer>> futures = new ArrayList<Future<RenderedLayer>>(layerDataList.size() - 1);
+		Map<String, Object> env = EnvFunction.getCurrentEnvValue().get();
+		try {
+			while (layerIter.hasNext()) {
+				MapOptions opts = optIter.next();
+				options.add(opts);
+				futures.add(executor.submit(new LayerRenderTask(gm, layerIter.next(), opts, scale, env)));
+			}
+
+			ctx.applyOptions(firstOptions);
+			first.render(ctx);
+
+			Iterator<MapOptions> optsIter = options.iterator();
+			for (Future<RenderedLayer> future : futures) {
+				RenderedLayer layer = getResult(future);
+				ctx.applyOptions(optsIter.next());
+				ctx.paintImage(layer.image);
+				ctx.getLabelRenderer().getLabels().addAll(layer.labels);
+			}
+		}
+		finally {
+			for (Future<RenderedLayer> future : futures) {
+				future.cancel(true);
+			}
+		}
+	}
+
+	/**
+	 * Stops all rendering threads.
+	 */
+	void destroy() {
+		executor.shutdownNow();
+	}
+
+	private static RenderedLayer getResult(Future<RenderedLayer> future) throws InterruptedException {
+		try {
+			return future.get();
+		}
+		catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof InterruptedException) {
+				throw (InterruptedException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new RuntimeException(cause);
+		}
+	}
+
+	private static class LayerRenderTask implements Callable<RenderedLayer> {
+
+		private final GetMap gm;
+
+		private final LayerData layerData;
+
+		private final MapOptions options;
+
+		private final double scale;
+
+		private final Map<String, Object> env;
+
+		LayerRenderTask(GetMap gm, LayerData layerData, MapOptions options, double scale, Map<String, Object> env) {
+			this.gm = gm;
+			this.layerData = layerData;
+			this.options = options;
+			this.scale = scale;
+			this.env = env;
+		}
+
+		@Override
+		public RenderedLayer call() throws Exception {
+			// filter functions evaluated during rendering rely on these
+			ScaleFunction.getCurrentScaleValue().set(scale);
+			EnvFunction.getCurrentEnvValue().set(env);
+			try {
+				BufferedImage image = new BufferedImage(gm.getWidth(), gm.getHeight(), TYPE_INT_ARGB);
+				RenderingInfo info = new RenderingInfo("image/png", gm.getWidth(), gm.getHeight(), true, null,
+						gm.getBoundingBox(), gm.getPixelSize(), gm.getParameterMap());
+				RenderContext layerCtx = ImageRenderContext.createInstance(info, image, null);
+				layerCtx.applyOptions(options);
+				layerData.render(layerCtx);
+				List<Label> labels = layerCtx.getLabelRenderer().getLabels();
+				layerCtx.close();
+				return new RenderedLayer(image, labels);
+			}
+			finally {
+				ScaleFunction.getCurrentScaleValue().remove();
+				EnvFunction.getCurrentEnvValue().remove();
+			}
+		}
+
+	}
+
+	private static class RenderedLayer {
+
+		final BufferedImage image;
+
+		final List<Label> labels;
+
+		RenderedLayer(BufferedImage image, List<Label> labels) {
+			this.image = image;
+			this.labels = labels;
+		}
+
+	}
+
+	private static class RenderThreadFactory implements ThreadFactory {
+
+		private final String prefix = "wms-render-" + POOL_NUMBER.incrementAndGet() + "-";
+
+		private final AtomicInteger threadNumber = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, prefix + threadNumber.incrementAndGet());
+			t.setDaemon(true);
+			LOG.debug("Created layer rendering thread {}.", t.getName());
+			return t;
+		}
+
+	}
+
+}
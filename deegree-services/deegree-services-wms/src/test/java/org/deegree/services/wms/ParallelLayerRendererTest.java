@@ -0,0 +1,214 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.services.wms;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static java.util.Arrays.asList;
+import static java.util.Collections.nCopies;
+import static org.deegree.rendering.r2d.context.MapOptions.Antialias.NONE;
+import static org.deegree.rendering.r2d.context.MapOptions.Interpolation.NEARESTNEIGHBOR;
+import static org.deegree.rendering.r2d.context.MapOptions.Quality.NORMAL;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Collections;
+import java.util.List;
+
+import org.deegree.feature.FeatureCollection;
+import org.deegree.geometry.GeometryFactory;
+import org.deegree.layer.LayerData;
+import org.deegree.protocol.wms.ops.GetMap;
+import org.deegree.rendering.r2d.context.ImageRenderContext;
+import org.deegree.rendering.r2d.context.MapOptions;
+import org.deegree.rendering.r2d.context.RenderContext;
+import org.deegree.rendering.r2d.context.RenderingInfo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ParallelLayerRenderer}.
+ */
+public class ParallelLayerRendererTest {
+
+	private static final int WIDTH = 100;
+
+	private static final int HEIGHT = 80;
+
+	private static final MapOptions OPTIONS = new MapOptions.Builder().quality(NORMAL)
+		.interpolation(NEARESTNEIGHBOR)
+		.antialias(NONE)
+		.build();
+
+	private final GetMap gm = mock(GetMap.class);
+
+	private ParallelLayerRenderer renderer;
+
+	@Before
+	public void setup() {
+		when(gm.getWidth()).thenReturn(WIDTH);
+		when(gm.getHeight()).thenReturn(HEIGHT);
+		when(gm.getBoundingBox()).thenReturn(new GeometryFactory().createEnvelope(0, 0, WIDTH, HEIGHT, null));
+		when(gm.getPixelSize()).thenReturn(0.28);
+		when(gm.getParameterMap()).thenReturn(Collections.<String, String>emptyMap());
+		renderer = new ParallelLayerRenderer(4);
+	}
+
+	@After
+	public void shutdown() {
+		renderer.destroy();
+	}
+
+	@Test
+	public void testOverlappingLayersAreCompositedInRequestOrder() throws InterruptedException {
+		// the lower layers take longer, so the upper layers finish rendering first
+		List<LayerData> layers = asList(new RectangleLayer(Color.RED, 0, 0, 0),
+				new RectangleLayer(Color.GREEN, 20, 10, 120), new RectangleLayer(Color.BLUE, 40, 20, 60),
+				new RectangleLayer(Color.YELLOW, 30, 30, 0), new RectangleLayer(Color.BLACK, 60, 40, 0));
+
+		BufferedImage serial = renderSerially(layers);
+		BufferedImage parallel = renderInParallel(layers);
+
+		assertArrayEquals(pixels(serial), pixels(parallel));
+		assertEquals(Color.BLUE.getRGB(), parallel.getRGB(45, 25));
+		assertEquals(Color.YELLOW.getRGB(), parallel.getRGB(35, 35));
+		assertEquals(Color.BLACK.getRGB(), parallel.getRGB(65, 45));
+	}
+
+	@Test
+	public void testSingleLayer() throws InterruptedException {
+		List<LayerData> layers = Collections.<LayerData>singletonList(new RectangleLayer(Color.RED, 10, 10, 0));
+
+		assertArrayEquals(pixels(renderSerially(layers)), pixels(renderInParallel(layers)));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testFailingLayer() throws InterruptedException {
+		LayerData failing = new RectangleLayer(Color.RED, 0, 0, 0) {
+			@Override
+			public void render(RenderContext context) {
+				throw new IllegalStateException("failing layer");
+			}
+		};
+		renderInParallel(asList(new RectangleLayer(Color.GREEN, 0, 0, 0), failing));
+	}
+
+	@Test
+	public void testSerialFallback() {
+		assertTrue(MapService.isRenderedInParallel(renderer, "image/png", 2));
+		assertFalse(MapService.isRenderedInParallel(null, "image/png", 2));
+		assertFalse(MapService.isRenderedInParallel(renderer, "image/png", 1));
+		assertFalse(MapService.isRenderedInParallel(renderer, "image/svg+xml", 2));
+	}
+
+	private BufferedImage renderSerially(List<LayerData> layers) throws InterruptedException {
+		BufferedImage image = createImage();
+		RenderContext ctx = createContext(image);
+		for (LayerData layer : layers) {
+			ctx.applyOptions(OPTIONS);
+			layer.render(ctx);
+		}
+		return image;
+	}
+
+	private BufferedImage renderInParallel(List<LayerData> layers) throws InterruptedException {
+		BufferedImage image = createImage();
+		RenderContext ctx = createContext(image);
+		renderer.render(gm, layers, nCopies(layers.size(), OPTIONS).iterator(), ctx, 1000);
+		return image;
+	}
+
+	private static BufferedImage createImage() {
+		BufferedImage image = new BufferedImage(WIDTH, HEIGHT, TYPE_INT_ARGB);
+		Graphics2D g = image.createGraphics();
+		g.setColor(Color.WHITE);
+		g.fillRect(0, 0, WIDTH, HEIGHT);
+		g.dispose();
+		return image;
+	}
+
+	private static RenderContext createContext(BufferedImage image) {
+		RenderingInfo info = new RenderingInfo("image/png", WIDTH, HEIGHT, false, Color.WHITE, null, 0.28,
+				Collections.<String, String>emptyMap());
+		return ImageRenderContext.createInstance(info, image, null);
+	}
+
+	private static int[] pixels(BufferedImage image) {
+		return image.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH);
+	}
+
+	private static class RectangleLayer implements LayerData {
+
+		private final Color color;
+
+		private final int x;
+
+		private final int y;
+
+		private final long delay;
+
+		RectangleLayer(Color color, int x, int y, long delay) {
+			this.color = color;
+			this.x = x;
+			this.y = y;
+			this.delay = delay;
+		}
+
+		@Override
+		public void render(RenderContext context) throws InterruptedException {
+			Thread.sleep(delay);
+			BufferedImage image = new BufferedImage(WIDTH, HEIGHT, TYPE_INT_ARGB);
+			Graphics2D g = image.createGraphics();
+			g.setColor(color);
+			g.fillRect(x, y, 30, 30);
+			g.dispose();
+			context.paintImage(image);
+		}
+
+		@Override
+		public FeatureCollection info() {
+			return null;
+		}
+
+	}
+
+}
@@ -40,8 +40,10 @@
 
 package org.deegree.services.wmts.controller;
 
+import static jakarta.servlet.http.HttpServletResponse.SC_NOT_MODIFIED;
 import static org.apache.commons.io.IOUtils.closeQuietly;
 import static org.apache.commons.io.IOUtils.copy;
+import static org.apache.commons.io.IOUtils.toByteArray;
 import static org.deegree.commons.ows.exception.OWSException.INVALID_PARAMETER_VALUE;
 import static org.deegree.commons.ows.exception.OWSException.NO_APPLICABLE_CODE;
 
@@ -51,6 +53,7 @@ import java.util.List;
 import java.util.Map;
 
 import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
 
 import org.deegree.commons.ows.exception.OWSException;
 import org.deegree.layer.Layer;
@@ -62,9 +65,17 @@ import org.deegree.theme.Themes;
 import org.deegree.tile.Tile;
 import org.deegree.tile.TileDataLevel;
 import org.deegree.tile.TileDataSet;
+import org.deegree.tile.Tiles;
 
 /**
  * Responsible for handling GetTile requests.
+ * <p>
+ * Responses carry an <code>ETag</code> (and a <code>Last-Modified</code> header, if the
+ * tile knows its modification time), so clients can revalidate tiles with conditional
+ * requests, which are answered with <code>304 Not Modified</code>. If the tile provides a
+ * version, this does not access the tile data at all, otherwise the entity tag is
+ * calculated from the tile data.
+ * </p>
  *
  * @author <a href="mailto:schmitz@occamlabs.de">Andreas Schmitz</a>
  */
@@ -84,12 +95,14 @@ class TileHandler {
 		}
 	}
 
-	void getTile(Map<String, String> map, HttpResponseBuffer response) throws OWSException, ServletException {
+	void getTile(Map<String, String> map, HttpServletRequest request, HttpResponseBuffer response)
+			throws OWSException, ServletException {
 		GetTile op = new GetTile(map);
-		getTile(op, response);
+		getTile(op, request, response);
 	}
 
-	private void getTile(final GetTile op, final HttpResponseBuffer response) throws OWSException, ServletException {
+	private void getTile(final GetTile op, final HttpServletRequest request, final HttpResponseBuffer response)
+			throws OWSException, ServletException {
 		final TileLayer layer = layers.get(op.getLayer());
 		if (layer == null) {
 			throw new OWSException("Unknown layer: " + op.getLayer(), INVALID_PARAMETER_VALUE);
@@ -131,11 +144,38 @@ class TileHandler {
 
 		InputStream in = null;
 		try {
+			byte[] data = null;
+			String version = t.getVersion();
+			if (version == null) {
+				in = t.getAsStream();
+				if (in == null) {
+					throw new OWSException("Tile yielded no data.", NO_APPLICABLE_CODE);
+				}
+				data = toByteArray(in);
+				version = Tiles.getVersion(data);
+			}
+			String etag = "\"" + version + "\"";
+			long lastModified = t.getLastModified();
+			response.setHeader("ETag", etag);
+			if (lastModified >= 0) {
+				response.setDateHeader("Last-Modified", lastModified);
+			}
+			if (layer.getCacheControl() != null) {
+				response.setHeader("Cache-Control", layer.getCacheControl());
+			}
+			if (isNotModified(request, etag, lastModified)) {
+				response.setStatus(SC_NOT_MODIFIED);
+				return;
+			}
+			response.setContentType(getContentType(t, format, tds));
+			if (data != null) {
+				response.getOutputStream().write(data);
+				return;
+			}
 			in = t.getAsStream();
 			if (in == null) {
 				throw new OWSException("Tile yielded no data.", NO_APPLICABLE_CODE);
 			}
-			response.setContentType(format);
 			copy(in, response.getOutputStream());
 		}
 		catch (Throwable e) {
@@ -146,4 +186,54 @@ class TileHandler {
 		}
 	}
 
+	/**
+	 * Evaluates the conditional request headers as specified in RFC 9110, section 13.2.2:
+	 * <code>If-Modified-Since</code> is only considered if there is no
+	 * <code>If-None-Match</code> header.
+	 */
+	static boolean isNotModified(HttpServletRequest request, String etag, long lastModified) {
+		String ifNoneMatch = request.getHeader("If-None-Match");
+		if (ifNoneMatch != null) {
+			for (String tag : ifNoneMatch.split(",")) {
+				tag = tag.trim();
+				if (tag.startsWith("W/")) {
+					// weak comparison
+					tag = tag.substring(2);
+				}
+				if (tag.equals("*") || tag.equals(etag)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		if (lastModified < 0) {
+			return false;
+		}
+		long ifModifiedSince;
+		try {
+			ifModifiedSince = request.getDateHeader("If-Modified-Since");
+		}
+		catch (IllegalArgumentException e) {
+			// invalid date, must be ignored
+			return false;
+		}
+		// HTTP dates have a resolution of seconds
+		return ifModifiedSince >= 0 && lastModified / 1000 <= ifModifiedSince / 1000;
+	}
+
+	/**
+	 * The encoded tile bytes are always sent as they are, so the content type is taken
+	 * from the tile if it knows its encoding.
+	 */
+	private static String getContentType(Tile t, String format, TileDataSet tds) {
+		String encodedFormat = t.getEncodedFormat();
+		if (encodedFormat != null) {
+			return encodedFormat;
+		}
+		if (format != null && !format.isEmpty()) {
+			return format;
+		}
+		return tds.getNativeImageFormat();
+	}
+
 }
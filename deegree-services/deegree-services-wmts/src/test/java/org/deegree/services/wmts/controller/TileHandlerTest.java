@@ -0,0 +1,135 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.services.wmts.controller;
+
+import static org.deegree.services.wmts.controller.TileHandler.isNotModified;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link TileHandler#isNotModified(HttpServletRequest, String, long)}.
+ */
+public class TileHandlerTest {
+
+	private static final String ETAG = "\"abc\"";
+
+	private static final long LAST_MODIFIED = 1700000000500L;
+
+	@Test
+	public void testUnconditionalRequest() {
+		HttpServletRequest request = request(null, -1);
+		assertFalse(isNotModified(request, ETAG, LAST_MODIFIED));
+	}
+
+	@Test
+	public void testMatchingEtag() {
+		assertTrue(isNotModified(request(ETAG, -1), ETAG, LAST_MODIFIED));
+		assertFalse(isNotModified(request("\"other\"", -1), ETAG, LAST_MODIFIED));
+		// entity tags must be quoted
+		assertFalse(isNotModified(request("abc", -1), ETAG, LAST_MODIFIED));
+	}
+
+	@Test
+	public void testWeakEtag() {
+		assertTrue(isNotModified(request("W/" + ETAG, -1), ETAG, LAST_MODIFIED));
+		assertFalse(isNotModified(request("W/\"other\"", -1), ETAG, LAST_MODIFIED));
+	}
+
+	@Test
+	public void testAnyEtag() {
+		assertTrue(isNotModified(request("*", -1), ETAG, LAST_MODIFIED));
+	}
+
+	@Test
+	public void testEtagList() {
+		assertTrue(isNotModified(request("\"x\", W/\"y\"," + ETAG, -1), ETAG, LAST_MODIFIED));
+		assertTrue(isNotModified(request("\"x\" , W/" + ETAG + " ,\"y\"", -1), ETAG, LAST_MODIFIED));
+		assertFalse(isNotModified(request("\"x\", W/\"y\"", -1), ETAG, LAST_MODIFIED));
+	}
+
+	@Test
+	public void testIfNoneMatchTakesPrecedence() {
+		// would be not modified according to the date, but the tag does not match
+		HttpServletRequest request = request("\"other\"", LAST_MODIFIED);
+		assertFalse(isNotModified(request, ETAG, LAST_MODIFIED));
+		verify(request, never()).getDateHeader("If-Modified-Since");
+
+		// would be modified according to the date, but the tag matches
+		request = request(ETAG, LAST_MODIFIED - 60000);
+		assertTrue(isNotModified(request, ETAG, LAST_MODIFIED));
+		verify(request, never()).getDateHeader("If-Modified-Since");
+	}
+
+	@Test
+	public void testIfModifiedSince() {
+		assertTrue(isNotModified(request(null, LAST_MODIFIED + 60000), ETAG, LAST_MODIFIED));
+		assertFalse(isNotModified(request(null, LAST_MODIFIED - 60000), ETAG, LAST_MODIFIED));
+		// unknown modification time
+		assertFalse(isNotModified(request(null, LAST_MODIFIED), ETAG, -1));
+	}
+
+	@Test
+	public void testIfModifiedSinceHasSecondGranularity() {
+		// HTTP dates lack the milliseconds of the modification time
+		long httpDate = LAST_MODIFIED / 1000 * 1000;
+		assertTrue(isNotModified(request(null, httpDate), ETAG, LAST_MODIFIED));
+		assertTrue(isNotModified(request(null, httpDate), ETAG, httpDate + 999));
+		assertFalse(isNotModified(request(null, httpDate), ETAG, httpDate + 1000));
+		assertFalse(isNotModified(request(null, httpDate - 1000), ETAG, LAST_MODIFIED));
+	}
+
+	@Test
+	public void testInvalidIfModifiedSince() {
+		HttpServletRequest request = mock(HttpServletRequest.class);
+		when(request.getDateHeader("If-Modified-Since")).thenThrow(new IllegalArgumentException());
+		assertFalse(isNotModified(request, ETAG, LAST_MODIFIED));
+	}
+
+	private static HttpServletRequest request(String ifNoneMatch, long ifModifiedSince) {
+		HttpServletRequest request = mock(HttpServletRequest.class);
+		when(request.getHeader("If-None-Match")).thenReturn(ifNoneMatch);
+		when(request.getDateHeader("If-Modified-Since")).thenReturn(ifModifiedSince);
+		return request;
+	}
+
+}
@@ -108,7 +108,8 @@ public class InputReference {
 	}
 
 	/**
-	 * Provides an {@link InputStream} for accessing the referenced content.
+	 * Provides an {@link InputStream} for accessing the referenced content. The content is
+	 * read completely, so the HTTP connection is released before the stream is returned.
 	 * @return {@link InputStream} that provides access to the referenced content
 	 * @throws IOException if accessing the referenced content fails
 	 */
@@ -135,11 +136,18 @@ public class InputReference {
 					postBodyInputStream = is;
 				}
 			}
-			is = HttpUtils.post(HttpUtils.STREAM, href.toString(), postBodyInputStream, headers);
+			try {
+				is = HttpUtils.post(HttpUtils.BUFFERED_STREAM, href.toString(), postBodyInputStream, headers);
+			}
+			finally {
+				if (postBodyInputStream != null) {
+					postBodyInputStream.close();
+				}
+			}
 		}
 		else {
 			LOG.debug("GET");
-			is = HttpUtils.get(HttpUtils.STREAM, href.toString(), headers);
+			is = HttpUtils.get(HttpUtils.BUFFERED_STREAM, href.toString(), headers);
 		}
 		return is;
 	}
@@ -249,28 +249,29 @@ public class WorkspaceBean implements Serializable {
 	}
 
 	private void importWorkspace(String location) {
-		InputStream in = null;
 		try {
 			URL url = new URL(location);
 			Pair<InputStream, HttpResponse> p = HttpUtils.getFullResponse(STREAM, location, null, null, null, 10);
 			File root = new File(getWorkspaceRoot());
-			in = p.getFirst();
-			if (p.second.getStatusLine().getStatusCode() != 200) {
-				throw new Exception("Download of '" + location + "' failed. Server responded with HTTP status code "
-						+ p.second.getStatusLine().getStatusCode());
-			}
-			String name = workspaceImportName;
-			if (name == null || name.isEmpty()) {
-				name = new File(url.getPath()).getName();
-				name = name.substring(0, name.lastIndexOf("."));
-			}
-			File target = new File(root, name);
-			if (target.exists()) {
-				lastMessage = "Workspace already exists!";
-			}
-			else {
-				Zip.unzip(in, target);
-				lastMessage = "Workspace has been imported.";
+			try (InputStream in = p.getFirst()) {
+				if (p.second.getStatusLine().getStatusCode() != 200) {
+					throw new Exception("Download of '" + location
+							+ "' failed. Server responded with HTTP status code "
+							+ p.second.getStatusLine().getStatusCode());
+				}
+				String name = workspaceImportName;
+				if (name == null || name.isEmpty()) {
+					name = new File(url.getPath()).getName();
+					name = name.substring(0, name.lastIndexOf("."));
+				}
+				File target = new File(root, name);
+				if (target.exists()) {
+					lastMessage = "Workspace already exists!";
+				}
+				else {
+					Zip.unzip(in, target);
+					lastMessage = "Workspace has been imported.";
+				}
 			}
 		}
 		catch (Exception e) {
@@ -278,9 +279,6 @@ public class WorkspaceBean implements Serializable {
 			FacesMessage fm = new FacesMessage(SEVERITY_ERROR, "Unable to import workspace: " + e.getMessage(), null);
 			FacesContext.getCurrentInstance().addMessage(null, fm);
 		}
-		finally {
-			closeQuietly(in);
-		}
 	}
 
 	public String uploadWorkspace() {
@@ -338,37 +336,34 @@ public class WorkspaceBean implements Serializable {
 	}
 
 	public List<String> downloadWorkspaceList(String url) {
-		InputStream in = null;
 		try {
 			Pair<InputStream, HttpResponse> p = HttpUtils.getFullResponse(STREAM, url, null, null, null, 10);
 			LOG.debug("Retrieving list of remote workspaces from {} ", url);
-			in = p.getFirst();
-			if (p.second.getStatusLine().getStatusCode() != 200) {
-				LOG.warn("Could not get workspace list: Server responded with HTTP status code {}.",
-						p.second.getStatusLine().getStatusCode());
-				return new ArrayList<String>();
-			}
-			List<String> list = readLines(in);
-			List<String> res = new ArrayList<String>(list.size());
-			for (String s : list) {
-				if (!s.trim().isEmpty()) {
-					String[] tokens = s.split(" ", 2);
-					if (tokens.length != 2) {
-						LOG.warn("Invalid workspace metadata line: '{}'", s);
+			try (InputStream in = p.getFirst()) {
+				if (p.second.getStatusLine().getStatusCode() != 200) {
+					LOG.warn("Could not get workspace list: Server responded with HTTP status code {}.",
+							p.second.getStatusLine().getStatusCode());
+					return new ArrayList<String>();
+				}
+				List<String> list = readLines(in);
+				List<String> res = new ArrayList<String>(list.size());
+				for (String s : list) {
+					if (!s.trim().isEmpty()) {
+						String[] tokens = s.split(" ", 2);
+						if (tokens.length != 2) {
+							LOG.warn("Invalid workspace metadata line: '{}'", s);
+						}
+						res.add(tokens[1]);
+						workspaceLocations.put(tokens[1], tokens[0]);
 					}
-					res.add(tokens[1]);
-					workspaceLocations.put(tokens[1], tokens[0]);
 				}
+				return res;
 			}
-			return res;
 		}
 		catch (Throwable t) {
 			LOG.warn("Could not get workspace list: {}.", t.getMessage());
 			return new ArrayList<String>();
 		}
-		finally {
-			closeQuietly(in);
-		}
 	}
 
 	public List<String> getRemoteWorkspaces() {
@@ -0,0 +1,156 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.tools.coverage;
+
+import java.io.File;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.cli.PosixParser;
+import org.deegree.commons.annotations.Tool;
+import org.deegree.commons.tools.CommandUtils;
+import org.deegree.commons.utils.ToolboxRegistration;
+import org.deegree.coverage.raster.AbstractRaster;
+import org.deegree.coverage.raster.TiledRaster;
+import org.deegree.coverage.raster.container.MemoryTileContainer;
+import org.deegree.coverage.raster.io.RasterIOOptions;
+import org.deegree.coverage.raster.utils.RasterFactory;
+import org.deegree.cs.persistence.CRSManager;
+import org.deegree.tile.persistence.geotiff.GeoTiffPyramidBuilder;
+import org.deegree.tools.i18n.Messages;
+
+/**
+ * Builds a tiled BigTIFF with overviews from one or more raster files (mosaiced), which
+ * can be served directly by the GeoTIFF tile store.
+ *
+ * @see GeoTiffPyramidBuilder
+ */
+@Tool("Builds a tiled GeoTIFF with overviews for the GeoTIFF tile store")
+public class GeoTiffPyramidTool implements ToolboxRegistration {
+
+	private static final String OPT_TILE_SIZE = "tilesize";
+
+	private static final String OPT_COMPRESSION = "compression";
+
+	private static final String OPT_THREADS = "threads";
+
+	private static final String OPT_CRS = "crs";
+
+	/**
+	 * @param args
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+		Options options = initOptions();
+		if (args.length == 0 || (args.length > 0 && (args[0].contains("help") || args[0].contains("?")))) {
+			printHelp(options);
+		}
+
+		CommandLine cmdline;
+		int tileSize;
+		int threads;
+		try {
+			cmdline = new PosixParser().parse(options, args);
+			tileSize = CommandUtils.getIntOption(cmdline, OPT_TILE_SIZE, 256);
+			threads = CommandUtils.getIntOption(cmdline, OPT_THREADS, Runtime.getRuntime().availableProcessors());
+			if (cmdline.getArgs().length < 2) {
+				throw new ParseException("at least one input file and the output file are required");
+			}
+		}
+		catch (ParseException e) {
+			System.err.println(Messages.getMessage("TOOL_COMMANDLINE_ERROR", e.getMessage()));
+			return;
+		}
+
+		String[] files = cmdline.getArgs();
+		String compression = cmdline.getOptionValue(OPT_COMPRESSION, "Deflate");
+		if ("none".equalsIgnoreCase(compression)) {
+			compression = null;
+		}
+
+		AbstractRaster raster = loadRaster(files);
+		if (cmdline.hasOption(OPT_CRS)) {
+			raster.setCoordinateSystem(CRSManager.getCRSRef(cmdline.getOptionValue(OPT_CRS)));
+		}
+		File target = new File(files[files.length - 1]);
+		long start = System.currentTimeMillis();
+		int levels = new GeoTiffPyramidBuilder(raster, tileSize, compression, threads).build(target);
+		System.out.println("Wrote " + levels + " levels to " + target + " in "
+				+ (System.currentTimeMillis() - start) / 1000 + " s.");
+	}
+
+	private static AbstractRaster loadRaster(String[] files) throws Exception {
+		if (files.length == 2) {
+			File f = new File(files[0]);
+			return RasterFactory.loadRasterFromFile(f, RasterIOOptions.forFile(f));
+		}
+		MemoryTileContainer tileContainer = new MemoryTileContainer();
+		for (int i = 0; i < files.length - 1; i++) {
+			File f = new File(files[i]);
+			tileContainer.addTile(RasterFactory.loadRasterFromFile(f, RasterIOOptions.forFile(f)));
+		}
+		return new TiledRaster(tileContainer, null);
+	}
+
+	private static Options initOptions() {
+		Options opts = new Options();
+
+		Option opt = new Option(OPT_TILE_SIZE, true, "width and height of the tiles in pixels (default: 256)");
+		opts.addOption(opt);
+
+		opt = new Option(OPT_COMPRESSION, true,
+				"TIFF compression of the tiles, e.g. Deflate, LZW, JPEG or none (default: Deflate)");
+		opts.addOption(opt);
+
+		opt = new Option(OPT_THREADS, true, "number of worker threads (default: number of processors)");
+		opts.addOption(opt);
+
+		opt = new Option(OPT_CRS, true, "crs of the input files, if not contained in the files");
+		opts.addOption(opt);
+
+		CommandUtils.addDefaultOptions(opts);
+		return opts;
+	}
+
+	private static void printHelp(Options options) {
+		String msg = "Builds a tiled BigTIFF with overviews, which can be served by the GeoTIFF tile store."
+				+ " Multiple input files will be mosaiced.";
+		CommandUtils.printHelp(options, GeoTiffPyramidTool.class.getSimpleName(), msg,
+				"inputfile [more_inputfiles*] outputfile");
+	}
+
+}
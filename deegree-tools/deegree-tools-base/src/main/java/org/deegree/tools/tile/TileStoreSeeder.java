@@ -0,0 +1,232 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2024 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.tools.tile;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.cli.PosixParser;
+import org.deegree.commons.annotations.Tool;
+import org.deegree.commons.tools.CommandUtils;
+import org.deegree.commons.utils.ArrayUtils;
+import org.deegree.commons.utils.ToolboxRegistration;
+import org.deegree.cs.coordinatesystems.ICRS;
+import org.deegree.geometry.Envelope;
+import org.deegree.geometry.GeometryFactory;
+import org.deegree.tile.TileDataSet;
+import org.deegree.tile.persistence.TileStore;
+import org.deegree.tile.persistence.TileStoreProvider;
+import org.deegree.tile.seed.SeedingProgress;
+import org.deegree.tile.seed.TileSeeder;
+import org.deegree.tools.i18n.Messages;
+import org.deegree.workspace.Workspace;
+import org.deegree.workspace.standard.DefaultWorkspace;
+
+/**
+ * Pre-generates the tiles of a tile store of a workspace.
+ * <p>
+ * The progress is stored in a checkpoint file, so a run that has been aborted (e.g. with
+ * Ctrl-C) continues where it stopped when it is started again with the same parameters.
+ * On Ctrl-C, the JVM exits after the checkpoint has been written and the tile stores have
+ * been destroyed, so that the tiles counted by the checkpoint have been stored.
+ * </p>
+ */
+@Tool("Pre-generates (seeds) the tiles of a tile store")
+public class TileStoreSeeder implements ToolboxRegistration {
+
+	private static final String OPT_WORKSPACE = "workspace";
+
+	private static final String OPT_SOURCE = "source";
+
+	private static final String OPT_TARGET = "target";
+
+	private static final String OPT_TILE_MATRIX_SET = "tilematrixset";
+
+	private static final String OPT_LEVELS = "levels";
+
+	private static final String OPT_BBOX = "bbox";
+
+	private static final String OPT_THREADS = "threads";
+
+	private static final String OPT_CHECKPOINT = "checkpoint";
+
+	private static final long SHUTDOWN_TIMEOUT = 120000;
+
+	/**
+	 * @param args
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length == 0 || (args.length > 0 && (args[0].contains("help") || args[0].contains("?")))) {
+			printHelp(initOptions());
+		}
+
+		CommandLine cmdline;
+		int minLevel = 0;
+		int maxLevel = -1;
+		double[] bbox = null;
+		int threads;
+		try {
+			cmdline = new PosixParser().parse(initOptions(), args);
+			String levels = cmdline.getOptionValue(OPT_LEVELS);
+			if (levels != null) {
+				String[] parts = levels.split("-");
+				minLevel = Integer.parseInt(parts[0].trim());
+				maxLevel = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : minLevel;
+			}
+			if (cmdline.hasOption(OPT_BBOX)) {
+				bbox = ArrayUtils.splitAsDoubles(cmdline.getOptionValue(OPT_BBOX), ",");
+				if (bbox.length != 4) {
+					throw new ParseException(OPT_BBOX + " must consist of four comma separated values");
+				}
+			}
+			threads = CommandUtils.getIntOption(cmdline, OPT_THREADS, 4);
+		}
+		catch (ParseException | NumberFormatException e) {
+			System.err.println(Messages.getMessage("TOOL_COMMANDLINE_ERROR", e.getMessage()));
+			return;
+		}
+
+		String sourceId = cmdline.getOptionValue(OPT_SOURCE);
+		String targetId = cmdline.getOptionValue(OPT_TARGET);
+		String tileMatrixSet = cmdline.getOptionValue(OPT_TILE_MATRIX_SET);
+		String checkpoint = cmdline.getOptionValue(OPT_CHECKPOINT,
+				"seeding-" + sourceId + "-" + tileMatrixSet + ".properties");
+
+		Workspace ws = new DefaultWorkspace(new File(cmdline.getOptionValue(OPT_WORKSPACE)));
+		Thread seedingThread = Thread.currentThread();
+		CountDownLatch destroyed = new CountDownLatch(1);
+		Thread hook = new Thread(() -> {
+			// aborted with Ctrl-C: let the seeder write the checkpoint and the tile stores
+			// store their pending tiles
+			seedingThread.interrupt();
+			try {
+				destroyed.await(SHUTDOWN_TIMEOUT, MILLISECONDS);
+			}
+			catch (InterruptedException e) {
+				// exit anyway
+			}
+		});
+		Runtime.getRuntime().addShutdownHook(hook);
+		try {
+			ws.initAll();
+			TileStore source = getTileStore(ws, sourceId);
+			TileStore target = targetId == null ? null : getTileStore(ws, targetId);
+			TileDataSet dataSet = source.getTileDataSet(tileMatrixSet);
+			if (dataSet == null) {
+				System.err.println("Tile store '" + sourceId + "' has no tile matrix set '" + tileMatrixSet + "'.");
+				return;
+			}
+			Envelope envelope = null;
+			if (bbox != null) {
+				ICRS crs = dataSet.getTileMatrixSet().getSpatialMetadata().getCoordinateSystems().get(0);
+				envelope = new GeometryFactory().createEnvelope(bbox[0], bbox[1], bbox[2], bbox[3], crs);
+			}
+			TileSeeder seeder = new TileSeeder(source, target, tileMatrixSet, envelope, minLevel, maxLevel, threads,
+					new File(checkpoint));
+			seed(seeder, checkpoint);
+		}
+		finally {
+			// the seeder has stopped, an interrupt must not disturb destroying the stores
+			Thread.interrupted();
+			ws.destroy();
+			destroyed.countDown();
+			try {
+				Runtime.getRuntime().removeShutdownHook(hook);
+			}
+			catch (IllegalStateException e) {
+				// JVM is already shutting down
+			}
+		}
+	}
+
+	private static void seed(TileSeeder seeder, String checkpoint) {
+		try {
+			SeedingProgress progress = seeder.seed();
+			System.out.println("Seeding finished: " + progress);
+		}
+		catch (InterruptedException e) {
+			System.out.println("Seeding interrupted: " + seeder.getProgress());
+			System.out.println("Start again with the same parameters to resume from " + checkpoint + ".");
+		}
+	}
+
+	private static TileStore getTileStore(Workspace ws, String id) {
+		TileStore store = ws.getResource(TileStoreProvider.class, id);
+		if (store == null) {
+			throw new IllegalArgumentException("No tile store with id '" + id + "' in workspace.");
+		}
+		return store;
+	}
+
+	private static Options initOptions() {
+		Options opts = new Options();
+
+		Option opt = new Option(OPT_WORKSPACE, true, "workspace directory");
+		opt.setRequired(true);
+		opts.addOption(opt);
+
+		opt = new Option(OPT_SOURCE, true, "id of the tile store to retrieve the tiles from");
+		opt.setRequired(true);
+		opts.addOption(opt);
+
+		opt = new Option(OPT_TILE_MATRIX_SET, true, "id of the tile matrix set (tile data set) to seed");
+		opt.setRequired(true);
+		opts.addOption(opt);
+
+		opts.addOption(OPT_TARGET, true, "id of the tile store to write the tiles to, if omitted, "
+				+ "the tiles are only retrieved (e.g. to fill a caching tile store)");
+		opts.addOption(OPT_LEVELS, true,
+				"range of tile matrices to seed, e.g. 0-5 (indexes in the tile matrix set, default: all)");
+		opts.addOption(OPT_BBOX, true, "area to seed as minx,miny,maxx,maxy in the CRS of the tile matrix set");
+		opts.addOption(OPT_THREADS, true, "number of worker threads (default: 4)");
+		opts.addOption(OPT_CHECKPOINT, true,
+				"file to store the progress in (default: seeding-<source>-<tilematrixset>.properties)");
+
+		CommandUtils.addDefaultOptions(opts);
+		return opts;
+	}
+
+	private static void printHelp(Options options) {
+		CommandUtils.printHelp(options, TileStoreSeeder.class.getSimpleName(), null, null);
+	}
+
+}